@@ -20,6 +20,8 @@ package org.apache.flink.configuration;
 
 import org.apache.flink.annotation.docs.Documentation;
 
+import java.time.Duration;
+
 /** A collection of all configuration options that relate to checkpoints and savepoints. */
 public class CheckpointingOptions {
 
@@ -167,4 +169,74 @@ public class CheckpointingOptions {
                                     "The default size of the write buffer for the checkpoint streams that write to file systems. "
                                             + "The actual write buffer size is determined to be the maximum of the value of this option and option '%s'.",
                                     FS_SMALL_FILE_THRESHOLD.key()));
+
+    /**
+     * Whether the checkpoint streams of a TaskManager merge small state into shared segment files.
+     */
+    public static final ConfigOption<Boolean> FILE_MERGING_ENABLED =
+            ConfigOptions.key("state.checkpoints.file-merging.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether the checkpoint streams of a TaskManager merge their small state into shared segment files, "
+                                    + "rather than creating one file per state handle. This reduces the number of files that a "
+                                    + "checkpoint creates on the file system. Savepoints never merge their state.");
+
+    /** State up to this size is merged into segment files when file merging is enabled. */
+    public static final ConfigOption<MemorySize> FILE_MERGING_MAX_STATE_SIZE =
+            ConfigOptions.key("state.checkpoints.file-merging.max-state-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("1mb"))
+                    .withDescription(
+                            String.format(
+                                    "State chunks up to this size are merged into segment files when '%s' is set. "
+                                            + "Larger state chunks are written to files of their own. "
+                                            + "The state chunks are buffered in memory up to this size.",
+                                    FILE_MERGING_ENABLED.key()));
+
+    /** The maximum time a checkpoint stream waits for other streams to fill its segment file. */
+    public static final ConfigOption<Duration> FILE_MERGING_MAX_WAIT =
+            ConfigOptions.key("state.checkpoints.file-merging.max-wait")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(50))
+                    .withDescription(
+                            "The maximum time a checkpoint stream waits for the other streams of the TaskManager to append "
+                                    + "their state to its segment file, before the segment file is closed. A segment file is "
+                                    + "closed right away once all open streams appended their state.");
+
+    /**
+     * Whether keyed operators that support it read their keyed state asynchronously, without
+     * blocking the task thread.
+     */
+    public static final ConfigOption<Boolean> ASYNC_STATE_ACCESS_ENABLED =
+            ConfigOptions.key("state.backend.async-access.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether keyed operators that support it read their keyed state asynchronously, so that the "
+                                    + "task thread processes records of other keys while a state read is in progress. Records "
+                                    + "of the same key are still processed in order. Only state backends that support concurrent "
+                                    + "reads, like the RocksDB state backend, read the state on separate I/O threads.");
+
+    /** The maximum number of records that an operator processes with asynchronous state access. */
+    public static final ConfigOption<Integer> ASYNC_STATE_ACCESS_CAPACITY =
+            ConfigOptions.key("state.backend.async-access.capacity")
+                    .intType()
+                    .defaultValue(100)
+                    .withDescription(
+                            String.format(
+                                    "The maximum number of in-flight records of an operator when '%s' is set. "
+                                            + "Once the capacity is reached, the operator waits for records to complete "
+                                            + "before it accepts new records.",
+                                    ASYNC_STATE_ACCESS_ENABLED.key()));
+
+    /** The number of threads of an operator that read keyed state asynchronously. */
+    public static final ConfigOption<Integer> ASYNC_STATE_ACCESS_IO_THREADS =
+            ConfigOptions.key("state.backend.async-access.io-threads")
+                    .intType()
+                    .defaultValue(4)
+                    .withDescription(
+                            String.format(
+                                    "The number of threads of an operator that read keyed state when '%s' is set.",
+                                    ASYNC_STATE_ACCESS_ENABLED.key()));
 }
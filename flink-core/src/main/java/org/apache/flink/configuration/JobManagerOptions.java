@@ -22,6 +22,8 @@ import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.annotation.docs.Documentation;
 import org.apache.flink.configuration.description.Description;
 
+import java.time.Duration;
+
 import static org.apache.flink.configuration.ConfigOptions.key;
 import static org.apache.flink.configuration.description.LinkElement.link;
 import static org.apache.flink.configuration.description.TextElement.text;
@@ -355,9 +357,159 @@ public class JobManagerOptions {
                             Description.builder()
                                     .text(
                                             "Determines which scheduler implementation is used to schedule tasks. Accepted values are:")
-                                    .list(text("'ng': new generation scheduler"))
+                                    .list(
+                                            text("'ng': new generation scheduler"),
+                                            text(
+                                                    "'adaptive-batch': scheduler which decides the parallelism of "
+                                                            + "the vertices of batch jobs from the amount of data "
+                                                            + "they consume"),
+                                            text(
+                                                    "'adaptive': scheduler which adapts the "
+                                                            + "parallelism of streaming jobs to the "
+                                                            + "available slots and rescales them when "
+                                                            + "TaskManagers join or leave. Requires "
+                                                            + "declarative resource management."))
                                     .build());
 
+    /**
+     * The lower bound of the parallelism which the adaptive batch scheduler decides for a job
+     * vertex.
+     */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Integer> ADAPTIVE_BATCH_SCHEDULER_MIN_PARALLELISM =
+            key("jobmanager.adaptive-batch-scheduler.min-parallelism")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription(
+                            "The lower bound of the parallelism which the adaptive batch scheduler "
+                                    + "decides for a job vertex whose parallelism is not set.");
+
+    /**
+     * The upper bound of the parallelism which the adaptive batch scheduler decides for a job
+     * vertex.
+     */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Integer> ADAPTIVE_BATCH_SCHEDULER_MAX_PARALLELISM =
+            key("jobmanager.adaptive-batch-scheduler.max-parallelism")
+                    .intType()
+                    .defaultValue(128)
+                    .withDescription(
+                            "The upper bound of the parallelism which the adaptive batch scheduler "
+                                    + "decides for a job vertex whose parallelism is not set. It is "
+                                    + "also used as the max parallelism of such a vertex if that is "
+                                    + "not set either.");
+
+    /** The amount of data which a task scheduled by the adaptive batch scheduler should consume. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<MemorySize> ADAPTIVE_BATCH_SCHEDULER_AVG_DATA_VOLUME_PER_TASK =
+            key("jobmanager.adaptive-batch-scheduler.avg-data-volume-per-task")
+                    .memoryType()
+                    .defaultValue(MemorySize.ofMebiBytes(1024))
+                    .withDescription(
+                            "The amount of data which a task should consume on average. The "
+                                    + "adaptive batch scheduler divides the amount of data produced "
+                                    + "by the inputs of a job vertex by this value to decide its "
+                                    + "parallelism. Broadcast inputs are not taken into account. "
+                                    + "Tasks report the bytes of all of their outputs together, "
+                                    + "so the data of an input whose producer has several outputs "
+                                    + "is approximated by an equal share of the bytes the producer "
+                                    + "wrote.");
+
+    /** Whether the adaptive batch scheduler starts speculative attempts of slow tasks. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Boolean> SPECULATIVE_ENABLED =
+            key("jobmanager.adaptive-batch-scheduler.speculative.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether the adaptive batch scheduler starts a speculative attempt of "
+                                    + "a slow task on another TaskManager. Whichever attempt "
+                                    + "finishes first is used, the other one is cancelled. "
+                                    + "Tasks of job vertices without result partitions, e.g. "
+                                    + "sinks, are never speculated, as they write to external "
+                                    + "systems.");
+
+    /** The interval in which the adaptive batch scheduler looks for slow tasks. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Duration> SPECULATIVE_CHECK_INTERVAL =
+            key("jobmanager.adaptive-batch-scheduler.speculative.check-interval")
+                    .durationType()
+                    .defaultValue(Duration.ofSeconds(1))
+                    .withDescription(
+                            "The interval in which the adaptive batch scheduler looks for "
+                                    + "slow tasks if speculative execution is enabled.");
+
+    /** The ratio of finished subtasks of a job vertex before its slow tasks are detected. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Double> SPECULATIVE_BASELINE_RATIO =
+            key("jobmanager.adaptive-batch-scheduler.speculative.baseline-ratio")
+                    .doubleType()
+                    .defaultValue(0.75)
+                    .withDescription(
+                            "The ratio of subtasks of a job vertex which must be finished before "
+                                    + "the median of their execution times is used to detect the "
+                                    + "slow tasks of the job vertex.");
+
+    /** The factor of the median execution time above which a task is slow. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Double> SPECULATIVE_BASELINE_MULTIPLIER =
+            key("jobmanager.adaptive-batch-scheduler.speculative.baseline-multiplier")
+                    .doubleType()
+                    .defaultValue(1.5)
+                    .withDescription(
+                            "A task is slow if it executes longer than this factor times "
+                                    + "the median execution time of the finished subtasks "
+                                    + "of its job vertex.");
+
+    /** The execution time below which a task is never slow. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Duration> SPECULATIVE_BASELINE_LOWER_BOUND =
+            key("jobmanager.adaptive-batch-scheduler.speculative.baseline-lower-bound")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(1))
+                    .withDescription(
+                            "The execution time below which a task is never considered "
+                                    + "slow. This avoids speculating short tasks.");
+
+    /** How long no speculative attempts are placed on a TaskManager which ran a slow task. */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Duration> SPECULATIVE_BLOCK_SLOW_NODE_DURATION =
+            key("jobmanager.adaptive-batch-scheduler.speculative.block-slow-node-duration")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(1))
+                    .withDescription(
+                            "How long no speculative attempts are placed on a TaskManager "
+                                    + "after a slow task was detected on it.");
+
+    /**
+     * How long the number of available slots must be stable before the adaptive scheduler
+     * (re)starts the job at the parallelism they permit.
+     */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Duration> ADAPTIVE_SCHEDULER_RESOURCE_STABILIZATION_TIMEOUT =
+            key("jobmanager.adaptive-scheduler.resource-stabilization-timeout")
+                    .durationType()
+                    .defaultValue(Duration.ofSeconds(10))
+                    .withDescription(
+                            "How long the number of available slots must not change before the "
+                                    + "adaptive scheduler starts or rescales the job. The job is "
+                                    + "started right away once all desired slots are available.");
+
+    /**
+     * The minimum increase of the parallelism of any job vertex for which the adaptive scheduler
+     * rescales a running job when new slots become available.
+     */
+    @Documentation.Section(Documentation.Sections.EXPERT_SCHEDULING)
+    public static final ConfigOption<Integer> ADAPTIVE_SCHEDULER_MIN_PARALLELISM_INCREASE =
+            key("jobmanager.adaptive-scheduler.min-parallelism-increase")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription(
+                            "The minimum increase of the parallelism of a job vertex for which "
+                                    + "the adaptive scheduler restarts a running job at a higher "
+                                    + "parallelism. The job is always rescaled when slots are "
+                                    + "lost.");
+
     /**
      * Config parameter controlling whether partitions should already be released during the job
      * execution.
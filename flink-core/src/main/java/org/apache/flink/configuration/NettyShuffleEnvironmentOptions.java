@@ -21,6 +21,8 @@ package org.apache.flink.configuration;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.annotation.docs.Documentation;
 
+import java.time.Duration;
+
 import static org.apache.flink.configuration.ConfigOptions.key;
 
 /** The set of configuration options relating to network stack. */
@@ -85,12 +87,32 @@ public class NettyShuffleEnvironmentOptions {
                                     + " more effective for IO bounded scenario when data compression ratio is high. Currently, shuffle data "
                                     + "compression is an experimental feature and the config option can be changed in the future.");
 
+    /**
+     * Boolean flag indicating whether the compression of the blocking shuffle data is paused for
+     * data that does not compress well.
+     */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Boolean> BLOCKING_SHUFFLE_COMPRESSION_ADAPTIVE =
+            key("taskmanager.network.blocking-shuffle.compression.adaptive")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Boolean flag indicating whether each result partition samples the ratio of its compressed"
+                                    + " shuffle data and passes the data uncompressed for a while if it hardly shrinks."
+                                    + " This saves the CPU time of compressing incompressible data. Only has an effect if '"
+                                    + BLOCKING_SHUFFLE_COMPRESSION_ENABLED.key()
+                                    + "' is set to true.");
+
     /** The codec to be used when compressing shuffle data. */
-    @Documentation.ExcludeFromDocumentation("Currently, LZ4 is the only legal option.")
     public static final ConfigOption<String> SHUFFLE_COMPRESSION_CODEC =
             key("taskmanager.network.compression.codec")
                     .defaultValue("LZ4")
-                    .withDescription("The codec to be used when compressing shuffle data.");
+                    .withDescription(
+                            "The codec to be used when compressing shuffle data, either \"LZ4\" or \"DEFLATE\"."
+                                    + " LZ4 is fast, while DEFLATE achieves a higher compression ratio at the cost of"
+                                    + " more CPU time, which pays off if the network or the disk is the bottleneck."
+                                    + " The name of a class implementing the BlockCompressionFactory interface is"
+                                    + " accepted as well.");
 
     /**
      * Boolean flag to enable/disable more detailed metrics about inbound/outbound network queue
@@ -214,6 +236,23 @@ public class NettyShuffleEnvironmentOptions {
                                     + " direct memory for shuffle data writing and reading so just increase the size of"
                                     + " direct memory if direct memory OOM error occurs.");
 
+    /**
+     * Minimum number of data regions of a sort-merge blocking result partition to merge the regions
+     * of each subpartition into one contiguous run before the partition is finished.
+     */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_SORT_SHUFFLE_MIN_REGIONS_TO_MERGE =
+            key("taskmanager.network.sort-shuffle.min-regions-to-merge")
+                    .intType()
+                    .defaultValue(Integer.MAX_VALUE)
+                    .withDescription(
+                            "Minimum number of data regions of a sort-merge blocking result partition to"
+                                    + " merge the data of each subpartition into one contiguous region before the"
+                                    + " partition is finished. Every flush of the sort buffer produces a new data"
+                                    + " region, and with many regions consumers read their data with many small and"
+                                    + " random reads. Merging writes the shuffle data a second time, so it only"
+                                    + " pays off for files with many small regions.");
+
     /** Number of max buffers can be used for each output subparition. */
     @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
     public static final ConfigOption<Integer> NETWORK_MAX_BUFFERS_PER_CHANNEL =
@@ -227,6 +266,61 @@ public class NettyShuffleEnvironmentOptions {
                                     + " and can be ignored by things like flatMap operators, records spanning multiple buffers or single timer"
                                     + " producing large amount of data.");
 
+    /** Whether the input gates adapt the buffer size to the throughput of the channels. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Boolean> NETWORK_BUFFER_DEBLOAT_ENABLED =
+            key("taskmanager.network.memory.buffer-debloat.enabled")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "Whether the input gates periodically measure their throughput and announce a buffer size"
+                                    + " to the producers, so that the in-flight data of a gate can be consumed within"
+                                    + " the configured target time. This bounds the amount of in-flight data under"
+                                    + " back pressure, which speeds up aligned checkpoints and shrinks the channel state"
+                                    + " of unaligned checkpoints.");
+
+    /** The time the in-flight data of an input gate should be consumed in. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Duration> NETWORK_BUFFER_DEBLOAT_TARGET =
+            key("taskmanager.network.memory.buffer-debloat.target")
+                    .durationType()
+                    .defaultValue(Duration.ofSeconds(1))
+                    .withDescription(
+                            "The time the in-flight data of an input gate should be consumed in, if buffer"
+                                    + " debloating is enabled. Lower values reduce the in-flight data, but may reduce"
+                                    + " the throughput if the buffers get too small.");
+
+    /** The interval at which the buffer size is recalculated. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Duration> NETWORK_BUFFER_DEBLOAT_PERIOD =
+            key("taskmanager.network.memory.buffer-debloat.period")
+                    .durationType()
+                    .defaultValue(Duration.ofMillis(200))
+                    .withDescription(
+                            "The interval at which the input gates measure their throughput and recalculate"
+                                    + " the buffer size, if buffer debloating is enabled.");
+
+    /** The number of throughput measurements the buffer size is averaged over. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_BUFFER_DEBLOAT_SAMPLES =
+            key("taskmanager.network.memory.buffer-debloat.samples")
+                    .intType()
+                    .defaultValue(20)
+                    .withDescription(
+                            "The number of throughput measurements the throughput is averaged over, if buffer"
+                                    + " debloating is enabled. Higher values react slower to throughput changes, but"
+                                    + " avoid announcing a new buffer size for temporary spikes.");
+
+    /** The minimum relative change of the buffer size that is announced to the producers. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES =
+            key("taskmanager.network.memory.buffer-debloat.threshold-percentages")
+                    .intType()
+                    .defaultValue(25)
+                    .withDescription(
+                            "The minimum difference in percent between the new and the last announced buffer"
+                                    + " size, for the new buffer size to be announced to the producers.");
+
     /** The timeout for requesting exclusive buffers for each channel. */
     @Documentation.ExcludeFromDocumentation(
             "This option is purely implementation related, and may be removed as the implementation changes.")
@@ -249,6 +343,20 @@ public class NettyShuffleEnvironmentOptions {
                                     + " by configured memory limits, but some resource frameworks like yarn would track this memory usage and kill the container once"
                                     + " memory exceeding some threshold. Also note that this option is experimental and might be changed future.");
 
+    /** The minimum serialized size of broadcast records which share their buffers. */
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<MemorySize> NETWORK_BROADCAST_MIN_SHARED_RECORD_SIZE =
+            key("taskmanager.network.broadcast.min-shared-record-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("32kb"))
+                    .withDescription(
+                            "The minimum serialized size of records broadcast by a keyed, rebalancing or other "
+                                    + "non-broadcast output, from which the records are copied only once into network "
+                                    + "buffers shared by all channels. Smaller records are copied into the buffers of "
+                                    + "every channel. Sharing the buffers finishes the partially filled buffers of all "
+                                    + "channels, so it only pays off for records which are larger than a network buffer. "
+                                    + "The default is the size of a network buffer with the default memory segment size.");
+
     // ------------------------------------------------------------------------
     //  Netty Options
     // ------------------------------------------------------------------------
@@ -316,6 +424,33 @@ public class NettyShuffleEnvironmentOptions {
                                     + " based on the platform. Note that the \"epoll\" mode can get better performance, less GC and have more advanced features which are"
                                     + " only available on modern Linux.");
 
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<MemorySize> SHARED_MEMORY_SIZE =
+            key("taskmanager.network.netty.shared-memory.size")
+                    .memoryType()
+                    .defaultValue(MemorySize.ZERO)
+                    .withDescription(
+                            "Size of the shared memory region of every connection between two TaskManagers on the "
+                                    + "same host. If larger than zero, the data of network buffers sent to a TaskManager on "
+                                    + "the same host is passed through a memory-mapped file in /dev/shm (or the temporary "
+                                    + "directory if it does not exist) instead of through the socket, which saves copying "
+                                    + "the data into and out of the kernel. Buffers that do not fit into the region are sent "
+                                    + "through the socket. Credit-based flow control is not affected. The memory is not "
+                                    + "accounted by the configured memory limits. Both TaskManagers must run as the same "
+                                    + "user. Shared memory is not used if SSL is enabled for the data transport.");
+
+    @Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+    public static final ConfigOption<Integer> MAX_MESSAGES_PER_FLUSH =
+            key("taskmanager.network.netty.server.max-messages-per-flush")
+                    .intType()
+                    .defaultValue(64)
+                    .withDescription(
+                            "The maximum number of buffers the server writes to a connection before flushing it. "
+                                    + "Buffers of different consumers which are ready at the same time are written "
+                                    + "together and flushed with a single gathering write, which reduces the number of "
+                                    + "system calls with many channels. The server stops earlier if the connection is not "
+                                    + "writable any more. Setting it to 1 flushes every buffer separately.");
+
     // ------------------------------------------------------------------------
     //  Partition Request Options
     // ------------------------------------------------------------------------
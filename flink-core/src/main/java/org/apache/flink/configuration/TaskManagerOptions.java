@@ -382,6 +382,22 @@ public class TaskManagerOptions {
                                     + " allocated to task slots. The configured value will be fully counted when Flink calculates the JVM"
                                     + " max direct memory size parameter.");
 
+    /**
+     * Size of the direct memory the sort-merge blocking shuffle uses to read shuffle data, which is
+     * taken from the framework off-heap memory.
+     */
+    public static final ConfigOption<MemorySize> NETWORK_BATCH_SHUFFLE_READ_MEMORY =
+            key("taskmanager.memory.framework.off-heap.batch-shuffle.size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("32m"))
+                    .withDescription(
+                            String.format(
+                                    "Size of the direct memory used by the sort-merge blocking shuffle to read shuffle"
+                                            + " data. The memory is shared by all result partitions of a TaskExecutor and"
+                                            + " is taken from '%s', so it must not exceed that value. Larger values let"
+                                            + " the shuffle read larger sequential batches from disk.",
+                                    FRAMEWORK_OFF_HEAP_MEMORY.key()));
+
     /** Task Heap Memory size for TaskExecutors. */
     @Documentation.Section(Documentation.Sections.COMMON_MEMORY)
     public static final ConfigOption<MemorySize> TASK_HEAP_MEMORY =
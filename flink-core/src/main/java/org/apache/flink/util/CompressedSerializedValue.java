@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.util;
+
+import org.apache.flink.annotation.Internal;
+
+import java.io.IOException;
+
+/**
+ * A {@link SerializedValue} whose serialized data is compressed. This is useful for large values
+ * with a lot of redundancy, such as arrays of descriptors that share most of their fields, which
+ * are sent to many receivers.
+ *
+ * @param <T> The type of the value held.
+ */
+@Internal
+public class CompressedSerializedValue<T> extends SerializedValue<T> {
+
+    private static final long serialVersionUID = -4358765382738374654L;
+
+    private CompressedSerializedValue(byte[] compressedSerializedData) {
+        super(compressedSerializedData);
+    }
+
+    @Override
+    public T deserializeValue(ClassLoader loader) throws IOException, ClassNotFoundException {
+        Preconditions.checkNotNull(loader, "No classloader has been passed");
+        return InstantiationUtil.decompressAndDeserializeObject(getByteArray(), loader);
+    }
+
+    /** Returns the size of the compressed serialized data. */
+    public int getSize() {
+        return getByteArray().length;
+    }
+
+    /**
+     * Serializes and compresses the given value.
+     *
+     * @param object the value, must not be <code>null</code>
+     */
+    public static <T> CompressedSerializedValue<T> fromObject(T object) throws IOException {
+        Preconditions.checkNotNull(object, "Value must not be null");
+        return new CompressedSerializedValue<>(
+                InstantiationUtil.serializeObjectAndCompress(object));
+    }
+
+    /** Creates a value from data that was serialized and compressed by {@link #fromObject}. */
+    public static <T> CompressedSerializedValue<T> fromBytes(byte[] compressedSerializedData) {
+        return new CompressedSerializedValue<>(compressedSerializedData);
+    }
+
+    @Override
+    public String toString() {
+        return "CompressedSerializedValue";
+    }
+}
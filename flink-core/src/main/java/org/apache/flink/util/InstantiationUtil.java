@@ -49,6 +49,8 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /** Utility class to create instances from class objects and checking failure reasons. */
 @Internal
@@ -627,6 +629,27 @@ public final class InstantiationUtil {
         }
     }
 
+    /**
+     * Serializes the given object with Java serialization and compresses the result with the
+     * DEFLATE algorithm.
+     *
+     * @see #decompressAndDeserializeObject(byte[], ClassLoader)
+     */
+    public static byte[] serializeObjectAndCompress(Object o) throws IOException {
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        // closing the object stream finishes the compression
+        try (ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(baos))) {
+            oos.writeObject(o);
+        }
+        return baos.toByteArray();
+    }
+
+    /** Decompresses and deserializes bytes created by {@link #serializeObjectAndCompress}. */
+    public static <T> T decompressAndDeserializeObject(byte[] bytes, ClassLoader cl)
+            throws IOException, ClassNotFoundException {
+        return deserializeObject(new InflaterInputStream(new ByteArrayInputStream(bytes)), cl);
+    }
+
     public static void serializeObject(OutputStream out, Object o) throws IOException {
         ObjectOutputStream oos =
                 out instanceof ObjectOutputStream
@@ -45,7 +45,7 @@ public class SerializedValue<T> implements java.io.Serializable {
     /** The serialized data. */
     @Nullable private final byte[] serializedData;
 
-    private SerializedValue(byte[] serializedData) {
+    protected SerializedValue(byte[] serializedData) {
         Preconditions.checkNotNull(serializedData, "Serialized data");
         this.serializedData = serializedData;
     }
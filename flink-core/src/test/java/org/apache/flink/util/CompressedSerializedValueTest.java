@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.util;
+
+import org.apache.flink.core.testutils.CommonTestUtils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the {@link CompressedSerializedValue}. */
+public class CompressedSerializedValueTest {
+
+    @Test
+    public void testSimpleValue() throws Exception {
+        final String value = "teststring";
+
+        CompressedSerializedValue<String> v = CompressedSerializedValue.fromObject(value);
+        SerializedValue<String> copy = CommonTestUtils.createCopySerializable(v);
+
+        assertEquals(value, v.deserializeValue(getClass().getClassLoader()));
+        assertEquals(value, copy.deserializeValue(getClass().getClassLoader()));
+
+        assertEquals(v, copy);
+        assertEquals(v.hashCode(), copy.hashCode());
+    }
+
+    @Test
+    public void testFromBytes() throws Exception {
+        final String[] value = new String[100];
+        Arrays.fill(value, "a repeated value");
+
+        CompressedSerializedValue<String[]> v = CompressedSerializedValue.fromObject(value);
+        CompressedSerializedValue<String[]> restored =
+                CompressedSerializedValue.fromBytes(v.getByteArray());
+
+        assertArrayEquals(value, restored.deserializeValue(getClass().getClassLoader()));
+        assertTrue(v.getSize() < InstantiationUtil.serializeObject(value).length);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() throws Exception {
+        CompressedSerializedValue.fromObject(null);
+    }
+}
@@ -32,6 +32,7 @@ import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStateBackend;
 import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 
 import javax.annotation.Nonnull;
@@ -69,6 +70,12 @@ final class StubStateBackend implements StateBackend {
         return backend.createCheckpointStorage(jobId);
     }
 
+    @Override
+    public CheckpointStorageAccess createCheckpointStorage(
+            JobID jobId, SegmentFileWriters segmentFileWriters) throws IOException {
+        return backend.createCheckpointStorage(jobId, segmentFileWriters);
+    }
+
     @Override
     public <K> CheckpointableKeyedStateBackend<K> createKeyedStateBackend(
             Environment env,
@@ -23,15 +23,19 @@ import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
 import org.apache.flink.runtime.checkpoint.PrioritizedOperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReader;
+import org.apache.flink.runtime.concurrent.Executors;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
 import org.apache.flink.runtime.state.LocalRecoveryDirectoryProvider;
 import org.apache.flink.runtime.state.TaskStateManager;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.util.concurrent.Executor;
+
 /**
  * A minimally implemented {@link TaskStateManager} that provides the functionality required to run
  * the {@code state-processor-api}.
@@ -41,6 +45,8 @@ final class SavepointTaskStateManager implements TaskStateManager {
 
     @Nonnull private final PrioritizedOperatorSubtaskState prioritizedOperatorSubtaskState;
 
+    private final SegmentFileWriters segmentFileWriters = new SegmentFileWriters();
+
     SavepointTaskStateManager(PrioritizedOperatorSubtaskState prioritizedOperatorSubtaskState) {
         Preconditions.checkNotNull(
                 prioritizedOperatorSubtaskState, "Operator subtask state must not be null");
@@ -72,6 +78,16 @@ final class SavepointTaskStateManager implements TaskStateManager {
         return SequentialChannelStateReader.NO_OP;
     }
 
+    @Override
+    public Executor getIOExecutor() {
+        return Executors.directExecutor();
+    }
+
+    @Override
+    public SegmentFileWriters getSegmentFileWriters() {
+        return segmentFileWriters;
+    }
+
     @Override
     public void notifyCheckpointComplete(long checkpointId) {
         throw new UnsupportedOperationException(MSG);
@@ -1323,6 +1323,8 @@ public class JobGraphGenerator implements Visitor<PlanNode> {
         JobEdge edge =
                 targetVertex.connectNewDataSetAsInput(
                         sourceVertex, distributionPattern, resultType);
+        // every consumer reads all records of a broadcast edge from a single subpartition
+        edge.setBroadcast(channel.getShipStrategy() == ShipStrategyType.BROADCAST);
 
         // -------------- configure the source task's ship strategy strategies in task config
         // --------------
@@ -39,6 +39,7 @@ import org.apache.flink.optimizer.plan.OptimizedPlan;
 import org.apache.flink.optimizer.testfunctions.IdentityMapper;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
+import org.apache.flink.runtime.jobgraph.JobEdge;
 import org.apache.flink.runtime.jobgraph.JobGraph;
 import org.apache.flink.runtime.jobgraph.JobGraphUtils;
 import org.apache.flink.runtime.jobgraph.JobVertex;
@@ -334,6 +335,32 @@ public class JobGraphGeneratorTest {
                                                                 .BLOCKING_PERSISTENT));
     }
 
+    @Test
+    public void testBroadcastInputIsMarkedAsBroadcast() {
+        ExecutionEnvironment env = ExecutionEnvironment.getExecutionEnvironment();
+
+        DataSet<Tuple2<Long, Long>> input =
+                env.fromElements(new Tuple2<>(1L, 2L)).setParallelism(1);
+        DataSet<Tuple2<Long, Long>> broadcastInput =
+                env.fromElements(new Tuple2<>(3L, 4L)).setParallelism(1);
+
+        input.map(new IdentityMapper<>())
+                .withBroadcastSet(broadcastInput, "broadcast")
+                .setParallelism(3)
+                .output(new DiscardingOutputFormat<>())
+                .setParallelism(1);
+
+        JobGraph jobGraph = compileJob(env);
+
+        JobVertex mapVertex =
+                jobGraph.getVerticesSortedTopologicallyFromSources().stream()
+                        .filter(vertex -> vertex.getInputs().size() == 2)
+                        .findFirst()
+                        .get();
+        // only the broadcast set is broadcast, the regular input is not
+        assertEquals(1, mapVertex.getInputs().stream().filter(JobEdge::isBroadcast).count());
+    }
+
     private static void assertState(
             DistributedCache.DistributedCacheEntry entry, boolean isExecutable, boolean isZipped)
             throws IOException {
@@ -218,4 +218,9 @@ public class CheckpointOptions implements Serializable {
         checkState(!isUnalignedCheckpoint);
         return unaligned(targetLocation);
     }
+
+    public CheckpointOptions toAligned() {
+        checkState(isUnalignedCheckpoint);
+        return alignedNoTimeout(checkpointType, targetLocation);
+    }
 }
@@ -21,16 +21,20 @@ package org.apache.flink.runtime.checkpoint;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.state.CompositeStateHandle;
 import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -107,6 +111,12 @@ public class OperatorSubtaskState implements CompositeStateHandle {
      */
     private final long stateSize;
 
+    /**
+     * The registry at which the segment files of the state were registered, null if the state was
+     * not registered.
+     */
+    @Nullable private transient SharedStateRegistry sharedStateRegistry;
+
     private OperatorSubtaskState(
             StateObjectCollection<OperatorStateHandle> managedOperatorState,
             StateObjectCollection<OperatorStateHandle> rawOperatorState,
@@ -202,12 +212,63 @@ public class OperatorSubtaskState implements CompositeStateHandle {
         } catch (Exception e) {
             LOG.warn("Error while discarding operator states.", e);
         }
+
+        SharedStateRegistry registry = this.sharedStateRegistry;
+        if (registry != null) {
+            try {
+                for (StreamStateHandle stateHandle : collectExclusiveStreamStateHandles()) {
+                    registry.unregisterSegmentReference(stateHandle);
+                }
+            } catch (Exception e) {
+                LOG.warn("Error while releasing the segment files of operator states.", e);
+            }
+        }
     }
 
     @Override
     public void registerSharedStates(SharedStateRegistry sharedStateRegistry) {
         registerSharedState(sharedStateRegistry, managedKeyedState);
         registerSharedState(sharedStateRegistry, rawKeyedState);
+
+        // state in segment files must keep the segment files alive, which may also hold state that
+        // is shared with other checkpoints
+        this.sharedStateRegistry = sharedStateRegistry;
+        for (StreamStateHandle stateHandle : collectExclusiveStreamStateHandles()) {
+            sharedStateRegistry.registerSegmentReference(stateHandle);
+        }
+    }
+
+    /**
+     * Collects the stream state handles that hold the operator, keyed and channel state of this
+     * subtask only. The parts of incremental and changelog keyed state are registered by their
+     * handles.
+     */
+    private List<StreamStateHandle> collectExclusiveStreamStateHandles() {
+        List<StreamStateHandle> stateHandles = new ArrayList<>();
+        collectOperatorStateHandles(managedOperatorState, stateHandles);
+        collectOperatorStateHandles(rawOperatorState, stateHandles);
+        collectKeyGroupsStateHandles(managedKeyedState, stateHandles);
+        collectKeyGroupsStateHandles(rawKeyedState, stateHandles);
+        stateHandles.addAll(collectUniqueDelegates(inputChannelState, resultSubpartitionState));
+        return stateHandles;
+    }
+
+    private static void collectOperatorStateHandles(
+            Iterable<OperatorStateHandle> stateHandles, List<StreamStateHandle> result) {
+        for (OperatorStateHandle stateHandle : stateHandles) {
+            if (stateHandle != null) {
+                result.add(stateHandle.getDelegateStateHandle());
+            }
+        }
+    }
+
+    private static void collectKeyGroupsStateHandles(
+            Iterable<KeyedStateHandle> stateHandles, List<StreamStateHandle> result) {
+        for (KeyedStateHandle stateHandle : stateHandles) {
+            if (stateHandle instanceof KeyGroupsStateHandle) {
+                result.add(((KeyGroupsStateHandle) stateHandle).getDelegateStateHandle());
+            }
+        }
     }
 
     private static void registerSharedState(
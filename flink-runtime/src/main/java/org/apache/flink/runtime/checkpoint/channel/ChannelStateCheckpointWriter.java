@@ -18,6 +18,7 @@
 package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriter.ChannelStateWriteResult;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.state.AbstractChannelStateHandle;
@@ -71,6 +72,13 @@ class ChannelStateCheckpointWriter {
     private final RunnableWithException onComplete;
     private final int subtaskIndex;
 
+    /**
+     * The output buffers already written for this checkpoint. Buffers shared by several
+     * subpartitions, e.g. broadcast records, are only written once. The buffers are retained until
+     * all outputs are received, so that their memory can not be reused for other data meanwhile.
+     */
+    private final Map<SharedBufferKey, WrittenBuffer> writtenOutputBuffers = new HashMap<>();
+
     ChannelStateCheckpointWriter(
             int subtaskIndex,
             CheckpointStartRequest startCheckpointItem,
@@ -127,15 +135,19 @@ class ChannelStateCheckpointWriter {
     }
 
     void writeInput(InputChannelInfo info, Buffer buffer) throws Exception {
-        write(inputChannelOffsets, info, buffer, !allInputsReceived);
+        write(inputChannelOffsets, info, buffer, !allInputsReceived, false);
     }
 
     void writeOutput(ResultSubpartitionInfo info, Buffer buffer) throws Exception {
-        write(resultSubpartitionOffsets, info, buffer, !allOutputsReceived);
+        write(resultSubpartitionOffsets, info, buffer, !allOutputsReceived, true);
     }
 
     private <K> void write(
-            Map<K, StateContentMetaInfo> offsets, K key, Buffer buffer, boolean precondition)
+            Map<K, StateContentMetaInfo> offsets,
+            K key,
+            Buffer buffer,
+            boolean precondition,
+            boolean deduplicate)
             throws Exception {
         try {
             if (result.isDone()) {
@@ -144,17 +156,45 @@ class ChannelStateCheckpointWriter {
             runWithChecks(
                     () -> {
                         checkState(precondition);
+                        StateContentMetaInfo contentMetaInfo =
+                                offsets.computeIfAbsent(key, unused -> new StateContentMetaInfo());
+                        SharedBufferKey bufferKey =
+                                deduplicate ? new SharedBufferKey(buffer) : null;
+                        WrittenBuffer written =
+                                bufferKey != null ? writtenOutputBuffers.get(bufferKey) : null;
+                        // the chunks of a channel are read in the order of their offsets
+                        if (written != null && written.offset > getLastOffset(contentMetaInfo)) {
+                            contentMetaInfo.withDataAdded(written.offset, written.size);
+                            return;
+                        }
+
                         long offset = checkpointStream.getPos();
                         serializer.writeData(dataStream, buffer);
                         long size = checkpointStream.getPos() - offset;
-                        offsets.computeIfAbsent(key, unused -> new StateContentMetaInfo())
-                                .withDataAdded(offset, size);
+                        contentMetaInfo.withDataAdded(offset, size);
+                        if (bufferKey != null && written == null) {
+                            writtenOutputBuffers.put(
+                                    bufferKey,
+                                    new WrittenBuffer(buffer.retainBuffer(), offset, size));
+                        }
                     });
         } finally {
             buffer.recycleBuffer();
         }
     }
 
+    private static long getLastOffset(StateContentMetaInfo contentMetaInfo) {
+        List<Long> offsets = contentMetaInfo.getOffsets();
+        return offsets.isEmpty() ? -1L : offsets.get(offsets.size() - 1);
+    }
+
+    private void releaseWrittenOutputBuffers() {
+        for (WrittenBuffer written : writtenOutputBuffers.values()) {
+            written.buffer.recycleBuffer();
+        }
+        writtenOutputBuffers.clear();
+    }
+
     void completeInput() throws Exception {
         LOG.debug("complete input, output completed: {}", allOutputsReceived);
         complete(!allInputsReceived, () -> allInputsReceived = true);
@@ -162,6 +202,7 @@ class ChannelStateCheckpointWriter {
 
     void completeOutput() throws Exception {
         LOG.debug("complete output, input completed: {}", allInputsReceived);
+        releaseWrittenOutputBuffers();
         complete(!allOutputsReceived, () -> allOutputsReceived = true);
     }
 
@@ -274,10 +315,53 @@ class ChannelStateCheckpointWriter {
     }
 
     public void fail(Throwable e) throws Exception {
+        releaseWrittenOutputBuffers();
         result.fail(e);
         checkpointStream.close();
     }
 
+    /** Identifies the data of a buffer by its memory, independent of the buffer instance. */
+    private static final class SharedBufferKey {
+        private final MemorySegment segment;
+        private final int offset;
+        private final int length;
+
+        SharedBufferKey(Buffer buffer) {
+            this.segment = buffer.getMemorySegment();
+            this.offset = buffer.getMemorySegmentOffset() + buffer.getReaderIndex();
+            this.length = buffer.readableBytes();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            SharedBufferKey that = (SharedBufferKey) o;
+            return segment == that.segment && offset == that.offset && length == that.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(segment) + offset) + length;
+        }
+    }
+
+    private static final class WrittenBuffer {
+        private final Buffer buffer;
+        private final long offset;
+        private final long size;
+
+        WrittenBuffer(Buffer buffer, long offset, long size) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
     private interface HandleFactory<I, H extends AbstractChannelStateHandle<I>> {
         H create(
                 int subtaskIndex,
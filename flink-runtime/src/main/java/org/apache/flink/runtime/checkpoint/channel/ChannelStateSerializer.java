@@ -18,24 +18,30 @@
 package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.compression.BlockCompressionFactory;
+import org.apache.flink.runtime.io.compression.BlockCompressor;
+import org.apache.flink.runtime.io.compression.BlockDecompressor;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.util.Preconditions;
 
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 
 import static java.lang.Math.addExact;
 import static java.lang.Math.min;
+import static org.apache.flink.util.Preconditions.checkNotNull;
 
 interface ChannelStateSerializer {
 
@@ -150,18 +156,82 @@ interface ChannelStateByteBuffer {
 class ChannelStateSerializerImpl implements ChannelStateSerializer {
     private static final int SERIALIZATION_VERSION = 0;
 
+    /** Version of the format whose data chunks are compressed with {@link #COMPRESSION_CODEC}. */
+    private static final int COMPRESSED_SERIALIZATION_VERSION = 1;
+
+    private static final String COMPRESSION_CODEC = "LZ4";
+
+    /** Compresses the written data, null if compression is disabled. */
+    @Nullable private final BlockCompressor compressor;
+
+    @Nullable private BlockDecompressor decompressor;
+
+    /** Whether the data read after the last read header is compressed. */
+    private boolean isReadingCompressedData;
+
+    /** The decompressed data of the chunk being read, only used for compressed data. */
+    private InputStream decompressedChunk;
+
+    private byte[] uncompressedBytes = new byte[0];
+
+    private byte[] compressedBytes = new byte[0];
+
+    ChannelStateSerializerImpl() {
+        this(false);
+    }
+
+    ChannelStateSerializerImpl(boolean compressionEnabled) {
+        this.compressor =
+                compressionEnabled
+                        ? BlockCompressionFactory.createBlockCompressionFactory(COMPRESSION_CODEC)
+                                .getCompressor()
+                        : null;
+    }
+
     @Override
     public void writeHeader(DataOutputStream dataStream) throws IOException {
-        dataStream.writeInt(SERIALIZATION_VERSION);
+        dataStream.writeInt(
+                compressor == null ? SERIALIZATION_VERSION : COMPRESSED_SERIALIZATION_VERSION);
     }
 
     @Override
     public void writeData(DataOutputStream stream, Buffer... flinkBuffers) throws IOException {
-        stream.writeInt(getSize(flinkBuffers));
+        final int size = getSize(flinkBuffers);
+        if (compressor == null) {
+            stream.writeInt(size);
+            for (Buffer buffer : flinkBuffers) {
+                ByteBuf nettyByteBuf = buffer.asByteBuf();
+                nettyByteBuf.getBytes(
+                        nettyByteBuf.readerIndex(), stream, nettyByteBuf.readableBytes());
+            }
+            return;
+        }
+
+        uncompressedBytes = ensureCapacity(uncompressedBytes, size);
+        int position = 0;
         for (Buffer buffer : flinkBuffers) {
             ByteBuf nettyByteBuf = buffer.asByteBuf();
-            nettyByteBuf.getBytes(nettyByteBuf.readerIndex(), stream, nettyByteBuf.readableBytes());
+            int length = nettyByteBuf.readableBytes();
+            nettyByteBuf.getBytes(nettyByteBuf.readerIndex(), uncompressedBytes, position, length);
+            position += length;
         }
+        writeCompressed(stream, uncompressedBytes, size);
+    }
+
+    private void writeCompressed(DataOutputStream stream, byte[] data, int size)
+            throws IOException {
+        checkNotNull(compressor);
+        stream.writeInt(size);
+        if (size == 0) {
+            // the codecs can not decompress empty data
+            stream.writeInt(0);
+            return;
+        }
+
+        compressedBytes = ensureCapacity(compressedBytes, compressor.getMaxCompressedSize(size));
+        int compressedSize = compressor.compress(data, 0, size, compressedBytes, 0);
+        stream.writeInt(compressedSize);
+        stream.write(compressedBytes, 0, compressedSize);
     }
 
     private int getSize(Buffer[] buffers) {
@@ -176,20 +246,54 @@ class ChannelStateSerializerImpl implements ChannelStateSerializer {
     public void readHeader(InputStream stream) throws IOException {
         int version = readInt(stream);
         Preconditions.checkArgument(
-                version == SERIALIZATION_VERSION, "unsupported version: " + version);
+                version == SERIALIZATION_VERSION || version == COMPRESSED_SERIALIZATION_VERSION,
+                "unsupported version: " + version);
+        isReadingCompressedData = version == COMPRESSED_SERIALIZATION_VERSION;
+        if (isReadingCompressedData && decompressor == null) {
+            decompressor =
+                    BlockCompressionFactory.createBlockCompressionFactory(COMPRESSION_CODEC)
+                            .getDecompressor();
+        }
     }
 
     @Override
     public int readLength(InputStream stream) throws IOException {
         int len = readInt(stream);
         Preconditions.checkArgument(len >= 0, "negative state size");
+        if (isReadingCompressedData) {
+            readCompressed(stream, len);
+        }
         return len;
     }
 
+    private void readCompressed(InputStream stream, int len) throws IOException {
+        checkNotNull(decompressor);
+        int compressedLen = readInt(stream);
+        Preconditions.checkArgument(compressedLen >= 0, "negative compressed state size");
+
+        uncompressedBytes = ensureCapacity(uncompressedBytes, len);
+        if (len > 0) {
+            compressedBytes = ensureCapacity(compressedBytes, compressedLen);
+            new DataInputStream(stream).readFully(compressedBytes, 0, compressedLen);
+            int decompressedLen =
+                    decompressor.decompress(
+                            compressedBytes, 0, compressedLen, uncompressedBytes, 0);
+            Preconditions.checkState(
+                    decompressedLen == len, "unexpected decompressed state size");
+        }
+        decompressedChunk = new ByteArrayInputStream(uncompressedBytes, 0, len);
+    }
+
     @Override
     public int readData(InputStream stream, ChannelStateByteBuffer buffer, int bytes)
             throws IOException {
-        return buffer.writeBytes(stream, bytes);
+        if (!isReadingCompressedData) {
+            return buffer.writeBytes(stream, bytes);
+        }
+        // an exhausted chunk would report the end of the stream
+        return decompressedChunk.available() == 0
+                ? 0
+                : buffer.writeBytes(decompressedChunk, bytes);
     }
 
     private static int readInt(InputStream stream) throws IOException {
@@ -202,22 +306,31 @@ class ChannelStateSerializerImpl implements ChannelStateSerializer {
         DataOutputStream dataOutputStream = new DataOutputStream(out);
         byte[] merged = extractByOffsets(bytes, offsets);
         writeHeader(dataOutputStream);
-        dataOutputStream.writeInt(merged.length);
-        dataOutputStream.write(merged, 0, merged.length);
+        if (compressor == null) {
+            dataOutputStream.writeInt(merged.length);
+            dataOutputStream.write(merged, 0, merged.length);
+        } else {
+            writeCompressed(dataOutputStream, merged, merged.length);
+        }
         dataOutputStream.close();
         return out.toByteArray();
     }
 
     private byte[] extractByOffsets(byte[] data, List<Long> offsets) throws IOException {
-        DataInputStream lengthReadingStream =
-                new DataInputStream(new ByteArrayInputStream(data, 0, data.length));
+        readHeader(new ByteArrayInputStream(data));
         ByteArrayOutputStream out = new ByteArrayOutputStream();
-        long prevOffset = 0;
         for (long offset : offsets) {
-            lengthReadingStream.skipBytes((int) (offset - prevOffset));
-            int dataWithLengthOffset = (int) offset + Integer.BYTES;
-            out.write(data, dataWithLengthOffset, lengthReadingStream.readInt());
-            prevOffset = dataWithLengthOffset;
+            InputStream chunk =
+                    new ByteArrayInputStream(data, (int) offset, data.length - (int) offset);
+            int length = readLength(chunk);
+            byte[] chunkData = new byte[length];
+            ChannelStateByteBuffer target = ChannelStateByteBuffer.wrap(chunkData);
+            while (target.isWritable()) {
+                if (readData(chunk, target, length) < 0) {
+                    throw new EOFException("unexpected end of channel state at offset " + offset);
+                }
+            }
+            out.write(chunkData, 0, length);
         }
         return out.toByteArray();
     }
@@ -226,4 +339,8 @@ class ChannelStateSerializerImpl implements ChannelStateSerializer {
     public long getHeaderLength() {
         return Integer.BYTES;
     }
+
+    private static byte[] ensureCapacity(byte[] bytes, int capacity) {
+        return bytes.length >= capacity ? bytes : new byte[capacity];
+    }
 }
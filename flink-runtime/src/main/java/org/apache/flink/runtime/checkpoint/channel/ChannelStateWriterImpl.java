@@ -74,7 +74,26 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
      */
     public ChannelStateWriterImpl(
             String taskName, int subtaskIndex, CheckpointStorageWorkerView streamFactoryResolver) {
-        this(taskName, subtaskIndex, streamFactoryResolver, DEFAULT_MAX_CHECKPOINTS);
+        this(taskName, subtaskIndex, streamFactoryResolver, false);
+    }
+
+    /**
+     * Creates a {@link ChannelStateWriterImpl} with {@link #DEFAULT_MAX_CHECKPOINTS} as {@link
+     * #maxCheckpoints}.
+     *
+     * @param compressionEnabled whether the written channel state is compressed
+     */
+    public ChannelStateWriterImpl(
+            String taskName,
+            int subtaskIndex,
+            CheckpointStorageWorkerView streamFactoryResolver,
+            boolean compressionEnabled) {
+        this(
+                taskName,
+                subtaskIndex,
+                streamFactoryResolver,
+                DEFAULT_MAX_CHECKPOINTS,
+                compressionEnabled);
     }
 
     /**
@@ -91,6 +110,15 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
             int subtaskIndex,
             CheckpointStorageWorkerView streamFactoryResolver,
             int maxCheckpoints) {
+        this(taskName, subtaskIndex, streamFactoryResolver, maxCheckpoints, false);
+    }
+
+    ChannelStateWriterImpl(
+            String taskName,
+            int subtaskIndex,
+            CheckpointStorageWorkerView streamFactoryResolver,
+            int maxCheckpoints,
+            boolean compressionEnabled) {
         this(
                 taskName,
                 new ConcurrentHashMap<>(maxCheckpoints),
@@ -99,7 +127,7 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
                         new ChannelStateWriteRequestDispatcherImpl(
                                 subtaskIndex,
                                 streamFactoryResolver,
-                                new ChannelStateSerializerImpl())),
+                                new ChannelStateSerializerImpl(compressionEnabled))),
                 maxCheckpoints);
     }
 
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.checkpoint.metadata;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.checkpoint.MasterState;
 import org.apache.flink.runtime.checkpoint.OperatorState;
@@ -36,9 +37,15 @@ import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle.ChangelogStateBackendHandleImpl;
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandle;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamImpl;
 import org.apache.flink.runtime.state.filesystem.AbstractFsCheckpointStorageAccess;
 import org.apache.flink.runtime.state.filesystem.FileStateHandle;
 import org.apache.flink.runtime.state.filesystem.RelativeFileStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 import org.apache.flink.util.function.BiConsumerWithException;
 import org.apache.flink.util.function.BiFunctionWithException;
@@ -91,6 +98,9 @@ public abstract class MetadataV2V3SerializerBase {
     private static final byte PARTITIONABLE_OPERATOR_STATE_HANDLE = 4;
     private static final byte INCREMENTAL_KEY_GROUPS_HANDLE = 5;
     private static final byte RELATIVE_STREAM_STATE_HANDLE = 6;
+    private static final byte CHANGELOG_HANDLE = 7;
+    private static final byte CHANGELOG_STREAM_HANDLE = 8;
+    private static final byte SEGMENT_FILE_STREAM_STATE_HANDLE = 9;
 
     // ------------------------------------------------------------------------
     //  (De)serialization entry points
@@ -302,6 +312,43 @@ public abstract class MetadataV2V3SerializerBase {
 
             serializeStreamStateHandleMap(incrementalKeyedStateHandle.getSharedState(), dos);
             serializeStreamStateHandleMap(incrementalKeyedStateHandle.getPrivateState(), dos);
+        } else if (stateHandle instanceof ChangelogStateBackendHandle) {
+            ChangelogStateBackendHandle changelogStateBackendHandle =
+                    (ChangelogStateBackendHandle) stateHandle;
+
+            dos.writeByte(CHANGELOG_HANDLE);
+            dos.writeInt(changelogStateBackendHandle.getKeyGroupRange().getStartKeyGroup());
+            dos.writeInt(changelogStateBackendHandle.getKeyGroupRange().getNumberOfKeyGroups());
+
+            List<Tuple2<StateHandleID, KeyedStateHandle>> materialized =
+                    changelogStateBackendHandle.getMaterializedStateHandles();
+            dos.writeInt(materialized.size());
+            for (Tuple2<StateHandleID, KeyedStateHandle> handle : materialized) {
+                dos.writeUTF(handle.f0.getKeyString());
+                serializeKeyedStateHandle(handle.f1, dos);
+            }
+
+            List<StateChangelogHandle> nonMaterialized =
+                    changelogStateBackendHandle.getNonMaterializedStateHandles();
+            dos.writeInt(nonMaterialized.size());
+            for (StateChangelogHandle handle : nonMaterialized) {
+                serializeKeyedStateHandle(handle, dos);
+            }
+        } else if (stateHandle instanceof StateChangelogHandleStreamImpl) {
+            StateChangelogHandleStreamImpl changelogHandle =
+                    (StateChangelogHandleStreamImpl) stateHandle;
+
+            dos.writeByte(CHANGELOG_STREAM_HANDLE);
+            dos.writeInt(changelogHandle.getKeyGroupRange().getStartKeyGroup());
+            dos.writeInt(changelogHandle.getKeyGroupRange().getNumberOfKeyGroups());
+            dos.writeLong(changelogHandle.getFrom().get());
+
+            List<Tuple2<StateHandleID, StreamStateHandle>> segments = changelogHandle.getSegments();
+            dos.writeInt(segments.size());
+            for (Tuple2<StateHandleID, StreamStateHandle> segment : segments) {
+                dos.writeUTF(segment.f0.getKeyString());
+                serializeStreamStateHandle(segment.f1, dos);
+            }
         } else {
             throw new IllegalStateException(
                     "Unknown KeyedStateHandle type: " + stateHandle.getClass());
@@ -361,6 +408,46 @@ public abstract class MetadataV2V3SerializerBase {
                     sharedStates,
                     privateStates,
                     metaDataStateHandle);
+        } else if (CHANGELOG_HANDLE == type) {
+
+            int startKeyGroup = dis.readInt();
+            int numKeyGroups = dis.readInt();
+            KeyGroupRange keyGroupRange =
+                    KeyGroupRange.of(startKeyGroup, startKeyGroup + numKeyGroups - 1);
+
+            int numMaterialized = dis.readInt();
+            List<Tuple2<StateHandleID, KeyedStateHandle>> materialized =
+                    new ArrayList<>(numMaterialized);
+            for (int i = 0; i < numMaterialized; i++) {
+                StateHandleID id = new StateHandleID(dis.readUTF());
+                materialized.add(Tuple2.of(id, deserializeKeyedStateHandle(dis, context)));
+            }
+
+            int numNonMaterialized = dis.readInt();
+            List<StateChangelogHandle> nonMaterialized = new ArrayList<>(numNonMaterialized);
+            for (int i = 0; i < numNonMaterialized; i++) {
+                nonMaterialized.add(
+                        (StateChangelogHandle) deserializeKeyedStateHandle(dis, context));
+            }
+
+            return new ChangelogStateBackendHandleImpl(
+                    materialized, nonMaterialized, keyGroupRange);
+        } else if (CHANGELOG_STREAM_HANDLE == type) {
+
+            int startKeyGroup = dis.readInt();
+            int numKeyGroups = dis.readInt();
+            KeyGroupRange keyGroupRange =
+                    KeyGroupRange.of(startKeyGroup, startKeyGroup + numKeyGroups - 1);
+            SequenceNumber from = SequenceNumber.of(dis.readLong());
+
+            int numSegments = dis.readInt();
+            List<Tuple2<StateHandleID, StreamStateHandle>> segments = new ArrayList<>(numSegments);
+            for (int i = 0; i < numSegments; i++) {
+                StateHandleID id = new StateHandleID(dis.readUTF());
+                segments.add(Tuple2.of(id, deserializeStreamStateHandle(dis, context)));
+            }
+
+            return new StateChangelogHandleStreamImpl(keyGroupRange, segments, from);
         } else {
             throw new IllegalStateException("Reading invalid KeyedStateHandle, type: " + type);
         }
@@ -469,6 +556,13 @@ public abstract class MetadataV2V3SerializerBase {
             dos.writeLong(stateHandle.getStateSize());
             dos.writeUTF(fileStateHandle.getFilePath().toString());
 
+        } else if (stateHandle instanceof SegmentFileStateHandle) {
+            dos.writeByte(SEGMENT_FILE_STREAM_STATE_HANDLE);
+            SegmentFileStateHandle segmentFileStateHandle = (SegmentFileStateHandle) stateHandle;
+            dos.writeUTF(segmentFileStateHandle.getFilePath().toString());
+            dos.writeLong(segmentFileStateHandle.getStartPos());
+            dos.writeLong(segmentFileStateHandle.getStateSize());
+
         } else if (stateHandle instanceof ByteStreamStateHandle) {
             dos.writeByte(BYTE_STREAM_STATE_HANDLE);
             ByteStreamStateHandle byteStreamStateHandle = (ByteStreamStateHandle) stateHandle;
@@ -508,6 +602,11 @@ public abstract class MetadataV2V3SerializerBase {
             long size = dis.readLong();
             Path statePath = new Path(context.getExclusiveDirPath(), relativePath);
             return new RelativeFileStateHandle(statePath, relativePath, size);
+        } else if (SEGMENT_FILE_STREAM_STATE_HANDLE == type) {
+            String pathString = dis.readUTF();
+            long startPos = dis.readLong();
+            long size = dis.readLong();
+            return new SegmentFileStateHandle(new Path(pathString), startPos, size);
         } else {
             throw new IOException("Unknown implementation of StreamStateHandle, code: " + type);
         }
@@ -18,14 +18,26 @@
 
 package org.apache.flink.runtime.deployment;
 
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.blob.PermanentBlobKey;
+import org.apache.flink.runtime.blob.PermanentBlobService;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.MaybeOffloaded;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.NonOffloaded;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.Offloaded;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
 import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
+import org.apache.flink.util.CompressedSerializedValue;
+import org.apache.flink.util.FileUtils;
+import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnegative;
+import javax.annotation.Nullable;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 
@@ -35,7 +47,9 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  * Deployment descriptor for a single input gate instance.
  *
  * <p>Each input gate consumes partitions of a single intermediate result. The consumed subpartition
- * index is the same for each consumed partition.
+ * indices are the same for each consumed partition. Usually a single subpartition is consumed, a
+ * consecutive range of subpartitions is consumed if the parallelism of the consumer was decided
+ * after the number of subpartitions.
  *
  * @see SingleInputGate
  */
@@ -58,8 +72,22 @@ public class InputGateDeploymentDescriptor implements Serializable {
      */
     @Nonnegative private final int consumedSubpartitionIndex;
 
-    /** An input channel for each consumed subpartition. */
-    private final ShuffleDescriptor[] inputChannels;
+    /**
+     * The number of consecutive subpartitions, starting at the consumed subpartition index, which
+     * are consumed of each consumed partition.
+     */
+    private final int numberOfConsumedSubpartitions;
+
+    /**
+     * The serialized shuffle descriptors of the consumed partitions, which may be offloaded to the
+     * {@link org.apache.flink.runtime.blob.BlobServer}. The same serialized descriptors are shared
+     * by all consumers of a consumed partition group. This is <tt>null</tt> once the descriptors
+     * have been deserialized.
+     */
+    @Nullable private MaybeOffloaded<ShuffleDescriptor[]> serializedInputChannels;
+
+    /** A shuffle descriptor for each consumed partition, <tt>null</tt> until deserialized. */
+    @Nullable private ShuffleDescriptor[] inputChannels;
 
     public InputGateDeploymentDescriptor(
             IntermediateDataSetID consumedResultId,
@@ -69,9 +97,37 @@ public class InputGateDeploymentDescriptor implements Serializable {
         this.consumedResultId = checkNotNull(consumedResultId);
         this.consumedPartitionType = checkNotNull(consumedPartitionType);
         this.consumedSubpartitionIndex = consumedSubpartitionIndex;
+        this.numberOfConsumedSubpartitions = 1;
         this.inputChannels = checkNotNull(inputChannels);
     }
 
+    public InputGateDeploymentDescriptor(
+            IntermediateDataSetID consumedResultId,
+            ResultPartitionType consumedPartitionType,
+            @Nonnegative int consumedSubpartitionIndex,
+            MaybeOffloaded<ShuffleDescriptor[]> serializedInputChannels) {
+        this(
+                consumedResultId,
+                consumedPartitionType,
+                consumedSubpartitionIndex,
+                1,
+                serializedInputChannels);
+    }
+
+    public InputGateDeploymentDescriptor(
+            IntermediateDataSetID consumedResultId,
+            ResultPartitionType consumedPartitionType,
+            @Nonnegative int consumedSubpartitionIndex,
+            int numberOfConsumedSubpartitions,
+            MaybeOffloaded<ShuffleDescriptor[]> serializedInputChannels) {
+        Preconditions.checkArgument(numberOfConsumedSubpartitions > 0);
+        this.consumedResultId = checkNotNull(consumedResultId);
+        this.consumedPartitionType = checkNotNull(consumedPartitionType);
+        this.consumedSubpartitionIndex = consumedSubpartitionIndex;
+        this.numberOfConsumedSubpartitions = numberOfConsumedSubpartitions;
+        this.serializedInputChannels = checkNotNull(serializedInputChannels);
+    }
+
     public IntermediateDataSetID getConsumedResultId() {
         return consumedResultId;
     }
@@ -90,17 +146,95 @@ public class InputGateDeploymentDescriptor implements Serializable {
         return consumedSubpartitionIndex;
     }
 
+    public int getNumberOfConsumedSubpartitions() {
+        return numberOfConsumedSubpartitions;
+    }
+
+    /**
+     * Returns the shuffle descriptors of the consumed partitions.
+     *
+     * @throws IllegalStateException If the descriptors are offloaded to BLOB store and {@link
+     *     #loadBigData(PermanentBlobService, ShuffleDescriptorsCache, JobID)} was not called
+     *     beforehand, or if they cannot be deserialized.
+     */
     public ShuffleDescriptor[] getShuffleDescriptors() {
+        if (inputChannels == null) {
+            if (serializedInputChannels instanceof NonOffloaded) {
+                try {
+                    deserializeNonOffloadedInputChannels();
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new IllegalStateException(
+                            "Could not deserialize the shuffle descriptors.", e);
+                }
+            } else {
+                throw new IllegalStateException(
+                        "Trying to work with offloaded serialized shuffle descriptors.");
+            }
+        }
         return inputChannels;
     }
 
+    /**
+     * Loads the shuffle descriptors from the BLOB store if they were offloaded and deserializes
+     * them. Offloaded descriptors are shared by many input gates, so they are looked up in and
+     * added to the given cache.
+     *
+     * @param blobService the blob store to use (may be <tt>null</tt> if the descriptors are not
+     *     offloaded)
+     * @param shuffleDescriptorsCache the cache of offloaded descriptors of the TaskManager
+     * @param jobId the job the descriptors belong to
+     * @throws IOException during errors retrieving or reading the BLOBs
+     * @throws ClassNotFoundException Class of a serialized object cannot be found.
+     */
+    public void loadBigData(
+            @Nullable PermanentBlobService blobService,
+            ShuffleDescriptorsCache shuffleDescriptorsCache,
+            JobID jobId)
+            throws IOException, ClassNotFoundException {
+
+        if (serializedInputChannels instanceof Offloaded) {
+            final PermanentBlobKey blobKey =
+                    ((Offloaded<ShuffleDescriptor[]>) serializedInputChannels).serializedValueKey;
+
+            ShuffleDescriptor[] cachedInputChannels = shuffleDescriptorsCache.get(jobId, blobKey);
+            if (cachedInputChannels == null) {
+                Preconditions.checkNotNull(blobService);
+
+                // NOTE: Do not delete the BLOB since it may be needed again by other consumers
+                //       (it is deleted automatically on the BLOB server and cache when the job
+                //       enters a terminal state)
+                final File dataFile = blobService.getFile(jobId, blobKey);
+                final CompressedSerializedValue<ShuffleDescriptor[]> serializedValue =
+                        CompressedSerializedValue.fromBytes(
+                                FileUtils.readAllBytes(dataFile.toPath()));
+                cachedInputChannels = serializedValue.deserializeValue(getClass().getClassLoader());
+                shuffleDescriptorsCache.put(jobId, blobKey, cachedInputChannels);
+            }
+
+            inputChannels = cachedInputChannels;
+            serializedInputChannels = null;
+        } else if (serializedInputChannels instanceof NonOffloaded) {
+            deserializeNonOffloadedInputChannels();
+        }
+    }
+
+    private void deserializeNonOffloadedInputChannels()
+            throws IOException, ClassNotFoundException {
+        inputChannels =
+                ((NonOffloaded<ShuffleDescriptor[]>) serializedInputChannels)
+                        .serializedValue.deserializeValue(getClass().getClassLoader());
+        serializedInputChannels = null;
+    }
+
     @Override
     public String toString() {
         return String.format(
                 "InputGateDeploymentDescriptor [result id: %s, "
-                        + "consumed subpartition index: %d, input channels: %s]",
+                        + "consumed subpartition index: %d, "
+                        + "number of consumed subpartitions: %d, input channels: %s]",
                 consumedResultId.toString(),
                 consumedSubpartitionIndex,
-                Arrays.toString(inputChannels));
+                numberOfConsumedSubpartitions,
+                inputChannels == null ? "<serialized>" : Arrays.toString(inputChannels));
     }
 }
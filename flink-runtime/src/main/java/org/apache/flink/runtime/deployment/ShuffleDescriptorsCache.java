@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.deployment;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.blob.PermanentBlobKey;
+import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
+
+import javax.annotation.Nullable;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Cache of the deserialized shuffle descriptors which were offloaded to the {@link
+ * org.apache.flink.runtime.blob.BlobServer} by the JobManager. All consumers of a consumed
+ * partition group receive the same offloaded descriptors, so the TaskManager only needs to read and
+ * deserialize them once for all tasks it runs.
+ *
+ * <p>The cache holds at most a maximum number of shuffle descriptors over all jobs and evicts the
+ * least recently used descriptors beyond it. Evicted descriptors are read from the blob store again
+ * when they are needed. The cached descriptors of a job are dropped when the job is released from
+ * the TaskManager. This class is not thread-safe, it is accessed from the main thread of the
+ * TaskExecutor.
+ */
+public class ShuffleDescriptorsCache {
+
+    /** The default maximum number of shuffle descriptors which are cached over all jobs. */
+    static final int DEFAULT_MAX_CACHED_DESCRIPTORS = 1_000_000;
+
+    private final int maxCachedDescriptors;
+
+    /** The cached descriptors by job and blob key, in least recently used order. */
+    private final LinkedHashMap<Tuple2<JobID, PermanentBlobKey>, ShuffleDescriptor[]>
+            cachedDescriptors = new LinkedHashMap<>(16, 0.75f, true);
+
+    private int numCachedDescriptors;
+
+    public ShuffleDescriptorsCache() {
+        this(DEFAULT_MAX_CACHED_DESCRIPTORS);
+    }
+
+    @VisibleForTesting
+    ShuffleDescriptorsCache(int maxCachedDescriptors) {
+        checkArgument(
+                maxCachedDescriptors > 0, "The maximum number of descriptors must be positive.");
+        this.maxCachedDescriptors = maxCachedDescriptors;
+    }
+
+    @Nullable
+    public ShuffleDescriptor[] get(JobID jobId, PermanentBlobKey blobKey) {
+        return cachedDescriptors.get(Tuple2.of(jobId, blobKey));
+    }
+
+    public void put(JobID jobId, PermanentBlobKey blobKey, ShuffleDescriptor[] descriptors) {
+        final ShuffleDescriptor[] previous =
+                cachedDescriptors.put(
+                        Tuple2.of(checkNotNull(jobId), checkNotNull(blobKey)),
+                        checkNotNull(descriptors));
+        numCachedDescriptors += descriptors.length - (previous == null ? 0 : previous.length);
+
+        // the descriptors which were just put are kept even if they exceed the maximum alone
+        final Iterator<ShuffleDescriptor[]> leastRecentlyUsed =
+                cachedDescriptors.values().iterator();
+        while (numCachedDescriptors > maxCachedDescriptors && cachedDescriptors.size() > 1) {
+            numCachedDescriptors -= leastRecentlyUsed.next().length;
+            leastRecentlyUsed.remove();
+        }
+    }
+
+    public void clearCacheForJob(JobID jobId) {
+        final Iterator<Map.Entry<Tuple2<JobID, PermanentBlobKey>, ShuffleDescriptor[]>> entries =
+                cachedDescriptors.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<Tuple2<JobID, PermanentBlobKey>, ShuffleDescriptor[]> entry =
+                    entries.next();
+            if (entry.getKey().f0.equals(jobId)) {
+                numCachedDescriptors -= entry.getValue().length;
+                entries.remove();
+            }
+        }
+    }
+
+    /** Returns the number of cached shuffle descriptors of the job, over all its blobs. */
+    @VisibleForTesting
+    int getNumberOfCachedDescriptors(JobID jobId) {
+        int numCachedDescriptorsOfJob = 0;
+        for (Map.Entry<Tuple2<JobID, PermanentBlobKey>, ShuffleDescriptor[]> entry :
+                cachedDescriptors.entrySet()) {
+            if (entry.getKey().f0.equals(jobId)) {
+                numCachedDescriptorsOfJob += entry.getValue().length;
+            }
+        }
+        return numCachedDescriptorsOfJob;
+    }
+}
@@ -260,15 +260,30 @@ public final class TaskDeploymentDescriptor implements Serializable {
         return allocationId;
     }
 
+    /**
+     * Loads externalized data from the BLOB store back to the object, without reusing shuffle
+     * descriptors loaded for other tasks.
+     *
+     * @see #loadBigData(PermanentBlobService, ShuffleDescriptorsCache)
+     */
+    public void loadBigData(@Nullable PermanentBlobService blobService)
+            throws IOException, ClassNotFoundException {
+        loadBigData(blobService, new ShuffleDescriptorsCache());
+    }
+
     /**
      * Loads externalized data from the BLOB store back to the object.
      *
      * @param blobService the blob store to use (may be <tt>null</tt> if {@link
-     *     #serializedJobInformation} and {@link #serializedTaskInformation} are non-<tt>null</tt>)
+     *     #serializedJobInformation} and {@link #serializedTaskInformation} are non-<tt>null</tt>
+     *     and no shuffle descriptors are offloaded)
+     * @param shuffleDescriptorsCache cache of the offloaded shuffle descriptors of the TaskManager
      * @throws IOException during errors retrieving or reading the BLOBs
      * @throws ClassNotFoundException Class of a serialized object cannot be found.
      */
-    public void loadBigData(@Nullable PermanentBlobService blobService)
+    public void loadBigData(
+            @Nullable PermanentBlobService blobService,
+            ShuffleDescriptorsCache shuffleDescriptorsCache)
             throws IOException, ClassNotFoundException {
 
         // re-integrate offloaded job info from blob
@@ -304,6 +319,11 @@ public final class TaskDeploymentDescriptor implements Serializable {
             serializedTaskInformation = new NonOffloaded<>(serializedValue);
         }
 
+        // re-integrate and deserialize the shuffle descriptors of the input gates
+        for (InputGateDeploymentDescriptor inputGate : inputGates) {
+            inputGate.loadBigData(blobService, shuffleDescriptorsCache, jobId);
+        }
+
         // make sure that the serialized job and task information fields are filled
         Preconditions.checkNotNull(serializedJobInformation);
         Preconditions.checkNotNull(serializedTaskInformation);
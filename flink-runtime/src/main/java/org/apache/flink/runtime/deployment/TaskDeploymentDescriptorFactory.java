@@ -20,15 +20,19 @@ package org.apache.flink.runtime.deployment;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
+import org.apache.flink.runtime.blob.BlobWriter;
 import org.apache.flink.runtime.blob.PermanentBlobKey;
 import org.apache.flink.runtime.checkpoint.JobManagerTaskRestore;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
 import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.MaybeOffloaded;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.NonOffloaded;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.Offloaded;
 import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.ConsumedPartitionGroup;
 import org.apache.flink.runtime.executiongraph.Execution;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
-import org.apache.flink.runtime.executiongraph.ExecutionEdge;
 import org.apache.flink.runtime.executiongraph.ExecutionGraph;
+import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
 import org.apache.flink.runtime.executiongraph.ExecutionVertex;
 import org.apache.flink.runtime.executiongraph.IntermediateResult;
 import org.apache.flink.runtime.executiongraph.IntermediateResultPartition;
@@ -37,11 +41,18 @@ import org.apache.flink.runtime.executiongraph.TaskInformation;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
+import org.apache.flink.runtime.jobgraph.JobEdge;
 import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
 import org.apache.flink.runtime.shuffle.UnknownShuffleDescriptor;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.types.Either;
+import org.apache.flink.util.CompressedSerializedValue;
 import org.apache.flink.util.SerializedValue;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import javax.annotation.Nullable;
 
 import java.io.IOException;
@@ -55,6 +66,10 @@ import java.util.Optional;
  * org.apache.flink.runtime.taskmanager.Task} from {@link Execution}.
  */
 public class TaskDeploymentDescriptorFactory {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(TaskDeploymentDescriptorFactory.class);
+
     private final ExecutionAttemptID executionId;
     private final int attemptNumber;
     private final MaybeOffloaded<JobInformation> serializedJobInformation;
@@ -62,7 +77,11 @@ public class TaskDeploymentDescriptorFactory {
     private final JobID jobID;
     private final boolean allowUnknownPartitions;
     private final int subtaskIndex;
-    private final ExecutionEdge[][] inputEdges;
+    private final int numberOfSubtasks;
+    private final int decidedParallelism;
+    private final List<ConsumedPartitionGroup> consumedPartitionGroups;
+    private final List<JobEdge> inputEdges;
+    private final BlobWriter blobWriter;
 
     private TaskDeploymentDescriptorFactory(
             ExecutionAttemptID executionId,
@@ -72,7 +91,11 @@ public class TaskDeploymentDescriptorFactory {
             JobID jobID,
             boolean allowUnknownPartitions,
             int subtaskIndex,
-            ExecutionEdge[][] inputEdges) {
+            int numberOfSubtasks,
+            int decidedParallelism,
+            List<ConsumedPartitionGroup> consumedPartitionGroups,
+            List<JobEdge> inputEdges,
+            BlobWriter blobWriter) {
         this.executionId = executionId;
         this.attemptNumber = attemptNumber;
         this.serializedJobInformation = serializedJobInformation;
@@ -80,14 +103,19 @@ public class TaskDeploymentDescriptorFactory {
         this.jobID = jobID;
         this.allowUnknownPartitions = allowUnknownPartitions;
         this.subtaskIndex = subtaskIndex;
+        this.numberOfSubtasks = numberOfSubtasks;
+        this.decidedParallelism = decidedParallelism;
+        this.consumedPartitionGroups = consumedPartitionGroups;
         this.inputEdges = inputEdges;
+        this.blobWriter = blobWriter;
     }
 
     public TaskDeploymentDescriptor createDeploymentDescriptor(
             AllocationID allocationID,
             int targetSlotNumber,
             @Nullable JobManagerTaskRestore taskRestore,
-            Collection<ResultPartitionDeploymentDescriptor> producedPartitions) {
+            Collection<ResultPartitionDeploymentDescriptor> producedPartitions)
+            throws IOException {
         return new TaskDeploymentDescriptor(
                 jobID,
                 serializedJobInformation,
@@ -102,19 +130,40 @@ public class TaskDeploymentDescriptorFactory {
                 createInputGateDeploymentDescriptors());
     }
 
-    private List<InputGateDeploymentDescriptor> createInputGateDeploymentDescriptors() {
-        List<InputGateDeploymentDescriptor> inputGates = new ArrayList<>(inputEdges.length);
+    private List<InputGateDeploymentDescriptor> createInputGateDeploymentDescriptors()
+            throws IOException {
+        List<InputGateDeploymentDescriptor> inputGates =
+                new ArrayList<>(consumedPartitionGroups.size());
 
-        for (ExecutionEdge[] edges : inputEdges) {
-            // If the produced partition has multiple consumers registered, we
-            // need to request the one matching our sub task index.
-            // TODO Refactor after removing the consumers from the intermediate result partitions
-            int numConsumerEdges = edges[0].getSource().getConsumers().get(0).size();
+        for (int input = 0; input < consumedPartitionGroups.size(); input++) {
+            ConsumedPartitionGroup consumedPartitionGroup = consumedPartitionGroups.get(input);
 
-            int queueToRequest = subtaskIndex % numConsumerEdges;
+            int queueToRequest;
+            int numberOfQueuesToRequest = 1;
+            if (decidedParallelism != ExecutionJobVertex.VALUE_NOT_SET) {
+                // The subpartitions are produced for all subtasks of the vertex and are aligned
+                // with its key groups. The executed subtasks consume the subpartitions of the key
+                // groups they are responsible for.
+                KeyGroupRange subpartitionRange =
+                        KeyGroupRangeAssignment.computeKeyGroupRangeForOperatorIndex(
+                                numberOfSubtasks, decidedParallelism, subtaskIndex);
+                queueToRequest = subpartitionRange.getStartKeyGroup();
+                if (!inputEdges.get(input).isBroadcast()) {
+                    numberOfQueuesToRequest = subpartitionRange.getNumberOfKeyGroups();
+                }
+            } else {
+                // If the produced partition has multiple consumers registered, we
+                // need to request the one matching our sub task index.
+                // TODO Refactor after removing the consumers from the intermediate result
+                // partitions
+                int numConsumers =
+                        consumedPartitionGroup.getFirst().getConsumerVertexGroups().get(0).size();
+
+                queueToRequest = subtaskIndex % numConsumers;
+            }
 
             IntermediateResult consumedIntermediateResult =
-                    edges[0].getSource().getIntermediateResult();
+                    consumedPartitionGroup.getIntermediateResult();
             IntermediateDataSetID resultId = consumedIntermediateResult.getId();
             ResultPartitionType partitionType = consumedIntermediateResult.getResultType();
 
@@ -123,35 +172,110 @@ public class TaskDeploymentDescriptorFactory {
                             resultId,
                             partitionType,
                             queueToRequest,
-                            getConsumedPartitionShuffleDescriptors(edges)));
+                            numberOfQueuesToRequest,
+                            getConsumedPartitionShuffleDescriptors(consumedPartitionGroup)));
         }
 
         return inputGates;
     }
 
-    private ShuffleDescriptor[] getConsumedPartitionShuffleDescriptors(ExecutionEdge[] edges) {
-        ShuffleDescriptor[] shuffleDescriptors = new ShuffleDescriptor[edges.length];
-        // Each edge is connected to a different result partition
-        for (int i = 0; i < edges.length; i++) {
-            shuffleDescriptors[i] =
-                    getConsumedPartitionShuffleDescriptor(edges[i], allowUnknownPartitions);
+    /**
+     * Returns the serialized shuffle descriptors of the given group. They are shared by all
+     * consumers of the group once all descriptors are known, so that they are only serialized,
+     * compressed and possibly offloaded to the BLOB store once.
+     */
+    private MaybeOffloaded<ShuffleDescriptor[]> getConsumedPartitionShuffleDescriptors(
+            ConsumedPartitionGroup consumedPartitionGroup) throws IOException {
+        IntermediateResult consumedIntermediateResult =
+                consumedPartitionGroup.getIntermediateResult();
+        MaybeOffloaded<ShuffleDescriptor[]> cachedShuffleDescriptors =
+                consumedIntermediateResult.getCachedShuffleDescriptors(consumedPartitionGroup);
+        if (cachedShuffleDescriptors != null) {
+            return cachedShuffleDescriptors;
+        }
+
+        List<ShuffleDescriptor> shuffleDescriptors = new ArrayList<>(consumedPartitionGroup.size());
+        boolean hasUnknownShuffleDescriptors = false;
+        for (IntermediateResultPartition consumedPartition : consumedPartitionGroup) {
+            if (consumedPartition.getProducer().isSkipped()) {
+                // skipped producers never produce any data
+                continue;
+            }
+            ShuffleDescriptor shuffleDescriptor =
+                    getConsumedPartitionShuffleDescriptor(
+                            consumedPartition, allowUnknownPartitions);
+            hasUnknownShuffleDescriptors |= shuffleDescriptor instanceof UnknownShuffleDescriptor;
+            shuffleDescriptors.add(shuffleDescriptor);
+        }
+
+        CompressedSerializedValue<ShuffleDescriptor[]> serializedShuffleDescriptors =
+                CompressedSerializedValue.fromObject(
+                        shuffleDescriptors.toArray(new ShuffleDescriptor[0]));
+        if (hasUnknownShuffleDescriptors) {
+            // unknown descriptors are updated later on, the result is specific to this consumer
+            return new NonOffloaded<>(serializedShuffleDescriptors);
+        }
+
+        MaybeOffloaded<ShuffleDescriptor[]> maybeOffloadedShuffleDescriptors =
+                tryOffloadShuffleDescriptors(serializedShuffleDescriptors);
+        consumedIntermediateResult.cacheShuffleDescriptors(
+                consumedPartitionGroup, maybeOffloadedShuffleDescriptors);
+        return maybeOffloadedShuffleDescriptors;
+    }
+
+    private MaybeOffloaded<ShuffleDescriptor[]> tryOffloadShuffleDescriptors(
+            CompressedSerializedValue<ShuffleDescriptor[]> serializedShuffleDescriptors) {
+        if (serializedShuffleDescriptors.getSize() < blobWriter.getMinOffloadingSize()) {
+            return new NonOffloaded<>(serializedShuffleDescriptors);
+        }
+
+        try {
+            return new Offloaded<>(
+                    blobWriter.putPermanent(jobID, serializedShuffleDescriptors.getByteArray()));
+        } catch (IOException e) {
+            LOG.warn("Failed to offload shuffle descriptors for job {} to BLOB store.", jobID, e);
+            return new NonOffloaded<>(serializedShuffleDescriptors);
         }
-        return shuffleDescriptors;
     }
 
     public static TaskDeploymentDescriptorFactory fromExecutionVertex(
             ExecutionVertex executionVertex, int attemptNumber) throws IOException {
+        return fromExecutionVertex(
+                executionVertex,
+                executionVertex.getCurrentExecutionAttempt().getAttemptId(),
+                attemptNumber);
+    }
+
+    /**
+     * Creates the factory for the given execution, which may also be a speculative execution
+     * running concurrently with the current execution of its vertex.
+     */
+    public static TaskDeploymentDescriptorFactory fromExecution(Execution execution)
+            throws IOException {
+        return fromExecutionVertex(
+                execution.getVertex(), execution.getAttemptId(), execution.getAttemptNumber());
+    }
+
+    private static TaskDeploymentDescriptorFactory fromExecutionVertex(
+            ExecutionVertex executionVertex,
+            ExecutionAttemptID executionAttemptId,
+            int attemptNumber)
+            throws IOException {
         ExecutionGraph executionGraph = executionVertex.getExecutionGraph();
+        ExecutionJobVertex jobVertex = executionVertex.getJobVertex();
         return new TaskDeploymentDescriptorFactory(
-                executionVertex.getCurrentExecutionAttempt().getAttemptId(),
+                executionAttemptId,
                 attemptNumber,
                 getSerializedJobInformation(executionGraph),
-                getSerializedTaskInformation(
-                        executionVertex.getJobVertex().getTaskInformationOrBlobKey()),
+                getSerializedTaskInformation(jobVertex.getTaskInformationOrBlobKey()),
                 executionGraph.getJobID(),
                 executionGraph.getScheduleMode().allowLazyDeployment(),
                 executionVertex.getParallelSubtaskIndex(),
-                executionVertex.getAllInputEdges());
+                jobVertex.getParallelism(),
+                jobVertex.getDecidedParallelism(),
+                executionVertex.getAllConsumedPartitionGroups(),
+                jobVertex.getJobVertex().getInputs(),
+                executionGraph.getBlobWriter());
     }
 
     private static MaybeOffloaded<JobInformation> getSerializedJobInformation(
@@ -173,8 +297,7 @@ public class TaskDeploymentDescriptorFactory {
     }
 
     public static ShuffleDescriptor getConsumedPartitionShuffleDescriptor(
-            ExecutionEdge edge, boolean allowUnknownPartitions) {
-        IntermediateResultPartition consumedPartition = edge.getSource();
+            IntermediateResultPartition consumedPartition, boolean allowUnknownPartitions) {
         Execution producer = consumedPartition.getProducer().getCurrentExecutionAttempt();
 
         ExecutionState producerState = producer.getState();
@@ -202,7 +325,7 @@ public class TaskDeploymentDescriptorFactory {
             boolean allowUnknownPartitions,
             @Nullable ResultPartitionDeploymentDescriptor consumedPartitionDescriptor) {
         // The producing task needs to be RUNNING or already FINISHED
-        if ((resultPartitionType.isPipelined() || isConsumable)
+        if ((resultPartitionType.isPipelined() || resultPartitionType.isHybrid() || isConsumable)
                 && consumedPartitionDescriptor != null
                 && isProducerAvailable(producerState)) {
             // partition is already registered
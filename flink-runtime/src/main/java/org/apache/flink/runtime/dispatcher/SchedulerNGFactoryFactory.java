@@ -21,6 +21,8 @@ package org.apache.flink.runtime.dispatcher;
 
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.JobManagerOptions;
+import org.apache.flink.runtime.scheduler.AdaptiveBatchSchedulerFactory;
+import org.apache.flink.runtime.scheduler.AdaptiveSchedulerFactory;
 import org.apache.flink.runtime.scheduler.DefaultSchedulerFactory;
 import org.apache.flink.runtime.scheduler.SchedulerNGFactory;
 
@@ -29,6 +31,10 @@ public final class SchedulerNGFactoryFactory {
 
     public static final String SCHEDULER_TYPE_NG = "ng";
 
+    public static final String SCHEDULER_TYPE_ADAPTIVE_BATCH = "adaptive-batch";
+
+    public static final String SCHEDULER_TYPE_ADAPTIVE = "adaptive";
+
     private SchedulerNGFactoryFactory() {}
 
     public static SchedulerNGFactory createSchedulerNGFactory(final Configuration configuration) {
@@ -37,6 +43,12 @@ public final class SchedulerNGFactoryFactory {
             case SCHEDULER_TYPE_NG:
                 return new DefaultSchedulerFactory();
 
+            case SCHEDULER_TYPE_ADAPTIVE_BATCH:
+                return new AdaptiveBatchSchedulerFactory();
+
+            case SCHEDULER_TYPE_ADAPTIVE:
+                return new AdaptiveSchedulerFactory();
+
             default:
                 throw new IllegalArgumentException(
                         String.format(
@@ -79,7 +79,7 @@ public interface AccessExecutionVertex {
      * Returns the execution for the given attempt number.
      *
      * @param attemptNumber attempt number of execution to be returned
-     * @return execution for the given attempt number
+     * @return execution for the given attempt number, or null if it is not kept in the history
      */
     @Nullable
     AccessExecution getPriorExecutionAttempt(int attemptNumber);
@@ -100,10 +100,6 @@ public class ArchivedExecutionVertex implements AccessExecutionVertex, Serializa
     @Nullable
     @Override
     public ArchivedExecution getPriorExecutionAttempt(int attemptNumber) {
-        if (attemptNumber >= 0 && attemptNumber < priorExecutions.size()) {
-            return priorExecutions.get(attemptNumber);
-        } else {
-            throw new IllegalArgumentException("attempt does not exist");
-        }
+        return ExecutionVertex.findPriorExecutionAttempt(priorExecutions, attemptNumber);
     }
 }
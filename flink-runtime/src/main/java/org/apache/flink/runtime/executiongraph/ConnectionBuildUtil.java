@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.executiongraph;
+
+import org.apache.flink.runtime.jobgraph.DistributionPattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Utilities for connecting the {@link ExecutionVertex ExecutionVertices} of an {@link
+ * ExecutionJobVertex} to the partitions of a consumed {@link IntermediateResult}.
+ *
+ * <p>The connections are represented by {@link ConsumedPartitionGroup ConsumedPartitionGroups} and
+ * {@link ConsumerVertexGroup ConsumerVertexGroups} which are shared by all vertices respectively
+ * partitions with the same connections. This keeps the memory footprint of an all-to-all
+ * connection linear in the number of vertices and partitions.
+ */
+final class ConnectionBuildUtil {
+
+    /**
+     * Connects the given input of all subtasks of the consumer vertex to the partitions of the
+     * given result, according to the distribution pattern.
+     */
+    static void connectVertexToResult(
+            ExecutionJobVertex vertex,
+            IntermediateResult result,
+            DistributionPattern distributionPattern,
+            int inputNumber) {
+
+        switch (distributionPattern) {
+            case POINTWISE:
+                connectPointwise(vertex.getTaskVertices(), result, inputNumber);
+                break;
+            case ALL_TO_ALL:
+                connectAllToAll(vertex.getTaskVertices(), result, inputNumber);
+                break;
+            default:
+                throw new RuntimeException("Unrecognized distribution pattern.");
+        }
+    }
+
+    private static void connectAllToAll(
+            ExecutionVertex[] taskVertices, IntermediateResult result, int inputNumber) {
+
+        final ConsumedPartitionGroup consumedPartitions =
+                new ConsumedPartitionGroup(Arrays.asList(result.getPartitions()));
+        for (ExecutionVertex ev : taskVertices) {
+            ev.setConsumedPartitionGroup(inputNumber, consumedPartitions);
+        }
+
+        final ConsumerVertexGroup consumers =
+                new ConsumerVertexGroup(Arrays.asList(taskVertices));
+        for (IntermediateResultPartition partition : result.getPartitions()) {
+            partition.addConsumers(consumers);
+        }
+    }
+
+    private static void connectPointwise(
+            ExecutionVertex[] taskVertices, IntermediateResult result, int inputNumber) {
+
+        final IntermediateResultPartition[] sourcePartitions = result.getPartitions();
+        final int numSources = sourcePartitions.length;
+        final int parallelism = taskVertices.length;
+
+        if (numSources == parallelism) {
+            // simple case same number of sources as targets
+            for (int i = 0; i < parallelism; i++) {
+                taskVertices[i].setConsumedPartitionGroup(
+                        inputNumber,
+                        ConsumedPartitionGroup.fromSinglePartition(sourcePartitions[i]));
+                sourcePartitions[i].addConsumers(
+                        ConsumerVertexGroup.fromSingleVertex(taskVertices[i]));
+            }
+        } else if (numSources < parallelism) {
+            // each target consumes one source, the targets of a source share the groups
+            final List<List<ExecutionVertex>> consumersPerSource = new ArrayList<>(numSources);
+            for (int i = 0; i < numSources; i++) {
+                consumersPerSource.add(new ArrayList<>());
+            }
+
+            for (int subTaskIndex = 0; subTaskIndex < parallelism; subTaskIndex++) {
+                final int sourcePartition;
+
+                // check if the pattern is regular or irregular
+                // we use int arithmetics for regular, and floating point with rounding for
+                // irregular
+                if (parallelism % numSources == 0) {
+                    // same number of targets per source
+                    int factor = parallelism / numSources;
+                    sourcePartition = subTaskIndex / factor;
+                } else {
+                    // different number of targets per source
+                    float factor = ((float) parallelism) / numSources;
+                    sourcePartition = (int) (subTaskIndex / factor);
+                }
+
+                consumersPerSource.get(sourcePartition).add(taskVertices[subTaskIndex]);
+            }
+
+            for (int i = 0; i < numSources; i++) {
+                final List<ExecutionVertex> consumers = consumersPerSource.get(i);
+                if (consumers.isEmpty()) {
+                    continue;
+                }
+
+                final ConsumedPartitionGroup consumedPartitions =
+                        ConsumedPartitionGroup.fromSinglePartition(sourcePartitions[i]);
+                for (ExecutionVertex ev : consumers) {
+                    ev.setConsumedPartitionGroup(inputNumber, consumedPartitions);
+                }
+                sourcePartitions[i].addConsumers(new ConsumerVertexGroup(consumers));
+            }
+        } else {
+            // each source is consumed by one target, the sources of a target share the groups
+            for (int subTaskIndex = 0; subTaskIndex < parallelism; subTaskIndex++) {
+                final int start;
+                final int end;
+
+                if (numSources % parallelism == 0) {
+                    // same number of sources per target
+                    int factor = numSources / parallelism;
+                    start = subTaskIndex * factor;
+                    end = start + factor;
+                } else {
+                    float factor = ((float) numSources) / parallelism;
+                    start = (int) (subTaskIndex * factor);
+                    end =
+                            (subTaskIndex == parallelism - 1)
+                                    ? numSources
+                                    : (int) ((subTaskIndex + 1) * factor);
+                }
+
+                final ExecutionVertex ev = taskVertices[subTaskIndex];
+                ev.setConsumedPartitionGroup(
+                        inputNumber,
+                        new ConsumedPartitionGroup(
+                                Arrays.asList(sourcePartitions).subList(start, end)));
+
+                final ConsumerVertexGroup consumers = ConsumerVertexGroup.fromSingleVertex(ev);
+                for (int i = start; i < end; i++) {
+                    sourcePartitions[i].addConsumers(consumers);
+                }
+            }
+        }
+    }
+
+    private ConnectionBuildUtil() {}
+}
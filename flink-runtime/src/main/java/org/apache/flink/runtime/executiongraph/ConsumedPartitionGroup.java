@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.executiongraph;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A group of {@link IntermediateResultPartition IntermediateResultPartitions} of one {@link
+ * IntermediateResult} which are consumed by an input of an {@link ExecutionVertex}.
+ *
+ * <p>All consumers of the same partitions share one group, e.g. all consumers of an all-to-all
+ * connected result reference the same group instead of one edge per consumer and partition.
+ */
+public class ConsumedPartitionGroup implements Iterable<IntermediateResultPartition> {
+
+    private final List<IntermediateResultPartition> resultPartitions;
+
+    public ConsumedPartitionGroup(List<IntermediateResultPartition> resultPartitions) {
+        checkArgument(
+                !checkNotNull(resultPartitions).isEmpty(),
+                "A consumed partition group must not be empty.");
+        this.resultPartitions = Collections.unmodifiableList(resultPartitions);
+    }
+
+    public static ConsumedPartitionGroup fromSinglePartition(
+            IntermediateResultPartition resultPartition) {
+        return new ConsumedPartitionGroup(Collections.singletonList(resultPartition));
+    }
+
+    @Override
+    public Iterator<IntermediateResultPartition> iterator() {
+        return resultPartitions.iterator();
+    }
+
+    public List<IntermediateResultPartition> getResultPartitions() {
+        return resultPartitions;
+    }
+
+    public int size() {
+        return resultPartitions.size();
+    }
+
+    /** Returns the first partition of the group, all partitions belong to the same result. */
+    public IntermediateResultPartition getFirst() {
+        return resultPartitions.get(0);
+    }
+
+    public IntermediateResult getIntermediateResult() {
+        return getFirst().getIntermediateResult();
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumedPartitionGroup [" + resultPartitions.size() + " partitions]";
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.executiongraph;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A group of {@link ExecutionVertex ExecutionVertices} of one {@link ExecutionJobVertex} which
+ * consume an {@link IntermediateResultPartition}.
+ *
+ * <p>All partitions with the same consumers share one group, e.g. all partitions of an all-to-all
+ * connected result reference the same group instead of one edge per partition and consumer.
+ */
+public class ConsumerVertexGroup implements Iterable<ExecutionVertex> {
+
+    private final List<ExecutionVertex> vertices;
+
+    public ConsumerVertexGroup(List<ExecutionVertex> vertices) {
+        checkArgument(
+                !checkNotNull(vertices).isEmpty(), "A consumer vertex group must not be empty.");
+        this.vertices = Collections.unmodifiableList(vertices);
+    }
+
+    public static ConsumerVertexGroup fromSingleVertex(ExecutionVertex vertex) {
+        return new ConsumerVertexGroup(Collections.singletonList(vertex));
+    }
+
+    @Override
+    public Iterator<ExecutionVertex> iterator() {
+        return vertices.iterator();
+    }
+
+    public List<ExecutionVertex> getVertices() {
+        return vertices;
+    }
+
+    public int size() {
+        return vertices.size();
+    }
+
+    /** Returns the first vertex of the group, all vertices belong to the same job vertex. */
+    public ExecutionVertex getFirst() {
+        return vertices.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return "ConsumerVertexGroup [" + vertices.size() + " vertices]";
+    }
+}
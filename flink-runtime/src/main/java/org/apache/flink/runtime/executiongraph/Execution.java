@@ -494,12 +494,12 @@ public class Execution
     }
 
     private static int getPartitionMaxParallelism(IntermediateResultPartition partition) {
-        final List<List<ExecutionEdge>> consumers = partition.getConsumers();
+        final List<ConsumerVertexGroup> consumers = partition.getConsumerVertexGroups();
         Preconditions.checkArgument(
                 !consumers.isEmpty(),
                 "Currently there has to be exactly one consumer in real jobs");
-        List<ExecutionEdge> consumer = consumers.get(0);
-        ExecutionJobVertex consumerVertex = consumer.get(0).getTarget().getJobVertex();
+        ConsumerVertexGroup consumer = consumers.get(0);
+        ExecutionJobVertex consumerVertex = consumer.getFirst().getJobVertex();
         int maxParallelism = consumerVertex.getMaxParallelism();
         return maxParallelism;
     }
@@ -566,7 +566,7 @@ public class Execution
                     "Deploying {} (attempt #{}) with attempt id {} to {} with allocation id {}",
                     vertex.getTaskNameWithSubtaskIndex(),
                     attemptNumber,
-                    vertex.getCurrentExecutionAttempt().getAttemptId(),
+                    attemptId,
                     getAssignedResourceLocation(),
                     slot.getAllocationId());
 
@@ -589,7 +589,7 @@ public class Execution
             }
 
             final TaskDeploymentDescriptor deployment =
-                    TaskDeploymentDescriptorFactory.fromExecutionVertex(vertex, attemptNumber)
+                    TaskDeploymentDescriptorFactory.fromExecution(this)
                             .createDeploymentDescriptor(
                                     slot.getAllocationId(),
                                     slot.getPhysicalSlotNumber(),
@@ -733,8 +733,10 @@ public class Execution
         return releaseFuture;
     }
 
-    private void updatePartitionConsumers(final List<List<ExecutionEdge>> allConsumers) {
-        if (allConsumers.size() == 0) {
+    private void updatePartitionConsumers(final IntermediateResultPartition partition) {
+        final List<ConsumerVertexGroup> allConsumers = partition.getConsumerVertexGroups();
+        if (allConsumers.size() == 0 || partition.getProducer().isSkipped()) {
+            // the partitions of skipped producers are never read by the consumers
             return;
         }
         if (allConsumers.size() > 1) {
@@ -744,8 +746,7 @@ public class Execution
             return;
         }
 
-        for (ExecutionEdge edge : allConsumers.get(0)) {
-            final ExecutionVertex consumerVertex = edge.getTarget();
+        for (ExecutionVertex consumerVertex : allConsumers.get(0)) {
             final Execution consumer = consumerVertex.getCurrentExecutionAttempt();
             final ExecutionState consumerState = consumer.getState();
 
@@ -755,7 +756,7 @@ public class Execution
             // sent after switching to running
             // ----------------------------------------------------------------
             if (consumerState == DEPLOYING || consumerState == RUNNING) {
-                final PartitionInfo partitionInfo = createPartitionInfo(edge);
+                final PartitionInfo partitionInfo = createPartitionInfo(partition);
 
                 if (consumerState == DEPLOYING) {
                     consumerVertex.cachePartitionInfo(partitionInfo);
@@ -766,11 +767,12 @@ public class Execution
         }
     }
 
-    private static PartitionInfo createPartitionInfo(ExecutionEdge executionEdge) {
+    private static PartitionInfo createPartitionInfo(
+            IntermediateResultPartition consumedPartition) {
         IntermediateDataSetID intermediateDataSetID =
-                executionEdge.getSource().getIntermediateResult().getId();
+                consumedPartition.getIntermediateResult().getId();
         ShuffleDescriptor shuffleDescriptor =
-                getConsumedPartitionShuffleDescriptor(executionEdge, false);
+                getConsumedPartitionShuffleDescriptor(consumedPartition, false);
         return new PartitionInfo(intermediateDataSetID, shuffleDescriptor);
     }
 
@@ -951,6 +953,9 @@ public class Execution
 
             if (current == RUNNING || current == DEPLOYING) {
 
+                // decides the race with a concurrent speculative execution, if there is one
+                vertex.executionFinishing(this);
+
                 if (transitionState(current, FINISHED)) {
                     try {
                         finishPartitionsAndUpdateConsumers();
@@ -994,7 +999,7 @@ public class Execution
                     finishedPartition.getIntermediateResult().getPartitions();
 
             for (IntermediateResultPartition partition : allPartitionsOfNewlyFinishedResults) {
-                updatePartitionConsumers(partition.getConsumers());
+                updatePartitionConsumers(partition);
             }
         }
     }
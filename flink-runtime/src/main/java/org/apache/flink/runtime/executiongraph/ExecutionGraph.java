@@ -348,9 +348,14 @@ public class ExecutionGraph implements AccessExecutionGraph {
 
         this.partitionTracker = checkNotNull(partitionTracker);
 
-        this.resultPartitionAvailabilityChecker =
+        final ResultPartitionAvailabilityChecker trackedPartitionsChecker =
                 new ExecutionGraphResultPartitionAvailabilityChecker(
                         this::createResultPartitionId, partitionTracker);
+        // the partitions of skipped producers are never read and do not need to be recomputed
+        this.resultPartitionAvailabilityChecker =
+                partitionId ->
+                        getProducerVertex(partitionId).isSkipped()
+                                || trackedPartitionsChecker.isAvailable(partitionId);
 
         this.executionDeploymentListener = executionDeploymentListener;
         this.executionStateUpdateListener = executionStateUpdateListener;
@@ -1310,6 +1315,11 @@ public class ExecutionGraph implements AccessExecutionGraph {
     }
 
     private void maybeReleasePartitions(final Execution attempt) {
+        if (attempt.getVertex().getCurrentExecutionAttempt() != attempt) {
+            // a speculative execution or the loser of a speculative race
+            return;
+        }
+
         final ExecutionVertexID finishedExecutionVertex = attempt.getVertex().getID();
 
         if (attempt.getState() == ExecutionState.FINISHED) {
@@ -1334,6 +1344,13 @@ public class ExecutionGraph implements AccessExecutionGraph {
 
     ResultPartitionID createResultPartitionId(
             final IntermediateResultPartitionID resultPartitionId) {
+        final Execution execution =
+                getProducerVertex(resultPartitionId).getCurrentExecutionAttempt();
+        return new ResultPartitionID(resultPartitionId, execution.getAttemptId());
+    }
+
+    private ExecutionVertex getProducerVertex(
+            final IntermediateResultPartitionID resultPartitionId) {
         final SchedulingResultPartition schedulingResultPartition =
                 getSchedulingTopology().getResultPartition(resultPartitionId);
         final SchedulingExecutionVertex producer = schedulingResultPartition.getProducer();
@@ -1350,9 +1367,7 @@ public class ExecutionGraph implements AccessExecutionGraph {
                 subtaskIndex,
                 jobVertexId);
 
-        final ExecutionVertex taskVertex = taskVertices[subtaskIndex];
-        final Execution execution = taskVertex.getCurrentExecutionAttempt();
-        return new ResultPartitionID(resultPartitionId, execution.getAttemptId());
+        return taskVertices[subtaskIndex];
     }
 
     /**
@@ -110,6 +110,12 @@ public class ExecutionJobVertex
 
     private int maxParallelism;
 
+    /**
+     * The number of subtasks which are actually executed, if it is decided at runtime. The subtasks
+     * with an index of at least this value are skipped.
+     */
+    private int decidedParallelism = VALUE_NOT_SET;
+
     private final ResourceProfile resourceProfile;
 
     /**
@@ -325,6 +331,35 @@ public class ExecutionJobVertex
         return resourceProfile;
     }
 
+    public boolean isParallelismDecided() {
+        return decidedParallelism != VALUE_NOT_SET;
+    }
+
+    public int getDecidedParallelism() {
+        return decidedParallelism;
+    }
+
+    /**
+     * Decides how many of the subtasks of this vertex are executed. The remaining subtasks are
+     * skipped and do not produce any data. This must happen before any subtask is deployed.
+     *
+     * @param decidedParallelism The number of subtasks to execute.
+     */
+    public void setDecidedParallelism(int decidedParallelism) {
+        Preconditions.checkArgument(
+                decidedParallelism > 0 && decidedParallelism <= parallelism,
+                "The decided parallelism must be between 1 and %s, found: %s",
+                parallelism,
+                decidedParallelism);
+
+        synchronized (stateMonitor) {
+            Preconditions.checkState(
+                    taskInformationOrBlobKey == null,
+                    "The parallelism must be decided before the task information is created.");
+            this.decidedParallelism = decidedParallelism;
+        }
+    }
+
     public boolean isMaxParallelismConfigured() {
         return maxParallelismConfigured;
     }
@@ -380,7 +415,7 @@ public class ExecutionJobVertex
                         new TaskInformation(
                                 jobVertex.getID(),
                                 jobVertex.getName(),
-                                parallelism,
+                                isParallelismDecided() ? decidedParallelism : parallelism,
                                 maxParallelism,
                                 jobVertex.getInvokableClassName(),
                                 jobVertex.getConfiguration());
@@ -454,12 +489,10 @@ public class ExecutionJobVertex
 
             this.inputs.add(ires);
 
-            int consumerIndex = ires.registerConsumer();
+            ires.registerConsumer();
 
-            for (int i = 0; i < parallelism; i++) {
-                ExecutionVertex ev = taskVertices[i];
-                ev.connectSource(num, ires, edge, consumerIndex);
-            }
+            ConnectionBuildUtil.connectVertexToResult(
+                    this, ires, edge.getDistributionPattern(), num);
         }
     }
 
@@ -27,11 +27,10 @@ import org.apache.flink.core.io.InputSplitAssigner;
 import org.apache.flink.runtime.JobException;
 import org.apache.flink.runtime.clusterframework.types.AllocationID;
 import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
+import org.apache.flink.runtime.concurrent.FutureUtils;
 import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
-import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
-import org.apache.flink.runtime.jobgraph.JobEdge;
 import org.apache.flink.runtime.jobgraph.JobVertexID;
 import org.apache.flink.runtime.jobmaster.LogicalSlot;
 import org.apache.flink.runtime.scheduler.strategy.ExecutionVertexID;
@@ -44,6 +43,7 @@ import org.slf4j.Logger;
 import javax.annotation.Nullable;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -76,7 +76,7 @@ public class ExecutionVertex
 
     private final Map<IntermediateResultPartitionID, IntermediateResultPartition> resultPartitions;
 
-    private final ExecutionEdge[][] inputEdges;
+    private final ConsumedPartitionGroup[] consumedPartitionGroups;
 
     private final int subTaskIndex;
 
@@ -92,6 +92,15 @@ public class ExecutionVertex
     /** The current or latest execution attempt of this vertex's task. */
     private Execution currentExecution; // this field must never be null
 
+    /** A speculative attempt which runs concurrently with the current execution, if any. */
+    @Nullable private Execution speculativeExecution;
+
+    /**
+     * The attempt number of the next execution attempt. Restarts and speculative attempts both
+     * draw from it, so that no two attempts of this vertex have the same number.
+     */
+    private int nextAttemptNumber;
+
     private final ArrayList<InputSplit> inputSplits;
 
     // --------------------------------------------------------------------------------------------
@@ -136,7 +145,8 @@ public class ExecutionVertex
             resultPartitions.put(irp.getPartitionId(), irp);
         }
 
-        this.inputEdges = new ExecutionEdge[jobVertex.getJobVertex().getInputs().size()][];
+        this.consumedPartitionGroups =
+                new ConsumedPartitionGroup[jobVertex.getJobVertex().getInputs().size()];
 
         this.priorExecutions = new EvictingBoundedList<>(maxPriorExecutionHistoryLength);
 
@@ -144,7 +154,7 @@ public class ExecutionVertex
                 new Execution(
                         getExecutionGraph().getFutureExecutor(),
                         this,
-                        0,
+                        nextAttemptNumber++,
                         initialGlobalModVersion,
                         createTimestamp,
                         timeout);
@@ -205,24 +215,37 @@ public class ExecutionVertex
         return this.subTaskIndex;
     }
 
+    /**
+     * Checks whether this subtask is not executed because the parallelism decided for its job
+     * vertex is lower than the number of subtasks.
+     *
+     * @see ExecutionJobVertex#setDecidedParallelism(int)
+     */
+    public boolean isSkipped() {
+        return jobVertex.isParallelismDecided()
+                && subTaskIndex >= jobVertex.getDecidedParallelism();
+    }
+
     public ExecutionVertexID getID() {
         return executionVertexId;
     }
 
     public int getNumberOfInputs() {
-        return this.inputEdges.length;
+        return this.consumedPartitionGroups.length;
     }
 
-    public ExecutionEdge[] getInputEdges(int input) {
-        if (input < 0 || input >= inputEdges.length) {
+    public ConsumedPartitionGroup getConsumedPartitionGroup(int input) {
+        if (input < 0 || input >= consumedPartitionGroups.length) {
             throw new IllegalArgumentException(
-                    String.format("Input %d is out of range [0..%d)", input, inputEdges.length));
+                    String.format(
+                            "Input %d is out of range [0..%d)",
+                            input, consumedPartitionGroups.length));
         }
-        return inputEdges[input];
+        return consumedPartitionGroups[input];
     }
 
-    public ExecutionEdge[][] getAllInputEdges() {
-        return inputEdges;
+    public List<ConsumedPartitionGroup> getAllConsumedPartitionGroups() {
+        return Collections.unmodifiableList(Arrays.asList(consumedPartitionGroups));
     }
 
     public InputSplit getNextInputSplit(String host) {
@@ -242,6 +265,15 @@ public class ExecutionVertex
         return currentExecution;
     }
 
+    /**
+     * Returns the speculative execution attempt which runs concurrently with the current execution,
+     * or null if there is none.
+     */
+    @Nullable
+    public Execution getSpeculativeExecutionAttempt() {
+        return speculativeExecution;
+    }
+
     @Override
     public ExecutionState getExecutionState() {
         return currentExecution.getState();
@@ -278,12 +310,26 @@ public class ExecutionVertex
     @Override
     public ArchivedExecution getPriorExecutionAttempt(int attemptNumber) {
         synchronized (priorExecutions) {
-            if (attemptNumber >= 0 && attemptNumber < priorExecutions.size()) {
-                return priorExecutions.get(attemptNumber);
-            } else {
-                throw new IllegalArgumentException("attempt does not exist");
+            return findPriorExecutionAttempt(priorExecutions, attemptNumber);
+        }
+    }
+
+    /**
+     * Finds the prior execution with the given attempt number. The attempt numbers of the prior
+     * executions have gaps, because speculative attempts which did not finish first are not kept.
+     */
+    @Nullable
+    static ArchivedExecution findPriorExecutionAttempt(
+            EvictingBoundedList<ArchivedExecution> priorExecutions, int attemptNumber) {
+        if (attemptNumber < 0) {
+            throw new IllegalArgumentException("attempt does not exist");
+        }
+        for (ArchivedExecution priorExecution : priorExecutions) {
+            if (priorExecution != null && priorExecution.getAttemptNumber() == attemptNumber) {
+                return priorExecution;
             }
         }
+        return null;
     }
 
     public ArchivedExecution getLatestPriorExecution() {
@@ -333,107 +379,8 @@ public class ExecutionVertex
     //  Graph building
     // --------------------------------------------------------------------------------------------
 
-    public void connectSource(
-            int inputNumber, IntermediateResult source, JobEdge edge, int consumerNumber) {
-
-        final DistributionPattern pattern = edge.getDistributionPattern();
-        final IntermediateResultPartition[] sourcePartitions = source.getPartitions();
-
-        ExecutionEdge[] edges;
-
-        switch (pattern) {
-            case POINTWISE:
-                edges = connectPointwise(sourcePartitions, inputNumber);
-                break;
-
-            case ALL_TO_ALL:
-                edges = connectAllToAll(sourcePartitions, inputNumber);
-                break;
-
-            default:
-                throw new RuntimeException("Unrecognized distribution pattern.");
-        }
-
-        inputEdges[inputNumber] = edges;
-
-        // add the consumers to the source
-        // for now (until the receiver initiated handshake is in place), we need to register the
-        // edges as the execution graph
-        for (ExecutionEdge ee : edges) {
-            ee.getSource().addConsumer(ee, consumerNumber);
-        }
-    }
-
-    private ExecutionEdge[] connectAllToAll(
-            IntermediateResultPartition[] sourcePartitions, int inputNumber) {
-        ExecutionEdge[] edges = new ExecutionEdge[sourcePartitions.length];
-
-        for (int i = 0; i < sourcePartitions.length; i++) {
-            IntermediateResultPartition irp = sourcePartitions[i];
-            edges[i] = new ExecutionEdge(irp, this, inputNumber);
-        }
-
-        return edges;
-    }
-
-    private ExecutionEdge[] connectPointwise(
-            IntermediateResultPartition[] sourcePartitions, int inputNumber) {
-        final int numSources = sourcePartitions.length;
-        final int parallelism = getTotalNumberOfParallelSubtasks();
-
-        // simple case same number of sources as targets
-        if (numSources == parallelism) {
-            return new ExecutionEdge[] {
-                new ExecutionEdge(sourcePartitions[subTaskIndex], this, inputNumber)
-            };
-        } else if (numSources < parallelism) {
-
-            int sourcePartition;
-
-            // check if the pattern is regular or irregular
-            // we use int arithmetics for regular, and floating point with rounding for irregular
-            if (parallelism % numSources == 0) {
-                // same number of targets per source
-                int factor = parallelism / numSources;
-                sourcePartition = subTaskIndex / factor;
-            } else {
-                // different number of targets per source
-                float factor = ((float) parallelism) / numSources;
-                sourcePartition = (int) (subTaskIndex / factor);
-            }
-
-            return new ExecutionEdge[] {
-                new ExecutionEdge(sourcePartitions[sourcePartition], this, inputNumber)
-            };
-        } else {
-            if (numSources % parallelism == 0) {
-                // same number of targets per source
-                int factor = numSources / parallelism;
-                int startIndex = subTaskIndex * factor;
-
-                ExecutionEdge[] edges = new ExecutionEdge[factor];
-                for (int i = 0; i < factor; i++) {
-                    edges[i] =
-                            new ExecutionEdge(sourcePartitions[startIndex + i], this, inputNumber);
-                }
-                return edges;
-            } else {
-                float factor = ((float) numSources) / parallelism;
-
-                int start = (int) (subTaskIndex * factor);
-                int end =
-                        (subTaskIndex == getTotalNumberOfParallelSubtasks() - 1)
-                                ? sourcePartitions.length
-                                : (int) ((subTaskIndex + 1) * factor);
-
-                ExecutionEdge[] edges = new ExecutionEdge[end - start];
-                for (int i = 0; i < edges.length; i++) {
-                    edges[i] = new ExecutionEdge(sourcePartitions[start + i], this, inputNumber);
-                }
-
-                return edges;
-            }
-        }
+    void setConsumedPartitionGroup(int inputNumber, ConsumedPartitionGroup consumedPartitions) {
+        consumedPartitionGroups[inputNumber] = consumedPartitions;
     }
 
     /**
@@ -506,7 +453,7 @@ public class ExecutionVertex
      */
     public Collection<CompletableFuture<TaskManagerLocation>> getPreferredLocationsBasedOnInputs() {
         // otherwise, base the preferred locations on the input connections
-        if (inputEdges == null) {
+        if (consumedPartitionGroups == null) {
             return Collections.emptySet();
         } else {
             Set<CompletableFuture<TaskManagerLocation>> locations =
@@ -515,18 +462,14 @@ public class ExecutionVertex
                     new HashSet<>(getTotalNumberOfParallelSubtasks());
 
             // go over all inputs
-            for (int i = 0; i < inputEdges.length; i++) {
+            for (ConsumedPartitionGroup sources : consumedPartitionGroups) {
                 inputLocations.clear();
-                ExecutionEdge[] sources = inputEdges[i];
                 if (sources != null) {
                     // go over all input sources
-                    for (int k = 0; k < sources.length; k++) {
+                    for (IntermediateResultPartition source : sources) {
                         // look-up assigned slot of input source
                         CompletableFuture<TaskManagerLocation> locationFuture =
-                                sources[k]
-                                        .getSource()
-                                        .getProducer()
-                                        .getCurrentTaskManagerLocationFuture();
+                                source.getProducer().getCurrentTaskManagerLocationFuture();
                         // add input location
                         inputLocations.add(locationFuture);
                         // inputs which have too many distinct sources are not considered
@@ -616,7 +559,7 @@ public class ExecutionVertex
                     new Execution(
                             getExecutionGraph().getFutureExecutor(),
                             this,
-                            oldExecution.getAttemptNumber() + 1,
+                            nextAttemptNumber++,
                             originatingGlobalModVersion,
                             timestamp,
                             timeout);
@@ -652,6 +595,41 @@ public class ExecutionVertex
         }
     }
 
+    /**
+     * Creates a speculative execution attempt which runs concurrently with the running current
+     * execution. Whichever of both finishes first becomes the current execution, the other one is
+     * cancelled and its result partitions are released.
+     *
+     * <p>If the speculative execution does not finish first, it is not kept in the history of
+     * prior executions. Its attempt number is not used again by later executions.
+     *
+     * @param timestamp The creation timestamp of the speculative execution
+     * @return The new speculative execution
+     */
+    public Execution createSpeculativeExecution(final long timestamp) {
+        checkState(
+                speculativeExecution == null,
+                "%s already has a speculative execution.",
+                getTaskNameWithSubtaskIndex());
+        checkState(
+                currentExecution.getState() == ExecutionState.RUNNING,
+                "Only running executions can be speculated, %s is %s.",
+                getTaskNameWithSubtaskIndex(),
+                currentExecution.getState());
+
+        speculativeExecution =
+                new Execution(
+                        getExecutionGraph().getFutureExecutor(),
+                        this,
+                        nextAttemptNumber++,
+                        currentExecution.getGlobalModVersion(),
+                        timestamp,
+                        timeout);
+        getExecutionGraph().registerExecution(speculativeExecution);
+
+        return speculativeExecution;
+    }
+
     public void tryAssignResource(LogicalSlot slot) {
         if (!currentExecution.tryAssignResource(slot)) {
             throw new IllegalStateException(
@@ -690,12 +668,27 @@ public class ExecutionVertex
         // to avoid any case of mixup in the presence of concurrent calls,
         // we copy a reference to the stack to make sure both calls go to the same Execution
         final Execution exec = currentExecution;
+        final Execution speculative = speculativeExecution;
         exec.cancel();
-        return exec.getReleaseFuture();
+        if (speculative == null) {
+            return exec.getReleaseFuture();
+        }
+
+        // the partitions of the speculative execution would never be consumed
+        speculative.handlePartitionCleanup(false, true);
+        speculative.cancel();
+        return FutureUtils.waitForAll(
+                Arrays.asList(exec.getReleaseFuture(), speculative.getReleaseFuture()));
     }
 
     public CompletableFuture<?> suspend() {
-        return currentExecution.suspend();
+        final Execution speculative = speculativeExecution;
+        if (speculative == null) {
+            return currentExecution.suspend();
+        }
+
+        return FutureUtils.waitForAll(
+                Arrays.asList(currentExecution.suspend(), speculative.suspend()));
     }
 
     public void fail(Throwable t) {
@@ -755,6 +748,39 @@ public class ExecutionVertex
     //   Notifications from the Execution Attempt
     // --------------------------------------------------------------------------------------------
 
+    /**
+     * Called when the given execution is about to finish. If it raced with a speculative execution,
+     * it becomes the current execution and the other one is cancelled. The partitions of the other
+     * one are released before, because they are no longer tracked once it is cancelled.
+     */
+    void executionFinishing(Execution execution) {
+        final Execution speculative = speculativeExecution;
+        if (speculative == null) {
+            return;
+        }
+        speculativeExecution = null;
+
+        final Execution loser;
+        if (execution == speculative) {
+            loser = currentExecution;
+            currentExecution = speculative;
+            synchronized (priorExecutions) {
+                priorExecutions.add(loser.archive());
+            }
+        } else {
+            loser = speculative;
+        }
+
+        LOG.info(
+                "{} (attempt #{}) finished before attempt #{}, cancelling the latter.",
+                getTaskNameWithSubtaskIndex(),
+                execution.getAttemptNumber(),
+                loser.getAttemptNumber());
+
+        loser.handlePartitionCleanup(false, true);
+        loser.cancel();
+    }
+
     void executionFinished(Execution execution) {
         getExecutionGraph().vertexFinished();
     }
@@ -764,9 +790,9 @@ public class ExecutionVertex
     // --------------------------------------------------------------------------------------------
 
     void notifyPendingDeployment(Execution execution) {
-        // only forward this notification if the execution is still the current execution
+        // only forward this notification if the execution is still registered
         // otherwise we have an outdated execution
-        if (isCurrentExecution(execution)) {
+        if (isRegisteredExecution(execution)) {
             getExecutionGraph()
                     .getExecutionDeploymentListener()
                     .onStartedDeployment(
@@ -776,9 +802,9 @@ public class ExecutionVertex
     }
 
     void notifyCompletedDeployment(Execution execution) {
-        // only forward this notification if the execution is still the current execution
+        // only forward this notification if the execution is still registered
         // otherwise we have an outdated execution
-        if (isCurrentExecution(execution)) {
+        if (isRegisteredExecution(execution)) {
             getExecutionGraph()
                     .getExecutionDeploymentListener()
                     .onCompletedDeployment(execution.getAttemptId());
@@ -787,15 +813,26 @@ public class ExecutionVertex
 
     /** Simply forward this notification. */
     void notifyStateTransition(Execution execution, ExecutionState newState) {
-        // only forward this notification if the execution is still the current execution
+        if (execution == speculativeExecution && newState.isTerminal()) {
+            // the speculative execution failed or was cancelled without finishing first
+            speculativeExecution = null;
+        }
+
+        // only forward this notification if the execution is still registered
         // otherwise we have an outdated execution
-        if (isCurrentExecution(execution)) {
+        if (isRegisteredExecution(execution)) {
             getExecutionGraph().notifyExecutionChange(execution, newState);
         }
     }
 
-    private boolean isCurrentExecution(Execution execution) {
-        return currentExecution == execution;
+    /**
+     * Checks whether the given execution is registered at the execution graph. Besides the current
+     * execution, this also holds for speculative executions and for the losers of a speculative
+     * race until they are cancelled.
+     */
+    private boolean isRegisteredExecution(Execution execution) {
+        return getExecutionGraph().getRegisteredExecutions().get(execution.getAttemptId())
+                == execution;
     }
 
     // --------------------------------------------------------------------------------------------
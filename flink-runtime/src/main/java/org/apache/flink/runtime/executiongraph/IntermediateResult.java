@@ -19,11 +19,17 @@
 package org.apache.flink.runtime.executiongraph;
 
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.MaybeOffloaded;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
+import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
+
+import javax.annotation.Nullable;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -57,6 +63,14 @@ public class IntermediateResult {
 
     private final ResultPartitionType resultType;
 
+    /**
+     * The serialized shuffle descriptors of the consumed partition groups of this result, shared by
+     * the deployments of all consumers of a group. They are dropped as soon as a producer of this
+     * result is reset, because its partition gets a new descriptor.
+     */
+    private final Map<ConsumedPartitionGroup, MaybeOffloaded<ShuffleDescriptor[]>>
+            shuffleDescriptorCache = new IdentityHashMap<>();
+
     public IntermediateResult(
             IntermediateDataSetID id,
             ExecutionJobVertex producer,
@@ -149,11 +163,10 @@ public class IntermediateResult {
         final int index = numConsumers;
         numConsumers++;
 
-        for (IntermediateResultPartition p : partitions) {
-            if (p.addConsumerGroup() != index) {
-                throw new RuntimeException(
-                        "Inconsistent consumer mapping between intermediate result partitions.");
-            }
+        // NOTE: currently we support only one consumer per result!!!
+        if (index != 0) {
+            throw new RuntimeException(
+                    "Currently, each intermediate result can only have one consumer.");
         }
         return index;
     }
@@ -162,6 +175,22 @@ public class IntermediateResult {
         return connectionIndex;
     }
 
+    @Nullable
+    public MaybeOffloaded<ShuffleDescriptor[]> getCachedShuffleDescriptors(
+            ConsumedPartitionGroup consumedPartitionGroup) {
+        return shuffleDescriptorCache.get(consumedPartitionGroup);
+    }
+
+    public void cacheShuffleDescriptors(
+            ConsumedPartitionGroup consumedPartitionGroup,
+            MaybeOffloaded<ShuffleDescriptor[]> shuffleDescriptors) {
+        shuffleDescriptorCache.put(checkNotNull(consumedPartitionGroup), shuffleDescriptors);
+    }
+
+    void clearCachedShuffleDescriptors() {
+        shuffleDescriptorCache.clear();
+    }
+
     @VisibleForTesting
     void resetForNewExecution() {
         for (IntermediateResultPartition partition : partitions) {
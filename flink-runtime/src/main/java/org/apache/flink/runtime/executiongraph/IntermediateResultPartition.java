@@ -34,7 +34,8 @@ public class IntermediateResultPartition {
 
     private final IntermediateResultPartitionID partitionId;
 
-    private List<List<ExecutionEdge>> consumers;
+    /** The groups of consumer vertices, one per consuming job vertex. */
+    private final List<ConsumerVertexGroup> consumerVertexGroups;
 
     /** Whether this partition has produced some data. */
     private boolean hasDataProduced = false;
@@ -44,7 +45,7 @@ public class IntermediateResultPartition {
         this.totalResult = totalResult;
         this.producer = producer;
         this.partitionNumber = partitionNumber;
-        this.consumers = new ArrayList<List<ExecutionEdge>>(0);
+        this.consumerVertexGroups = new ArrayList<>(1);
         this.partitionId = new IntermediateResultPartitionID(totalResult.getId(), partitionNumber);
     }
 
@@ -68,8 +69,8 @@ public class IntermediateResultPartition {
         return totalResult.getResultType();
     }
 
-    public List<List<ExecutionEdge>> getConsumers() {
-        return consumers;
+    public List<ConsumerVertexGroup> getConsumerVertexGroups() {
+        return consumerVertexGroups;
     }
 
     public void markDataProduced() {
@@ -91,23 +92,17 @@ public class IntermediateResultPartition {
             totalResult.incrementNumberOfRunningProducersAndGetRemaining();
         }
         hasDataProduced = false;
+        totalResult.clearCachedShuffleDescriptors();
     }
 
-    int addConsumerGroup() {
-        int pos = consumers.size();
-
+    void addConsumers(ConsumerVertexGroup consumers) {
         // NOTE: currently we support only one consumer per result!!!
-        if (pos != 0) {
+        if (!consumerVertexGroups.isEmpty()) {
             throw new RuntimeException(
                     "Currently, each intermediate result can only have one consumer.");
         }
 
-        consumers.add(new ArrayList<ExecutionEdge>());
-        return pos;
-    }
-
-    void addConsumer(ExecutionEdge edge, int consumerNumber) {
-        consumers.get(consumerNumber).add(edge);
+        consumerVertexGroups.add(consumers);
     }
 
     boolean markFinished() {
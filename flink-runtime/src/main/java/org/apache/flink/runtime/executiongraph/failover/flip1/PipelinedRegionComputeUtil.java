@@ -54,44 +54,81 @@ public final class PipelinedRegionComputeUtil {
 
         final Map<V, Set<V>> vertexToRegion = new IdentityHashMap<>();
 
+        // groups of consumed results which were already visited, mapped to one of the producers
+        // of the group which must be in the same region as the consumer, or null if none must be
+        final Map<Iterable<? extends R>, V> visitedConsumedGroups = new IdentityHashMap<>();
+
         // iterate all the vertices which are topologically sorted
         for (V vertex : topologicallySortedVertexes) {
             Set<V> currentRegion = new HashSet<>();
             currentRegion.add(vertex);
             vertexToRegion.put(vertex, currentRegion);
 
-            for (R consumedResult : vertex.getConsumedResults()) {
-                // Similar to the BLOCKING ResultPartitionType, each vertex connected through
-                // PIPELINED_APPROXIMATE
-                // is also considered as a single region. This attribute is called "reconnectable".
-                // reconnectable will be removed after FLINK-19895, see also {@link
-                // ResultPartitionType#isReconnectable}
-                if (!consumedResult.getResultType().isReconnectable()) {
-                    final V producerVertex = consumedResult.getProducer();
-                    final Set<V> producerRegion = vertexToRegion.get(producerVertex);
-
-                    if (producerRegion == null) {
-                        throw new IllegalStateException(
-                                "Producer task "
-                                        + producerVertex.getId()
-                                        + " failover region is null while calculating failover region for the consumer task "
-                                        + vertex.getId()
-                                        + ". This should be a failover region building bug.");
+            for (Iterable<? extends R> consumedGroup : vertex.getGroupedConsumedResults()) {
+                if (visitedConsumedGroups.containsKey(consumedGroup)) {
+                    // the producers of a visited group have already been merged into one region,
+                    // which saves iterating the group for every consumer of an All-to-All edge
+                    final V producerVertex = visitedConsumedGroups.get(consumedGroup);
+                    if (producerVertex != null) {
+                        currentRegion =
+                                mergeWithProducerRegion(
+                                        vertex, producerVertex, currentRegion, vertexToRegion);
                     }
+                    continue;
+                }
 
-                    // check if it is the same as the producer region, if so skip the merge
-                    // this check can significantly reduce compute complexity in All-to-All
-                    // PIPELINED edge case
-                    if (currentRegion != producerRegion) {
-                        currentRegion = mergeRegions(currentRegion, producerRegion, vertexToRegion);
+                V groupProducerVertex = null;
+                for (R consumedResult : consumedGroup) {
+                    // Similar to the BLOCKING ResultPartitionType, each vertex connected through
+                    // PIPELINED_APPROXIMATE
+                    // is also considered as a single region. This attribute is called
+                    // "reconnectable".
+                    // reconnectable will be removed after FLINK-19895, see also {@link
+                    // ResultPartitionType#isReconnectable}
+                    if (!consumedResult.getResultType().isReconnectable()) {
+                        final V producerVertex = consumedResult.getProducer();
+                        currentRegion =
+                                mergeWithProducerRegion(
+                                        vertex, producerVertex, currentRegion, vertexToRegion);
+
+                        if (groupProducerVertex == null) {
+                            groupProducerVertex = producerVertex;
+                        }
                     }
                 }
+                visitedConsumedGroups.put(consumedGroup, groupProducerVertex);
             }
         }
 
         return vertexToRegion;
     }
 
+    private static <V extends Vertex<?, ?, V, ?>> Set<V> mergeWithProducerRegion(
+            final V vertex,
+            final V producerVertex,
+            final Set<V> currentRegion,
+            final Map<V, Set<V>> vertexToRegion) {
+
+        final Set<V> producerRegion = vertexToRegion.get(producerVertex);
+
+        if (producerRegion == null) {
+            throw new IllegalStateException(
+                    "Producer task "
+                            + producerVertex.getId()
+                            + " failover region is null while calculating failover region for the consumer task "
+                            + vertex.getId()
+                            + ". This should be a failover region building bug.");
+        }
+
+        // check if it is the same as the producer region, if so skip the merge
+        // this check can significantly reduce compute complexity in All-to-All
+        // PIPELINED edge case
+        if (currentRegion != producerRegion) {
+            return mergeRegions(currentRegion, producerRegion, vertexToRegion);
+        }
+        return currentRegion;
+    }
+
     private static <V extends Vertex<?, ?, V, ?>> Set<V> mergeRegions(
             final Set<V> region1, final Set<V> region2, final Map<V, Set<V>> vertexToRegion) {
 
@@ -157,15 +194,24 @@ public final class PipelinedRegionComputeUtil {
         for (int i = 0; i < regionList.size(); i++) {
             final List<Integer> currentRegionOutEdges = new ArrayList<>();
             final Set<V> currentRegion = regionList.get(i);
+            // consumer groups shared by several results of the region are visited only once
+            final Set<Iterable<? extends V>> visitedConsumerGroups =
+                    Collections.newSetFromMap(new IdentityHashMap<>());
             for (V vertex : currentRegion) {
                 for (R producedResult : vertex.getProducedResults()) {
                     if (producedResult.getResultType().isPipelined()) {
                         continue;
                     }
-                    for (V consumerVertex : producedResult.getConsumers()) {
-                        if (!currentRegion.contains(consumerVertex)) {
-                            currentRegionOutEdges.add(
-                                    regionIndices.get(vertexToRegion.get(consumerVertex)));
+                    for (Iterable<? extends V> consumerGroup :
+                            producedResult.getGroupedConsumers()) {
+                        if (!visitedConsumerGroups.add(consumerGroup)) {
+                            continue;
+                        }
+                        for (V consumerVertex : consumerGroup) {
+                            if (!currentRegion.contains(consumerVertex)) {
+                                currentRegionOutEdges.add(
+                                        regionIndices.get(vertexToRegion.get(consumerVertex)));
+                            }
                         }
                     }
                 }
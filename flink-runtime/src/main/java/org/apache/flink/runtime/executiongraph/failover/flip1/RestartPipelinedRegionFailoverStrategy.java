@@ -163,6 +163,8 @@ public class RestartPipelinedRegionFailoverStrategy implements FailoverStrategy
                 Collections.newSetFromMap(new IdentityHashMap<>());
         Set<SchedulingPipelinedRegion> visitedRegions =
                 Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Iterable<? extends SchedulingExecutionVertex>> visitedConsumerGroups =
+                Collections.newSetFromMap(new IdentityHashMap<>());
 
         // start from the failed region to visit all involved regions
         Queue<SchedulingPipelinedRegion> regionsToVisit = new ArrayDeque<>();
@@ -193,13 +195,19 @@ public class RestartPipelinedRegionFailoverStrategy implements FailoverStrategy
             // all consumer regions of an involved region should be involved
             for (SchedulingExecutionVertex vertex : regionToRestart.getVertices()) {
                 for (SchedulingResultPartition producedPartition : vertex.getProducedResults()) {
-                    for (SchedulingExecutionVertex consumerVertex :
-                            producedPartition.getConsumers()) {
-                        SchedulingPipelinedRegion consumerRegion =
-                                topology.getPipelinedRegionOfVertex(consumerVertex.getId());
-                        if (!visitedRegions.contains(consumerRegion)) {
-                            visitedRegions.add(consumerRegion);
-                            regionsToVisit.add(consumerRegion);
+                    for (Iterable<? extends SchedulingExecutionVertex> consumerGroup :
+                            producedPartition.getGroupedConsumers()) {
+                        // a group shared by several partitions is visited only once
+                        if (!visitedConsumerGroups.add(consumerGroup)) {
+                            continue;
+                        }
+                        for (SchedulingExecutionVertex consumerVertex : consumerGroup) {
+                            SchedulingPipelinedRegion consumerRegion =
+                                    topology.getPipelinedRegionOfVertex(consumerVertex.getId());
+                            if (!visitedRegions.contains(consumerRegion)) {
+                                visitedRegions.add(consumerRegion);
+                                regionsToVisit.add(consumerRegion);
+                            }
                         }
                     }
                 }
@@ -29,6 +29,7 @@ import org.apache.flink.util.IterableUtils;
 
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -99,17 +100,38 @@ public class RegionPartitionReleaseStrategy implements PartitionReleaseStrategy
 
     private List<IntermediateResultPartitionID> filterReleasablePartitions(
             final Iterable<? extends SchedulingResultPartition> schedulingResultPartitions) {
+        // consumer groups are shared by many partitions, e.g. all partitions of an all-to-all
+        // result, so the consumers of each group are only checked once
+        final Map<Iterable<? extends SchedulingExecutionVertex>, Boolean> finishedConsumerGroups =
+                new IdentityHashMap<>();
         return IterableUtils.toStream(schedulingResultPartitions)
                 .map(SchedulingResultPartition::getId)
-                .filter(this::areConsumerRegionsFinished)
+                .filter(
+                        resultPartitionId ->
+                                areConsumerRegionsFinished(
+                                        resultPartitionId, finishedConsumerGroups))
                 .collect(Collectors.toList());
     }
 
     private boolean areConsumerRegionsFinished(
-            final IntermediateResultPartitionID resultPartitionId) {
+            final IntermediateResultPartitionID resultPartitionId,
+            final Map<Iterable<? extends SchedulingExecutionVertex>, Boolean>
+                    finishedConsumerGroups) {
         final SchedulingResultPartition resultPartition =
                 schedulingTopology.getResultPartition(resultPartitionId);
-        return IterableUtils.toStream(resultPartition.getConsumers())
+        for (Iterable<? extends SchedulingExecutionVertex> consumerGroup :
+                resultPartition.getGroupedConsumers()) {
+            if (!finishedConsumerGroups.computeIfAbsent(
+                    consumerGroup, this::areRegionsOfVerticesFinished)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean areRegionsOfVerticesFinished(
+            final Iterable<? extends SchedulingExecutionVertex> executionVertices) {
+        return IterableUtils.toStream(executionVertices)
                 .map(SchedulingExecutionVertex::getId)
                 .allMatch(this::isRegionOfVertexFinished);
     }
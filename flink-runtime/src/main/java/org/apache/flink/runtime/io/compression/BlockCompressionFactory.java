@@ -34,7 +34,8 @@ public interface BlockCompressionFactory {
 
     /** Name of {@link BlockCompressionFactory}. */
     enum CompressionFactoryName {
-        LZ4
+        LZ4,
+        DEFLATE
     }
 
     /**
@@ -60,6 +61,9 @@ public interface BlockCompressionFactory {
                 case LZ4:
                     blockCompressionFactory = new Lz4BlockCompressionFactory();
                     break;
+                case DEFLATE:
+                    blockCompressionFactory = new DeflateBlockCompressionFactory();
+                    break;
                 default:
                     throw new IllegalStateException("Unknown CompressionMethod " + compressionName);
             }
@@ -57,4 +57,10 @@ public interface BlockCompressor {
      */
     int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff)
             throws InsufficientBufferException;
+
+    /**
+     * Releases the native resources of the compressor, if it has any. The compressor must not be
+     * used afterwards.
+     */
+    default void close() {}
 }
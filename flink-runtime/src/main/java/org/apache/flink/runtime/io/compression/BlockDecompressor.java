@@ -53,4 +53,10 @@ public interface BlockDecompressor {
      */
     int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff)
             throws DataCorruptionException, InsufficientBufferException;
+
+    /**
+     * Releases the native resources of the decompressor, if it has any. The decompressor must not
+     * be used afterwards.
+     */
+    default void close() {}
 }
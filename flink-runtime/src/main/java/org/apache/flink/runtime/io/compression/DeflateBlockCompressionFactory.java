@@ -16,36 +16,28 @@
  * limitations under the License.
  */
 
-package org.apache.flink.runtime.executiongraph;
+package org.apache.flink.runtime.io.compression;
 
-public class ExecutionEdge {
-
-    private final IntermediateResultPartition source;
-
-    private final ExecutionVertex target;
-
-    private final int inputNum;
-
-    public ExecutionEdge(IntermediateResultPartition source, ExecutionVertex target, int inputNum) {
-        this.source = source;
-        this.target = target;
-        this.inputNum = inputNum;
-    }
+/**
+ * Implementation of {@link BlockCompressionFactory} for the Deflate codec of the JDK. It compresses
+ * better than the {@link Lz4BlockCompressionFactory LZ4 codec}, but needs considerably more CPU
+ * time.
+ */
+public class DeflateBlockCompressionFactory implements BlockCompressionFactory {
 
-    public IntermediateResultPartition getSource() {
-        return source;
-    }
+    /**
+     * We put two integers before each compressed block, the first integer represents the compressed
+     * length of the block, and the second one represents the original length of the block.
+     */
+    public static final int HEADER_LENGTH = 8;
 
-    public ExecutionVertex getTarget() {
-        return target;
-    }
-
-    public int getInputNum() {
-        return inputNum;
+    @Override
+    public BlockCompressor getCompressor() {
+        return new DeflateBlockCompressor();
     }
 
     @Override
-    public String toString() {
-        return "ExecutionEdge [" + source + " <=> " + target + "]";
+    public BlockDecompressor getDecompressor() {
+        return new DeflateBlockDecompressor();
     }
 }
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.compression;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.Deflater;
+
+import static org.apache.flink.runtime.io.compression.DeflateBlockCompressionFactory.HEADER_LENGTH;
+
+/**
+ * Encode data into the zlib format of {@link Deflater}, preceded by the same header as written by
+ * {@link Lz4BlockCompressor}.
+ *
+ * <p>{@link Deflater} only works on byte arrays, therefore the data of {@link ByteBuffer}s that are
+ * not backed by an array is copied through reused intermediate arrays.
+ */
+public class DeflateBlockCompressor implements BlockCompressor {
+
+    private final Deflater deflater;
+
+    private byte[] srcArray = new byte[0];
+
+    private byte[] dstArray = new byte[0];
+
+    public DeflateBlockCompressor() {
+        this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    @Override
+    public int getMaxCompressedSize(int srcSize) {
+        // the bound of zlib's deflateBound() plus the zlib wrapper
+        return HEADER_LENGTH
+                + srcSize
+                + (srcSize >> 12)
+                + (srcSize >> 14)
+                + (srcSize >> 25)
+                + 13
+                + 6;
+    }
+
+    @Override
+    public int compress(ByteBuffer src, int srcOff, int srcLen, ByteBuffer dst, int dstOff)
+            throws InsufficientBufferException {
+        final int prevSrcOff = src.position() + srcOff;
+        final int prevDstOff = dst.position() + dstOff;
+        final int dstLen = dst.capacity() - prevDstOff - HEADER_LENGTH;
+        if (dstLen <= 0) {
+            throw new InsufficientBufferException("Buffer length too small");
+        }
+
+        final int compressedLength;
+        if (src.hasArray() && dst.hasArray()) {
+            compressedLength =
+                    deflate(
+                            src.array(),
+                            src.arrayOffset() + prevSrcOff,
+                            srcLen,
+                            dst.array(),
+                            dst.arrayOffset() + prevDstOff + HEADER_LENGTH,
+                            dstLen);
+        } else {
+            if (srcArray.length < srcLen) {
+                srcArray = new byte[srcLen];
+            }
+            if (dstArray.length < dstLen) {
+                dstArray = new byte[dstLen];
+            }
+            ByteBuffer srcView = src.duplicate();
+            srcView.position(prevSrcOff);
+            srcView.get(srcArray, 0, srcLen);
+
+            compressedLength = deflate(srcArray, 0, srcLen, dstArray, 0, dstLen);
+
+            ByteBuffer dstView = dst.duplicate();
+            dstView.position(prevDstOff + HEADER_LENGTH);
+            dstView.put(dstArray, 0, compressedLength);
+        }
+
+        src.position(prevSrcOff + srcLen);
+
+        dst.position(prevDstOff);
+        dst.order(ByteOrder.LITTLE_ENDIAN);
+        dst.putInt(compressedLength);
+        dst.putInt(srcLen);
+        dst.position(prevDstOff + compressedLength + HEADER_LENGTH);
+
+        return HEADER_LENGTH + compressedLength;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff)
+            throws InsufficientBufferException {
+        final int dstLen = dst.length - dstOff - HEADER_LENGTH;
+        if (dstLen <= 0) {
+            throw new InsufficientBufferException("Buffer length too small");
+        }
+
+        int compressedLength = deflate(src, srcOff, srcLen, dst, dstOff + HEADER_LENGTH, dstLen);
+        writeIntLE(compressedLength, dst, dstOff);
+        writeIntLE(srcLen, dst, dstOff + 4);
+        return HEADER_LENGTH + compressedLength;
+    }
+
+    private int deflate(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen)
+            throws InsufficientBufferException {
+        deflater.reset();
+        deflater.setInput(src, srcOff, srcLen);
+        deflater.finish();
+        int compressedLength = deflater.deflate(dst, dstOff, dstLen);
+        if (!deflater.finished()) {
+            throw new InsufficientBufferException("Buffer length too small");
+        }
+        return compressedLength;
+    }
+
+    @Override
+    public void close() {
+        deflater.end();
+    }
+
+    private static void writeIntLE(int i, byte[] buf, int offset) {
+        buf[offset++] = (byte) i;
+        buf[offset++] = (byte) (i >>> 8);
+        buf[offset++] = (byte) (i >>> 16);
+        buf[offset] = (byte) (i >>> 24);
+    }
+}
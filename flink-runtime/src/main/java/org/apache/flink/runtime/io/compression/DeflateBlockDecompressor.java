@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.compression;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import static org.apache.flink.runtime.io.compression.DeflateBlockCompressionFactory.HEADER_LENGTH;
+
+/**
+ * Decode data written with {@link DeflateBlockCompressor}.
+ *
+ * <p>{@link Inflater} only works on byte arrays, therefore the data of {@link ByteBuffer}s that are
+ * not backed by an array is copied through reused intermediate arrays.
+ */
+public class DeflateBlockDecompressor implements BlockDecompressor {
+
+    private final Inflater inflater;
+
+    private byte[] srcArray = new byte[0];
+
+    private byte[] dstArray = new byte[0];
+
+    public DeflateBlockDecompressor() {
+        this.inflater = new Inflater();
+    }
+
+    @Override
+    public int decompress(ByteBuffer src, int srcOff, int srcLen, ByteBuffer dst, int dstOff)
+            throws DataCorruptionException {
+        final int prevSrcOff = src.position() + srcOff;
+        final int prevDstOff = dst.position() + dstOff;
+
+        src.order(ByteOrder.LITTLE_ENDIAN);
+        final int compressedLen = src.getInt(prevSrcOff);
+        final int originalLen = src.getInt(prevSrcOff + 4);
+        validateLength(compressedLen, originalLen);
+
+        if (dst.capacity() - prevDstOff < originalLen) {
+            throw new InsufficientBufferException("Buffer length too small");
+        }
+
+        if (src.limit() - prevSrcOff - HEADER_LENGTH < compressedLen) {
+            throw new DataCorruptionException("Source data is not integral for decompression.");
+        }
+
+        if (src.hasArray() && dst.hasArray()) {
+            inflate(
+                    src.array(),
+                    src.arrayOffset() + prevSrcOff + HEADER_LENGTH,
+                    compressedLen,
+                    dst.array(),
+                    dst.arrayOffset() + prevDstOff,
+                    originalLen);
+        } else {
+            if (srcArray.length < compressedLen) {
+                srcArray = new byte[compressedLen];
+            }
+            if (dstArray.length < originalLen) {
+                dstArray = new byte[originalLen];
+            }
+            ByteBuffer srcView = src.duplicate();
+            srcView.position(prevSrcOff + HEADER_LENGTH);
+            srcView.get(srcArray, 0, compressedLen);
+
+            inflate(srcArray, 0, compressedLen, dstArray, 0, originalLen);
+
+            ByteBuffer dstView = dst.duplicate();
+            dstView.position(prevDstOff);
+            dstView.put(dstArray, 0, originalLen);
+        }
+
+        src.position(prevSrcOff + compressedLen + HEADER_LENGTH);
+        dst.position(prevDstOff + originalLen);
+        return originalLen;
+    }
+
+    @Override
+    public int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff)
+            throws InsufficientBufferException, DataCorruptionException {
+        final int compressedLen = readIntLE(src, srcOff);
+        final int originalLen = readIntLE(src, srcOff + 4);
+        validateLength(compressedLen, originalLen);
+
+        if (dst.length - dstOff < originalLen) {
+            throw new InsufficientBufferException("Buffer length too small");
+        }
+
+        if (src.length - srcOff - HEADER_LENGTH < compressedLen) {
+            throw new DataCorruptionException("Source data is not integral for decompression.");
+        }
+
+        inflate(src, srcOff + HEADER_LENGTH, compressedLen, dst, dstOff, originalLen);
+        return originalLen;
+    }
+
+    private void inflate(
+            byte[] src, int srcOff, int compressedLen, byte[] dst, int dstOff, int originalLen)
+            throws DataCorruptionException {
+        inflater.reset();
+        inflater.setInput(src, srcOff, compressedLen);
+        try {
+            int decompressedLen = inflater.inflate(dst, dstOff, originalLen);
+            if (decompressedLen != originalLen || !inflater.finished()) {
+                throw new DataCorruptionException(
+                        "Input is corrupted, unexpected decompressed length.");
+            }
+        } catch (DataFormatException e) {
+            throw new DataCorruptionException("Input is corrupted", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        inflater.end();
+    }
+
+    private void validateLength(int compressedLen, int originalLen) throws DataCorruptionException {
+        if (originalLen < 0
+                || compressedLen < 0
+                || (originalLen == 0 && compressedLen != 0)
+                || (originalLen != 0 && compressedLen == 0)) {
+            throw new DataCorruptionException("Input is corrupted, invalid length.");
+        }
+    }
+
+    private static int readIntLE(byte[] buf, int offset) {
+        return (buf[offset] & 0xFF)
+                | ((buf[offset + 1] & 0xFF) << 8)
+                | ((buf[offset + 2] & 0xFF) << 16)
+                | ((buf[offset + 3] & 0xFF) << 24);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.disk;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.TaskManagerOptions;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A fixed-size pool of direct memory shared by all sort-merge blocking result partitions of a
+ * TaskExecutor to read shuffle data. Buffers are handed out in batches of {@link
+ * #getNumBuffersPerRequest()}, so that every read request of a partition reads a large chunk of
+ * data sequentially. The memory is allocated lazily on the first request, so a TaskExecutor not
+ * running any blocking shuffle does not occupy it.
+ */
+public class BatchShuffleReadBufferPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchShuffleReadBufferPool.class);
+
+    /** Memory size in bytes read by one request at most. */
+    public static final int NUM_BYTES_PER_REQUEST = 8 * 1024 * 1024;
+
+    /** Time to wait for released buffers before a request gives up. */
+    private static final long WAITING_TIME_MILLIS = 2000;
+
+    /** Total direct memory size in bytes this pool can allocate. */
+    private final long totalBytes;
+
+    /** Number of buffers this pool can allocate. */
+    private final int numTotalBuffers;
+
+    /** Size of a single buffer. */
+    private final int bufferSize;
+
+    /** Number of buffers handed out by one request. */
+    private final int numBuffersPerRequest;
+
+    /** The available buffers of this pool. */
+    @GuardedBy("buffers")
+    private final Queue<MemorySegment> buffers = new ArrayDeque<>();
+
+    @GuardedBy("buffers")
+    private boolean initialized;
+
+    @GuardedBy("buffers")
+    private boolean destroyed;
+
+    public BatchShuffleReadBufferPool(long totalBytes, int bufferSize) {
+        checkArgument(totalBytes > 0, "Total memory size must be positive.");
+        checkArgument(bufferSize > 0, "Size of buffer must be positive.");
+        checkArgument(
+                totalBytes >= bufferSize,
+                "Illegal configuration, config value for '%s' must be no smaller than '%s'.",
+                TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY.key(),
+                TaskManagerOptions.MEMORY_SEGMENT_SIZE.key());
+
+        this.totalBytes = totalBytes;
+        this.bufferSize = bufferSize;
+        this.numTotalBuffers = (int) Math.min(totalBytes / bufferSize, Integer.MAX_VALUE);
+        this.numBuffersPerRequest =
+                Math.min(numTotalBuffers, Math.max(1, NUM_BYTES_PER_REQUEST / bufferSize));
+    }
+
+    public int getNumTotalBuffers() {
+        return numTotalBuffers;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getNumBuffersPerRequest() {
+        return numBuffersPerRequest;
+    }
+
+    @VisibleForTesting
+    public int getAvailableBuffers() {
+        synchronized (buffers) {
+            return buffers.size();
+        }
+    }
+
+    @VisibleForTesting
+    public boolean isDestroyed() {
+        synchronized (buffers) {
+            return destroyed;
+        }
+    }
+
+    @GuardedBy("buffers")
+    private void initialize() {
+        LOG.info(
+                "Initializing batch shuffle read buffer pool: totalBytes={}, bufferSize={}.",
+                totalBytes,
+                bufferSize);
+
+        try {
+            for (int i = 0; i < numTotalBuffers; ++i) {
+                buffers.add(MemorySegmentFactory.allocateUnpooledOffHeapMemory(bufferSize, null));
+            }
+        } catch (OutOfMemoryError outOfMemoryError) {
+            int allocated = buffers.size();
+            buffers.forEach(MemorySegment::free);
+            buffers.clear();
+            throw new OutOfMemoryError(
+                    String.format(
+                            "Can't allocate enough direct memory for the batch shuffle read buffer"
+                                    + " pool (bytes allocated: %d, bytes still needed: %d). Please make"
+                                    + " sure that '%s' does not exceed '%s'.",
+                            (long) allocated * bufferSize,
+                            totalBytes - (long) allocated * bufferSize,
+                            TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY.key(),
+                            TaskManagerOptions.FRAMEWORK_OFF_HEAP_MEMORY.key()));
+        }
+        initialized = true;
+    }
+
+    /**
+     * Requests a batch of {@link #getNumBuffersPerRequest()} buffers. If not enough buffers are
+     * available, waits a while for buffers being recycled and returns an empty list if there are
+     * still not enough buffers.
+     */
+    public List<MemorySegment> requestBuffers() throws Exception {
+        List<MemorySegment> allocated = new ArrayList<>(numBuffersPerRequest);
+        synchronized (buffers) {
+            checkState(!destroyed, "Buffer pool is already destroyed.");
+
+            if (!initialized) {
+                initialize();
+            }
+
+            long deadline = System.currentTimeMillis() + WAITING_TIME_MILLIS;
+            long remaining = WAITING_TIME_MILLIS;
+            while (buffers.size() < numBuffersPerRequest && remaining > 0) {
+                buffers.wait(remaining);
+                checkState(!destroyed, "Buffer pool is already destroyed.");
+                remaining = deadline - System.currentTimeMillis();
+            }
+
+            if (buffers.size() < numBuffersPerRequest) {
+                return allocated;
+            }
+
+            while (allocated.size() < numBuffersPerRequest) {
+                allocated.add(buffers.poll());
+            }
+        }
+        return allocated;
+    }
+
+    /** Recycles the given buffer to this pool, or frees it if the pool is destroyed. */
+    public void recycle(MemorySegment segment) {
+        synchronized (buffers) {
+            if (destroyed) {
+                segment.free();
+                return;
+            }
+
+            buffers.add(segment);
+            if (buffers.size() >= numBuffersPerRequest) {
+                buffers.notifyAll();
+            }
+        }
+    }
+
+    /** Recycles the given buffers to this pool, or frees them if the pool is destroyed. */
+    public void recycle(Collection<MemorySegment> segments) {
+        synchronized (buffers) {
+            if (destroyed) {
+                segments.forEach(MemorySegment::free);
+                return;
+            }
+
+            buffers.addAll(segments);
+            if (buffers.size() >= numBuffersPerRequest) {
+                buffers.notifyAll();
+            }
+        }
+    }
+
+    /** Frees all available buffers. Buffers still in use are freed when they are recycled. */
+    public void destroy() {
+        synchronized (buffers) {
+            destroyed = true;
+
+            buffers.forEach(MemorySegment::free);
+            buffers.clear();
+            buffers.notifyAll();
+        }
+    }
+}
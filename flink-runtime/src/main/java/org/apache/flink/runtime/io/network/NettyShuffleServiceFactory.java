@@ -22,6 +22,7 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -37,8 +38,11 @@ import org.apache.flink.runtime.shuffle.NettyShuffleMaster;
 import org.apache.flink.runtime.shuffle.ShuffleEnvironmentContext;
 import org.apache.flink.runtime.shuffle.ShuffleServiceFactory;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.apache.flink.runtime.io.network.metrics.NettyShuffleMetricFactory.registerShuffleMetrics;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -121,20 +125,33 @@ public class NettyShuffleServiceFactory
 
         registerShuffleMetrics(metricGroup, networkBufferPool);
 
+        BatchShuffleReadBufferPool batchShuffleReadBufferPool =
+                new BatchShuffleReadBufferPool(
+                        config.batchShuffleReadMemoryBytes(), config.networkBufferSize());
+        // one reading thread per temp directory, which usually is one per disk
+        ExecutorService batchShuffleReadIOExecutor =
+                Executors.newFixedThreadPool(
+                        Math.max(1, config.getTempDirs().length),
+                        new ExecutorThreadFactory("blocking-shuffle-io"));
+
         ResultPartitionFactory resultPartitionFactory =
                 new ResultPartitionFactory(
                         resultPartitionManager,
                         fileChannelManager,
                         networkBufferPool,
+                        batchShuffleReadBufferPool,
+                        batchShuffleReadIOExecutor,
                         config.getBlockingSubpartitionType(),
                         config.networkBuffersPerChannel(),
                         config.floatingNetworkBuffersPerGate(),
                         config.networkBufferSize(),
                         config.isBlockingShuffleCompressionEnabled(),
                         config.getCompressionCodec(),
+                        config.isBlockingShuffleCompressionAdaptive(),
                         config.getMaxBuffersPerChannel(),
                         config.sortShuffleMinBuffers(),
                         config.sortShuffleMinParallelism(),
+                        config.sortShuffleMinRegionsToMerge(),
                         config.isSSLEnabled());
 
         SingleInputGateFactory singleInputGateFactory =
@@ -155,6 +172,8 @@ public class NettyShuffleServiceFactory
                 fileChannelManager,
                 resultPartitionFactory,
                 singleInputGateFactory,
-                ioExecutor);
+                ioExecutor,
+                batchShuffleReadBufferPool,
+                batchShuffleReadIOExecutor);
     }
 }
@@ -54,4 +54,12 @@ public interface NetworkClientHandler extends ChannelHandler {
      * @param inputChannel The input channel to resume data consumption.
      */
     void resumeConsumption(RemoteInputChannel inputChannel);
+
+    /**
+     * Announces the buffer size the given input channel wants to receive to the producer.
+     *
+     * @param inputChannel The input channel announcing the new buffer size.
+     * @param bufferSize The new buffer size in bytes.
+     */
+    void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize);
 }
@@ -52,6 +52,13 @@ public interface NetworkSequenceViewReader {
     /** Resumes data consumption after an exactly once checkpoint. */
     void resumeConsumption();
 
+    /**
+     * Notifies the subpartition of the buffer size the consumer wants to receive.
+     *
+     * @param newBufferSize The new buffer size in bytes.
+     */
+    void notifyNewBufferSize(int newBufferSize);
+
     /**
      * Checks whether this reader is available or not.
      *
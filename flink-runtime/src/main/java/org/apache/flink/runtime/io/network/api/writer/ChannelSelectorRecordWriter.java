@@ -23,6 +23,7 @@ import org.apache.flink.core.io.IOReadableWritable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
@@ -38,15 +39,30 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable>
 
     private final ChannelSelector<T> channelSelector;
 
+    /**
+     * The minimum serialized size of records which are broadcast in buffers shared by all channels.
+     */
+    private final int minSharedBroadcastRecordSize;
+
     ChannelSelectorRecordWriter(
             ResultPartitionWriter writer,
             ChannelSelector<T> channelSelector,
             long timeout,
-            String taskName) {
+            String taskName,
+            int minSharedBroadcastRecordSize) {
         super(writer, timeout, taskName);
 
+        checkArgument(
+                minSharedBroadcastRecordSize > 0,
+                "The minimum size of shared broadcast records must be positive.");
         this.channelSelector = checkNotNull(channelSelector);
+        this.minSharedBroadcastRecordSize = minSharedBroadcastRecordSize;
         this.channelSelector.setup(numberOfChannels);
+
+        if (channelSelector instanceof LoadAwareChannelSelector) {
+            ((LoadAwareChannelSelector<T>) channelSelector)
+                    .setChannelLoad(writer::getNumberOfQueuedBuffers);
+        }
     }
 
     @Override
@@ -58,13 +74,21 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable>
     public void broadcastEmit(T record) throws IOException {
         checkErroneous();
 
-        // Emitting to all channels in a for loop can be better than calling
-        // ResultPartitionWriter#broadcastRecord because the broadcastRecord
-        // method incurs extra overhead.
         ByteBuffer serializedRecord = serializeRecord(serializer, record);
-        for (int channelIndex = 0; channelIndex < numberOfChannels; channelIndex++) {
-            serializedRecord.rewind();
-            emit(record, channelIndex);
+        if (numberOfChannels > 1
+                && serializedRecord.remaining() >= minSharedBroadcastRecordSize) {
+            // Large records are copied only once into buffers shared by all channels. This
+            // finishes the partially filled buffers of all channels, which is cheaper than
+            // copying at least a full buffer into every channel.
+            targetPartition.broadcastRecord(serializedRecord);
+        } else {
+            // Emitting to all channels in a for loop can be better than calling
+            // ResultPartitionWriter#broadcastRecord because the broadcastRecord
+            // method incurs extra overhead. The record is serialized only once.
+            for (int channelIndex = 0; channelIndex < numberOfChannels; channelIndex++) {
+                serializedRecord.rewind();
+                targetPartition.emitRecord(serializedRecord, channelIndex);
+            }
         }
 
         if (flushAlways) {
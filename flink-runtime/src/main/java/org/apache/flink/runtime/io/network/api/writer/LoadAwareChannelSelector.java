@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.api.writer;
+
+import org.apache.flink.core.io.IOReadableWritable;
+
+/**
+ * A {@link ChannelSelector} that takes the load of the output channels into account when selecting
+ * a channel. The {@link ChannelSelectorRecordWriter} provides the load of its channels right after
+ * {@link #setup(int)}.
+ *
+ * @param <T> the type of record which is sent through the attached output gate
+ */
+public interface LoadAwareChannelSelector<T extends IOReadableWritable>
+        extends ChannelSelector<T> {
+
+    /**
+     * Sets the provider of the load of the output channels.
+     *
+     * @param channelLoad the load of the output channels.
+     */
+    void setChannelLoad(ChannelLoad channelLoad);
+
+    /** The load of the output channels of a {@link RecordWriter}. */
+    @FunctionalInterface
+    interface ChannelLoad {
+
+        /**
+         * Returns the number of buffers queued in the given output channel and not consumed yet.
+         * The value is read without synchronization and may be slightly outdated.
+         *
+         * @param channelIndex the index of the output channel.
+         * @return the number of queued buffers of the output channel.
+         */
+        int getNumberOfQueuedBuffers(int channelIndex);
+    }
+}
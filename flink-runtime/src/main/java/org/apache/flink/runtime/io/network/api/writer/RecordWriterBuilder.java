@@ -18,7 +18,9 @@
 
 package org.apache.flink.runtime.io.network.api.writer;
 
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.core.io.IOReadableWritable;
+import org.apache.flink.util.MathUtils;
 
 /** Utility class to encapsulate the logic of building a {@link RecordWriter} instance. */
 public class RecordWriterBuilder<T extends IOReadableWritable> {
@@ -29,6 +31,12 @@ public class RecordWriterBuilder<T extends IOReadableWritable> {
 
     private String taskName = "test";
 
+    private int minSharedBroadcastRecordSize =
+            MathUtils.checkedDownCast(
+                    NettyShuffleEnvironmentOptions.NETWORK_BROADCAST_MIN_SHARED_RECORD_SIZE
+                            .defaultValue()
+                            .getBytes());
+
     public RecordWriterBuilder<T> setChannelSelector(ChannelSelector<T> selector) {
         this.selector = selector;
         return this;
@@ -44,11 +52,18 @@ public class RecordWriterBuilder<T extends IOReadableWritable> {
         return this;
     }
 
+    public RecordWriterBuilder<T> setMinSharedBroadcastRecordSize(
+            int minSharedBroadcastRecordSize) {
+        this.minSharedBroadcastRecordSize = minSharedBroadcastRecordSize;
+        return this;
+    }
+
     public RecordWriter<T> build(ResultPartitionWriter writer) {
         if (selector.isBroadcast()) {
             return new BroadcastRecordWriter<>(writer, timeout, taskName);
         } else {
-            return new ChannelSelectorRecordWriter<>(writer, selector, timeout, taskName);
+            return new ChannelSelectorRecordWriter<>(
+                    writer, selector, timeout, taskName, minSharedBroadcastRecordSize);
         }
     }
 }
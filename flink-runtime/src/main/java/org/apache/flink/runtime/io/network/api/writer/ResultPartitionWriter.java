@@ -50,6 +50,12 @@ public interface ResultPartitionWriter extends AutoCloseable, AvailabilityProvid
 
     int getNumTargetKeyGroups();
 
+    /**
+     * Returns the number of buffers queued in the given subpartition and not consumed yet. This
+     * method is not thread-safe and the returned value is only an estimate.
+     */
+    int getNumberOfQueuedBuffers(int targetSubpartition);
+
     /** Writes the given serialized record to the target subpartition. */
     void emitRecord(ByteBuffer record, int targetSubpartition) throws IOException;
 
@@ -44,9 +44,13 @@ public class BufferBuilder {
 
     private boolean bufferConsumerCreated = false;
 
+    /** The number of bytes that can be written, at most the size of the memory segment. */
+    private int maxCapacity;
+
     public BufferBuilder(MemorySegment memorySegment, BufferRecycler recycler) {
         this.memorySegment = checkNotNull(memorySegment);
         this.recycler = checkNotNull(recycler);
+        this.maxCapacity = memorySegment.size();
     }
 
     /**
@@ -144,7 +148,17 @@ public class BufferBuilder {
     }
 
     public int getMaxCapacity() {
-        return memorySegment.size();
+        return maxCapacity;
+    }
+
+    /**
+     * Limits the number of bytes that can be written to this buffer. The capacity never drops below
+     * the bytes already written, nor grows beyond the size of the memory segment.
+     *
+     * @param newSize the desired max capacity of this buffer.
+     */
+    public void trim(int newSize) {
+        maxCapacity = Math.min(Math.max(newSize, positionMarker.getCached()), memorySegment.size());
     }
 
     @VisibleForTesting
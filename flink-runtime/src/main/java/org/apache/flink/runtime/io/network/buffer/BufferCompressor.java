@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.io.network.buffer;
 
+import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.compression.BlockCompressionFactory;
@@ -27,21 +28,65 @@ import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
-/** Compressor for {@link Buffer}. */
+/**
+ * Compressor for {@link Buffer}.
+ *
+ * <p>In adaptive mode, the compression ratio of every {@link #NUM_SAMPLED_BUFFERS} compressed
+ * buffers is sampled. If the data hardly shrinks, the next {@link #NUM_SKIPPED_BUFFERS} buffers are
+ * passed uncompressed before the ratio is sampled again, so that no CPU time is wasted on
+ * incompressible data.
+ *
+ * <p>The statistics of the compressor are updated by the writing thread only and may be read by
+ * other threads in a best-effort way.
+ */
 public class BufferCompressor {
 
+    /** Number of compressed buffers the compression ratio is sampled from in adaptive mode. */
+    static final int NUM_SAMPLED_BUFFERS = 16;
+
+    /** Number of buffers passed uncompressed after sampling data that hardly shrinks. */
+    static final int NUM_SKIPPED_BUFFERS = 1024;
+
+    /** The sampled data has to shrink by at least this fraction to continue compressing. */
+    private static final double MIN_SPACE_SAVING = 0.1;
+
     /** The backing block compressor for data compression. */
     private final BlockCompressor blockCompressor;
 
     /** The intermediate buffer for the compressed data. */
     private final NetworkBuffer internalBuffer;
 
+    /** Whether compression is paused for data that does not compress well. */
+    private final boolean adaptive;
+
+    private int numSampledBuffers;
+
+    private long numSampledBytes;
+
+    private long numSampledCompressedBytes;
+
+    /** Number of buffers still to be passed uncompressed in adaptive mode. */
+    private int numBuffersToSkip;
+
+    /** Number of bytes of all buffers passed to this compressor. */
+    private volatile long numBytesIn;
+
+    /** Number of bytes of all buffers returned by this compressor, compressed or not. */
+    private volatile long numBytesOut;
+
+    private volatile long compressionTimeNanos;
+
     public BufferCompressor(int bufferSize, String factoryName) {
+        this(bufferSize, factoryName, false);
+    }
+
+    public BufferCompressor(int bufferSize, String factoryName, boolean adaptive) {
         checkArgument(bufferSize > 0);
         checkNotNull(factoryName);
+        this.adaptive = adaptive;
         // the size of this intermediate heap buffer will be gotten from the
         // plugin configuration in the future, and currently, double size of
-        // the input buffer is enough for lz4-java compression library.
+        // the input buffer is enough for lz4-java and deflate compression.
         final byte[] heapBuffer = new byte[2 * bufferSize];
         this.internalBuffer =
                 new NetworkBuffer(
@@ -106,20 +151,84 @@ public class BufferCompressor {
                 internalBuffer.refCnt() == 1,
                 "Illegal reference count, buffer need to be released.");
 
+        int length = buffer.getSize();
+        if (numBuffersToSkip > 0) {
+            numBuffersToSkip--;
+            updateStatistics(length, length, 0L);
+            return 0;
+        }
+
+        long startTime = System.nanoTime();
+        int compressedLen;
         try {
-            int length = buffer.getSize();
             // compress the given buffer into the internal heap buffer
-            int compressedLen =
+            compressedLen =
                     blockCompressor.compress(
                             buffer.getNioBuffer(0, length),
                             0,
                             length,
                             internalBuffer.getNioBuffer(0, internalBuffer.capacity()),
                             0);
-            return compressedLen < length ? compressedLen : 0;
         } catch (Throwable throwable) {
             // return the original buffer if failed to compress
-            return 0;
+            compressedLen = length;
         }
+        compressedLen = Math.min(compressedLen, length);
+
+        updateStatistics(length, compressedLen, System.nanoTime() - startTime);
+        if (adaptive) {
+            sampleCompressionRatio(length, compressedLen);
+        }
+        return compressedLen < length ? compressedLen : 0;
+    }
+
+    private void updateStatistics(int length, int compressedLen, long timeNanos) {
+        // only the writing thread updates the statistics
+        numBytesIn += length;
+        numBytesOut += compressedLen;
+        compressionTimeNanos += timeNanos;
+    }
+
+    private void sampleCompressionRatio(int length, int compressedLen) {
+        numSampledBuffers++;
+        numSampledBytes += length;
+        numSampledCompressedBytes += compressedLen;
+        if (numSampledBuffers < NUM_SAMPLED_BUFFERS) {
+            return;
+        }
+
+        if (numSampledCompressedBytes > numSampledBytes * (1 - MIN_SPACE_SAVING)) {
+            numBuffersToSkip = NUM_SKIPPED_BUFFERS;
+        }
+        numSampledBuffers = 0;
+        numSampledBytes = 0L;
+        numSampledCompressedBytes = 0L;
+    }
+
+    /**
+     * Returns the ratio of the size of all buffers passed to this compressor to the size of the
+     * returned buffers, or 1 if no buffer has been passed yet.
+     */
+    public double getCompressionRatio() {
+        long bytesOut = numBytesOut;
+        return bytesOut == 0 ? 1.0 : (double) numBytesIn / bytesOut;
+    }
+
+    /** Returns the time spent on compressing buffers in milliseconds. */
+    public long getCompressionTimeMillis() {
+        return compressionTimeNanos / 1_000_000;
+    }
+
+    /**
+     * Releases the resources of the backing {@link BlockCompressor}. It must not be used
+     * afterwards.
+     */
+    public void close() {
+        blockCompressor.close();
+    }
+
+    @VisibleForTesting
+    boolean isCompressionPaused() {
+        return numBuffersToSkip > 0;
     }
 }
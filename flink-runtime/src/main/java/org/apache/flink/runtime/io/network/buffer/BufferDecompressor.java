@@ -88,6 +88,14 @@ public class BufferDecompressor {
                 buffer.asByteBuf(), 0, decompressedLen, memorySegmentOffset, false);
     }
 
+    /**
+     * Releases the resources of the backing {@link BlockDecompressor}. It must not be used
+     * afterwards.
+     */
+    public void close() {
+        blockDecompressor.close();
+    }
+
     /**
      * Decompresses the input {@link Buffer} into the intermediate buffer and returns the
      * decompressed data size.
@@ -52,7 +52,7 @@ public class InputGateMetrics {
     long refreshAndGetTotal() {
         long total = 0;
 
-        for (InputChannel channel : inputGate.getInputChannels().values()) {
+        for (InputChannel channel : inputGate.getAllInputChannels()) {
             if (channel instanceof RemoteInputChannel) {
                 RemoteInputChannel rc = (RemoteInputChannel) channel;
 
@@ -72,7 +72,7 @@ public class InputGateMetrics {
     int refreshAndGetMin() {
         int min = Integer.MAX_VALUE;
 
-        Collection<InputChannel> channels = inputGate.getInputChannels().values();
+        Collection<InputChannel> channels = inputGate.getAllInputChannels();
 
         for (InputChannel channel : channels) {
             if (channel instanceof RemoteInputChannel) {
@@ -99,7 +99,7 @@ public class InputGateMetrics {
     int refreshAndGetMax() {
         int max = 0;
 
-        for (InputChannel channel : inputGate.getInputChannels().values()) {
+        for (InputChannel channel : inputGate.getAllInputChannels()) {
             if (channel instanceof RemoteInputChannel) {
                 RemoteInputChannel rc = (RemoteInputChannel) channel;
 
@@ -121,7 +121,7 @@ public class InputGateMetrics {
         long total = 0;
         int count = 0;
 
-        for (InputChannel channel : inputGate.getInputChannels().values()) {
+        for (InputChannel channel : inputGate.getAllInputChannels()) {
             if (channel instanceof RemoteInputChannel) {
                 RemoteInputChannel rc = (RemoteInputChannel) channel;
 
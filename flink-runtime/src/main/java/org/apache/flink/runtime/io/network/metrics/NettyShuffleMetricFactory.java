@@ -176,6 +176,7 @@ public class NettyShuffleMetricFactory {
         if (isDetailedMetrics) {
             ResultPartitionMetrics.registerQueueLengthMetrics(outputGroup, resultPartitions);
         }
+        ResultPartitionMetrics.registerCompressionMetrics(outputGroup, resultPartitions);
         buffersGroup.gauge(METRIC_OUTPUT_QUEUE_LENGTH, new OutputBuffersGauge(resultPartitions));
         buffersGroup.gauge(
                 METRIC_OUTPUT_POOL_USAGE, new OutputBufferPoolUsageGauge(resultPartitions));
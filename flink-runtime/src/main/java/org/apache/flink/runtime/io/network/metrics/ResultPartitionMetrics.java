@@ -20,6 +20,7 @@ package org.apache.flink.runtime.io.network.metrics;
 
 import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -136,6 +137,14 @@ public class ResultPartitionMetrics {
         };
     }
 
+    private static Gauge<Double> getCompressionRatioGauge(BufferCompressor compressor) {
+        return compressor::getCompressionRatio;
+    }
+
+    private static Gauge<Long> getCompressionTimeGauge(BufferCompressor compressor) {
+        return compressor::getCompressionTimeMillis;
+    }
+
     private Gauge<Float> getAvgQueueLenGauge() {
         return new Gauge<Float>() {
             @Override
@@ -161,4 +170,22 @@ public class ResultPartitionMetrics {
             group.gauge("avgQueueLen", metrics.getAvgQueueLenGauge());
         }
     }
+
+    /**
+     * Registers the compression ratio and the time spent on compression of every result partition
+     * that compresses its data.
+     */
+    public static void registerCompressionMetrics(
+            MetricGroup parent, ResultPartition[] partitions) {
+        for (int i = 0; i < partitions.length; i++) {
+            BufferCompressor compressor = partitions[i].getBufferCompressor();
+            if (compressor == null) {
+                continue;
+            }
+
+            MetricGroup group = parent.addGroup(i);
+            group.gauge("compressionRatio", getCompressionRatioGauge(compressor));
+            group.gauge("compressionTimeMs", getCompressionTimeGauge(compressor));
+        }
+    }
 }
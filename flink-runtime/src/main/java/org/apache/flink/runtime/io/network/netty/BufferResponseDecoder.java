@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
 
@@ -26,6 +28,7 @@ import javax.annotation.Nullable;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse.MESSAGE_HEADER_LENGTH;
 import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
 
 /** The decoder for {@link BufferResponse}. */
 class BufferResponseDecoder extends NettyMessageDecoder {
@@ -45,13 +48,23 @@ class BufferResponseDecoder extends NettyMessageDecoder {
     /** How many bytes have been received or discarded for the data buffer part. */
     private int decodedDataBufferSize;
 
+    /**
+     * The region the data of {@link BufferResponse#SHARED_MEMORY_ID} messages is read from, null if
+     * the connection does not use shared memory.
+     */
+    @Nullable private SharedMemoryRegion sharedMemoryRegion;
+
     BufferResponseDecoder(NetworkBufferAllocator allocator) {
         this.allocator = checkNotNull(allocator);
     }
 
     @Override
     public void onChannelActive(ChannelHandlerContext ctx) {
-        messageHeaderBuffer = ctx.alloc().directBuffer(MESSAGE_HEADER_LENGTH);
+        messageHeaderBuffer = ctx.alloc().directBuffer(MESSAGE_HEADER_LENGTH + Long.BYTES);
+    }
+
+    void setSharedMemoryRegion(@Nullable SharedMemoryRegion sharedMemoryRegion) {
+        this.sharedMemoryRegion = sharedMemoryRegion;
     }
 
     @Override
@@ -88,14 +101,31 @@ class BufferResponseDecoder extends NettyMessageDecoder {
     }
 
     private void decodeMessageHeader(ByteBuf data) {
+        final boolean isSharedMemoryMessage = msgId == BufferResponse.SHARED_MEMORY_ID;
         ByteBuf fullFrameHeaderBuf =
                 ByteBufUtils.accumulate(
                         messageHeaderBuffer,
                         data,
-                        MESSAGE_HEADER_LENGTH,
+                        isSharedMemoryMessage
+                                ? MESSAGE_HEADER_LENGTH + Long.BYTES
+                                : MESSAGE_HEADER_LENGTH,
                         messageHeaderBuffer.readableBytes());
         if (fullFrameHeaderBuf != null) {
             bufferResponse = BufferResponse.readFrom(fullFrameHeaderBuf, allocator);
+
+            if (isSharedMemoryMessage) {
+                checkState(
+                        sharedMemoryRegion != null,
+                        "Received a shared memory buffer response without a shared memory region.");
+
+                // the data is not part of the message, copy it from the shared memory region
+                final Buffer buffer = bufferResponse.getBuffer();
+                sharedMemoryRegion.read(
+                        fullFrameHeaderBuf.readLong(),
+                        bufferResponse.bufferSize,
+                        buffer == null ? null : buffer.asByteBuf());
+                decodedDataBufferSize = bufferResponse.bufferSize;
+            }
         }
     }
 
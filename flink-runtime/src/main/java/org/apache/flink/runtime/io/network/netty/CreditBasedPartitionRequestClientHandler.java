@@ -21,6 +21,7 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ResumeConsumption;
 import org.apache.flink.runtime.io.network.netty.exception.LocalTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.RemoteTransportException;
@@ -137,6 +138,17 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
                                                 new ResumeConsumptionMessage(inputChannel)));
     }
 
+    @Override
+    public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+        ctx.executor()
+                .execute(
+                        () ->
+                                ctx.pipeline()
+                                        .fireUserEventTriggered(
+                                                new NewBufferSizeMessage(
+                                                        inputChannel, bufferSize)));
+    }
+
     // ------------------------------------------------------------------------
     // Network events
     // ------------------------------------------------------------------------
@@ -436,4 +448,19 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
             return new ResumeConsumption(inputChannel.getInputChannelId());
         }
     }
+
+    private static class NewBufferSizeMessage extends ClientOutboundMessage {
+
+        private final int bufferSize;
+
+        NewBufferSizeMessage(RemoteInputChannel inputChannel, int bufferSize) {
+            super(checkNotNull(inputChannel));
+            this.bufferSize = bufferSize;
+        }
+
+        @Override
+        Object buildMessage() {
+            return new NewBufferSize(bufferSize, inputChannel.getInputChannelId());
+        }
+    }
 }
@@ -105,6 +105,11 @@ class CreditBasedSequenceNumberingViewReader
         subpartitionView.resumeConsumption();
     }
 
+    @Override
+    public void notifyNewBufferSize(int newBufferSize) {
+        subpartitionView.notifyNewBufferSize(newBufferSize);
+    }
+
     @Override
     public void setRegisteredAsAvailable(boolean isRegisteredAvailable) {
         this.isRegisteredAsAvailable = isRegisteredAvailable;
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.runtime.net.SSLUtils;
 import org.apache.flink.util.NetUtils;
@@ -141,6 +142,31 @@ public class NettyConfig {
         }
     }
 
+    /**
+     * Returns the size of the shared memory region of connections to TaskManagers on the same
+     * host, or zero if the data of such connections is sent through the socket. Shared memory is
+     * never used if SSL is enabled, as the data would bypass the encryption.
+     */
+    public int getSharedMemorySize() {
+        if (getSSLEnabled()) {
+            return 0;
+        }
+        final long size = config.get(NettyShuffleEnvironmentOptions.SHARED_MEMORY_SIZE).getBytes();
+        if (size > SharedMemoryRegion.MAX_CAPACITY) {
+            throw new IllegalConfigurationException(
+                    "The shared memory size of %s bytes configured by '%s' exceeds the maximum "
+                            + "of %s bytes.",
+                    size,
+                    NettyShuffleEnvironmentOptions.SHARED_MEMORY_SIZE.key(),
+                    SharedMemoryRegion.MAX_CAPACITY);
+        }
+        return (int) size;
+    }
+
+    public int getMaxMessagesPerFlush() {
+        return config.getInteger(NettyShuffleEnvironmentOptions.MAX_MESSAGES_PER_FLUSH);
+    }
+
     @Nullable
     public SSLHandlerFactory createClientSSLEngineFactory() throws Exception {
         return getSSLEnabled() ? SSLUtils.createInternalClientSSLEngineFactory(config) : null;
@@ -54,7 +54,10 @@ public class NettyConnectionManager implements ConnectionManager {
 
         this.nettyProtocol =
                 new NettyProtocol(
-                        checkNotNull(partitionProvider), checkNotNull(taskEventPublisher));
+                        checkNotNull(partitionProvider),
+                        checkNotNull(taskEventPublisher),
+                        nettyConfig.getSharedMemorySize(),
+                        nettyConfig.getMaxMessagesPerFlush());
     }
 
     @Override
@@ -23,6 +23,7 @@ import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -48,6 +49,7 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.ProtocolException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.function.Consumer;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -167,7 +169,12 @@ public abstract class NettyMessage {
         @Override
         public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
                 throws IOException {
-            if (msg instanceof NettyMessage) {
+            final SharedMemoryRegion sharedMemoryRegion =
+                    ctx.channel().attr(SharedMemoryRegion.CHANNEL_ATTRIBUTE).get();
+            if (sharedMemoryRegion != null && msg instanceof BufferResponse) {
+                ((BufferResponse) msg)
+                        .writeToSharedMemory(ctx, promise, ctx.alloc(), sharedMemoryRegion);
+            } else if (msg instanceof NettyMessage) {
                 ((NettyMessage) msg).write(ctx, promise, ctx.alloc());
             } else {
                 ctx.write(msg, promise);
@@ -233,6 +240,12 @@ public abstract class NettyMessage {
                     case ResumeConsumption.ID:
                         decodedMsg = ResumeConsumption.readFrom(msg);
                         break;
+                    case NewBufferSize.ID:
+                        decodedMsg = NewBufferSize.readFrom(msg);
+                        break;
+                    case SharedMemoryRequest.ID:
+                        decodedMsg = SharedMemoryRequest.readFrom(msg);
+                        break;
                     default:
                         throw new ProtocolException(
                                 "Received unknown message from producer: " + msg);
@@ -255,6 +268,13 @@ public abstract class NettyMessage {
 
         static final byte ID = 0;
 
+        /**
+         * ID of a buffer response whose data was written into the {@link SharedMemoryRegion} of
+         * the connection. The message header is followed by the position of the data in the
+         * region (8) instead of the data itself.
+         */
+        static final byte SHARED_MEMORY_ID = 10;
+
         // receiver ID (16), sequence number (4), backlog (4), dataType (1), isCompressed (1),
         // buffer size (4)
         static final int MESSAGE_HEADER_LENGTH =
@@ -366,18 +386,72 @@ public abstract class NettyMessage {
             }
         }
 
+        /**
+         * Writes the data of the buffer into the given shared memory region and only the message
+         * header to the channel. Falls back to {@link #write(ChannelOutboundInvoker,
+         * ChannelPromise, ByteBufAllocator)} if the data does not fit into the region.
+         */
+        void writeToSharedMemory(
+                ChannelOutboundInvoker out,
+                ChannelPromise promise,
+                ByteBufAllocator allocator,
+                SharedMemoryRegion sharedMemoryRegion)
+                throws IOException {
+            // file region buffers are sent zero-copy, reading them into memory is not cheaper
+            if (buffer.readableBytes() == 0 || buffer instanceof FileRegionBuffer) {
+                write(out, promise, allocator);
+                return;
+            }
+
+            final long position;
+            try {
+                position = sharedMemoryRegion.tryWrite(buffer.getNioBufferReadable());
+            } catch (Throwable t) {
+                handleException(null, buffer, t);
+                return; // silence the compiler
+            }
+
+            if (position < 0) {
+                write(out, promise, allocator);
+                return;
+            }
+
+            ByteBuf headerBuf = null;
+            try {
+                headerBuf =
+                        allocateBuffer(
+                                allocator,
+                                SHARED_MEMORY_ID,
+                                MESSAGE_HEADER_LENGTH + Long.BYTES,
+                                0,
+                                true);
+                writeMessageHeader(headerBuf);
+                headerBuf.writeLong(position);
+                out.write(headerBuf, promise);
+            } catch (Throwable t) {
+                handleException(headerBuf, null, t);
+            } finally {
+                // the data was copied into the shared memory region
+                buffer.recycleBuffer();
+            }
+        }
+
         private ByteBuf fillHeader(ByteBufAllocator allocator) {
             // only allocate header buffer - we will combine it with the data buffer below
             ByteBuf headerBuf =
                     allocateBuffer(allocator, ID, MESSAGE_HEADER_LENGTH, bufferSize, false);
 
+            writeMessageHeader(headerBuf);
+            return headerBuf;
+        }
+
+        private void writeMessageHeader(ByteBuf headerBuf) {
             receiverId.writeTo(headerBuf);
             headerBuf.writeInt(sequenceNumber);
             headerBuf.writeInt(backlog);
             headerBuf.writeByte(dataType.ordinal());
             headerBuf.writeBoolean(isCompressed);
             headerBuf.writeInt(buffer.readableBytes());
-            return headerBuf;
         }
 
         /**
@@ -753,6 +827,112 @@ public abstract class NettyMessage {
         }
     }
 
+    /** Message to announce the buffer size the consumer wants to receive from the producer. */
+    static class NewBufferSize extends NettyMessage {
+
+        private static final byte ID = 8;
+
+        final int bufferSize;
+
+        final InputChannelID receiverId;
+
+        NewBufferSize(int bufferSize, InputChannelID receiverId) {
+            checkArgument(bufferSize > 0, "The new buffer size should be greater than 0");
+            this.bufferSize = bufferSize;
+            this.receiverId = receiverId;
+        }
+
+        @Override
+        void write(ChannelOutboundInvoker out, ChannelPromise promise, ByteBufAllocator allocator)
+                throws IOException {
+            ByteBuf result = null;
+
+            try {
+                result =
+                        allocateBuffer(
+                                allocator, ID, Integer.BYTES + InputChannelID.getByteBufLength());
+                result.writeInt(bufferSize);
+                receiverId.writeTo(result);
+
+                out.write(result, promise);
+            } catch (Throwable t) {
+                handleException(result, null, t);
+            }
+        }
+
+        static NewBufferSize readFrom(ByteBuf buffer) {
+            int bufferSize = buffer.readInt();
+            InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
+
+            return new NewBufferSize(bufferSize, receiverId);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("NewBufferSize(%s : %d)", receiverId, bufferSize);
+        }
+    }
+
+    /**
+     * Message to announce a {@link SharedMemoryRegion} that the client created for the connection.
+     * The server writes the data of buffer responses into the region afterwards, as long as it
+     * finds the region and there is enough free space in it.
+     */
+    static class SharedMemoryRequest extends NettyMessage {
+
+        private static final byte ID = 9;
+
+        final String path;
+
+        final long token;
+
+        final int capacity;
+
+        SharedMemoryRequest(String path, long token, int capacity) {
+            checkArgument(capacity > 0, "The capacity should be greater than 0");
+            this.path = checkNotNull(path);
+            this.token = token;
+            this.capacity = capacity;
+        }
+
+        @Override
+        void write(ChannelOutboundInvoker out, ChannelPromise promise, ByteBufAllocator allocator)
+                throws IOException {
+            final byte[] pathBytes = path.getBytes(StandardCharsets.UTF_8);
+
+            Consumer<ByteBuf> consumer =
+                    (bb) -> {
+                        bb.writeInt(pathBytes.length);
+                        bb.writeBytes(pathBytes);
+                        bb.writeLong(token);
+                        bb.writeInt(capacity);
+                    };
+
+            writeToChannel(
+                    out,
+                    promise,
+                    allocator,
+                    consumer,
+                    ID,
+                    Integer.BYTES + pathBytes.length + Long.BYTES + Integer.BYTES);
+        }
+
+        static SharedMemoryRequest readFrom(ByteBuf buffer) {
+            final byte[] pathBytes = new byte[buffer.readInt()];
+            buffer.readBytes(pathBytes);
+            long token = buffer.readLong();
+            int capacity = buffer.readInt();
+
+            return new SharedMemoryRequest(
+                    new String(pathBytes, StandardCharsets.UTF_8), token, capacity);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("SharedMemoryRequest(%s : %d)", path, capacity);
+        }
+    }
+
     // ------------------------------------------------------------------------
 
     void writeToChannel(
@@ -28,8 +28,13 @@ import org.apache.flink.shaded.netty4.io.netty.channel.ChannelInboundHandlerAdap
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.FRAME_HEADER_LENGTH;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.MAGIC_NUMBER;
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
@@ -51,7 +56,7 @@ public class NettyMessageClientDecoderDelegate extends ChannelInboundHandlerAdap
     private final Logger LOG = LoggerFactory.getLogger(NettyMessageClientDecoderDelegate.class);
 
     /** The decoder for BufferResponse. */
-    private final NettyMessageDecoder bufferResponseDecoder;
+    private final BufferResponseDecoder bufferResponseDecoder;
 
     /** The decoder for messages other than BufferResponse. */
     private final NettyMessageDecoder nonBufferResponseDecoder;
@@ -62,11 +67,28 @@ public class NettyMessageClientDecoderDelegate extends ChannelInboundHandlerAdap
     /** The decoder for the current message. It is null if we are decoding the frame header. */
     private NettyMessageDecoder currentDecoder;
 
+    /**
+     * The size of the shared memory region to create for connections to servers on the same host,
+     * 0 if disabled.
+     */
+    private final int sharedMemorySize;
+
+    /** The shared memory region of the connection, null if not used. */
+    @Nullable private SharedMemoryRegion sharedMemoryRegion;
+
     NettyMessageClientDecoderDelegate(NetworkClientHandler networkClientHandler) {
+        this(networkClientHandler, 0);
+    }
+
+    NettyMessageClientDecoderDelegate(
+            NetworkClientHandler networkClientHandler, int sharedMemorySize) {
+        checkArgument(sharedMemorySize >= 0, "Illegal shared memory size.");
+
         this.bufferResponseDecoder =
                 new BufferResponseDecoder(
                         new NetworkBufferAllocator(checkNotNull(networkClientHandler)));
         this.nonBufferResponseDecoder = new NonBufferResponseDecoder();
+        this.sharedMemorySize = sharedMemorySize;
     }
 
     @Override
@@ -76,9 +98,30 @@ public class NettyMessageClientDecoderDelegate extends ChannelInboundHandlerAdap
 
         frameHeaderBuffer = ctx.alloc().directBuffer(FRAME_HEADER_LENGTH);
 
+        if (sharedMemorySize > 0
+                && SharedMemoryRegion.isLocalAddress(ctx.channel().remoteAddress())) {
+            requestSharedMemory(ctx);
+        }
+
         super.channelActive(ctx);
     }
 
+    private void requestSharedMemory(ChannelHandlerContext ctx) {
+        try {
+            sharedMemoryRegion = SharedMemoryRegion.create(sharedMemorySize);
+        } catch (IOException e) {
+            LOG.debug("Could not create shared memory region, using the socket only.", e);
+            return;
+        }
+
+        bufferResponseDecoder.setSharedMemoryRegion(sharedMemoryRegion);
+        ctx.writeAndFlush(
+                new NettyMessage.SharedMemoryRequest(
+                        sharedMemoryRegion.getPath(),
+                        sharedMemoryRegion.getToken(),
+                        sharedMemoryRegion.getCapacity()));
+    }
+
     /**
      * Releases resources when the channel is closed. When exceptions are thrown during processing
      * received netty buffers, {@link CreditBasedPartitionRequestClientHandler} is expected to catch
@@ -88,7 +131,7 @@ public class NettyMessageClientDecoderDelegate extends ChannelInboundHandlerAdap
      */
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        IOUtils.cleanup(LOG, bufferResponseDecoder, nonBufferResponseDecoder);
+        IOUtils.cleanup(LOG, bufferResponseDecoder, nonBufferResponseDecoder, sharedMemoryRegion);
         frameHeaderBuffer.release();
 
         super.channelInactive(ctx);
@@ -143,7 +186,8 @@ public class NettyMessageClientDecoderDelegate extends ChannelInboundHandlerAdap
                     "Network stream corrupted: received incorrect magic number.");
 
             int msgId = fullFrameHeaderBuf.readByte();
-            if (msgId == NettyMessage.BufferResponse.ID) {
+            if (msgId == NettyMessage.BufferResponse.ID
+                    || msgId == NettyMessage.BufferResponse.SHARED_MEMORY_ID) {
                 currentDecoder = bufferResponseDecoder;
             } else {
                 currentDecoder = nonBufferResponseDecoder;
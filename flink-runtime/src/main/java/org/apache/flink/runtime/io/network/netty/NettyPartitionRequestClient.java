@@ -203,6 +203,11 @@ public class NettyPartitionRequestClient implements PartitionRequestClient {
         clientHandler.resumeConsumption(inputChannel);
     }
 
+    @Override
+    public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+        clientHandler.notifyNewBufferSize(inputChannel, bufferSize);
+    }
+
     @Override
     public void close(RemoteInputChannel inputChannel) throws IOException {
 
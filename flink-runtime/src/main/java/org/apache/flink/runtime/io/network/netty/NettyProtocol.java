@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.TaskEventPublisher;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
@@ -33,10 +34,30 @@ public class NettyProtocol {
     private final ResultPartitionProvider partitionProvider;
     private final TaskEventPublisher taskEventPublisher;
 
+    /** Size of the shared memory region of client connections to the same host, 0 if disabled. */
+    private final int sharedMemorySize;
+
+    /** The maximum number of buffers the server writes to a connection before flushing it. */
+    private final int maxMessagesPerFlush;
+
     NettyProtocol(
             ResultPartitionProvider partitionProvider, TaskEventPublisher taskEventPublisher) {
+        this(
+                partitionProvider,
+                taskEventPublisher,
+                0,
+                NettyShuffleEnvironmentOptions.MAX_MESSAGES_PER_FLUSH.defaultValue());
+    }
+
+    NettyProtocol(
+            ResultPartitionProvider partitionProvider,
+            TaskEventPublisher taskEventPublisher,
+            int sharedMemorySize,
+            int maxMessagesPerFlush) {
         this.partitionProvider = partitionProvider;
         this.taskEventPublisher = taskEventPublisher;
+        this.sharedMemorySize = sharedMemorySize;
+        this.maxMessagesPerFlush = maxMessagesPerFlush;
     }
 
     /**
@@ -73,10 +94,14 @@ public class NettyProtocol {
      * @return channel handlers
      */
     public ChannelHandler[] getServerChannelHandlers() {
-        PartitionRequestQueue queueOfPartitionQueues = new PartitionRequestQueue();
+        PartitionRequestQueue queueOfPartitionQueues =
+                new PartitionRequestQueue(maxMessagesPerFlush);
         PartitionRequestServerHandler serverHandler =
                 new PartitionRequestServerHandler(
-                        partitionProvider, taskEventPublisher, queueOfPartitionQueues);
+                        partitionProvider,
+                        taskEventPublisher,
+                        queueOfPartitionQueues,
+                        sharedMemorySize > 0);
 
         return new ChannelHandler[] {
             messageEncoder,
@@ -123,7 +148,7 @@ public class NettyProtocol {
 
         return new ChannelHandler[] {
             messageEncoder,
-            new NettyMessageClientDecoderDelegate(networkClientHandler),
+            new NettyMessageClientDecoderDelegate(networkClientHandler, sharedMemorySize),
             networkClientHandler
         };
     }
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.io.network.netty;
 
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ErrorResponse;
@@ -44,6 +45,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.function.Consumer;
 
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
+import static org.apache.flink.util.Preconditions.checkArgument;
 
 /**
  * A nonEmptyReader of partition queues, which listens for channel writability changed events before
@@ -63,10 +65,22 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
     private final ConcurrentMap<InputChannelID, NetworkSequenceViewReader> allReaders =
             new ConcurrentHashMap<>();
 
+    /** The maximum number of buffers written before the channel is flushed. */
+    private final int maxMessagesPerFlush;
+
     private boolean fatalError;
 
     private ChannelHandlerContext ctx;
 
+    PartitionRequestQueue() {
+        this(NettyShuffleEnvironmentOptions.MAX_MESSAGES_PER_FLUSH.defaultValue());
+    }
+
+    PartitionRequestQueue(int maxMessagesPerFlush) {
+        checkArgument(maxMessagesPerFlush > 0, "Illegal maximum number of messages per flush.");
+        this.maxMessagesPerFlush = maxMessagesPerFlush;
+    }
+
     @Override
     public void channelRegistered(final ChannelHandlerContext ctx) throws Exception {
         if (this.ctx == null) {
@@ -164,6 +178,24 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
         }
     }
 
+    /**
+     * Forwards the buffer size announced by the consumer to its reader. The reader may already be
+     * released, in which case the announcement is ignored.
+     *
+     * @param receiverId The input channel id to identify the consumer.
+     * @param newBufferSize The new buffer size in bytes.
+     */
+    void notifyNewBufferSize(InputChannelID receiverId, int newBufferSize) {
+        if (fatalError) {
+            return;
+        }
+
+        NetworkSequenceViewReader reader = allReaders.get(receiverId);
+        if (reader != null) {
+            reader.notifyNewBufferSize(newBufferSize);
+        }
+    }
+
     @Override
     public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
         // The user event triggered event loop callback is used for thread-safe
@@ -203,6 +235,7 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
         // gate and the consumed views as the local input channels.
 
         BufferAndAvailability next = null;
+        int numMessagesWritten = 0;
         try {
             while (true) {
                 NetworkSequenceViewReader reader = pollAvailableReader();
@@ -210,6 +243,9 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
                 // No queue with available data. We allow this here, because
                 // of the write callbacks that are executed after each write.
                 if (reader == null) {
+                    if (numMessagesWritten > 0) {
+                        channel.flush();
+                    }
                     return;
                 }
 
@@ -241,11 +277,22 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
                                     reader.getReceiverId(),
                                     next.buffersInBacklog());
 
-                    // Write and flush and wait until this is done before
-                    // trying to continue with the next buffer.
-                    channel.writeAndFlush(msg).addListener(writeListener);
+                    final ChannelFuture writeFuture = channel.write(msg);
+                    next = null;
+                    numMessagesWritten++;
+
+                    // Buffers of readers which are available at the same time are written in one
+                    // batch and flushed together, which results in a single gathering write. Flush
+                    // and wait until this is done before trying to continue with the next batch.
+                    if (numMessagesWritten >= maxMessagesPerFlush
+                            || availableReaders.isEmpty()
+                            || !channel.isWritable()) {
+                        channel.flush();
+                        writeFuture.addListener(writeListener);
+                        return;
+                    }
 
-                    return;
+                    writeFuture.addListener(ChannelFutureListener.FIRE_EXCEPTION_ON_FAILURE);
                 }
             }
         } catch (Throwable t) {
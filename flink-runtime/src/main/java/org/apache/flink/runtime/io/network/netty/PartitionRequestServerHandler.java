@@ -23,7 +23,9 @@ import org.apache.flink.runtime.io.network.TaskEventPublisher;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CancelPartitionRequest;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CloseRequest;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ResumeConsumption;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.SharedMemoryRequest;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -34,6 +36,8 @@ import org.apache.flink.shaded.netty4.io.netty.channel.SimpleChannelInboundHandl
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.PartitionRequest;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.TaskEventRequest;
 
@@ -48,14 +52,26 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 
     private final PartitionRequestQueue outboundQueue;
 
+    /** Whether the data of clients on the same host may be written into their shared memory. */
+    private final boolean acceptSharedMemory;
+
     PartitionRequestServerHandler(
             ResultPartitionProvider partitionProvider,
             TaskEventPublisher taskEventPublisher,
             PartitionRequestQueue outboundQueue) {
+        this(partitionProvider, taskEventPublisher, outboundQueue, false);
+    }
+
+    PartitionRequestServerHandler(
+            ResultPartitionProvider partitionProvider,
+            TaskEventPublisher taskEventPublisher,
+            PartitionRequestQueue outboundQueue,
+            boolean acceptSharedMemory) {
 
         this.partitionProvider = partitionProvider;
         this.taskEventPublisher = taskEventPublisher;
         this.outboundQueue = outboundQueue;
+        this.acceptSharedMemory = acceptSharedMemory;
     }
 
     @Override
@@ -68,6 +84,18 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
         super.channelUnregistered(ctx);
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        // the encoder falls back to the socket for all further writes
+        final SharedMemoryRegion sharedMemoryRegion =
+                ctx.channel().attr(SharedMemoryRegion.CHANNEL_ATTRIBUTE).getAndSet(null);
+        if (sharedMemoryRegion != null) {
+            sharedMemoryRegion.close();
+        }
+
+        super.channelInactive(ctx);
+    }
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, NettyMessage msg) throws Exception {
         try {
@@ -123,6 +151,21 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 
                 outboundQueue.addCreditOrResumeConsumption(
                         request.receiverId, NetworkSequenceViewReader::resumeConsumption);
+            } else if (msgClazz == NewBufferSize.class) {
+                NewBufferSize request = (NewBufferSize) msg;
+
+                outboundQueue.notifyNewBufferSize(request.receiverId, request.bufferSize);
+            } else if (msgClazz == SharedMemoryRequest.class) {
+                SharedMemoryRequest request = (SharedMemoryRequest) msg;
+
+                if (!acceptSharedMemory) {
+                    LOG.debug(
+                            "Ignoring shared memory region {} of {}, shared memory is disabled.",
+                            request.path,
+                            ctx.channel().remoteAddress());
+                } else {
+                    openSharedMemoryRegion(ctx, request);
+                }
             } else {
                 LOG.warn("Received unexpected client request: {}", msg);
             }
@@ -131,6 +174,27 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
         }
     }
 
+    private void openSharedMemoryRegion(ChannelHandlerContext ctx, SharedMemoryRequest request) {
+        try {
+            final SharedMemoryRegion sharedMemoryRegion =
+                    SharedMemoryRegion.open(request.path, request.token, request.capacity);
+            final SharedMemoryRegion previous =
+                    ctx.channel()
+                            .attr(SharedMemoryRegion.CHANNEL_ATTRIBUTE)
+                            .getAndSet(sharedMemoryRegion);
+            if (previous != null) {
+                previous.close();
+            }
+        } catch (IOException e) {
+            // e.g. the client is on another host, keep sending the data over the socket
+            LOG.debug(
+                    "Could not open shared memory region {} of {}.",
+                    request.path,
+                    ctx.channel().remoteAddress(),
+                    e);
+        }
+    }
+
     private void respondWithError(ChannelHandlerContext ctx, Throwable error) {
         ctx.writeAndFlush(new NettyMessage.ErrorResponse(error));
     }
@@ -0,0 +1,339 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.core.memory.MemoryUtils;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.util.AttributeKey;
+import org.apache.flink.shaded.netty4.io.netty.util.internal.PlatformDependent;
+
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A memory-mapped file shared by the client and the server of a connection between two
+ * TaskManagers on the same host. The server writes the data of network buffers into the region and
+ * only sends the message header, including the position of the data in the region, through the
+ * socket. The client copies the data out of the region while decoding the message.
+ *
+ * <p>The data part of the region is a ring buffer with a single writer (the server) and a single
+ * reader (the client). Positions are absolute and only grow. The socket message that references
+ * some data is always sent after the data was written, which makes the data visible to the client.
+ * The client publishes the end position of the data it has copied in the header of the region, the
+ * server never overwrites data before that position.
+ *
+ * <p>The file is created and deleted by the client and is only accessible by its owner, so both
+ * TaskManagers must run as the same user. The file is fully allocated when it is created, so that
+ * a full file system fails the creation instead of the later accesses of the mapped memory. All
+ * methods must be called from the event loop of the respective channel.
+ */
+class SharedMemoryRegion implements AutoCloseable {
+
+    /** The attribute of server channels whose client set up a shared memory region. */
+    static final AttributeKey<SharedMemoryRegion> CHANNEL_ATTRIBUTE =
+            AttributeKey.valueOf("flink.network.shared-memory-region");
+
+    /** Offset of the token identifying the region. */
+    private static final int TOKEN_OFFSET = 0;
+
+    /** Offset of the position up to which the client has read, on its own cache line. */
+    private static final int READ_POSITION_OFFSET = 64;
+
+    /** Offset of the data part of the region. */
+    private static final int DATA_OFFSET = 128;
+
+    /** The maximum capacity, so that the data part and the header fit into one mapped buffer. */
+    static final int MAX_CAPACITY = Integer.MAX_VALUE - DATA_OFFSET;
+
+    private static final String SHARED_MEMORY_DIRECTORY = "/dev/shm";
+
+    private static final String FILE_PREFIX = "flink-netty-shm-";
+
+    private static final String FILE_SUFFIX = ".data";
+
+    /** Size of the chunks of zeros written to allocate the file. */
+    private static final int ALLOCATION_CHUNK_SIZE = 64 * 1024;
+
+    private final Path path;
+
+    private final long token;
+
+    private final int capacity;
+
+    private final MappedByteBuffer mappedBuffer;
+
+    private final long readPositionAddress;
+
+    /** Whether this side created the file and deletes it when closed. */
+    private final boolean isOwner;
+
+    /** The position the next data is written at, only used by the server. */
+    private long writePosition;
+
+    private boolean isClosed;
+
+    private SharedMemoryRegion(
+            Path path, long token, int capacity, MappedByteBuffer mappedBuffer, boolean isOwner) {
+        this.path = checkNotNull(path);
+        this.token = token;
+        this.capacity = capacity;
+        this.mappedBuffer = checkNotNull(mappedBuffer);
+        this.readPositionAddress =
+                PlatformDependent.directBufferAddress(mappedBuffer) + READ_POSITION_OFFSET;
+        this.isOwner = isOwner;
+    }
+
+    String getPath() {
+        return path.toString();
+    }
+
+    long getToken() {
+        return token;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    // ------------------------------------------------------------------------
+    //  Server side
+    // ------------------------------------------------------------------------
+
+    /**
+     * Writes the given data into the region if there is enough free space.
+     *
+     * @return the position of the data in the region, or -1 if the data did not fit
+     */
+    long tryWrite(ByteBuffer data) {
+        checkState(!isClosed, "Shared memory region is already closed.");
+
+        final int length = data.remaining();
+        if (length > capacity) {
+            return -1;
+        }
+
+        // data never wraps around the end of the ring, the tail is skipped instead
+        long position = writePosition;
+        final int offset = (int) (position % capacity);
+        if ((long) offset + length > capacity) {
+            position += capacity - offset;
+        }
+
+        if (position + length - MemoryUtils.UNSAFE.getLongVolatile(null, readPositionAddress)
+                > capacity) {
+            return -1;
+        }
+
+        final ByteBuffer target = mappedBuffer.duplicate();
+        target.position(DATA_OFFSET + (int) (position % capacity));
+        target.put(data);
+
+        writePosition = position + length;
+        return position;
+    }
+
+    // ------------------------------------------------------------------------
+    //  Client side
+    // ------------------------------------------------------------------------
+
+    /**
+     * Copies the data at the given position into the target buffer and releases the data in the
+     * region. If the target is null, the data is only released.
+     */
+    void read(long position, int length, @Nullable ByteBuf target) {
+        checkState(!isClosed, "Shared memory region is already closed.");
+
+        if (target != null) {
+            final ByteBuffer source = mappedBuffer.duplicate();
+            final int offset = DATA_OFFSET + (int) (position % capacity);
+            source.limit(offset + length);
+            source.position(offset);
+            target.writeBytes(source);
+        }
+
+        // the copy must be complete before the server may overwrite the data
+        MemoryUtils.UNSAFE.putOrderedLong(null, readPositionAddress, position + length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+
+        PlatformDependent.freeDirectBuffer(mappedBuffer);
+        if (isOwner) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** Creates a new region, called by the client. */
+    static SharedMemoryRegion create(int capacity) throws IOException {
+        checkArgument(
+                capacity > 0 && capacity <= MAX_CAPACITY,
+                "Illegal shared memory size %s, must be between 1 and %s bytes.",
+                capacity,
+                MAX_CAPACITY);
+
+        final Path path =
+                Files.createTempFile(
+                        getDirectory(),
+                        FILE_PREFIX,
+                        FILE_SUFFIX,
+                        PosixFilePermissions.asFileAttribute(
+                                PosixFilePermissions.fromString("rw-------")));
+
+        try {
+            allocate(path, DATA_OFFSET + (long) capacity);
+            final MappedByteBuffer mappedBuffer = map(path, capacity);
+            final long token = ThreadLocalRandom.current().nextLong();
+            mappedBuffer.putLong(TOKEN_OFFSET, token);
+            mappedBuffer.putLong(READ_POSITION_OFFSET, 0L);
+            return new SharedMemoryRegion(path, token, capacity, mappedBuffer, true);
+        } catch (Throwable t) {
+            Files.deleteIfExists(path);
+            throw t;
+        }
+    }
+
+    /** Opens a region created by the client of a connection, called by the server. */
+    static SharedMemoryRegion open(String path, long token, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > MAX_CAPACITY) {
+            throw new IOException(
+                    "Illegal size " + capacity + " of shared memory region " + path + ".");
+        }
+
+        final Path filePath = Paths.get(path);
+        if (!isRegionFile(filePath)) {
+            throw new IOException("Unexpected shared memory region " + path + ".");
+        }
+        if (Files.size(filePath) != DATA_OFFSET + (long) capacity) {
+            throw new IOException("Unexpected size of shared memory region " + path + ".");
+        }
+
+        final MappedByteBuffer mappedBuffer = map(filePath, capacity);
+        if (mappedBuffer.getLong(TOKEN_OFFSET) != token) {
+            // not the file of the client, e.g. because the client is on another host
+            PlatformDependent.freeDirectBuffer(mappedBuffer);
+            throw new IOException("Shared memory region " + path + " has an unexpected token.");
+        }
+        return new SharedMemoryRegion(filePath, token, capacity, mappedBuffer, false);
+    }
+
+    /** Returns the directory of the regions, /dev/shm or the temporary directory. */
+    private static Path getDirectory() {
+        final File directory = new File(SHARED_MEMORY_DIRECTORY);
+        return directory.isDirectory() && directory.canWrite()
+                ? directory.toPath()
+                : Paths.get(System.getProperty("java.io.tmpdir"));
+    }
+
+    /**
+     * Checks whether the given path is a file which {@link #create(int)} may have created, and not
+     * e.g. a link to or an arbitrary other file of this process' user.
+     */
+    private static boolean isRegionFile(Path path) {
+        final Path fileName = path.getFileName();
+        if (!path.isAbsolute() || fileName == null) {
+            return false;
+        }
+
+        final String name = fileName.toString();
+        return name.startsWith(FILE_PREFIX)
+                && name.endsWith(FILE_SUFFIX)
+                && getDirectory().equals(path.getParent())
+                && Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS);
+    }
+
+    /**
+     * Writes zeros to the whole file. The pages of a sparse file in tmpfs are only allocated when
+     * the mapped memory is accessed, which crashes the JVM if the file system is full.
+     */
+    private static void allocate(Path path, long size) throws IOException {
+        try (FileChannel fileChannel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            final ByteBuffer zeros = ByteBuffer.allocate(ALLOCATION_CHUNK_SIZE);
+            long position = 0;
+            while (position < size) {
+                zeros.clear();
+                zeros.limit((int) Math.min(ALLOCATION_CHUNK_SIZE, size - position));
+                while (zeros.hasRemaining()) {
+                    position += fileChannel.write(zeros, position);
+                }
+            }
+        }
+    }
+
+    private static MappedByteBuffer map(Path path, int capacity) throws IOException {
+        // computed as long, the sum overflows an int for capacities close to the maximum
+        final long size = DATA_OFFSET + (long) capacity;
+        checkArgument(
+                size <= Integer.MAX_VALUE,
+                "Shared memory region of %s bytes exceeds the maximum mappable size of %s bytes.",
+                size,
+                Integer.MAX_VALUE);
+        try (FileChannel fileChannel =
+                FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    /** Checks whether the given remote address belongs to this host. */
+    static boolean isLocalAddress(@Nullable SocketAddress address) {
+        if (!(address instanceof InetSocketAddress)) {
+            return false;
+        }
+
+        final InetAddress inetAddress = ((InetSocketAddress) address).getAddress();
+        if (inetAddress == null) {
+            return false;
+        }
+
+        try {
+            return inetAddress.isLoopbackAddress()
+                    || inetAddress.isAnyLocalAddress()
+                    || NetworkInterface.getByInetAddress(inetAddress) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
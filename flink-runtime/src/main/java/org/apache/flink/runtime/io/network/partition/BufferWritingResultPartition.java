@@ -312,6 +312,7 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         checkInProduceState();
         ensureUnicastMode();
         final BufferBuilder bufferBuilder = requestNewBufferBuilderFromPool(targetSubpartition);
+        bufferBuilder.trim(subpartitions[targetSubpartition].getBufferSize());
         unicastBufferBuilders[targetSubpartition] = bufferBuilder;
 
         return bufferBuilder;
@@ -322,6 +323,7 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         ensureBroadcastMode();
 
         final BufferBuilder bufferBuilder = requestNewBufferBuilderFromPool(0);
+        bufferBuilder.trim(getMinBufferSize());
         broadcastBufferBuilder = bufferBuilder;
         return bufferBuilder;
     }
@@ -343,6 +345,15 @@ public abstract class BufferWritingResultPartition extends ResultPartition {
         }
     }
 
+    /** A broadcast buffer is shared by all subpartitions, so it's cut at the smallest size. */
+    private int getMinBufferSize() {
+        int minBufferSize = Integer.MAX_VALUE;
+        for (ResultSubpartition subpartition : subpartitions) {
+            minBufferSize = Math.min(minBufferSize, subpartition.getBufferSize());
+        }
+        return minBufferSize;
+    }
+
     private void finishUnicastBufferBuilder(int targetSubpartition) {
         final BufferBuilder bufferBuilder = unicastBufferBuilders[targetSubpartition];
         if (bufferBuilder != null) {
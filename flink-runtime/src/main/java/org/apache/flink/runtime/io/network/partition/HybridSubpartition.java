@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A {@link ResultSubpartition} of a {@link ResultPartitionType#HYBRID} partition. Every buffer is
+ * eagerly written to a file, in the same format as the file based {@link
+ * BoundedBlockingSubpartition}, and the most recently written buffers are additionally kept in
+ * memory.
+ *
+ * <p>Readers can be created at any time, also while the data is still being produced, and always
+ * read the subpartition from the beginning. A reader that keeps up with the producer gets the
+ * buffers from memory. A reader that starts late, for example after a failover, reads the data
+ * from the file until it reaches the buffers that are still in memory. The in-memory buffers are
+ * only a cache: the oldest buffer is recycled whenever the cache is full, regardless of the
+ * progress of the readers, so slow readers never back pressure the producer.
+ *
+ * <h2>Important Notes on Thread Safety</h2>
+ *
+ * <p>This class assumes a single writer thread that adds buffers, flushes, and finishes the write
+ * phase. The in-memory buffers and the write progress are guarded by {@link #lock}, which is shared
+ * with the readers.
+ */
+final class HybridSubpartition extends ResultSubpartition {
+
+    /** Guards the in-memory buffers, the write progress, and the creation of readers. */
+    final Object lock = new Object();
+
+    /** The current buffer, may be filled further over time. */
+    @Nullable private BufferConsumer currentBuffer;
+
+    private final Path filePath;
+
+    private final FileChannel fileChannel;
+
+    private final ByteBuffer[] headerAndBufferArray;
+
+    /** Size of the memory segments used by readers to read buffers from the file. */
+    private final int readBufferSize;
+
+    /** Maximum number of written buffers kept in memory. */
+    private final int maxCachedBuffers;
+
+    /** The most recently written buffers, in the order they were written. */
+    @GuardedBy("lock")
+    private final ArrayDeque<CachedBuffer> cachedBuffers = new ArrayDeque<>();
+
+    /** Indexes of the written buffers that are events. There are only few events per partition. */
+    @GuardedBy("lock")
+    private final Set<Integer> eventIndexes = new HashSet<>();
+
+    /** All created and not yet released readers. */
+    @GuardedBy("lock")
+    private final Set<HybridSubpartitionView> readers = new HashSet<>();
+
+    /** The counter for the number of data buffers and events written. */
+    @GuardedBy("lock")
+    private int numBuffersAndEventsWritten;
+
+    /** Counter for the number of data buffers (not events!) written. */
+    @GuardedBy("lock")
+    private int numDataBuffersWritten;
+
+    /** Number of bytes written to the file. */
+    @GuardedBy("lock")
+    private long numBytesWritten;
+
+    /** Flag indicating whether the writing has finished. */
+    private boolean isFinished;
+
+    /** Flag indicating whether the subpartition has been released. */
+    @GuardedBy("lock")
+    private boolean isReleased;
+
+    HybridSubpartition(
+            int index,
+            ResultPartition parent,
+            Path filePath,
+            int readBufferSize,
+            int maxCachedBuffers)
+            throws IOException {
+
+        super(index, parent);
+
+        checkArgument(readBufferSize > 0, "Illegal read buffer size.");
+        checkArgument(maxCachedBuffers >= 0, "Illegal number of cached buffers.");
+
+        this.filePath = checkNotNull(filePath);
+        this.readBufferSize = readBufferSize;
+        this.maxCachedBuffers = maxCachedBuffers;
+        this.headerAndBufferArray = BufferReaderWriterUtil.allocatedWriteBufferArray();
+        this.fileChannel =
+                FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    // ------------------------------------------------------------------------
+
+    @Override
+    public boolean isReleased() {
+        synchronized (lock) {
+            return isReleased;
+        }
+    }
+
+    @Override
+    public boolean add(BufferConsumer bufferConsumer, int partialRecordLength) throws IOException {
+        if (isFinished) {
+            bufferConsumer.close();
+            return false;
+        }
+
+        flushCurrentBuffer();
+        currentBuffer = bufferConsumer;
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        // unfortunately, the signature of flush does not allow for any exceptions, so we
+        // need to do this discouraged pattern of runtime exception wrapping
+        try {
+            flushCurrentBuffer();
+        } catch (IOException e) {
+            throw new FlinkRuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private void flushCurrentBuffer() throws IOException {
+        if (currentBuffer != null) {
+            writeAndCloseBufferConsumer(currentBuffer);
+            currentBuffer = null;
+        }
+    }
+
+    private void writeAndCloseBufferConsumer(BufferConsumer bufferConsumer) throws IOException {
+        final Buffer buffer;
+        try {
+            buffer = bufferConsumer.build();
+        } finally {
+            bufferConsumer.close();
+        }
+
+        final long numBytes;
+        try {
+            if (parent.canBeCompressed(buffer)) {
+                final Buffer compressedBuffer =
+                        parent.bufferCompressor.compressToIntermediateBuffer(buffer);
+                numBytes =
+                        BufferReaderWriterUtil.writeToByteChannel(
+                                fileChannel, compressedBuffer, headerAndBufferArray);
+                if (compressedBuffer != buffer) {
+                    compressedBuffer.recycleBuffer();
+                }
+            } else {
+                numBytes =
+                        BufferReaderWriterUtil.writeToByteChannel(
+                                fileChannel, buffer, headerAndBufferArray);
+            }
+        } catch (Throwable t) {
+            buffer.recycleBuffer();
+            throw t;
+        }
+
+        final List<HybridSubpartitionView> readersToNotify;
+        synchronized (lock) {
+            if (isReleased) {
+                buffer.recycleBuffer();
+                return;
+            }
+
+            // the cached buffer is the uncompressed one, consumers of blocking partitions can
+            // handle both compressed and uncompressed buffers
+            cachedBuffers.addLast(
+                    new CachedBuffer(
+                            buffer, numBuffersAndEventsWritten, numBytesWritten + numBytes));
+            while (cachedBuffers.size() > maxCachedBuffers) {
+                cachedBuffers.pollFirst().buffer.recycleBuffer();
+            }
+
+            if (!buffer.isBuffer()) {
+                eventIndexes.add(numBuffersAndEventsWritten);
+            } else {
+                numDataBuffersWritten++;
+            }
+            numBuffersAndEventsWritten++;
+            numBytesWritten += numBytes;
+
+            readersToNotify = new ArrayList<>(readers);
+        }
+
+        for (HybridSubpartitionView reader : readersToNotify) {
+            reader.notifyDataAvailable();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        checkState(!isReleased(), "data partition already released");
+        checkState(!isFinished, "data partition already finished");
+
+        isFinished = true;
+        flushCurrentBuffer();
+        writeAndCloseBufferConsumer(
+                EventSerializer.toBufferConsumer(EndOfPartitionEvent.INSTANCE, false));
+        fileChannel.close();
+    }
+
+    @Override
+    public void release() throws IOException {
+        synchronized (lock) {
+            if (isReleased) {
+                return;
+            }
+
+            isReleased = true;
+            isFinished = true; // for fail fast writes
+
+            if (currentBuffer != null) {
+                currentBuffer.close();
+                currentBuffer = null;
+            }
+
+            for (CachedBuffer cachedBuffer : cachedBuffers) {
+                cachedBuffer.buffer.recycleBuffer();
+            }
+            cachedBuffers.clear();
+
+            checkReaderReferencesAndDispose();
+        }
+    }
+
+    @Override
+    public ResultSubpartitionView createReadView(BufferAvailabilityListener availability)
+            throws IOException {
+        synchronized (lock) {
+            checkState(!isReleased, "data partition already released");
+
+            final HybridSubpartitionView reader =
+                    new HybridSubpartitionView(
+                            this,
+                            FileChannel.open(filePath, StandardOpenOption.READ),
+                            readBufferSize,
+                            availability);
+            readers.add(reader);
+            return reader;
+        }
+    }
+
+    void releaseReaderReference(HybridSubpartitionView reader) throws IOException {
+        onConsumedSubpartition();
+
+        synchronized (lock) {
+            if (readers.remove(reader) && isReleased) {
+                checkReaderReferencesAndDispose();
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private void checkReaderReferencesAndDispose() throws IOException {
+        assert Thread.holdsLock(lock);
+
+        // the readers read from their own file channels, so the file must be kept until the
+        // last of them is released
+        if (readers.isEmpty()) {
+            IOUtils.closeQuietly(fileChannel);
+            Files.deleteIfExists(filePath);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    //  Reader access, all methods must be called while holding the lock
+    // ------------------------------------------------------------------------
+
+    @GuardedBy("lock")
+    int getNumBuffersAndEventsWritten() {
+        assert Thread.holdsLock(lock);
+        return numBuffersAndEventsWritten;
+    }
+
+    @GuardedBy("lock")
+    int getNumDataBuffersWritten() {
+        assert Thread.holdsLock(lock);
+        return numDataBuffersWritten;
+    }
+
+    @GuardedBy("lock")
+    long getNumBytesWritten() {
+        assert Thread.holdsLock(lock);
+        return numBytesWritten;
+    }
+
+    @GuardedBy("lock")
+    boolean isEvent(int bufferIndex) {
+        assert Thread.holdsLock(lock);
+        return eventIndexes.contains(bufferIndex);
+    }
+
+    /** Returns the in-memory buffer with the given index, or null if it is not in memory. */
+    @Nullable
+    @GuardedBy("lock")
+    CachedBuffer getCachedBuffer(int bufferIndex) {
+        assert Thread.holdsLock(lock);
+
+        for (CachedBuffer cachedBuffer : cachedBuffers) {
+            if (cachedBuffer.index == bufferIndex) {
+                return cachedBuffer;
+            }
+        }
+        return null;
+    }
+
+    @VisibleForTesting
+    int getNumCachedBuffers() {
+        synchronized (lock) {
+            return cachedBuffers.size();
+        }
+    }
+
+    @VisibleForTesting
+    Path getFilePath() {
+        return filePath;
+    }
+
+    // ---------------------------- statistics --------------------------------
+
+    @Override
+    public int unsynchronizedGetNumberOfQueuedBuffers() {
+        return 0;
+    }
+
+    @Override
+    protected long getTotalNumberOfBuffers() {
+        synchronized (lock) {
+            return numBuffersAndEventsWritten;
+        }
+    }
+
+    @Override
+    protected long getTotalNumberOfBytes() {
+        synchronized (lock) {
+            return numBytesWritten;
+        }
+    }
+
+    @Override
+    int getBuffersInBacklog() {
+        synchronized (lock) {
+            return numDataBuffersWritten;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** A written buffer that is still kept in memory. */
+    static final class CachedBuffer {
+
+        final Buffer buffer;
+
+        /** Index of the buffer in the subpartition. */
+        final int index;
+
+        /** Offset of the next buffer in the file. */
+        final long nextFileOffset;
+
+        CachedBuffer(Buffer buffer, int index, long nextFileOffset) {
+            this.buffer = buffer;
+            this.index = index;
+            this.nextFileOffset = nextFileOffset;
+        }
+    }
+}
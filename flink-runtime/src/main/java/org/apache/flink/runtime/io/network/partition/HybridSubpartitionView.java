@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.partition.HybridSubpartition.CachedBuffer;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * The reader (read view) of a {@link HybridSubpartition}. The buffers are read in the order they
+ * were written, either from the memory of the subpartition or, if they are not in memory any more,
+ * from the file of the subpartition.
+ */
+final class HybridSubpartitionView implements ResultSubpartitionView, BufferRecycler {
+
+    private static final int NUM_READ_BUFFERS = 2;
+
+    /** The result subpartition that we read. */
+    private final HybridSubpartition parent;
+
+    /**
+     * The listener that is notified when there are available buffers for this subpartition view.
+     */
+    private final BufferAvailabilityListener availabilityListener;
+
+    /**
+     * Read by the thread which consumes this view without holding the lock, and closed when this
+     * view is released.
+     */
+    private final FileChannel fileChannel;
+
+    private final ByteBuffer headerBuffer;
+
+    /** Memory segments to read buffers from the file into. */
+    @GuardedBy("parent.lock")
+    private final ArrayDeque<MemorySegment> readBuffers = new ArrayDeque<>(NUM_READ_BUFFERS);
+
+    /** Index of the next buffer to read. */
+    @GuardedBy("parent.lock")
+    private int nextBufferIndex;
+
+    /** Offset of the next buffer to read in the file. */
+    @GuardedBy("parent.lock")
+    private long nextFileOffset;
+
+    /** Number of data buffers (not events) read so far. */
+    @GuardedBy("parent.lock")
+    private int numDataBuffersRead;
+
+    @GuardedBy("parent.lock")
+    private boolean isReleased;
+
+    private int sequenceNumber;
+
+    HybridSubpartitionView(
+            HybridSubpartition parent,
+            FileChannel fileChannel,
+            int readBufferSize,
+            BufferAvailabilityListener availabilityListener) {
+
+        this.parent = checkNotNull(parent);
+        this.fileChannel = checkNotNull(fileChannel);
+        this.availabilityListener = checkNotNull(availabilityListener);
+        this.headerBuffer = BufferReaderWriterUtil.allocatedHeaderBuffer();
+
+        for (int i = 0; i < NUM_READ_BUFFERS; i++) {
+            readBuffers.addLast(
+                    MemorySegmentFactory.allocateUnpooledOffHeapMemory(readBufferSize, null));
+        }
+    }
+
+    @Nullable
+    @Override
+    public BufferAndBacklog getNextBuffer() throws IOException {
+        final MemorySegment memory;
+        final long fileOffset;
+        synchronized (parent.lock) {
+            if (isReleased || nextBufferIndex >= parent.getNumBuffersAndEventsWritten()) {
+                return null;
+            }
+
+            final CachedBuffer cachedBuffer = parent.getCachedBuffer(nextBufferIndex);
+            if (cachedBuffer != null) {
+                // the cached buffer may be sent to multiple readers and recycled by the
+                // subpartition at any time
+                nextFileOffset = cachedBuffer.nextFileOffset;
+                return advance(cachedBuffer.buffer.retainBuffer().readOnlySlice());
+            }
+
+            memory = readBuffers.pollFirst();
+            if (memory == null) {
+                // notified again once a read buffer is recycled
+                return null;
+            }
+            fileOffset = nextFileOffset;
+        }
+
+        // The buffer was completely written to the file before it was counted as written, so it
+        // is read without holding the lock, which would otherwise block the writer.
+        final Buffer current;
+        final long nextOffset;
+        try {
+            fileChannel.position(fileOffset);
+            current =
+                    BufferReaderWriterUtil.readFromByteChannel(
+                            fileChannel, headerBuffer, memory, this);
+            nextOffset = fileChannel.position();
+        } catch (IOException e) {
+            if (!returnReadBuffer(memory)) {
+                // the file channel was closed by the release
+                return null;
+            }
+            throw e;
+        }
+
+        if (current == null) {
+            returnReadBuffer(memory);
+            throw new IOException("Premature end of file of hybrid subpartition " + this + ".");
+        }
+
+        synchronized (parent.lock) {
+            if (isReleased) {
+                current.recycleBuffer();
+                return null;
+            }
+            nextFileOffset = nextOffset;
+            return advance(current);
+        }
+    }
+
+    /**
+     * Returns a read buffer which was not handed out, or frees it if this view was released.
+     *
+     * @return false if this view was released
+     */
+    private boolean returnReadBuffer(MemorySegment memory) {
+        synchronized (parent.lock) {
+            if (isReleased) {
+                memory.free();
+                return false;
+            }
+            readBuffers.addLast(memory);
+            return true;
+        }
+    }
+
+    @GuardedBy("parent.lock")
+    private BufferAndBacklog advance(Buffer current) {
+        nextBufferIndex++;
+        if (current.isBuffer()) {
+            numDataBuffersRead++;
+        }
+
+        return BufferAndBacklog.fromBufferAndLookahead(
+                current,
+                getNextDataType(),
+                parent.getNumDataBuffersWritten() - numDataBuffersRead,
+                sequenceNumber++);
+    }
+
+    @GuardedBy("parent.lock")
+    private Buffer.DataType getNextDataType() {
+        if (nextBufferIndex >= parent.getNumBuffersAndEventsWritten()) {
+            return Buffer.DataType.NONE;
+        }
+        return parent.isEvent(nextBufferIndex)
+                ? Buffer.DataType.EVENT_BUFFER
+                : Buffer.DataType.DATA_BUFFER;
+    }
+
+    @Override
+    public void notifyDataAvailable() {
+        availabilityListener.notifyDataAvailable();
+    }
+
+    @Override
+    public void recycle(MemorySegment memorySegment) {
+        synchronized (parent.lock) {
+            if (isReleased) {
+                memorySegment.free();
+                return;
+            }
+            readBuffers.addLast(memorySegment);
+        }
+
+        notifyDataAvailable();
+    }
+
+    @Override
+    public void releaseAllResources() throws IOException {
+        synchronized (parent.lock) {
+            if (isReleased) {
+                return;
+            }
+            isReleased = true;
+
+            // the buffers still in use are freed when they are recycled
+            for (MemorySegment segment : readBuffers) {
+                segment.free();
+            }
+            readBuffers.clear();
+        }
+
+        IOUtils.closeQuietly(fileChannel);
+
+        // Notify the parent that this one is released. This allows the parent to
+        // eventually release all resources (when all readers are done and the
+        // parent is disposed).
+        parent.releaseReaderReference(this);
+    }
+
+    @Override
+    public boolean isReleased() {
+        synchronized (parent.lock) {
+            return isReleased;
+        }
+    }
+
+    @Override
+    public void resumeConsumption() {
+        throw new UnsupportedOperationException("Method should never be called.");
+    }
+
+    @Override
+    public boolean isAvailable(int numCreditsAvailable) {
+        synchronized (parent.lock) {
+            if (isReleased || nextBufferIndex >= parent.getNumBuffersAndEventsWritten()) {
+                return false;
+            }
+
+            if (readBuffers.isEmpty() && parent.getCachedBuffer(nextBufferIndex) == null) {
+                return false;
+            }
+
+            return numCreditsAvailable > 0 || parent.isEvent(nextBufferIndex);
+        }
+    }
+
+    @Override
+    public Throwable getFailureCause() {
+        // we can never throw an error after this was created
+        return null;
+    }
+
+    @Override
+    public int unsynchronizedGetNumberOfQueuedBuffers() {
+        return parent.unsynchronizedGetNumberOfQueuedBuffers();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Hybrid Subpartition Reader: ID=%s, index=%d",
+                parent.parent.getPartitionId(), parent.getSubPartitionIndex());
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Merges all data regions of a {@link PartitionedFile} into a new {@link PartitionedFile} with a
+ * single data region, in which the data of every subpartition is stored contiguously. Consumers of
+ * the merged file can read their subpartition sequentially instead of reading many small regions
+ * spread over the whole file.
+ */
+public final class PartitionedFileMerger {
+
+    /** Size of the memory for caching of index entries of the merged file. */
+    private static final int MAX_INDEX_BUFFER_SIZE = 4 * 1024 * 1024;
+
+    /** Not intended to be instantiated. */
+    private PartitionedFileMerger() {}
+
+    /**
+     * Copies the data of the given {@link PartitionedFile} subpartition by subpartition into a new
+     * {@link PartitionedFile} at the given base path. The source file is kept, the caller is
+     * responsible for deleting it.
+     *
+     * @param sourceFile the file to merge.
+     * @param basePath base path of the merged file.
+     * @param readBuffer buffer to copy the data with, which must be large enough for the largest
+     *     buffer of the source file.
+     * @param bufferCompressor if not null, data buffers which are not compressed yet are compressed
+     *     before being written to the merged file.
+     * @return the merged file.
+     */
+    public static PartitionedFile merge(
+            PartitionedFile sourceFile,
+            String basePath,
+            MemorySegment readBuffer,
+            @Nullable BufferCompressor bufferCompressor)
+            throws IOException {
+        checkNotNull(sourceFile);
+        checkNotNull(readBuffer);
+
+        int numSubpartitions = sourceFile.getNumSubpartitions();
+        BufferRecycler recycler = (segment) -> {};
+        PartitionedFileWriter fileWriter =
+                new PartitionedFileWriter(numSubpartitions, MAX_INDEX_BUFFER_SIZE, basePath);
+        try {
+            fileWriter.startNewRegion();
+
+            for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+                try (PartitionedFileReader fileReader =
+                        new PartitionedFileReader(sourceFile, subpartition)) {
+                    Buffer buffer;
+                    while ((buffer = fileReader.readBuffer(readBuffer, recycler)) != null) {
+                        if (bufferCompressor != null
+                                && buffer.isBuffer()
+                                && !buffer.isCompressed()
+                                && buffer.readableBytes() > 0) {
+                            buffer = bufferCompressor.compressToIntermediateBuffer(buffer);
+                        }
+
+                        try {
+                            fileWriter.writeBuffer(buffer, subpartition);
+                        } finally {
+                            buffer.recycleBuffer();
+                        }
+                    }
+                }
+            }
+
+            return fileWriter.finish();
+        } catch (Throwable throwable) {
+            fileWriter.releaseQuietly();
+            throw throwable;
+        }
+    }
+}
@@ -18,7 +18,6 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
-import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
@@ -37,7 +36,13 @@ import static org.apache.flink.runtime.io.network.partition.BufferReaderWriterUt
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
-/** Reader which can read all data of the target subpartition from a {@link PartitionedFile}. */
+/**
+ * Reader which can read all data of the target subpartition from a {@link PartitionedFile}.
+ *
+ * <p>The file channels can either be owned by the reader, or be shared by all readers of the file.
+ * A shared channel must only be used by one reader at a time, because each read positions the
+ * channel at the read offset of the reader.
+ */
 public class PartitionedFileReader implements AutoCloseable {
 
     /** Used to read buffers from file channel. */
@@ -64,6 +69,12 @@ public class PartitionedFileReader implements AutoCloseable {
     /** Number of remaining buffers in the current data region read. */
     private int currentRegionRemainingBuffers;
 
+    /** Offset in the data file of the next buffer to read. */
+    private long nextOffsetToRead;
+
+    /** Whether the file channels are opened by and closed with this reader. */
+    private final boolean ownsFileChannels;
+
     /** Whether this partitioned file reader is closed. */
     private boolean isClosed;
 
@@ -71,6 +82,7 @@ public class PartitionedFileReader implements AutoCloseable {
             throws IOException {
         this.partitionedFile = checkNotNull(partitionedFile);
         this.targetSubpartition = targetSubpartition;
+        this.ownsFileChannels = true;
 
         this.indexEntryBuf = ByteBuffer.allocateDirect(PartitionedFile.INDEX_ENTRY_SIZE);
         BufferReaderWriterUtil.configureByteBuffer(indexEntryBuf);
@@ -84,7 +96,23 @@ public class PartitionedFileReader implements AutoCloseable {
         }
     }
 
-    private FileChannel openFileChannel(Path path) throws IOException {
+    /** Creates a reader on the given file channels, which are not closed by this reader. */
+    public PartitionedFileReader(
+            PartitionedFile partitionedFile,
+            int targetSubpartition,
+            FileChannel dataFileChannel,
+            FileChannel indexFileChannel) {
+        this.partitionedFile = checkNotNull(partitionedFile);
+        this.targetSubpartition = targetSubpartition;
+        this.dataFileChannel = checkNotNull(dataFileChannel);
+        this.indexFileChannel = checkNotNull(indexFileChannel);
+        this.ownsFileChannels = false;
+
+        this.indexEntryBuf = ByteBuffer.allocateDirect(PartitionedFile.INDEX_ENTRY_SIZE);
+        BufferReaderWriterUtil.configureByteBuffer(indexEntryBuf);
+    }
+
+    static FileChannel openFileChannel(Path path) throws IOException {
         return FileChannel.open(path, StandardOpenOption.READ);
     }
 
@@ -101,7 +129,7 @@ public class PartitionedFileReader implements AutoCloseable {
             ++nextRegionToRead;
 
             if (currentRegionRemainingBuffers > 0) {
-                dataFileChannel.position(dataOffset);
+                nextOffsetToRead = dataOffset;
                 return true;
             }
         }
@@ -119,14 +147,41 @@ public class PartitionedFileReader implements AutoCloseable {
         checkState(!isClosed, "File reader is already closed.");
 
         if (moveToNextReadableRegion()) {
-            --currentRegionRemainingBuffers;
-            return readFromByteChannel(dataFileChannel, headerBuf, target, recycler);
+            return readCurrentRegion(target, recycler);
         }
 
         return null;
     }
 
-    @VisibleForTesting
+    /**
+     * Reads a buffer of the current data region and returns null if the current data region is
+     * fully read, without moving to the next region.
+     *
+     * <p>Note: The caller is responsible for recycling the target buffer if any exception occurs.
+     */
+    @Nullable
+    Buffer readCurrentRegion(MemorySegment target, BufferRecycler recycler) throws IOException {
+        checkState(!isClosed, "File reader is already closed.");
+
+        if (currentRegionRemainingBuffers == 0) {
+            return null;
+        }
+
+        --currentRegionRemainingBuffers;
+        dataFileChannel.position(nextOffsetToRead);
+        Buffer buffer = readFromByteChannel(dataFileChannel, headerBuf, target, recycler);
+        nextOffsetToRead = dataFileChannel.position();
+        return buffer;
+    }
+
+    /**
+     * Returns the offset in the data file of the next buffer to read. Reading the readers of a file
+     * in the order of this offset reads the file sequentially.
+     */
+    long getNextOffsetToRead() {
+        return nextOffsetToRead;
+    }
+
     public boolean hasRemaining() throws IOException {
         checkState(!isClosed, "File reader is already closed.");
 
@@ -140,6 +195,10 @@ public class PartitionedFileReader implements AutoCloseable {
         }
         isClosed = true;
 
+        if (!ownsFileChannels) {
+            return;
+        }
+
         IOException exception = null;
         try {
             if (dataFileChannel != null) {
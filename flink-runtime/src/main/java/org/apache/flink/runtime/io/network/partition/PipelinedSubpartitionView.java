@@ -79,6 +79,11 @@ public class PipelinedSubpartitionView implements ResultSubpartitionView {
         parent.resumeConsumption();
     }
 
+    @Override
+    public void notifyNewBufferSize(int newBufferSize) {
+        parent.bufferSize(newBufferSize);
+    }
+
     @Override
     public boolean isAvailable(int numCreditsAvailable) {
         return parent.isAvailable(numCreditsAvailable);
@@ -188,6 +188,12 @@ public abstract class ResultPartition implements ResultPartitionWriter {
         return partitionType;
     }
 
+    /** Returns the compressor of this result partition, or null if the data is not compressed. */
+    @Nullable
+    public BufferCompressor getBufferCompressor() {
+        return bufferCompressor;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -224,6 +230,10 @@ public abstract class ResultPartition implements ResultPartitionWriter {
             }
 
             releaseInternal();
+
+            if (bufferCompressor != null) {
+                bufferCompressor.close();
+            }
         }
     }
 
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.io.network.partition;
 
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.runtime.deployment.ResultPartitionDeploymentDescriptor;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.network.NettyShuffleEnvironment;
 import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
@@ -35,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.Executor;
 import java.util.function.BiFunction;
 
 /** Factory for {@link ResultPartition} to use in {@link NettyShuffleEnvironment}. */
@@ -48,6 +50,10 @@ public class ResultPartitionFactory {
 
     private final BufferPoolFactory bufferPoolFactory;
 
+    private final BatchShuffleReadBufferPool batchShuffleReadBufferPool;
+
+    private final Executor batchShuffleReadIOExecutor;
+
     private final BoundedBlockingSubpartitionType blockingSubpartitionType;
 
     private final int networkBuffersPerChannel;
@@ -60,27 +66,35 @@ public class ResultPartitionFactory {
 
     private final String compressionCodec;
 
+    private final boolean blockingShuffleCompressionAdaptive;
+
     private final int maxBuffersPerChannel;
 
     private final int sortShuffleMinBuffers;
 
     private final int sortShuffleMinParallelism;
 
+    private final int sortShuffleMinRegionsToMerge;
+
     private final boolean sslEnabled;
 
     public ResultPartitionFactory(
             ResultPartitionManager partitionManager,
             FileChannelManager channelManager,
             BufferPoolFactory bufferPoolFactory,
+            BatchShuffleReadBufferPool batchShuffleReadBufferPool,
+            Executor batchShuffleReadIOExecutor,
             BoundedBlockingSubpartitionType blockingSubpartitionType,
             int networkBuffersPerChannel,
             int floatingNetworkBuffersPerGate,
             int networkBufferSize,
             boolean blockingShuffleCompressionEnabled,
             String compressionCodec,
+            boolean blockingShuffleCompressionAdaptive,
             int maxBuffersPerChannel,
             int sortShuffleMinBuffers,
             int sortShuffleMinParallelism,
+            int sortShuffleMinRegionsToMerge,
             boolean sslEnabled) {
 
         this.partitionManager = partitionManager;
@@ -88,13 +102,17 @@ public class ResultPartitionFactory {
         this.networkBuffersPerChannel = networkBuffersPerChannel;
         this.floatingNetworkBuffersPerGate = floatingNetworkBuffersPerGate;
         this.bufferPoolFactory = bufferPoolFactory;
+        this.batchShuffleReadBufferPool = batchShuffleReadBufferPool;
+        this.batchShuffleReadIOExecutor = batchShuffleReadIOExecutor;
         this.blockingSubpartitionType = blockingSubpartitionType;
         this.networkBufferSize = networkBufferSize;
         this.blockingShuffleCompressionEnabled = blockingShuffleCompressionEnabled;
         this.compressionCodec = compressionCodec;
+        this.blockingShuffleCompressionAdaptive = blockingShuffleCompressionAdaptive;
         this.maxBuffersPerChannel = maxBuffersPerChannel;
         this.sortShuffleMinBuffers = sortShuffleMinBuffers;
         this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+        this.sortShuffleMinRegionsToMerge = sortShuffleMinRegionsToMerge;
         this.sslEnabled = sslEnabled;
     }
 
@@ -123,7 +141,11 @@ public class ResultPartitionFactory {
             SupplierWithException<BufferPool, IOException> bufferPoolFactory) {
         BufferCompressor bufferCompressor = null;
         if (type.isBlocking() && blockingShuffleCompressionEnabled) {
-            bufferCompressor = new BufferCompressor(networkBufferSize, compressionCodec);
+            bufferCompressor =
+                    new BufferCompressor(
+                            networkBufferSize,
+                            compressionCodec,
+                            blockingShuffleCompressionAdaptive);
         }
 
         ResultSubpartition[] subpartitions = new ResultSubpartition[numberOfSubpartitions];
@@ -168,6 +190,9 @@ public class ResultPartitionFactory {
                                 subpartitions.length,
                                 maxParallelism,
                                 networkBufferSize,
+                                batchShuffleReadBufferPool,
+                                batchShuffleReadIOExecutor,
+                                sortShuffleMinRegionsToMerge,
                                 partitionManager,
                                 channelManager.createChannel().getPath(),
                                 bufferCompressor,
@@ -195,6 +220,27 @@ public class ResultPartitionFactory {
 
                 partition = blockingPartition;
             }
+        } else if (type == ResultPartitionType.HYBRID) {
+            final HybridResultPartition hybridPartition =
+                    new HybridResultPartition(
+                            taskNameWithSubtaskAndId,
+                            partitionIndex,
+                            id,
+                            type,
+                            subpartitions,
+                            maxParallelism,
+                            partitionManager,
+                            bufferCompressor,
+                            bufferPoolFactory);
+
+            initializeHybridPartitions(
+                    subpartitions,
+                    hybridPartition,
+                    networkBufferSize,
+                    getHybridMaxCachedBuffers(),
+                    channelManager);
+
+            partition = hybridPartition;
         } else {
             throw new IllegalArgumentException("Unrecognized ResultPartitionType: " + type);
         }
@@ -232,6 +278,29 @@ public class ResultPartitionFactory {
         }
     }
 
+    private static void initializeHybridPartitions(
+            ResultSubpartition[] subpartitions,
+            HybridResultPartition parent,
+            int networkBufferSize,
+            int maxCachedBuffers,
+            FileChannelManager channelManager) {
+        int i = 0;
+        try {
+            for (i = 0; i < subpartitions.length; i++) {
+                subpartitions[i] =
+                        new HybridSubpartition(
+                                i,
+                                parent,
+                                channelManager.createChannel().getPathFile().toPath(),
+                                networkBufferSize,
+                                maxCachedBuffers);
+            }
+        } catch (IOException e) {
+            releasePartitionsQuietly(subpartitions, i);
+            throw new FlinkRuntimeException(e);
+        }
+    }
+
     private static void releasePartitionsQuietly(ResultSubpartition[] partitions, int until) {
         for (int i = 0; i < until; i++) {
             final ResultSubpartition subpartition = partitions[i];
@@ -259,10 +328,17 @@ public class ResultPartitionFactory {
                             ? numberOfSubpartitions * networkBuffersPerChannel
                                     + floatingNetworkBuffersPerGate
                             : Integer.MAX_VALUE;
-            int numRequiredBuffers =
-                    !type.isPipelined() && numberOfSubpartitions >= sortShuffleMinParallelism
-                            ? sortShuffleMinBuffers
-                            : numberOfSubpartitions + 1;
+            int numRequiredBuffers;
+            if (type.isHybrid()) {
+                // the buffers kept in memory by the subpartitions are only recycled when the next
+                // buffer is added, so they must not take the buffers the producer needs for that
+                numRequiredBuffers =
+                        numberOfSubpartitions * (getHybridMaxCachedBuffers() + 1) + 1;
+            } else if (!type.isPipelined() && numberOfSubpartitions >= sortShuffleMinParallelism) {
+                numRequiredBuffers = sortShuffleMinBuffers;
+            } else {
+                numRequiredBuffers = numberOfSubpartitions + 1;
+            }
 
             // If the partition type is back pressure-free, we register with the buffer pool for
             // callbacks to release memory.
@@ -274,6 +350,14 @@ public class ResultPartitionFactory {
         };
     }
 
+    /**
+     * Returns the number of written buffers each subpartition of a hybrid partition keeps in
+     * memory. One of the exclusive buffers of a subpartition is used to write new data.
+     */
+    private int getHybridMaxCachedBuffers() {
+        return Math.max(networkBuffersPerChannel - 1, 0);
+    }
+
     static BoundedBlockingSubpartitionType getBoundedBlockingType() {
         switch (ProcessorArchitecture.getMemoryAddressSize()) {
             case _64_BIT:
@@ -32,7 +32,7 @@ public enum ResultPartitionType {
      * {@link #PIPELINED} partitions), but only released through the scheduler, when it determines
      * that the partition is no longer needed.
      */
-    BLOCKING(false, false, false, false, true),
+    BLOCKING(false, false, false, false, true, false),
 
     /**
      * BLOCKING_PERSISTENT partitions are similar to {@link #BLOCKING} partitions, but have a
@@ -45,7 +45,7 @@ public enum ResultPartitionType {
      * scenarios, like when the TaskManager exits or when the TaskManager looses connection to
      * JobManager / ResourceManager for too long.
      */
-    BLOCKING_PERSISTENT(false, false, false, true, true),
+    BLOCKING_PERSISTENT(false, false, false, true, true, false),
 
     /**
      * A pipelined streaming data exchange. This is applicable to both bounded and unbounded
@@ -57,7 +57,7 @@ public enum ResultPartitionType {
      * <p>This result partition type may keep an arbitrary amount of data in-flight, in contrast to
      * the {@link #PIPELINED_BOUNDED} variant.
      */
-    PIPELINED(true, true, false, false, false),
+    PIPELINED(true, true, false, false, false, false),
 
     /**
      * Pipelined partitions with a bounded (local) buffer pool.
@@ -70,7 +70,7 @@ public enum ResultPartitionType {
      * <p>For batch jobs, it will be best to keep this unlimited ({@link #PIPELINED}) since there
      * are no checkpoint barriers.
      */
-    PIPELINED_BOUNDED(true, true, true, false, false),
+    PIPELINED_BOUNDED(true, true, true, false, false, false),
 
     /**
      * Pipelined partitions with a bounded (local) buffer pool to support downstream task to
@@ -81,7 +81,23 @@ public enum ResultPartitionType {
      * in that {@link #PIPELINED_APPROXIMATE} partition can be reconnected after down stream task
      * fails.
      */
-    PIPELINED_APPROXIMATE(true, true, true, false, true);
+    PIPELINED_APPROXIMATE(true, true, true, false, true, false),
+
+    /**
+     * Hybrid partitions are persisted like {@link #BLOCKING} partitions, but their data can also be
+     * consumed while it is being produced.
+     *
+     * <p>Every buffer is written to a file and the most recent buffers of each subpartition are
+     * additionally kept in memory, so that a consumer that keeps up with the producer is served
+     * from memory. Consumers that start late or are restarted read the data from the file and
+     * switch to the in-memory buffers once they caught up. The file does not depend on the progress
+     * of the consumers, so a slow consumer never back pressures the producer.
+     *
+     * <p>For scheduling and failover, hybrid partitions are treated like {@link #BLOCKING}
+     * partitions: they are region boundaries and can be consumed multiple times. The scheduler may
+     * however deploy the consumers as soon as all producers are running.
+     */
+    HYBRID(false, false, true, false, true, true);
 
     /** Can the partition be consumed while being produced? */
     private final boolean isPipelined;
@@ -107,18 +123,23 @@ public enum ResultPartitionType {
      */
     private final boolean isReconnectable;
 
+    /** Can the (blocking) partition be consumed while being produced? */
+    private final boolean isHybrid;
+
     /** Specifies the behaviour of an intermediate result partition at runtime. */
     ResultPartitionType(
             boolean isPipelined,
             boolean hasBackPressure,
             boolean isBounded,
             boolean isPersistent,
-            boolean isReconnectable) {
+            boolean isReconnectable,
+            boolean isHybrid) {
         this.isPipelined = isPipelined;
         this.hasBackPressure = hasBackPressure;
         this.isBounded = isBounded;
         this.isPersistent = isPersistent;
         this.isReconnectable = isReconnectable;
+        this.isHybrid = isHybrid;
     }
 
     public boolean hasBackPressure() {
@@ -149,4 +170,12 @@ public enum ResultPartitionType {
     public boolean isPersistent() {
         return isPersistent;
     }
+
+    /**
+     * Whether this partition is persisted like a blocking partition but can also be consumed while
+     * it is being produced.
+     */
+    public boolean isHybrid() {
+        return isHybrid;
+    }
 }
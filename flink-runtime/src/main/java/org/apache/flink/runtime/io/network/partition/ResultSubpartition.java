@@ -25,6 +25,7 @@ import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 
 import java.io.IOException;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /** A single subpartition of a {@link ResultPartition} instance. */
@@ -36,6 +37,9 @@ public abstract class ResultSubpartition {
     /** The parent partition this subpartition belongs to. */
     protected final ResultPartition parent;
 
+    /** The size new buffers of this subpartition are cut at, as announced by the consumer. */
+    private volatile int bufferSize = Integer.MAX_VALUE;
+
     // - Statistics ----------------------------------------------------------
 
     public ResultSubpartition(int index, ResultPartition parent) {
@@ -56,6 +60,20 @@ public abstract class ResultSubpartition {
         return subpartitionInfo.getSubPartitionIdx();
     }
 
+    /**
+     * Sets the size new buffers of this subpartition should be cut at. Buffers are never larger
+     * than the memory segments of the buffer pool, whatever the announced size.
+     */
+    public void bufferSize(int desirableNewBufferSize) {
+        checkArgument(desirableNewBufferSize > 0, "Buffer size must be positive.");
+        this.bufferSize = desirableNewBufferSize;
+    }
+
+    /** Returns the size new buffers of this subpartition should be cut at. */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
     /** Notifies the parent partition about a consumed {@link ResultSubpartitionView}. */
     protected void onConsumedSubpartition() {
         parent.onConsumedSubpartition(getSubPartitionIndex());
@@ -51,6 +51,12 @@ public interface ResultSubpartitionView {
 
     void resumeConsumption();
 
+    /**
+     * Notifies the subpartition of the buffer size the consumer wants to receive. Only
+     * subpartitions that write their buffers while being consumed can honor it.
+     */
+    default void notifyNewBufferSize(int newBufferSize) {}
+
     Throwable getFailureCause();
 
     boolean isAvailable(int numCreditsAvailable);
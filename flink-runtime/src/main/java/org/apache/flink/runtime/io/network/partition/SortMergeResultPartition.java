@@ -22,6 +22,7 @@ import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.event.AbstractEvent;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
@@ -38,9 +39,8 @@ import javax.annotation.concurrent.NotThreadSafe;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static org.apache.flink.runtime.io.network.buffer.Buffer.DataType;
 import static org.apache.flink.runtime.io.network.partition.SortBuffer.BufferWithChannel;
@@ -52,16 +52,17 @@ import static org.apache.flink.util.Preconditions.checkState;
  * {@link SortBuffer} is full, all data in the {@link SortBuffer} will be copied and spilled to a
  * {@link PartitionedFile} in subpartition index order sequentially. Large records that can not be
  * appended to an empty {@link SortBuffer} will be spilled to the result {@link PartitionedFile}
- * separately.
+ * separately. The data of the {@link PartitionedFile} is read by a {@link
+ * SortMergeResultPartitionReadScheduler} with buffers of the shared {@link
+ * BatchShuffleReadBufferPool}.
  */
 @NotThreadSafe
 public class SortMergeResultPartition extends ResultPartition {
 
     private final Object lock = new Object();
 
-    /** All active readers which are consuming data from this result partition now. */
-    @GuardedBy("lock")
-    private final Set<SortMergeSubpartitionReader> readers = new HashSet<>();
+    /** Scheduler which reads the data of all active readers of this result partition. */
+    private final SortMergeResultPartitionReadScheduler readScheduler;
 
     /** {@link PartitionedFile} produced by this result partition. */
     @GuardedBy("lock")
@@ -79,6 +80,12 @@ public class SortMergeResultPartition extends ResultPartition {
     /** File writer for this result partition. */
     private final PartitionedFileWriter fileWriter;
 
+    /** Base path of the {@link PartitionedFile} produced by this result partition. */
+    private final String resultFileBasePath;
+
+    /** Minimum number of data regions of the produced file to merge its regions. */
+    private final int minRegionsToMerge;
+
     /** Current {@link SortBuffer} to append records to. */
     private SortBuffer currentSortBuffer;
 
@@ -90,6 +97,9 @@ public class SortMergeResultPartition extends ResultPartition {
             int numSubpartitions,
             int numTargetKeyGroups,
             int networkBufferSize,
+            BatchShuffleReadBufferPool readBufferPool,
+            Executor readIOExecutor,
+            int minRegionsToMerge,
             ResultPartitionManager partitionManager,
             String resultFileBasePath,
             @Nullable BufferCompressor bufferCompressor,
@@ -108,7 +118,11 @@ public class SortMergeResultPartition extends ResultPartition {
 
         this.networkBufferSize = networkBufferSize;
         this.numDataBuffers = new int[numSubpartitions];
+        this.resultFileBasePath = resultFileBasePath;
+        this.minRegionsToMerge = minRegionsToMerge;
         this.writeBuffer = MemorySegmentFactory.allocateUnpooledOffHeapMemory(networkBufferSize);
+        this.readScheduler =
+                new SortMergeResultPartitionReadScheduler(readBufferPool, readIOExecutor, lock);
 
         PartitionedFileWriter fileWriter = null;
         try {
@@ -128,7 +142,7 @@ public class SortMergeResultPartition extends ResultPartition {
             }
 
             // delete the produced file only when no reader is reading now
-            if (readers.isEmpty()) {
+            if (readScheduler.getNumReaders() == 0) {
                 if (resultFile != null) {
                     resultFile.deleteQuietly();
                     resultFile = null;
@@ -265,10 +279,10 @@ public class SortMergeResultPartition extends ResultPartition {
 
     void releaseReader(SortMergeSubpartitionReader reader) {
         synchronized (lock) {
-            readers.remove(reader);
+            readScheduler.releaseSubpartitionReader(reader);
 
             // release the result partition if it has been marked as released
-            if (readers.isEmpty() && isReleased()) {
+            if (readScheduler.getNumReaders() == 0 && isReleased()) {
                 releaseInternal();
             }
         }
@@ -286,9 +300,43 @@ public class SortMergeResultPartition extends ResultPartition {
             LOG.info("New partitioned file produced: {}.", resultFile);
         }
 
+        mergeRegionsIfNeeded();
         super.finish();
     }
 
+    /**
+     * Merges the data regions of the produced file into a single region if the file has too many
+     * regions, so that every consumer can read its data sequentially.
+     */
+    private void mergeRegionsIfNeeded() throws IOException {
+        PartitionedFile sourceFile;
+        synchronized (lock) {
+            sourceFile = resultFile;
+            if (sourceFile == null || sourceFile.getNumRegions() < minRegionsToMerge) {
+                return;
+            }
+        }
+
+        PartitionedFile mergedFile =
+                PartitionedFileMerger.merge(
+                        sourceFile, resultFileBasePath + ".merged", writeBuffer, bufferCompressor);
+
+        synchronized (lock) {
+            if (isReleased()) {
+                mergedFile.deleteQuietly();
+                return;
+            }
+
+            sourceFile.deleteQuietly();
+            resultFile = mergedFile;
+            LOG.info(
+                    "Merged {} data regions of {} into {}.",
+                    sourceFile.getNumRegions(),
+                    sourceFile,
+                    mergedFile);
+        }
+    }
+
     @Override
     public void close() {
         releaseCurrentSortBuffer();
@@ -306,17 +354,12 @@ public class SortMergeResultPartition extends ResultPartition {
             checkState(!isReleased(), "Partition released.");
             checkState(isFinished(), "Trying to read unfinished blocking partition.");
 
-            SortMergeSubpartitionReader reader =
-                    new SortMergeSubpartitionReader(
-                            subpartitionIndex,
-                            numDataBuffers[subpartitionIndex],
-                            networkBufferSize,
-                            this,
-                            availabilityListener,
-                            resultFile);
-            readers.add(reader);
-
-            return reader;
+            return readScheduler.createSubpartitionReader(
+                    this,
+                    availabilityListener,
+                    subpartitionIndex,
+                    resultFile,
+                    numDataBuffers[subpartitionIndex]);
         }
     }
 
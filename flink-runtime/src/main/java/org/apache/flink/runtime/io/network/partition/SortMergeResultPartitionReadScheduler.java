@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.TaskManagerOptions;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.util.IOUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Reads the data of all {@link SortMergeSubpartitionReader}s of a {@link SortMergeResultPartition}
+ * in the IO thread pool of the TaskExecutor.
+ *
+ * <p>Instead of every reader reading its subpartition with its own buffers, each reading round
+ * requests a batch of buffers from the shared {@link BatchShuffleReadBufferPool} and reads the
+ * current data region of the readers in the order of their offset in the data file. This turns the
+ * random reads of many consumers into sequential reads of the file. All readers share one data and
+ * one index file channel, which are only accessed by one reading round at a time.
+ */
+class SortMergeResultPartitionReadScheduler implements Runnable, BufferRecycler {
+
+    private static final Logger LOG =
+            LoggerFactory.getLogger(SortMergeResultPartitionReadScheduler.class);
+
+    /** Max time to wait for read buffers before the readers are failed. */
+    private static final long BUFFER_REQUEST_TIMEOUT_MILLIS = 5 * 60 * 1000;
+
+    /** Lock of the {@link SortMergeResultPartition} this scheduler reads data for. */
+    private final Object lock;
+
+    /** Buffer pool to request read buffers from. */
+    private final BatchShuffleReadBufferPool bufferPool;
+
+    /** Executor to run the reading rounds. */
+    private final Executor ioExecutor;
+
+    /** Max number of buffers this scheduler can occupy, to leave buffers to other partitions. */
+    private final int maxRequestedBuffers;
+
+    /** All readers of the partition which are not released yet. */
+    @GuardedBy("lock")
+    private final Set<SortMergeSubpartitionReader> allReaders = new HashSet<>();
+
+    /** Readers which still have data to read. */
+    @GuardedBy("lock")
+    private final Set<SortMergeSubpartitionReader> readersToRead = new HashSet<>();
+
+    /** Data file channel shared by all readers. */
+    @GuardedBy("lock")
+    private FileChannel dataFileChannel;
+
+    /** Index file channel shared by all readers. */
+    @GuardedBy("lock")
+    private FileChannel indexFileChannel;
+
+    /** Number of buffers requested from the pool and not recycled yet. */
+    @GuardedBy("lock")
+    private int numRequestedBuffers;
+
+    /** Whether a reading round is submitted or running. */
+    @GuardedBy("lock")
+    private boolean isRunning;
+
+    SortMergeResultPartitionReadScheduler(
+            BatchShuffleReadBufferPool bufferPool, Executor ioExecutor, Object lock) {
+        this.bufferPool = checkNotNull(bufferPool);
+        this.ioExecutor = checkNotNull(ioExecutor);
+        this.lock = checkNotNull(lock);
+        this.maxRequestedBuffers =
+                Math.max(bufferPool.getNumBuffersPerRequest(), bufferPool.getNumTotalBuffers() / 2);
+    }
+
+    @Override
+    public void run() {
+        Queue<MemorySegment> buffers = new ArrayDeque<>();
+        try {
+            Queue<SortMergeSubpartitionReader> readers = getReadersToRead();
+            if (!readers.isEmpty()) {
+                buffers.addAll(allocateBuffers());
+            }
+
+            while (!readers.isEmpty() && !buffers.isEmpty()) {
+                SortMergeSubpartitionReader reader = readers.poll();
+                try {
+                    if (!reader.readBuffers(buffers, this)) {
+                        removeFinishedReader(reader);
+                    }
+                } catch (Throwable throwable) {
+                    LOG.debug("Failed to read shuffle data.", throwable);
+                    reader.fail(throwable);
+                }
+            }
+        } catch (Throwable throwable) {
+            LOG.error("Failed to read shuffle data.", throwable);
+            failReaders(throwable);
+        } finally {
+            synchronized (lock) {
+                numRequestedBuffers -= buffers.size();
+                bufferPool.recycle(buffers);
+                isRunning = false;
+                mayTriggerReading();
+            }
+        }
+    }
+
+    /**
+     * Returns the readers with remaining data sorted by the file offset of the data to read next,
+     * so that the data file is read sequentially.
+     */
+    private Queue<SortMergeSubpartitionReader> getReadersToRead() {
+        List<SortMergeSubpartitionReader> candidates;
+        synchronized (lock) {
+            candidates = new ArrayList<>(readersToRead);
+        }
+
+        PriorityQueue<SortMergeSubpartitionReader> readers = new PriorityQueue<>();
+        for (SortMergeSubpartitionReader reader : candidates) {
+            try {
+                if (reader.getFileReader().hasRemaining()) {
+                    readers.add(reader);
+                } else {
+                    removeFinishedReader(reader);
+                }
+            } catch (Throwable throwable) {
+                reader.fail(throwable);
+            }
+        }
+        return readers;
+    }
+
+    private List<MemorySegment> allocateBuffers() throws Exception {
+        long deadline = System.currentTimeMillis() + BUFFER_REQUEST_TIMEOUT_MILLIS;
+        while (true) {
+            List<MemorySegment> buffers = bufferPool.requestBuffers();
+            synchronized (lock) {
+                numRequestedBuffers += buffers.size();
+                if (!buffers.isEmpty() || readersToRead.isEmpty()) {
+                    return buffers;
+                }
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                throw new TimeoutException(
+                        String.format(
+                                "Can not allocate enough buffers to read data within %d ms. "
+                                        + "Please consider increasing '%s'.",
+                                BUFFER_REQUEST_TIMEOUT_MILLIS,
+                                TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY.key()));
+            }
+        }
+    }
+
+    private void removeFinishedReader(SortMergeSubpartitionReader reader) {
+        synchronized (lock) {
+            readersToRead.remove(reader);
+        }
+    }
+
+    private void failReaders(Throwable throwable) {
+        List<SortMergeSubpartitionReader> readers;
+        synchronized (lock) {
+            readers = new ArrayList<>(readersToRead);
+        }
+        for (SortMergeSubpartitionReader reader : readers) {
+            reader.fail(throwable);
+        }
+    }
+
+    @GuardedBy("lock")
+    private void mayTriggerReading() {
+        if (!isRunning
+                && !readersToRead.isEmpty()
+                && numRequestedBuffers + bufferPool.getNumBuffersPerRequest()
+                        <= maxRequestedBuffers) {
+            isRunning = true;
+            ioExecutor.execute(this);
+        }
+    }
+
+    /** Creates a reader of the given subpartition and triggers reading its data. */
+    SortMergeSubpartitionReader createSubpartitionReader(
+            SortMergeResultPartition partition,
+            BufferAvailabilityListener availabilityListener,
+            int targetSubpartition,
+            PartitionedFile resultFile,
+            int dataBufferBacklog)
+            throws IOException {
+        synchronized (lock) {
+            if (dataFileChannel == null) {
+                openFileChannels(resultFile);
+            }
+
+            PartitionedFileReader fileReader =
+                    new PartitionedFileReader(
+                            resultFile, targetSubpartition, dataFileChannel, indexFileChannel);
+            SortMergeSubpartitionReader reader =
+                    new SortMergeSubpartitionReader(
+                            dataBufferBacklog, partition, availabilityListener, fileReader);
+
+            allReaders.add(reader);
+            readersToRead.add(reader);
+            mayTriggerReading();
+            return reader;
+        }
+    }
+
+    /** Removes the released reader, the file channels are closed after the last reader. */
+    void releaseSubpartitionReader(SortMergeSubpartitionReader reader) {
+        synchronized (lock) {
+            allReaders.remove(reader);
+            readersToRead.remove(reader);
+
+            if (allReaders.isEmpty()) {
+                closeFileChannels();
+            }
+        }
+    }
+
+    @GuardedBy("lock")
+    private void openFileChannels(PartitionedFile resultFile) throws IOException {
+        dataFileChannel = PartitionedFileReader.openFileChannel(resultFile.getDataFilePath());
+        try {
+            indexFileChannel = PartitionedFileReader.openFileChannel(resultFile.getIndexFilePath());
+        } catch (Throwable throwable) {
+            closeFileChannels();
+            throw throwable;
+        }
+    }
+
+    @GuardedBy("lock")
+    private void closeFileChannels() {
+        IOUtils.closeAllQuietly(dataFileChannel, indexFileChannel);
+        dataFileChannel = null;
+        indexFileChannel = null;
+    }
+
+    /** Returns the number of readers which are not released yet. */
+    int getNumReaders() {
+        synchronized (lock) {
+            return allReaders.size();
+        }
+    }
+
+    @VisibleForTesting
+    int getNumRequestedBuffers() {
+        synchronized (lock) {
+            return numRequestedBuffers;
+        }
+    }
+
+    @Override
+    public void recycle(MemorySegment segment) {
+        synchronized (lock) {
+            --numRequestedBuffers;
+            bufferPool.recycle(segment);
+            mayTriggerReading();
+        }
+    }
+}
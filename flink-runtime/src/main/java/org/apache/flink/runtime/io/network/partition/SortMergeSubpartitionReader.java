@@ -19,14 +19,12 @@
 package org.apache.flink.runtime.io.network.partition;
 
 import org.apache.flink.core.memory.MemorySegment;
-import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
-import org.apache.flink.util.ExceptionUtils;
-import org.apache.flink.util.IOUtils;
 
 import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
 
 import java.io.IOException;
 import java.util.ArrayDeque;
@@ -35,10 +33,15 @@ import java.util.Queue;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
-/** Subpartition data reader for {@link SortMergeResultPartition}. */
-public class SortMergeSubpartitionReader implements ResultSubpartitionView, BufferRecycler {
+/**
+ * Subpartition data reader for {@link SortMergeResultPartition}. The data is read from the {@link
+ * PartitionedFile} by the {@link SortMergeResultPartitionReadScheduler} of the partition, which
+ * reads all readers of the partition in file offset order.
+ */
+public class SortMergeSubpartitionReader
+        implements ResultSubpartitionView, Comparable<SortMergeSubpartitionReader> {
 
-    private static final int NUM_READ_BUFFERS = 2;
+    private final Object lock = new Object();
 
     /** Target {@link SortMergeResultPartition} to read data from. */
     private final SortMergeResultPartition partition;
@@ -46,127 +49,175 @@ public class SortMergeSubpartitionReader implements ResultSubpartitionView, Buff
     /** Listener to notify when data is available. */
     private final BufferAvailabilityListener availabilityListener;
 
-    /** Unmanaged memory used as read buffers. */
-    private final Queue<MemorySegment> readBuffers = new ArrayDeque<>();
-
     /** Buffers read by the file reader. */
+    @GuardedBy("lock")
     private final Queue<Buffer> buffersRead = new ArrayDeque<>();
 
-    /** File reader used to read buffer from. */
+    /** File reader used to read buffer from, only accessed by the read scheduler. */
     private final PartitionedFileReader fileReader;
 
     /** Number of remaining non-event buffers to read. */
+    @GuardedBy("lock")
     private int dataBufferBacklog;
 
     /** Whether this reader is released or not. */
+    @GuardedBy("lock")
     private boolean isReleased;
 
+    /** Cause of the failure of this reader, if reading the data failed. */
+    @GuardedBy("lock")
+    private Throwable failureCause;
+
     /** Sequence number of the next buffer to be sent to the consumer. */
     private int sequenceNumber;
 
     public SortMergeSubpartitionReader(
-            int subpartitionIndex,
             int dataBufferBacklog,
-            int bufferSize,
             SortMergeResultPartition partition,
             BufferAvailabilityListener listener,
-            PartitionedFile partitionedFile)
-            throws IOException {
+            PartitionedFileReader fileReader) {
         this.partition = checkNotNull(partition);
         this.availabilityListener = checkNotNull(listener);
+        this.fileReader = checkNotNull(fileReader);
         this.dataBufferBacklog = dataBufferBacklog;
-
-        // allocate two pieces of unmanaged segments for data reading
-        for (int i = 0; i < NUM_READ_BUFFERS; i++) {
-            this.readBuffers.add(
-                    MemorySegmentFactory.allocateUnpooledOffHeapMemory(bufferSize, null));
-        }
-
-        this.fileReader = new PartitionedFileReader(partitionedFile, subpartitionIndex);
-        try {
-            readBuffers();
-        } catch (Throwable throwable) {
-            // ensure that the file reader is closed when any exception occurs
-            IOUtils.closeQuietly(fileReader);
-            throw throwable;
-        }
     }
 
     @Nullable
     @Override
     public BufferAndBacklog getNextBuffer() {
-        checkState(!isReleased, "Reader is already released.");
+        synchronized (lock) {
+            checkState(!isReleased, "Reader is already released.");
 
-        Buffer buffer = buffersRead.poll();
-        if (buffer == null) {
-            return null;
-        }
+            Buffer buffer = buffersRead.poll();
+            if (buffer == null) {
+                return null;
+            }
 
-        if (buffer.isBuffer()) {
-            --dataBufferBacklog;
-        }
+            if (buffer.isBuffer()) {
+                --dataBufferBacklog;
+            }
 
-        final Buffer lookAhead = buffersRead.peek();
+            final Buffer lookAhead = buffersRead.peek();
 
-        return BufferAndBacklog.fromBufferAndLookahead(
-                buffer,
-                lookAhead == null ? Buffer.DataType.NONE : lookAhead.getDataType(),
-                dataBufferBacklog,
-                sequenceNumber++);
+            return BufferAndBacklog.fromBufferAndLookahead(
+                    buffer,
+                    lookAhead == null ? Buffer.DataType.NONE : lookAhead.getDataType(),
+                    dataBufferBacklog,
+                    sequenceNumber++);
+        }
     }
 
-    void readBuffers() throws IOException {
-        // we do not need to recycle the allocated segment here if any exception occurs
-        // for this subpartition reader will be released so no resource will be leaked
+    /**
+     * Reads the current data region of the subpartition into the given segments, until the segments
+     * or the region are exhausted. Must only be called by the read scheduler.
+     *
+     * @return whether there is remaining data to read.
+     */
+    boolean readBuffers(Queue<MemorySegment> buffers, BufferRecycler recycler) throws IOException {
+        boolean notifyAvailable;
+        synchronized (lock) {
+            if (isReleased) {
+                return false;
+            }
+            notifyAvailable = buffersRead.isEmpty();
+        }
+
+        Queue<Buffer> readBuffers = new ArrayDeque<>();
         MemorySegment segment;
-        while ((segment = readBuffers.poll()) != null) {
-            Buffer buffer = fileReader.readBuffer(segment, this);
+        while ((segment = buffers.poll()) != null) {
+            Buffer buffer;
+            try {
+                buffer = fileReader.readCurrentRegion(segment, recycler);
+            } catch (Throwable throwable) {
+                buffers.add(segment);
+                readBuffers.forEach(Buffer::recycleBuffer);
+                throw throwable;
+            }
             if (buffer == null) {
-                readBuffers.add(segment);
+                buffers.add(segment);
                 break;
             }
-            buffersRead.add(buffer);
+            readBuffers.add(buffer);
         }
-    }
 
-    @Override
-    public void notifyDataAvailable() {
-        if (!buffersRead.isEmpty()) {
+        boolean hasRemaining = fileReader.hasRemaining();
+        synchronized (lock) {
+            if (isReleased) {
+                readBuffers.forEach(Buffer::recycleBuffer);
+                return false;
+            }
+            buffersRead.addAll(readBuffers);
+            notifyAvailable &= !buffersRead.isEmpty();
+        }
+
+        if (notifyAvailable) {
             availabilityListener.notifyDataAvailable();
         }
+        return hasRemaining;
     }
 
-    @Override
-    public void recycle(MemorySegment segment) {
-        if (!isReleased) {
-            readBuffers.add(segment);
+    /** Fails this reader, the consumer is notified about the failure cause. */
+    void fail(Throwable throwable) {
+        synchronized (lock) {
+            if (isReleased) {
+                return;
+            }
+            failureCause = checkNotNull(throwable);
+            isReleased = true;
+            recycleReadBuffers();
         }
 
-        // notify data available if the reader is unavailable currently
-        if (!isReleased && readBuffers.size() == NUM_READ_BUFFERS) {
-            try {
-                readBuffers();
-            } catch (IOException exception) {
-                ExceptionUtils.rethrow(exception, "Failed to read next buffer.");
-            }
-            notifyDataAvailable();
+        availabilityListener.notifyDataAvailable();
+        partition.releaseReader(this);
+    }
+
+    @GuardedBy("lock")
+    private void recycleReadBuffers() {
+        Buffer buffer;
+        while ((buffer = buffersRead.poll()) != null) {
+            buffer.recycleBuffer();
         }
     }
 
+    PartitionedFileReader getFileReader() {
+        return fileReader;
+    }
+
     @Override
-    public void releaseAllResources() {
-        isReleased = true;
+    public int compareTo(SortMergeSubpartitionReader that) {
+        return Long.compare(
+                fileReader.getNextOffsetToRead(), that.fileReader.getNextOffsetToRead());
+    }
 
-        buffersRead.clear();
-        readBuffers.clear();
+    @Override
+    public void notifyDataAvailable() {
+        boolean isAvailable;
+        synchronized (lock) {
+            isAvailable = !buffersRead.isEmpty();
+        }
+        if (isAvailable) {
+            availabilityListener.notifyDataAvailable();
+        }
+    }
+
+    @Override
+    public void releaseAllResources() {
+        synchronized (lock) {
+            if (isReleased) {
+                return;
+            }
+            isReleased = true;
+            recycleReadBuffers();
+        }
 
-        IOUtils.closeQuietly(fileReader);
         partition.releaseReader(this);
     }
 
     @Override
     public boolean isReleased() {
-        return isReleased;
+        synchronized (lock) {
+            return isReleased;
+        }
     }
 
     @Override
@@ -176,21 +227,25 @@ public class SortMergeSubpartitionReader implements ResultSubpartitionView, Buff
 
     @Override
     public Throwable getFailureCause() {
-        // we can never throw an error after this was created
-        return null;
+        synchronized (lock) {
+            return failureCause;
+        }
     }
 
     @Override
     public boolean isAvailable(int numCreditsAvailable) {
-        if (numCreditsAvailable > 0) {
-            return !buffersRead.isEmpty();
-        }
+        synchronized (lock) {
+            if (numCreditsAvailable > 0) {
+                return !buffersRead.isEmpty();
+            }
 
-        return !buffersRead.isEmpty() && !buffersRead.peek().isBuffer();
+            return !buffersRead.isEmpty() && !buffersRead.peek().isBuffer();
+        }
     }
 
     @Override
     public int unsynchronizedGetNumberOfQueuedBuffers() {
-        return 0;
+        // this is a best-effort value without synchronization
+        return buffersRead.size();
     }
 }
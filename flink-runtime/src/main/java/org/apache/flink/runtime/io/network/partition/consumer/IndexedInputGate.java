@@ -46,6 +46,12 @@ public abstract class IndexedInputGate extends InputGate implements Checkpointab
         }
     }
 
+    /**
+     * Recalculates the buffer size of this gate from its measured throughput and announces it to
+     * the producers, if buffer debloating is enabled. Must be called from the task thread.
+     */
+    public void triggerDebloating() {}
+
     @Override
     public int getInputGateIndex() {
         return getGateIndex();
@@ -130,6 +130,12 @@ public abstract class InputChannel {
      */
     public abstract void resumeConsumption() throws IOException;
 
+    /**
+     * Announces the buffer size this channel wants to receive to its producer. Channels which don't
+     * consume from a running producer ignore it.
+     */
+    void announceBufferSize(int newBufferSize) {}
+
     /**
      * Notifies the owning {@link SingleInputGate} that this channel became non-empty.
      *
@@ -292,6 +292,15 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
         }
     }
 
+    @Override
+    void announceBufferSize(int newBufferSize) {
+        // the partition may not have been requested yet
+        ResultSubpartitionView view = subpartitionView;
+        if (view != null && !isReleased) {
+            view.notifyNewBufferSize(newBufferSize);
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Task events
     // ------------------------------------------------------------------------
@@ -345,6 +345,15 @@ public class RemoteInputChannel extends InputChannel {
         partitionRequestClient.resumeConsumption(this);
     }
 
+    @Override
+    void announceBufferSize(int newBufferSize) {
+        // the partition may not have been requested yet
+        PartitionRequestClient client = partitionRequestClient;
+        if (client != null && !isReleased.get()) {
+            client.notifyNewBufferSize(this, newBufferSize);
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Network I/O notifications (called by network I/O thread)
     // ------------------------------------------------------------------------
@@ -43,6 +43,8 @@ import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.shuffle.NettyShuffleDescriptor;
+import org.apache.flink.runtime.throughput.BufferDebloater;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.function.SupplierWithException;
 
@@ -56,6 +58,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -135,12 +138,22 @@ public class SingleInputGate extends IndexedInputGate {
      */
     private final int consumedSubpartitionIndex;
 
-    /** The number of input channels (equivalent to the number of consumed partitions). */
+    /**
+     * The number of consecutive subpartitions, starting at {@link #consumedSubpartitionIndex},
+     * which are consumed of each consumed partition.
+     */
+    private final int numberOfConsumedSubpartitions;
+
+    /**
+     * The number of input channels (equivalent to the number of consumed partitions times the
+     * number of consumed subpartitions).
+     */
     private final int numberOfInputChannels;
 
     /**
-     * Input channels. There is a one input channel for each consumed intermediate result partition.
-     * We store this in a map for runtime updates of single channels.
+     * The first input channel of each consumed intermediate result partition. We store this in a
+     * map for runtime updates of single partitions. The channels consuming the subpartitions of a
+     * partition have consecutive indices, see {@link #getConsumedSubpartitionIndex(int)}.
      */
     private final Map<IntermediateResultPartitionID, InputChannel> inputChannels;
 
@@ -197,18 +210,27 @@ public class SingleInputGate extends IndexedInputGate {
      */
     private final MemorySegment unpooledSegment;
 
+    /** Measures the consumed bytes per second, only accessed by the task thread. */
+    private final ThroughputCalculator throughputCalculator;
+
+    /** Calculates the buffer size to announce, or null if buffer debloating is disabled. */
+    @Nullable private final BufferDebloater bufferDebloater;
+
     public SingleInputGate(
             String owningTaskName,
             int gateIndex,
             IntermediateDataSetID consumedResultId,
             final ResultPartitionType consumedPartitionType,
             int consumedSubpartitionIndex,
+            int numberOfConsumedSubpartitions,
             int numberOfInputChannels,
             PartitionProducerStateProvider partitionProducerStateProvider,
             SupplierWithException<BufferPool, IOException> bufferPoolFactory,
             @Nullable BufferDecompressor bufferDecompressor,
             MemorySegmentProvider memorySegmentProvider,
-            int segmentSize) {
+            int segmentSize,
+            ThroughputCalculator throughputCalculator,
+            @Nullable BufferDebloater bufferDebloater) {
 
         this.owningTaskName = checkNotNull(owningTaskName);
         Preconditions.checkArgument(0 <= gateIndex, "The gate index must be positive.");
@@ -221,10 +243,14 @@ public class SingleInputGate extends IndexedInputGate {
         checkArgument(consumedSubpartitionIndex >= 0);
         this.consumedSubpartitionIndex = consumedSubpartitionIndex;
 
+        checkArgument(numberOfConsumedSubpartitions > 0);
+        this.numberOfConsumedSubpartitions = numberOfConsumedSubpartitions;
+
         checkArgument(numberOfInputChannels > 0);
+        checkArgument(numberOfInputChannels % numberOfConsumedSubpartitions == 0);
         this.numberOfInputChannels = numberOfInputChannels;
 
-        this.inputChannels = new HashMap<>(numberOfInputChannels);
+        this.inputChannels = new HashMap<>(numberOfInputChannels / numberOfConsumedSubpartitions);
         this.channels = new InputChannel[numberOfInputChannels];
         this.channelsWithEndOfPartitionEvents = new BitSet(numberOfInputChannels);
         this.enqueuedInputChannelsWithData = new BitSet(numberOfInputChannels);
@@ -239,6 +265,9 @@ public class SingleInputGate extends IndexedInputGate {
         this.closeFuture = new CompletableFuture<>();
 
         this.unpooledSegment = MemorySegmentFactory.allocateUnpooledSegment(segmentSize);
+
+        this.throughputCalculator = checkNotNull(throughputCalculator);
+        this.bufferDebloater = bufferDebloater;
     }
 
     protected PrioritizedDeque<InputChannel> getInputChannelsWithData() {
@@ -259,8 +288,8 @@ public class SingleInputGate extends IndexedInputGate {
     @Override
     public CompletableFuture<Void> getStateConsumedFuture() {
         synchronized (requestLock) {
-            List<CompletableFuture<?>> futures = new ArrayList<>(inputChannels.size());
-            for (InputChannel inputChannel : inputChannels.values()) {
+            List<CompletableFuture<?>> futures = new ArrayList<>(numberOfInputChannels);
+            for (InputChannel inputChannel : channels) {
                 if (inputChannel instanceof RecoveredInputChannel) {
                     futures.add(((RecoveredInputChannel) inputChannel).getStateConsumedFuture());
                 }
@@ -278,13 +307,14 @@ public class SingleInputGate extends IndexedInputGate {
                 }
 
                 // Sanity checks
-                if (numberOfInputChannels != inputChannels.size()) {
+                if (numberOfInputChannels != inputChannels.size() * numberOfConsumedSubpartitions) {
                     throw new IllegalStateException(
                             String.format(
                                     "Bug in input gate setup logic: mismatch between "
                                             + "number of total input channels [%s] and the currently set number of input "
                                             + "channels [%s].",
-                                    inputChannels.size(), numberOfInputChannels));
+                                    inputChannels.size() * numberOfConsumedSubpartitions,
+                                    numberOfInputChannels));
                 }
 
                 convertRecoveredInputChannels();
@@ -297,15 +327,16 @@ public class SingleInputGate extends IndexedInputGate {
 
     @VisibleForTesting
     void convertRecoveredInputChannels() {
-        for (Map.Entry<IntermediateResultPartitionID, InputChannel> entry :
-                inputChannels.entrySet()) {
-            InputChannel inputChannel = entry.getValue();
+        for (InputChannel inputChannel : channels) {
             if (inputChannel instanceof RecoveredInputChannel) {
                 try {
                     InputChannel realInputChannel =
                             ((RecoveredInputChannel) inputChannel).toInputChannel();
                     inputChannel.releaseAllResources();
-                    entry.setValue(realInputChannel);
+                    inputChannels.replace(
+                            inputChannel.getPartitionId().getPartitionId(),
+                            inputChannel,
+                            realInputChannel);
                     channels[inputChannel.getChannelIndex()] = realInputChannel;
                 } catch (Throwable t) {
                     inputChannel.setError(t);
@@ -316,9 +347,10 @@ public class SingleInputGate extends IndexedInputGate {
     }
 
     private void internalRequestPartitions() {
-        for (InputChannel inputChannel : inputChannels.values()) {
+        for (InputChannel inputChannel : channels) {
             try {
-                inputChannel.requestSubpartition(consumedSubpartitionIndex);
+                inputChannel.requestSubpartition(
+                        getConsumedSubpartitionIndex(inputChannel.getChannelIndex()));
             } catch (Throwable t) {
                 inputChannel.setError(t);
                 return;
@@ -380,7 +412,7 @@ public class SingleInputGate extends IndexedInputGate {
             try {
                 int totalBuffers = 0;
 
-                for (InputChannel channel : inputChannels.values()) {
+                for (InputChannel channel : channels) {
                     totalBuffers += channel.unsynchronizedGetNumberOfQueuedBuffers();
                 }
 
@@ -401,6 +433,11 @@ public class SingleInputGate extends IndexedInputGate {
         return channels[channelIndex];
     }
 
+    /** Returns the index of the subpartition which the input channel with the given index reads. */
+    int getConsumedSubpartitionIndex(int channelIndex) {
+        return consumedSubpartitionIndex + channelIndex % numberOfConsumedSubpartitions;
+    }
+
     // ------------------------------------------------------------------------
     // Setup/Life-cycle
     // ------------------------------------------------------------------------
@@ -418,7 +455,7 @@ public class SingleInputGate extends IndexedInputGate {
     @VisibleForTesting
     public void setupChannels() throws IOException {
         synchronized (requestLock) {
-            for (InputChannel inputChannel : inputChannels.values()) {
+            for (InputChannel inputChannel : channels) {
                 inputChannel.setup();
             }
         }
@@ -438,7 +475,7 @@ public class SingleInputGate extends IndexedInputGate {
             for (InputChannel inputChannel : channels) {
                 IntermediateResultPartitionID partitionId =
                         inputChannel.getPartitionId().getPartitionId();
-                if (inputChannels.put(partitionId, inputChannel) == null
+                if (inputChannels.putIfAbsent(partitionId, inputChannel) == null
                         && inputChannel instanceof UnknownInputChannel) {
 
                     numberOfUninitializedChannels++;
@@ -462,29 +499,38 @@ public class SingleInputGate extends IndexedInputGate {
             InputChannel current = inputChannels.get(partitionId);
 
             if (current instanceof UnknownInputChannel) {
-                UnknownInputChannel unknownChannel = (UnknownInputChannel) current;
                 boolean isLocal = shuffleDescriptor.isLocalTo(localLocation);
-                InputChannel newChannel;
-                if (isLocal) {
-                    newChannel = unknownChannel.toLocalInputChannel();
-                } else {
-                    RemoteInputChannel remoteInputChannel =
-                            unknownChannel.toRemoteInputChannel(
-                                    shuffleDescriptor.getConnectionId());
-                    remoteInputChannel.setup();
-                    newChannel = remoteInputChannel;
-                }
-                LOG.debug("{}: Updated unknown input channel to {}.", owningTaskName, newChannel);
+                int firstChannelIndex = current.getChannelIndex();
+                for (int channelIndex = firstChannelIndex;
+                        channelIndex < firstChannelIndex + numberOfConsumedSubpartitions;
+                        channelIndex++) {
+                    UnknownInputChannel unknownChannel =
+                            (UnknownInputChannel) channels[channelIndex];
+                    InputChannel newChannel;
+                    if (isLocal) {
+                        newChannel = unknownChannel.toLocalInputChannel();
+                    } else {
+                        RemoteInputChannel remoteInputChannel =
+                                unknownChannel.toRemoteInputChannel(
+                                        shuffleDescriptor.getConnectionId());
+                        remoteInputChannel.setup();
+                        newChannel = remoteInputChannel;
+                    }
+                    LOG.debug(
+                            "{}: Updated unknown input channel to {}.", owningTaskName, newChannel);
 
-                inputChannels.put(partitionId, newChannel);
-                channels[current.getChannelIndex()] = newChannel;
+                    channels[channelIndex] = newChannel;
 
-                if (requestedPartitionsFlag) {
-                    newChannel.requestSubpartition(consumedSubpartitionIndex);
+                    if (requestedPartitionsFlag) {
+                        newChannel.requestSubpartition(getConsumedSubpartitionIndex(channelIndex));
+                    }
                 }
 
+                // task events are sent once per partition
+                InputChannel newFirstChannel = channels[firstChannelIndex];
+                inputChannels.put(partitionId, newFirstChannel);
                 for (TaskEvent event : pendingEvents) {
-                    newChannel.sendTaskEvent(event);
+                    newFirstChannel.sendTaskEvent(event);
                 }
 
                 if (--numberOfUninitializedChannels == 0) {
@@ -499,31 +545,40 @@ public class SingleInputGate extends IndexedInputGate {
             throws IOException {
         synchronized (requestLock) {
             if (!closeFuture.isDone()) {
-                final InputChannel ch = inputChannels.get(partitionId);
-
-                checkNotNull(ch, "Unknown input channel with ID " + partitionId);
-
-                LOG.debug(
-                        "{}: Retriggering partition request {}:{}.",
-                        owningTaskName,
-                        ch.partitionId,
-                        consumedSubpartitionIndex);
-
-                if (ch.getClass() == RemoteInputChannel.class) {
-                    final RemoteInputChannel rch = (RemoteInputChannel) ch;
-                    rch.retriggerSubpartitionRequest(consumedSubpartitionIndex);
-                } else if (ch.getClass() == LocalInputChannel.class) {
-                    final LocalInputChannel ich = (LocalInputChannel) ch;
+                final InputChannel firstChannel = inputChannels.get(partitionId);
+
+                checkNotNull(firstChannel, "Unknown input channel with ID " + partitionId);
+
+                int firstChannelIndex = firstChannel.getChannelIndex();
+                for (int channelIndex = firstChannelIndex;
+                        channelIndex < firstChannelIndex + numberOfConsumedSubpartitions;
+                        channelIndex++) {
+                    final InputChannel ch = channels[channelIndex];
+                    final int subpartitionIndex = getConsumedSubpartitionIndex(channelIndex);
+
+                    LOG.debug(
+                            "{}: Retriggering partition request {}:{}.",
+                            owningTaskName,
+                            ch.partitionId,
+                            subpartitionIndex);
+
+                    if (ch.getClass() == RemoteInputChannel.class) {
+                        final RemoteInputChannel rch = (RemoteInputChannel) ch;
+                        rch.retriggerSubpartitionRequest(subpartitionIndex);
+                    } else if (ch.getClass() == LocalInputChannel.class) {
+                        final LocalInputChannel ich = (LocalInputChannel) ch;
+
+                        if (retriggerLocalRequestTimer == null) {
+                            retriggerLocalRequestTimer = new Timer(true);
+                        }
 
-                    if (retriggerLocalRequestTimer == null) {
-                        retriggerLocalRequestTimer = new Timer(true);
+                        ich.retriggerSubpartitionRequest(
+                                retriggerLocalRequestTimer, subpartitionIndex);
+                    } else {
+                        throw new IllegalStateException(
+                                "Unexpected type of channel to retrigger partition: "
+                                        + ch.getClass());
                     }
-
-                    ich.retriggerSubpartitionRequest(
-                            retriggerLocalRequestTimer, consumedSubpartitionIndex);
-                } else {
-                    throw new IllegalStateException(
-                            "Unexpected type of channel to retrigger partition: " + ch.getClass());
                 }
             }
         }
@@ -550,7 +605,11 @@ public class SingleInputGate extends IndexedInputGate {
                         retriggerLocalRequestTimer.cancel();
                     }
 
-                    for (InputChannel inputChannel : inputChannels.values()) {
+                    for (InputChannel inputChannel : channels) {
+                        if (inputChannel == null) {
+                            // the gate is closed before its channels were set
+                            continue;
+                        }
                         try {
                             inputChannel.releaseAllResources();
                         } catch (IOException e) {
@@ -567,6 +626,10 @@ public class SingleInputGate extends IndexedInputGate {
                     if (bufferPool != null) {
                         bufferPool.lazyDestroy();
                     }
+
+                    if (bufferDecompressor != null) {
+                        bufferDecompressor.close();
+                    }
                 } finally {
                     released = true;
                     closeFuture.complete(null);
@@ -597,6 +660,32 @@ public class SingleInputGate extends IndexedInputGate {
                 + '}';
     }
 
+    // ------------------------------------------------------------------------
+    // Buffer debloating
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void triggerDebloating() {
+        if (bufferDebloater == null || isFinished() || closeFuture.isDone()) {
+            return;
+        }
+
+        bufferDebloater
+                .recalculateBufferSize(throughputCalculator.calculateThroughput())
+                .ifPresent(this::announceBufferSize);
+    }
+
+    /** Announces the given buffer size to the producers of all channels. */
+    public void announceBufferSize(int newBufferSize) {
+        synchronized (requestLock) {
+            for (InputChannel channel : channels) {
+                if (!channel.isReleased()) {
+                    channel.announceBufferSize(newBufferSize);
+                }
+            }
+        }
+    }
+
     // ------------------------------------------------------------------------
     // Consume
     // ------------------------------------------------------------------------
@@ -624,10 +713,13 @@ public class SingleInputGate extends IndexedInputGate {
         Optional<InputWithData<InputChannel, BufferAndAvailability>> next =
                 waitAndGetNextData(blocking);
         if (!next.isPresent()) {
+            // the time without data must not lower the measured throughput
+            throughputCalculator.pauseMeasurement();
             return Optional.empty();
         }
 
         InputWithData<InputChannel, BufferAndAvailability> inputWithData = next.get();
+        throughputCalculator.incomingDataSize(inputWithData.data.buffer().getSize());
         return Optional.of(
                 transformToBufferOrEvent(
                         inputWithData.data.buffer(),
@@ -932,7 +1024,13 @@ public class SingleInputGate extends IndexedInputGate {
 
     // ------------------------------------------------------------------------
 
+    /** Returns the first input channel of each consumed partition. */
     public Map<IntermediateResultPartitionID, InputChannel> getInputChannels() {
         return inputChannels;
     }
+
+    /** Returns all input channels, i.e. one for each consumed subpartition of each partition. */
+    public List<InputChannel> getAllInputChannels() {
+        return Collections.unmodifiableList(Arrays.asList(channels));
+    }
 }
@@ -36,12 +36,17 @@ import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.shuffle.NettyShuffleDescriptor;
 import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloater;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
+import org.apache.flink.util.clock.SystemClock;
 import org.apache.flink.util.function.SupplierWithException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 
@@ -75,6 +80,8 @@ public class SingleInputGateFactory {
 
     private final int networkBufferSize;
 
+    private final BufferDebloatConfiguration debloatConfiguration;
+
     public SingleInputGateFactory(
             @Nonnull ResourceID taskExecutorResourceId,
             @Nonnull NettyShuffleEnvironmentConfiguration networkConfig,
@@ -91,6 +98,7 @@ public class SingleInputGateFactory {
                 networkConfig.isBlockingShuffleCompressionEnabled();
         this.compressionCodec = networkConfig.getCompressionCodec();
         this.networkBufferSize = networkConfig.networkBufferSize();
+        this.debloatConfiguration = networkConfig.getDebloatConfiguration();
         this.connectionManager = connectionManager;
         this.partitionManager = partitionManager;
         this.taskEventPublisher = taskEventPublisher;
@@ -104,12 +112,13 @@ public class SingleInputGateFactory {
             @Nonnull InputGateDeploymentDescriptor igdd,
             @Nonnull PartitionProducerStateProvider partitionProducerStateProvider,
             @Nonnull InputChannelMetrics metrics) {
+        int numberOfInputChannels = getNumberOfInputChannels(igdd);
         SupplierWithException<BufferPool, IOException> bufferPoolFactory =
                 createBufferPoolFactory(
                         networkBufferPool,
                         networkBuffersPerChannel,
                         floatingNetworkBuffersPerGate,
-                        igdd.getShuffleDescriptors().length,
+                        numberOfInputChannels,
                         igdd.getConsumedPartitionType());
 
         BufferDecompressor bufferDecompressor = null;
@@ -124,17 +133,38 @@ public class SingleInputGateFactory {
                         igdd.getConsumedResultId(),
                         igdd.getConsumedPartitionType(),
                         igdd.getConsumedSubpartitionIndex(),
-                        igdd.getShuffleDescriptors().length,
+                        igdd.getNumberOfConsumedSubpartitions(),
+                        numberOfInputChannels,
                         partitionProducerStateProvider,
                         bufferPoolFactory,
                         bufferDecompressor,
                         networkBufferPool,
-                        networkBufferSize);
+                        networkBufferSize,
+                        new ThroughputCalculator(SystemClock.getInstance()),
+                        createBufferDebloater(igdd));
 
         createInputChannels(owningTaskName, igdd, inputGate, metrics);
         return inputGate;
     }
 
+    @Nullable
+    private BufferDebloater createBufferDebloater(InputGateDeploymentDescriptor igdd) {
+        // the buffers of blocking partitions are written before they are consumed
+        if (!debloatConfiguration.isEnabled() || igdd.getConsumedPartitionType().isBlocking()) {
+            return null;
+        }
+
+        int totalNumberOfBuffers =
+                getNumberOfInputChannels(igdd) * networkBuffersPerChannel
+                        + floatingNetworkBuffersPerGate;
+        return new BufferDebloater(
+                debloatConfiguration, networkBufferSize, Math.max(1, totalNumberOfBuffers));
+    }
+
+    private static int getNumberOfInputChannels(InputGateDeploymentDescriptor igdd) {
+        return igdd.getShuffleDescriptors().length * igdd.getNumberOfConsumedSubpartitions();
+    }
+
     private void createInputChannels(
             String owningTaskName,
             InputGateDeploymentDescriptor inputGateDeploymentDescriptor,
@@ -143,15 +173,23 @@ public class SingleInputGateFactory {
         ShuffleDescriptor[] shuffleDescriptors =
                 inputGateDeploymentDescriptor.getShuffleDescriptors();
 
-        // Create the input channels. There is one input channel for each consumed partition.
-        InputChannel[] inputChannels = new InputChannel[shuffleDescriptors.length];
+        // Create the input channels. There is one input channel for each consumed subpartition
+        // of each consumed partition, the channels of a partition are consecutive.
+        int numberOfConsumedSubpartitions =
+                inputGateDeploymentDescriptor.getNumberOfConsumedSubpartitions();
+        InputChannel[] inputChannels =
+                new InputChannel[shuffleDescriptors.length * numberOfConsumedSubpartitions];
 
         ChannelStatistics channelStatistics = new ChannelStatistics();
 
         for (int i = 0; i < inputChannels.length; i++) {
             inputChannels[i] =
                     createInputChannel(
-                            inputGate, i, shuffleDescriptors[i], channelStatistics, metrics);
+                            inputGate,
+                            i,
+                            shuffleDescriptors[i / numberOfConsumedSubpartitions],
+                            channelStatistics,
+                            metrics);
         }
         inputGate.setInputChannels(inputChannels);
 
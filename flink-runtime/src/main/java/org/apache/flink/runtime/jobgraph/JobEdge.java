@@ -55,6 +55,9 @@ public class JobEdge implements java.io.Serializable {
      */
     private String shipStrategyName;
 
+    /** Whether every record of the source is sent to all subtasks of the target. */
+    private boolean isBroadcast;
+
     /**
      * Optional name for the pre-processing operation (sort, combining sort, ...), to be displayed
      * in the JSON plan
@@ -181,6 +184,25 @@ public class JobEdge implements java.io.Serializable {
         this.shipStrategyName = shipStrategyName;
     }
 
+    /**
+     * Checks whether every record of the source is sent to all subtasks of the target, i.e. each
+     * subpartition of the produced partitions contains the same data.
+     *
+     * @return True, if the records are broadcast, false otherwise.
+     */
+    public boolean isBroadcast() {
+        return isBroadcast;
+    }
+
+    /**
+     * Sets whether every record of the source is sent to all subtasks of the target.
+     *
+     * @param isBroadcast True, if the records are broadcast.
+     */
+    public void setBroadcast(boolean isBroadcast) {
+        this.isBroadcast = isBroadcast;
+    }
+
     /**
      * Gets the channel state rescaler used for rescaling persisted data on downstream side of this
      * JobEdge.
@@ -77,6 +77,9 @@ public class DeclarativeSlotPoolBridge implements SlotPool {
     private final DeclarativeSlotPool declarativeSlotPool;
     private final Set<ResourceID> registeredTaskManagers;
 
+    /** Requirements declared in addition to those of the pending and fulfilled slot requests. */
+    private ResourceCounter additionalResourceRequirements;
+
     @Nullable private ComponentMainThreadExecutor componentMainThreadExecutor;
 
     @Nullable private String jobManagerAddress;
@@ -109,6 +112,7 @@ public class DeclarativeSlotPoolBridge implements SlotPool {
         this.pendingRequests = new LinkedHashMap<>();
         this.fulfilledRequests = new HashMap<>();
         this.registeredTaskManagers = new HashSet<>();
+        this.additionalResourceRequirements = ResourceCounter.empty();
         this.declareResourceRequirementServiceConnectionManager =
                 NoOpDeclareResourceRequirementServiceConnectionManager.INSTANCE;
         this.declarativeSlotPool =
@@ -147,6 +151,7 @@ public class DeclarativeSlotPoolBridge implements SlotPool {
         LOG.info("Suspending slot pool.");
 
         cancelPendingRequests(request -> true, new FlinkException("Suspending slot pool."));
+        setAdditionalResourceRequirements(ResourceCounter.empty());
         clearState();
     }
 
@@ -190,6 +195,31 @@ public class DeclarativeSlotPoolBridge implements SlotPool {
         jobMasterId = null;
     }
 
+    /**
+     * Sets the slots which are required in addition to the slot requests. The slot pool acquires
+     * them and keeps them even while they are free.
+     *
+     * @param resourceProfile the resource profile of the additional slots
+     * @param numberOfSlots the number of additional slots, replacing the previous ones
+     */
+    public void setAdditionalResourceRequirements(
+            ResourceProfile resourceProfile, int numberOfSlots) {
+        setAdditionalResourceRequirements(
+                ResourceCounter.withResource(
+                        Preconditions.checkNotNull(resourceProfile), numberOfSlots));
+    }
+
+    private void setAdditionalResourceRequirements(
+            ResourceCounter additionalResourceRequirements) {
+
+        if (!additionalResourceRequirements.equals(this.additionalResourceRequirements)) {
+            declarativeSlotPool.decreaseResourceRequirementsBy(
+                    this.additionalResourceRequirements);
+            declarativeSlotPool.increaseResourceRequirementsBy(additionalResourceRequirements);
+            this.additionalResourceRequirements = additionalResourceRequirements;
+        }
+    }
+
     @Override
     public void connectToResourceManager(ResourceManagerGateway resourceManagerGateway) {
         assertRunningInMainThread();
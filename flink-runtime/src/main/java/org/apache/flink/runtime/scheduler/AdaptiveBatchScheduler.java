@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.blob.BlobWriter;
+import org.apache.flink.runtime.checkpoint.CheckpointRecoveryFactory;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutor;
+import org.apache.flink.runtime.concurrent.ScheduledExecutor;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.executiongraph.IOMetrics;
+import org.apache.flink.runtime.executiongraph.IntermediateResult;
+import org.apache.flink.runtime.executiongraph.IntermediateResultPartition;
+import org.apache.flink.runtime.executiongraph.JobStatusListener;
+import org.apache.flink.runtime.executiongraph.TaskExecutionStateTransition;
+import org.apache.flink.runtime.executiongraph.failover.flip1.FailoverStrategy;
+import org.apache.flink.runtime.executiongraph.failover.flip1.RestartBackoffTimeStrategy;
+import org.apache.flink.runtime.io.network.partition.JobMasterPartitionTracker;
+import org.apache.flink.runtime.jobgraph.JobEdge;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobmaster.ExecutionDeploymentTracker;
+import org.apache.flink.runtime.metrics.groups.JobManagerJobMetricGroup;
+import org.apache.flink.runtime.scheduler.strategy.ExecutionVertexID;
+import org.apache.flink.runtime.scheduler.strategy.SchedulingStrategyFactory;
+import org.apache.flink.runtime.shuffle.ShuffleMaster;
+import org.apache.flink.runtime.taskmanager.TaskExecutionState;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Consumer;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A scheduler for batch jobs which decides the parallelism of job vertices at runtime, based on the
+ * amount of data their inputs produced.
+ *
+ * <p>The execution graph is built with the maximum parallelism for each such vertex, so that each
+ * of their subtasks corresponds to one key group and every producer writes one subpartition per key
+ * group. When a vertex is scheduled for the first time, all of its blocking inputs are finished and
+ * the parallelism is decided from the bytes the producers reported. The executed subtasks consume
+ * consecutive ranges of subpartitions, the same ranges of key groups they would be assigned if the
+ * vertex had been built with the decided parallelism. The remaining subtasks are skipped: they are
+ * finished without being deployed and their empty partitions are never read.
+ */
+public class AdaptiveBatchScheduler extends DefaultScheduler {
+
+    private final Logger log;
+
+    /** The vertices whose parallelism is decided by this scheduler. */
+    private final Set<JobVertexID> adaptiveJobVertices;
+
+    private final int minParallelism;
+
+    private final long avgDataVolumePerTask;
+
+    AdaptiveBatchScheduler(
+            final Logger log,
+            final JobGraph jobGraph,
+            final Executor ioExecutor,
+            final Configuration jobMasterConfiguration,
+            final Consumer<ComponentMainThreadExecutor> startUpAction,
+            final ScheduledExecutorService futureExecutor,
+            final ScheduledExecutor delayExecutor,
+            final ClassLoader userCodeLoader,
+            final CheckpointRecoveryFactory checkpointRecoveryFactory,
+            final Time rpcTimeout,
+            final BlobWriter blobWriter,
+            final JobManagerJobMetricGroup jobManagerJobMetricGroup,
+            final ShuffleMaster<?> shuffleMaster,
+            final JobMasterPartitionTracker partitionTracker,
+            final SchedulingStrategyFactory schedulingStrategyFactory,
+            final FailoverStrategy.Factory failoverStrategyFactory,
+            final RestartBackoffTimeStrategy restartBackoffTimeStrategy,
+            final ExecutionVertexOperations executionVertexOperations,
+            final ExecutionVertexVersioner executionVertexVersioner,
+            final ExecutionSlotAllocatorFactory executionSlotAllocatorFactory,
+            final ExecutionDeploymentTracker executionDeploymentTracker,
+            long initializationTimestamp,
+            final ComponentMainThreadExecutor mainThreadExecutor,
+            final JobStatusListener jobStatusListener,
+            final Set<JobVertexID> adaptiveJobVertices,
+            final int minParallelism,
+            final long avgDataVolumePerTask)
+            throws Exception {
+
+        super(
+                log,
+                jobGraph,
+                ioExecutor,
+                jobMasterConfiguration,
+                startUpAction,
+                futureExecutor,
+                delayExecutor,
+                userCodeLoader,
+                checkpointRecoveryFactory,
+                rpcTimeout,
+                blobWriter,
+                jobManagerJobMetricGroup,
+                shuffleMaster,
+                partitionTracker,
+                schedulingStrategyFactory,
+                failoverStrategyFactory,
+                restartBackoffTimeStrategy,
+                executionVertexOperations,
+                executionVertexVersioner,
+                executionSlotAllocatorFactory,
+                executionDeploymentTracker,
+                initializationTimestamp,
+                mainThreadExecutor,
+                jobStatusListener);
+
+        checkArgument(minParallelism > 0, "The min parallelism must be positive.");
+        checkArgument(avgDataVolumePerTask > 0, "The data volume per task must be positive.");
+
+        this.log = log;
+        this.adaptiveJobVertices = checkNotNull(adaptiveJobVertices);
+        this.minParallelism = minParallelism;
+        this.avgDataVolumePerTask = avgDataVolumePerTask;
+    }
+
+    // ------------------------------------------------------------------------
+    // SchedulerOperations
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void allocateSlotsAndDeploy(
+            final List<ExecutionVertexDeploymentOption> executionVertexDeploymentOptions) {
+
+        final List<ExecutionVertexDeploymentOption> deploymentOptionsToDeploy =
+                new ArrayList<>(executionVertexDeploymentOptions.size());
+        final List<ExecutionVertexID> verticesToSkip = new ArrayList<>();
+
+        for (ExecutionVertexDeploymentOption deploymentOption : executionVertexDeploymentOptions) {
+            final ExecutionVertex executionVertex =
+                    getExecutionVertex(deploymentOption.getExecutionVertexId());
+            maybeDecideParallelism(executionVertex.getJobVertex());
+
+            if (executionVertex.isSkipped()) {
+                verticesToSkip.add(executionVertex.getID());
+            } else {
+                deploymentOptionsToDeploy.add(deploymentOption);
+            }
+        }
+
+        if (!verticesToSkip.isEmpty()) {
+            skipExecutionVertices(verticesToSkip);
+        }
+        if (!deploymentOptionsToDeploy.isEmpty()) {
+            super.allocateSlotsAndDeploy(deploymentOptionsToDeploy);
+        }
+    }
+
+    private void maybeDecideParallelism(final ExecutionJobVertex jobVertex) {
+        if (!adaptiveJobVertices.contains(jobVertex.getJobVertexId())
+                || jobVertex.isParallelismDecided()) {
+            return;
+        }
+
+        final long consumedBytes = getConsumedBytes(jobVertex);
+        final int parallelism =
+                decideParallelism(
+                        consumedBytes,
+                        avgDataVolumePerTask,
+                        minParallelism,
+                        jobVertex.getParallelism());
+
+        log.info(
+                "Decided parallelism {} (at most {}) for {} ({}) consuming {} bytes.",
+                parallelism,
+                jobVertex.getParallelism(),
+                jobVertex.getName(),
+                jobVertex.getJobVertexId(),
+                consumedBytes);
+
+        jobVertex.setDecidedParallelism(parallelism);
+    }
+
+    /**
+     * Returns the number of bytes the non-broadcast inputs of the given vertex produced. Broadcast
+     * inputs are read completely by every subtask, their size does not depend on the parallelism.
+     *
+     * <p>The {@link IOMetrics} of a task only count the bytes of all of its outputs together. If a
+     * producer has several outputs, each of them is approximated by an equal share of these bytes.
+     */
+    private static long getConsumedBytes(final ExecutionJobVertex jobVertex) {
+        final List<JobEdge> inputEdges = jobVertex.getJobVertex().getInputs();
+        final List<IntermediateResult> inputs = jobVertex.getInputs();
+
+        long consumedBytes = 0;
+        for (int i = 0; i < inputs.size(); i++) {
+            if (inputEdges.get(i).isBroadcast()) {
+                continue;
+            }
+
+            for (IntermediateResultPartition partition : inputs.get(i).getPartitions()) {
+                final ExecutionVertex producer = partition.getProducer();
+                if (producer.isSkipped()) {
+                    continue;
+                }
+
+                checkState(
+                        producer.getExecutionState() == ExecutionState.FINISHED,
+                        "The parallelism of %s can only be decided once its inputs are finished.",
+                        jobVertex.getName());
+
+                final IOMetrics ioMetrics = producer.getCurrentExecutionAttempt().getIOMetrics();
+                if (ioMetrics != null) {
+                    // tasks report the bytes of all of their outputs together
+                    consumedBytes +=
+                            ioMetrics.getNumBytesOut()
+                                    / producer.getJobVertex().getProducedDataSets().length;
+                }
+            }
+        }
+        return consumedBytes;
+    }
+
+    @VisibleForTesting
+    static int decideParallelism(
+            long consumedBytes, long avgDataVolumePerTask, int minParallelism, int maxParallelism) {
+        final long parallelism =
+                consumedBytes / avgDataVolumePerTask
+                        + (consumedBytes % avgDataVolumePerTask == 0 ? 0 : 1);
+        return (int) Math.max(minParallelism, Math.min(maxParallelism, parallelism));
+    }
+
+    /**
+     * Finishes the given vertices without deploying them. This happens asynchronously, so that the
+     * scheduling strategy is not notified about the finished vertices while it is scheduling them.
+     */
+    private void skipExecutionVertices(final List<ExecutionVertexID> verticesToSkip) {
+        final Map<ExecutionVertexID, ExecutionVertexVersion> requiredVersionByVertex =
+                executionVertexVersioner.recordVertexModifications(verticesToSkip);
+
+        getMainThreadExecutor()
+                .execute(
+                        () -> {
+                            for (ExecutionVertexVersion requiredVersion :
+                                    requiredVersionByVertex.values()) {
+                                if (executionVertexVersioner.isModified(requiredVersion)) {
+                                    // the vertex was restarted in the meantime
+                                    continue;
+                                }
+                                skipExecutionVertex(
+                                        getExecutionVertex(requiredVersion.getExecutionVertexId()));
+                            }
+                        });
+    }
+
+    private void skipExecutionVertex(final ExecutionVertex executionVertex) {
+        if (executionVertex.getExecutionState() != ExecutionState.CREATED) {
+            return;
+        }
+
+        log.debug(
+                "Skipping {} which is not executed.",
+                executionVertex.getTaskNameWithSubtaskIndex());
+
+        // the execution goes through the same transitions as a task finishing right away, which
+        // marks its partitions as finished and notifies the scheduling strategy
+        executionVertex.getCurrentExecutionAttempt().transitionState(ExecutionState.DEPLOYING);
+        updateTaskExecutionState(
+                new TaskExecutionStateTransition(
+                        new TaskExecutionState(
+                                getJobId(),
+                                executionVertex.getCurrentExecutionAttempt().getAttemptId(),
+                                ExecutionState.FINISHED)));
+    }
+}
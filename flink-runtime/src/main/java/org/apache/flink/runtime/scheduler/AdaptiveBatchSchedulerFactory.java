@@ -0,0 +1,316 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.JobManagerOptions;
+import org.apache.flink.runtime.blob.BlobWriter;
+import org.apache.flink.runtime.checkpoint.CheckpointRecoveryFactory;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutor;
+import org.apache.flink.runtime.concurrent.ScheduledExecutorServiceAdapter;
+import org.apache.flink.runtime.executiongraph.JobStatusListener;
+import org.apache.flink.runtime.executiongraph.failover.flip1.FailoverStrategyFactoryLoader;
+import org.apache.flink.runtime.executiongraph.failover.flip1.RestartBackoffTimeStrategy;
+import org.apache.flink.runtime.executiongraph.failover.flip1.RestartBackoffTimeStrategyFactoryLoader;
+import org.apache.flink.runtime.io.network.partition.JobMasterPartitionTracker;
+import org.apache.flink.runtime.jobgraph.DistributionPattern;
+import org.apache.flink.runtime.jobgraph.IntermediateDataSet;
+import org.apache.flink.runtime.jobgraph.JobEdge;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobmaster.ExecutionDeploymentTracker;
+import org.apache.flink.runtime.jobmaster.slotpool.SlotPool;
+import org.apache.flink.runtime.metrics.groups.JobManagerJobMetricGroup;
+import org.apache.flink.runtime.shuffle.ShuffleMaster;
+import org.apache.flink.util.clock.SystemClock;
+
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.apache.flink.runtime.scheduler.DefaultSchedulerComponents.createSchedulerComponents;
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Factory for {@link AdaptiveBatchScheduler}. Jobs which are not batch jobs, i.e. which have
+ * checkpointing enabled or non-blocking results, are scheduled by the {@link DefaultScheduler}. If
+ * speculative execution is enabled, batch jobs are scheduled by the {@link SpeculativeScheduler}.
+ */
+public class AdaptiveBatchSchedulerFactory implements SchedulerNGFactory {
+
+    @Override
+    public SchedulerNG createInstance(
+            final Logger log,
+            final JobGraph jobGraph,
+            final Executor ioExecutor,
+            final Configuration jobMasterConfiguration,
+            final SlotPool slotPool,
+            final ScheduledExecutorService futureExecutor,
+            final ClassLoader userCodeLoader,
+            final CheckpointRecoveryFactory checkpointRecoveryFactory,
+            final Time rpcTimeout,
+            final BlobWriter blobWriter,
+            final JobManagerJobMetricGroup jobManagerJobMetricGroup,
+            final Time slotRequestTimeout,
+            final ShuffleMaster<?> shuffleMaster,
+            final JobMasterPartitionTracker partitionTracker,
+            final ExecutionDeploymentTracker executionDeploymentTracker,
+            long initializationTimestamp,
+            final ComponentMainThreadExecutor mainThreadExecutor,
+            final JobStatusListener jobStatusListener)
+            throws Exception {
+
+        if (!isBatchJob(jobGraph)) {
+            log.info(
+                    "Using the default scheduler for {} ({}) which is not a batch job.",
+                    jobGraph.getName(),
+                    jobGraph.getJobID());
+            return new DefaultSchedulerFactory()
+                    .createInstance(
+                            log,
+                            jobGraph,
+                            ioExecutor,
+                            jobMasterConfiguration,
+                            slotPool,
+                            futureExecutor,
+                            userCodeLoader,
+                            checkpointRecoveryFactory,
+                            rpcTimeout,
+                            blobWriter,
+                            jobManagerJobMetricGroup,
+                            slotRequestTimeout,
+                            shuffleMaster,
+                            partitionTracker,
+                            executionDeploymentTracker,
+                            initializationTimestamp,
+                            mainThreadExecutor,
+                            jobStatusListener);
+        }
+
+        final int minParallelism =
+                jobMasterConfiguration.getInteger(
+                        JobManagerOptions.ADAPTIVE_BATCH_SCHEDULER_MIN_PARALLELISM);
+        final int maxParallelism =
+                jobMasterConfiguration.getInteger(
+                        JobManagerOptions.ADAPTIVE_BATCH_SCHEDULER_MAX_PARALLELISM);
+        final long avgDataVolumePerTask =
+                jobMasterConfiguration
+                        .get(JobManagerOptions.ADAPTIVE_BATCH_SCHEDULER_AVG_DATA_VOLUME_PER_TASK)
+                        .getBytes();
+        checkArgument(
+                minParallelism > 0 && minParallelism <= maxParallelism,
+                "The min parallelism (%s) must be positive and at most the max parallelism (%s).",
+                minParallelism,
+                maxParallelism);
+
+        final Set<JobVertexID> adaptiveJobVertices =
+                prepareAdaptiveJobVertices(jobGraph, maxParallelism);
+        log.info(
+                "Deciding the parallelism of {} job vertices of {} ({}) at runtime.",
+                adaptiveJobVertices.size(),
+                jobGraph.getName(),
+                jobGraph.getJobID());
+
+        final DefaultSchedulerComponents schedulerComponents =
+                createSchedulerComponents(
+                        jobGraph.getScheduleMode(),
+                        jobGraph.isApproximateLocalRecoveryEnabled(),
+                        jobMasterConfiguration,
+                        slotPool,
+                        slotRequestTimeout);
+        final RestartBackoffTimeStrategy restartBackoffTimeStrategy =
+                RestartBackoffTimeStrategyFactoryLoader.createRestartBackoffTimeStrategyFactory(
+                                jobGraph.getSerializedExecutionConfig()
+                                        .deserializeValue(userCodeLoader)
+                                        .getRestartStrategy(),
+                                jobMasterConfiguration,
+                                jobGraph.isCheckpointingEnabled())
+                        .create();
+        log.info(
+                "Using restart back off time strategy {} for {} ({}).",
+                restartBackoffTimeStrategy,
+                jobGraph.getName(),
+                jobGraph.getJobID());
+
+        if (jobMasterConfiguration.getBoolean(JobManagerOptions.SPECULATIVE_ENABLED)) {
+            log.info(
+                    "Enabling speculative execution of slow tasks for {} ({}).",
+                    jobGraph.getName(),
+                    jobGraph.getJobID());
+            return new SpeculativeScheduler(
+                    log,
+                    jobGraph,
+                    ioExecutor,
+                    jobMasterConfiguration,
+                    schedulerComponents.getStartUpAction(),
+                    futureExecutor,
+                    new ScheduledExecutorServiceAdapter(futureExecutor),
+                    userCodeLoader,
+                    checkpointRecoveryFactory,
+                    rpcTimeout,
+                    blobWriter,
+                    jobManagerJobMetricGroup,
+                    shuffleMaster,
+                    partitionTracker,
+                    schedulerComponents.getSchedulingStrategyFactory(),
+                    FailoverStrategyFactoryLoader.loadFailoverStrategyFactory(
+                            jobMasterConfiguration),
+                    restartBackoffTimeStrategy,
+                    new DefaultExecutionVertexOperations(),
+                    new ExecutionVertexVersioner(),
+                    schedulerComponents.getAllocatorFactory(),
+                    executionDeploymentTracker,
+                    initializationTimestamp,
+                    mainThreadExecutor,
+                    jobStatusListener,
+                    adaptiveJobVertices,
+                    minParallelism,
+                    avgDataVolumePerTask,
+                    slotPool,
+                    createSlowTaskDetector(jobMasterConfiguration),
+                    getMillis(jobMasterConfiguration, JobManagerOptions.SPECULATIVE_CHECK_INTERVAL),
+                    getMillis(
+                            jobMasterConfiguration,
+                            JobManagerOptions.SPECULATIVE_BLOCK_SLOW_NODE_DURATION),
+                    SystemClock.getInstance());
+        }
+
+        return new AdaptiveBatchScheduler(
+                log,
+                jobGraph,
+                ioExecutor,
+                jobMasterConfiguration,
+                schedulerComponents.getStartUpAction(),
+                futureExecutor,
+                new ScheduledExecutorServiceAdapter(futureExecutor),
+                userCodeLoader,
+                checkpointRecoveryFactory,
+                rpcTimeout,
+                blobWriter,
+                jobManagerJobMetricGroup,
+                shuffleMaster,
+                partitionTracker,
+                schedulerComponents.getSchedulingStrategyFactory(),
+                FailoverStrategyFactoryLoader.loadFailoverStrategyFactory(jobMasterConfiguration),
+                restartBackoffTimeStrategy,
+                new DefaultExecutionVertexOperations(),
+                new ExecutionVertexVersioner(),
+                schedulerComponents.getAllocatorFactory(),
+                executionDeploymentTracker,
+                initializationTimestamp,
+                mainThreadExecutor,
+                jobStatusListener,
+                adaptiveJobVertices,
+                minParallelism,
+                avgDataVolumePerTask);
+    }
+
+    private static SlowTaskDetector createSlowTaskDetector(Configuration configuration) {
+        return new SlowTaskDetector(
+                configuration.getDouble(JobManagerOptions.SPECULATIVE_BASELINE_RATIO),
+                configuration.getDouble(JobManagerOptions.SPECULATIVE_BASELINE_MULTIPLIER),
+                getMillis(configuration, JobManagerOptions.SPECULATIVE_BASELINE_LOWER_BOUND));
+    }
+
+    private static long getMillis(Configuration configuration, ConfigOption<Duration> option) {
+        return configuration.get(option).toMillis();
+    }
+
+    private static boolean isBatchJob(JobGraph jobGraph) {
+        if (jobGraph.isCheckpointingEnabled()) {
+            return false;
+        }
+        for (JobVertex jobVertex : jobGraph.getVertices()) {
+            for (IntermediateDataSet dataSet : jobVertex.getProducedDataSets()) {
+                if (!dataSet.getResultType().isBlocking()) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Selects the vertices whose parallelism can be decided at runtime and sets their parallelism
+     * to their max parallelism, so that one subtask is created for each key group.
+     *
+     * @return the IDs of the selected vertices
+     */
+    @VisibleForTesting
+    static Set<JobVertexID> prepareAdaptiveJobVertices(JobGraph jobGraph, int maxParallelism) {
+        final Set<JobVertexID> adaptiveJobVertices = new HashSet<>();
+        for (JobVertex jobVertex : jobGraph.getVertices()) {
+            if (!canDecideParallelism(jobVertex, maxParallelism)) {
+                continue;
+            }
+
+            if (jobVertex.getMaxParallelism() == ExecutionConfig.PARALLELISM_DEFAULT) {
+                jobVertex.setMaxParallelism(maxParallelism);
+            }
+            jobVertex.setParallelism(jobVertex.getMaxParallelism());
+            adaptiveJobVertices.add(jobVertex.getID());
+        }
+        return adaptiveJobVertices;
+    }
+
+    /**
+     * Checks whether the parallelism of the given vertex can be decided at runtime. This requires
+     * that the parallelism is not set, that the vertex is not a source and that all of its inputs
+     * and outputs are connected all-to-all, because the subpartitions of other connections are not
+     * aligned with key groups.
+     */
+    private static boolean canDecideParallelism(JobVertex jobVertex, int maxParallelism) {
+        if (jobVertex.getParallelism() != ExecutionConfig.PARALLELISM_DEFAULT
+                || jobVertex.isInputVertex()
+                || jobVertex.getCoLocationGroup() != null) {
+            return false;
+        }
+
+        // the configured max parallelism is the number of created subtasks
+        final int configuredMaxParallelism = jobVertex.getMaxParallelism();
+        if (configuredMaxParallelism != ExecutionConfig.PARALLELISM_DEFAULT
+                && (configuredMaxParallelism <= 0 || configuredMaxParallelism > maxParallelism)) {
+            return false;
+        }
+
+        for (JobEdge input : jobVertex.getInputs()) {
+            if (input.getDistributionPattern() != DistributionPattern.ALL_TO_ALL) {
+                return false;
+            }
+        }
+        for (IntermediateDataSet dataSet : jobVertex.getProducedDataSets()) {
+            for (JobEdge output : dataSet.getConsumers()) {
+                if (output.getDistributionPattern() != DistributionPattern.ALL_TO_ALL) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
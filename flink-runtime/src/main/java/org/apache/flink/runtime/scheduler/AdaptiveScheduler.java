@@ -0,0 +1,599 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.JobStatus;
+import org.apache.flink.queryablestate.KvStateID;
+import org.apache.flink.runtime.accumulators.AccumulatorSnapshot;
+import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
+import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
+import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutor;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.ArchivedExecutionGraph;
+import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
+import org.apache.flink.runtime.executiongraph.JobStatusListener;
+import org.apache.flink.runtime.executiongraph.TaskExecutionStateTransition;
+import org.apache.flink.runtime.instance.SlotSharingGroupId;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.jobmanager.PartitionProducerDisposedException;
+import org.apache.flink.runtime.jobmaster.SerializedInputSplit;
+import org.apache.flink.runtime.jobmaster.slotpool.DeclarativeSlotPoolBridge;
+import org.apache.flink.runtime.messages.FlinkJobNotFoundException;
+import org.apache.flink.runtime.messages.checkpoint.DeclineCheckpoint;
+import org.apache.flink.runtime.messages.webmonitor.JobDetails;
+import org.apache.flink.runtime.operators.coordination.CoordinationRequest;
+import org.apache.flink.runtime.operators.coordination.CoordinationResponse;
+import org.apache.flink.runtime.operators.coordination.OperatorEvent;
+import org.apache.flink.runtime.query.KvStateLocation;
+import org.apache.flink.runtime.query.UnknownKvStateLocation;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.util.FlinkException;
+import org.apache.flink.util.function.BiFunctionWithException;
+
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A scheduler for streaming jobs which runs the job at the parallelism the available slots permit.
+ *
+ * <p>The scheduler declares the slots for the desired parallelism of all job vertices, which is
+ * their max parallelism, at the {@link DeclarativeSlotPoolBridge}. Once the number of slots in the
+ * slot pool did not change for the resource stabilization timeout, or all desired slots are
+ * available, the job is started. The slots are evenly divided between the slot sharing groups and
+ * each vertex runs with at most as many subtasks as its slot sharing group got slots.
+ *
+ * <p>The job is executed by a {@link DefaultScheduler}, which also handles task failures. When
+ * TaskManagers join or leave, the job is rescaled: the executing scheduler is suspended and
+ * replaced by a new one for the job graph with the new parallelism, which restores the latest
+ * checkpoint. The checkpoint services are shared between these schedulers, see {@link
+ * RetainingCheckpointRecoveryFactory}.
+ */
+public class AdaptiveScheduler implements SchedulerNG {
+
+    private final Logger log;
+
+    private final JobGraph jobGraph;
+
+    private final DeclarativeSlotPoolBridge slotPool;
+
+    private final RetainingCheckpointRecoveryFactory checkpointRecoveryFactory;
+
+    /** Creates the scheduler executing the given job graph, notifying the given listener. */
+    private final BiFunctionWithException<JobGraph, JobStatusListener, SchedulerNG, Exception>
+            schedulerFactory;
+
+    private final ComponentMainThreadExecutor mainThreadExecutor;
+
+    private final JobStatusListener jobStatusListener;
+
+    private final long initializationTimestamp;
+
+    private final Map<JobVertexID, Integer> desiredParallelism;
+
+    private final long resourceStabilizationTimeoutMillis;
+
+    private final int minParallelismIncrease;
+
+    private final CompletableFuture<Void> terminationFuture = new CompletableFuture<>();
+
+    private SchedulerNG executing;
+
+    private Map<JobVertexID, Integer> executingParallelism;
+
+    /** Whether the executing scheduler has been started. */
+    private boolean started;
+
+    /** Whether the executing scheduler is being replaced. */
+    private boolean rescaling;
+
+    /** Whether this scheduler has been suspended or cancelled. */
+    private boolean terminating;
+
+    /** The job if it failed because it could not be rescaled. */
+    @Nullable private ArchivedExecutionGraph failedJob;
+
+    private int lastNumberOfSlots = -1;
+
+    AdaptiveScheduler(
+            final Logger log,
+            final JobGraph jobGraph,
+            final DeclarativeSlotPoolBridge slotPool,
+            final RetainingCheckpointRecoveryFactory checkpointRecoveryFactory,
+            final BiFunctionWithException<JobGraph, JobStatusListener, SchedulerNG, Exception>
+                    schedulerFactory,
+            final ComponentMainThreadExecutor mainThreadExecutor,
+            final JobStatusListener jobStatusListener,
+            final long initializationTimestamp,
+            final Map<JobVertexID, Integer> desiredParallelism,
+            final long resourceStabilizationTimeoutMillis,
+            final int minParallelismIncrease)
+            throws Exception {
+
+        checkArgument(
+                resourceStabilizationTimeoutMillis > 0,
+                "The resource stabilization timeout must be positive.");
+        checkArgument(minParallelismIncrease > 0, "The min parallelism increase must be positive.");
+
+        this.log = checkNotNull(log);
+        this.jobGraph = checkNotNull(jobGraph);
+        this.slotPool = checkNotNull(slotPool);
+        this.checkpointRecoveryFactory = checkNotNull(checkpointRecoveryFactory);
+        this.schedulerFactory = checkNotNull(schedulerFactory);
+        this.mainThreadExecutor = checkNotNull(mainThreadExecutor);
+        this.jobStatusListener = checkNotNull(jobStatusListener);
+        this.initializationTimestamp = initializationTimestamp;
+        this.desiredParallelism = checkNotNull(desiredParallelism);
+        this.resourceStabilizationTimeoutMillis = resourceStabilizationTimeoutMillis;
+        this.minParallelismIncrease = minParallelismIncrease;
+
+        // the job is executed as submitted until the available slots are known
+        this.executingParallelism = getParallelism(jobGraph);
+        this.executing = createScheduler();
+    }
+
+    private static Map<JobVertexID, Integer> getParallelism(JobGraph jobGraph) {
+        final Map<JobVertexID, Integer> parallelism = new HashMap<>();
+        for (JobVertex jobVertex : jobGraph.getVertices()) {
+            parallelism.put(jobVertex.getID(), jobVertex.getParallelism());
+        }
+        return parallelism;
+    }
+
+    private SchedulerNG createScheduler() throws Exception {
+        final SchedulerNG scheduler =
+                schedulerFactory.apply(jobGraph, this::executingJobStatusChanges);
+
+        scheduler
+                .getTerminationFuture()
+                .whenComplete(
+                        (ignored, throwable) -> {
+                            if (scheduler != executing || rescaling) {
+                                // the scheduler was replaced, the job continues
+                                return;
+                            }
+                            if (throwable != null) {
+                                terminationFuture.completeExceptionally(throwable);
+                            } else {
+                                terminationFuture.complete(null);
+                            }
+                        });
+        return scheduler;
+    }
+
+    private void executingJobStatusChanges(
+            JobID jobId, JobStatus newJobStatus, long timestamp, Throwable error) {
+        if (!rescaling) {
+            jobStatusListener.jobStatusChanges(jobId, newJobStatus, timestamp, error);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Rescaling
+    // ------------------------------------------------------------------------
+
+    private void checkResources() {
+        mainThreadExecutor.assertRunningInMainThread();
+
+        if (terminating || failedJob != null) {
+            return;
+        }
+        final JobStatus jobStatus = executing.requestJobStatus();
+        if (jobStatus.isGloballyTerminalState()) {
+            return;
+        }
+
+        declareDesiredResources();
+
+        final int numberOfSlots =
+                slotPool.getAvailableSlotsInformation().size()
+                        + slotPool.getAllocatedSlotsInformation().size();
+        final boolean isStable = numberOfSlots == lastNumberOfSlots;
+        lastNumberOfSlots = numberOfSlots;
+
+        if (!started) {
+            if (isStable || numberOfSlots >= getNumberOfDesiredSlots()) {
+                maybeStartExecuting(numberOfSlots);
+            }
+        } else if (isStable
+                && (jobStatus == JobStatus.RUNNING || jobStatus == JobStatus.RESTARTING)) {
+            maybeRescale(numberOfSlots);
+        }
+
+        mainThreadExecutor.schedule(
+                this::checkResources, resourceStabilizationTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void declareDesiredResources() {
+        // the executing scheduler declares the slots it requests itself
+        final int numberOfMissingSlots =
+                Math.max(
+                        0,
+                        getNumberOfDesiredSlots()
+                                - slotPool.getAllocatedSlotsInformation().size());
+        slotPool.setAdditionalResourceRequirements(ResourceProfile.UNKNOWN, numberOfMissingSlots);
+    }
+
+    private int getNumberOfDesiredSlots() {
+        return getRequiredSlotsPerSlotSharingGroup(jobGraph.getVertices(), desiredParallelism)
+                .values()
+                .stream()
+                .mapToInt(Integer::intValue)
+                .sum();
+    }
+
+    private void maybeStartExecuting(int numberOfSlots) {
+        final Optional<Map<JobVertexID, Integer>> parallelism =
+                computeParallelism(jobGraph.getVertices(), desiredParallelism, numberOfSlots);
+        if (!parallelism.isPresent()) {
+            log.debug(
+                    "Waiting for more than {} slots to start {} ({}).",
+                    numberOfSlots,
+                    jobGraph.getName(),
+                    jobGraph.getJobID());
+            return;
+        }
+
+        log.info(
+                "Starting {} ({}) with the parallelism {} permitted by {} slots.",
+                jobGraph.getName(),
+                jobGraph.getJobID(),
+                parallelism.get(),
+                numberOfSlots);
+
+        started = true;
+        if (parallelism.get().equals(executingParallelism)) {
+            executing.startScheduling();
+        } else {
+            restartWithParallelism(parallelism.get());
+        }
+    }
+
+    private void maybeRescale(int numberOfSlots) {
+        final Optional<Map<JobVertexID, Integer>> parallelism =
+                computeParallelism(jobGraph.getVertices(), desiredParallelism, numberOfSlots);
+        if (!parallelism.isPresent()) {
+            // the executing scheduler keeps restarting until slots are available again
+            return;
+        }
+
+        if (shouldRescale(executingParallelism, parallelism.get(), minParallelismIncrease)) {
+            log.info(
+                    "Rescaling {} ({}) from the parallelism {} to {} permitted by {} slots.",
+                    jobGraph.getName(),
+                    jobGraph.getJobID(),
+                    executingParallelism,
+                    parallelism.get(),
+                    numberOfSlots);
+            restartWithParallelism(parallelism.get());
+        }
+    }
+
+    /**
+     * Replaces the executing scheduler by a scheduler for the given parallelism and starts it. The
+     * new scheduler restores the latest checkpoint.
+     */
+    private void restartWithParallelism(Map<JobVertexID, Integer> parallelism) {
+        rescaling = true;
+        try {
+            executing.suspend(new FlinkException("The job is rescaled."));
+            checkState(
+                    executing.getTerminationFuture().isDone(),
+                    "The suspension needs to happen atomically.");
+
+            for (Map.Entry<JobVertexID, Integer> vertexParallelism : parallelism.entrySet()) {
+                jobGraph.findVertexByID(vertexParallelism.getKey())
+                        .setParallelism(vertexParallelism.getValue());
+            }
+            executingParallelism = parallelism;
+            executing = createScheduler();
+        } catch (Exception e) {
+            handleRescalingFailure(e);
+            return;
+        } finally {
+            rescaling = false;
+        }
+
+        executing.startScheduling();
+    }
+
+    private void handleRescalingFailure(Exception cause) {
+        log.error(
+                "Could not rescale {} ({}), failing the job.",
+                jobGraph.getName(),
+                jobGraph.getJobID(),
+                cause);
+
+        failedJob =
+                ArchivedExecutionGraph.createFromInitializingJob(
+                        jobGraph.getJobID(),
+                        jobGraph.getName(),
+                        JobStatus.FAILED,
+                        cause,
+                        initializationTimestamp);
+        jobStatusListener.jobStatusChanges(
+                jobGraph.getJobID(), JobStatus.FAILED, System.currentTimeMillis(), cause);
+        terminationFuture.complete(null);
+    }
+
+    /**
+     * Computes the parallelism of the given vertices for the given number of slots. The slots are
+     * evenly divided between the slot sharing groups, slots a group does not need are divided
+     * between the remaining groups.
+     *
+     * @return the parallelism of each vertex, or nothing if not every slot sharing group can get
+     *     a slot
+     */
+    @VisibleForTesting
+    static Optional<Map<JobVertexID, Integer>> computeParallelism(
+            Iterable<JobVertex> jobVertices,
+            Map<JobVertexID, Integer> desiredParallelism,
+            int numberOfSlots) {
+        final Map<SlotSharingGroupId, Integer> requiredSlots =
+                getRequiredSlotsPerSlotSharingGroup(jobVertices, desiredParallelism);
+        if (numberOfSlots < requiredSlots.size()) {
+            return Optional.empty();
+        }
+
+        final List<Map.Entry<SlotSharingGroupId, Integer>> slotSharingGroups =
+                new ArrayList<>(requiredSlots.entrySet());
+        slotSharingGroups.sort(Map.Entry.comparingByValue());
+
+        final Map<SlotSharingGroupId, Integer> assignedSlots = new HashMap<>();
+        int remainingSlots = numberOfSlots;
+        int remainingGroups = slotSharingGroups.size();
+        for (Map.Entry<SlotSharingGroupId, Integer> slotSharingGroup : slotSharingGroups) {
+            final int slots =
+                    Math.min(slotSharingGroup.getValue(), remainingSlots / remainingGroups);
+            assignedSlots.put(slotSharingGroup.getKey(), slots);
+            remainingSlots -= slots;
+            remainingGroups--;
+        }
+
+        final Map<JobVertexID, Integer> parallelism = new HashMap<>();
+        for (JobVertex jobVertex : jobVertices) {
+            parallelism.put(
+                    jobVertex.getID(),
+                    Math.min(
+                            desiredParallelism.get(jobVertex.getID()),
+                            assignedSlots.get(getSlotSharingGroupId(jobVertex))));
+        }
+        return Optional.of(parallelism);
+    }
+
+    /** Returns the number of slots each slot sharing group requires for the given parallelism. */
+    private static Map<SlotSharingGroupId, Integer> getRequiredSlotsPerSlotSharingGroup(
+            Iterable<JobVertex> jobVertices, Map<JobVertexID, Integer> parallelism) {
+        final Map<SlotSharingGroupId, Integer> requiredSlots = new HashMap<>();
+        for (JobVertex jobVertex : jobVertices) {
+            requiredSlots.merge(
+                    getSlotSharingGroupId(jobVertex),
+                    parallelism.get(jobVertex.getID()),
+                    Math::max);
+        }
+        return requiredSlots;
+    }
+
+    private static SlotSharingGroupId getSlotSharingGroupId(JobVertex jobVertex) {
+        return jobVertex.getSlotSharingGroup().getSlotSharingGroupId();
+    }
+
+    /**
+     * Checks whether the job should be rescaled from the current to the given parallelism. This is
+     * the case if the parallelism of any vertex decreased, because slots were lost, or if it
+     * increased by at least the given minimum.
+     */
+    @VisibleForTesting
+    static boolean shouldRescale(
+            Map<JobVertexID, Integer> currentParallelism,
+            Map<JobVertexID, Integer> newParallelism,
+            int minParallelismIncrease) {
+        boolean isIncreased = false;
+        for (Map.Entry<JobVertexID, Integer> vertexParallelism : newParallelism.entrySet()) {
+            final int current = currentParallelism.get(vertexParallelism.getKey());
+            if (vertexParallelism.getValue() < current) {
+                return true;
+            }
+            if (vertexParallelism.getValue() - current >= minParallelismIncrease) {
+                isIncreased = true;
+            }
+        }
+        return isIncreased;
+    }
+
+    // ------------------------------------------------------------------------
+    // SchedulerNG
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void startScheduling() {
+        mainThreadExecutor.assertRunningInMainThread();
+        checkResources();
+    }
+
+    @Override
+    public void suspend(Throwable cause) {
+        mainThreadExecutor.assertRunningInMainThread();
+
+        terminating = true;
+        checkpointRecoveryFactory.setRetainOnShutdown(false);
+        executing.suspend(cause);
+    }
+
+    @Override
+    public void cancel() {
+        mainThreadExecutor.assertRunningInMainThread();
+
+        terminating = true;
+        executing.cancel();
+    }
+
+    @Override
+    public CompletableFuture<Void> getTerminationFuture() {
+        return terminationFuture;
+    }
+
+    @Override
+    public void handleGlobalFailure(Throwable cause) {
+        executing.handleGlobalFailure(cause);
+    }
+
+    @Override
+    public boolean updateTaskExecutionState(TaskExecutionStateTransition taskExecutionState) {
+        return executing.updateTaskExecutionState(taskExecutionState);
+    }
+
+    @Override
+    public SerializedInputSplit requestNextInputSplit(
+            JobVertexID vertexID, ExecutionAttemptID executionAttempt) throws IOException {
+        return executing.requestNextInputSplit(vertexID, executionAttempt);
+    }
+
+    @Override
+    public ExecutionState requestPartitionState(
+            IntermediateDataSetID intermediateResultId, ResultPartitionID resultPartitionId)
+            throws PartitionProducerDisposedException {
+        return executing.requestPartitionState(intermediateResultId, resultPartitionId);
+    }
+
+    @Override
+    public void notifyPartitionDataAvailable(ResultPartitionID partitionID) {
+        executing.notifyPartitionDataAvailable(partitionID);
+    }
+
+    @Override
+    public ArchivedExecutionGraph requestJob() {
+        return failedJob != null ? failedJob : executing.requestJob();
+    }
+
+    @Override
+    public JobStatus requestJobStatus() {
+        return failedJob != null ? failedJob.getState() : executing.requestJobStatus();
+    }
+
+    @Override
+    public JobDetails requestJobDetails() {
+        return failedJob != null
+                ? JobDetails.createDetailsForJob(failedJob)
+                : executing.requestJobDetails();
+    }
+
+    @Override
+    public KvStateLocation requestKvStateLocation(JobID jobId, String registrationName)
+            throws UnknownKvStateLocation, FlinkJobNotFoundException {
+        return executing.requestKvStateLocation(jobId, registrationName);
+    }
+
+    @Override
+    public void notifyKvStateRegistered(
+            JobID jobId,
+            JobVertexID jobVertexId,
+            KeyGroupRange keyGroupRange,
+            String registrationName,
+            KvStateID kvStateId,
+            InetSocketAddress kvStateServerAddress)
+            throws FlinkJobNotFoundException {
+        executing.notifyKvStateRegistered(
+                jobId,
+                jobVertexId,
+                keyGroupRange,
+                registrationName,
+                kvStateId,
+                kvStateServerAddress);
+    }
+
+    @Override
+    public void notifyKvStateUnregistered(
+            JobID jobId,
+            JobVertexID jobVertexId,
+            KeyGroupRange keyGroupRange,
+            String registrationName)
+            throws FlinkJobNotFoundException {
+        executing.notifyKvStateUnregistered(jobId, jobVertexId, keyGroupRange, registrationName);
+    }
+
+    @Override
+    public void updateAccumulators(AccumulatorSnapshot accumulatorSnapshot) {
+        executing.updateAccumulators(accumulatorSnapshot);
+    }
+
+    @Override
+    public CompletableFuture<String> triggerSavepoint(
+            @Nullable String targetDirectory, boolean cancelJob) {
+        return executing.triggerSavepoint(targetDirectory, cancelJob);
+    }
+
+    @Override
+    public void acknowledgeCheckpoint(
+            JobID jobID,
+            ExecutionAttemptID executionAttemptID,
+            long checkpointId,
+            CheckpointMetrics checkpointMetrics,
+            TaskStateSnapshot checkpointState) {
+        executing.acknowledgeCheckpoint(
+                jobID, executionAttemptID, checkpointId, checkpointMetrics, checkpointState);
+    }
+
+    @Override
+    public void declineCheckpoint(DeclineCheckpoint decline) {
+        executing.declineCheckpoint(decline);
+    }
+
+    @Override
+    public CompletableFuture<String> stopWithSavepoint(
+            String targetDirectory, boolean advanceToEndOfEventTime) {
+        return executing.stopWithSavepoint(targetDirectory, advanceToEndOfEventTime);
+    }
+
+    @Override
+    public void deliverOperatorEventToCoordinator(
+            ExecutionAttemptID taskExecution, OperatorID operator, OperatorEvent evt)
+            throws FlinkException {
+        executing.deliverOperatorEventToCoordinator(taskExecution, operator, evt);
+    }
+
+    @Override
+    public CompletableFuture<CoordinationResponse> deliverCoordinationRequestToCoordinator(
+            OperatorID operator, CoordinationRequest request) throws FlinkException {
+        return executing.deliverCoordinationRequestToCoordinator(operator, request);
+    }
+}
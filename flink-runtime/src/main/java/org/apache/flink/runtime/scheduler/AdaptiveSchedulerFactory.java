@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.configuration.ClusterOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.JobManagerOptions;
+import org.apache.flink.runtime.blob.BlobWriter;
+import org.apache.flink.runtime.checkpoint.CheckpointRecoveryFactory;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutor;
+import org.apache.flink.runtime.executiongraph.JobStatusListener;
+import org.apache.flink.runtime.io.network.partition.JobMasterPartitionTracker;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobgraph.ScheduleMode;
+import org.apache.flink.runtime.jobmaster.ExecutionDeploymentTracker;
+import org.apache.flink.runtime.jobmaster.slotpool.DeclarativeSlotPoolBridge;
+import org.apache.flink.runtime.jobmaster.slotpool.SlotPool;
+import org.apache.flink.runtime.metrics.groups.JobManagerJobMetricGroup;
+import org.apache.flink.runtime.shuffle.ShuffleMaster;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+
+import org.slf4j.Logger;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Factory for {@link AdaptiveScheduler}. Jobs which are not streaming jobs or which contain
+ * co-location constraints, whose vertices must run with the same parallelism, are scheduled by the
+ * {@link DefaultScheduler}.
+ */
+public class AdaptiveSchedulerFactory implements SchedulerNGFactory {
+
+    @Override
+    public SchedulerNG createInstance(
+            final Logger log,
+            final JobGraph jobGraph,
+            final Executor ioExecutor,
+            final Configuration jobMasterConfiguration,
+            final SlotPool slotPool,
+            final ScheduledExecutorService futureExecutor,
+            final ClassLoader userCodeLoader,
+            final CheckpointRecoveryFactory checkpointRecoveryFactory,
+            final Time rpcTimeout,
+            final BlobWriter blobWriter,
+            final JobManagerJobMetricGroup jobManagerJobMetricGroup,
+            final Time slotRequestTimeout,
+            final ShuffleMaster<?> shuffleMaster,
+            final JobMasterPartitionTracker partitionTracker,
+            final ExecutionDeploymentTracker executionDeploymentTracker,
+            long initializationTimestamp,
+            final ComponentMainThreadExecutor mainThreadExecutor,
+            final JobStatusListener jobStatusListener)
+            throws Exception {
+
+        if (!(slotPool instanceof DeclarativeSlotPoolBridge)) {
+            throw new IllegalStateException(
+                    String.format(
+                            "The adaptive scheduler requires declarative resource management, "
+                                    + "please enable [%s].",
+                            ClusterOptions.ENABLE_DECLARATIVE_RESOURCE_MANAGEMENT.key()));
+        }
+
+        final DefaultSchedulerFactory defaultSchedulerFactory = new DefaultSchedulerFactory();
+
+        if (!canRescale(jobGraph)) {
+            log.info(
+                    "Using the default scheduler for {} ({}) which cannot be rescaled.",
+                    jobGraph.getName(),
+                    jobGraph.getJobID());
+            return defaultSchedulerFactory.createInstance(
+                    log,
+                    jobGraph,
+                    ioExecutor,
+                    jobMasterConfiguration,
+                    slotPool,
+                    futureExecutor,
+                    userCodeLoader,
+                    checkpointRecoveryFactory,
+                    rpcTimeout,
+                    blobWriter,
+                    jobManagerJobMetricGroup,
+                    slotRequestTimeout,
+                    shuffleMaster,
+                    partitionTracker,
+                    executionDeploymentTracker,
+                    initializationTimestamp,
+                    mainThreadExecutor,
+                    jobStatusListener);
+        }
+
+        final Map<JobVertexID, Integer> desiredParallelism = prepareDesiredParallelism(jobGraph);
+        final RetainingCheckpointRecoveryFactory retainingCheckpointRecoveryFactory =
+                new RetainingCheckpointRecoveryFactory(checkpointRecoveryFactory);
+
+        return new AdaptiveScheduler(
+                log,
+                jobGraph,
+                (DeclarativeSlotPoolBridge) slotPool,
+                retainingCheckpointRecoveryFactory,
+                (schedulerJobGraph, schedulerJobStatusListener) ->
+                        defaultSchedulerFactory.createInstance(
+                                log,
+                                schedulerJobGraph,
+                                ioExecutor,
+                                jobMasterConfiguration,
+                                slotPool,
+                                futureExecutor,
+                                userCodeLoader,
+                                retainingCheckpointRecoveryFactory,
+                                rpcTimeout,
+                                blobWriter,
+                                jobManagerJobMetricGroup,
+                                slotRequestTimeout,
+                                shuffleMaster,
+                                partitionTracker,
+                                executionDeploymentTracker,
+                                initializationTimestamp,
+                                mainThreadExecutor,
+                                schedulerJobStatusListener),
+                mainThreadExecutor,
+                jobStatusListener,
+                initializationTimestamp,
+                desiredParallelism,
+                jobMasterConfiguration
+                        .get(JobManagerOptions.ADAPTIVE_SCHEDULER_RESOURCE_STABILIZATION_TIMEOUT)
+                        .toMillis(),
+                jobMasterConfiguration.getInteger(
+                        JobManagerOptions.ADAPTIVE_SCHEDULER_MIN_PARALLELISM_INCREASE));
+    }
+
+    private static boolean canRescale(JobGraph jobGraph) {
+        if (jobGraph.getScheduleMode() != ScheduleMode.EAGER) {
+            return false;
+        }
+        for (JobVertex jobVertex : jobGraph.getVertices()) {
+            if (jobVertex.getCoLocationGroup() != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fixes the max parallelism of all vertices, so that the key groups of their state stay the
+     * same when the job is rescaled, and returns it as their desired parallelism.
+     *
+     * @return the desired parallelism of each vertex
+     */
+    @VisibleForTesting
+    static Map<JobVertexID, Integer> prepareDesiredParallelism(JobGraph jobGraph) {
+        final Map<JobVertexID, Integer> desiredParallelism = new HashMap<>();
+        for (JobVertex jobVertex : jobGraph.getVertices()) {
+            if (jobVertex.getMaxParallelism() == ExecutionConfig.PARALLELISM_DEFAULT) {
+                final int parallelism =
+                        jobVertex.getParallelism() == ExecutionConfig.PARALLELISM_DEFAULT
+                                ? 1
+                                : jobVertex.getParallelism();
+                jobVertex.setMaxParallelism(
+                        KeyGroupRangeAssignment.computeDefaultMaxParallelism(parallelism));
+            }
+            desiredParallelism.put(jobVertex.getID(), jobVertex.getMaxParallelism());
+        }
+        return desiredParallelism;
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.JobStatus;
+import org.apache.flink.runtime.checkpoint.CheckpointIDCounter;
+import org.apache.flink.runtime.checkpoint.CheckpointRecoveryFactory;
+import org.apache.flink.runtime.checkpoint.CheckpointsCleaner;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpointStore;
+
+import javax.annotation.Nullable;
+
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link CheckpointRecoveryFactory} which creates the checkpoint services of a job only once and
+ * shares them between all schedulers the {@link AdaptiveScheduler} creates for the job. Unless the
+ * job reached a globally terminal state, shutting down the services is ignored while they are
+ * retained, so that the scheduler which continues the job at a different parallelism can restore
+ * the latest checkpoint.
+ */
+class RetainingCheckpointRecoveryFactory implements CheckpointRecoveryFactory {
+
+    private final CheckpointRecoveryFactory checkpointRecoveryFactory;
+
+    @Nullable private CompletedCheckpointStore completedCheckpointStore;
+
+    @Nullable private CheckpointIDCounter checkpointIdCounter;
+
+    private boolean retainOnShutdown = true;
+
+    RetainingCheckpointRecoveryFactory(CheckpointRecoveryFactory checkpointRecoveryFactory) {
+        this.checkpointRecoveryFactory = checkNotNull(checkpointRecoveryFactory);
+    }
+
+    /**
+     * Sets whether the checkpoint services ignore being shut down in a state which is not globally
+     * terminal. They are retained until the job itself is suspended.
+     */
+    void setRetainOnShutdown(boolean retainOnShutdown) {
+        this.retainOnShutdown = retainOnShutdown;
+    }
+
+    private boolean isRetained(JobStatus jobStatus) {
+        return retainOnShutdown && !jobStatus.isGloballyTerminalState();
+    }
+
+    @Override
+    public CompletedCheckpointStore createCheckpointStore(
+            JobID jobId, int maxNumberOfCheckpointsToRetain, ClassLoader userClassLoader)
+            throws Exception {
+        if (completedCheckpointStore == null) {
+            completedCheckpointStore =
+                    new RetainingCompletedCheckpointStore(
+                            checkpointRecoveryFactory.createCheckpointStore(
+                                    jobId, maxNumberOfCheckpointsToRetain, userClassLoader));
+        }
+        return completedCheckpointStore;
+    }
+
+    @Override
+    public CheckpointIDCounter createCheckpointIDCounter(JobID jobId) throws Exception {
+        if (checkpointIdCounter == null) {
+            checkpointIdCounter =
+                    new RetainingCheckpointIDCounter(
+                            checkpointRecoveryFactory.createCheckpointIDCounter(jobId));
+        }
+        return checkpointIdCounter;
+    }
+
+    private class RetainingCompletedCheckpointStore implements CompletedCheckpointStore {
+
+        private final CompletedCheckpointStore delegate;
+
+        private RetainingCompletedCheckpointStore(CompletedCheckpointStore delegate) {
+            this.delegate = checkNotNull(delegate);
+        }
+
+        @Override
+        public void recover() throws Exception {
+            delegate.recover();
+        }
+
+        @Override
+        public void addCheckpoint(
+                CompletedCheckpoint checkpoint,
+                CheckpointsCleaner checkpointsCleaner,
+                Runnable postCleanup)
+                throws Exception {
+            delegate.addCheckpoint(checkpoint, checkpointsCleaner, postCleanup);
+        }
+
+        @Override
+        public CompletedCheckpoint getLatestCheckpoint(boolean isPreferCheckpointForRecovery)
+                throws Exception {
+            return delegate.getLatestCheckpoint(isPreferCheckpointForRecovery);
+        }
+
+        @Override
+        public void shutdown(
+                JobStatus jobStatus, CheckpointsCleaner checkpointsCleaner, Runnable postCleanup)
+                throws Exception {
+            if (!isRetained(jobStatus)) {
+                delegate.shutdown(jobStatus, checkpointsCleaner, postCleanup);
+            }
+        }
+
+        @Override
+        public List<CompletedCheckpoint> getAllCheckpoints() throws Exception {
+            return delegate.getAllCheckpoints();
+        }
+
+        @Override
+        public int getNumberOfRetainedCheckpoints() {
+            return delegate.getNumberOfRetainedCheckpoints();
+        }
+
+        @Override
+        public int getMaxNumberOfRetainedCheckpoints() {
+            return delegate.getMaxNumberOfRetainedCheckpoints();
+        }
+
+        @Override
+        public boolean requiresExternalizedCheckpoints() {
+            return delegate.requiresExternalizedCheckpoints();
+        }
+    }
+
+    private class RetainingCheckpointIDCounter implements CheckpointIDCounter {
+
+        private final CheckpointIDCounter delegate;
+
+        private RetainingCheckpointIDCounter(CheckpointIDCounter delegate) {
+            this.delegate = checkNotNull(delegate);
+        }
+
+        @Override
+        public void start() throws Exception {
+            delegate.start();
+        }
+
+        @Override
+        public void shutdown(JobStatus jobStatus) throws Exception {
+            if (!isRetained(jobStatus)) {
+                delegate.shutdown(jobStatus);
+            }
+        }
+
+        @Override
+        public long getAndIncrement() throws Exception {
+            return delegate.getAndIncrement();
+        }
+
+        @Override
+        public long get() {
+            return delegate.get();
+        }
+
+        @Override
+        public void setCount(long newId) throws Exception {
+            delegate.setCount(newId);
+        }
+    }
+}
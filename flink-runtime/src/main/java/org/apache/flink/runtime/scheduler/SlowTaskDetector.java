@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.Execution;
+import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Detects slow tasks by comparing the execution time of running tasks with the execution times of
+ * the finished subtasks of the same job vertex. Once enough subtasks of a job vertex are finished,
+ * a running task is slow if it executes longer than a multiple of their median execution time.
+ *
+ * <p>The execution time of a task is measured from the start of its deployment. Subtasks which
+ * were skipped by the {@link AdaptiveBatchScheduler} are not taken into account.
+ *
+ * <p>Only tasks of job vertices which produce result partitions are detected. The output of the
+ * other vertices, e.g. sinks, is written to external systems, to which two attempts of the same
+ * task must not write concurrently. Sources which get their input splits from the JobManager are
+ * not detected either, because two attempts of the same task would divide the splits between them.
+ */
+public class SlowTaskDetector {
+
+    /** The ratio of finished subtasks of a job vertex before its slow tasks are detected. */
+    private final double baselineRatio;
+
+    /** The factor of the median execution time above which a task is slow. */
+    private final double baselineMultiplier;
+
+    /** The execution time below which a task is never slow. */
+    private final long baselineLowerBoundMillis;
+
+    public SlowTaskDetector(
+            double baselineRatio, double baselineMultiplier, long baselineLowerBoundMillis) {
+        checkArgument(
+                baselineRatio > 0 && baselineRatio <= 1,
+                "The baseline ratio must be in (0, 1], but was %s.",
+                baselineRatio);
+        checkArgument(
+                baselineMultiplier >= 1,
+                "The baseline multiplier must be at least 1, but was %s.",
+                baselineMultiplier);
+        checkArgument(
+                baselineLowerBoundMillis >= 0, "The baseline lower bound must not be negative.");
+
+        this.baselineRatio = baselineRatio;
+        this.baselineMultiplier = baselineMultiplier;
+        this.baselineLowerBoundMillis = baselineLowerBoundMillis;
+    }
+
+    /**
+     * Finds the execution vertices of the given job vertices whose current execution is running
+     * and slow.
+     *
+     * @param jobVertices The job vertices to check
+     * @param currentTimestamp The timestamp up to which the running tasks executed
+     * @return The execution vertices with slow tasks
+     */
+    public List<ExecutionVertex> findSlowTasks(
+            final Iterable<ExecutionJobVertex> jobVertices, final long currentTimestamp) {
+
+        final List<ExecutionVertex> slowTasks = new ArrayList<>();
+        for (ExecutionJobVertex jobVertex : jobVertices) {
+            if (!canSpeculate(jobVertex)) {
+                continue;
+            }
+
+            final List<Long> finishedExecutionTimes = new ArrayList<>();
+            final List<ExecutionVertex> runningTasks = new ArrayList<>();
+            int numberOfSubtasks = 0;
+
+            for (ExecutionVertex executionVertex : jobVertex.getTaskVertices()) {
+                if (executionVertex.isSkipped()) {
+                    continue;
+                }
+                numberOfSubtasks++;
+
+                final Execution execution = executionVertex.getCurrentExecutionAttempt();
+                if (execution.getState() == ExecutionState.FINISHED) {
+                    finishedExecutionTimes.add(
+                            getExecutionTime(
+                                    execution,
+                                    execution.getStateTimestamp(ExecutionState.FINISHED)));
+                } else if (execution.getState() == ExecutionState.RUNNING) {
+                    runningTasks.add(executionVertex);
+                }
+            }
+
+            if (runningTasks.isEmpty()) {
+                continue;
+            }
+
+            final long baseline = computeBaseline(finishedExecutionTimes, numberOfSubtasks);
+            if (baseline < 0) {
+                continue;
+            }
+
+            for (ExecutionVertex executionVertex : runningTasks) {
+                if (getExecutionTime(executionVertex.getCurrentExecutionAttempt(), currentTimestamp)
+                        > baseline) {
+                    slowTasks.add(executionVertex);
+                }
+            }
+        }
+        return slowTasks;
+    }
+
+    /**
+     * Checks whether attempts of the given job vertex can run concurrently. This is the case if all
+     * of its output goes to result partitions, which are released for the attempt that does not
+     * finish first, and if it does not request its input splits from the JobManager. The splits of
+     * the input split assigner or of an operator coordinator are assigned to one attempt only.
+     */
+    private static boolean canSpeculate(final ExecutionJobVertex jobVertex) {
+        return jobVertex.getProducedDataSets().length > 0
+                && jobVertex.getSplitAssigner() == null
+                && jobVertex.getOperatorCoordinators().isEmpty();
+    }
+
+    /**
+     * Computes the execution time above which a task of a job vertex is slow.
+     *
+     * @param finishedExecutionTimes The execution times of the finished subtasks of the job vertex
+     * @param numberOfSubtasks The number of executed subtasks of the job vertex
+     * @return The execution time above which a task is slow, or -1 if too few subtasks finished
+     */
+    @VisibleForTesting
+    long computeBaseline(final List<Long> finishedExecutionTimes, final int numberOfSubtasks) {
+        if (finishedExecutionTimes.isEmpty()
+                || finishedExecutionTimes.size() < baselineRatio * numberOfSubtasks) {
+            return -1;
+        }
+
+        final List<Long> sortedExecutionTimes = new ArrayList<>(finishedExecutionTimes);
+        Collections.sort(sortedExecutionTimes);
+        final long median = sortedExecutionTimes.get(sortedExecutionTimes.size() / 2);
+
+        return Math.max(baselineLowerBoundMillis, (long) (median * baselineMultiplier));
+    }
+
+    private static long getExecutionTime(final Execution execution, final long endTimestamp) {
+        return endTimestamp - execution.getStateTimestamp(ExecutionState.DEPLOYING);
+    }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.api.common.JobStatus;
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.JobException;
+import org.apache.flink.runtime.blob.BlobWriter;
+import org.apache.flink.runtime.checkpoint.CheckpointRecoveryFactory;
+import org.apache.flink.runtime.clusterframework.types.ResourceID;
+import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutor;
+import org.apache.flink.runtime.concurrent.FutureUtils;
+import org.apache.flink.runtime.concurrent.ScheduledExecutor;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.Execution;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.executiongraph.JobStatusListener;
+import org.apache.flink.runtime.executiongraph.failover.flip1.FailoverStrategy;
+import org.apache.flink.runtime.executiongraph.failover.flip1.RestartBackoffTimeStrategy;
+import org.apache.flink.runtime.io.network.partition.JobMasterPartitionTracker;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobmanager.scheduler.Locality;
+import org.apache.flink.runtime.jobmaster.ExecutionDeploymentTracker;
+import org.apache.flink.runtime.jobmaster.LogicalSlot;
+import org.apache.flink.runtime.jobmaster.SlotInfo;
+import org.apache.flink.runtime.jobmaster.SlotRequestId;
+import org.apache.flink.runtime.jobmaster.slotpool.PhysicalSlot;
+import org.apache.flink.runtime.jobmaster.slotpool.SingleLogicalSlot;
+import org.apache.flink.runtime.jobmaster.slotpool.SlotPool;
+import org.apache.flink.runtime.metrics.groups.JobManagerJobMetricGroup;
+import org.apache.flink.runtime.scheduler.strategy.SchedulingStrategyFactory;
+import org.apache.flink.runtime.shuffle.ShuffleMaster;
+import org.apache.flink.runtime.taskmanager.TaskManagerLocation;
+import org.apache.flink.util.clock.Clock;
+
+import org.slf4j.Logger;
+
+import javax.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * An {@link AdaptiveBatchScheduler} which starts speculative attempts of slow tasks.
+ *
+ * <p>The {@link SlowTaskDetector} periodically looks for tasks which execute much longer than the
+ * finished subtasks of their job vertex. For each slow task, the TaskManager it runs on is blocked
+ * for speculative attempts for a while, and a speculative attempt is deployed to an available slot
+ * on another TaskManager. No new slots are requested for speculative attempts, so they only use
+ * resources which would otherwise be idle. Whichever attempt finishes first becomes the current
+ * execution of the vertex, the other one is cancelled and its result partitions are released.
+ *
+ * <p>Failures of speculative attempts do not trigger a failover, the current execution continues.
+ */
+public class SpeculativeScheduler extends AdaptiveBatchScheduler {
+
+    private final Logger log;
+
+    private final SlotPool slotPool;
+
+    private final SlowTaskDetector slowTaskDetector;
+
+    private final long checkIntervalMillis;
+
+    private final long blockSlowNodeDurationMillis;
+
+    private final Clock clock;
+
+    /** TaskManagers on which slow tasks ran, with the time until which they are blocked. */
+    private final Map<ResourceID, Long> blockedNodes = new HashMap<>();
+
+    SpeculativeScheduler(
+            final Logger log,
+            final JobGraph jobGraph,
+            final Executor ioExecutor,
+            final Configuration jobMasterConfiguration,
+            final Consumer<ComponentMainThreadExecutor> startUpAction,
+            final ScheduledExecutorService futureExecutor,
+            final ScheduledExecutor delayExecutor,
+            final ClassLoader userCodeLoader,
+            final CheckpointRecoveryFactory checkpointRecoveryFactory,
+            final Time rpcTimeout,
+            final BlobWriter blobWriter,
+            final JobManagerJobMetricGroup jobManagerJobMetricGroup,
+            final ShuffleMaster<?> shuffleMaster,
+            final JobMasterPartitionTracker partitionTracker,
+            final SchedulingStrategyFactory schedulingStrategyFactory,
+            final FailoverStrategy.Factory failoverStrategyFactory,
+            final RestartBackoffTimeStrategy restartBackoffTimeStrategy,
+            final ExecutionVertexOperations executionVertexOperations,
+            final ExecutionVertexVersioner executionVertexVersioner,
+            final ExecutionSlotAllocatorFactory executionSlotAllocatorFactory,
+            final ExecutionDeploymentTracker executionDeploymentTracker,
+            long initializationTimestamp,
+            final ComponentMainThreadExecutor mainThreadExecutor,
+            final JobStatusListener jobStatusListener,
+            final Set<JobVertexID> adaptiveJobVertices,
+            final int minParallelism,
+            final long avgDataVolumePerTask,
+            final SlotPool slotPool,
+            final SlowTaskDetector slowTaskDetector,
+            final long checkIntervalMillis,
+            final long blockSlowNodeDurationMillis,
+            final Clock clock)
+            throws Exception {
+
+        super(
+                log,
+                jobGraph,
+                ioExecutor,
+                jobMasterConfiguration,
+                startUpAction,
+                futureExecutor,
+                delayExecutor,
+                userCodeLoader,
+                checkpointRecoveryFactory,
+                rpcTimeout,
+                blobWriter,
+                jobManagerJobMetricGroup,
+                shuffleMaster,
+                partitionTracker,
+                schedulingStrategyFactory,
+                failoverStrategyFactory,
+                restartBackoffTimeStrategy,
+                executionVertexOperations,
+                executionVertexVersioner,
+                executionSlotAllocatorFactory,
+                executionDeploymentTracker,
+                initializationTimestamp,
+                mainThreadExecutor,
+                jobStatusListener,
+                adaptiveJobVertices,
+                minParallelism,
+                avgDataVolumePerTask);
+
+        checkArgument(checkIntervalMillis > 0, "The check interval must be positive.");
+        checkArgument(
+                blockSlowNodeDurationMillis >= 0,
+                "The duration to block slow nodes must not be negative.");
+
+        this.log = log;
+        this.slotPool = checkNotNull(slotPool);
+        this.slowTaskDetector = checkNotNull(slowTaskDetector);
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.blockSlowNodeDurationMillis = blockSlowNodeDurationMillis;
+        this.clock = checkNotNull(clock);
+    }
+
+    // ------------------------------------------------------------------------
+    // SchedulerNG
+    // ------------------------------------------------------------------------
+
+    @Override
+    protected void startSchedulingInternal() {
+        super.startSchedulingInternal();
+        scheduleSlowTaskDetection();
+    }
+
+    // ------------------------------------------------------------------------
+    // Speculative execution
+    // ------------------------------------------------------------------------
+
+    private void scheduleSlowTaskDetection() {
+        getMainThreadExecutor()
+                .schedule(this::detectSlowTasks, checkIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void detectSlowTasks() {
+        final JobStatus jobStatus = getExecutionGraph().getState();
+        if (jobStatus.isTerminalState()) {
+            return;
+        }
+
+        // tasks are not speculated while the job is restarting
+        if (jobStatus == JobStatus.RUNNING) {
+            final long currentTimestamp = clock.absoluteTimeMillis();
+            blockedNodes.values().removeIf(blockedUntil -> blockedUntil <= currentTimestamp);
+
+            for (ExecutionVertex slowTask :
+                    slowTaskDetector.findSlowTasks(
+                            getExecutionGraph().getVerticesTopologically(), currentTimestamp)) {
+                if (slowTask.getSpeculativeExecutionAttempt() == null) {
+                    speculate(slowTask, currentTimestamp);
+                }
+            }
+        }
+
+        scheduleSlowTaskDetection();
+    }
+
+    private void speculate(final ExecutionVertex slowTask, final long currentTimestamp) {
+        final TaskManagerLocation slowNode = slowTask.getCurrentAssignedResourceLocation();
+        if (slowNode != null) {
+            blockedNodes.put(
+                    slowNode.getResourceID(), currentTimestamp + blockSlowNodeDurationMillis);
+        }
+
+        final ResourceProfile resourceProfile = slowTask.getResourceProfile();
+        final SlotRequestId slotRequestId = new SlotRequestId();
+        final Optional<PhysicalSlot> physicalSlot =
+                findAvailableSlot(resourceProfile)
+                        .flatMap(
+                                slotInfo ->
+                                        slotPool.allocateAvailableSlot(
+                                                slotRequestId,
+                                                slotInfo.getAllocationId(),
+                                                resourceProfile));
+        if (!physicalSlot.isPresent()) {
+            log.debug(
+                    "Cannot speculate slow task {} because no slot is available on other "
+                            + "TaskManagers.",
+                    slowTask.getTaskNameWithSubtaskIndex());
+            return;
+        }
+
+        final LogicalSlot logicalSlot =
+                SingleLogicalSlot.allocateFromPhysicalSlot(
+                        slotRequestId,
+                        physicalSlot.get(),
+                        Locality.UNKNOWN,
+                        slot -> slotPool.releaseSlot(slot.getSlotRequestId(), null),
+                        true);
+
+        final Execution speculativeExecution =
+                slowTask.createSpeculativeExecution(currentTimestamp);
+        log.info(
+                "Starting speculative attempt #{} of slow task {} on {}.",
+                speculativeExecution.getAttemptNumber(),
+                slowTask.getTaskNameWithSubtaskIndex(),
+                logicalSlot.getTaskManagerLocation());
+
+        speculativeExecution.transitionState(ExecutionState.SCHEDULED);
+        if (!speculativeExecution.tryAssignResource(logicalSlot)) {
+            logicalSlot.releaseSlot(null);
+            speculativeExecution.cancel();
+            return;
+        }
+
+        FutureUtils.assertNoException(
+                speculativeExecution
+                        .registerProducedPartitions(logicalSlot.getTaskManagerLocation(), false)
+                        .handle(
+                                (ignored, throwable) -> {
+                                    deployOrFail(speculativeExecution, throwable);
+                                    return null;
+                                }));
+    }
+
+    private static void deployOrFail(
+            final Execution speculativeExecution, @Nullable final Throwable throwable) {
+        if (throwable != null) {
+            speculativeExecution.fail(throwable);
+            return;
+        }
+
+        // the attempt is cancelled if the current attempt finished in the meantime
+        if (speculativeExecution.getState() != ExecutionState.SCHEDULED) {
+            return;
+        }
+
+        try {
+            speculativeExecution.deploy();
+        } catch (JobException e) {
+            speculativeExecution.fail(e);
+        }
+    }
+
+    private Optional<SlotInfo> findAvailableSlot(final ResourceProfile resourceProfile) {
+        for (SlotInfo slotInfo : slotPool.getAvailableSlotsInformation()) {
+            if (!blockedNodes.containsKey(slotInfo.getTaskManagerLocation().getResourceID())
+                    && slotInfo.getResourceProfile().isMatching(resourceProfile)) {
+                return Optional.of(slotInfo);
+            }
+        }
+        return Optional.empty();
+    }
+}
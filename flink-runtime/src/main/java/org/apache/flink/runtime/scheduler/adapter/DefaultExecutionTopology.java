@@ -18,7 +18,8 @@
 
 package org.apache.flink.runtime.scheduler.adapter;
 
-import org.apache.flink.runtime.executiongraph.ExecutionEdge;
+import org.apache.flink.runtime.executiongraph.ConsumedPartitionGroup;
+import org.apache.flink.runtime.executiongraph.ConsumerVertexGroup;
 import org.apache.flink.runtime.executiongraph.ExecutionGraph;
 import org.apache.flink.runtime.executiongraph.ExecutionVertex;
 import org.apache.flink.runtime.executiongraph.IntermediateResultPartition;
@@ -37,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -206,22 +208,63 @@ public class DefaultExecutionTopology implements SchedulingTopology {
             Map<ExecutionVertex, DefaultExecutionVertex> executionVertexMap,
             Map<IntermediateResultPartitionID, DefaultResultPartition> resultPartitions) {
 
+        // the groups are shared like the groups of the execution graph, so that an All-to-All
+        // edge is represented by one group of partitions and one group of consumers
+        final Map<ConsumedPartitionGroup, List<DefaultResultPartition>> consumedPartitionGroups =
+                new IdentityHashMap<>();
+        final Map<ConsumerVertexGroup, List<DefaultExecutionVertex>> consumerVertexGroups =
+                new IdentityHashMap<>();
+
         for (Map.Entry<ExecutionVertex, DefaultExecutionVertex> mapEntry :
                 executionVertexMap.entrySet()) {
             final DefaultExecutionVertex schedulingVertex = mapEntry.getValue();
             final ExecutionVertex executionVertex = mapEntry.getKey();
 
-            for (int index = 0; index < executionVertex.getNumberOfInputs(); index++) {
-                for (ExecutionEdge edge : executionVertex.getInputEdges(index)) {
-                    DefaultResultPartition partition =
-                            resultPartitions.get(edge.getSource().getPartitionId());
-                    schedulingVertex.addConsumedResult(partition);
-                    partition.addConsumer(schedulingVertex);
+            for (ConsumedPartitionGroup consumedPartitionGroup :
+                    executionVertex.getAllConsumedPartitionGroups()) {
+                schedulingVertex.addConsumedPartitionGroup(
+                        consumedPartitionGroups.computeIfAbsent(
+                                consumedPartitionGroup,
+                                group -> getSchedulingResultPartitions(group, resultPartitions)));
+            }
+
+            for (IntermediateResultPartition producedPartition :
+                    executionVertex.getProducedPartitions().values()) {
+                final DefaultResultPartition partition =
+                        resultPartitions.get(producedPartition.getPartitionId());
+                for (ConsumerVertexGroup consumerVertexGroup :
+                        producedPartition.getConsumerVertexGroups()) {
+                    partition.addConsumerGroup(
+                            consumerVertexGroups.computeIfAbsent(
+                                    consumerVertexGroup,
+                                    group -> getSchedulingVertices(group, executionVertexMap)));
                 }
             }
         }
     }
 
+    private static List<DefaultResultPartition> getSchedulingResultPartitions(
+            ConsumedPartitionGroup consumedPartitionGroup,
+            Map<IntermediateResultPartitionID, DefaultResultPartition> resultPartitions) {
+        final List<DefaultResultPartition> schedulingPartitions =
+                new ArrayList<>(consumedPartitionGroup.size());
+        for (IntermediateResultPartition partition : consumedPartitionGroup) {
+            schedulingPartitions.add(resultPartitions.get(partition.getPartitionId()));
+        }
+        return Collections.unmodifiableList(schedulingPartitions);
+    }
+
+    private static List<DefaultExecutionVertex> getSchedulingVertices(
+            ConsumerVertexGroup consumerVertexGroup,
+            Map<ExecutionVertex, DefaultExecutionVertex> executionVertexMap) {
+        final List<DefaultExecutionVertex> schedulingVertices =
+                new ArrayList<>(consumerVertexGroup.size());
+        for (ExecutionVertex vertex : consumerVertexGroup) {
+            schedulingVertices.add(executionVertexMap.get(vertex));
+        }
+        return Collections.unmodifiableList(schedulingVertices);
+    }
+
     private static IndexedPipelinedRegions computePipelinedRegions(
             Iterable<DefaultExecutionVertex> topologicallySortedVertexes) {
         long buildRegionsStartTime = System.nanoTime();
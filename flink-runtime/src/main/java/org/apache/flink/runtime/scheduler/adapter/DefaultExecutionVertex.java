@@ -22,6 +22,8 @@ import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.scheduler.strategy.ExecutionVertexID;
 import org.apache.flink.runtime.scheduler.strategy.SchedulingExecutionVertex;
 
+import org.apache.flink.shaded.guava18.com.google.common.collect.Iterables;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
@@ -33,7 +35,8 @@ class DefaultExecutionVertex implements SchedulingExecutionVertex {
 
     private final ExecutionVertexID executionVertexId;
 
-    private final List<DefaultResultPartition> consumedResults;
+    /** The consumed partitions per input, shared with the other consumers of the partitions. */
+    private final List<List<DefaultResultPartition>> consumedPartitionGroups;
 
     private final List<DefaultResultPartition> producedResults;
 
@@ -44,7 +47,7 @@ class DefaultExecutionVertex implements SchedulingExecutionVertex {
             List<DefaultResultPartition> producedPartitions,
             Supplier<ExecutionState> stateSupplier) {
         this.executionVertexId = checkNotNull(executionVertexId);
-        this.consumedResults = new ArrayList<>();
+        this.consumedPartitionGroups = new ArrayList<>();
         this.stateSupplier = checkNotNull(stateSupplier);
         this.producedResults = checkNotNull(producedPartitions);
     }
@@ -61,7 +64,12 @@ class DefaultExecutionVertex implements SchedulingExecutionVertex {
 
     @Override
     public Iterable<DefaultResultPartition> getConsumedResults() {
-        return consumedResults;
+        return Iterables.concat(consumedPartitionGroups);
+    }
+
+    @Override
+    public List<List<DefaultResultPartition>> getGroupedConsumedResults() {
+        return consumedPartitionGroups;
     }
 
     @Override
@@ -69,7 +77,7 @@ class DefaultExecutionVertex implements SchedulingExecutionVertex {
         return producedResults;
     }
 
-    void addConsumedResult(DefaultResultPartition result) {
-        consumedResults.add(result);
+    void addConsumedPartitionGroup(List<DefaultResultPartition> consumedPartitionGroup) {
+        consumedPartitionGroups.add(checkNotNull(consumedPartitionGroup));
     }
 }
@@ -23,9 +23,13 @@ import org.apache.flink.runtime.scheduler.strategy.ExecutionVertexID;
 import org.apache.flink.runtime.scheduler.strategy.SchedulingPipelinedRegion;
 import org.apache.flink.util.Preconditions;
 
+import org.apache.flink.shaded.guava18.com.google.common.collect.Iterables;
+
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -34,7 +38,7 @@ public class DefaultSchedulingPipelinedRegion implements SchedulingPipelinedRegi
 
     private final Map<ExecutionVertexID, DefaultExecutionVertex> executionVertices;
 
-    private Set<DefaultResultPartition> consumedResults;
+    private Iterable<DefaultResultPartition> consumedResults;
 
     public DefaultSchedulingPipelinedRegion(Set<DefaultExecutionVertex> defaultExecutionVertices) {
         Preconditions.checkNotNull(defaultExecutionVertices);
@@ -69,14 +73,33 @@ public class DefaultSchedulingPipelinedRegion implements SchedulingPipelinedRegi
     }
 
     private void initializeConsumedResults() {
-        final Set<DefaultResultPartition> consumedResults = new HashSet<>();
+        // the partitions of different groups are disjoint, and groups which are shared by several
+        // vertices of the region are visited only once
+        final Set<List<DefaultResultPartition>> visitedGroups =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        final List<List<DefaultResultPartition>> consumedResults = new ArrayList<>();
         for (DefaultExecutionVertex executionVertex : executionVertices.values()) {
-            for (DefaultResultPartition resultPartition : executionVertex.getConsumedResults()) {
-                if (!executionVertices.containsKey(resultPartition.getProducer().getId())) {
-                    consumedResults.add(resultPartition);
+            for (List<DefaultResultPartition> consumedPartitionGroup :
+                    executionVertex.getGroupedConsumedResults()) {
+                if (!visitedGroups.add(consumedPartitionGroup)) {
+                    continue;
+                }
+
+                final List<DefaultResultPartition> externalPartitions = new ArrayList<>();
+                for (DefaultResultPartition resultPartition : consumedPartitionGroup) {
+                    if (!executionVertices.containsKey(resultPartition.getProducer().getId())) {
+                        externalPartitions.add(resultPartition);
+                    }
+                }
+
+                if (externalPartitions.size() == consumedPartitionGroup.size()) {
+                    // share the group instead of copying it
+                    consumedResults.add(consumedPartitionGroup);
+                } else if (!externalPartitions.isEmpty()) {
+                    consumedResults.add(externalPartitions);
                 }
             }
         }
-        this.consumedResults = Collections.unmodifiableSet(consumedResults);
+        this.consumedResults = Iterables.unmodifiableIterable(Iterables.concat(consumedResults));
     }
 }
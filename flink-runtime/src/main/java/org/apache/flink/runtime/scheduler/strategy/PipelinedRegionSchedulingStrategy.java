@@ -113,7 +113,28 @@ public class PipelinedRegionSchedulingStrategy implements SchedulingStrategy {
     @Override
     public void onExecutionStateChange(
             final ExecutionVertexID executionVertexId, final ExecutionState executionState) {
-        if (executionState == ExecutionState.FINISHED) {
+        if (executionState == ExecutionState.RUNNING) {
+            // hybrid partitions can be consumed as soon as all their producers are running
+            final Set<SchedulingPipelinedRegion> consumerRegions =
+                    IterableUtils.toStream(
+                                    schedulingTopology
+                                            .getVertex(executionVertexId)
+                                            .getProducedResults())
+                            .filter(partition -> partition.getResultType().isHybrid())
+                            .filter(
+                                    partition ->
+                                            partitionConsumerRegions.containsKey(partition.getId()))
+                            .flatMap(
+                                    partition ->
+                                            correlatedResultPartitions.get(partition.getResultId())
+                                                    .stream())
+                            .flatMap(
+                                    partition ->
+                                            partitionConsumerRegions.get(partition.getId())
+                                                    .stream())
+                            .collect(Collectors.toSet());
+            maybeScheduleRegions(consumerRegions);
+        } else if (executionState == ExecutionState.FINISHED) {
             final Set<SchedulingResultPartition> finishedPartitions =
                     IterableUtils.toStream(
                                     schedulingTopology
@@ -159,6 +180,11 @@ public class PipelinedRegionSchedulingStrategy implements SchedulingStrategy {
             return;
         }
 
+        if (consumesHybridPartitions(region) && !areRegionVerticesAllInCreatedState(region)) {
+            // the region was already scheduled when the producers of its hybrid inputs started
+            return;
+        }
+
         checkState(
                 areRegionVerticesAllInCreatedState(region),
                 "BUG: trying to schedule a region which is not in CREATED state");
@@ -171,13 +197,33 @@ public class PipelinedRegionSchedulingStrategy implements SchedulingStrategy {
 
     private boolean areRegionInputsAllConsumable(final SchedulingPipelinedRegion region) {
         for (SchedulingResultPartition partition : region.getConsumedResults()) {
-            if (partition.getState() != ResultPartitionState.CONSUMABLE) {
+            if (partition.getState() != ResultPartitionState.CONSUMABLE
+                    && !isHybridPartitionProducing(partition)) {
                 return false;
             }
         }
         return true;
     }
 
+    private static boolean isHybridPartitionProducing(final SchedulingResultPartition partition) {
+        if (!partition.getResultType().isHybrid()) {
+            return false;
+        }
+
+        final ExecutionState producerState = partition.getProducer().getState();
+        return producerState == ExecutionState.RUNNING
+                || producerState == ExecutionState.FINISHED;
+    }
+
+    private static boolean consumesHybridPartitions(final SchedulingPipelinedRegion region) {
+        for (SchedulingResultPartition partition : region.getConsumedResults()) {
+            if (partition.getResultType().isHybrid()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean areRegionVerticesAllInCreatedState(final SchedulingPipelinedRegion region) {
         for (SchedulingExecutionVertex vertex : region.getVertices()) {
             if (vertex.getState() != ExecutionState.CREATED) {
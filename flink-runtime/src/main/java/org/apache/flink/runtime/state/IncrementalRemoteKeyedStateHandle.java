@@ -186,10 +186,7 @@ public class IncrementalRemoteKeyedStateHandle implements IncrementalKeyedStateH
         if (isRegistered) {
             // If this was registered, we only unregister all our referenced shared states
             // from the registry.
-            for (StateHandleID stateHandleID : sharedState.keySet()) {
-                registry.unregisterReference(
-                        createSharedStateRegistryKeyFromFileName(stateHandleID));
-            }
+            unregisterSharedStates(registry);
         } else {
             // Otherwise, we assume to own those handles and dispose them directly.
             try {
@@ -261,6 +258,27 @@ public class IncrementalRemoteKeyedStateHandle implements IncrementalKeyedStateH
             // deduplication and returns the previous reference.
             sharedStateHandle.setValue(result.getReference());
         }
+
+        // the meta data and private state in segment files must keep the segment files alive
+        stateRegistry.registerSegmentReference(metaStateHandle);
+        for (StreamStateHandle privateStateHandle : privateState.values()) {
+            stateRegistry.registerSegmentReference(privateStateHandle);
+        }
+    }
+
+    /**
+     * Releases the references to the shared state that {@link
+     * #registerSharedStates(SharedStateRegistry)} registered at the given registry.
+     */
+    public void unregisterSharedStates(SharedStateRegistry stateRegistry) throws Exception {
+        for (StateHandleID stateHandleID : sharedState.keySet()) {
+            stateRegistry.unregisterReference(
+                    createSharedStateRegistryKeyFromFileName(stateHandleID));
+        }
+        stateRegistry.unregisterSegmentReference(metaStateHandle);
+        for (StreamStateHandle privateStateHandle : privateState.values()) {
+            stateRegistry.unregisterSegmentReference(privateStateHandle);
+        }
     }
 
     /** Create a unique key to register one of our shared state handles. */
@@ -23,6 +23,8 @@ import org.apache.flink.runtime.state.heap.HeapPriorityQueueElement;
 
 import javax.annotation.Nonnull;
 
+import java.util.function.ToLongFunction;
+
 /** Factory for {@link KeyGroupedInternalPriorityQueue} instances. */
 public interface PriorityQueueSetFactory {
 
@@ -40,4 +42,29 @@ public interface PriorityQueueSetFactory {
             KeyGroupedInternalPriorityQueue<T> create(
                     @Nonnull String stateName,
                     @Nonnull TypeSerializer<T> byteOrderedElementSerializer);
+
+    /**
+     * Creates a {@link KeyGroupedInternalPriorityQueue} for elements that are prioritized by a
+     * timestamp. The queue may group the elements into buckets of the given number of milliseconds
+     * to make adding and removing elements cheaper, the order of the elements is the same. By
+     * default, this creates the same queue as {@link #create(String, TypeSerializer)}.
+     *
+     * @param stateName unique name for associated with this queue.
+     * @param byteOrderedElementSerializer a serializer that with a format that is lexicographically
+     *     ordered in alignment with elementPriorityComparator.
+     * @param timestampExtractor extracts the timestamp of an element. The priority order of the
+     *     elements must be consistent with the order of their timestamps.
+     * @param bucketSize the number of milliseconds of one bucket.
+     * @param <T> type of the stored elements.
+     * @return the queue with the specified unique name.
+     */
+    @Nonnull
+    default <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
+            KeyGroupedInternalPriorityQueue<T> create(
+                    @Nonnull String stateName,
+                    @Nonnull TypeSerializer<T> byteOrderedElementSerializer,
+                    @Nonnull ToLongFunction<T> timestampExtractor,
+                    long bucketSize) {
+        return create(stateName, byteOrderedElementSerializer);
+    }
 }
@@ -18,12 +18,18 @@
 
 package org.apache.flink.runtime.state;
 
+import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.util.Preconditions;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -37,6 +43,11 @@ import java.util.concurrent.RejectedExecutionException;
  * <p>A {@code SharedStateRegistry} will be deployed in the {@link
  * org.apache.flink.runtime.checkpoint.CheckpointCoordinator} to maintain the reference count of
  * {@link StreamStateHandle}s by a key that (logically) identifies them.
+ *
+ * <p>Registered {@link SegmentFileStateHandle}s only address a part of a segment file. The registry
+ * additionally counts the registered handles per segment file, and deletes the segment file once
+ * none of them is registered anymore. Segments that are not shared between checkpoints are
+ * registered through {@link #registerSegmentReference(StreamStateHandle)}.
  */
 public class SharedStateRegistry implements AutoCloseable {
 
@@ -49,6 +60,10 @@ public class SharedStateRegistry implements AutoCloseable {
     private final Map<SharedStateRegistryKey, SharedStateRegistry.SharedStateEntry>
             registeredStates;
 
+    /** The number of registered segment file handles by segment file. */
+    @GuardedBy("registeredStates")
+    private final Map<Path, Integer> segmentFileReferences;
+
     /** This flag indicates whether or not the registry is open or if close() was called */
     private boolean open;
 
@@ -62,6 +77,7 @@ public class SharedStateRegistry implements AutoCloseable {
 
     public SharedStateRegistry(Executor asyncDisposalExecutor) {
         this.registeredStates = new HashMap<>();
+        this.segmentFileReferences = new HashMap<>();
         this.asyncDisposalExecutor = Preconditions.checkNotNull(asyncDisposalExecutor);
         this.open = true;
     }
@@ -106,6 +122,10 @@ public class SharedStateRegistry implements AutoCloseable {
 
                 entry = new SharedStateRegistry.SharedStateEntry(state);
                 registeredStates.put(registrationKey, entry);
+                if (state instanceof SegmentFileStateHandle) {
+                    segmentFileReferences.merge(
+                            ((SegmentFileStateHandle) state).getFilePath(), 1, Integer::sum);
+                }
             } else {
                 // delete if this is a real duplicate
                 if (!Objects.equals(state, entry.stateHandle)) {
@@ -154,7 +174,7 @@ public class SharedStateRegistry implements AutoCloseable {
             // Remove the state from the registry when it's not referenced any more.
             if (entry.getReferenceCount() <= 0) {
                 registeredStates.remove(registrationKey);
-                scheduledStateDeletion = entry.getStateHandle();
+                scheduledStateDeletion = releaseStateHandle(entry.getStateHandle());
                 result = new Result(null, 0);
             } else {
                 scheduledStateDeletion = null;
@@ -167,6 +187,57 @@ public class SharedStateRegistry implements AutoCloseable {
         return result;
     }
 
+    /**
+     * Registers a reference to the segment file of the given state, if it is a {@link
+     * SegmentFileStateHandle}. This is meant for state that is not shared between checkpoints, but
+     * with other state in the same segment file. Other state is owned by its checkpoint and not
+     * registered.
+     *
+     * @param state the state whose segment file is referenced.
+     */
+    public void registerSegmentReference(StreamStateHandle state) {
+        if (state instanceof SegmentFileStateHandle) {
+            registerReference(createSegmentRegistryKey((SegmentFileStateHandle) state), state);
+        }
+    }
+
+    /**
+     * Releases a reference that was registered through {@link
+     * #registerSegmentReference(StreamStateHandle)}. Unlike {@link
+     * #unregisterReference(SharedStateRegistryKey)}, the segment file is deleted by the calling
+     * thread if this was its last reference, so that its checkpoint directory can be deleted
+     * afterwards.
+     *
+     * @param state the state whose segment file is no longer referenced.
+     */
+    public void unregisterSegmentReference(StreamStateHandle state) throws Exception {
+        if (!(state instanceof SegmentFileStateHandle)) {
+            return;
+        }
+
+        final SharedStateRegistryKey registrationKey =
+                createSegmentRegistryKey((SegmentFileStateHandle) state);
+        final StreamStateHandle stateDeletion;
+
+        synchronized (registeredStates) {
+            SharedStateRegistry.SharedStateEntry entry = registeredStates.get(registrationKey);
+
+            Preconditions.checkState(
+                    entry != null, "Cannot unregister a state that is not registered.");
+
+            entry.decreaseReferenceCount();
+            if (entry.getReferenceCount() > 0) {
+                return;
+            }
+            registeredStates.remove(registrationKey);
+            stateDeletion = releaseStateHandle(entry.getStateHandle());
+        }
+
+        if (stateDeletion != null) {
+            stateDeletion.discardState();
+        }
+    }
+
     /**
      * Register given shared states in the registry.
      *
@@ -215,6 +286,35 @@ public class SharedStateRegistry implements AutoCloseable {
         }
     }
 
+    /**
+     * Returns the handle to delete once the given handle is no longer registered. This is the
+     * segment file for the last registered segment of a segment file.
+     */
+    @GuardedBy("registeredStates")
+    @Nullable
+    private StreamStateHandle releaseStateHandle(StreamStateHandle stateHandle) {
+        if (!(stateHandle instanceof SegmentFileStateHandle)) {
+            return stateHandle;
+        }
+
+        Path filePath = ((SegmentFileStateHandle) stateHandle).getFilePath();
+        Integer references = segmentFileReferences.get(filePath);
+        Preconditions.checkState(references != null, "Segment file %s is unknown.", filePath);
+        if (references > 1) {
+            segmentFileReferences.put(filePath, references - 1);
+            return null;
+        }
+        segmentFileReferences.remove(filePath);
+        return new FileStateHandle(filePath, 0L);
+    }
+
+    /** Creates the key of a segment which is registered by its location. */
+    private static SharedStateRegistryKey createSegmentRegistryKey(
+            SegmentFileStateHandle stateHandle) {
+        return new SharedStateRegistryKey(
+                "segment-" + stateHandle.getFilePath() + '@' + stateHandle.getStartPos());
+    }
+
     private boolean isPlaceholder(StreamStateHandle stateHandle) {
         return stateHandle instanceof PlaceholderStreamStateHandle;
     }
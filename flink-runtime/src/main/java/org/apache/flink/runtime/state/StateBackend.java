@@ -25,6 +25,7 @@ import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 
 import javax.annotation.Nonnull;
@@ -118,6 +119,24 @@ public interface StateBackend extends java.io.Serializable {
      */
     CheckpointStorageAccess createCheckpointStorage(JobID jobId) throws IOException;
 
+    /**
+     * Creates a storage for checkpoints for the given job on a TaskManager. The checkpoint streams
+     * of the storage may merge their state into shared segment files with the given writers of the
+     * TaskManager.
+     *
+     * <p>The default implementation ignores the writers and calls {@link
+     * #createCheckpointStorage(JobID)}.
+     *
+     * @param jobId The job to store checkpoint data for.
+     * @param segmentFileWriters The segment file writers of the TaskManager.
+     * @return A checkpoint storage for the given job.
+     * @throws IOException Thrown if the checkpoint storage cannot be initialized.
+     */
+    default CheckpointStorageAccess createCheckpointStorage(
+            JobID jobId, SegmentFileWriters segmentFileWriters) throws IOException {
+        return createCheckpointStorage(jobId);
+    }
+
     // ------------------------------------------------------------------------
     //  Structure Backends
     // ------------------------------------------------------------------------
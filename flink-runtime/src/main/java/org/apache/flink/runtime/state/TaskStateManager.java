@@ -25,10 +25,13 @@ import org.apache.flink.runtime.checkpoint.PrioritizedOperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReader;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import java.util.concurrent.Executor;
+
 /**
  * This interface provides methods to report and retrieve state for a task.
  *
@@ -74,4 +77,16 @@ public interface TaskStateManager extends CheckpointListener, AutoCloseable {
     LocalRecoveryConfig createLocalRecoveryConfig();
 
     SequentialChannelStateReader getSequentialChannelStateReader();
+
+    /**
+     * Returns the executor for asynchronous I/O of state backends, e.g. uploads of state in the
+     * background. The executor is shared by all tasks of the TaskManager and must not be shut down.
+     */
+    Executor getIOExecutor();
+
+    /**
+     * Returns the writers that merge small checkpoint state into shared segment files. The writers
+     * are shared by all tasks of the TaskManager.
+     */
+    SegmentFileWriters getSegmentFileWriters();
 }
@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.state;
 
+import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.JobID;
 import org.apache.flink.runtime.checkpoint.CheckpointMetaData;
 import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
@@ -27,8 +28,10 @@ import org.apache.flink.runtime.checkpoint.PrioritizedOperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReader;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReaderImpl;
+import org.apache.flink.runtime.concurrent.Executors;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.runtime.taskmanager.CheckpointResponder;
 
 import org.slf4j.Logger;
@@ -39,6 +42,7 @@ import javax.annotation.Nullable;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * This class is the default implementation of {@link TaskStateManager} and collaborates with the
@@ -74,6 +78,13 @@ public class TaskStateManagerImpl implements TaskStateManager {
 
     private final SequentialChannelStateReader sequentialChannelStateReader;
 
+    /** The executor of the TaskManager for asynchronous I/O of the state backends. */
+    private final Executor ioExecutor;
+
+    /** The segment file writers of the TaskManager. */
+    private final SegmentFileWriters segmentFileWriters;
+
+    @VisibleForTesting
     public TaskStateManagerImpl(
             @Nonnull JobID jobId,
             @Nonnull ExecutionAttemptID executionAttemptID,
@@ -86,6 +97,26 @@ public class TaskStateManagerImpl implements TaskStateManager {
                 localStateStore,
                 jobManagerTaskRestore,
                 checkpointResponder,
+                Executors.directExecutor(),
+                new SegmentFileWriters());
+    }
+
+    public TaskStateManagerImpl(
+            @Nonnull JobID jobId,
+            @Nonnull ExecutionAttemptID executionAttemptID,
+            @Nonnull TaskLocalStateStore localStateStore,
+            @Nullable JobManagerTaskRestore jobManagerTaskRestore,
+            @Nonnull CheckpointResponder checkpointResponder,
+            @Nonnull Executor ioExecutor,
+            @Nonnull SegmentFileWriters segmentFileWriters) {
+        this(
+                jobId,
+                executionAttemptID,
+                localStateStore,
+                jobManagerTaskRestore,
+                checkpointResponder,
+                ioExecutor,
+                segmentFileWriters,
                 new SequentialChannelStateReaderImpl(
                         jobManagerTaskRestore == null
                                 ? new TaskStateSnapshot()
@@ -98,6 +129,8 @@ public class TaskStateManagerImpl implements TaskStateManager {
             @Nonnull TaskLocalStateStore localStateStore,
             @Nullable JobManagerTaskRestore jobManagerTaskRestore,
             @Nonnull CheckpointResponder checkpointResponder,
+            @Nonnull Executor ioExecutor,
+            @Nonnull SegmentFileWriters segmentFileWriters,
             @Nonnull SequentialChannelStateReaderImpl sequentialChannelStateReader) {
         this.jobId = jobId;
         this.localStateStore = localStateStore;
@@ -105,6 +138,8 @@ public class TaskStateManagerImpl implements TaskStateManager {
         this.executionAttemptID = executionAttemptID;
         this.checkpointResponder = checkpointResponder;
         this.sequentialChannelStateReader = sequentialChannelStateReader;
+        this.ioExecutor = ioExecutor;
+        this.segmentFileWriters = segmentFileWriters;
     }
 
     @Override
@@ -184,6 +219,16 @@ public class TaskStateManagerImpl implements TaskStateManager {
         return sequentialChannelStateReader;
     }
 
+    @Override
+    public Executor getIOExecutor() {
+        return ioExecutor;
+    }
+
+    @Override
+    public SegmentFileWriters getSegmentFileWriters() {
+        return segmentFileWriters;
+    }
+
     /** Tracking when local state can be confirmed and disposed. */
     @Override
     public void notifyCheckpointComplete(long checkpointId) throws Exception {
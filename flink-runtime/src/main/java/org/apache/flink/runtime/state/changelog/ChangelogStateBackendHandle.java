@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SharedStateRegistryKey;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A handle to the keyed state of a changelog-based state backend. It consists of the state that was
+ * materialized by the wrapped backend and of the changelog that was written since then.
+ */
+@Internal
+public interface ChangelogStateBackendHandle extends KeyedStateHandle {
+
+    /**
+     * Returns the snapshots of the wrapped backend, each with an identifier that is unique across
+     * all materializations.
+     */
+    List<Tuple2<StateHandleID, KeyedStateHandle>> getMaterializedStateHandles();
+
+    /** Returns the changes that are not included in the materialized state. */
+    List<StateChangelogHandle> getNonMaterializedStateHandles();
+
+    /** Default implementation of {@link ChangelogStateBackendHandle}. */
+    class ChangelogStateBackendHandleImpl implements ChangelogStateBackendHandle {
+
+        private static final Logger LOG =
+                LoggerFactory.getLogger(ChangelogStateBackendHandleImpl.class);
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<Tuple2<StateHandleID, KeyedStateHandle>> materialized;
+        private final List<StateChangelogHandle> nonMaterialized;
+        private final KeyGroupRange keyGroupRange;
+
+        /** The registry the handle was registered with, null if not registered. */
+        @Nullable private transient SharedStateRegistry sharedStateRegistry;
+
+        public ChangelogStateBackendHandleImpl(
+                List<Tuple2<StateHandleID, KeyedStateHandle>> materialized,
+                List<StateChangelogHandle> nonMaterialized,
+                KeyGroupRange keyGroupRange) {
+            this.materialized = new ArrayList<>(materialized);
+            this.nonMaterialized = new ArrayList<>(nonMaterialized);
+            this.keyGroupRange = Preconditions.checkNotNull(keyGroupRange);
+            for (Tuple2<StateHandleID, KeyedStateHandle> handle : this.materialized) {
+                Preconditions.checkArgument(
+                        handle.f1 instanceof KeyGroupsStateHandle
+                                || handle.f1 instanceof IncrementalRemoteKeyedStateHandle,
+                        "Unsupported materialized state handle: %s",
+                        handle.f1);
+            }
+        }
+
+        @Override
+        public List<Tuple2<StateHandleID, KeyedStateHandle>> getMaterializedStateHandles() {
+            return materialized;
+        }
+
+        @Override
+        public List<StateChangelogHandle> getNonMaterializedStateHandles() {
+            return nonMaterialized;
+        }
+
+        @Override
+        public KeyGroupRange getKeyGroupRange() {
+            return keyGroupRange;
+        }
+
+        @Nullable
+        @Override
+        public KeyedStateHandle getIntersection(KeyGroupRange keyGroupRange) {
+            KeyGroupRange intersection = this.keyGroupRange.getIntersection(keyGroupRange);
+            if (KeyGroupRange.EMPTY_KEY_GROUP_RANGE.equals(intersection)) {
+                return null;
+            }
+            List<Tuple2<StateHandleID, KeyedStateHandle>> materializedIntersection =
+                    new ArrayList<>();
+            for (Tuple2<StateHandleID, KeyedStateHandle> handle : materialized) {
+                KeyedStateHandle part = handle.f1.getIntersection(intersection);
+                if (part != null) {
+                    materializedIntersection.add(Tuple2.of(handle.f0, part));
+                }
+            }
+            List<StateChangelogHandle> nonMaterializedIntersection = new ArrayList<>();
+            for (StateChangelogHandle handle : nonMaterialized) {
+                KeyedStateHandle part = handle.getIntersection(intersection);
+                if (part != null) {
+                    nonMaterializedIntersection.add((StateChangelogHandle) part);
+                }
+            }
+            return new ChangelogStateBackendHandleImpl(
+                    materializedIntersection, nonMaterializedIntersection, intersection);
+        }
+
+        /**
+         * Registers all parts of the materialized state, not only the ones that the wrapped backend
+         * would consider shared: the same materialization is referenced by all checkpoints until
+         * the next one completes.
+         */
+        @Override
+        public void registerSharedStates(SharedStateRegistry stateRegistry) {
+            Preconditions.checkState(
+                    sharedStateRegistry != stateRegistry,
+                    "The state handle has already registered its shared states to the given registry.");
+            sharedStateRegistry = Preconditions.checkNotNull(stateRegistry);
+
+            for (int i = 0; i < materialized.size(); i++) {
+                Tuple2<StateHandleID, KeyedStateHandle> handle = materialized.get(i);
+                if (handle.f1 instanceof KeyGroupsStateHandle) {
+                    KeyGroupsStateHandle keyGroupsHandle = (KeyGroupsStateHandle) handle.f1;
+                    SharedStateRegistry.Result result =
+                            stateRegistry.registerReference(
+                                    createRegistryKey(handle.f0, "data"),
+                                    keyGroupsHandle.getDelegateStateHandle());
+                    materialized.set(
+                            i,
+                            Tuple2.of(
+                                    handle.f0,
+                                    new KeyGroupsStateHandle(
+                                            keyGroupsHandle.getGroupRangeOffsets(),
+                                            result.getReference())));
+                } else {
+                    IncrementalRemoteKeyedStateHandle incrementalHandle =
+                            (IncrementalRemoteKeyedStateHandle) handle.f1;
+                    incrementalHandle.registerSharedStates(stateRegistry);
+                    stateRegistry.registerReference(
+                            createRegistryKey(handle.f0, "meta"),
+                            incrementalHandle.getMetaStateHandle());
+                    for (Map.Entry<StateHandleID, StreamStateHandle> privateState :
+                            incrementalHandle.getPrivateState().entrySet()) {
+                        stateRegistry.registerReference(
+                                createRegistryKey(handle.f0, "private-" + privateState.getKey()),
+                                privateState.getValue());
+                    }
+                }
+            }
+
+            for (StateChangelogHandle handle : nonMaterialized) {
+                handle.registerSharedStates(stateRegistry);
+            }
+        }
+
+        /**
+         * Only releases the references to the registered state. An unregistered handle does not
+         * discard anything because all its parts might be referenced by other checkpoints, too.
+         */
+        @Override
+        public void discardState() throws Exception {
+            SharedStateRegistry registry = this.sharedStateRegistry;
+            if (registry == null) {
+                LOG.debug(
+                        "Not discarding unregistered changelog backend handle {}, its parts may still be referenced.",
+                        this);
+                return;
+            }
+
+            for (Tuple2<StateHandleID, KeyedStateHandle> handle : materialized) {
+                if (handle.f1 instanceof KeyGroupsStateHandle) {
+                    registry.unregisterReference(createRegistryKey(handle.f0, "data"));
+                } else {
+                    IncrementalRemoteKeyedStateHandle incrementalHandle =
+                            (IncrementalRemoteKeyedStateHandle) handle.f1;
+                    incrementalHandle.unregisterSharedStates(registry);
+                    registry.unregisterReference(createRegistryKey(handle.f0, "meta"));
+                    for (StateHandleID privateId : incrementalHandle.getPrivateState().keySet()) {
+                        registry.unregisterReference(
+                                createRegistryKey(handle.f0, "private-" + privateId));
+                    }
+                }
+            }
+
+            StateUtil.bestEffortDiscardAllStateObjects(nonMaterialized);
+        }
+
+        @Override
+        public long getStateSize() {
+            long size = 0L;
+            for (Tuple2<StateHandleID, KeyedStateHandle> handle : materialized) {
+                size += handle.f1.getStateSize();
+            }
+            for (StateChangelogHandle handle : nonMaterialized) {
+                size += handle.getStateSize();
+            }
+            return size;
+        }
+
+        /**
+         * Creates a copy of the given materialized handle that can be sent as part of another
+         * checkpoint. Handles keep track of their registration, so one instance must not be
+         * included in several checkpoints.
+         */
+        public static KeyedStateHandle copyMaterializedHandle(KeyedStateHandle handle) {
+            if (handle instanceof IncrementalRemoteKeyedStateHandle) {
+                IncrementalRemoteKeyedStateHandle incrementalHandle =
+                        (IncrementalRemoteKeyedStateHandle) handle;
+                return new IncrementalRemoteKeyedStateHandle(
+                        incrementalHandle.getBackendIdentifier(),
+                        incrementalHandle.getKeyGroupRange(),
+                        incrementalHandle.getCheckpointId(),
+                        new HashMap<>(incrementalHandle.getSharedState()),
+                        new HashMap<>(incrementalHandle.getPrivateState()),
+                        incrementalHandle.getMetaStateHandle());
+            }
+            return handle;
+        }
+
+        private static SharedStateRegistryKey createRegistryKey(
+                StateHandleID materializationId, String part) {
+            return new SharedStateRegistryKey(
+                    "materialized-" + materializationId, new StateHandleID(part));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ChangelogStateBackendHandleImpl that = (ChangelogStateBackendHandleImpl) o;
+            return materialized.equals(that.materialized)
+                    && nonMaterialized.equals(that.nonMaterialized)
+                    && keyGroupRange.equals(that.keyGroupRange);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = materialized.hashCode();
+            result = 31 * result + nonMaterialized.hashCode();
+            result = 31 * result + keyGroupRange.hashCode();
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "ChangelogStateBackendHandleImpl{"
+                    + "materialized="
+                    + materialized
+                    + ", nonMaterialized="
+                    + nonMaterialized
+                    + ", keyGroupRange="
+                    + keyGroupRange
+                    + ", registered="
+                    + (sharedStateRegistry != null)
+                    + '}';
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+import java.io.Serializable;
+
+/**
+ * A logical timestamp of a {@link StateChange} appended to a {@link StateChangelogWriter}. Sequence
+ * numbers are assigned by the writer in the order of appending and are only comparable within the
+ * same writer.
+ */
+@Internal
+public final class SequenceNumber implements Comparable<SequenceNumber>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The sequence number of the first change appended to a fresh writer. */
+    public static final SequenceNumber FIRST = new SequenceNumber(0L);
+
+    private final long number;
+
+    private SequenceNumber(long number) {
+        Preconditions.checkArgument(number >= 0, "Sequence number must not be negative.");
+        this.number = number;
+    }
+
+    public static SequenceNumber of(long number) {
+        return new SequenceNumber(number);
+    }
+
+    public long get() {
+        return number;
+    }
+
+    public SequenceNumber next() {
+        return new SequenceNumber(number + 1);
+    }
+
+    @Override
+    public int compareTo(SequenceNumber o) {
+        return Long.compare(number, o.number);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return number == ((SequenceNumber) o).number;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(number);
+    }
+
+    @Override
+    public String toString() {
+        return "SequenceNumber{" + number + '}';
+    }
+}
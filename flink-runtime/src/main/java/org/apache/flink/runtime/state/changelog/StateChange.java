@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.util.Preconditions;
+
+import java.io.Serializable;
+
+/**
+ * A single opaque change of keyed state as recorded in a {@link StateChangelogWriter}. The content
+ * of the change is only interpreted by the state backend that wrote it.
+ */
+@Internal
+public class StateChange implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Key group of changes that do not belong to a particular key group, e.g. state meta data. Such
+     * changes are retained for every key group range on rescaling.
+     */
+    public static final int META_KEY_GROUP = -1;
+
+    private final int keyGroup;
+    private final byte[] change;
+
+    public StateChange(int keyGroup, byte[] change) {
+        this.keyGroup = keyGroup;
+        this.change = Preconditions.checkNotNull(change);
+    }
+
+    public int getKeyGroup() {
+        return keyGroup;
+    }
+
+    public byte[] getChange() {
+        return change;
+    }
+
+    public boolean isMeta() {
+        return keyGroup == META_KEY_GROUP;
+    }
+
+    @Override
+    public String toString() {
+        return "StateChange{keyGroup=" + keyGroup + ", size=" + change.length + '}';
+    }
+}
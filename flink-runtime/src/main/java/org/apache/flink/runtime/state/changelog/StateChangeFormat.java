@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.IOUtils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Binary format of a persisted segment of a state changelog.
+ *
+ * <pre>
+ * +---------+-------+--------------------------------------------------+
+ * | version | count | count x (sequence number, key group, size, data) |
+ * +---------+-------+--------------------------------------------------+
+ * </pre>
+ */
+@Internal
+public final class StateChangeFormat {
+
+    private static final int VERSION = 1;
+
+    private StateChangeFormat() {}
+
+    /** A change together with the sequence number it was assigned by the writer. */
+    public static final class SequencedStateChange {
+
+        private final SequenceNumber sequenceNumber;
+        private final StateChange change;
+
+        public SequencedStateChange(SequenceNumber sequenceNumber, StateChange change) {
+            this.sequenceNumber = sequenceNumber;
+            this.change = change;
+        }
+
+        public SequenceNumber getSequenceNumber() {
+            return sequenceNumber;
+        }
+
+        public StateChange getChange() {
+            return change;
+        }
+    }
+
+    public static void write(List<SequencedStateChange> changes, DataOutputView out)
+            throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(changes.size());
+        for (SequencedStateChange sequenced : changes) {
+            StateChange change = sequenced.getChange();
+            out.writeLong(sequenced.getSequenceNumber().get());
+            out.writeInt(change.getKeyGroup());
+            out.writeInt(change.getChange().length);
+            out.write(change.getChange());
+        }
+    }
+
+    /**
+     * Returns the changes of the given segments with a sequence number of at least {@code from}
+     * which either belong to the given key group range or are meta changes.
+     */
+    public static CloseableIterator<StateChange> read(
+            List<StreamStateHandle> segments, SequenceNumber from, KeyGroupRange keyGroupRange) {
+        return new SegmentsIterator(segments.iterator(), from, keyGroupRange);
+    }
+
+    private static final class SegmentsIterator implements CloseableIterator<StateChange> {
+
+        private final Iterator<StreamStateHandle> segments;
+        private final long from;
+        private final KeyGroupRange keyGroupRange;
+
+        private FSDataInputStream currentStream;
+        private DataInputViewStreamWrapper currentInput;
+        private int remainingInSegment;
+        private StateChange next;
+
+        private SegmentsIterator(
+                Iterator<StreamStateHandle> segments,
+                SequenceNumber from,
+                KeyGroupRange keyGroupRange) {
+            this.segments = segments;
+            this.from = from.get();
+            this.keyGroupRange = keyGroupRange;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = advance();
+                } catch (IOException e) {
+                    throw new RuntimeException("Unable to read state changelog segment", e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public StateChange next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            StateChange result = next;
+            next = null;
+            return result;
+        }
+
+        private StateChange advance() throws IOException {
+            while (true) {
+                while (remainingInSegment == 0) {
+                    IOUtils.closeQuietly(currentStream);
+                    currentStream = null;
+                    if (!segments.hasNext()) {
+                        return null;
+                    }
+                    currentStream = segments.next().openInputStream();
+                    currentInput = new DataInputViewStreamWrapper(currentStream);
+                    int version = currentInput.readInt();
+                    if (version != VERSION) {
+                        throw new IOException(
+                                "Unsupported state changelog segment version: " + version);
+                    }
+                    remainingInSegment = currentInput.readInt();
+                }
+                remainingInSegment--;
+                long sequenceNumber = currentInput.readLong();
+                int keyGroup = currentInput.readInt();
+                byte[] data = new byte[currentInput.readInt()];
+                currentInput.readFully(data);
+                if (sequenceNumber >= from
+                        && (keyGroup == StateChange.META_KEY_GROUP
+                                || keyGroupRange.contains(keyGroup))) {
+                    return new StateChange(keyGroup, data);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (currentStream != null) {
+                currentStream.close();
+                currentStream = null;
+            }
+            remainingInSegment = 0;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.util.CloseableIterator;
+
+import java.io.IOException;
+
+/**
+ * A handle to a contiguous part of a state changelog, as returned by {@link
+ * StateChangelogWriter#persist(SequenceNumber)}.
+ */
+@Internal
+public interface StateChangelogHandle extends KeyedStateHandle {
+
+    /**
+     * Reads the changes covered by this handle in the order in which they were appended. Only
+     * changes of the key groups in {@link #getKeyGroupRange()} and {@link StateChange#isMeta() meta
+     * changes} are returned.
+     */
+    CloseableIterator<StateChange> getChanges() throws IOException;
+}
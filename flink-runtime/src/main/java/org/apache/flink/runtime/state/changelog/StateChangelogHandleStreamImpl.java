@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SharedStateRegistryKey;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * {@link StateChangelogHandle} that refers to segments of a changelog which were persisted as
+ * {@link StreamStateHandle streams} in {@link StateChangeFormat}.
+ *
+ * <p>Segments are usually referenced by multiple consecutive checkpoints (every checkpoint persists
+ * the changelog tail since the last materialization of the state backend), so they are registered
+ * as shared state with the {@link SharedStateRegistry}. An unregistered handle never discards its
+ * segments because they might already be referenced by another checkpoint.
+ */
+@Internal
+public final class StateChangelogHandleStreamImpl implements StateChangelogHandle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StateChangelogHandleStreamImpl.class);
+
+    private static final long serialVersionUID = 1L;
+
+    private final KeyGroupRange keyGroupRange;
+
+    /** Segments in the order of their sequence numbers, identified by a globally unique id. */
+    private final List<Tuple2<StateHandleID, StreamStateHandle>> segments;
+
+    /** The first sequence number covered by this handle (inclusive). */
+    private final SequenceNumber from;
+
+    /** The registry the segments were registered with, null if not registered. */
+    @Nullable private transient SharedStateRegistry sharedStateRegistry;
+
+    public StateChangelogHandleStreamImpl(
+            KeyGroupRange keyGroupRange,
+            List<Tuple2<StateHandleID, StreamStateHandle>> segments,
+            SequenceNumber from) {
+        this.keyGroupRange = Preconditions.checkNotNull(keyGroupRange);
+        this.segments = new ArrayList<>(Preconditions.checkNotNull(segments));
+        this.from = Preconditions.checkNotNull(from);
+    }
+
+    public List<Tuple2<StateHandleID, StreamStateHandle>> getSegments() {
+        return segments;
+    }
+
+    public SequenceNumber getFrom() {
+        return from;
+    }
+
+    @Override
+    public CloseableIterator<StateChange> getChanges() {
+        return StateChangeFormat.read(
+                segments.stream().map(t -> t.f1).collect(Collectors.toList()), from, keyGroupRange);
+    }
+
+    @Override
+    public KeyGroupRange getKeyGroupRange() {
+        return keyGroupRange;
+    }
+
+    @Nullable
+    @Override
+    public KeyedStateHandle getIntersection(KeyGroupRange keyGroupRange) {
+        KeyGroupRange intersection = this.keyGroupRange.getIntersection(keyGroupRange);
+        if (KeyGroupRange.EMPTY_KEY_GROUP_RANGE.equals(intersection)) {
+            return null;
+        }
+        return new StateChangelogHandleStreamImpl(intersection, segments, from);
+    }
+
+    @Override
+    public void registerSharedStates(SharedStateRegistry stateRegistry) {
+        Preconditions.checkState(
+                sharedStateRegistry != stateRegistry,
+                "The state handle has already registered its shared states to the given registry.");
+        sharedStateRegistry = Preconditions.checkNotNull(stateRegistry);
+
+        for (int i = 0; i < segments.size(); i++) {
+            Tuple2<StateHandleID, StreamStateHandle> segment = segments.get(i);
+            SharedStateRegistry.Result result =
+                    stateRegistry.registerReference(createRegistryKey(segment.f0), segment.f1);
+            segments.set(i, Tuple2.of(segment.f0, result.getReference()));
+        }
+    }
+
+    @Override
+    public void discardState() throws Exception {
+        SharedStateRegistry registry = this.sharedStateRegistry;
+        if (registry == null) {
+            LOG.debug(
+                    "Not discarding unregistered changelog segments {}, they may still be referenced.",
+                    segments);
+            return;
+        }
+        for (Tuple2<StateHandleID, StreamStateHandle> segment : segments) {
+            registry.unregisterReference(createRegistryKey(segment.f0));
+        }
+    }
+
+    @Override
+    public long getStateSize() {
+        long size = 0L;
+        for (Tuple2<StateHandleID, StreamStateHandle> segment : segments) {
+            size += segment.f1.getStateSize();
+        }
+        return size;
+    }
+
+    private static SharedStateRegistryKey createRegistryKey(StateHandleID segmentId) {
+        return new SharedStateRegistryKey("changelog", segmentId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        StateChangelogHandleStreamImpl that = (StateChangelogHandleStreamImpl) o;
+        return keyGroupRange.equals(that.keyGroupRange)
+                && segments.equals(that.segments)
+                && from.equals(that.from);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = keyGroupRange.hashCode();
+        result = 31 * result + segments.hashCode();
+        result = 31 * result + from.hashCode();
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "StateChangelogHandleStreamImpl{"
+                + "keyGroupRange="
+                + keyGroupRange
+                + ", segments="
+                + segments
+                + ", from="
+                + from
+                + ", registered="
+                + (sharedStateRegistry != null)
+                + '}';
+    }
+}
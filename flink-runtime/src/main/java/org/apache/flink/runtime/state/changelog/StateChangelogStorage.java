@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.state.KeyGroupRange;
+
+/**
+ * A storage for state changelogs. Creates {@link StateChangelogWriter writers} that append to it.
+ *
+ * @param <Handle> type of the handle to the persisted changes.
+ */
+@Internal
+public interface StateChangelogStorage<Handle extends StateChangelogHandle> extends AutoCloseable {
+
+    /**
+     * Creates a writer for the changes of the given operator and key group range.
+     *
+     * @param operatorIdentifier The identifier text of the operator.
+     * @param keyGroupRange Range of key-groups the changes belong to.
+     */
+    StateChangelogWriter<Handle> createWriter(
+            String operatorIdentifier, KeyGroupRange keyGroupRange);
+
+    @Override
+    default void close() throws Exception {}
+}
@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.Internal;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Allows to write state changes to a durable log. Changes are appended continuously and may be
+ * persisted in the background, {@link #persist(SequenceNumber)} makes sure that everything appended
+ * so far becomes durable and returns a handle to it.
+ *
+ * <p>Writers are not thread-safe and are expected to be accessed only from the task thread.
+ *
+ * @param <Handle> type of the handle to the persisted changes.
+ */
+@Internal
+public interface StateChangelogWriter<Handle extends StateChangelogHandle> extends AutoCloseable {
+
+    /**
+     * Returns the sequence number that will be assigned to the next appended change. All the
+     * changes appended so far have a strictly lower sequence number.
+     */
+    SequenceNumber nextSequenceNumber();
+
+    /** Appends the given change of the given key group to the log. */
+    void append(int keyGroup, byte[] change) throws IOException;
+
+    /**
+     * Durably persists all the changes appended so far that have a sequence number of at least
+     * {@code from}. The returned future completes once the changes are durable.
+     */
+    CompletableFuture<Handle> persist(SequenceNumber from) throws IOException;
+
+    /**
+     * Notifies the writer that changes before the given sequence number are no longer needed, e.g.
+     * because they are included in a materialized snapshot. The writer may release the resources
+     * used to track them but must not delete any persisted data, which might still be referenced by
+     * checkpoints.
+     */
+    void truncate(SequenceNumber to);
+
+    @Override
+    void close() throws Exception;
+}
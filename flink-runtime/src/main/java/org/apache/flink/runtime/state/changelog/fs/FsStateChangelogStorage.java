@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.StateChangelogStorage;
+import org.apache.flink.runtime.state.changelog.StateChangelogWriter;
+import org.apache.flink.util.Preconditions;
+
+import java.util.concurrent.Executor;
+
+/**
+ * {@link StateChangelogStorage} that writes changelog segments as files to a directory of a Flink
+ * {@link org.apache.flink.core.fs.FileSystem}. Used with a local directory, it serves as a simple
+ * implementation for testing; used with a distributed file system it provides a durable changelog.
+ */
+@Internal
+public class FsStateChangelogStorage
+        implements StateChangelogStorage<StateChangelogHandleStreamImpl> {
+
+    private final Path basePath;
+
+    private final long persistThresholdBytes;
+
+    private final Executor uploadExecutor;
+
+    /**
+     * @param basePath The directory to write the changelog segments to.
+     * @param persistThresholdBytes The size of buffered changes from which on they are uploaded
+     *     pro-actively, before a checkpoint requests them.
+     * @param uploadExecutor The executor to upload the segments with, e.g. the I/O executor of the
+     *     TaskManager. It is not shut down by this storage.
+     */
+    public FsStateChangelogStorage(
+            Path basePath, long persistThresholdBytes, Executor uploadExecutor) {
+        Preconditions.checkArgument(
+                persistThresholdBytes > 0, "The persist threshold must be positive.");
+        this.basePath = Preconditions.checkNotNull(basePath);
+        this.persistThresholdBytes = persistThresholdBytes;
+        this.uploadExecutor = Preconditions.checkNotNull(uploadExecutor);
+    }
+
+    @Override
+    public StateChangelogWriter<StateChangelogHandleStreamImpl> createWriter(
+            String operatorIdentifier, KeyGroupRange keyGroupRange) {
+        return new FsStateChangelogWriter(
+                basePath, keyGroupRange, persistThresholdBytes, uploadExecutor);
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangeFormat;
+import org.apache.flink.runtime.state.changelog.StateChangeFormat.SequencedStateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.StateChangelogWriter;
+import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link StateChangelogWriter} that persists changes as segment files on a {@link FileSystem}.
+ *
+ * <p>Appended changes are buffered in memory. Once the buffered changes exceed the configured
+ * threshold, they are uploaded as a new segment in the background, so that {@link
+ * #persist(SequenceNumber)} usually only has to upload the (small) tail of the log.
+ */
+class FsStateChangelogWriter implements StateChangelogWriter<StateChangelogHandleStreamImpl> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(FsStateChangelogWriter.class);
+
+    private final Path directory;
+    private final KeyGroupRange keyGroupRange;
+    private final long persistThresholdBytes;
+    private final Executor uploadExecutor;
+
+    /** Segments which are uploaded or being uploaded, by their first sequence number. */
+    private final NavigableMap<SequenceNumber, Segment> segments = new TreeMap<>();
+
+    /** Changes which were not yet scheduled for upload. */
+    private List<SequencedStateChange> activeChanges = new ArrayList<>();
+
+    private long activeChangesSize;
+
+    private SequenceNumber activeFrom = SequenceNumber.FIRST;
+
+    private SequenceNumber nextSequenceNumber = SequenceNumber.FIRST;
+
+    private boolean closed;
+
+    FsStateChangelogWriter(
+            Path directory,
+            KeyGroupRange keyGroupRange,
+            long persistThresholdBytes,
+            Executor uploadExecutor) {
+        this.directory = Preconditions.checkNotNull(directory);
+        this.keyGroupRange = Preconditions.checkNotNull(keyGroupRange);
+        this.persistThresholdBytes = persistThresholdBytes;
+        this.uploadExecutor = Preconditions.checkNotNull(uploadExecutor);
+    }
+
+    @Override
+    public SequenceNumber nextSequenceNumber() {
+        return nextSequenceNumber;
+    }
+
+    @Override
+    public void append(int keyGroup, byte[] change) {
+        Preconditions.checkState(!closed, "Writer is closed.");
+        activeChanges.add(
+                new SequencedStateChange(nextSequenceNumber, new StateChange(keyGroup, change)));
+        activeChangesSize += change.length;
+        nextSequenceNumber = nextSequenceNumber.next();
+        if (activeChangesSize >= persistThresholdBytes) {
+            scheduleUploadOfActiveChanges();
+        }
+    }
+
+    @Override
+    public CompletableFuture<StateChangelogHandleStreamImpl> persist(SequenceNumber from) {
+        Preconditions.checkState(!closed, "Writer is closed.");
+        Preconditions.checkArgument(
+                segments.isEmpty() || from.compareTo(segments.firstKey()) >= 0,
+                "Changes from %s were already truncated.",
+                from);
+        scheduleUploadOfActiveChanges();
+
+        List<CompletableFuture<Tuple2<StateHandleID, StreamStateHandle>>> uploads =
+                new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment.to.compareTo(from) > 0) {
+                uploads.add(segment.getOrRetryUpload());
+            }
+        }
+
+        return CompletableFuture.allOf(uploads.toArray(new CompletableFuture[0]))
+                .thenApply(
+                        ignored -> {
+                            List<Tuple2<StateHandleID, StreamStateHandle>> persisted =
+                                    new ArrayList<>(uploads.size());
+                            for (CompletableFuture<Tuple2<StateHandleID, StreamStateHandle>>
+                                    upload : uploads) {
+                                persisted.add(upload.join());
+                            }
+                            return new StateChangelogHandleStreamImpl(
+                                    keyGroupRange, persisted, from);
+                        });
+    }
+
+    @Override
+    public void truncate(SequenceNumber to) {
+        while (!segments.isEmpty() && segments.firstEntry().getValue().to.compareTo(to) <= 0) {
+            segments.pollFirstEntry();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        segments.clear();
+        activeChanges = new ArrayList<>();
+    }
+
+    private void scheduleUploadOfActiveChanges() {
+        if (activeChanges.isEmpty()) {
+            return;
+        }
+        Segment segment = new Segment(activeFrom, nextSequenceNumber, activeChanges);
+        segments.put(activeFrom, segment);
+        segment.getOrRetryUpload();
+
+        activeChanges = new ArrayList<>();
+        activeChangesSize = 0L;
+        activeFrom = nextSequenceNumber;
+    }
+
+    @VisibleForTesting
+    int getNumberOfSegments() {
+        return segments.size();
+    }
+
+    private Tuple2<StateHandleID, StreamStateHandle> upload(List<SequencedStateChange> changes) {
+        String segmentId = UUID.randomUUID().toString();
+        Path path = new Path(directory, segmentId);
+        try {
+            FileSystem fileSystem = path.getFileSystem();
+            long size;
+            try (FSDataOutputStream out =
+                    fileSystem.create(path, FileSystem.WriteMode.NO_OVERWRITE)) {
+                StateChangeFormat.write(changes, new DataOutputViewStreamWrapper(out));
+                out.flush();
+                size = out.getPos();
+            } catch (IOException e) {
+                try {
+                    fileSystem.delete(path, false);
+                } catch (IOException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+                throw e;
+            }
+            LOG.debug("Uploaded {} state changes ({} bytes) to {}.", changes.size(), size, path);
+            return Tuple2.of(new StateHandleID(segmentId), new FileStateHandle(path, size));
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /** A range of changes that is uploaded as one file. */
+    private final class Segment {
+
+        private final SequenceNumber from;
+
+        /** Exclusive. */
+        private final SequenceNumber to;
+
+        /** The changes to upload, released once they were uploaded successfully. */
+        private volatile List<SequencedStateChange> changes;
+
+        private CompletableFuture<Tuple2<StateHandleID, StreamStateHandle>> upload;
+
+        private Segment(
+                SequenceNumber from, SequenceNumber to, List<SequencedStateChange> changes) {
+            this.from = from;
+            this.to = to;
+            this.changes = changes;
+        }
+
+        private CompletableFuture<Tuple2<StateHandleID, StreamStateHandle>> getOrRetryUpload() {
+            if (upload == null || upload.isCompletedExceptionally()) {
+                if (upload != null) {
+                    LOG.info(
+                            "Retrying upload of state changes [{}, {}) after a failure.",
+                            from.get(),
+                            to.get());
+                }
+                final List<SequencedStateChange> toUpload = changes;
+                upload =
+                        CompletableFuture.supplyAsync(() -> upload(toUpload), uploadExecutor)
+                                .whenComplete(
+                                        (handle, failure) -> {
+                                            if (failure == null) {
+                                                // the changes are not needed for retries anymore
+                                                changes = null;
+                                            }
+                                        });
+            }
+            return upload;
+        }
+    }
+}
@@ -50,6 +50,14 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
 
     private final int writeBufferSize;
 
+    /** State up to this size is merged into shared segment files, zero if disabled. */
+    private final int maxMergedStateSize;
+
+    private final long maxMergeWaitMillis;
+
+    /** The segment file writers of the TaskManager, null on the JobManager. */
+    @Nullable private final SegmentFileWriters segmentFileWriters;
+
     private boolean baseLocationsInitialized = false;
 
     public FsCheckpointStorageAccess(
@@ -78,10 +86,36 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
             int writeBufferSize)
             throws IOException {
 
+        this(
+                fs,
+                checkpointBaseDirectory,
+                defaultSavepointDirectory,
+                jobId,
+                fileSizeThreshold,
+                writeBufferSize,
+                0,
+                0L,
+                null);
+    }
+
+    public FsCheckpointStorageAccess(
+            FileSystem fs,
+            Path checkpointBaseDirectory,
+            @Nullable Path defaultSavepointDirectory,
+            JobID jobId,
+            int fileSizeThreshold,
+            int writeBufferSize,
+            int maxMergedStateSize,
+            long maxMergeWaitMillis,
+            @Nullable SegmentFileWriters segmentFileWriters)
+            throws IOException {
+
         super(jobId, defaultSavepointDirectory);
 
         checkArgument(fileSizeThreshold >= 0);
         checkArgument(writeBufferSize >= 0);
+        checkArgument(maxMergedStateSize >= 0);
+        checkArgument(maxMergeWaitMillis >= 0);
 
         this.fileSystem = checkNotNull(fs);
         this.checkpointsDirectory = getCheckpointDirectoryForJob(checkpointBaseDirectory, jobId);
@@ -90,6 +124,9 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
                 new Path(checkpointsDirectory, CHECKPOINT_TASK_OWNED_STATE_DIR);
         this.fileSizeThreshold = fileSizeThreshold;
         this.writeBufferSize = writeBufferSize;
+        this.maxMergedStateSize = maxMergedStateSize;
+        this.maxMergeWaitMillis = maxMergeWaitMillis;
+        this.segmentFileWriters = segmentFileWriters;
     }
 
     // ------------------------------------------------------------------------
@@ -147,6 +184,7 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
             final Path checkpointDir =
                     createCheckpointDirectory(checkpointsDirectory, checkpointId);
 
+            // only checkpoints merge their state, savepoints must stay self-contained
             return new FsCheckpointStorageLocation(
                     fileSystem,
                     checkpointDir,
@@ -154,7 +192,10 @@ public class FsCheckpointStorageAccess extends AbstractFsCheckpointStorageAccess
                     taskOwnedStateDirectory,
                     reference,
                     fileSizeThreshold,
-                    writeBufferSize);
+                    writeBufferSize,
+                    maxMergedStateSize,
+                    maxMergeWaitMillis,
+                    segmentFileWriters);
         } else {
             // location encoded in the reference
             final Path path = decodePathFromReference(reference);
@@ -26,6 +26,8 @@ import org.apache.flink.runtime.state.CheckpointMetadataOutputStream;
 import org.apache.flink.runtime.state.CheckpointStorageLocation;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -59,8 +61,40 @@ public class FsCheckpointStorageLocation extends FsCheckpointStreamFactory
             CheckpointStorageLocationReference reference,
             int fileStateSizeThreshold,
             int writeBufferSize) {
+        this(
+                fileSystem,
+                checkpointDir,
+                sharedStateDir,
+                taskOwnedStateDir,
+                reference,
+                fileStateSizeThreshold,
+                writeBufferSize,
+                0,
+                0L,
+                null);
+    }
 
-        super(fileSystem, checkpointDir, sharedStateDir, fileStateSizeThreshold, writeBufferSize);
+    public FsCheckpointStorageLocation(
+            FileSystem fileSystem,
+            Path checkpointDir,
+            Path sharedStateDir,
+            Path taskOwnedStateDir,
+            CheckpointStorageLocationReference reference,
+            int fileStateSizeThreshold,
+            int writeBufferSize,
+            int maxMergedStateSize,
+            long maxMergeWaitMillis,
+            @Nullable SegmentFileWriters segmentFileWriters) {
+
+        super(
+                fileSystem,
+                checkpointDir,
+                sharedStateDir,
+                fileStateSizeThreshold,
+                writeBufferSize,
+                maxMergedStateSize,
+                maxMergeWaitMillis,
+                segmentFileWriters);
 
         checkArgument(fileStateSizeThreshold >= 0);
         checkArgument(writeBufferSize >= 0);
@@ -86,6 +86,18 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
     /** Whether the file system dynamically injects entropy into the file paths. */
     private final boolean entropyInjecting;
 
+    /**
+     * State up to this size is merged into shared segment files, rather than written to files of
+     * its own. Zero if file merging is disabled.
+     */
+    private final int maxMergedStateSize;
+
+    /** The maximum time that a stream waits for other streams to fill its segment file. */
+    private final long maxMergeWaitMillis;
+
+    /** The segment file writers of the TaskManager, null if file merging is disabled. */
+    @Nullable private final SegmentFileWriters segmentFileWriters;
+
     /**
      * Creates a new stream factory that stores its checkpoint data in the file system and location
      * defined by the given Path.
@@ -107,6 +119,43 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             Path sharedStateDirectory,
             int fileStateSizeThreshold,
             int writeBufferSize) {
+        this(
+                fileSystem,
+                checkpointDirectory,
+                sharedStateDirectory,
+                fileStateSizeThreshold,
+                writeBufferSize,
+                0,
+                0L,
+                null);
+    }
+
+    /**
+     * Creates a new stream factory that stores its checkpoint data in the file system and location
+     * defined by the given Path, and merges small state into shared segment files.
+     *
+     * @param fileSystem The filesystem to write to.
+     * @param checkpointDirectory The directory for checkpoint exclusive state data.
+     * @param sharedStateDirectory The directory for shared checkpoint data.
+     * @param fileStateSizeThreshold State up to this size will be stored as part of the metadata,
+     *     rather than in files
+     * @param writeBufferSize The write buffer size.
+     * @param maxMergedStateSize State up to this size will be merged into shared segment files,
+     *     zero to disable file merging.
+     * @param maxMergeWaitMillis The maximum time a stream waits for other streams to fill its
+     *     segment file.
+     * @param segmentFileWriters The segment file writers of the TaskManager, null to disable file
+     *     merging.
+     */
+    public FsCheckpointStreamFactory(
+            FileSystem fileSystem,
+            Path checkpointDirectory,
+            Path sharedStateDirectory,
+            int fileStateSizeThreshold,
+            int writeBufferSize,
+            int maxMergedStateSize,
+            long maxMergeWaitMillis,
+            @Nullable SegmentFileWriters segmentFileWriters) {
 
         if (fileStateSizeThreshold < 0) {
             throw new IllegalArgumentException(
@@ -123,12 +172,20 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                             + MAX_FILE_STATE_THRESHOLD);
         }
 
+        if (maxMergedStateSize < 0 || maxMergeWaitMillis < 0) {
+            throw new IllegalArgumentException(
+                    "The file merging size and wait time must be zero or larger.");
+        }
+
         this.filesystem = checkNotNull(fileSystem);
         this.checkpointDirectory = checkNotNull(checkpointDirectory);
         this.sharedStateDirectory = checkNotNull(sharedStateDirectory);
         this.fileStateThreshold = fileStateSizeThreshold;
         this.writeBufferSize = writeBufferSize;
         this.entropyInjecting = EntropyInjector.isEntropyInjecting(fileSystem);
+        this.maxMergedStateSize = maxMergedStateSize;
+        this.maxMergeWaitMillis = maxMergeWaitMillis;
+        this.segmentFileWriters = segmentFileWriters;
     }
 
     // ------------------------------------------------------------------------
@@ -143,6 +200,15 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
         int bufferSize = Math.max(writeBufferSize, fileStateThreshold);
 
         final boolean absolutePath = entropyInjecting || scope == CheckpointedStateScope.SHARED;
+        if (segmentFileWriters != null && maxMergedStateSize > fileStateThreshold) {
+            return new FsCheckpointStateOutputStream(
+                    target,
+                    filesystem,
+                    Math.max(bufferSize, maxMergedStateSize),
+                    fileStateThreshold,
+                    !absolutePath,
+                    segmentFileWriters.register(filesystem, target, maxMergeWaitMillis));
+        }
         return new FsCheckpointStateOutputStream(
                 target, filesystem, bufferSize, fileStateThreshold, !absolutePath);
     }
@@ -187,6 +253,12 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 
         private final boolean allowRelativePaths;
 
+        /**
+         * The writer that merges the state into a segment file if the state fits into the write
+         * buffer. Null if file merging is disabled, or once the stream left the writer.
+         */
+        @Nullable private SegmentFileWriter segmentFileWriter;
+
         public FsCheckpointStateOutputStream(
                 Path basePath, FileSystem fs, int bufferSize, int localStateThreshold) {
             this(basePath, fs, bufferSize, localStateThreshold, false);
@@ -198,6 +270,16 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                 int bufferSize,
                 int localStateThreshold,
                 boolean allowRelativePaths) {
+            this(basePath, fs, bufferSize, localStateThreshold, allowRelativePaths, null);
+        }
+
+        FsCheckpointStateOutputStream(
+                Path basePath,
+                FileSystem fs,
+                int bufferSize,
+                int localStateThreshold,
+                boolean allowRelativePaths,
+                @Nullable SegmentFileWriter segmentFileWriter) {
 
             if (bufferSize < localStateThreshold) {
                 throw new IllegalArgumentException();
@@ -208,6 +290,7 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             this.writeBuffer = new byte[bufferSize];
             this.localStateThreshold = localStateThreshold;
             this.allowRelativePaths = allowRelativePaths;
+            this.segmentFileWriter = segmentFileWriter;
         }
 
         @Override
@@ -255,6 +338,8 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                 // initialize stream if this is the first flushToFile (stream flush, not Darjeeling
                 // harvest)
                 if (outStream == null) {
+                    // the state does not fit into a segment file
+                    leaveSegmentFileWriter();
                     createStream();
                 }
 
@@ -267,10 +352,13 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             }
         }
 
-        /** Flush buffers to file if their size is above {@link #localStateThreshold}. */
+        /**
+         * Flush buffers to file if their size is above {@link #localStateThreshold}. State that may
+         * still be merged into a segment file stays in the buffer.
+         */
         @Override
         public void flush() throws IOException {
-            if (outStream != null || pos > localStateThreshold) {
+            if (outStream != null || (pos > localStateThreshold && segmentFileWriter == null)) {
                 flushToFile();
             }
         }
@@ -298,6 +386,7 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
         public void close() {
             if (!closed) {
                 closed = true;
+                leaveSegmentFileWriter();
 
                 // make sure write requests need to go to 'flushToFile()' where they recognized
                 // that the stream is closed
@@ -327,6 +416,7 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
         public StreamStateHandle closeAndGetHandle() throws IOException {
             // check if there was nothing ever written
             if (outStream == null && pos == 0) {
+                leaveSegmentFileWriter();
                 return null;
             }
 
@@ -336,7 +426,15 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
                         closed = true;
                         byte[] bytes = Arrays.copyOf(writeBuffer, pos);
                         pos = writeBuffer.length;
+                        leaveSegmentFileWriter();
                         return new ByteStreamStateHandle(createStatePath().toString(), bytes);
+                    } else if (outStream == null && segmentFileWriter != null) {
+                        SegmentFileWriter writer = segmentFileWriter;
+                        segmentFileWriter = null;
+                        closed = true;
+                        int size = pos;
+                        pos = writeBuffer.length;
+                        return writer.append(writeBuffer, size);
                     } else {
                         try {
                             flushToFile();
@@ -387,6 +485,13 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
             }
         }
 
+        private synchronized void leaveSegmentFileWriter() {
+            if (segmentFileWriter != null) {
+                segmentFileWriter.unregisterStream();
+                segmentFileWriter = null;
+            }
+        }
+
         private Path createStatePath() {
             final String fileName = UUID.randomUUID().toString();
             relativeStatePath = fileName;
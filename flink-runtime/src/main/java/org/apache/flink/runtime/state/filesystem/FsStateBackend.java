@@ -120,6 +120,12 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
      */
     private final TernaryBoolean asynchronousSnapshots;
 
+    /**
+     * Switch to enable incremental checkpoints of the key/value data structures. A value of
+     * 'undefined' means not yet configured, in which case the default will be used.
+     */
+    private final TernaryBoolean incrementalCheckpoints;
+
     /**
      * The write buffer size for created checkpoint stream, this should not be less than file state
      * threshold when we want state below that threshold stored as part of metadata not files. A
@@ -127,6 +133,15 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
      */
     private final int writeBufferSize;
 
+    /**
+     * State up to this size is merged into shared segment files by the checkpoint streams. Zero
+     * means that file merging is disabled, which is the case until the backend is configured.
+     */
+    private final int maxMergedStateSize;
+
+    /** The maximum time a checkpoint stream waits for other streams to fill its segment file. */
+    private final long maxMergeWaitMillis;
+
     // -----------------------------------------------------------------------
 
     /**
@@ -339,12 +354,57 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
             int fileStateSizeThreshold,
             int writeBufferSize,
             TernaryBoolean asynchronousSnapshots) {
+        this(
+                checkpointDirectory,
+                defaultSavepointDirectory,
+                fileStateSizeThreshold,
+                writeBufferSize,
+                asynchronousSnapshots,
+                TernaryBoolean.UNDEFINED);
+    }
+
+    /**
+     * Creates a new state backend that stores its checkpoint data in the file system and location
+     * defined by the given URI.
+     *
+     * <p>A file system for the file system scheme in the URI (e.g., 'file://', 'hdfs://', or
+     * 'S3://') must be accessible via {@link FileSystem#get(URI)}.
+     *
+     * <p>For a state backend targeting HDFS, this means that the URI must either specify the
+     * authority (host and port), or that the Hadoop configuration that describes that information
+     * must be in the classpath.
+     *
+     * @param checkpointDirectory The path to write checkpoint metadata to.
+     * @param defaultSavepointDirectory The path to write savepoints to. If null, the value from the
+     *     runtime configuration will be used, or savepoint target locations need to be passed when
+     *     triggering a savepoint.
+     * @param fileStateSizeThreshold State below this size will be stored as part of the metadata,
+     *     rather than in files. If -1, the value configured in the runtime configuration will be
+     *     used, or the default value (1KB) if nothing is configured.
+     * @param writeBufferSize Write buffer size used to serialize state. If -1, the value configured
+     *     in the runtime configuration will be used, or the default value (4KB) if nothing is
+     *     configured.
+     * @param asynchronousSnapshots Flag to switch between synchronous and asynchronous snapshot
+     *     mode. If UNDEFINED, the value configured in the runtime configuration will be used.
+     * @param incrementalCheckpoints Flag to enable incremental checkpoints of the key/value state,
+     *     which only write the changes since the last completed checkpoint. Only effective with
+     *     asynchronous snapshots. If UNDEFINED, the value configured in the runtime configuration
+     *     will be used.
+     */
+    public FsStateBackend(
+            URI checkpointDirectory,
+            @Nullable URI defaultSavepointDirectory,
+            int fileStateSizeThreshold,
+            int writeBufferSize,
+            TernaryBoolean asynchronousSnapshots,
+            TernaryBoolean incrementalCheckpoints) {
 
         super(
                 checkNotNull(checkpointDirectory, "checkpoint directory is null"),
                 defaultSavepointDirectory);
 
         checkNotNull(asynchronousSnapshots, "asynchronousSnapshots");
+        checkNotNull(incrementalCheckpoints, "incrementalCheckpoints");
         checkArgument(
                 fileStateSizeThreshold >= -1 && fileStateSizeThreshold <= MAX_FILE_STATE_THRESHOLD,
                 "The threshold for file state size must be in [-1, %s], where '-1' means to use "
@@ -358,6 +418,9 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
         this.fileStateThreshold = fileStateSizeThreshold;
         this.writeBufferSize = writeBufferSize;
         this.asynchronousSnapshots = asynchronousSnapshots;
+        this.incrementalCheckpoints = incrementalCheckpoints;
+        this.maxMergedStateSize = 0;
+        this.maxMergeWaitMillis = 0L;
     }
 
     /**
@@ -376,6 +439,10 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
                 original.asynchronousSnapshots.resolveUndefined(
                         configuration.get(CheckpointingOptions.ASYNC_SNAPSHOTS));
 
+        this.incrementalCheckpoints =
+                original.incrementalCheckpoints.resolveUndefined(
+                        configuration.get(CheckpointingOptions.INCREMENTAL_CHECKPOINTS));
+
         if (getValidFileStateThreshold(original.fileStateThreshold) >= 0) {
             this.fileStateThreshold = original.fileStateThreshold;
         } else {
@@ -407,6 +474,16 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
                         : configuration.get(CheckpointingOptions.FS_WRITE_BUFFER_SIZE);
 
         this.writeBufferSize = Math.max(bufferSize, this.fileStateThreshold);
+
+        this.maxMergedStateSize =
+                configuration.get(CheckpointingOptions.FILE_MERGING_ENABLED)
+                        ? MathUtils.checkedDownCast(
+                                configuration
+                                        .get(CheckpointingOptions.FILE_MERGING_MAX_STATE_SIZE)
+                                        .getBytes())
+                        : 0;
+        this.maxMergeWaitMillis =
+                configuration.get(CheckpointingOptions.FILE_MERGING_MAX_WAIT).toMillis();
     }
 
     private int getValidFileStateThreshold(long fileStateThreshold) {
@@ -487,6 +564,18 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
                 CheckpointingOptions.ASYNC_SNAPSHOTS.defaultValue());
     }
 
+    /**
+     * Gets whether the key/value data structures are incrementally checkpointed. Savepoints are
+     * always written in full.
+     *
+     * <p>If not explicitly configured, this is the default value of {@link
+     * CheckpointingOptions#INCREMENTAL_CHECKPOINTS}.
+     */
+    public boolean isIncrementalCheckpointsEnabled() {
+        return incrementalCheckpoints.getOrDefault(
+                CheckpointingOptions.INCREMENTAL_CHECKPOINTS.defaultValue());
+    }
+
     // ------------------------------------------------------------------------
     //  Reconfiguration
     // ------------------------------------------------------------------------
@@ -518,6 +607,23 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
                 getWriteBufferSize());
     }
 
+    @Override
+    public CheckpointStorageAccess createCheckpointStorage(
+            JobID jobId, SegmentFileWriters segmentFileWriters) throws IOException {
+        checkNotNull(jobId, "jobId");
+        checkNotNull(segmentFileWriters, "segmentFileWriters");
+        return new FsCheckpointStorageAccess(
+                getCheckpointPath().getFileSystem(),
+                getCheckpointPath(),
+                getSavepointPath(),
+                jobId,
+                getMinFileSizeThreshold(),
+                getWriteBufferSize(),
+                maxMergedStateSize,
+                maxMergeWaitMillis,
+                segmentFileWriters);
+    }
+
     // ------------------------------------------------------------------------
     //  state holding structures
     // ------------------------------------------------------------------------
@@ -555,6 +661,7 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
                         localRecoveryConfig,
                         priorityQueueSetFactory,
                         isUsingAsynchronousSnapshots(),
+                        isIncrementalCheckpointsEnabled(),
                         cancelStreamRegistry)
                 .build();
     }
@@ -589,6 +696,8 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
                 + getSavepointPath()
                 + "', asynchronous: "
                 + asynchronousSnapshots
+                + ", incremental: "
+                + incrementalCheckpoints
                 + ", fileStateThreshold: "
                 + fileStateThreshold
                 + ")";
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * {@link StreamStateHandle} for state that was written to a segment of a file, which holds the
+ * state of several handles. The written data is identified by the file path and the position and
+ * length of the segment.
+ *
+ * <p>Discarding the handle does not delete anything, because the file is shared. The {@link
+ * SharedStateRegistry} counts the registered handles per file, and deletes the file once none of
+ * them is registered anymore. Files in the exclusive directory of a failed checkpoint are deleted
+ * with the directory.
+ */
+public class SegmentFileStateHandle implements StreamStateHandle {
+
+    private static final long serialVersionUID = 1L;
+
+    /** The path to the file in the filesystem, fully describing the file system. */
+    private final Path filePath;
+
+    /** The position of the segment in the file. */
+    private final long startPos;
+
+    /** The size of the state in the file. */
+    private final long stateSize;
+
+    public SegmentFileStateHandle(Path filePath, long startPos, long stateSize) {
+        checkArgument(startPos >= 0);
+        checkArgument(stateSize >= 0);
+        this.filePath = checkNotNull(filePath);
+        this.startPos = startPos;
+        this.stateSize = stateSize;
+    }
+
+    /** Gets the path of the file that holds the segment. */
+    public Path getFilePath() {
+        return filePath;
+    }
+
+    /** Gets the position of the segment in the file. */
+    public long getStartPos() {
+        return startPos;
+    }
+
+    @Override
+    public FSDataInputStream openInputStream() throws IOException {
+        FSDataInputStream in = FileSystem.get(filePath.toUri()).open(filePath);
+        try {
+            in.seek(startPos);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new SegmentInputStream(in, startPos, stateSize);
+    }
+
+    @Override
+    public Optional<byte[]> asBytesIfInMemory() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void discardState() {
+        // the segment file is shared, see the class comment
+    }
+
+    @Override
+    public long getStateSize() {
+        return stateSize;
+    }
+
+    // ------------------------------------------------------------------------
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SegmentFileStateHandle)) {
+            return false;
+        }
+
+        SegmentFileStateHandle that = (SegmentFileStateHandle) o;
+        return startPos == that.startPos
+                && stateSize == that.stateSize
+                && filePath.equals(that.filePath);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = filePath.hashCode();
+        result = 31 * result + Long.hashCode(startPos);
+        result = 31 * result + Long.hashCode(stateSize);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "Segment File State: %s [%d bytes at %d]", filePath, stateSize, startPos);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** Input stream that reads the segment only, with positions relative to the segment. */
+    private static final class SegmentInputStream extends FSDataInputStream {
+
+        private final FSDataInputStream in;
+
+        private final long startPos;
+
+        private final long length;
+
+        private long pos;
+
+        private SegmentInputStream(FSDataInputStream in, long startPos, long length) {
+            this.in = in;
+            this.startPos = startPos;
+            this.length = length;
+            this.pos = 0L;
+        }
+
+        @Override
+        public void seek(long desired) throws IOException {
+            checkArgument(
+                    desired >= 0 && desired <= length,
+                    "Position %s is outside of the segment of %s bytes.",
+                    desired,
+                    length);
+            in.seek(startPos + desired);
+            pos = desired;
+        }
+
+        @Override
+        public long getPos() {
+            return pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= length) {
+                return -1;
+            }
+            int b = in.read();
+            if (b >= 0) {
+                pos++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            long remaining = length - pos;
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                pos += read;
+            }
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), length - pos);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
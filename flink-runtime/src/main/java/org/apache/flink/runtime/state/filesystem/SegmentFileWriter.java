@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.EntropyInjector;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.FileSystem.WriteMode;
+import org.apache.flink.core.fs.OutputStreamAndPath;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * Writes the small state of the checkpoint streams of one process that target the same directory
+ * into shared segment files.
+ *
+ * <p>The state of a stream is only appended to a segment file when the stream is closed, and the
+ * returned {@link SegmentFileStateHandle} must only be handed out once the segment file is durably
+ * closed. The writer therefore commits the segment files in groups: a segment file is closed once
+ * all registered streams have appended their state, once it reached its target size, or once a
+ * stream waited for the configured maximum time. All streams that appended to the segment file
+ * return after it was closed.
+ *
+ * <p>There is one writer per target directory, shared by all tasks of the TaskManager through its
+ * {@link SegmentFileWriters}.
+ */
+final class SegmentFileWriter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SegmentFileWriter.class);
+
+    /** Segment files are closed once they reach this size, regardless of waiting streams. */
+    static final long TARGET_SEGMENT_SIZE = 64L * 1024 * 1024;
+
+    /** The writers of the TaskManager, which this writer leaves once it is retired. */
+    private final SegmentFileWriters writers;
+
+    private final FileSystem fileSystem;
+
+    private final Path directory;
+
+    private final long maxWaitMillis;
+
+    /** The segment file the state is currently appended to. */
+    @GuardedBy("this")
+    @Nullable
+    private Segment currentSegment;
+
+    /** The number of registered streams that did not append or unregister yet. */
+    @GuardedBy("this")
+    private int numOpenStreams;
+
+    /** A retired writer accepts no more streams and is removed from {@link #writers}. */
+    @GuardedBy("this")
+    private boolean retired;
+
+    SegmentFileWriter(
+            SegmentFileWriters writers, FileSystem fileSystem, Path directory, long maxWaitMillis) {
+        this.writers = checkNotNull(writers);
+        this.fileSystem = checkNotNull(fileSystem);
+        this.directory = checkNotNull(directory);
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * Appends the state of a registered stream to a segment file, and waits until the segment file
+     * is closed.
+     */
+    SegmentFileStateHandle append(byte[] bytes, int len) throws IOException {
+        final Segment segment;
+        final long offset;
+        final boolean closeSegment;
+        synchronized (this) {
+            checkState(numOpenStreams > 0, "No stream is registered.");
+            numOpenStreams--;
+            try {
+                if (currentSegment == null) {
+                    currentSegment = createSegment();
+                }
+                segment = currentSegment;
+                offset = segment.write(bytes, len);
+            } catch (IOException e) {
+                discardCurrentSegment(e);
+                retireIfIdle();
+                throw e;
+            }
+
+            closeSegment = numOpenStreams == 0 || segment.getSize() >= TARGET_SEGMENT_SIZE;
+            if (closeSegment) {
+                currentSegment = null;
+            }
+            retireIfIdle();
+        }
+        removeIfRetired();
+
+        if (closeSegment) {
+            segment.close();
+        } else if (!segment.awaitClose(maxWaitMillis)) {
+            // the other streams take too long, don't wait for them
+            synchronized (this) {
+                if (currentSegment == segment) {
+                    currentSegment = null;
+                }
+            }
+            segment.close();
+        }
+
+        segment.checkClosed();
+        return new SegmentFileStateHandle(segment.getPath(), offset, len);
+    }
+
+    /** Unregisters a stream that does not append its state. */
+    void unregisterStream() {
+        Segment segmentToClose = null;
+        synchronized (this) {
+            checkState(numOpenStreams > 0, "No stream is registered.");
+            numOpenStreams--;
+            if (numOpenStreams == 0 && currentSegment != null) {
+                // don't let the appended streams wait for nothing
+                segmentToClose = currentSegment;
+                currentSegment = null;
+            }
+            retireIfIdle();
+        }
+        removeIfRetired();
+
+        if (segmentToClose != null) {
+            segmentToClose.close();
+        }
+    }
+
+    /** Registers a new stream, returns false if the writer does not accept streams anymore. */
+    synchronized boolean tryRegisterStream() {
+        if (retired) {
+            return false;
+        }
+        numOpenStreams++;
+        return true;
+    }
+
+    @GuardedBy("this")
+    private void retireIfIdle() {
+        if (numOpenStreams == 0 && currentSegment == null) {
+            retired = true;
+        }
+    }
+
+    private void removeIfRetired() {
+        synchronized (this) {
+            if (!retired) {
+                return;
+            }
+        }
+        writers.remove(directory, this);
+    }
+
+    @GuardedBy("this")
+    private void discardCurrentSegment(IOException cause) {
+        if (currentSegment != null) {
+            currentSegment.fail(cause);
+            currentSegment = null;
+        }
+    }
+
+    private Segment createSegment() throws IOException {
+        Path path = new Path(directory, UUID.randomUUID().toString());
+        OutputStreamAndPath streamAndPath =
+                EntropyInjector.createEntropyAware(fileSystem, path, WriteMode.NO_OVERWRITE);
+        return new Segment(streamAndPath.stream(), streamAndPath.path());
+    }
+
+    // ------------------------------------------------------------------------
+
+    /** A segment file that is written to by the streams of one group commit. */
+    private static final class Segment {
+
+        private final FSDataOutputStream out;
+
+        private final Path path;
+
+        /** Completed once the file is closed, or failed with the reason why it is unusable. */
+        private final CompletableFuture<Void> closeFuture;
+
+        private long size;
+
+        private Segment(FSDataOutputStream out, Path path) {
+            this.out = out;
+            this.path = path;
+            this.closeFuture = new CompletableFuture<>();
+        }
+
+        private Path getPath() {
+            return path;
+        }
+
+        private long getSize() {
+            return size;
+        }
+
+        /** Writes the bytes and returns their position in the file. */
+        private long write(byte[] bytes, int len) throws IOException {
+            long offset = size;
+            out.write(bytes, 0, len);
+            size += len;
+            return offset;
+        }
+
+        private synchronized void close() {
+            if (closeFuture.isDone()) {
+                return;
+            }
+            try {
+                out.close();
+                closeFuture.complete(null);
+            } catch (Throwable t) {
+                closeFuture.completeExceptionally(t);
+            }
+        }
+
+        private synchronized void fail(IOException cause) {
+            if (closeFuture.isDone()) {
+                return;
+            }
+            closeFuture.completeExceptionally(cause);
+            try {
+                out.close();
+            } catch (Throwable t) {
+                LOG.warn("Could not close the failed segment file {}.", path, t);
+            }
+        }
+
+        /** Waits for the file to be closed, returns false if that did not happen in time. */
+        private boolean awaitClose(long timeoutMillis) throws IOException {
+            try {
+                closeFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (TimeoutException e) {
+                return false;
+            } catch (ExecutionException e) {
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for segment file " + path, e);
+            }
+        }
+
+        /** Throws if the file could not be closed. */
+        private void checkClosed() throws IOException {
+            checkState(closeFuture.isDone(), "Segment file %s is not closed.", path);
+            try {
+                closeFuture.get();
+            } catch (ExecutionException e) {
+                throw new IOException(
+                        "Could not close segment file " + path,
+                        ExceptionUtils.stripExecutionException(e));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.Path;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * The writers that merge the small state of checkpoint streams into shared segment files, by
+ * target directory. One instance is owned by each TaskManager and shared by the checkpoint storages
+ * of all its tasks, so that the streams of different tasks which target the same directory write
+ * to the same segment files.
+ *
+ * <p>Writers are dropped when no stream is registered at them anymore.
+ */
+public class SegmentFileWriters {
+
+    @GuardedBy("writers")
+    private final Map<Path, SegmentFileWriter> writers = new HashMap<>();
+
+    /**
+     * Registers a new stream at the writer for the given directory. The stream must later either
+     * {@link SegmentFileWriter#append append} its state or {@link
+     * SegmentFileWriter#unregisterStream() unregister}.
+     */
+    SegmentFileWriter register(FileSystem fileSystem, Path directory, long maxWaitMillis) {
+        checkArgument(maxWaitMillis >= 0, "The max wait must not be negative.");
+        synchronized (writers) {
+            SegmentFileWriter writer = writers.get(directory);
+            if (writer == null || !writer.tryRegisterStream()) {
+                writer = new SegmentFileWriter(this, fileSystem, directory, maxWaitMillis);
+                checkState(writer.tryRegisterStream());
+                writers.put(directory, writer);
+            }
+            return writer;
+        }
+    }
+
+    /** Removes a writer which does not accept streams anymore. */
+    void remove(Path directory, SegmentFileWriter writer) {
+        synchronized (writers) {
+            writers.remove(directory, writer);
+        }
+    }
+
+    @VisibleForTesting
+    int getNumWriters() {
+        synchronized (writers) {
+            return writers.size();
+        }
+    }
+}
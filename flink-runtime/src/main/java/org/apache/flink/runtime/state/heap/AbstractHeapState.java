@@ -118,7 +118,8 @@ public abstract class AbstractHeapState<K, N, SV> implements InternalKvState<K,
         return stateTable;
     }
 
-    protected SV getDefaultValue() {
+    @Override
+    public SV getDefaultValue() {
         if (defaultValue != null) {
             return valueSerializer.copy(defaultValue);
         } else {
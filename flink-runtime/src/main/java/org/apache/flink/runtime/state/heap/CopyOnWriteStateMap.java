@@ -34,8 +34,10 @@ import javax.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
@@ -179,6 +181,13 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
     /** The highest version of this map that is still required by any unreleased snapshot. */
     private int highestRequiredSnapshotVersion;
 
+    /**
+     * Entries that were removed from this map, in the order of removal, only tracked if {@link
+     * #enableRemovalTracking()} was called. They carry the map version of the removal as entry
+     * version and are used to write the removals into incremental snapshots.
+     */
+    @Nullable private ArrayList<StateMapEntry<K, N, S>> removedEntries;
+
     /**
      * The last namespace that was actually inserted. This is a small optimization to reduce
      * duplicate namespace objects.
@@ -277,14 +286,22 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
             final N eNamespace = e.namespace;
             if ((e.hash == hash && key.equals(eKey) && namespace.equals(eNamespace))) {
 
-                // copy-on-write check for state
-                if (e.stateVersion < requiredVersion) {
-                    // copy-on-write check for entry
-                    if (e.entryVersion < requiredVersion) {
-                        e = handleChainedEntryCopyOnWrite(tab, hash & (tab.length - 1), e);
+                // immutable state can be shared with snapshots and is only changed through put
+                if (!getStateSerializer().isImmutableType()) {
+                    // copy-on-write check for state
+                    if (e.stateVersion < requiredVersion) {
+                        // copy-on-write check for entry
+                        if (e.entryVersion < requiredVersion) {
+                            e = handleChainedEntryCopyOnWrite(tab, hash & (tab.length - 1), e);
+                        }
+                        e.state = getStateSerializer().copy(e.state);
                     }
+
+                    // the caller may modify the returned state object in place, so we have to
+                    // consider the state as changed for incremental snapshots. Entries with a
+                    // state version that is not lower than the required version are never shared
+                    // with a snapshot.
                     e.stateVersion = stateMapVersion;
-                    e.state = getStateSerializer().copy(e.state);
                 }
 
                 return e.state;
@@ -432,6 +449,17 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
                 } else {
                     --incrementalRehashTableSize;
                 }
+                if (removedEntries != null) {
+                    removedEntries.add(
+                            new StateMapEntry<>(
+                                    e.key,
+                                    e.namespace,
+                                    null,
+                                    e.hash,
+                                    null,
+                                    stateMapVersion,
+                                    stateMapVersion));
+                }
                 return e;
             }
         }
@@ -537,6 +565,45 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         return stateMapVersion;
     }
 
+    /**
+     * Starts to keep track of removed entries, so that they can be written to incremental
+     * snapshots. Tracked removals must be pruned through {@link #pruneRemovedEntries(int)} once
+     * they are no longer needed.
+     */
+    void enableRemovalTracking() {
+        if (removedEntries == null) {
+            removedEntries = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Returns a copy of the tracked removals that happened at or after the given map version. This
+     * method must be called by the same Thread that does modifications to the {@link
+     * CopyOnWriteStateMap}.
+     */
+    List<StateMapEntry<K, N, S>> getRemovedEntriesSince(int version) {
+        if (removedEntries == null) {
+            return Collections.emptyList();
+        }
+        int from = removedEntries.size();
+        while (from > 0 && removedEntries.get(from - 1).entryVersion >= version) {
+            --from;
+        }
+        return new ArrayList<>(removedEntries.subList(from, removedEntries.size()));
+    }
+
+    /** Drops all tracked removals that happened before the given map version. */
+    void pruneRemovedEntries(int version) {
+        if (removedEntries == null) {
+            return;
+        }
+        int to = 0;
+        while (to < removedEntries.size() && removedEntries.get(to).entryVersion < version) {
+            ++to;
+        }
+        removedEntries.subList(0, to).clear();
+    }
+
     /**
      * Allocate a table of the given capacity and set the threshold accordingly.
      *
@@ -761,6 +828,19 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
         return new CopyOnWriteStateMapSnapshot<>(this);
     }
 
+    /**
+     * Creates an incremental snapshot of this {@link CopyOnWriteStateMap} that only contains the
+     * entries that were changed or removed since the snapshot with the given version was created.
+     * Users should call {@link #releaseSnapshot(StateMapSnapshot)} after using the returned object.
+     *
+     * @param baseVersion the version of the snapshot that the incremental snapshot is based on.
+     * @return an incremental snapshot from this {@link CopyOnWriteStateMap}, for checkpointing.
+     */
+    @Nonnull
+    CopyOnWriteStateMapSnapshot<K, N, S> incrementalStateSnapshot(int baseVersion) {
+        return new CopyOnWriteStateMapSnapshot<>(this, baseVersion);
+    }
+
     /**
      * Releases a snapshot for this {@link CopyOnWriteStateMap}. This method should be called once a
      * snapshot is no more needed, so that the {@link CopyOnWriteStateMap} can stop considering this
@@ -29,9 +29,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
@@ -54,6 +56,9 @@ import java.util.Objects;
 public class CopyOnWriteStateMapSnapshot<K, N, S>
         extends StateMapSnapshot<K, N, S, CopyOnWriteStateMap<K, N, S>> {
 
+    /** Marker for snapshots that are not based on a previous snapshot. */
+    static final int NO_BASE_VERSION = -1;
+
     /**
      * Version of the {@link CopyOnWriteStateMap} when this snapshot was created. This can be used
      * to release the snapshot.
@@ -71,6 +76,15 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
     /** The number of (non-null) entries in snapshotData. */
     @Nonnegative private final int numberOfEntriesInSnapshotData;
 
+    /**
+     * Version of the snapshot that an incremental snapshot is based on, or {@link #NO_BASE_VERSION}
+     * if this is a full snapshot.
+     */
+    private final int baseVersion;
+
+    /** The entries that were removed since the base version, only used by incremental snapshots. */
+    @Nonnull private final List<CopyOnWriteStateMap.StateMapEntry<K, N, S>> removedEntries;
+
     /** Whether this snapshot has been released. */
     private boolean released;
 
@@ -81,11 +95,27 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
      *     snapshot.
      */
     CopyOnWriteStateMapSnapshot(CopyOnWriteStateMap<K, N, S> owningStateMap) {
+        this(owningStateMap, NO_BASE_VERSION);
+    }
+
+    /**
+     * Creates a new {@link CopyOnWriteStateMapSnapshot} that can be written incrementally.
+     *
+     * @param owningStateMap the {@link CopyOnWriteStateMap} for which this object represents a
+     *     snapshot.
+     * @param baseVersion the version of the snapshot that the incremental snapshot is based on.
+     */
+    CopyOnWriteStateMapSnapshot(CopyOnWriteStateMap<K, N, S> owningStateMap, int baseVersion) {
         super(owningStateMap);
 
+        this.removedEntries =
+                baseVersion == NO_BASE_VERSION
+                        ? Collections.emptyList()
+                        : owningStateMap.getRemovedEntriesSince(baseVersion);
         this.snapshotData = owningStateMap.snapshotMapArrays();
         this.snapshotVersion = owningStateMap.getStateMapVersion();
         this.numberOfEntriesInSnapshotData = owningStateMap.size();
+        this.baseVersion = baseVersion;
         this.released = false;
     }
 
@@ -137,6 +167,62 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
         }
     }
 
+    /**
+     * Writes only the entries that were removed or changed since the base version of this snapshot.
+     * The removals are written first, as namespace and key, followed by the changed entries in the
+     * same format as {@link #writeState}. Changed entries that are filtered out by the transformer
+     * are written as removals.
+     */
+    void writeIncrementalState(
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<S> stateSerializer,
+            @Nonnull DataOutputView dov,
+            @Nullable StateSnapshotTransformer<S> stateSnapshotTransformer)
+            throws IOException {
+        Preconditions.checkState(
+                baseVersion != NO_BASE_VERSION, "This is not an incremental snapshot.");
+
+        List<StateEntry<K, N, S>> removals = new ArrayList<>(removedEntries);
+        List<StateEntry<K, N, S>> changes = new ArrayList<>();
+        SnapshotIterator<K, N, S> snapshotIterator =
+                new NonTransformSnapshotIterator<>(numberOfEntriesInSnapshotData, snapshotData);
+        while (snapshotIterator.hasNext()) {
+            CopyOnWriteStateMap.StateMapEntry<K, N, S> entry = snapshotIterator.next();
+            if (entry.stateVersion < baseVersion) {
+                continue;
+            }
+            if (stateSnapshotTransformer == null) {
+                changes.add(entry);
+                continue;
+            }
+            S transformedValue = stateSnapshotTransformer.filterOrTransform(entry.state);
+            if (transformedValue == null) {
+                removals.add(entry);
+            } else if (transformedValue != entry.state) {
+                CopyOnWriteStateMap.StateMapEntry<K, N, S> filteredEntry =
+                        new CopyOnWriteStateMap.StateMapEntry<>(entry, entry.entryVersion);
+                filteredEntry.state = transformedValue;
+                changes.add(filteredEntry);
+            } else {
+                changes.add(entry);
+            }
+        }
+
+        dov.writeInt(removals.size());
+        for (StateEntry<K, N, S> removal : removals) {
+            namespaceSerializer.serialize(removal.getNamespace(), dov);
+            keySerializer.serialize(removal.getKey(), dov);
+        }
+
+        dov.writeInt(changes.size());
+        for (StateEntry<K, N, S> stateEntry : changes) {
+            namespaceSerializer.serialize(stateEntry.getNamespace(), dov);
+            keySerializer.serialize(stateEntry.getKey(), dov);
+            stateSerializer.serialize(stateEntry.getState(), dov);
+        }
+    }
+
     /** Iterator over state entries in a {@link CopyOnWriteStateMapSnapshot}. */
     abstract static class SnapshotIterator<K, N, S> implements Iterator<StateEntry<K, N, S>> {
 
@@ -20,8 +20,10 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -77,15 +79,64 @@ public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> {
                         .orElse(null));
     }
 
+    /**
+     * Creates an incremental snapshot of this {@link CopyOnWriteStateTable} that only contains the
+     * changes since the snapshot with the given versions of the state maps.
+     *
+     * @param baseVersions the versions of the state maps (by key-group) in the base snapshot, see
+     *     {@link CopyOnWriteStateTableSnapshot#getStateMapSnapshotVersions()}.
+     * @return an incremental snapshot from this {@link CopyOnWriteStateTable}, for checkpointing.
+     */
+    @Nonnull
+    CopyOnWriteStateTableSnapshot<K, N, S> incrementalStateSnapshot(@Nonnull int[] baseVersions) {
+        Preconditions.checkArgument(
+                baseVersions.length == keyGroupedStateMaps.length,
+                "The base versions do not match the key-groups of the state table.");
+        return new CopyOnWriteStateTableSnapshot<>(
+                this,
+                getKeySerializer().duplicate(),
+                getNamespaceSerializer().duplicate(),
+                getStateSerializer().duplicate(),
+                getMetaInfo()
+                        .getStateSnapshotTransformFactory()
+                        .createForDeserializedState()
+                        .orElse(null),
+                baseVersions);
+    }
+
     @SuppressWarnings("unchecked")
-    List<CopyOnWriteStateMapSnapshot<K, N, S>> getStateMapSnapshotList() {
+    List<CopyOnWriteStateMapSnapshot<K, N, S>> getStateMapSnapshotList(
+            @Nullable int[] baseVersions) {
         List<CopyOnWriteStateMapSnapshot<K, N, S>> snapshotList =
                 new ArrayList<>(keyGroupedStateMaps.length);
         for (int i = 0; i < keyGroupedStateMaps.length; i++) {
             CopyOnWriteStateMap<K, N, S> stateMap =
                     (CopyOnWriteStateMap<K, N, S>) keyGroupedStateMaps[i];
-            snapshotList.add(stateMap.stateSnapshot());
+            snapshotList.add(
+                    baseVersions == null
+                            ? stateMap.stateSnapshot()
+                            : stateMap.incrementalStateSnapshot(baseVersions[i]));
         }
         return snapshotList;
     }
+
+    /** Starts to keep track of removed entries in all state maps for incremental snapshots. */
+    @SuppressWarnings("unchecked")
+    void enableRemovalTracking() {
+        for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+            ((CopyOnWriteStateMap<K, N, S>) stateMap).enableRemovalTracking();
+        }
+    }
+
+    /**
+     * Drops the tracked removals that are older than the given versions of the state maps, because
+     * no incremental snapshot will be based on an earlier snapshot anymore.
+     */
+    @SuppressWarnings("unchecked")
+    void pruneRemovedEntries(@Nonnull int[] versions) {
+        for (int i = 0; i < keyGroupedStateMaps.length; i++) {
+            ((CopyOnWriteStateMap<K, N, S>) keyGroupedStateMaps[i])
+                    .pruneRemovedEntries(versions[i]);
+        }
+    }
 }
@@ -20,10 +20,13 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.runtime.state.StateSnapshotTransformer;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -44,6 +47,9 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
     /** Snapshots of state partitioned by key-group. */
     @Nonnull private final List<CopyOnWriteStateMapSnapshot<K, N, S>> stateMapSnapshots;
 
+    /** Whether the state is written incrementally, i.e. only the changes since a base snapshot. */
+    private final boolean incremental;
+
     /**
      * Creates a new {@link CopyOnWriteStateTableSnapshot}.
      *
@@ -56,6 +62,30 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
             TypeSerializer<N> localNamespaceSerializer,
             TypeSerializer<S> localStateSerializer,
             StateSnapshotTransformer<S> stateSnapshotTransformer) {
+        this(
+                owningStateTable,
+                localKeySerializer,
+                localNamespaceSerializer,
+                localStateSerializer,
+                stateSnapshotTransformer,
+                null);
+    }
+
+    /**
+     * Creates a new {@link CopyOnWriteStateTableSnapshot}.
+     *
+     * @param owningStateTable the {@link CopyOnWriteStateTable} for which this object represents a
+     *     snapshot.
+     * @param baseVersions the versions of the state maps (by key-group) in the snapshot that this
+     *     snapshot is based on, or null to create a full snapshot.
+     */
+    CopyOnWriteStateTableSnapshot(
+            CopyOnWriteStateTable<K, N, S> owningStateTable,
+            TypeSerializer<K> localKeySerializer,
+            TypeSerializer<N> localNamespaceSerializer,
+            TypeSerializer<S> localStateSerializer,
+            StateSnapshotTransformer<S> stateSnapshotTransformer,
+            @Nullable int[] baseVersions) {
         super(
                 owningStateTable,
                 localKeySerializer,
@@ -64,7 +94,17 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
                 stateSnapshotTransformer);
 
         this.keyGroupOffset = owningStateTable.getKeyGroupOffset();
-        this.stateMapSnapshots = owningStateTable.getStateMapSnapshotList();
+        this.stateMapSnapshots = owningStateTable.getStateMapSnapshotList(baseVersions);
+        this.incremental = baseVersions != null;
+    }
+
+    /** Returns the versions of the snapshots of the state maps, by key-group. */
+    int[] getStateMapSnapshotVersions() {
+        int[] versions = new int[stateMapSnapshots.size()];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = stateMapSnapshots.get(i).getSnapshotVersion();
+        }
+        return versions;
     }
 
     @Override
@@ -79,6 +119,24 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
         return stateMapSnapshot;
     }
 
+    @Override
+    public void writeStateInKeyGroup(@Nonnull DataOutputView dov, int keyGroupId)
+            throws IOException {
+        if (!incremental) {
+            super.writeStateInKeyGroup(dov, keyGroupId);
+            return;
+        }
+        CopyOnWriteStateMapSnapshot<K, N, S> stateMapSnapshot =
+                stateMapSnapshots.get(keyGroupId - keyGroupOffset);
+        stateMapSnapshot.writeIncrementalState(
+                localKeySerializer,
+                localNamespaceSerializer,
+                localStateSerializer,
+                dov,
+                stateSnapshotTransformer);
+        stateMapSnapshot.release();
+    }
+
     @Override
     public void release() {
         for (CopyOnWriteStateMapSnapshot snapshot : stateMapSnapshots) {
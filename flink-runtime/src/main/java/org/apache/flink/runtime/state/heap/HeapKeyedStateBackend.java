@@ -50,6 +50,7 @@ import org.apache.flink.runtime.state.StateSnapshotTransformer.StateSnapshotTran
 import org.apache.flink.runtime.state.StateSnapshotTransformers;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.CloseableIterator;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.StateMigrationException;
 
@@ -57,11 +58,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.RunnableFuture;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -146,13 +149,39 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
     //  state backend operations
     // ------------------------------------------------------------------------
 
-    @SuppressWarnings("unchecked")
     @Nonnull
     @Override
     public <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
             KeyGroupedInternalPriorityQueue<T> create(
                     @Nonnull String stateName,
                     @Nonnull TypeSerializer<T> byteOrderedElementSerializer) {
+        return createOrConvert(stateName, byteOrderedElementSerializer, null, 0L);
+    }
+
+    /**
+     * Creates a {@link TimingWheelPriorityQueueSet}. A queue of the same name that was restored as
+     * a {@link HeapPriorityQueueSet} is converted, because the snapshots of both are the same.
+     */
+    @Nonnull
+    @Override
+    public <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
+            KeyGroupedInternalPriorityQueue<T> create(
+                    @Nonnull String stateName,
+                    @Nonnull TypeSerializer<T> byteOrderedElementSerializer,
+                    @Nonnull ToLongFunction<T> timestampExtractor,
+                    long bucketSize) {
+        return createOrConvert(
+                stateName, byteOrderedElementSerializer, timestampExtractor, bucketSize);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    private <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
+            KeyGroupedInternalPriorityQueue<T> createOrConvert(
+                    @Nonnull String stateName,
+                    @Nonnull TypeSerializer<T> byteOrderedElementSerializer,
+                    @Nullable ToLongFunction<T> timestampExtractor,
+                    long bucketSize) {
 
         final HeapPriorityQueueSnapshotRestoreWrapper existingState =
                 registeredPQStates.get(stateName);
@@ -179,23 +208,50 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
                         existingState.forUpdatedSerializer(byteOrderedElementSerializer));
             }
 
-            return existingState.getPriorityQueue();
+            final HeapPriorityQueueSnapshotRestoreWrapper<T> updatedState =
+                    registeredPQStates.get(stateName);
+            final KeyGroupedInternalPriorityQueue<T> existingQueue =
+                    updatedState.getPriorityQueue();
+            if (timestampExtractor == null
+                    || existingQueue instanceof TimingWheelPriorityQueueSet) {
+                return existingQueue;
+            }
+
+            final KeyGroupedInternalPriorityQueue<T> priorityQueue =
+                    createInternal(updatedState.getMetaInfo(), timestampExtractor, bucketSize);
+            try (CloseableIterator<T> iterator = existingQueue.iterator()) {
+                while (iterator.hasNext()) {
+                    priorityQueue.add(iterator.next());
+                }
+            } catch (Exception e) {
+                throw new FlinkRuntimeException(
+                        "Could not convert the priority queue " + stateName + ".", e);
+            }
+            return priorityQueue;
         } else {
             final RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo =
                     new RegisteredPriorityQueueStateBackendMetaInfo<>(
                             stateName, byteOrderedElementSerializer);
-            return createInternal(metaInfo);
+            return createInternal(metaInfo, timestampExtractor, bucketSize);
         }
     }
 
     @Nonnull
     private <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
             KeyGroupedInternalPriorityQueue<T> createInternal(
-                    RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo) {
+                    RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo,
+                    @Nullable ToLongFunction<T> timestampExtractor,
+                    long bucketSize) {
 
         final String stateName = metaInfo.getName();
-        final HeapPriorityQueueSet<T> priorityQueue =
-                priorityQueueSetFactory.create(stateName, metaInfo.getElementSerializer());
+        final KeyGroupedInternalPriorityQueue<T> priorityQueue =
+                timestampExtractor == null
+                        ? priorityQueueSetFactory.create(stateName, metaInfo.getElementSerializer())
+                        : priorityQueueSetFactory.create(
+                                stateName,
+                                metaInfo.getElementSerializer(),
+                                timestampExtractor,
+                                bucketSize);
 
         HeapPriorityQueueSnapshotRestoreWrapper<T> wrapper =
                 new HeapPriorityQueueSnapshotRestoreWrapper<>(
@@ -365,12 +421,12 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
     @Override
     public void notifyCheckpointComplete(long checkpointId) {
-        // Nothing to do
+        snapshotStrategy.notifyCheckpointComplete(checkpointId);
     }
 
     @Override
     public void notifyCheckpointAborted(long checkpointId) {
-        // nothing to do
+        snapshotStrategy.notifyCheckpointAborted(checkpointId);
     }
 
     @Override
@@ -49,6 +49,8 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
     private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
     /** Whether asynchronous snapshot is enabled. */
     private final boolean asynchronousSnapshots;
+    /** Whether incremental snapshots are enabled, only effective with asynchronous snapshots. */
+    private final boolean incrementalSnapshots;
 
     public HeapKeyedStateBackendBuilder(
             TaskKvStateRegistry kvStateRegistry,
@@ -64,6 +66,38 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
             HeapPriorityQueueSetFactory priorityQueueSetFactory,
             boolean asynchronousSnapshots,
             CloseableRegistry cancelStreamRegistry) {
+        this(
+                kvStateRegistry,
+                keySerializer,
+                userCodeClassLoader,
+                numberOfKeyGroups,
+                keyGroupRange,
+                executionConfig,
+                ttlTimeProvider,
+                stateHandles,
+                keyGroupCompressionDecorator,
+                localRecoveryConfig,
+                priorityQueueSetFactory,
+                asynchronousSnapshots,
+                false,
+                cancelStreamRegistry);
+    }
+
+    public HeapKeyedStateBackendBuilder(
+            TaskKvStateRegistry kvStateRegistry,
+            TypeSerializer<K> keySerializer,
+            ClassLoader userCodeClassLoader,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            ExecutionConfig executionConfig,
+            TtlTimeProvider ttlTimeProvider,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            StreamCompressionDecorator keyGroupCompressionDecorator,
+            LocalRecoveryConfig localRecoveryConfig,
+            HeapPriorityQueueSetFactory priorityQueueSetFactory,
+            boolean asynchronousSnapshots,
+            boolean incrementalSnapshots,
+            CloseableRegistry cancelStreamRegistry) {
         super(
                 kvStateRegistry,
                 keySerializer,
@@ -78,6 +112,7 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
         this.localRecoveryConfig = localRecoveryConfig;
         this.priorityQueueSetFactory = priorityQueueSetFactory;
         this.asynchronousSnapshots = asynchronousSnapshots;
+        this.incrementalSnapshots = incrementalSnapshots;
     }
 
     @Override
@@ -147,6 +182,7 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
                 localRecoveryConfig,
                 keyGroupRange,
                 cancelStreamRegistry,
-                keySerializerProvider);
+                keySerializerProvider,
+                asynchronousSnapshots && incrementalSnapshots);
     }
 }
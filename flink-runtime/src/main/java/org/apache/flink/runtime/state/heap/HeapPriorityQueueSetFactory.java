@@ -29,7 +29,9 @@ import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
-/** Factory for {@link HeapPriorityQueueSet}. */
+import java.util.function.ToLongFunction;
+
+/** Factory for {@link HeapPriorityQueueSet} and {@link TimingWheelPriorityQueueSet}. */
 public class HeapPriorityQueueSetFactory implements PriorityQueueSetFactory {
 
     @Nonnull private final KeyGroupRange keyGroupRange;
@@ -62,4 +64,23 @@ public class HeapPriorityQueueSetFactory implements PriorityQueueSetFactory {
                 keyGroupRange,
                 totalKeyGroups);
     }
+
+    @Nonnull
+    @Override
+    public <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
+            TimingWheelPriorityQueueSet<T> create(
+                    @Nonnull String stateName,
+                    @Nonnull TypeSerializer<T> byteOrderedElementSerializer,
+                    @Nonnull ToLongFunction<T> timestampExtractor,
+                    long bucketSize) {
+
+        return new TimingWheelPriorityQueueSet<>(
+                PriorityComparator.forPriorityComparableObjects(),
+                KeyExtractorFunction.forKeyedObjects(),
+                timestampExtractor,
+                bucketSize,
+                minimumCapacity,
+                keyGroupRange,
+                totalKeyGroups);
+    }
 }
@@ -22,10 +22,13 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.KeyExtractorFunction;
 import org.apache.flink.runtime.state.KeyGroupPartitioner;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
 import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.StateSnapshot;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
 import org.apache.flink.runtime.state.StateSnapshotRestore;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.FlinkRuntimeException;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -38,14 +41,14 @@ import javax.annotation.Nonnull;
 public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueueElement>
         implements StateSnapshotRestore {
 
-    @Nonnull private final HeapPriorityQueueSet<T> priorityQueue;
+    @Nonnull private final KeyGroupedInternalPriorityQueue<T> priorityQueue;
     @Nonnull private final KeyExtractorFunction<T> keyExtractorFunction;
     @Nonnull private final RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo;
     @Nonnull private final KeyGroupRange localKeyGroupRange;
     @Nonnegative private final int totalKeyGroups;
 
     public HeapPriorityQueueSnapshotRestoreWrapper(
-            @Nonnull HeapPriorityQueueSet<T> priorityQueue,
+            @Nonnull KeyGroupedInternalPriorityQueue<T> priorityQueue,
             @Nonnull RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo,
             @Nonnull KeyExtractorFunction<T> keyExtractorFunction,
             @Nonnull KeyGroupRange localKeyGroupRange,
@@ -62,8 +65,22 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
     @Nonnull
     @Override
     public StateSnapshot stateSnapshot() {
-        final T[] queueDump =
-                (T[]) priorityQueue.toArray(new HeapPriorityQueueElement[priorityQueue.size()]);
+        final T[] queueDump;
+        if (priorityQueue instanceof AbstractHeapPriorityQueue) {
+            queueDump =
+                    (T[])
+                            ((AbstractHeapPriorityQueue<T>) priorityQueue)
+                                    .toArray(new HeapPriorityQueueElement[priorityQueue.size()]);
+        } else {
+            queueDump = (T[]) new HeapPriorityQueueElement[priorityQueue.size()];
+            try (CloseableIterator<T> iterator = priorityQueue.iterator()) {
+                for (int i = 0; i < queueDump.length; i++) {
+                    queueDump[i] = iterator.next();
+                }
+            } catch (Exception e) {
+                throw new FlinkRuntimeException("Could not dump the priority queue.", e);
+            }
+        }
         return new HeapPriorityQueueStateSnapshot<>(
                 queueDump,
                 keyExtractorFunction,
@@ -84,7 +101,7 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
     }
 
     @Nonnull
-    public HeapPriorityQueueSet<T> getPriorityQueue() {
+    public KeyGroupedInternalPriorityQueue<T> getPriorityQueue() {
         return priorityQueue;
     }
 
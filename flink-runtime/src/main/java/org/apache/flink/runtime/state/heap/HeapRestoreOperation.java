@@ -24,7 +24,9 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyExtractorFunction;
+import org.apache.flink.runtime.state.KeyGroupPartitioner;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
@@ -40,6 +42,7 @@ import org.apache.flink.runtime.state.StateSerializerProvider;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
 import org.apache.flink.runtime.state.StateSnapshotRestore;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
 import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
 import org.apache.flink.util.Preconditions;
@@ -81,6 +84,8 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
     private final HeapSnapshotStrategy<K> snapshotStrategy;
     private final InternalKeyContext<K> keyContext;
 
+    private boolean keySerializerRestored;
+
     HeapRestoreOperation(
             @Nonnull Collection<KeyedStateHandle> restoreStateHandles,
             StateSerializerProvider<K> keySerializerProvider,
@@ -112,7 +117,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
         registeredKVStates.clear();
         registeredPQStates.clear();
 
-        boolean keySerializerRestored = false;
+        keySerializerRestored = false;
 
         for (KeyedStateHandle keyedStateHandle : restoreStateHandles) {
 
@@ -120,71 +125,126 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                 continue;
             }
 
-            if (!(keyedStateHandle instanceof KeyGroupsStateHandle)) {
+            LOG.info("Starting to restore from state handle: {}.", keyedStateHandle);
+            if (keyedStateHandle instanceof KeyGroupsStateHandle) {
+                KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) keyedStateHandle;
+                restoreStateHandle(
+                        keyGroupsStateHandle,
+                        keyGroupsStateHandle.getGroupRangeOffsets(),
+                        false,
+                        true);
+            } else if (keyedStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+                restoreIncrementalStateHandle((IncrementalRemoteKeyedStateHandle) keyedStateHandle);
+            } else {
                 throw unexpectedStateHandleException(
-                        KeyGroupsStateHandle.class, keyedStateHandle.getClass());
+                        new Class[] {
+                            KeyGroupsStateHandle.class, IncrementalRemoteKeyedStateHandle.class
+                        },
+                        keyedStateHandle.getClass());
             }
+            LOG.info("Finished restoring from state handle: {}.", keyedStateHandle);
+        }
+        return null;
+    }
 
-            LOG.info("Starting to restore from state handle: {}.", keyedStateHandle);
-            KeyGroupsStateHandle keyGroupsStateHandle = (KeyGroupsStateHandle) keyedStateHandle;
-            FSDataInputStream fsDataInputStream = keyGroupsStateHandle.openInputStream();
-            cancelStreamRegistry.registerCloseable(fsDataInputStream);
-
-            try {
-                DataInputViewStreamWrapper inView =
-                        new DataInputViewStreamWrapper(fsDataInputStream);
-
-                KeyedBackendSerializationProxy<K> serializationProxy =
-                        new KeyedBackendSerializationProxy<>(userCodeClassLoader);
-
-                serializationProxy.read(inView);
-
-                if (!keySerializerRestored) {
-                    // fetch current serializer now because if it is incompatible, we can't access
-                    // it anymore to improve the error message
-                    TypeSerializer<K> currentSerializer =
-                            keySerializerProvider.currentSchemaSerializer();
-                    // check for key serializer compatibility; this also reconfigures the
-                    // key serializer to be compatible, if it is required and is possible
-                    TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
-                            keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(
-                                    serializationProxy.getKeySerializerSnapshot());
-                    if (keySerializerSchemaCompat.isCompatibleAfterMigration()
-                            || keySerializerSchemaCompat.isIncompatible()) {
-                        throw new StateMigrationException(
-                                "The new key serializer ("
-                                        + currentSerializer
-                                        + ") must be compatible with the previous key serializer ("
-                                        + keySerializerProvider.previousSchemaSerializer()
-                                        + ").");
-                    }
-
-                    keySerializerRestored = true;
-                }
+    /**
+     * Restores an incremental snapshot by replaying the files of its {@link HeapSnapshotChain} in
+     * order. Only the key-groups of this backend are read, because the same handle is assigned to
+     * all backends that overlap with its key-groups on rescaling. The priority queues are written
+     * in full to every file, so only the ones of the last file are restored.
+     */
+    private void restoreIncrementalStateHandle(IncrementalRemoteKeyedStateHandle stateHandle)
+            throws Exception {
+
+        final List<HeapSnapshotChain.ChainedFile> chainedFiles;
+        FSDataInputStream metaInputStream = stateHandle.getMetaStateHandle().openInputStream();
+        cancelStreamRegistry.registerCloseable(metaInputStream);
+        try {
+            chainedFiles = HeapSnapshotChain.read(new DataInputViewStreamWrapper(metaInputStream));
+        } finally {
+            if (cancelStreamRegistry.unregisterCloseable(metaInputStream)) {
+                IOUtils.closeQuietly(metaInputStream);
+            }
+        }
 
-                List<StateMetaInfoSnapshot> restoredMetaInfos =
-                        serializationProxy.getStateMetaInfoSnapshots();
+        for (int i = 0; i < chainedFiles.size(); i++) {
+            HeapSnapshotChain.ChainedFile chainedFile = chainedFiles.get(i);
+            StreamStateHandle fileHandle = stateHandle.getSharedState().get(chainedFile.getId());
+            if (fileHandle == null) {
+                throw new IllegalStateException(
+                        "Missing shared state " + chainedFile.getId() + " in " + stateHandle);
+            }
+            restoreStateHandle(
+                    fileHandle,
+                    chainedFile.getOffsets().getIntersection(keyGroupRange),
+                    chainedFile.isIncremental(),
+                    i == chainedFiles.size() - 1);
+        }
+    }
 
-                final Map<Integer, StateMetaInfoSnapshot> kvStatesById = new HashMap<>();
+    private void restoreStateHandle(
+            StreamStateHandle stateHandle,
+            KeyGroupRangeOffsets keyGroupOffsets,
+            boolean incremental,
+            boolean restorePriorityQueues)
+            throws Exception {
+
+        FSDataInputStream fsDataInputStream = stateHandle.openInputStream();
+        cancelStreamRegistry.registerCloseable(fsDataInputStream);
+
+        try {
+            DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
+
+            KeyedBackendSerializationProxy<K> serializationProxy =
+                    new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+
+            serializationProxy.read(inView);
+
+            if (!keySerializerRestored) {
+                // fetch current serializer now because if it is incompatible, we can't access
+                // it anymore to improve the error message
+                TypeSerializer<K> currentSerializer =
+                        keySerializerProvider.currentSchemaSerializer();
+                // check for key serializer compatibility; this also reconfigures the
+                // key serializer to be compatible, if it is required and is possible
+                TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
+                        keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(
+                                serializationProxy.getKeySerializerSnapshot());
+                if (keySerializerSchemaCompat.isCompatibleAfterMigration()
+                        || keySerializerSchemaCompat.isIncompatible()) {
+                    throw new StateMigrationException(
+                            "The new key serializer ("
+                                    + currentSerializer
+                                    + ") must be compatible with the previous key serializer ("
+                                    + keySerializerProvider.previousSchemaSerializer()
+                                    + ").");
+                }
 
-                createOrCheckStateForMetaInfo(restoredMetaInfos, kvStatesById);
+                keySerializerRestored = true;
+            }
 
-                readStateHandleStateData(
-                        fsDataInputStream,
-                        inView,
-                        keyGroupsStateHandle.getGroupRangeOffsets(),
-                        kvStatesById,
-                        restoredMetaInfos.size(),
-                        serializationProxy.getReadVersion(),
-                        serializationProxy.isUsingKeyGroupCompression());
-                LOG.info("Finished restoring from state handle: {}.", keyedStateHandle);
-            } finally {
-                if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
-                    IOUtils.closeQuietly(fsDataInputStream);
-                }
+            List<StateMetaInfoSnapshot> restoredMetaInfos =
+                    serializationProxy.getStateMetaInfoSnapshots();
+
+            final Map<Integer, StateMetaInfoSnapshot> kvStatesById = new HashMap<>();
+
+            createOrCheckStateForMetaInfo(restoredMetaInfos, kvStatesById);
+
+            readStateHandleStateData(
+                    fsDataInputStream,
+                    inView,
+                    keyGroupOffsets,
+                    kvStatesById,
+                    restoredMetaInfos.size(),
+                    serializationProxy.getReadVersion(),
+                    serializationProxy.isUsingKeyGroupCompression(),
+                    incremental,
+                    restorePriorityQueues);
+        } finally {
+            if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+                IOUtils.closeQuietly(fsDataInputStream);
             }
         }
-        return null;
     }
 
     private void createOrCheckStateForMetaInfo(
@@ -256,7 +316,9 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
             Map<Integer, StateMetaInfoSnapshot> kvStatesById,
             int numStates,
             int readVersion,
-            boolean isCompressed)
+            boolean isCompressed,
+            boolean incremental,
+            boolean restorePriorityQueues)
             throws IOException {
 
         final StreamCompressionDecorator streamCompressionDecorator =
@@ -283,7 +345,13 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                     streamCompressionDecorator.decorateWithCompression(fsDataInputStream)) {
 
                 readKeyGroupStateData(
-                        kgCompressionInStream, kvStatesById, keyGroupIndex, numStates, readVersion);
+                        kgCompressionInStream,
+                        kvStatesById,
+                        keyGroupIndex,
+                        numStates,
+                        readVersion,
+                        incremental,
+                        restorePriorityQueues);
             }
         }
     }
@@ -293,7 +361,9 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
             Map<Integer, StateMetaInfoSnapshot> kvStatesById,
             int keyGroupIndex,
             int numStates,
-            int readVersion)
+            int readVersion,
+            boolean incremental,
+            boolean restorePriorityQueues)
             throws IOException {
 
         DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(inputStream);
@@ -302,14 +372,27 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 
             final int kvStateId = inView.readShort();
             final StateMetaInfoSnapshot stateMetaInfoSnapshot = kvStatesById.get(kvStateId);
-            final StateSnapshotRestore registeredState;
+            final StateSnapshotKeyGroupReader keyGroupReader;
 
             switch (stateMetaInfoSnapshot.getBackendStateType()) {
                 case KEY_VALUE:
-                    registeredState = registeredKVStates.get(stateMetaInfoSnapshot.getName());
+                    StateTable<K, ?, ?> stateTable =
+                            registeredKVStates.get(stateMetaInfoSnapshot.getName());
+                    keyGroupReader =
+                            incremental
+                                    ? StateTableByKeyGroupReaders.incrementalReader(stateTable)
+                                    : stateTable.keyGroupReader(readVersion);
                     break;
                 case PRIORITY_QUEUE:
-                    registeredState = registeredPQStates.get(stateMetaInfoSnapshot.getName());
+                    HeapPriorityQueueSnapshotRestoreWrapper<?> priorityQueue =
+                            registeredPQStates.get(stateMetaInfoSnapshot.getName());
+                    keyGroupReader =
+                            restorePriorityQueues
+                                    ? priorityQueue.keyGroupReader(readVersion)
+                                    : KeyGroupPartitioner.createKeyGroupPartitionReader(
+                                            priorityQueue.getMetaInfo().getElementSerializer()
+                                                    ::deserialize,
+                                            (element, keyGroupId) -> {});
                     break;
                 default:
                     throw new IllegalStateException(
@@ -318,8 +401,6 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
                                     + ".");
             }
 
-            StateSnapshotKeyGroupReader keyGroupReader =
-                    registeredState.keyGroupReader(readVersion);
             keyGroupReader.readMappingsInKeyGroup(inView, keyGroupIndex);
         }
     }
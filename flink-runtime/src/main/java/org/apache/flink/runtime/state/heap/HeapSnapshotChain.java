@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The chain of snapshot files that an incremental snapshot of the {@link HeapKeyedStateBackend}
+ * consists of. The first file of a chain always contains the full state, every following file only
+ * contains the key/value changes since the snapshot of its predecessor, and all priority queue
+ * states in full. The files are shared between the checkpoints that are based on each other.
+ *
+ * <p>The chain (without the state versions) is written as meta data of the snapshot, so that the
+ * restore can replay the files in order.
+ */
+final class HeapSnapshotChain {
+
+    private static final int VERSION = 1;
+
+    /** The files of the chain, the first one being a full snapshot. */
+    @Nonnull private final List<ChainedFile> files;
+
+    /**
+     * The versions of the state maps, by state name, that a following incremental snapshot can be
+     * based on. Only available for chains created by the running backend.
+     */
+    @Nonnull private final Map<String, StateVersions> stateVersions;
+
+    HeapSnapshotChain(
+            @Nonnull List<ChainedFile> files, @Nonnull Map<String, StateVersions> stateVersions) {
+        Preconditions.checkArgument(
+                !files.isEmpty() && !files.get(0).isIncremental(),
+                "A snapshot chain must start with a full snapshot.");
+        this.files = Collections.unmodifiableList(files);
+        this.stateVersions = Collections.unmodifiableMap(stateVersions);
+    }
+
+    @Nonnull
+    List<ChainedFile> getFiles() {
+        return files;
+    }
+
+    @Nullable
+    StateVersions getStateVersions(String stateName) {
+        return stateVersions.get(stateName);
+    }
+
+    @Nonnull
+    Map<String, StateVersions> getAllStateVersions() {
+        return stateVersions;
+    }
+
+    /** Returns the size of the full snapshot that this chain starts with. */
+    long getFullSnapshotSize() {
+        return files.get(0).getSize();
+    }
+
+    /** Returns the accumulated size of the incremental snapshots in this chain. */
+    long getIncrementalSnapshotsSize() {
+        long size = 0L;
+        for (int i = 1; i < files.size(); i++) {
+            size += files.get(i).getSize();
+        }
+        return size;
+    }
+
+    /** Returns a new chain that is this chain extended by the given incremental snapshot. */
+    HeapSnapshotChain append(ChainedFile file, Map<String, StateVersions> newStateVersions) {
+        Preconditions.checkArgument(file.isIncremental());
+        List<ChainedFile> newFiles = new ArrayList<>(files.size() + 1);
+        newFiles.addAll(files);
+        newFiles.add(file);
+        return new HeapSnapshotChain(newFiles, newStateVersions);
+    }
+
+    static void write(List<ChainedFile> files, DataOutputView out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeInt(files.size());
+        for (ChainedFile file : files) {
+            out.writeUTF(file.getId().getKeyString());
+            out.writeBoolean(file.isIncremental());
+            KeyGroupRange keyGroupRange = file.getOffsets().getKeyGroupRange();
+            out.writeInt(keyGroupRange.getStartKeyGroup());
+            out.writeInt(keyGroupRange.getNumberOfKeyGroups());
+            for (Tuple2<Integer, Long> offset : file.getOffsets()) {
+                out.writeLong(offset.f1);
+            }
+        }
+    }
+
+    static List<ChainedFile> read(DataInputView in) throws IOException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unknown version of heap snapshot chain: " + version);
+        }
+        int numFiles = in.readInt();
+        List<ChainedFile> files = new ArrayList<>(numFiles);
+        for (int i = 0; i < numFiles; i++) {
+            StateHandleID id = new StateHandleID(in.readUTF());
+            boolean incremental = in.readBoolean();
+            int startKeyGroup = in.readInt();
+            long[] offsets = new long[in.readInt()];
+            for (int k = 0; k < offsets.length; k++) {
+                offsets[k] = in.readLong();
+            }
+            KeyGroupRange keyGroupRange =
+                    offsets.length == 0
+                            ? KeyGroupRange.EMPTY_KEY_GROUP_RANGE
+                            : KeyGroupRange.of(startKeyGroup, startKeyGroup + offsets.length - 1);
+            files.add(
+                    new ChainedFile(
+                            id, incremental, new KeyGroupRangeOffsets(keyGroupRange, offsets), 0L));
+        }
+        return files;
+    }
+
+    /** A single snapshot file of a {@link HeapSnapshotChain}. */
+    static final class ChainedFile {
+
+        /** The id under which the file is registered as shared state. */
+        @Nonnull private final StateHandleID id;
+
+        /** Whether the file only contains the changes since the previous file of the chain. */
+        private final boolean incremental;
+
+        /** The offsets of the key-groups in the file. */
+        @Nonnull private final KeyGroupRangeOffsets offsets;
+
+        /** The size of the file, only known to the backend that created it. */
+        private final long size;
+
+        ChainedFile(
+                @Nonnull StateHandleID id,
+                boolean incremental,
+                @Nonnull KeyGroupRangeOffsets offsets,
+                long size) {
+            this.id = Preconditions.checkNotNull(id);
+            this.incremental = incremental;
+            this.offsets = Preconditions.checkNotNull(offsets);
+            this.size = size;
+        }
+
+        @Nonnull
+        StateHandleID getId() {
+            return id;
+        }
+
+        boolean isIncremental() {
+            return incremental;
+        }
+
+        @Nonnull
+        KeyGroupRangeOffsets getOffsets() {
+            return offsets;
+        }
+
+        long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * The versions of the state maps of a {@link CopyOnWriteStateTable} in a snapshot, together
+     * with the meta info that the state was written with.
+     */
+    static final class StateVersions {
+
+        @Nonnull private final RegisteredKeyValueStateBackendMetaInfo<?, ?> metaInfo;
+
+        @Nonnull private final int[] stateMapVersions;
+
+        StateVersions(
+                @Nonnull RegisteredKeyValueStateBackendMetaInfo<?, ?> metaInfo,
+                @Nonnull int[] stateMapVersions) {
+            this.metaInfo = metaInfo;
+            this.stateMapVersions = stateMapVersions;
+        }
+
+        @Nonnull
+        RegisteredKeyValueStateBackendMetaInfo<?, ?> getMetaInfo() {
+            return metaInfo;
+        }
+
+        @Nonnull
+        int[] getStateMapVersions() {
+            return stateMapVersions;
+        }
+    }
+}
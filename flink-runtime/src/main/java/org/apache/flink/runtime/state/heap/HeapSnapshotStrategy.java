@@ -28,13 +28,16 @@ import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointStreamWithResultProvider;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
 import org.apache.flink.runtime.state.DoneFuture;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
 import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StateSerializerProvider;
 import org.apache.flink.runtime.state.StateSnapshot;
 import org.apache.flink.runtime.state.StateSnapshotRestore;
@@ -46,14 +49,19 @@ import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.function.SupplierWithException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.RunnableFuture;
 
@@ -64,6 +72,9 @@ import java.util.concurrent.RunnableFuture;
 class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
         implements SnapshotStrategySynchronicityBehavior<K> {
 
+    /** The maximum number of snapshot files in a chain, which bounds the files read on restore. */
+    private static final int MAX_INCREMENTAL_SNAPSHOTS_PER_CHAIN = 32;
+
     private final SnapshotStrategySynchronicityBehavior<K> snapshotStrategySynchronicityTrait;
     private final Map<String, StateTable<K, ?, ?>> registeredKVStates;
     private final Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates;
@@ -73,6 +84,21 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
     private final CloseableRegistry cancelStreamRegistry;
     private final StateSerializerProvider<K> keySerializerProvider;
 
+    /** Whether checkpoints are written as incremental snapshots, see {@link HeapSnapshotChain}. */
+    private final boolean incrementalSnapshots;
+
+    /** The unique id of this backend, under which the shared snapshot files are registered. */
+    private final UUID backendUID;
+
+    /**
+     * The snapshot chains of the pending checkpoints and of the last completed checkpoint, by
+     * checkpoint id.
+     */
+    private final SortedMap<Long, HeapSnapshotChain> snapshotChains;
+
+    /** The id of the last completed checkpoint. */
+    private long lastCompletedCheckpointId;
+
     HeapSnapshotStrategy(
             SnapshotStrategySynchronicityBehavior<K> snapshotStrategySynchronicityTrait,
             Map<String, StateTable<K, ?, ?>> registeredKVStates,
@@ -82,7 +108,32 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
             KeyGroupRange keyGroupRange,
             CloseableRegistry cancelStreamRegistry,
             StateSerializerProvider<K> keySerializerProvider) {
+        this(
+                snapshotStrategySynchronicityTrait,
+                registeredKVStates,
+                registeredPQStates,
+                keyGroupCompressionDecorator,
+                localRecoveryConfig,
+                keyGroupRange,
+                cancelStreamRegistry,
+                keySerializerProvider,
+                false);
+    }
+
+    HeapSnapshotStrategy(
+            SnapshotStrategySynchronicityBehavior<K> snapshotStrategySynchronicityTrait,
+            Map<String, StateTable<K, ?, ?>> registeredKVStates,
+            Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates,
+            StreamCompressionDecorator keyGroupCompressionDecorator,
+            LocalRecoveryConfig localRecoveryConfig,
+            KeyGroupRange keyGroupRange,
+            CloseableRegistry cancelStreamRegistry,
+            StateSerializerProvider<K> keySerializerProvider,
+            boolean incrementalSnapshots) {
         super("Heap backend snapshot");
+        Preconditions.checkArgument(
+                !incrementalSnapshots || snapshotStrategySynchronicityTrait.isAsynchronous(),
+                "Incremental snapshots require asynchronous snapshots.");
         this.snapshotStrategySynchronicityTrait = snapshotStrategySynchronicityTrait;
         this.registeredKVStates = registeredKVStates;
         this.registeredPQStates = registeredPQStates;
@@ -91,6 +142,10 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
         this.keyGroupRange = keyGroupRange;
         this.cancelStreamRegistry = cancelStreamRegistry;
         this.keySerializerProvider = keySerializerProvider;
+        this.incrementalSnapshots = incrementalSnapshots;
+        this.backendUID = UUID.randomUUID();
+        this.snapshotChains = new TreeMap<>();
+        this.lastCompletedCheckpointId = -1L;
     }
 
     @Nonnull
@@ -116,23 +171,33 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
                         + Short.MAX_VALUE
                         + " states are supported");
 
+        final boolean incremental =
+                incrementalSnapshots && !checkpointOptions.getCheckpointType().isSavepoint();
+        final HeapSnapshotChain baseChain = incremental ? getBaseSnapshotChain() : null;
+
         final List<StateMetaInfoSnapshot> metaInfoSnapshots = new ArrayList<>(numStates);
         final Map<StateUID, Integer> stateNamesToId = new HashMap<>(numStates);
         final Map<StateUID, StateSnapshot> cowStateStableSnapshots = new HashMap<>(numStates);
+        final Map<String, HeapSnapshotChain.StateVersions> stateVersions =
+                incremental ? new HashMap<>(registeredKVStates.size()) : null;
 
         processSnapshotMetaInfoForAllStates(
                 metaInfoSnapshots,
                 cowStateStableSnapshots,
                 stateNamesToId,
                 registeredKVStates,
-                StateMetaInfoSnapshot.BackendStateType.KEY_VALUE);
+                StateMetaInfoSnapshot.BackendStateType.KEY_VALUE,
+                baseChain,
+                stateVersions);
 
         processSnapshotMetaInfoForAllStates(
                 metaInfoSnapshots,
                 cowStateStableSnapshots,
                 stateNamesToId,
                 registeredPQStates,
-                StateMetaInfoSnapshot.BackendStateType.PRIORITY_QUEUE);
+                StateMetaInfoSnapshot.BackendStateType.PRIORITY_QUEUE,
+                baseChain,
+                null);
 
         final KeyedBackendSerializationProxy<K> serializationProxy =
                 new KeyedBackendSerializationProxy<>(
@@ -145,6 +210,17 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
                                 UncompressedStreamCompressionDecorator.INSTANCE,
                                 keyGroupCompressionDecorator));
 
+        if (incremental) {
+            return incrementalSnapshot(
+                    checkpointId,
+                    primaryStreamFactory,
+                    serializationProxy,
+                    cowStateStableSnapshots,
+                    stateNamesToId,
+                    baseChain,
+                    stateVersions);
+        }
+
         final SupplierWithException<CheckpointStreamWithResultProvider, Exception>
                 checkpointStreamSupplier =
                         localRecoveryConfig.isLocalRecoveryEnabled()
@@ -176,36 +252,12 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
                         final CheckpointStreamFactory.CheckpointStateOutputStream localStream =
                                 streamWithResultProvider.getCheckpointOutputStream();
 
-                        final DataOutputViewStreamWrapper outView =
-                                new DataOutputViewStreamWrapper(localStream);
-                        serializationProxy.write(outView);
-
                         final long[] keyGroupRangeOffsets =
-                                new long[keyGroupRange.getNumberOfKeyGroups()];
-
-                        for (int keyGroupPos = 0;
-                                keyGroupPos < keyGroupRange.getNumberOfKeyGroups();
-                                ++keyGroupPos) {
-                            int keyGroupId = keyGroupRange.getKeyGroupId(keyGroupPos);
-                            keyGroupRangeOffsets[keyGroupPos] = localStream.getPos();
-                            outView.writeInt(keyGroupId);
-
-                            for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
-                                    cowStateStableSnapshots.entrySet()) {
-                                StateSnapshot.StateKeyGroupWriter partitionedSnapshot =
-                                        stateSnapshot.getValue().getKeyGroupWriter();
-                                try (OutputStream kgCompressionOut =
-                                        keyGroupCompressionDecorator.decorateWithCompression(
-                                                localStream)) {
-                                    DataOutputViewStreamWrapper kgCompressionView =
-                                            new DataOutputViewStreamWrapper(kgCompressionOut);
-                                    kgCompressionView.writeShort(
-                                            stateNamesToId.get(stateSnapshot.getKey()));
-                                    partitionedSnapshot.writeStateInKeyGroup(
-                                            kgCompressionView, keyGroupId);
-                                } // this will just close the outer compression stream
-                            }
-                        }
+                                writeSnapshot(
+                                        localStream,
+                                        serializationProxy,
+                                        cowStateStableSnapshots,
+                                        stateNamesToId);
 
                         if (snapshotCloseableRegistry.unregisterCloseable(
                                 streamWithResultProvider)) {
@@ -243,6 +295,234 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
         return task;
     }
 
+    /**
+     * Writes a snapshot of all states into a shared file that is chained to the files of the base
+     * snapshot chain, or that starts a new chain if there is no base. The result references the
+     * files of the base chain as placeholders, see {@link PlaceholderStreamStateHandle}.
+     */
+    private RunnableFuture<SnapshotResult<KeyedStateHandle>> incrementalSnapshot(
+            long checkpointId,
+            CheckpointStreamFactory primaryStreamFactory,
+            KeyedBackendSerializationProxy<K> serializationProxy,
+            Map<StateUID, StateSnapshot> cowStateStableSnapshots,
+            Map<StateUID, Integer> stateNamesToId,
+            @Nullable HeapSnapshotChain baseChain,
+            Map<String, HeapSnapshotChain.StateVersions> stateVersions)
+            throws IOException {
+
+        final StateHandleID snapshotFileId = new StateHandleID(UUID.randomUUID().toString());
+
+        final AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>> asyncSnapshotCallable =
+                new AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>>() {
+                    @Override
+                    protected SnapshotResult<KeyedStateHandle> callInternal() throws Exception {
+
+                        final StreamStateHandle snapshotFile;
+                        final long[] keyGroupRangeOffsets;
+                        final CheckpointStreamFactory.CheckpointStateOutputStream stream =
+                                primaryStreamFactory.createCheckpointStateOutputStream(
+                                        CheckpointedStateScope.SHARED);
+                        snapshotCloseableRegistry.registerCloseable(stream);
+                        keyGroupRangeOffsets =
+                                writeSnapshot(
+                                        stream,
+                                        serializationProxy,
+                                        cowStateStableSnapshots,
+                                        stateNamesToId);
+                        if (snapshotCloseableRegistry.unregisterCloseable(stream)) {
+                            snapshotFile = stream.closeAndGetHandle();
+                        } else {
+                            throw new IOException("Stream already unregistered.");
+                        }
+
+                        final HeapSnapshotChain.ChainedFile chainedFile =
+                                new HeapSnapshotChain.ChainedFile(
+                                        snapshotFileId,
+                                        baseChain != null,
+                                        new KeyGroupRangeOffsets(
+                                                keyGroupRange, keyGroupRangeOffsets),
+                                        snapshotFile.getStateSize());
+                        final HeapSnapshotChain snapshotChain =
+                                baseChain == null
+                                        ? new HeapSnapshotChain(
+                                                Collections.singletonList(chainedFile),
+                                                stateVersions)
+                                        : baseChain.append(chainedFile, stateVersions);
+
+                        final StreamStateHandle metaStateHandle;
+                        try {
+                            metaStateHandle = writeSnapshotChain(snapshotChain);
+                        } catch (Exception e) {
+                            try {
+                                snapshotFile.discardState();
+                            } catch (Exception discardException) {
+                                e.addSuppressed(discardException);
+                            }
+                            throw e;
+                        }
+
+                        synchronized (snapshotChains) {
+                            snapshotChains.put(checkpointId, snapshotChain);
+                        }
+
+                        final Map<StateHandleID, StreamStateHandle> sharedState =
+                                new HashMap<>(snapshotChain.getFiles().size());
+                        for (HeapSnapshotChain.ChainedFile file : snapshotChain.getFiles()) {
+                            sharedState.put(
+                                    file.getId(),
+                                    file == chainedFile
+                                            ? snapshotFile
+                                            : new PlaceholderStreamStateHandle());
+                        }
+
+                        return SnapshotResult.of(
+                                new IncrementalRemoteKeyedStateHandle(
+                                        backendUID,
+                                        keyGroupRange,
+                                        checkpointId,
+                                        sharedState,
+                                        Collections.emptyMap(),
+                                        metaStateHandle));
+                    }
+
+                    private StreamStateHandle writeSnapshotChain(HeapSnapshotChain snapshotChain)
+                            throws IOException {
+                        final CheckpointStreamFactory.CheckpointStateOutputStream stream =
+                                primaryStreamFactory.createCheckpointStateOutputStream(
+                                        CheckpointedStateScope.EXCLUSIVE);
+                        snapshotCloseableRegistry.registerCloseable(stream);
+                        HeapSnapshotChain.write(
+                                snapshotChain.getFiles(), new DataOutputViewStreamWrapper(stream));
+                        if (snapshotCloseableRegistry.unregisterCloseable(stream)) {
+                            return stream.closeAndGetHandle();
+                        } else {
+                            throw new IOException("Stream already unregistered.");
+                        }
+                    }
+
+                    @Override
+                    protected void cleanupProvidedResources() {
+                        for (StateSnapshot tableSnapshot : cowStateStableSnapshots.values()) {
+                            tableSnapshot.release();
+                        }
+                    }
+
+                    @Override
+                    protected void logAsyncSnapshotComplete(long startTime) {
+                        logAsyncCompleted(primaryStreamFactory, startTime);
+                    }
+                };
+
+        final FutureTask<SnapshotResult<KeyedStateHandle>> task =
+                asyncSnapshotCallable.toAsyncSnapshotFutureTask(cancelStreamRegistry);
+        finalizeSnapshotBeforeReturnHook(task);
+
+        return task;
+    }
+
+    /**
+     * Writes the serialization proxy followed by the state of all key-groups to the given stream.
+     *
+     * @return the offsets of the key-groups in the stream.
+     */
+    private long[] writeSnapshot(
+            CheckpointStreamFactory.CheckpointStateOutputStream localStream,
+            KeyedBackendSerializationProxy<K> serializationProxy,
+            Map<StateUID, StateSnapshot> cowStateStableSnapshots,
+            Map<StateUID, Integer> stateNamesToId)
+            throws IOException {
+
+        final DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(localStream);
+        serializationProxy.write(outView);
+
+        final long[] keyGroupRangeOffsets = new long[keyGroupRange.getNumberOfKeyGroups()];
+
+        for (int keyGroupPos = 0;
+                keyGroupPos < keyGroupRange.getNumberOfKeyGroups();
+                ++keyGroupPos) {
+            int keyGroupId = keyGroupRange.getKeyGroupId(keyGroupPos);
+            keyGroupRangeOffsets[keyGroupPos] = localStream.getPos();
+            outView.writeInt(keyGroupId);
+
+            for (Map.Entry<StateUID, StateSnapshot> stateSnapshot :
+                    cowStateStableSnapshots.entrySet()) {
+                StateSnapshot.StateKeyGroupWriter partitionedSnapshot =
+                        stateSnapshot.getValue().getKeyGroupWriter();
+                try (OutputStream kgCompressionOut =
+                        keyGroupCompressionDecorator.decorateWithCompression(localStream)) {
+                    DataOutputViewStreamWrapper kgCompressionView =
+                            new DataOutputViewStreamWrapper(kgCompressionOut);
+                    kgCompressionView.writeShort(stateNamesToId.get(stateSnapshot.getKey()));
+                    partitionedSnapshot.writeStateInKeyGroup(kgCompressionView, keyGroupId);
+                } // this will just close the outer compression stream
+            }
+        }
+        return keyGroupRangeOffsets;
+    }
+
+    /**
+     * Returns the snapshot chain of the last completed checkpoint if the next snapshot can be
+     * written incrementally on top of it, or null if a full snapshot has to be written. This is the
+     * case if the state was re-registered with a new meta info since then, or if the chain is
+     * already too long or its incremental snapshots are larger than its full snapshot.
+     */
+    @Nullable
+    private HeapSnapshotChain getBaseSnapshotChain() {
+        final HeapSnapshotChain baseChain;
+        synchronized (snapshotChains) {
+            baseChain = snapshotChains.get(lastCompletedCheckpointId);
+        }
+
+        if (baseChain == null
+                || baseChain.getFiles().size() >= MAX_INCREMENTAL_SNAPSHOTS_PER_CHAIN
+                || baseChain.getIncrementalSnapshotsSize() >= baseChain.getFullSnapshotSize()) {
+            return null;
+        }
+
+        for (Map.Entry<String, HeapSnapshotChain.StateVersions> baseState :
+                baseChain.getAllStateVersions().entrySet()) {
+            StateTable<K, ?, ?> stateTable = registeredKVStates.get(baseState.getKey());
+            if (stateTable == null
+                    || stateTable.getMetaInfo() != baseState.getValue().getMetaInfo()) {
+                return null;
+            }
+        }
+        return baseChain;
+    }
+
+    /**
+     * Confirms the snapshot chain of the completed checkpoint as base for the following incremental
+     * snapshots and drops the removals that the state maps tracked for older snapshots.
+     */
+    void notifyCheckpointComplete(long completedCheckpointId) {
+        final HeapSnapshotChain completedChain;
+        synchronized (snapshotChains) {
+            if (completedCheckpointId <= lastCompletedCheckpointId) {
+                return;
+            }
+            snapshotChains.keySet().removeIf(checkpointId -> checkpointId < completedCheckpointId);
+            lastCompletedCheckpointId = completedCheckpointId;
+            completedChain = snapshotChains.get(completedCheckpointId);
+        }
+
+        if (completedChain != null) {
+            for (Map.Entry<String, HeapSnapshotChain.StateVersions> state :
+                    completedChain.getAllStateVersions().entrySet()) {
+                StateTable<K, ?, ?> stateTable = registeredKVStates.get(state.getKey());
+                if (stateTable instanceof CopyOnWriteStateTable) {
+                    ((CopyOnWriteStateTable<K, ?, ?>) stateTable)
+                            .pruneRemovedEntries(state.getValue().getStateMapVersions());
+                }
+            }
+        }
+    }
+
+    void notifyCheckpointAborted(long abortedCheckpointId) {
+        synchronized (snapshotChains) {
+            snapshotChains.remove(abortedCheckpointId);
+        }
+    }
+
     @Override
     public void finalizeSnapshotBeforeReturnHook(Runnable runnable) {
         snapshotStrategySynchronicityTrait.finalizeSnapshotBeforeReturnHook(runnable);
@@ -267,7 +547,9 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
             Map<StateUID, StateSnapshot> cowStateStableSnapshots,
             Map<StateUID, Integer> stateNamesToId,
             Map<String, ? extends StateSnapshotRestore> registeredStates,
-            StateMetaInfoSnapshot.BackendStateType stateType) {
+            StateMetaInfoSnapshot.BackendStateType stateType,
+            @Nullable HeapSnapshotChain baseChain,
+            @Nullable Map<String, HeapSnapshotChain.StateVersions> stateVersions) {
 
         for (Map.Entry<String, ? extends StateSnapshotRestore> kvState :
                 registeredStates.entrySet()) {
@@ -275,13 +557,53 @@ class HeapSnapshotStrategy<K> extends AbstractSnapshotStrategy<KeyedStateHandle>
             stateNamesToId.put(stateUid, stateNamesToId.size());
             StateSnapshotRestore state = kvState.getValue();
             if (null != state) {
-                final StateSnapshot stateSnapshot = state.stateSnapshot();
+                final StateSnapshot stateSnapshot =
+                        stateVersions != null && state instanceof CopyOnWriteStateTable
+                                ? incrementalStateSnapshot(
+                                        kvState.getKey(),
+                                        (CopyOnWriteStateTable<K, ?, ?>) state,
+                                        baseChain,
+                                        stateVersions)
+                                : state.stateSnapshot();
                 metaInfoSnapshots.add(stateSnapshot.getMetaInfoSnapshot());
                 cowStateStableSnapshots.put(stateUid, stateSnapshot);
             }
         }
     }
 
+    /**
+     * Creates the snapshot of a state table that is part of an incremental snapshot, i.e. it only
+     * contains the changes since the base chain, or all entries if the state is not part of the
+     * base chain or there is no base chain. The versions of the snapshot are collected as base for
+     * the following snapshots.
+     */
+    private StateSnapshot incrementalStateSnapshot(
+            String stateName,
+            CopyOnWriteStateTable<K, ?, ?> stateTable,
+            @Nullable HeapSnapshotChain baseChain,
+            Map<String, HeapSnapshotChain.StateVersions> stateVersions) {
+
+        stateTable.enableRemovalTracking();
+
+        final CopyOnWriteStateTableSnapshot<K, ?, ?> stateSnapshot;
+        if (baseChain == null) {
+            stateSnapshot = stateTable.stateSnapshot();
+        } else {
+            HeapSnapshotChain.StateVersions baseVersions = baseChain.getStateVersions(stateName);
+            stateSnapshot =
+                    stateTable.incrementalStateSnapshot(
+                            baseVersions != null
+                                    ? baseVersions.getStateMapVersions()
+                                    : new int[keyGroupRange.getNumberOfKeyGroups()]);
+        }
+
+        stateVersions.put(
+                stateName,
+                new HeapSnapshotChain.StateVersions(
+                        stateTable.getMetaInfo(), stateSnapshot.getStateMapSnapshotVersions()));
+        return stateSnapshot;
+    }
+
     private boolean hasRegisteredState() {
         return !(registeredKVStates.isEmpty() && registeredPQStates.isEmpty());
     }
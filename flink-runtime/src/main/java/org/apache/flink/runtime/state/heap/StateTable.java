@@ -276,7 +276,7 @@ public abstract class StateTable<K, N, S>
         Preconditions.checkNotNull(namespace, "Provided namespace is null.");
     }
 
-    private void remove(K key, int keyGroupIndex, N namespace) {
+    void remove(K key, int keyGroupIndex, N namespace) {
         checkKeyNamespacePreconditions(key, namespace);
 
         StateMap<K, N, S> stateMap = getMapForKeyGroup(keyGroupIndex);
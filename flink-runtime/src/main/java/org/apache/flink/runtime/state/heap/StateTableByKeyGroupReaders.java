@@ -81,6 +81,54 @@ class StateTableByKeyGroupReaders {
                         stateTable.put(element.f1, keyGroupId1, element.f0, element.f2));
     }
 
+    /**
+     * Creates a new StateTableByKeyGroupReader that applies the changes of an incremental snapshot
+     * to the given table, see {@link CopyOnWriteStateMapSnapshot#writeIncrementalState}.
+     *
+     * @param <K> type of key.
+     * @param <N> type of namespace.
+     * @param <S> type of state.
+     * @param stateTable the {@link StateTable} to which the de-serialized changes are applied.
+     * @return the reader for incremental snapshots.
+     */
+    static <K, N, S> StateSnapshotKeyGroupReader incrementalReader(StateTable<K, N, S> stateTable) {
+        return new StateTableByKeyGroupIncrementalReader<>(stateTable);
+    }
+
+    static final class StateTableByKeyGroupIncrementalReader<K, N, S>
+            implements StateSnapshotKeyGroupReader {
+
+        private final StateTable<K, N, S> stateTable;
+
+        StateTableByKeyGroupIncrementalReader(StateTable<K, N, S> stateTable) {
+            this.stateTable = stateTable;
+        }
+
+        @Override
+        public void readMappingsInKeyGroup(
+                @Nonnull DataInputView inView, @Nonnegative int keyGroupId) throws IOException {
+
+            final TypeSerializer<K> keySerializer = stateTable.keySerializer;
+            final TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
+            final TypeSerializer<S> stateSerializer = stateTable.getStateSerializer();
+
+            int numRemovals = inView.readInt();
+            for (int i = 0; i < numRemovals; i++) {
+                N namespace = namespaceSerializer.deserialize(inView);
+                K key = keySerializer.deserialize(inView);
+                stateTable.remove(key, keyGroupId, namespace);
+            }
+
+            int numChanges = inView.readInt();
+            for (int i = 0; i < numChanges; i++) {
+                N namespace = namespaceSerializer.deserialize(inView);
+                K key = keySerializer.deserialize(inView);
+                S state = stateSerializer.deserialize(inView);
+                stateTable.put(key, keyGroupId, namespace, state);
+            }
+        }
+    }
+
     static final class StateTableByKeyGroupReaderV1<K, N, S>
             implements StateSnapshotKeyGroupReader {
 
@@ -0,0 +1,418 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.KeyExtractorFunction;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.PriorityComparator;
+import org.apache.flink.util.CloseableIterator;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A priority queue with set semantics for elements that are prioritized by a timestamp, based on a
+ * hierarchical timing wheel. Elements are assigned to buckets of a fixed number of milliseconds.
+ * Adding and removing an element that is not due yet takes constant time, only the elements of the
+ * bucket at the head of the queue are kept in a {@link HeapPriorityQueue}. Like in {@link
+ * HeapPriorityQueueSet}, the elements are de-duplicated by a hash map per key-group, based on
+ * {@link #equals(Object)}.
+ *
+ * <p>The wheel has {@link #NUM_LEVELS} levels of {@link #NUM_SLOTS} slots each. The position of an
+ * element depends only on its bucket and the current bucket of the wheel: the element is in the
+ * lowest level in which its bucket shares all higher digits (in base {@link #NUM_SLOTS}) with the
+ * current bucket, in the slot of its digit of that level. Elements that are not due in the range of
+ * the wheel are kept in an overflow heap. When the head of the queue is requested and no element is
+ * due in the current bucket, the wheel advances to the next non-empty slot and redistributes its
+ * elements to the lower levels.
+ *
+ * <p>The priority order of the elements must be consistent with the order of their timestamps.
+ *
+ * @param <T> type of the contained elements.
+ */
+public class TimingWheelPriorityQueueSet<T extends HeapPriorityQueueElement>
+        implements KeyGroupedInternalPriorityQueue<T> {
+
+    /** Number of bits of a bucket that index the slots of one level. */
+    private static final int SLOT_BITS = 6;
+
+    static final int NUM_SLOTS = 1 << SLOT_BITS;
+
+    private static final int SLOT_MASK = NUM_SLOTS - 1;
+
+    static final int NUM_LEVELS = 4;
+
+    /** Function to extract the key from contained elements. */
+    private final KeyExtractorFunction<T> keyExtractor;
+
+    /** Function to extract the timestamp from contained elements. */
+    private final ToLongFunction<T> timestampExtractor;
+
+    /** The number of milliseconds of one bucket. */
+    private final long bucketSize;
+
+    /**
+     * One hash map per key-group for de-duplication and deletes, see {@link HeapPriorityQueueSet}.
+     */
+    private final HashMap<T, T>[] deduplicationMapsByKeyGroup;
+
+    /** The key-group range of elements that are managed by this queue. */
+    private final KeyGroupRange keyGroupRange;
+
+    /** The total number of key-groups of the job. */
+    private final int totalNumberOfKeyGroups;
+
+    /** The elements that are due up to the current bucket, in priority order. */
+    private final HeapPriorityQueue<T> dueElements;
+
+    /** The elements that are due after the range of the wheel, in priority order. */
+    private final HeapPriorityQueue<T> overflowElements;
+
+    /** The slots of the wheel, by level. */
+    private final Slot<T>[][] slots;
+
+    /** The bucket at the head of the wheel. */
+    private long currentBucket;
+
+    private int size;
+
+    /**
+     * Creates an empty {@link TimingWheelPriorityQueueSet}.
+     *
+     * @param elementPriorityComparator comparator for the priority of contained elements.
+     * @param keyExtractor function to extract a key from the contained elements.
+     * @param timestampExtractor function to extract the timestamp from the contained elements.
+     * @param bucketSize the number of milliseconds of the timestamps in one bucket.
+     * @param minimumCapacity the minimum and initial capacity of the heaps of this queue.
+     * @param keyGroupRange the key-group range of the elements in this set.
+     * @param totalNumberOfKeyGroups the total number of key-groups of the job.
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheelPriorityQueueSet(
+            @Nonnull PriorityComparator<T> elementPriorityComparator,
+            @Nonnull KeyExtractorFunction<T> keyExtractor,
+            @Nonnull ToLongFunction<T> timestampExtractor,
+            long bucketSize,
+            @Nonnegative int minimumCapacity,
+            @Nonnull KeyGroupRange keyGroupRange,
+            @Nonnegative int totalNumberOfKeyGroups) {
+
+        checkArgument(bucketSize > 0, "The bucket size must be positive.");
+
+        this.keyExtractor = keyExtractor;
+        this.timestampExtractor = timestampExtractor;
+        this.bucketSize = bucketSize;
+        this.keyGroupRange = keyGroupRange;
+        this.totalNumberOfKeyGroups = totalNumberOfKeyGroups;
+        this.dueElements = new HeapPriorityQueue<>(elementPriorityComparator, minimumCapacity);
+        this.overflowElements = new HeapPriorityQueue<>(elementPriorityComparator, minimumCapacity);
+
+        this.slots = new Slot[NUM_LEVELS][NUM_SLOTS];
+        for (int level = 0; level < NUM_LEVELS; level++) {
+            for (int slot = 0; slot < NUM_SLOTS; slot++) {
+                slots[level][slot] = new Slot<>();
+            }
+        }
+
+        final int keyGroupsInLocalRange = keyGroupRange.getNumberOfKeyGroups();
+        final int deduplicationSetSize = 1 + minimumCapacity / keyGroupsInLocalRange;
+        this.deduplicationMapsByKeyGroup = new HashMap[keyGroupsInLocalRange];
+        for (int i = 0; i < keyGroupsInLocalRange; ++i) {
+            deduplicationMapsByKeyGroup[i] = new HashMap<>(deduplicationSetSize);
+        }
+    }
+
+    @Nullable
+    @Override
+    public T poll() {
+        final T head = peek();
+        if (head == null) {
+            return null;
+        }
+        dueElements.poll();
+        getDedupMapForElement(head).remove(head);
+        size--;
+        return head;
+    }
+
+    @Nullable
+    @Override
+    public T peek() {
+        if (dueElements.isEmpty() && size > 0) {
+            advance();
+        }
+        return dueElements.peek();
+    }
+
+    /**
+     * Adds the element to the queue, if no such element is already contained (determined by {@link
+     * #equals(Object)}).
+     *
+     * @return <code>true</code> if the element was added, which may have changed the head element.
+     */
+    @Override
+    public boolean add(@Nonnull T element) {
+        if (getDedupMapForElement(element).putIfAbsent(element, element) != null) {
+            return false;
+        }
+        if (size == 0) {
+            // the wheel can be moved freely while it is empty
+            currentBucket = getBucket(element);
+        }
+        size++;
+        insert(element);
+        return true;
+    }
+
+    /**
+     * Removes the element that equals the given element from the queue.
+     *
+     * @return <code>true</code> if an element was removed, which may have changed the head element.
+     */
+    @Override
+    public boolean remove(@Nonnull T toRemove) {
+        final T storedElement = getDedupMapForElement(toRemove).remove(toRemove);
+        if (storedElement == null) {
+            return false;
+        }
+        size--;
+
+        final long bucket = getBucket(storedElement);
+        if (bucket <= currentBucket) {
+            dueElements.remove(storedElement);
+            return true;
+        }
+        final int level = getLevel(bucket);
+        if (level < NUM_LEVELS) {
+            slots[level][getSlot(bucket, level)].remove(storedElement);
+        } else {
+            overflowElements.remove(storedElement);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void addAll(@Nullable Collection<? extends T> toAdd) {
+        if (toAdd == null) {
+            return;
+        }
+        for (T element : toAdd) {
+            add(element);
+        }
+    }
+
+    /** Iterates over the elements in no particular order. */
+    @Nonnull
+    @Override
+    public CloseableIterator<T> iterator() {
+        return CloseableIterator.adapterForIterator(
+                Arrays.stream(deduplicationMapsByKeyGroup)
+                        .flatMap(map -> map.keySet().stream())
+                        .iterator());
+    }
+
+    @Nonnull
+    @Override
+    public Set<T> getSubsetForKeyGroup(int keyGroupId) {
+        return getDedupMapForKeyGroup(keyGroupId).keySet();
+    }
+
+    // ------------------------------------------------------------------------
+    //  wheel
+    // ------------------------------------------------------------------------
+
+    private void insert(T element) {
+        final long bucket = getBucket(element);
+        if (bucket <= currentBucket) {
+            dueElements.add(element);
+            return;
+        }
+        final int level = getLevel(bucket);
+        if (level < NUM_LEVELS) {
+            slots[level][getSlot(bucket, level)].add(element);
+        } else {
+            overflowElements.add(element);
+        }
+    }
+
+    /**
+     * Moves the wheel to the next bucket that has elements, and moves these elements to the due
+     * elements. Must only be called if there are no due elements.
+     */
+    private void advance() {
+        while (dueElements.isEmpty()) {
+            if (!advanceWheel()) {
+                advanceOverflow();
+            }
+        }
+    }
+
+    /**
+     * Moves the wheel to the first bucket of the next non-empty slot, and redistributes the
+     * elements of that slot.
+     *
+     * @return false if the wheel is empty.
+     */
+    private boolean advanceWheel() {
+        for (int level = 0; level < NUM_LEVELS; level++) {
+            final int shift = level * SLOT_BITS;
+            for (int slot = getSlot(currentBucket, level) + 1; slot < NUM_SLOTS; slot++) {
+                if (!slots[level][slot].isEmpty()) {
+                    // all lower levels are empty, only the digits of this and lower levels change
+                    currentBucket =
+                            ((currentBucket >> (shift + SLOT_BITS)) << (shift + SLOT_BITS))
+                                    | ((long) slot << shift);
+                    slots[level][slot].drainTo(this::insert);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Moves the wheel to the first overflowed element, and pulls the elements into the wheel. */
+    private void advanceOverflow() {
+        T element = overflowElements.peek();
+        if (element == null) {
+            throw new IllegalStateException("The size does not match the contained elements.");
+        }
+        currentBucket = getBucket(element);
+        while (element != null && getLevel(getBucket(element)) < NUM_LEVELS) {
+            overflowElements.poll();
+            insert(element);
+            element = overflowElements.peek();
+        }
+    }
+
+    private long getBucket(T element) {
+        return Math.floorDiv(timestampExtractor.applyAsLong(element), bucketSize);
+    }
+
+    /**
+     * Returns the lowest level in which the given bucket has the same higher digits as the current
+     * bucket, or {@link #NUM_LEVELS} if it is out of the range of the wheel.
+     */
+    private int getLevel(long bucket) {
+        for (int level = 0; level < NUM_LEVELS; level++) {
+            final int shift = (level + 1) * SLOT_BITS;
+            if ((bucket >> shift) == (currentBucket >> shift)) {
+                return level;
+            }
+        }
+        return NUM_LEVELS;
+    }
+
+    private static int getSlot(long bucket, int level) {
+        return (int) (bucket >> (level * SLOT_BITS)) & SLOT_MASK;
+    }
+
+    // ------------------------------------------------------------------------
+    //  key-groups
+    // ------------------------------------------------------------------------
+
+    private HashMap<T, T> getDedupMapForKeyGroup(@Nonnegative int keyGroupId) {
+        return deduplicationMapsByKeyGroup[globalKeyGroupToLocalIndex(keyGroupId)];
+    }
+
+    private HashMap<T, T> getDedupMapForElement(T element) {
+        int keyGroup =
+                KeyGroupRangeAssignment.assignToKeyGroup(
+                        keyExtractor.extractKeyFromElement(element), totalNumberOfKeyGroups);
+        return getDedupMapForKeyGroup(keyGroup);
+    }
+
+    private int globalKeyGroupToLocalIndex(int keyGroup) {
+        checkArgument(
+                keyGroupRange.contains(keyGroup),
+                "%s does not contain key group %s",
+                keyGroupRange,
+                keyGroup);
+        return keyGroup - keyGroupRange.getStartKeyGroup();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+     * An unordered slot of the wheel. The elements know their position in the slot through their
+     * internal index, which allows to remove them in constant time.
+     */
+    private static final class Slot<T extends HeapPriorityQueueElement> {
+
+        private static final HeapPriorityQueueElement[] EMPTY = new HeapPriorityQueueElement[0];
+
+        private HeapPriorityQueueElement[] elements = EMPTY;
+
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(T element) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+            }
+            element.setInternalIndex(size);
+            elements[size++] = element;
+        }
+
+        void remove(T element) {
+            final int index = element.getInternalIndex();
+            assert elements[index] == element;
+            final HeapPriorityQueueElement last = elements[--size];
+            elements[index] = last;
+            last.setInternalIndex(index);
+            elements[size] = null;
+            element.setInternalIndex(HeapPriorityQueueElement.NOT_CONTAINED);
+        }
+
+        /** Removes all elements, and passes them to the given consumer. */
+        @SuppressWarnings("unchecked")
+        void drainTo(Consumer<T> consumer) {
+            final HeapPriorityQueueElement[] drained = elements;
+            final int drainedSize = size;
+            elements = EMPTY;
+            size = 0;
+            for (int i = 0; i < drainedSize; i++) {
+                consumer.accept((T) drained[i]);
+            }
+        }
+    }
+}
@@ -22,6 +22,8 @@ import org.apache.flink.api.common.state.State;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.StateEntry;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 
 /**
@@ -106,6 +108,28 @@ public interface InternalKvState<K, N, V> extends State {
             final TypeSerializer<V> safeValueSerializer)
             throws Exception;
 
+    /**
+     * Returns whether {@link #getSerializedValue(byte[], TypeSerializer, TypeSerializer,
+     * TypeSerializer)} may be called by other threads while the task thread accesses this state, so
+     * that values can be fetched asynchronously.
+     */
+    default boolean supportsConcurrentReads() {
+        return false;
+    }
+
+    /**
+     * Returns a copy of the default value of the state descriptor, which the state returns if it
+     * has no value for the current key and namespace. This is also the value that a {@code null}
+     * result of {@link #getSerializedValue(byte[], TypeSerializer, TypeSerializer,
+     * TypeSerializer)} stands for. Must be called by the task thread.
+     *
+     * @return A copy of the default value, or {@code null} if the state has no default value.
+     */
+    @Nullable
+    default V getDefaultValue() {
+        return null;
+    }
+
     /**
      * Get global visitor of state entries.
      *
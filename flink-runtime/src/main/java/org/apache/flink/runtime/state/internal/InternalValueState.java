@@ -20,6 +20,9 @@ package org.apache.flink.runtime.state.internal;
 
 import org.apache.flink.api.common.state.ValueState;
 
+import java.io.IOException;
+import java.util.List;
+
 /**
  * The peer to the {@link ValueState} in the internal state type hierarchy.
  *
@@ -29,4 +32,16 @@ import org.apache.flink.api.common.state.ValueState;
  * @param <N> The type of the namespace
  * @param <T> The type of elements in the list
  */
-public interface InternalValueState<K, N, T> extends InternalKvState<K, N, T>, ValueState<T> {}
+public interface InternalValueState<K, N, T> extends InternalKvState<K, N, T>, ValueState<T> {
+
+    /**
+     * Returns the values of the given keys in the current namespace. The result is the same as
+     * setting each key as the current key and calling {@link #value()}, but allows the backend to
+     * look up all keys in one batch. The current key of the backend is not changed.
+     *
+     * @param keys The keys to look up. They must belong to the key-groups of the backend.
+     * @return The value of each key, at the position of the key in the given list.
+     * @throws IOException Thrown if the system cannot access the state.
+     */
+    List<T> multiGet(List<K> keys) throws IOException;
+}
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state.ttl;
 
 import org.apache.flink.api.common.state.StateTtlConfig;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KeyedStateBackend;
 
 class TtlStateContext<T, SV> {
     /** Wrapped original state handler. */
@@ -34,16 +35,21 @@ class TtlStateContext<T, SV> {
     /** This registered callback is to be called whenever state is accessed for read or write. */
     final Runnable accessCallback;
 
+    /** The backend of the state, used to switch the current key for writes on batched reads. */
+    final KeyedStateBackend<?> keyedStateBackend;
+
     TtlStateContext(
             T original,
             StateTtlConfig config,
             TtlTimeProvider timeProvider,
             TypeSerializer<SV> valueSerializer,
-            Runnable accessCallback) {
+            Runnable accessCallback,
+            KeyedStateBackend<?> keyedStateBackend) {
         this.original = original;
         this.config = config;
         this.timeProvider = timeProvider;
         this.valueSerializer = valueSerializer;
         this.accessCallback = accessCallback;
+        this.keyedStateBackend = keyedStateBackend;
     }
 }
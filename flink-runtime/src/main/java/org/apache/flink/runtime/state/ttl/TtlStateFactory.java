@@ -215,7 +215,8 @@ public class TtlStateFactory<K, N, SV, TTLSV, S extends State, IS extends S> {
                 ttlConfig,
                 timeProvider,
                 (TypeSerializer<V>) stateDesc.getSerializer(),
-                registerTtlIncrementalCleanupCallback((InternalKvState<?, ?, ?>) originalState));
+                registerTtlIncrementalCleanupCallback((InternalKvState<?, ?, ?>) originalState),
+                stateBackend);
     }
 
     private TtlIncrementalCleanup<K, N, TTLSV> getTtlIncrementalCleanup() {
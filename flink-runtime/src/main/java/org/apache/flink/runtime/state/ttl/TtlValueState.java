@@ -18,12 +18,15 @@
 
 package org.apache.flink.runtime.state.ttl;
 
+import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class wraps value state with TTL logic.
@@ -35,8 +38,12 @@ import java.io.IOException;
 class TtlValueState<K, N, T>
         extends AbstractTtlState<K, N, T, TtlValue<T>, InternalValueState<K, N, TtlValue<T>>>
         implements InternalValueState<K, N, T> {
+    private final KeyedStateBackend<K> keyedStateBackend;
+
+    @SuppressWarnings("unchecked")
     TtlValueState(TtlStateContext<InternalValueState<K, N, TtlValue<T>>, T> tTtlStateContext) {
         super(tTtlStateContext);
+        this.keyedStateBackend = (KeyedStateBackend<K>) tTtlStateContext.keyedStateBackend;
     }
 
     @Override
@@ -45,6 +52,49 @@ class TtlValueState<K, N, T>
         return getWithTtlCheckAndUpdate(original::value, original::update);
     }
 
+    @Override
+    public List<T> multiGet(List<K> keys) throws IOException {
+        accessCallback.run();
+        List<TtlValue<T>> ttlValues = original.multiGet(keys);
+        List<T> values = new ArrayList<>(ttlValues.size());
+        List<Integer> expiredKeys = new ArrayList<>();
+        List<Integer> readKeys = new ArrayList<>();
+        for (int i = 0; i < ttlValues.size(); i++) {
+            TtlValue<T> ttlValue = ttlValues.get(i);
+            if (ttlValue == null) {
+                values.add(null);
+            } else if (expired(ttlValue)) {
+                expiredKeys.add(i);
+                values.add(returnExpired ? ttlValue.getUserValue() : null);
+            } else {
+                if (updateTsOnRead) {
+                    readKeys.add(i);
+                }
+                values.add(ttlValue.getUserValue());
+            }
+        }
+
+        if (!expiredKeys.isEmpty() || !readKeys.isEmpty()) {
+            // clean up and renew the read values as the single key reads do
+            K currentKey = keyedStateBackend.getCurrentKey();
+            try {
+                for (int i : expiredKeys) {
+                    keyedStateBackend.setCurrentKey(keys.get(i));
+                    original.clear();
+                }
+                for (int i : readKeys) {
+                    keyedStateBackend.setCurrentKey(keys.get(i));
+                    original.update(rewrapWithNewTs(ttlValues.get(i)));
+                }
+            } finally {
+                if (currentKey != null) {
+                    keyedStateBackend.setCurrentKey(currentKey);
+                }
+            }
+        }
+        return values;
+    }
+
     @Override
     public void update(T value) throws IOException {
         accessCallback.run();
@@ -37,6 +37,7 @@ import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
 import org.apache.flink.runtime.clusterframework.types.SlotID;
 import org.apache.flink.runtime.concurrent.FutureUtils;
 import org.apache.flink.runtime.deployment.ResultPartitionDeploymentDescriptor;
+import org.apache.flink.runtime.deployment.ShuffleDescriptorsCache;
 import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor;
 import org.apache.flink.runtime.entrypoint.ClusterInformation;
 import org.apache.flink.runtime.execution.ExecutionState;
@@ -97,6 +98,7 @@ import org.apache.flink.runtime.state.TaskExecutorLocalStateStoresManager;
 import org.apache.flink.runtime.state.TaskLocalStateStore;
 import org.apache.flink.runtime.state.TaskStateManager;
 import org.apache.flink.runtime.state.TaskStateManagerImpl;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.runtime.taskexecutor.exceptions.RegistrationTimeoutException;
 import org.apache.flink.runtime.taskexecutor.exceptions.SlotAllocationException;
 import org.apache.flink.runtime.taskexecutor.exceptions.SlotOccupiedException;
@@ -188,6 +190,9 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
     private final LibraryCacheManager libraryCacheManager;
 
+    /** The deserialized shuffle descriptors offloaded by the JobManagers. */
+    private final ShuffleDescriptorsCache shuffleDescriptorsCache;
+
     /** The address to metric query service on this Task Manager. */
     @Nullable private final String metricQueryServiceAddress;
 
@@ -212,6 +217,9 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
     private final Executor ioExecutor;
 
+    /** The writers that merge small checkpoint state of all tasks into shared segment files. */
+    private final SegmentFileWriters segmentFileWriters;
+
     // --------- task slot allocation table -----------
 
     private final TaskSlotTable<Task> taskSlotTable;
@@ -283,6 +291,7 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
         this.externalResourceInfoProvider = checkNotNull(externalResourceInfoProvider);
 
         this.libraryCacheManager = taskExecutorServices.getLibraryCacheManager();
+        this.shuffleDescriptorsCache = new ShuffleDescriptorsCache();
         this.taskSlotTable = taskExecutorServices.getTaskSlotTable();
         this.jobTable = taskExecutorServices.getJobTable();
         this.jobLeaderService = taskExecutorServices.getJobLeaderService();
@@ -292,6 +301,7 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
         this.shuffleEnvironment = taskExecutorServices.getShuffleEnvironment();
         this.kvStateService = taskExecutorServices.getKvStateService();
         this.ioExecutor = taskExecutorServices.getIOExecutor();
+        this.segmentFileWriters = new SegmentFileWriters();
         this.resourceManagerLeaderRetriever = haServices.getResourceManagerLeaderRetriever();
 
         this.hardwareDescription =
@@ -547,7 +557,8 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
 
             // re-integrate offloaded data:
             try {
-                tdd.loadBigData(blobCacheService.getPermanentBlobService());
+                tdd.loadBigData(
+                        blobCacheService.getPermanentBlobService(), shuffleDescriptorsCache);
             } catch (IOException | ClassNotFoundException e) {
                 throw new TaskSubmissionException(
                         "Could not re-integrate offloaded TaskDeploymentDescriptor data.", e);
@@ -627,7 +638,9 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
                             tdd.getExecutionAttemptId(),
                             localStateStore,
                             taskRestore,
-                            checkpointResponder);
+                            checkpointResponder,
+                            ioExecutor,
+                            segmentFileWriters);
 
             MemoryManager memoryManager;
             try {
@@ -1548,6 +1561,7 @@ public class TaskExecutor extends RpcEndpoint implements TaskExecutorGateway {
                         jobManagerConnection ->
                                 disconnectJobManagerConnection(jobManagerConnection, cause));
 
+        shuffleDescriptorsCache.clearCacheForJob(job.getJobId());
         job.close();
     }
 
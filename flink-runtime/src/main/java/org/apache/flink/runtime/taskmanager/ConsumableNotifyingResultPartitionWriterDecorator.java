@@ -116,6 +116,11 @@ public class ConsumableNotifyingResultPartitionWriterDecorator {
             return partitionWriter.getNumberOfSubpartitions();
         }
 
+        @Override
+        public int getNumberOfQueuedBuffers(int targetSubpartition) {
+            return partitionWriter.getNumberOfQueuedBuffers(targetSubpartition);
+        }
+
         @Override
         public int getNumTargetKeyGroups() {
             return partitionWriter.getNumTargetKeyGroups();
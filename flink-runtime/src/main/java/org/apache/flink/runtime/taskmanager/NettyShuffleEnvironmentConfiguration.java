@@ -20,10 +20,13 @@ package org.apache.flink.runtime.taskmanager;
 
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.ConfigurationUtils;
+import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartitionType;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
 import org.apache.flink.runtime.util.ConfigurationParserUtils;
 import org.apache.flink.util.Preconditions;
 
@@ -67,6 +70,13 @@ public class NettyShuffleEnvironmentConfiguration {
 
     private final int sortShuffleMinParallelism;
 
+    private final int sortShuffleMinRegionsToMerge;
+
+    private final BufferDebloatConfiguration debloatConfiguration;
+
+    /** Size of the direct memory shared by all sort-merge blocking partitions to read data. */
+    private final long batchShuffleReadMemoryBytes;
+
     private final Duration requestSegmentsTimeout;
 
     private final boolean isNetworkDetailedMetrics;
@@ -81,6 +91,8 @@ public class NettyShuffleEnvironmentConfiguration {
 
     private final String compressionCodec;
 
+    private final boolean blockingShuffleCompressionAdaptive;
+
     private final int maxBuffersPerChannel;
 
     public NettyShuffleEnvironmentConfiguration(
@@ -97,9 +109,13 @@ public class NettyShuffleEnvironmentConfiguration {
             BoundedBlockingSubpartitionType blockingSubpartitionType,
             boolean blockingShuffleCompressionEnabled,
             String compressionCodec,
+            boolean blockingShuffleCompressionAdaptive,
             int maxBuffersPerChannel,
             int sortShuffleMinBuffers,
-            int sortShuffleMinParallelism) {
+            int sortShuffleMinParallelism,
+            int sortShuffleMinRegionsToMerge,
+            BufferDebloatConfiguration debloatConfiguration,
+            long batchShuffleReadMemoryBytes) {
 
         this.numNetworkBuffers = numNetworkBuffers;
         this.networkBufferSize = networkBufferSize;
@@ -114,9 +130,13 @@ public class NettyShuffleEnvironmentConfiguration {
         this.blockingSubpartitionType = Preconditions.checkNotNull(blockingSubpartitionType);
         this.blockingShuffleCompressionEnabled = blockingShuffleCompressionEnabled;
         this.compressionCodec = Preconditions.checkNotNull(compressionCodec);
+        this.blockingShuffleCompressionAdaptive = blockingShuffleCompressionAdaptive;
         this.maxBuffersPerChannel = maxBuffersPerChannel;
         this.sortShuffleMinBuffers = sortShuffleMinBuffers;
         this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+        this.sortShuffleMinRegionsToMerge = sortShuffleMinRegionsToMerge;
+        this.debloatConfiguration = Preconditions.checkNotNull(debloatConfiguration);
+        this.batchShuffleReadMemoryBytes = batchShuffleReadMemoryBytes;
     }
 
     // ------------------------------------------------------------------------
@@ -153,6 +173,18 @@ public class NettyShuffleEnvironmentConfiguration {
         return sortShuffleMinParallelism;
     }
 
+    public int sortShuffleMinRegionsToMerge() {
+        return sortShuffleMinRegionsToMerge;
+    }
+
+    public BufferDebloatConfiguration getDebloatConfiguration() {
+        return debloatConfiguration;
+    }
+
+    public long batchShuffleReadMemoryBytes() {
+        return batchShuffleReadMemoryBytes;
+    }
+
     public Duration getRequestSegmentsTimeout() {
         return requestSegmentsTimeout;
     }
@@ -185,6 +217,10 @@ public class NettyShuffleEnvironmentConfiguration {
         return compressionCodec;
     }
 
+    public boolean isBlockingShuffleCompressionAdaptive() {
+        return blockingShuffleCompressionAdaptive;
+    }
+
     public int getMaxBuffersPerChannel() {
         return maxBuffersPerChannel;
     }
@@ -246,6 +282,9 @@ public class NettyShuffleEnvironmentConfiguration {
         int sortShuffleMinParallelism =
                 configuration.getInteger(
                         NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_MIN_PARALLELISM);
+        int sortShuffleMinRegionsToMerge =
+                configuration.getInteger(
+                        NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_MIN_REGIONS_TO_MERGE);
 
         boolean isNetworkDetailedMetrics =
                 configuration.getBoolean(NettyShuffleEnvironmentOptions.NETWORK_DETAILED_METRICS);
@@ -266,6 +305,24 @@ public class NettyShuffleEnvironmentConfiguration {
                         NettyShuffleEnvironmentOptions.BLOCKING_SHUFFLE_COMPRESSION_ENABLED);
         String compressionCodec =
                 configuration.getString(NettyShuffleEnvironmentOptions.SHUFFLE_COMPRESSION_CODEC);
+        boolean blockingShuffleCompressionAdaptive =
+                configuration.get(
+                        NettyShuffleEnvironmentOptions.BLOCKING_SHUFFLE_COMPRESSION_ADAPTIVE);
+
+        long batchShuffleReadMemoryBytes =
+                configuration.get(TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY).getBytes();
+        long frameworkOffHeapMemoryBytes =
+                configuration.get(TaskManagerOptions.FRAMEWORK_OFF_HEAP_MEMORY).getBytes();
+        if (batchShuffleReadMemoryBytes > frameworkOffHeapMemoryBytes) {
+            throw new IllegalConfigurationException(
+                    String.format(
+                            "The configured value of '%s' (%s) must not exceed '%s' (%s), which it "
+                                    + "is allocated from.",
+                            TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY.key(),
+                            configuration.get(TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY),
+                            TaskManagerOptions.FRAMEWORK_OFF_HEAP_MEMORY.key(),
+                            configuration.get(TaskManagerOptions.FRAMEWORK_OFF_HEAP_MEMORY)));
+        }
 
         return new NettyShuffleEnvironmentConfiguration(
                 numberOfNetworkBuffers,
@@ -281,9 +338,13 @@ public class NettyShuffleEnvironmentConfiguration {
                 blockingSubpartitionType,
                 blockingShuffleCompressionEnabled,
                 compressionCodec,
+                blockingShuffleCompressionAdaptive,
                 maxBuffersPerChannel,
                 sortShuffleMinBuffers,
-                sortShuffleMinParallelism);
+                sortShuffleMinParallelism,
+                sortShuffleMinRegionsToMerge,
+                BufferDebloatConfiguration.fromConfiguration(configuration),
+                batchShuffleReadMemoryBytes);
     }
 
     /**
@@ -416,9 +477,13 @@ public class NettyShuffleEnvironmentConfiguration {
         result = 31 * result + Arrays.hashCode(tempDirs);
         result = 31 * result + (blockingShuffleCompressionEnabled ? 1 : 0);
         result = 31 * result + Objects.hashCode(compressionCodec);
+        result = 31 * result + (blockingShuffleCompressionAdaptive ? 1 : 0);
         result = 31 * result + maxBuffersPerChannel;
         result = 31 * result + sortShuffleMinBuffers;
         result = 31 * result + sortShuffleMinParallelism;
+        result = 31 * result + sortShuffleMinRegionsToMerge;
+        result = 31 * result + debloatConfiguration.hashCode();
+        result = 31 * result + Long.hashCode(batchShuffleReadMemoryBytes);
         return result;
     }
 
@@ -440,6 +505,7 @@ public class NettyShuffleEnvironmentConfiguration {
                     && this.floatingNetworkBuffersPerGate == that.floatingNetworkBuffersPerGate
                     && this.sortShuffleMinBuffers == that.sortShuffleMinBuffers
                     && this.sortShuffleMinParallelism == that.sortShuffleMinParallelism
+                    && this.sortShuffleMinRegionsToMerge == that.sortShuffleMinRegionsToMerge
                     && this.requestSegmentsTimeout.equals(that.requestSegmentsTimeout)
                     && (nettyConfig != null
                             ? nettyConfig.equals(that.nettyConfig)
@@ -448,7 +514,11 @@ public class NettyShuffleEnvironmentConfiguration {
                     && this.blockingShuffleCompressionEnabled
                             == that.blockingShuffleCompressionEnabled
                     && this.maxBuffersPerChannel == that.maxBuffersPerChannel
-                    && Objects.equals(this.compressionCodec, that.compressionCodec);
+                    && Objects.equals(this.compressionCodec, that.compressionCodec)
+                    && this.blockingShuffleCompressionAdaptive
+                            == that.blockingShuffleCompressionAdaptive
+                    && this.debloatConfiguration.equals(that.debloatConfiguration)
+                    && this.batchShuffleReadMemoryBytes == that.batchShuffleReadMemoryBytes;
         }
     }
 
@@ -477,12 +547,20 @@ public class NettyShuffleEnvironmentConfiguration {
                 + blockingShuffleCompressionEnabled
                 + ", compressionCodec="
                 + compressionCodec
+                + ", blockingShuffleCompressionAdaptive="
+                + blockingShuffleCompressionAdaptive
                 + ", maxBuffersPerChannel="
                 + maxBuffersPerChannel
                 + ", sortShuffleMinBuffers="
                 + sortShuffleMinBuffers
                 + ", sortShuffleMinParallelism="
                 + sortShuffleMinParallelism
+                + ", sortShuffleMinRegionsToMerge="
+                + sortShuffleMinRegionsToMerge
+                + ", debloatConfiguration="
+                + debloatConfiguration
+                + ", batchShuffleReadMemoryBytes="
+                + batchShuffleReadMemoryBytes
                 + '}';
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/** Configuration for the adaption of the network buffer size to the throughput of a gate. */
+public final class BufferDebloatConfiguration {
+
+    private final boolean enabled;
+
+    private final Duration targetTotalTime;
+
+    private final Duration period;
+
+    private final int numberOfSamples;
+
+    private final int thresholdPercentages;
+
+    private BufferDebloatConfiguration(
+            boolean enabled,
+            Duration targetTotalTime,
+            Duration period,
+            int numberOfSamples,
+            int thresholdPercentages) {
+        checkArgument(!targetTotalTime.isNegative(), "The target time must not be negative.");
+        checkArgument(
+                !period.isNegative() && !period.isZero(), "The debloat period must be positive.");
+        checkArgument(numberOfSamples > 0, "The number of samples must be positive.");
+        checkArgument(
+                thresholdPercentages >= 0 && thresholdPercentages < 100,
+                "The threshold percentages must be in [0, 100).");
+        this.enabled = enabled;
+        this.targetTotalTime = checkNotNull(targetTotalTime);
+        this.period = checkNotNull(period);
+        this.numberOfSamples = numberOfSamples;
+        this.thresholdPercentages = thresholdPercentages;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The time the in-flight data of a gate should be consumed in. */
+    public Duration getTargetTotalTime() {
+        return targetTotalTime;
+    }
+
+    /** The interval at which the buffer size is recalculated. */
+    public Duration getPeriod() {
+        return period;
+    }
+
+    /** The number of throughput measurements the throughput is averaged over. */
+    public int getNumberOfSamples() {
+        return numberOfSamples;
+    }
+
+    /** The minimum relative change of the buffer size that is announced to the producers. */
+    public int getThresholdPercentages() {
+        return thresholdPercentages;
+    }
+
+    public static BufferDebloatConfiguration fromConfiguration(Configuration config) {
+        return new BufferDebloatConfiguration(
+                config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_ENABLED),
+                config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_TARGET),
+                config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_PERIOD),
+                config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_SAMPLES),
+                config.get(
+                        NettyShuffleEnvironmentOptions
+                                .NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BufferDebloatConfiguration that = (BufferDebloatConfiguration) o;
+        return enabled == that.enabled
+                && numberOfSamples == that.numberOfSamples
+                && thresholdPercentages == that.thresholdPercentages
+                && targetTotalTime.equals(that.targetTotalTime)
+                && period.equals(that.period);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+                enabled, targetTotalTime, period, numberOfSamples, thresholdPercentages);
+    }
+
+    @Override
+    public String toString() {
+        return "BufferDebloatConfiguration{"
+                + "enabled="
+                + enabled
+                + ", targetTotalTime="
+                + targetTotalTime
+                + ", period="
+                + period
+                + ", numberOfSamples="
+                + numberOfSamples
+                + ", thresholdPercentages="
+                + thresholdPercentages
+                + '}';
+    }
+}
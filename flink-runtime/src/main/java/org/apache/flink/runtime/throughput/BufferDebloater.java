@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import java.util.OptionalInt;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Calculates the buffer size of an input gate, so that all the buffers the gate can hold are
+ * consumed within the configured target time at the measured throughput.
+ *
+ * <p>The throughput is smoothed with an exponential moving average, and a new buffer size is only
+ * returned if it differs enough from the last one, so that the producers are not flooded with
+ * announcements for small fluctuations.
+ */
+public class BufferDebloater {
+
+    /** Buffers smaller than this carry too little data for the per-buffer overhead. */
+    public static final int MIN_BUFFER_SIZE = 256;
+
+    private final long targetTotalTimeMillis;
+
+    private final int maxBufferSize;
+
+    private final int totalNumberOfBuffers;
+
+    private final int thresholdPercentages;
+
+    /** The weight of a new throughput measurement in the moving average. */
+    private final double alpha;
+
+    private double averageThroughput = -1;
+
+    private int lastBufferSize;
+
+    /**
+     * @param configuration the buffer debloat configuration.
+     * @param maxBufferSize the size of the memory segments, which is the largest possible buffer.
+     * @param totalNumberOfBuffers the number of buffers the gate can hold at most.
+     */
+    public BufferDebloater(
+            BufferDebloatConfiguration configuration, int maxBufferSize, int totalNumberOfBuffers) {
+        checkNotNull(configuration);
+        checkArgument(maxBufferSize > 0, "The max buffer size must be positive.");
+        checkArgument(totalNumberOfBuffers > 0, "The number of buffers must be positive.");
+        this.targetTotalTimeMillis = configuration.getTargetTotalTime().toMillis();
+        this.maxBufferSize = maxBufferSize;
+        this.totalNumberOfBuffers = totalNumberOfBuffers;
+        this.thresholdPercentages = configuration.getThresholdPercentages();
+        this.alpha = 2.0 / (configuration.getNumberOfSamples() + 1);
+        this.lastBufferSize = maxBufferSize;
+    }
+
+    /**
+     * Updates the average throughput with the given measurement.
+     *
+     * @param currentThroughput the throughput of the gate in bytes per second.
+     * @return the new buffer size, if it should be announced to the producers.
+     */
+    public OptionalInt recalculateBufferSize(long currentThroughput) {
+        if (averageThroughput < 0) {
+            averageThroughput = currentThroughput;
+        } else {
+            averageThroughput = alpha * currentThroughput + (1 - alpha) * averageThroughput;
+        }
+
+        long desiredTotalBufferSize = (long) (averageThroughput * targetTotalTimeMillis / 1000);
+        int newBufferSize =
+                (int)
+                        Math.max(
+                                Math.min(
+                                        desiredTotalBufferSize / totalNumberOfBuffers,
+                                        maxBufferSize),
+                                Math.min(MIN_BUFFER_SIZE, maxBufferSize));
+
+        int threshold = (int) ((long) lastBufferSize * thresholdPercentages / 100);
+        if (newBufferSize == lastBufferSize
+                || (Math.abs(newBufferSize - lastBufferSize) < threshold
+                        && newBufferSize != maxBufferSize)) {
+            return OptionalInt.empty();
+        }
+
+        lastBufferSize = newBufferSize;
+        return OptionalInt.of(newBufferSize);
+    }
+
+    public int getLastBufferSize() {
+        return lastBufferSize;
+    }
+
+    public double getAverageThroughput() {
+        return averageThroughput;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.util.clock.Clock;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Measures the number of bytes consumed per second. The time in which no data could be consumed is
+ * excluded from the measurement by {@link #pauseMeasurement() pausing} it, so that an idle input is
+ * not mistaken for a slow one.
+ *
+ * <p>This class is not thread safe, it's meant to be used by the task thread only.
+ */
+public class ThroughputCalculator {
+
+    private static final long NOT_TRACKED = -1L;
+
+    private final Clock clock;
+
+    private long currentThroughput;
+
+    private long currentAccumulatedDataSize;
+
+    private long currentMeasurementTime;
+
+    private long measurementStartTime = NOT_TRACKED;
+
+    public ThroughputCalculator(Clock clock) {
+        this.clock = checkNotNull(clock);
+    }
+
+    /** Accounts the given number of consumed bytes and resumes the measurement if paused. */
+    public void incomingDataSize(long receivedDataSize) {
+        resumeMeasurement();
+        currentAccumulatedDataSize += receivedDataSize;
+    }
+
+    /** Stops the measurement of time, while no data is available. */
+    public void pauseMeasurement() {
+        if (measurementStartTime != NOT_TRACKED) {
+            currentMeasurementTime += clock.relativeTimeMillis() - measurementStartTime;
+        }
+        measurementStartTime = NOT_TRACKED;
+    }
+
+    /** Starts the measurement of time, if it is not running yet. */
+    public void resumeMeasurement() {
+        if (measurementStartTime == NOT_TRACKED) {
+            measurementStartTime = clock.relativeTimeMillis();
+        }
+    }
+
+    /**
+     * Calculates the throughput since the last calculation and starts a new measurement. If no time
+     * has been measured since then, the last throughput is returned.
+     *
+     * @return the throughput in bytes per second.
+     */
+    public long calculateThroughput() {
+        if (measurementStartTime != NOT_TRACKED) {
+            long now = clock.relativeTimeMillis();
+            currentMeasurementTime += now - measurementStartTime;
+            measurementStartTime = now;
+        }
+
+        long throughput = calculateThroughput(currentAccumulatedDataSize, currentMeasurementTime);
+        currentAccumulatedDataSize = 0L;
+        currentMeasurementTime = 0L;
+        return throughput;
+    }
+
+    private long calculateThroughput(long dataSize, long time) {
+        checkArgument(dataSize >= 0, "Size of data should be non negative");
+        checkArgument(time >= 0, "Time should be non negative");
+
+        if (time == 0) {
+            return currentThroughput;
+        }
+
+        currentThroughput = dataSize * 1000 / time;
+        return currentThroughput;
+    }
+}
@@ -20,6 +20,8 @@ package org.apache.flink.runtime.topology;
 
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 
+import java.util.Collections;
+
 /**
  * Represents a data set produced by a {@link Vertex} Each result is produced by one {@link Vertex}.
  * Each result can be consumed by multiple {@link Vertex}.
@@ -37,4 +39,15 @@ public interface Result<
     V getProducer();
 
     Iterable<? extends V> getConsumers();
+
+    /**
+     * Gets the consumers in groups. Results which are consumed by exactly the same vertices, e.g.
+     * all partitions of an all-to-all connected result, may share the same group instance, which
+     * allows algorithms to visit the consumers of each group only once.
+     *
+     * @return Iterable over the groups of consumers
+     */
+    default Iterable<? extends Iterable<? extends V>> getGroupedConsumers() {
+        return Collections.singletonList(getConsumers());
+    }
 }
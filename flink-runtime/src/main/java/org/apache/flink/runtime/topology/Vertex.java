@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.topology;
 
+import java.util.Collections;
+
 /**
  * Represents a logical or execution task. Each vertex can consume data from multiple {@link
  * Result}. Each vertex can produce multiple {@link Result}.
@@ -32,5 +34,16 @@ public interface Vertex<
 
     Iterable<? extends R> getConsumedResults();
 
+    /**
+     * Gets the consumed results in groups. Vertices which consume exactly the same results, e.g.
+     * all consumers of an all-to-all connected result, may share the same group instance, which
+     * allows algorithms to visit the results of each group only once.
+     *
+     * @return Iterable over the groups of consumed results
+     */
+    default Iterable<? extends Iterable<? extends R>> getGroupedConsumedResults() {
+        return Collections.singletonList(getConsumedResults());
+    }
+
     Iterable<? extends R> getProducedResults();
 }
@@ -17,21 +17,34 @@
 
 package org.apache.flink.runtime.checkpoint;
 
+import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.checkpoint.channel.InputChannelInfo;
 import org.apache.flink.runtime.checkpoint.channel.ResultSubpartitionInfo;
 import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.OperatorStreamStateHandle;
 import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonList;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /** {@link OperatorSubtaskState} test. */
 public class OperatorSubtaskStateTest {
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     @Test
     public void testDiscardDuplicatedDelegatesOnce() {
         StreamStateHandle delegate = new DiscardOnceStreamStateHandle();
@@ -50,6 +63,32 @@ public class OperatorSubtaskStateTest {
                 .discardState();
     }
 
+    @Test
+    public void testDiscardReleasesRegisteredSegmentFiles() throws Exception {
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        File segmentFile = temporaryFolder.newFile();
+        Path segmentFilePath = Path.fromLocalFile(segmentFile);
+
+        OperatorSubtaskState firstSubtaskState =
+                buildSegmentSubtaskState(new SegmentFileStateHandle(segmentFilePath, 0, 10));
+        OperatorSubtaskState secondSubtaskState =
+                buildSegmentSubtaskState(new SegmentFileStateHandle(segmentFilePath, 10, 5));
+        firstSubtaskState.registerSharedStates(sharedStateRegistry);
+        secondSubtaskState.registerSharedStates(sharedStateRegistry);
+
+        firstSubtaskState.discardState();
+        assertTrue(segmentFile.exists());
+
+        secondSubtaskState.discardState();
+        assertFalse(segmentFile.exists());
+    }
+
+    private OperatorSubtaskState buildSegmentSubtaskState(SegmentFileStateHandle segment) {
+        return OperatorSubtaskState.builder()
+                .setManagedOperatorState(new OperatorStreamStateHandle(emptyMap(), segment))
+                .build();
+    }
+
     private ResultSubpartitionStateHandle buildSubpartitionHandle(
             StreamStateHandle delegate, int subPartitionIdx1) {
         return new ResultSubpartitionStateHandle(
@@ -25,6 +25,7 @@ import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
 import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory;
 import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory.MemoryCheckpointOutputStream;
@@ -39,6 +40,7 @@ import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.stream.IntStream;
@@ -196,6 +198,54 @@ public class ChannelStateCheckpointWriterTest {
         assertTrue(result.isDone());
     }
 
+    @Test
+    public void testSharedOutputBuffersWrittenOnce() throws Exception {
+        int numBytes = 10;
+        ChannelStateWriteResult result = new ChannelStateWriteResult();
+        ChannelStateCheckpointWriter writer =
+                createWriter(
+                        result,
+                        new FsCheckpointStreamFactory(
+                                        getSharedInstance(),
+                                        fromLocalFile(temporaryFolder.newFolder("checkpointsDir")),
+                                        fromLocalFile(temporaryFolder.newFolder("sharedStateDir")),
+                                        numBytes - 1,
+                                        numBytes - 1)
+                                .createCheckpointStateOutputStream(EXCLUSIVE));
+
+        MemorySegment segment = wrap(getData(numBytes));
+        NetworkBuffer shared =
+                new NetworkBuffer(
+                        segment,
+                        FreeingBufferRecycler.INSTANCE,
+                        Buffer.DataType.DATA_BUFFER,
+                        segment.size());
+        ResultSubpartitionInfo first = new ResultSubpartitionInfo(0, 0);
+        ResultSubpartitionInfo second = new ResultSubpartitionInfo(0, 1);
+        ResultSubpartitionInfo third = new ResultSubpartitionInfo(0, 2);
+
+        writer.writeOutput(first, shared.readOnlySlice().retainBuffer());
+        writer.writeOutput(second, shared.readOnlySlice().retainBuffer());
+        // written again, the shared buffer would otherwise be read before the own buffer
+        writer.writeOutput(third, getBuffer(numBytes));
+        writer.writeOutput(third, shared.readOnlySlice().retainBuffer());
+        shared.recycleBuffer();
+        writer.completeInput();
+        writer.completeOutput();
+        assertTrue(shared.isRecycled());
+
+        Map<ResultSubpartitionInfo, List<Long>> offsets = new HashMap<>();
+        long totalSize = 0;
+        for (ResultSubpartitionStateHandle handle : result.resultSubpartitionStateHandles.get()) {
+            offsets.put(handle.getInfo(), handle.getOffsets());
+            totalSize = handle.getDelegate().getStateSize();
+        }
+        assertEquals(offsets.get(first), offsets.get(second));
+        assertEquals(2, offsets.get(third).size());
+        assertTrue(offsets.get(third).get(1) > offsets.get(first).get(0));
+        assertEquals(Integer.BYTES + 3 * (Integer.BYTES + numBytes), totalSize);
+    }
+
     @Test
     public void testRecordingOffsets() throws Exception {
         Map<InputChannelInfo, Integer> offsetCounts = new HashMap<>();
@@ -244,6 +294,12 @@ public class ChannelStateCheckpointWriterTest {
         writer.writeInput(channelInfo, buffer);
     }
 
+    private NetworkBuffer getBuffer(int len) {
+        MemorySegment segment = wrap(getData(len));
+        return new NetworkBuffer(
+                segment, FreeingBufferRecycler.INSTANCE, Buffer.DataType.DATA_BUFFER, len);
+    }
+
     private ChannelStateCheckpointWriter createWriter(ChannelStateWriteResult result)
             throws Exception {
         return createWriter(result, new MemoryCheckpointOutputStream(1000));
@@ -32,7 +32,9 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
 
 import static org.apache.flink.runtime.checkpoint.channel.ChannelStateByteBuffer.wrap;
@@ -57,10 +59,44 @@ public class ChannelStateSerializerImplTest {
 
     @Test
     public void testReadWriteWithMultipleBuffers() throws IOException {
+        testReadWriteWithMultipleBuffers(new ChannelStateSerializerImpl());
+    }
+
+    @Test
+    public void testReadWriteCompressedWithMultipleBuffers() throws IOException {
+        testReadWriteWithMultipleBuffers(new ChannelStateSerializerImpl(true));
+    }
+
+    @Test
+    public void testExtractAndMergeCompressed() throws IOException {
+        byte[][] data = {generateData(10), generateData(20), generateData(30)};
+        ChannelStateSerializer s = new ChannelStateSerializerImpl(true);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(baos);
+        s.writeHeader(out);
+        List<Long> offsets = new ArrayList<>();
+        for (byte[] chunk : data) {
+            offsets.add((long) out.size());
+            s.writeData(out, getBuffer(chunk));
+        }
+        out.close();
+
+        byte[] merged = s.extractAndMerge(baos.toByteArray(), offsets.subList(1, 3));
+
+        ChannelStateSerializer d = new ChannelStateSerializerImpl();
+        ByteArrayInputStream is = new ByteArrayInputStream(merged);
+        d.readHeader(is);
+        assertEquals(data[1].length + data[2].length, d.readLength(is));
+        byte[] readBuf = new byte[data[1].length + data[2].length];
+        d.readData(is, wrap(readBuf), Integer.MAX_VALUE);
+        assertArrayEquals(data[1], Arrays.copyOfRange(readBuf, 0, data[1].length));
+        assertArrayEquals(data[2], Arrays.copyOfRange(readBuf, data[1].length, readBuf.length));
+    }
+
+    private void testReadWriteWithMultipleBuffers(ChannelStateSerializer s) throws IOException {
         int bufSize = 10;
         int[] numBuffersToWriteAtOnce = {0, 1, 2, 3};
         byte[] data = generateData(bufSize);
-        ChannelStateSerializer s = new ChannelStateSerializerImpl();
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
         DataOutputStream out = new DataOutputStream(baos);
         s.writeHeader(out);
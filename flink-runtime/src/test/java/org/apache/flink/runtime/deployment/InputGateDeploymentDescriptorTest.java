@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.deployment;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.testutils.CommonTestUtils;
+import org.apache.flink.runtime.blob.PermanentBlobKey;
+import org.apache.flink.runtime.blob.PermanentBlobService;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.NonOffloaded;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor.Offloaded;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
+import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
+import org.apache.flink.runtime.shuffle.UnknownShuffleDescriptor;
+import org.apache.flink.util.CompressedSerializedValue;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/** Tests for the {@link InputGateDeploymentDescriptor}. */
+public class InputGateDeploymentDescriptorTest extends TestLogger {
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final JobID jobId = new JobID();
+
+    @Test
+    public void testNonOffloadedShuffleDescriptors() throws Exception {
+        final ShuffleDescriptor[] shuffleDescriptors = createShuffleDescriptors(10);
+        final InputGateDeploymentDescriptor igdd =
+                CommonTestUtils.createCopySerializable(
+                        createInputGateDeploymentDescriptor(
+                                new NonOffloaded<>(
+                                        CompressedSerializedValue.fromObject(shuffleDescriptors))));
+
+        // the descriptors can be accessed without loading them explicitly
+        assertShuffleDescriptorsEqual(shuffleDescriptors, igdd.getShuffleDescriptors());
+    }
+
+    @Test
+    public void testOffloadedShuffleDescriptorsAreCached() throws Exception {
+        final ShuffleDescriptor[] shuffleDescriptors = createShuffleDescriptors(10);
+        final File blobFile = temporaryFolder.newFile();
+        Files.write(
+                blobFile.toPath(),
+                CompressedSerializedValue.fromObject(shuffleDescriptors).getByteArray());
+        final CountingBlobService blobService = new CountingBlobService(blobFile);
+        final Offloaded<ShuffleDescriptor[]> offloaded = new Offloaded<>(new PermanentBlobKey());
+        final ShuffleDescriptorsCache cache = new ShuffleDescriptorsCache();
+
+        final InputGateDeploymentDescriptor first =
+                CommonTestUtils.createCopySerializable(
+                        createInputGateDeploymentDescriptor(offloaded));
+        final InputGateDeploymentDescriptor second =
+                CommonTestUtils.createCopySerializable(
+                        createInputGateDeploymentDescriptor(offloaded));
+
+        first.loadBigData(blobService, cache, jobId);
+        second.loadBigData(blobService, cache, jobId);
+
+        assertEquals(1, blobService.numRequests);
+        assertEquals(shuffleDescriptors.length, cache.getNumberOfCachedDescriptors(jobId));
+        assertShuffleDescriptorsEqual(shuffleDescriptors, first.getShuffleDescriptors());
+        assertSame(first.getShuffleDescriptors(), second.getShuffleDescriptors());
+
+        cache.clearCacheForJob(jobId);
+        assertEquals(0, cache.getNumberOfCachedDescriptors(jobId));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedShuffleDescriptorsAreEvicted() {
+        final ShuffleDescriptorsCache cache = new ShuffleDescriptorsCache(20);
+        final JobID otherJobId = new JobID();
+        final PermanentBlobKey first = new PermanentBlobKey();
+        final PermanentBlobKey second = new PermanentBlobKey();
+        final PermanentBlobKey third = new PermanentBlobKey();
+
+        cache.put(jobId, first, createShuffleDescriptors(10));
+        cache.put(otherJobId, second, createShuffleDescriptors(10));
+        assertNotNull(cache.get(jobId, first));
+
+        // the second descriptors are the least recently used ones
+        cache.put(jobId, third, createShuffleDescriptors(10));
+        assertNull(cache.get(otherJobId, second));
+        assertNotNull(cache.get(jobId, first));
+        assertNotNull(cache.get(jobId, third));
+        assertEquals(20, cache.getNumberOfCachedDescriptors(jobId));
+        assertEquals(0, cache.getNumberOfCachedDescriptors(otherJobId));
+
+        // descriptors exceeding the maximum alone are still cached
+        cache.put(otherJobId, second, createShuffleDescriptors(30));
+        assertEquals(0, cache.getNumberOfCachedDescriptors(jobId));
+        assertEquals(30, cache.getNumberOfCachedDescriptors(otherJobId));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testOffloadedShuffleDescriptorsMustBeLoaded() {
+        createInputGateDeploymentDescriptor(new Offloaded<>(new PermanentBlobKey()))
+                .getShuffleDescriptors();
+    }
+
+    private static InputGateDeploymentDescriptor createInputGateDeploymentDescriptor(
+            TaskDeploymentDescriptor.MaybeOffloaded<ShuffleDescriptor[]> shuffleDescriptors) {
+        return new InputGateDeploymentDescriptor(
+                new IntermediateDataSetID(), ResultPartitionType.BLOCKING, 0, shuffleDescriptors);
+    }
+
+    private static ShuffleDescriptor[] createShuffleDescriptors(int numDescriptors) {
+        final ShuffleDescriptor[] shuffleDescriptors = new ShuffleDescriptor[numDescriptors];
+        for (int i = 0; i < numDescriptors; i++) {
+            shuffleDescriptors[i] = new UnknownShuffleDescriptor(new ResultPartitionID());
+        }
+        return shuffleDescriptors;
+    }
+
+    private static void assertShuffleDescriptorsEqual(
+            ShuffleDescriptor[] expected, ShuffleDescriptor[] actual) {
+        final ResultPartitionID[] expectedIds = new ResultPartitionID[expected.length];
+        final ResultPartitionID[] actualIds = new ResultPartitionID[actual.length];
+        for (int i = 0; i < expected.length; i++) {
+            expectedIds[i] = expected[i].getResultPartitionID();
+        }
+        for (int i = 0; i < actual.length; i++) {
+            actualIds[i] = actual[i].getResultPartitionID();
+        }
+        assertArrayEquals(expectedIds, actualIds);
+    }
+
+    /** A {@link PermanentBlobService} serving a single file and counting the requests. */
+    private static final class CountingBlobService implements PermanentBlobService {
+
+        private final File file;
+
+        private int numRequests;
+
+        private CountingBlobService(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public File getFile(JobID jobId, PermanentBlobKey key) {
+            numRequests++;
+            return file;
+        }
+
+        @Override
+        public void close() throws IOException {}
+    }
+}
@@ -21,6 +21,8 @@ package org.apache.flink.runtime.dispatcher;
 
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.JobManagerOptions;
+import org.apache.flink.runtime.scheduler.AdaptiveBatchSchedulerFactory;
+import org.apache.flink.runtime.scheduler.AdaptiveSchedulerFactory;
 import org.apache.flink.runtime.scheduler.DefaultSchedulerFactory;
 import org.apache.flink.runtime.scheduler.SchedulerNGFactory;
 import org.apache.flink.util.TestLogger;
@@ -51,6 +53,26 @@ public class SchedulerNGFactoryFactoryTest extends TestLogger {
         assertThat(schedulerNGFactory, is(instanceOf(DefaultSchedulerFactory.class)));
     }
 
+    @Test
+    public void createAdaptiveBatchSchedulerFactoryIfConfigured() {
+        final Configuration configuration = new Configuration();
+        configuration.setString(JobManagerOptions.SCHEDULER, "adaptive-batch");
+
+        final SchedulerNGFactory schedulerNGFactory = createSchedulerNGFactory(configuration);
+
+        assertThat(schedulerNGFactory, is(instanceOf(AdaptiveBatchSchedulerFactory.class)));
+    }
+
+    @Test
+    public void createAdaptiveSchedulerFactoryIfConfigured() {
+        final Configuration configuration = new Configuration();
+        configuration.setString(JobManagerOptions.SCHEDULER, "adaptive");
+
+        final SchedulerNGFactory schedulerNGFactory = createSchedulerNGFactory(configuration);
+
+        assertThat(schedulerNGFactory, is(instanceOf(AdaptiveSchedulerFactory.class)));
+    }
+
     @Test
     public void throwsExceptionIfSchedulerNameIsInvalid() {
         final Configuration configuration = new Configuration();
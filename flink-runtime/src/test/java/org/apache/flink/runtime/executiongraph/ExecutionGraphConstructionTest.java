@@ -45,6 +45,7 @@ import java.util.List;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
@@ -471,4 +472,45 @@ public class ExecutionGraphConstructionTest {
             fail(e.getMessage());
         }
     }
+
+    @Test
+    public void testAllToAllConnectionSharesGroups() throws Exception {
+        JobVertex v1 = new JobVertex("vertex1");
+        JobVertex v2 = new JobVertex("vertex2");
+
+        v1.setParallelism(5);
+        v2.setParallelism(7);
+
+        v1.setInvokableClass(AbstractInvokable.class);
+        v2.setInvokableClass(AbstractInvokable.class);
+
+        v2.connectNewDataSetAsInput(
+                v1, DistributionPattern.ALL_TO_ALL, ResultPartitionType.BLOCKING);
+
+        ExecutionGraph eg = createExecutionGraph();
+        eg.attachJobGraph(Arrays.asList(v1, v2));
+
+        ExecutionVertex[] producers = eg.getJobVertex(v1.getID()).getTaskVertices();
+        ExecutionVertex[] consumers = eg.getJobVertex(v2.getID()).getTaskVertices();
+
+        // all consumers reference the same group of all partitions
+        ConsumedPartitionGroup consumedPartitions = consumers[0].getConsumedPartitionGroup(0);
+        assertEquals(5, consumedPartitions.size());
+        for (ExecutionVertex consumer : consumers) {
+            assertSame(consumedPartitions, consumer.getConsumedPartitionGroup(0));
+        }
+
+        // all partitions reference the same group of all consumers
+        IntermediateResultPartition firstPartition =
+                producers[0].getProducedPartitions().values().iterator().next();
+        ConsumerVertexGroup consumerVertices = firstPartition.getConsumerVertexGroups().get(0);
+        assertEquals(Arrays.asList(consumers), consumerVertices.getVertices());
+        for (ExecutionVertex producer : producers) {
+            for (IntermediateResultPartition partition :
+                    producer.getProducedPartitions().values()) {
+                assertEquals(1, partition.getConsumerVertexGroups().size());
+                assertSame(consumerVertices, partition.getConsumerVertexGroups().get(0));
+            }
+        }
+    }
 }
@@ -509,13 +509,13 @@ public class ExecutionGraphTestUtils {
                 assertEquals(inputJobVertices.size(), ev.getNumberOfInputs());
 
                 for (int i = 0; i < inputJobVertices.size(); i++) {
-                    ExecutionEdge[] inputEdges = ev.getInputEdges(i);
-                    assertEquals(inputJobVertices.get(i).getParallelism(), inputEdges.length);
+                    ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(i);
+                    assertEquals(
+                            inputJobVertices.get(i).getParallelism(), consumedPartitions.size());
 
                     int expectedPartitionNum = 0;
-                    for (ExecutionEdge inEdge : inputEdges) {
-                        assertEquals(i, inEdge.getInputNum());
-                        assertEquals(expectedPartitionNum, inEdge.getSource().getPartitionNumber());
+                    for (IntermediateResultPartition partition : consumedPartitions) {
+                        assertEquals(expectedPartitionNum, partition.getPartitionNumber());
 
                         expectedPartitionNum++;
                     }
@@ -114,6 +114,42 @@ public class ExecutionJobVertexTest {
         }
     }
 
+    @Test
+    public void testDecidedParallelism() throws Exception {
+        final ExecutionJobVertex executionJobVertex = createExecutionJobVertex(8, 8);
+        Assert.assertFalse(executionJobVertex.isParallelismDecided());
+        for (ExecutionVertex executionVertex : executionJobVertex.getTaskVertices()) {
+            Assert.assertFalse(executionVertex.isSkipped());
+        }
+
+        try {
+            executionJobVertex.setDecidedParallelism(9);
+            Assert.fail("The decided parallelism must not exceed the number of subtasks.");
+        } catch (IllegalArgumentException ignore) {
+        }
+
+        executionJobVertex.setDecidedParallelism(3);
+        Assert.assertTrue(executionJobVertex.isParallelismDecided());
+        for (ExecutionVertex executionVertex : executionJobVertex.getTaskVertices()) {
+            Assert.assertEquals(
+                    executionVertex.getParallelSubtaskIndex() >= 3, executionVertex.isSkipped());
+        }
+
+        final TaskInformation taskInformation =
+                executionJobVertex
+                        .getTaskInformationOrBlobKey()
+                        .left()
+                        .deserializeValue(getClass().getClassLoader());
+        Assert.assertEquals(3, taskInformation.getNumberOfSubtasks());
+        Assert.assertEquals(8, taskInformation.getMaxNumberOfSubtasks());
+
+        try {
+            executionJobVertex.setDecidedParallelism(4);
+            Assert.fail("The parallelism must not change once the task information exists.");
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
     // ------------------------------------------------------------------------------------------------------
 
     public static ExecutionJobVertex createExecutionJobVertex(
@@ -293,10 +293,8 @@ public class ExecutionVertexDeploymentTest extends TestLogger {
             TaskDeploymentDescriptorFactory tddFactory =
                     TaskDeploymentDescriptorFactory.fromExecutionVertex(vertex, 1);
 
-            ExecutionEdge mockEdge = createMockExecutionEdge(1);
-
-            result.getPartitions()[0].addConsumerGroup();
-            result.getPartitions()[0].addConsumer(mockEdge, 0);
+            result.getPartitions()[0].addConsumers(
+                    ConsumerVertexGroup.fromSingleVertex(createMockConsumerVertex(1)));
 
             TaskManagerLocation location =
                     new TaskManagerLocation(
@@ -324,15 +322,13 @@ public class ExecutionVertexDeploymentTest extends TestLogger {
         }
     }
 
-    private ExecutionEdge createMockExecutionEdge(int maxParallelism) {
+    private ExecutionVertex createMockConsumerVertex(int maxParallelism) {
         ExecutionVertex targetVertex = mock(ExecutionVertex.class);
         ExecutionJobVertex targetJobVertex = mock(ExecutionJobVertex.class);
 
         when(targetVertex.getJobVertex()).thenReturn(targetJobVertex);
         when(targetJobVertex.getMaxParallelism()).thenReturn(maxParallelism);
 
-        ExecutionEdge edge = mock(ExecutionEdge.class);
-        when(edge.getTarget()).thenReturn(targetVertex);
-        return edge;
+        return targetVertex;
     }
 }
@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.executiongraph;
 
 import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutorServiceAdapter;
+import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.io.network.partition.TestingJobMasterPartitionTracker;
@@ -26,6 +27,8 @@ import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.jobgraph.JobGraph;
 import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobmaster.LogicalSlot;
+import org.apache.flink.runtime.jobmaster.TestingLogicalSlotBuilder;
 import org.apache.flink.runtime.scheduler.SchedulerBase;
 import org.apache.flink.runtime.scheduler.SchedulerTestingUtils;
 import org.apache.flink.util.TestLogger;
@@ -34,10 +37,15 @@ import org.junit.Test;
 
 import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /** Tests for the {@link ExecutionVertex}. */
 public class ExecutionVertexTest extends TestLogger {
@@ -92,4 +100,134 @@ public class ExecutionVertexTest extends TestLogger {
 
         assertThat(releasePartitionsFuture.get(), contains(resultPartitionID));
     }
+
+    @Test
+    public void testSpeculativeExecutionFinishingFirstBecomesCurrentExecution() throws Exception {
+        final CompletableFuture<Collection<ResultPartitionID>> releasePartitionsFuture =
+                new CompletableFuture<>();
+        final ExecutionVertex executionVertex =
+                createRunningProducerVertex(releasePartitionsFuture::complete);
+        final Execution originalExecution = executionVertex.getCurrentExecutionAttempt();
+
+        final Execution speculativeExecution = deploySpeculativeExecution(executionVertex);
+        assertEquals(
+                originalExecution.getAttemptNumber() + 1, speculativeExecution.getAttemptNumber());
+
+        speculativeExecution.markFinished();
+
+        assertSame(speculativeExecution, executionVertex.getCurrentExecutionAttempt());
+        assertNull(executionVertex.getSpeculativeExecutionAttempt());
+        assertEquals(ExecutionState.FINISHED, executionVertex.getExecutionState());
+        assertEquals(ExecutionState.CANCELING, originalExecution.getState());
+        assertThat(releasePartitionsFuture.get(), contains(getPartitionId(originalExecution)));
+        assertEquals(
+                originalExecution.getAttemptId(),
+                executionVertex
+                        .getPriorExecutionAttempt(originalExecution.getAttemptNumber())
+                        .getAttemptId());
+    }
+
+    @Test
+    public void testCurrentExecutionFinishingFirstCancelsSpeculativeExecution() throws Exception {
+        final CompletableFuture<Collection<ResultPartitionID>> releasePartitionsFuture =
+                new CompletableFuture<>();
+        final ExecutionVertex executionVertex =
+                createRunningProducerVertex(releasePartitionsFuture::complete);
+        final Execution originalExecution = executionVertex.getCurrentExecutionAttempt();
+
+        final Execution speculativeExecution = deploySpeculativeExecution(executionVertex);
+
+        originalExecution.markFinished();
+
+        assertSame(originalExecution, executionVertex.getCurrentExecutionAttempt());
+        assertNull(executionVertex.getSpeculativeExecutionAttempt());
+        assertEquals(ExecutionState.FINISHED, executionVertex.getExecutionState());
+        assertEquals(ExecutionState.CANCELING, speculativeExecution.getState());
+        assertThat(releasePartitionsFuture.get(), contains(getPartitionId(speculativeExecution)));
+    }
+
+    @Test
+    public void testFailedSpeculativeExecutionDoesNotAffectCurrentExecution() throws Exception {
+        final ExecutionVertex executionVertex = createRunningProducerVertex(ignored -> {});
+        final Execution originalExecution = executionVertex.getCurrentExecutionAttempt();
+
+        final Execution speculativeExecution = deploySpeculativeExecution(executionVertex);
+        speculativeExecution.markFailed(new Exception("Expected test exception"));
+
+        assertSame(originalExecution, executionVertex.getCurrentExecutionAttempt());
+        assertNull(executionVertex.getSpeculativeExecutionAttempt());
+        assertEquals(ExecutionState.RUNNING, executionVertex.getExecutionState());
+    }
+
+    @Test
+    public void testAttemptNumbersOfSpeculativeExecutionsAreNotReused() throws Exception {
+        final ExecutionVertex executionVertex = createRunningProducerVertex(ignored -> {});
+        final Execution originalExecution = executionVertex.getCurrentExecutionAttempt();
+
+        final Execution speculativeExecution = deploySpeculativeExecution(executionVertex);
+        originalExecution.markFinished();
+        executionVertex.resetForNewExecution();
+
+        final Execution restartedExecution = executionVertex.getCurrentExecutionAttempt();
+        assertEquals(0, originalExecution.getAttemptNumber());
+        assertEquals(1, speculativeExecution.getAttemptNumber());
+        assertEquals(2, restartedExecution.getAttemptNumber());
+        assertEquals(
+                originalExecution.getAttemptId(),
+                executionVertex.getPriorExecutionAttempt(0).getAttemptId());
+        assertNull(executionVertex.getPriorExecutionAttempt(1));
+    }
+
+    private static ExecutionVertex createRunningProducerVertex(
+            Consumer<Collection<ResultPartitionID>> releasePartitionsConsumer) throws Exception {
+        final JobVertex producerJobVertex = ExecutionGraphTestUtils.createNoOpVertex(1);
+        final JobVertex consumerJobVertex = ExecutionGraphTestUtils.createNoOpVertex(1);
+
+        consumerJobVertex.connectNewDataSetAsInput(
+                producerJobVertex, DistributionPattern.POINTWISE, ResultPartitionType.BLOCKING);
+
+        final TestingJobMasterPartitionTracker partitionTracker =
+                new TestingJobMasterPartitionTracker();
+        partitionTracker.setStopTrackingAndReleasePartitionsConsumer(releasePartitionsConsumer);
+
+        final JobGraph jobGraph = new JobGraph(producerJobVertex, consumerJobVertex);
+        final SchedulerBase scheduler =
+                SchedulerTestingUtils.newSchedulerBuilder(
+                                jobGraph, ComponentMainThreadExecutorServiceAdapter.forMainThread())
+                        .setPartitionTracker(partitionTracker)
+                        .build();
+
+        scheduler.startScheduling();
+
+        final ExecutionVertex executionVertex =
+                scheduler.getExecutionJobVertex(producerJobVertex.getID()).getTaskVertices()[0];
+        executionVertex.getCurrentExecutionAttempt().switchToRunning();
+        return executionVertex;
+    }
+
+    private static Execution deploySpeculativeExecution(ExecutionVertex executionVertex)
+            throws Exception {
+        final Execution speculativeExecution =
+                executionVertex.createSpeculativeExecution(System.currentTimeMillis());
+        final LogicalSlot slot = new TestingLogicalSlotBuilder().createTestingLogicalSlot();
+
+        speculativeExecution.transitionState(ExecutionState.SCHEDULED);
+        speculativeExecution.registerProducedPartitions(slot.getTaskManagerLocation(), false);
+        assertTrue(speculativeExecution.tryAssignResource(slot));
+        speculativeExecution.deploy();
+        speculativeExecution.switchToRunning();
+
+        assertSame(speculativeExecution, executionVertex.getSpeculativeExecutionAttempt());
+        return speculativeExecution;
+    }
+
+    private static ResultPartitionID getPartitionId(Execution execution) {
+        final IntermediateResultPartitionID partitionId =
+                execution.getVertex().getProducedPartitions().keySet().iterator().next();
+        return execution
+                .getResultPartitionDeploymentDescriptor(partitionId)
+                .get()
+                .getShuffleDescriptor()
+                .getResultPartitionID();
+    }
 }
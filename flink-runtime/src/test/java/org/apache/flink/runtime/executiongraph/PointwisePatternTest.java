@@ -67,10 +67,12 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertEquals(1, inEdges.length);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertEquals(1, consumedPartitions.size());
 
-            assertEquals(ev.getParallelSubtaskIndex(), inEdges[0].getSource().getPartitionNumber());
+            assertEquals(
+                    ev.getParallelSubtaskIndex(),
+                    consumedPartitions.getFirst().getPartitionNumber());
         }
     }
 
@@ -105,14 +107,15 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertEquals(2, inEdges.length);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertEquals(2, consumedPartitions.size());
 
             assertEquals(
-                    ev.getParallelSubtaskIndex() * 2, inEdges[0].getSource().getPartitionNumber());
+                    ev.getParallelSubtaskIndex() * 2,
+                    consumedPartitions.getResultPartitions().get(0).getPartitionNumber());
             assertEquals(
                     ev.getParallelSubtaskIndex() * 2 + 1,
-                    inEdges[1].getSource().getPartitionNumber());
+                    consumedPartitions.getResultPartitions().get(1).getPartitionNumber());
         }
     }
 
@@ -147,17 +150,18 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertEquals(3, inEdges.length);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertEquals(3, consumedPartitions.size());
 
             assertEquals(
-                    ev.getParallelSubtaskIndex() * 3, inEdges[0].getSource().getPartitionNumber());
+                    ev.getParallelSubtaskIndex() * 3,
+                    consumedPartitions.getResultPartitions().get(0).getPartitionNumber());
             assertEquals(
                     ev.getParallelSubtaskIndex() * 3 + 1,
-                    inEdges[1].getSource().getPartitionNumber());
+                    consumedPartitions.getResultPartitions().get(1).getPartitionNumber());
             assertEquals(
                     ev.getParallelSubtaskIndex() * 3 + 2,
-                    inEdges[2].getSource().getPartitionNumber());
+                    consumedPartitions.getResultPartitions().get(2).getPartitionNumber());
         }
     }
 
@@ -192,11 +196,12 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertEquals(1, inEdges.length);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertEquals(1, consumedPartitions.size());
 
             assertEquals(
-                    ev.getParallelSubtaskIndex() / 2, inEdges[0].getSource().getPartitionNumber());
+                    ev.getParallelSubtaskIndex() / 2,
+                    consumedPartitions.getResultPartitions().get(0).getPartitionNumber());
         }
     }
 
@@ -231,11 +236,12 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertEquals(1, inEdges.length);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertEquals(1, consumedPartitions.size());
 
             assertEquals(
-                    ev.getParallelSubtaskIndex() / 7, inEdges[0].getSource().getPartitionNumber());
+                    ev.getParallelSubtaskIndex() / 7,
+                    consumedPartitions.getResultPartitions().get(0).getPartitionNumber());
         }
     }
 
@@ -296,10 +302,10 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertEquals(1, inEdges.length);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertEquals(1, consumedPartitions.size());
 
-            timesUsed[inEdges[0].getSource().getPartitionNumber()]++;
+            timesUsed[consumedPartitions.getResultPartitions().get(0).getPartitionNumber()]++;
         }
 
         for (int used : timesUsed) {
@@ -344,11 +350,13 @@ public class PointwisePatternTest {
         for (ExecutionVertex ev : target.getTaskVertices()) {
             assertEquals(1, ev.getNumberOfInputs());
 
-            ExecutionEdge[] inEdges = ev.getInputEdges(0);
-            assertTrue(inEdges.length >= factor && inEdges.length <= factor + delta);
+            ConsumedPartitionGroup consumedPartitions = ev.getConsumedPartitionGroup(0);
+            assertTrue(
+                    consumedPartitions.size() >= factor
+                            && consumedPartitions.size() <= factor + delta);
 
-            for (ExecutionEdge ee : inEdges) {
-                timesUsed[ee.getSource().getPartitionNumber()]++;
+            for (IntermediateResultPartition partition : consumedPartitions) {
+                timesUsed[partition.getPartitionNumber()]++;
             }
         }
 
@@ -41,6 +41,44 @@ public class BlockCompressionTest {
         runByteBufferTest(factory, true, 16);
     }
 
+    @Test
+    public void testDeflate() {
+        BlockCompressionFactory factory = new DeflateBlockCompressionFactory();
+        runArrayTest(factory, 32768);
+        runArrayTest(factory, 16);
+
+        runByteBufferTest(factory, false, 32768);
+        runByteBufferTest(factory, false, 16);
+        runByteBufferTest(factory, true, 32768);
+        runByteBufferTest(factory, true, 16);
+    }
+
+    @Test
+    public void testDeflateCanNotBeUsedAfterClose() {
+        BlockCompressionFactory factory = new DeflateBlockCompressionFactory();
+        BlockCompressor compressor = factory.getCompressor();
+        BlockDecompressor decompressor = factory.getDecompressor();
+
+        byte[] data = new byte[16];
+        byte[] compressedData = new byte[compressor.getMaxCompressedSize(data.length)];
+        compressor.compress(data, 0, data.length, compressedData, 0);
+
+        compressor.close();
+        decompressor.close();
+
+        // the ended Deflater and Inflater reject any further use
+        try {
+            compressor.compress(data, 0, data.length, compressedData, 0);
+            Assert.fail("expect exception here");
+        } catch (NullPointerException ex) {
+        }
+        try {
+            decompressor.decompress(compressedData, 0, compressedData.length, data, 0);
+            Assert.fail("expect exception here");
+        } catch (NullPointerException ex) {
+        }
+    }
+
     private void runArrayTest(BlockCompressionFactory factory, int originalLen) {
         BlockCompressor compressor = factory.getCompressor();
         BlockDecompressor decompressor = factory.getDecompressor();
@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.disk;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link BatchShuffleReadBufferPool}. */
+public class BatchShuffleReadBufferPoolTest extends TestLogger {
+
+    private static final int BUFFER_SIZE = 32 * 1024;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalTotalBytes() {
+        new BatchShuffleReadBufferPool(0, BUFFER_SIZE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTotalBytesSmallerThanBufferSize() {
+        new BatchShuffleReadBufferPool(BUFFER_SIZE - 1, BUFFER_SIZE);
+    }
+
+    @Test
+    public void testLazyInitialization() throws Exception {
+        BatchShuffleReadBufferPool bufferPool = createBufferPool(64);
+        try {
+            assertEquals(0, bufferPool.getAvailableBuffers());
+
+            List<MemorySegment> buffers = bufferPool.requestBuffers();
+            assertEquals(bufferPool.getNumBuffersPerRequest(), buffers.size());
+            assertEquals(
+                    bufferPool.getNumTotalBuffers() - buffers.size(),
+                    bufferPool.getAvailableBuffers());
+
+            bufferPool.recycle(buffers);
+            assertEquals(bufferPool.getNumTotalBuffers(), bufferPool.getAvailableBuffers());
+        } finally {
+            bufferPool.destroy();
+        }
+    }
+
+    @Test
+    public void testNumBuffersPerRequest() {
+        BatchShuffleReadBufferPool bufferPool = createBufferPool(1024);
+        assertEquals(
+                BatchShuffleReadBufferPool.NUM_BYTES_PER_REQUEST / BUFFER_SIZE,
+                bufferPool.getNumBuffersPerRequest());
+
+        // a request never asks for more buffers than the pool has
+        bufferPool = createBufferPool(16);
+        assertEquals(16, bufferPool.getNumBuffersPerRequest());
+    }
+
+    @Test
+    public void testRequestBuffersTimeout() throws Exception {
+        BatchShuffleReadBufferPool bufferPool = createBufferPool(16);
+        try {
+            List<MemorySegment> buffers = bufferPool.requestBuffers();
+            assertEquals(16, buffers.size());
+
+            assertTrue(bufferPool.requestBuffers().isEmpty());
+            bufferPool.recycle(buffers);
+        } finally {
+            bufferPool.destroy();
+        }
+    }
+
+    @Test
+    public void testBlockedRequestIsNotifiedByRecycling() throws Exception {
+        BatchShuffleReadBufferPool bufferPool = createBufferPool(16);
+        try {
+            List<MemorySegment> buffers = bufferPool.requestBuffers();
+
+            CompletableFuture<List<MemorySegment>> request =
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return bufferPool.requestBuffers();
+                                } catch (Exception exception) {
+                                    throw new RuntimeException(exception);
+                                }
+                            });
+            bufferPool.recycle(buffers);
+
+            List<MemorySegment> requested = request.get();
+            assertEquals(16, requested.size());
+            bufferPool.recycle(requested);
+        } finally {
+            bufferPool.destroy();
+        }
+    }
+
+    @Test
+    public void testDestroy() throws Exception {
+        BatchShuffleReadBufferPool bufferPool = createBufferPool(16);
+        List<MemorySegment> buffers = bufferPool.requestBuffers();
+        bufferPool.destroy();
+
+        assertTrue(bufferPool.isDestroyed());
+        assertEquals(0, bufferPool.getAvailableBuffers());
+
+        // buffers recycled after the destruction are freed
+        bufferPool.recycle(buffers);
+        assertEquals(0, bufferPool.getAvailableBuffers());
+        for (MemorySegment segment : buffers) {
+            assertTrue(segment.isFreed());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRequestBuffersAfterDestroyed() throws Exception {
+        BatchShuffleReadBufferPool bufferPool = createBufferPool(16);
+        bufferPool.destroy();
+        bufferPool.requestBuffers();
+    }
+
+    private static BatchShuffleReadBufferPool createBufferPool(int numBuffers) {
+        return new BatchShuffleReadBufferPool((long) numBuffers * BUFFER_SIZE, BUFFER_SIZE);
+    }
+}
@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.io.network;
 
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.concurrent.Executors;
@@ -26,6 +28,7 @@ import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartition
 import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
 import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
 import org.apache.flink.runtime.util.EnvironmentInformation;
 
 import java.time.Duration;
@@ -178,9 +181,15 @@ public class NettyShuffleEnvironmentBuilder {
                         BoundedBlockingSubpartitionType.AUTO,
                         blockingShuffleCompressionEnabled,
                         compressionCodec,
+                        false,
                         maxBuffersPerChannel,
                         sortShuffleMinBuffers,
-                        sortShuffleMinParallelism),
+                        sortShuffleMinParallelism,
+                        Integer.MAX_VALUE,
+                        BufferDebloatConfiguration.fromConfiguration(new Configuration()),
+                        TaskManagerOptions.NETWORK_BATCH_SHUFFLE_READ_MEMORY
+                                .defaultValue()
+                                .getBytes()),
                 taskManagerLocation,
                 new TaskEventDispatcher(),
                 resultPartitionManager,
@@ -41,6 +41,9 @@ public class TestingPartitionRequestClient implements PartitionRequestClient {
     @Override
     public void resumeConsumption(RemoteInputChannel inputChannel) {}
 
+    @Override
+    public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {}
+
     @Override
     public void sendTaskEvent(
             ResultPartitionID partitionId, TaskEvent event, RemoteInputChannel inputChannel) {}
@@ -18,6 +18,7 @@
 
 package org.apache.flink.runtime.io.network.api.writer;
 
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.core.io.IOReadableWritable;
 import org.apache.flink.core.memory.DataInputView;
 import org.apache.flink.core.memory.DataOutputView;
@@ -64,6 +65,8 @@ import static org.apache.flink.runtime.io.network.partition.PartitionTestUtils.c
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /** Tests for the {@link RecordWriter}. */
@@ -292,6 +295,92 @@ public class RecordWriterTest {
         }
     }
 
+    /**
+     * Tests that large records are broadcast via {@link RecordWriter#broadcastEmit} in buffers
+     * which share the memory among all channels instead of being copied into every channel.
+     */
+    @Test
+    public void testBroadcastEmitLargeRecordSharesBuffers() throws Exception {
+        final int numberOfChannels = 3;
+        final int bufferSize = 8 * 1024;
+
+        final ResultPartition partition = createResultPartition(bufferSize, numberOfChannels);
+        final RecordWriter<ByteArrayIO> writer = createRecordWriter(partition);
+
+        final int recordSize =
+                (int)
+                        NettyShuffleEnvironmentOptions.NETWORK_BROADCAST_MIN_SHARED_RECORD_SIZE
+                                .defaultValue()
+                                .getBytes();
+        final byte[] bytes = new byte[recordSize];
+        new Random().nextBytes(bytes);
+        writer.broadcastEmit(new ByteArrayIO(bytes));
+        writer.flushAll();
+
+        final int numRequiredBuffers = (bytes.length + 4 + bufferSize - 1) / bufferSize;
+        assertEquals(numRequiredBuffers, partition.getBufferPool().bestEffortGetNumOfUsedBuffers());
+
+        final ResultSubpartitionView[] views = new ResultSubpartitionView[numberOfChannels];
+        for (int i = 0; i < numberOfChannels; i++) {
+            assertEquals(numRequiredBuffers, partition.getNumberOfQueuedBuffers(i));
+            views[i] = partition.createSubpartitionView(i, new NoOpBufferAvailablityListener());
+        }
+
+        for (int j = 0; j < numRequiredBuffers; j++) {
+            final Buffer first = views[0].getNextBuffer().buffer();
+            for (int i = 1; i < numberOfChannels; i++) {
+                final Buffer buffer = views[i].getNextBuffer().buffer();
+                assertSame(first.getMemorySegment(), buffer.getMemorySegment());
+                buffer.recycleBuffer();
+            }
+            first.recycleBuffer();
+        }
+    }
+
+    /**
+     * Tests that records broadcast via {@link RecordWriter#broadcastEmit} share their buffers from
+     * the configured minimum serialized size on, and are copied into every channel below it.
+     */
+    @Test
+    public void testBroadcastEmitSharesBuffersFromConfiguredRecordSize() throws Exception {
+        final int minSharedRecordSize = 1024;
+
+        // the serialized record is prefixed with its length
+        assertBroadcastEmitSharesBuffers(minSharedRecordSize - 4, minSharedRecordSize, true);
+        assertBroadcastEmitSharesBuffers(minSharedRecordSize - 5, minSharedRecordSize, false);
+    }
+
+    private static void assertBroadcastEmitSharesBuffers(
+            int recordLength, int minSharedRecordSize, boolean expectShared) throws Exception {
+        final int numberOfChannels = 2;
+        final ResultPartition partition = createResultPartition(8 * 1024, numberOfChannels);
+        final RecordWriter<ByteArrayIO> writer =
+                new RecordWriterBuilder<ByteArrayIO>()
+                        .setMinSharedBroadcastRecordSize(minSharedRecordSize)
+                        .build(partition);
+
+        writer.broadcastEmit(new ByteArrayIO(new byte[recordLength]));
+        writer.flushAll();
+
+        final Buffer first =
+                partition
+                        .createSubpartitionView(0, new NoOpBufferAvailablityListener())
+                        .getNextBuffer()
+                        .buffer();
+        final Buffer second =
+                partition
+                        .createSubpartitionView(1, new NoOpBufferAvailablityListener())
+                        .getNextBuffer()
+                        .buffer();
+        if (expectShared) {
+            assertSame(first.getMemorySegment(), second.getMemorySegment());
+        } else {
+            assertNotSame(first.getMemorySegment(), second.getMemorySegment());
+        }
+        first.recycleBuffer();
+        second.recycleBuffer();
+    }
+
     /**
      * Tests that the RecordWriter is available iif the respective LocalBufferPool has at-least one
      * available buffer.
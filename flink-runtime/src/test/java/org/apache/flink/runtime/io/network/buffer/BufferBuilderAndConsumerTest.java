@@ -54,6 +54,29 @@ public class BufferBuilderAndConsumerTest {
         assertTrue(buffer.isRecycled());
     }
 
+    @Test
+    public void trim() {
+        BufferBuilder bufferBuilder = createBufferBuilder();
+        BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+
+        bufferBuilder.trim(3 * Integer.BYTES);
+        assertEquals(3 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+
+        assertEquals(2 * Integer.BYTES, bufferBuilder.appendAndCommit(toByteBuffer(0, 1)));
+        assertEquals(Integer.BYTES, bufferBuilder.appendAndCommit(toByteBuffer(2, 3)));
+        assertTrue(bufferBuilder.isFull());
+
+        // the capacity never drops below the written bytes
+        bufferBuilder.trim(Integer.BYTES);
+        assertEquals(3 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+
+        // nor grows beyond the memory segment
+        bufferBuilder.trim(2 * BUFFER_SIZE);
+        assertEquals(BUFFER_SIZE, bufferBuilder.getMaxCapacity());
+
+        assertContent(bufferConsumer, 0, 1, 2);
+    }
+
     @Test
     public void append() {
         BufferBuilder bufferBuilder = createBufferBuilder();
@@ -33,6 +33,7 @@ import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Random;
 
 import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
@@ -50,6 +51,8 @@ public class BufferCompressionTest {
 
     private final boolean decompressToOriginalBuffer;
 
+    private final String compressionCodec;
+
     private final BufferCompressor compressor;
 
     private final BufferDecompressor decompressor;
@@ -68,6 +71,12 @@ public class BufferCompressionTest {
                     {false, "LZ4", true, false},
                     {false, "LZ4", false, true},
                     {false, "LZ4", false, false},
+                    {true, "DEFLATE", true, false},
+                    {true, "DEFLATE", false, true},
+                    {true, "DEFLATE", false, false},
+                    {false, "DEFLATE", true, false},
+                    {false, "DEFLATE", false, true},
+                    {false, "DEFLATE", false, false},
                 });
     }
 
@@ -78,6 +87,7 @@ public class BufferCompressionTest {
             boolean decompressToOriginalBuffer) {
         this.compressToOriginalBuffer = compressToOriginalBuffer;
         this.decompressToOriginalBuffer = decompressToOriginalBuffer;
+        this.compressionCodec = compressionCodec;
         this.compressor = new BufferCompressor(BUFFER_SIZE, compressionCodec);
         this.decompressor = new BufferDecompressor(BUFFER_SIZE, compressionCodec);
         this.bufferToCompress = createBufferAndFillWithLongValues(isDirect);
@@ -190,6 +200,56 @@ public class BufferCompressionTest {
         assertEquals(numBytes, compressedBuffer.readableBytes());
     }
 
+    @Test
+    public void testCompressionStatistics() {
+        assertEquals(1.0, compressor.getCompressionRatio());
+
+        int size = bufferToCompress.getSize();
+        Buffer compressedBuffer = compress(compressor, bufferToCompress, compressToOriginalBuffer);
+        assertTrue(compressedBuffer.isCompressed());
+        assertEquals((double) size / compressedBuffer.getSize(), compressor.getCompressionRatio());
+        assertTrue(compressor.getCompressionTimeMillis() >= 0);
+    }
+
+    @Test
+    public void testAdaptiveCompressionPausedForIncompressibleData() {
+        int bufferSize = 1024;
+        BufferCompressor adaptiveCompressor =
+                new BufferCompressor(bufferSize, compressionCodec, true);
+        Random random = new Random(42);
+
+        for (int i = 0; i < BufferCompressor.NUM_SAMPLED_BUFFERS; i++) {
+            assertFalse(adaptiveCompressor.isCompressionPaused());
+            byte[] randomBytes = new byte[bufferSize];
+            random.nextBytes(randomBytes);
+            Buffer buffer = createBuffer(randomBytes);
+            assertFalse(
+                    compress(adaptiveCompressor, buffer, compressToOriginalBuffer).isCompressed());
+        }
+        assertTrue(adaptiveCompressor.isCompressionPaused());
+
+        // well compressible data is passed uncompressed until the ratio is sampled again
+        Buffer compressibleBuffer = createBuffer(new byte[bufferSize]);
+        for (int i = 0; i < BufferCompressor.NUM_SKIPPED_BUFFERS; i++) {
+            assertFalse(
+                    compress(adaptiveCompressor, compressibleBuffer, compressToOriginalBuffer)
+                            .isCompressed());
+        }
+        assertFalse(adaptiveCompressor.isCompressionPaused());
+
+        Buffer compressedBuffer =
+                compress(adaptiveCompressor, compressibleBuffer, compressToOriginalBuffer);
+        assertTrue(compressedBuffer.isCompressed());
+        compressedBuffer.recycleBuffer();
+    }
+
+    private static Buffer createBuffer(byte[] bytes) {
+        NetworkBuffer buffer =
+                new NetworkBuffer(MemorySegmentFactory.wrap(bytes), FreeingBufferRecycler.INSTANCE);
+        buffer.setSize(bytes.length);
+        return buffer;
+    }
+
     private static Buffer createBufferAndFillWithLongValues(boolean isDirect) {
         MemorySegment segment;
         if (isDirect) {
@@ -126,4 +126,29 @@ public class NettyMessageServerSideSerializationTest extends TestLogger {
 
         assertEquals(expected.receiverId, actual.receiverId);
     }
+
+    @Test
+    public void testNewBufferSize() {
+        NettyMessage.NewBufferSize expected =
+                new NettyMessage.NewBufferSize(
+                        random.nextInt(Integer.MAX_VALUE) + 1, new InputChannelID());
+        NettyMessage.NewBufferSize actual = encodeAndDecode(expected, channel);
+
+        assertEquals(expected.bufferSize, actual.bufferSize);
+        assertEquals(expected.receiverId, actual.receiverId);
+    }
+
+    @Test
+    public void testSharedMemoryRequest() {
+        NettyMessage.SharedMemoryRequest expected =
+                new NettyMessage.SharedMemoryRequest(
+                        "/dev/shm/flink-netty-shm-" + random.nextInt() + ".data",
+                        random.nextLong(),
+                        random.nextInt(Integer.MAX_VALUE) + 1);
+        NettyMessage.SharedMemoryRequest actual = encodeAndDecode(expected, channel);
+
+        assertEquals(expected.path, actual.path);
+        assertEquals(expected.token, actual.token);
+        assertEquals(expected.capacity, actual.capacity);
+    }
 }
@@ -43,6 +43,8 @@ import org.apache.flink.runtime.io.network.util.TestBufferFactory;
 
 import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelOutboundHandlerAdapter;
 import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 
 import org.junit.AfterClass;
@@ -138,6 +140,67 @@ public class PartitionRequestQueueTest {
         assertEquals(buffersToWrite, channel.outboundMessages().size());
     }
 
+    /**
+     * Tests that the buffers of readers which are available at the same time are written in one
+     * batch and flushed together.
+     */
+    @Test
+    public void testBatchedWriting() throws Exception {
+        testBatchedWriting(64, 1);
+    }
+
+    /** Tests that every buffer is flushed separately if batching is disabled. */
+    @Test
+    public void testUnbatchedWriting() throws Exception {
+        testBatchedWriting(1, 4);
+    }
+
+    private void testBatchedWriting(int maxMessagesPerFlush, int expectedFlushes)
+            throws Exception {
+        final PartitionRequestQueue queue = new PartitionRequestQueue(maxMessagesPerFlush);
+        final AtomicInteger numFlushes = new AtomicInteger();
+        final EmbeddedChannel channel =
+                new EmbeddedChannel(
+                        new ChannelOutboundHandlerAdapter() {
+                            @Override
+                            public void flush(ChannelHandlerContext ctx) throws Exception {
+                                numFlushes.incrementAndGet();
+                                super.flush(ctx);
+                            }
+                        },
+                        queue);
+
+        final CreditBasedSequenceNumberingViewReader reader1 =
+                new CreditBasedSequenceNumberingViewReader(new InputChannelID(0, 0), 10, queue);
+        final CreditBasedSequenceNumberingViewReader reader2 =
+                new CreditBasedSequenceNumberingViewReader(new InputChannelID(1, 1), 10, queue);
+        reader1.requestSubpartitionView(
+                (partitionId, index, availabilityListener) ->
+                        new DefaultBufferResultSubpartitionView(2),
+                new ResultPartitionID(),
+                0);
+        reader2.requestSubpartitionView(
+                (partitionId, index, availabilityListener) ->
+                        new DefaultBufferResultSubpartitionView(2),
+                new ResultPartitionID(),
+                0);
+
+        // enqueue both readers while the channel is not writable
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, false);
+        reader1.notifyDataAvailable();
+        reader2.notifyDataAvailable();
+        channel.runPendingTasks();
+        assertEquals(2, queue.getAvailableReaders().size());
+        assertEquals(0, numFlushes.get());
+
+        channel.unsafe().outboundBuffer().setUserDefinedWritability(1, true);
+        channel.runPendingTasks();
+
+        assertEquals(4, channel.outboundMessages().size());
+        assertEquals(expectedFlushes, numFlushes.get());
+        assertEquals(0, queue.getAvailableReaders().size());
+    }
+
     @Test
     public void testProducerFailedException() throws Exception {
         PartitionRequestQueue queue = new PartitionRequestQueue();
@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.util.TestLogger;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Tests for the {@link SharedMemoryRegion}. */
+public class SharedMemoryRegionTest extends TestLogger {
+
+    private static final int CAPACITY = 64;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        try (SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY);
+                SharedMemoryRegion server =
+                        SharedMemoryRegion.open(
+                                client.getPath(), client.getToken(), client.getCapacity())) {
+
+            for (int i = 0; i < 10; i++) {
+                final long position = server.tryWrite(createData(20, i));
+                assertTrue(position >= 0);
+                assertData(client, position, 20, i);
+            }
+        }
+    }
+
+    @Test
+    public void testWriteFailsIfNotRead() throws Exception {
+        try (SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY);
+                SharedMemoryRegion server =
+                        SharedMemoryRegion.open(
+                                client.getPath(), client.getToken(), client.getCapacity())) {
+
+            final long first = server.tryWrite(createData(30, 1));
+            final long second = server.tryWrite(createData(30, 2));
+            assertTrue(first >= 0 && second >= 0);
+
+            // neither fits into the remaining space nor into the unread beginning of the ring
+            assertEquals(-1, server.tryWrite(createData(30, 3)));
+            assertEquals(-1, server.tryWrite(createData(CAPACITY + 1, 4)));
+
+            assertData(client, first, 30, 1);
+            final long third = server.tryWrite(createData(30, 3));
+            assertTrue(third >= 0);
+
+            assertData(client, second, 30, 2);
+            assertData(client, third, 30, 3);
+        }
+    }
+
+    @Test
+    public void testFileDeletedByClient() throws Exception {
+        final SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY);
+        final SharedMemoryRegion server =
+                SharedMemoryRegion.open(client.getPath(), client.getToken(), client.getCapacity());
+
+        server.close();
+        assertTrue(Files.exists(Paths.get(client.getPath())));
+
+        client.close();
+        assertFalse(Files.exists(Paths.get(client.getPath())));
+    }
+
+    @Test
+    public void testOpenWithWrongToken() throws Exception {
+        try (SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY)) {
+            SharedMemoryRegion.open(client.getPath(), client.getToken() + 1, client.getCapacity());
+            fail("Expected an exception when opening the region with a wrong token.");
+        } catch (IOException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCreateWithCapacityAboveMaximum() throws Exception {
+        try (SharedMemoryRegion region =
+                SharedMemoryRegion.create(SharedMemoryRegion.MAX_CAPACITY + 1)) {
+            fail("Expected an exception when the region exceeds the mappable size.");
+        } catch (IllegalArgumentException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOpenWithCapacityAboveMaximum() throws Exception {
+        try (SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY)) {
+            SharedMemoryRegion.open(
+                    client.getPath(), client.getToken(), SharedMemoryRegion.MAX_CAPACITY + 1);
+            fail("Expected an exception when the region exceeds the mappable size.");
+        } catch (IOException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testCreatedFileIsAllocatedAndOnlyAccessibleByOwner() throws Exception {
+        try (SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY)) {
+            final Path path = Paths.get(client.getPath());
+            assertEquals(
+                    "rw-------",
+                    PosixFilePermissions.toString(Files.getPosixFilePermissions(path)));
+            assertTrue(Files.size(path) > CAPACITY);
+        }
+    }
+
+    @Test
+    public void testOpenFileInOtherDirectory() throws Exception {
+        final File file = temporaryFolder.newFile("flink-netty-shm-other.data");
+        Files.write(file.toPath(), new byte[128 + CAPACITY]);
+
+        try {
+            SharedMemoryRegion.open(file.getAbsolutePath(), 0L, CAPACITY);
+            fail("Expected an exception when opening a file in another directory.");
+        } catch (IOException ignored) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testOpenFileWithOtherName() throws Exception {
+        try (SharedMemoryRegion client = SharedMemoryRegion.create(CAPACITY)) {
+            final Path path = Paths.get(client.getPath());
+            final Path link = path.resolveSibling("other-" + path.getFileName());
+            Files.createSymbolicLink(link, path);
+            try {
+                SharedMemoryRegion.open(link.toString(), client.getToken(), CAPACITY);
+                fail("Expected an exception when opening a file without the expected prefix.");
+            } catch (IOException ignored) {
+                // expected
+            } finally {
+                Files.delete(link);
+            }
+        }
+    }
+
+    @Test
+    public void testIsLocalAddress() {
+        assertTrue(SharedMemoryRegion.isLocalAddress(new InetSocketAddress("localhost", 1234)));
+        assertFalse(SharedMemoryRegion.isLocalAddress(null));
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static ByteBuffer createData(int length, int value) {
+        final ByteBuffer data = ByteBuffer.allocate(length);
+        while (data.hasRemaining()) {
+            data.put((byte) value);
+        }
+        data.flip();
+        return data;
+    }
+
+    private static void assertData(
+            SharedMemoryRegion region, long position, int length, int value) {
+        final ByteBuf target = Unpooled.buffer(length);
+        region.read(position, length, target);
+
+        assertEquals(length, target.readableBytes());
+        while (target.isReadable()) {
+            assertEquals((byte) value, target.readByte());
+        }
+    }
+}
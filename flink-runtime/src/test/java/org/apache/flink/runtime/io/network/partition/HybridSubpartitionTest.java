@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.core.testutils.CheckedThread;
+import org.apache.flink.runtime.io.disk.FileChannelManager;
+import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
+import org.apache.flink.runtime.util.EnvironmentInformation;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createFilledFinishedBufferConsumer;
+import static org.apache.flink.runtime.io.network.partition.PartitionTestUtils.createPartition;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the {@link HybridSubpartition} and the {@link HybridSubpartitionView}. */
+public class HybridSubpartitionTest {
+
+    private static final String tempDir = EnvironmentInformation.getTemporaryFileDirectory();
+
+    private static final int READ_BUFFER_SIZE = 1024;
+
+    private static FileChannelManager fileChannelManager;
+
+    @BeforeClass
+    public static void setUp() {
+        fileChannelManager = new FileChannelManagerImpl(new String[] {tempDir}, "testing");
+    }
+
+    @AfterClass
+    public static void shutdown() throws Exception {
+        fileChannelManager.close();
+    }
+
+    @Test
+    public void testReadWhileWriting() throws Exception {
+        final HybridSubpartition subpartition = createSubpartition(2);
+        final AtomicInteger numNotifications = new AtomicInteger();
+        final ResultSubpartitionView view =
+                subpartition.createReadView(numNotifications::incrementAndGet);
+
+        addBuffers(subpartition, 0, 3);
+        subpartition.flush();
+        assertTrue(numNotifications.get() > 0);
+
+        assertTrue(view.isAvailable(1));
+        readBuffers(view, 0, 3);
+        assertNull(view.getNextBuffer());
+        assertFalse(view.isAvailable(1));
+
+        addBuffers(subpartition, 3, 2);
+        subpartition.finish();
+
+        readBuffers(view, 3, 2);
+        assertEndOfPartition(view);
+
+        view.releaseAllResources();
+        subpartition.release();
+    }
+
+    @Test
+    public void testLateReaderReadsFromFile() throws Exception {
+        final HybridSubpartition subpartition = createSubpartition(1);
+
+        addBuffers(subpartition, 0, 10);
+        subpartition.finish();
+        assertEquals(1, subpartition.getNumCachedBuffers());
+
+        final ResultSubpartitionView view =
+                subpartition.createReadView(new NoOpBufferAvailablityListener());
+        readBuffers(view, 0, 10);
+        assertEndOfPartition(view);
+
+        view.releaseAllResources();
+        subpartition.release();
+    }
+
+    @Test
+    public void testReaderFallsBackToFileWhenOvertaken() throws Exception {
+        final HybridSubpartition subpartition = createSubpartition(2);
+        final ResultSubpartitionView view =
+                subpartition.createReadView(new NoOpBufferAvailablityListener());
+
+        addBuffers(subpartition, 0, 3);
+        subpartition.flush();
+        readBuffers(view, 0, 2);
+
+        // the reader is overtaken by the producer, the remaining buffers are read from the file
+        addBuffers(subpartition, 3, 7);
+        subpartition.finish();
+        assertEquals(2, subpartition.getNumCachedBuffers());
+
+        readBuffers(view, 2, 8);
+        assertEndOfPartition(view);
+
+        view.releaseAllResources();
+        subpartition.release();
+    }
+
+    @Test
+    public void testReadFromFileWhileWriting() throws Exception {
+        final int numBuffers = 500;
+        final HybridSubpartition subpartition = createSubpartition(1);
+        final ResultSubpartitionView view =
+                subpartition.createReadView(new NoOpBufferAvailablityListener());
+
+        final CheckedThread writer =
+                new CheckedThread() {
+                    @Override
+                    public void go() throws Exception {
+                        for (int i = 0; i < numBuffers; i++) {
+                            addBuffers(subpartition, i, 1);
+                            subpartition.flush();
+                        }
+                        subpartition.finish();
+                    }
+                };
+        writer.start();
+
+        // the reader is overtaken by the writer most of the time and reads from the file, while
+        // the writer keeps adding buffers
+        for (int i = 0; i < numBuffers; ) {
+            final BufferAndBacklog next = view.getNextBuffer();
+            if (next == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(next.buffer().isBuffer());
+            assertEquals(i + 1, next.buffer().readableBytes());
+            next.buffer().recycleBuffer();
+            i++;
+        }
+        writer.sync();
+        assertEndOfPartition(view);
+
+        view.releaseAllResources();
+        subpartition.release();
+    }
+
+    @Test
+    public void testBufferReadFromFileRecycledAfterRelease() throws Exception {
+        final HybridSubpartition subpartition = createSubpartition(1);
+        addBuffers(subpartition, 0, 3);
+        subpartition.finish();
+
+        final ResultSubpartitionView view =
+                subpartition.createReadView(new NoOpBufferAvailablityListener());
+        final BufferAndBacklog next = view.getNextBuffer();
+        assertNotNull(next);
+        assertEquals(1, next.buffer().readableBytes());
+
+        view.releaseAllResources();
+        assertNull(view.getNextBuffer());
+
+        // the read buffer is freed when it is recycled
+        next.buffer().recycleBuffer();
+        subpartition.release();
+    }
+
+    @Test
+    public void testFileDeletedAfterReadersReleased() throws Exception {
+        final HybridSubpartition subpartition = createSubpartition(2);
+        addBuffers(subpartition, 0, 3);
+        subpartition.finish();
+
+        final ResultSubpartitionView view =
+                subpartition.createReadView(new NoOpBufferAvailablityListener());
+        subpartition.release();
+        assertTrue(Files.exists(subpartition.getFilePath()));
+
+        readBuffers(view, 0, 3);
+        view.releaseAllResources();
+        assertFalse(Files.exists(subpartition.getFilePath()));
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static HybridSubpartition createSubpartition(int maxCachedBuffers) throws Exception {
+        final ResultPartition parent =
+                createPartition(ResultPartitionType.HYBRID, fileChannelManager);
+        return new HybridSubpartition(
+                0,
+                parent,
+                fileChannelManager.createChannel().getPathFile().toPath(),
+                READ_BUFFER_SIZE,
+                maxCachedBuffers);
+    }
+
+    /** Adds buffers whose sizes identify them: the buffer with index i has i + 1 bytes. */
+    private static void addBuffers(HybridSubpartition subpartition, int fromIndex, int numBuffers)
+            throws Exception {
+        for (int i = fromIndex; i < fromIndex + numBuffers; i++) {
+            subpartition.add(createFilledFinishedBufferConsumer(i + 1));
+        }
+    }
+
+    private static void readBuffers(ResultSubpartitionView view, int fromIndex, int numBuffers)
+            throws Exception {
+        for (int i = fromIndex; i < fromIndex + numBuffers; i++) {
+            final BufferAndBacklog next = view.getNextBuffer();
+            assertNotNull(next);
+            assertTrue(next.buffer().isBuffer());
+            assertEquals(i + 1, next.buffer().readableBytes());
+            next.buffer().recycleBuffer();
+        }
+    }
+
+    private static void assertEndOfPartition(ResultSubpartitionView view) throws Exception {
+        assertTrue(view.isAvailable(0));
+
+        final BufferAndBacklog next = view.getNextBuffer();
+        assertNotNull(next);
+        final Buffer buffer = next.buffer();
+        assertFalse(buffer.isBuffer());
+        assertFalse(next.isDataAvailable());
+        buffer.recycleBuffer();
+
+        assertNull(view.getNextBuffer());
+    }
+}
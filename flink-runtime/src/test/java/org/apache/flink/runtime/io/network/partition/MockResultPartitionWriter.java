@@ -46,6 +46,11 @@ public class MockResultPartitionWriter implements ResultPartitionWriter {
         return 1;
     }
 
+    @Override
+    public int getNumberOfQueuedBuffers(int targetSubpartition) {
+        return 0;
+    }
+
     @Override
     public int getNumTargetKeyGroups() {
         return 1;
@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
+import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.disk.NoOpFileChannelManager;
 import org.apache.flink.runtime.io.network.NettyShuffleEnvironment;
@@ -27,6 +29,7 @@ import org.apache.flink.util.function.SupplierWithException;
 
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.Executor;
 
 /** Utility class to encapsulate the logic of building a {@link ResultPartition} instance. */
 public class ResultPartitionBuilder {
@@ -58,10 +61,16 @@ public class ResultPartitionBuilder {
 
     private int sortShuffleMinParallelism = Integer.MAX_VALUE;
 
+    private int sortShuffleMinRegionsToMerge = Integer.MAX_VALUE;
+
     private int maxBuffersPerChannel = Integer.MAX_VALUE;
 
     private int networkBufferSize = 1;
 
+    private BatchShuffleReadBufferPool batchShuffleReadBufferPool;
+
+    private Executor batchShuffleReadIOExecutor = Executors.directExecutor();
+
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     private Optional<SupplierWithException<BufferPool, IOException>> bufferPoolFactory =
             Optional.empty();
@@ -103,6 +112,18 @@ public class ResultPartitionBuilder {
         return this;
     }
 
+    public ResultPartitionBuilder setBatchShuffleReadBufferPool(
+            BatchShuffleReadBufferPool batchShuffleReadBufferPool) {
+        this.batchShuffleReadBufferPool = batchShuffleReadBufferPool;
+        return this;
+    }
+
+    public ResultPartitionBuilder setBatchShuffleReadIOExecutor(
+            Executor batchShuffleReadIOExecutor) {
+        this.batchShuffleReadIOExecutor = batchShuffleReadIOExecutor;
+        return this;
+    }
+
     public ResultPartitionBuilder setFileChannelManager(FileChannelManager channelManager) {
         this.channelManager = channelManager;
         return this;
@@ -164,6 +185,12 @@ public class ResultPartitionBuilder {
         return this;
     }
 
+    public ResultPartitionBuilder setSortShuffleMinRegionsToMerge(
+            int sortShuffleMinRegionsToMerge) {
+        this.sortShuffleMinRegionsToMerge = sortShuffleMinRegionsToMerge;
+        return this;
+    }
+
     public ResultPartitionBuilder setCompressionCodec(String compressionCodec) {
         this.compressionCodec = compressionCodec;
         return this;
@@ -182,20 +209,30 @@ public class ResultPartitionBuilder {
     }
 
     public ResultPartition build() {
+        if (batchShuffleReadBufferPool == null) {
+            batchShuffleReadBufferPool =
+                    new BatchShuffleReadBufferPool(
+                            sortShuffleMinBuffers * networkBufferSize, networkBufferSize);
+        }
+
         ResultPartitionFactory resultPartitionFactory =
                 new ResultPartitionFactory(
                         partitionManager,
                         channelManager,
                         networkBufferPool,
+                        batchShuffleReadBufferPool,
+                        batchShuffleReadIOExecutor,
                         blockingSubpartitionType,
                         networkBuffersPerChannel,
                         floatingNetworkBuffersPerGate,
                         networkBufferSize,
                         blockingShuffleCompressionEnabled,
                         compressionCodec,
+                        false,
                         maxBuffersPerChannel,
                         sortShuffleMinBuffers,
                         sortShuffleMinParallelism,
+                        sortShuffleMinRegionsToMerge,
                         sslEnabled);
 
         SupplierWithException<BufferPool, IOException> factory =
@@ -17,7 +17,9 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
+import org.apache.flink.runtime.concurrent.Executors;
 import org.apache.flink.runtime.deployment.ResultPartitionDeploymentDescriptor;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -74,6 +76,14 @@ public class ResultPartitionFactoryTest extends TestLogger {
                 .forEach(sp -> assertThat(sp, instanceOf(PipelinedSubpartition.class)));
     }
 
+    @Test
+    public void testHybridSubpartitionsCreated() {
+        final HybridResultPartition resultPartition =
+                (HybridResultPartition) createResultPartition(ResultPartitionType.HYBRID, 1);
+        Arrays.stream(resultPartition.subpartitions)
+                .forEach(sp -> assertThat(sp, instanceOf(HybridSubpartition.class)));
+    }
+
     @Test
     public void testSortMergePartitionCreated() {
         ResultPartition resultPartition = createResultPartition(ResultPartitionType.BLOCKING, 1);
@@ -122,15 +132,19 @@ public class ResultPartitionFactoryTest extends TestLogger {
                         manager,
                         fileChannelManager,
                         new NetworkBufferPool(1, SEGMENT_SIZE),
+                        new BatchShuffleReadBufferPool(10 * SEGMENT_SIZE, SEGMENT_SIZE),
+                        Executors.directExecutor(),
                         BoundedBlockingSubpartitionType.AUTO,
                         1,
                         1,
                         SEGMENT_SIZE,
                         false,
                         "LZ4",
+                        false,
                         Integer.MAX_VALUE,
                         10,
                         sortShuffleMinParallelism,
+                        Integer.MAX_VALUE,
                         false);
 
         final ResultPartitionDeploymentDescriptor descriptor =
@@ -20,6 +20,9 @@ package org.apache.flink.runtime.io.network.partition;
 
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutor;
+import org.apache.flink.runtime.io.disk.BatchShuffleReadBufferPool;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
 import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
@@ -41,9 +44,11 @@ import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.Queue;
 import java.util.Random;
+import java.util.concurrent.Executor;
 
 import static org.apache.flink.runtime.io.network.buffer.Buffer.DataType;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -61,6 +66,8 @@ public class SortMergeResultPartitionTest {
 
     private NetworkBufferPool globalPool;
 
+    private BatchShuffleReadBufferPool readBufferPool;
+
     @Rule public final TemporaryFolder tmpFolder = new TemporaryFolder();
 
     @Before
@@ -68,12 +75,14 @@ public class SortMergeResultPartitionTest {
         fileChannelManager =
                 new FileChannelManagerImpl(new String[] {tmpFolder.getRoot().getPath()}, "testing");
         globalPool = new NetworkBufferPool(totalBuffers, bufferSize);
+        readBufferPool = new BatchShuffleReadBufferPool(totalBuffers * bufferSize, bufferSize);
     }
 
     @After
     public void shutdown() throws Exception {
         fileChannelManager.close();
         globalPool.destroy();
+        readBufferPool.destroy();
     }
 
     @Test
@@ -276,6 +285,126 @@ public class SortMergeResultPartitionTest {
         assertEquals(0, fileChannelManager.getPaths()[0].list().length);
     }
 
+    @Test
+    public void testReadDataWithSharedReadBuffers() throws Exception {
+        int numSubpartitions = 10;
+        int numBuffers = 100;
+        BufferPool bufferPool = globalPool.createBufferPool(numBuffers, numBuffers);
+        ManuallyTriggeredScheduledExecutor ioExecutor = new ManuallyTriggeredScheduledExecutor();
+        SortMergeResultPartition partition =
+                createSortMergedPartition(numSubpartitions, bufferPool, ioExecutor);
+
+        for (int i = 0; i < 5; ++i) {
+            for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+                partition.emitRecord(ByteBuffer.allocate(bufferSize * 3), subpartition);
+            }
+        }
+        partition.finish();
+        partition.close();
+
+        ResultSubpartitionView[] views = new ResultSubpartitionView[numSubpartitions];
+        for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+            views[subpartition] = partition.createSubpartitionView(subpartition, listener);
+            assertFalse(views[subpartition].isAvailable(Integer.MAX_VALUE));
+        }
+        // all readers are served by a single reading round
+        assertEquals(1, ioExecutor.numQueuedRunnables());
+
+        boolean[] finished = new boolean[numSubpartitions];
+        int numFinished = 0;
+        while (numFinished < numSubpartitions) {
+            assertTrue(ioExecutor.numQueuedRunnables() > 0);
+            ioExecutor.triggerAll();
+
+            for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+                ResultSubpartitionView view = views[subpartition];
+                while (view.isAvailable(Integer.MAX_VALUE)) {
+                    Buffer buffer = view.getNextBuffer().buffer();
+                    assertFalse(finished[subpartition]);
+                    if (!buffer.isBuffer()) {
+                        finished[subpartition] = true;
+                        ++numFinished;
+                    }
+                    buffer.recycleBuffer();
+                }
+            }
+        }
+
+        for (ResultSubpartitionView view : views) {
+            view.releaseAllResources();
+        }
+        assertEquals(readBufferPool.getNumTotalBuffers(), readBufferPool.getAvailableBuffers());
+    }
+
+    @Test
+    public void testMergeRegions() throws Exception {
+        int numSubpartitions = 10;
+        int numRegions = 20;
+        int numBuffers = 100;
+        Random random = new Random();
+
+        BufferPool bufferPool = globalPool.createBufferPool(numBuffers, numBuffers);
+        SortMergeResultPartition partition =
+                createSortMergedPartition(
+                        numSubpartitions, bufferPool, Executors.directExecutor(), numRegions);
+
+        Queue<PartitionSortedBufferTest.DataAndType>[] dataWritten = new Queue[numSubpartitions];
+        Queue<Buffer>[] buffersRead = new Queue[numSubpartitions];
+        for (int i = 0; i < numSubpartitions; ++i) {
+            dataWritten[i] = new ArrayDeque<>();
+            buffersRead[i] = new ArrayDeque<>();
+        }
+        int[] numBytesWritten = new int[numSubpartitions];
+        int[] numBytesRead = new int[numSubpartitions];
+
+        for (int region = 0; region < numRegions; ++region) {
+            for (int i = 0; i < 10; ++i) {
+                byte[] data = new byte[random.nextInt(2 * bufferSize) + 1];
+                random.nextBytes(data);
+                ByteBuffer record = ByteBuffer.wrap(data);
+                int subpartition = random.nextInt(numSubpartitions);
+                partition.emitRecord(record, subpartition);
+                recordDataWritten(
+                        record, dataWritten, subpartition, numBytesWritten, DataType.DATA_BUFFER);
+            }
+            partition.flushAll();
+        }
+
+        partition.finish();
+        partition.close();
+        for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+            ByteBuffer record = EventSerializer.toSerializedEvent(EndOfPartitionEvent.INSTANCE);
+            recordDataWritten(
+                    record, dataWritten, subpartition, numBytesWritten, DataType.EVENT_BUFFER);
+        }
+
+        // the source file is replaced by the merged file with a single region
+        assertEquals(1, partition.getResultFile().getNumRegions());
+        assertEquals(2, fileChannelManager.getPaths()[0].list().length);
+
+        for (int subpartition = 0; subpartition < numSubpartitions; ++subpartition) {
+            ResultSubpartitionView view = partition.createSubpartitionView(subpartition, listener);
+            while (view.isAvailable(Integer.MAX_VALUE)) {
+                Buffer buffer = view.getNextBuffer().buffer();
+                int numBytes = buffer.readableBytes();
+                numBytesRead[subpartition] += numBytes;
+
+                MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(numBytes);
+                segment.put(0, buffer.getNioBufferReadable(), numBytes);
+                buffersRead[subpartition].add(
+                        new NetworkBuffer(segment, (buf) -> {}, buffer.getDataType(), numBytes));
+                buffer.recycleBuffer();
+            }
+            view.releaseAllResources();
+        }
+
+        PartitionSortedBufferTest.checkWriteReadResult(
+                numSubpartitions, numBytesWritten, numBytesRead, dataWritten, buffersRead);
+
+        partition.release();
+        assertEquals(0, fileChannelManager.getPaths()[0].list().length);
+    }
+
     @Test
     public void testCloseReleasesAllBuffers() throws Exception {
         int numBuffers = 100;
@@ -316,6 +445,22 @@ public class SortMergeResultPartitionTest {
 
     private SortMergeResultPartition createSortMergedPartition(
             int numSubpartitions, BufferPool bufferPool) throws IOException {
+        return createSortMergedPartition(numSubpartitions, bufferPool, Executors.directExecutor());
+    }
+
+    private SortMergeResultPartition createSortMergedPartition(
+            int numSubpartitions, BufferPool bufferPool, Executor readIOExecutor)
+            throws IOException {
+        return createSortMergedPartition(
+                numSubpartitions, bufferPool, readIOExecutor, Integer.MAX_VALUE);
+    }
+
+    private SortMergeResultPartition createSortMergedPartition(
+            int numSubpartitions,
+            BufferPool bufferPool,
+            Executor readIOExecutor,
+            int minRegionsToMerge)
+            throws IOException {
         SortMergeResultPartition sortMergedResultPartition =
                 new SortMergeResultPartition(
                         "SortMergedResultPartitionTest",
@@ -325,6 +470,9 @@ public class SortMergeResultPartitionTest {
                         numSubpartitions,
                         numSubpartitions,
                         bufferSize,
+                        readBufferPool,
+                        readIOExecutor,
+                        minRegionsToMerge,
                         new ResultPartitionManager(),
                         fileChannelManager.createChannel().getPath(),
                         null,
@@ -28,6 +28,8 @@ import org.apache.flink.runtime.io.network.partition.PartitionProducerStateProvi
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.IntermediateDataSetID;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.throughput.ThroughputCalculator;
+import org.apache.flink.util.clock.SystemClock;
 import org.apache.flink.util.function.SupplierWithException;
 
 import javax.annotation.Nullable;
@@ -50,6 +52,8 @@ public class SingleInputGateBuilder {
 
     private int consumedSubpartitionIndex = 0;
 
+    private int numberOfConsumedSubpartitions = 1;
+
     private int gateIndex = 0;
 
     private int numberOfChannels = 1;
@@ -93,6 +97,12 @@ public class SingleInputGateBuilder {
         return this;
     }
 
+    public SingleInputGateBuilder setNumberOfConsumedSubpartitions(
+            int numberOfConsumedSubpartitions) {
+        this.numberOfConsumedSubpartitions = numberOfConsumedSubpartitions;
+        return this;
+    }
+
     public SingleInputGateBuilder setNumberOfChannels(int numberOfChannels) {
         this.numberOfChannels = numberOfChannels;
         return this;
@@ -146,12 +156,15 @@ public class SingleInputGateBuilder {
                         intermediateDataSetID,
                         partitionType,
                         consumedSubpartitionIndex,
+                        numberOfConsumedSubpartitions,
                         numberOfChannels,
                         partitionProducerStateProvider,
                         bufferPoolFactory,
                         bufferDecompressor,
                         segmentProvider,
-                        bufferSize);
+                        bufferSize,
+                        new ThroughputCalculator(SystemClock.getInstance()),
+                        null);
         if (channelFactory != null) {
             gate.setInputChannels(
                     IntStream.range(0, numberOfChannels)
@@ -66,7 +66,9 @@ import org.junit.Test;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -419,6 +421,56 @@ public class SingleInputGateTest extends InputGateTestBase {
         assertEquals(0, partitionManager.counter);
     }
 
+    /**
+     * Tests that the channels of a gate consuming a range of subpartitions request the consecutive
+     * subpartitions of each partition.
+     */
+    @Test
+    public void testRequestConsumedSubpartitionRange() throws Exception {
+        final int numberOfConsumedSubpartitions = 3;
+        final ResultPartitionID[] partitionIds = {new ResultPartitionID(), new ResultPartitionID()};
+        final Map<ResultPartitionID, List<Integer>> requestedSubpartitions = new HashMap<>();
+        final ResultPartitionManager partitionManager =
+                new ResultPartitionManager() {
+                    @Override
+                    public ResultSubpartitionView createSubpartitionView(
+                            ResultPartitionID partitionId,
+                            int subpartitionIndex,
+                            BufferAvailabilityListener availabilityListener) {
+                        requestedSubpartitions
+                                .computeIfAbsent(partitionId, ignored -> new ArrayList<>())
+                                .add(subpartitionIndex);
+                        return new NoOpResultSubpartitionView();
+                    }
+                };
+
+        final SingleInputGate inputGate =
+                new SingleInputGateBuilder()
+                        .setConsumedSubpartitionIndex(2)
+                        .setNumberOfConsumedSubpartitions(numberOfConsumedSubpartitions)
+                        .setNumberOfChannels(partitionIds.length * numberOfConsumedSubpartitions)
+                        .build();
+        final InputChannel[] inputChannels =
+                new InputChannel[partitionIds.length * numberOfConsumedSubpartitions];
+        for (int i = 0; i < inputChannels.length; i++) {
+            inputChannels[i] =
+                    InputChannelBuilder.newBuilder()
+                            .setChannelIndex(i)
+                            .setPartitionId(partitionIds[i / numberOfConsumedSubpartitions])
+                            .setPartitionManager(partitionManager)
+                            .buildLocalChannel(inputGate);
+        }
+        inputGate.setInputChannels(inputChannels);
+
+        inputGate.requestPartitions();
+
+        assertEquals(partitionIds.length, inputGate.getInputChannels().size());
+        assertEquals(inputChannels.length, inputGate.getAllInputChannels().size());
+        for (ResultPartitionID partitionId : partitionIds) {
+            assertEquals(asList(2, 3, 4), requestedSubpartitions.get(partitionId));
+        }
+    }
+
     /**
      * Tests that the release of the input gate is noticed while polling the channels for available
      * data.
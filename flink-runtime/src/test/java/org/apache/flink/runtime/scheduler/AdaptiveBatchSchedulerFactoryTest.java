@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.jobgraph.DistributionPattern;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Set;
+
+import static org.apache.flink.api.common.ExecutionConfig.PARALLELISM_DEFAULT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link AdaptiveBatchSchedulerFactory}. */
+public class AdaptiveBatchSchedulerFactoryTest extends TestLogger {
+
+    private static final int MAX_PARALLELISM = 128;
+
+    @Test
+    public void testAllToAllConsumerIsAdaptive() {
+        final JobVertex source = createJobVertex("source", 4);
+        final JobVertex consumer = createJobVertex("consumer", PARALLELISM_DEFAULT);
+        connect(consumer, source, DistributionPattern.ALL_TO_ALL);
+
+        final Set<JobVertexID> adaptiveJobVertices = prepare(source, consumer);
+
+        assertEquals(Collections.singleton(consumer.getID()), adaptiveJobVertices);
+        assertEquals(4, source.getParallelism());
+        assertEquals(MAX_PARALLELISM, consumer.getParallelism());
+        assertEquals(MAX_PARALLELISM, consumer.getMaxParallelism());
+    }
+
+    @Test
+    public void testConfiguredMaxParallelismIsKept() {
+        final JobVertex source = createJobVertex("source", 4);
+        final JobVertex consumer = createJobVertex("consumer", PARALLELISM_DEFAULT);
+        consumer.setMaxParallelism(16);
+        connect(consumer, source, DistributionPattern.ALL_TO_ALL);
+
+        assertEquals(Collections.singleton(consumer.getID()), prepare(source, consumer));
+        assertEquals(16, consumer.getParallelism());
+        assertEquals(16, consumer.getMaxParallelism());
+    }
+
+    @Test
+    public void testConsumerWithLargerMaxParallelismIsNotAdaptive() {
+        final JobVertex source = createJobVertex("source", 4);
+        final JobVertex consumer = createJobVertex("consumer", PARALLELISM_DEFAULT);
+        consumer.setMaxParallelism(MAX_PARALLELISM + 1);
+        connect(consumer, source, DistributionPattern.ALL_TO_ALL);
+
+        assertTrue(prepare(source, consumer).isEmpty());
+        assertEquals(PARALLELISM_DEFAULT, consumer.getParallelism());
+    }
+
+    @Test
+    public void testVertexWithConfiguredParallelismIsNotAdaptive() {
+        final JobVertex source = createJobVertex("source", 4);
+        final JobVertex consumer = createJobVertex("consumer", 2);
+        connect(consumer, source, DistributionPattern.ALL_TO_ALL);
+
+        assertTrue(prepare(source, consumer).isEmpty());
+        assertEquals(2, consumer.getParallelism());
+    }
+
+    @Test
+    public void testSourceIsNotAdaptive() {
+        final JobVertex source = createJobVertex("source", PARALLELISM_DEFAULT);
+
+        assertTrue(prepare(source).isEmpty());
+        assertEquals(PARALLELISM_DEFAULT, source.getParallelism());
+    }
+
+    @Test
+    public void testPointwiseConsumerIsNotAdaptive() {
+        final JobVertex source = createJobVertex("source", 4);
+        final JobVertex consumer = createJobVertex("consumer", PARALLELISM_DEFAULT);
+        connect(consumer, source, DistributionPattern.POINTWISE);
+
+        assertTrue(prepare(source, consumer).isEmpty());
+    }
+
+    @Test
+    public void testVertexWithPointwiseOutputIsNotAdaptive() {
+        final JobVertex source = createJobVertex("source", 4);
+        final JobVertex middle = createJobVertex("middle", PARALLELISM_DEFAULT);
+        final JobVertex sink = createJobVertex("sink", PARALLELISM_DEFAULT);
+        connect(middle, source, DistributionPattern.ALL_TO_ALL);
+        connect(sink, middle, DistributionPattern.POINTWISE);
+
+        assertTrue(prepare(source, middle, sink).isEmpty());
+    }
+
+    private static JobVertex createJobVertex(String name, int parallelism) {
+        final JobVertex jobVertex = new JobVertex(name);
+        if (parallelism != PARALLELISM_DEFAULT) {
+            jobVertex.setParallelism(parallelism);
+        }
+        return jobVertex;
+    }
+
+    private static void connect(
+            JobVertex consumer, JobVertex producer, DistributionPattern distributionPattern) {
+        consumer.connectNewDataSetAsInput(
+                producer, distributionPattern, ResultPartitionType.BLOCKING);
+    }
+
+    private static Set<JobVertexID> prepare(JobVertex... jobVertices) {
+        return AdaptiveBatchSchedulerFactory.prepareAdaptiveJobVertices(
+                new JobGraph(jobVertices), MAX_PARALLELISM);
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutorServiceAdapter;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutorService;
+import org.apache.flink.runtime.deployment.InputGateDeploymentDescriptor;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.executiongraph.IOMetrics;
+import org.apache.flink.runtime.executiongraph.utils.SimpleAckingTaskManagerGateway;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.jobgraph.DistributionPattern;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.taskmanager.TaskExecutionState;
+import org.apache.flink.runtime.testtasks.NoOpInvokable;
+import org.apache.flink.runtime.testutils.DirectScheduledExecutorService;
+import org.apache.flink.util.TestLogger;
+
+import org.apache.flink.shaded.guava18.com.google.common.collect.Iterables;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.apache.flink.api.common.ExecutionConfig.PARALLELISM_DEFAULT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link AdaptiveBatchScheduler}. */
+public class AdaptiveBatchSchedulerTest extends TestLogger {
+
+    private static final long AVG_DATA_VOLUME_PER_TASK = 1024L;
+
+    @Test
+    public void testDecideParallelismRoundsUp() {
+        assertEquals(1, decideParallelism(1L, 1, 128));
+        assertEquals(3, decideParallelism(3 * AVG_DATA_VOLUME_PER_TASK, 1, 128));
+        assertEquals(4, decideParallelism(3 * AVG_DATA_VOLUME_PER_TASK + 1, 1, 128));
+    }
+
+    @Test
+    public void testDecideParallelismIsAtLeastMinParallelism() {
+        assertEquals(2, decideParallelism(0L, 2, 128));
+        assertEquals(5, decideParallelism(AVG_DATA_VOLUME_PER_TASK, 5, 128));
+    }
+
+    @Test
+    public void testDecideParallelismIsAtMostMaxParallelism() {
+        assertEquals(128, decideParallelism(1000 * AVG_DATA_VOLUME_PER_TASK, 1, 128));
+        assertEquals(128, decideParallelism(Long.MAX_VALUE, 1, 128));
+    }
+
+    @Test
+    public void testSubtasksAboveDecidedParallelismAreSkipped() throws Exception {
+        final JobVertex source = createJobVertex("source", 2);
+        final JobVertex sink = createJobVertex("sink", PARALLELISM_DEFAULT);
+        sink.connectNewDataSetAsInput(
+                source, DistributionPattern.ALL_TO_ALL, ResultPartitionType.BLOCKING);
+        final JobGraph jobGraph = new JobGraph(source, sink);
+
+        final int maxParallelism = 8;
+        final ManuallyTriggeredScheduledExecutorService mainThreadExecutor =
+                new ManuallyTriggeredScheduledExecutorService();
+        final Map<Integer, TaskDeploymentDescriptor> sinkDeployments = new HashMap<>();
+        final SimpleAckingTaskManagerGateway taskManagerGateway =
+                new SimpleAckingTaskManagerGateway();
+        taskManagerGateway.setSubmitConsumer(
+                tdd -> {
+                    if (!tdd.getInputGates().isEmpty()) {
+                        sinkDeployments.put(tdd.getSubtaskIndex(), tdd);
+                    }
+                });
+
+        final AdaptiveBatchScheduler scheduler =
+                SchedulerTestingUtils.newSchedulerBuilder(
+                                jobGraph,
+                                new ComponentMainThreadExecutorServiceAdapter(
+                                        (ScheduledExecutorService) mainThreadExecutor,
+                                        Thread.currentThread()))
+                        .setFutureExecutor(new DirectScheduledExecutorService())
+                        .setExecutionSlotAllocatorFactory(
+                                new TestExecutionSlotAllocatorFactory(taskManagerGateway))
+                        .buildAdaptiveBatchScheduler(
+                                AdaptiveBatchSchedulerFactory.prepareAdaptiveJobVertices(
+                                        jobGraph, maxParallelism),
+                                1,
+                                AVG_DATA_VOLUME_PER_TASK);
+
+        scheduler.startScheduling();
+        mainThreadExecutor.triggerAll();
+
+        // the sources produce data for 3 subtasks of the sink
+        for (ExecutionVertex sourceVertex :
+                scheduler.getExecutionJobVertex(source.getID()).getTaskVertices()) {
+            scheduler.updateTaskExecutionState(
+                    new TaskExecutionState(
+                            jobGraph.getJobID(),
+                            sourceVertex.getCurrentExecutionAttempt().getAttemptId(),
+                            ExecutionState.FINISHED,
+                            null,
+                            null,
+                            new IOMetrics(0, 3 * AVG_DATA_VOLUME_PER_TASK / 2, 0, 0)));
+        }
+        mainThreadExecutor.triggerAll();
+
+        final ExecutionJobVertex sinkJobVertex = scheduler.getExecutionJobVertex(sink.getID());
+        final int decidedParallelism = 3;
+        assertEquals(decidedParallelism, sinkJobVertex.getDecidedParallelism());
+        assertEquals(decidedParallelism, sinkDeployments.size());
+        for (ExecutionVertex sinkVertex : sinkJobVertex.getTaskVertices()) {
+            final int subtaskIndex = sinkVertex.getParallelSubtaskIndex();
+            if (subtaskIndex < decidedParallelism) {
+                assertFalse(sinkVertex.isSkipped());
+                assertEquals(ExecutionState.DEPLOYING, sinkVertex.getExecutionState());
+
+                // each executed subtask consumes the subpartitions of its range of key groups
+                final KeyGroupRange keyGroupRange =
+                        KeyGroupRangeAssignment.computeKeyGroupRangeForOperatorIndex(
+                                maxParallelism, decidedParallelism, subtaskIndex);
+                final InputGateDeploymentDescriptor inputGate =
+                        Iterables.getOnlyElement(sinkDeployments.get(subtaskIndex).getInputGates());
+                assertEquals(
+                        keyGroupRange.getStartKeyGroup(), inputGate.getConsumedSubpartitionIndex());
+                assertEquals(
+                        keyGroupRange.getNumberOfKeyGroups(),
+                        inputGate.getNumberOfConsumedSubpartitions());
+            } else {
+                assertTrue(sinkVertex.isSkipped());
+                assertEquals(ExecutionState.FINISHED, sinkVertex.getExecutionState());
+                assertFalse(sinkDeployments.containsKey(subtaskIndex));
+            }
+        }
+    }
+
+    private static JobVertex createJobVertex(String name, int parallelism) {
+        final JobVertex jobVertex = new JobVertex(name);
+        if (parallelism != PARALLELISM_DEFAULT) {
+            jobVertex.setParallelism(parallelism);
+        }
+        jobVertex.setInvokableClass(NoOpInvokable.class);
+        return jobVertex;
+    }
+
+    private static int decideParallelism(
+            long consumedBytes, int minParallelism, int maxParallelism) {
+        return AdaptiveBatchScheduler.decideParallelism(
+                consumedBytes, AVG_DATA_VOLUME_PER_TASK, minParallelism, maxParallelism);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link AdaptiveSchedulerFactory}. */
+public class AdaptiveSchedulerFactoryTest extends TestLogger {
+
+    @Test
+    public void testMaxParallelismIsDesiredParallelism() {
+        final JobVertex jobVertex = new JobVertex("vertex");
+        jobVertex.setParallelism(4);
+        jobVertex.setMaxParallelism(16);
+
+        final Map<JobVertexID, Integer> desiredParallelism =
+                AdaptiveSchedulerFactory.prepareDesiredParallelism(new JobGraph(jobVertex));
+
+        assertEquals(16, (int) desiredParallelism.get(jobVertex.getID()));
+        assertEquals(4, jobVertex.getParallelism());
+        assertEquals(16, jobVertex.getMaxParallelism());
+    }
+
+    @Test
+    public void testDefaultMaxParallelismIsFixed() {
+        final JobVertex jobVertex = new JobVertex("vertex");
+        jobVertex.setParallelism(200);
+
+        final Map<JobVertexID, Integer> desiredParallelism =
+                AdaptiveSchedulerFactory.prepareDesiredParallelism(new JobGraph(jobVertex));
+
+        // the default max parallelism must not change with the parallelism the job runs at
+        assertEquals(512, jobVertex.getMaxParallelism());
+        assertEquals(512, (int) desiredParallelism.get(jobVertex.getID()));
+    }
+}
@@ -0,0 +1,410 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.api.common.JobStatus;
+import org.apache.flink.runtime.checkpoint.CheckpointProperties;
+import org.apache.flink.runtime.checkpoint.CheckpointRetentionPolicy;
+import org.apache.flink.runtime.checkpoint.CheckpointsCleaner;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpointStore;
+import org.apache.flink.runtime.checkpoint.StandaloneCheckpointRecoveryFactory;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutorServiceAdapter;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutorService;
+import org.apache.flink.runtime.executiongraph.JobStatusListener;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.jobmanager.scheduler.SlotSharingGroup;
+import org.apache.flink.runtime.jobmaster.JobMasterId;
+import org.apache.flink.runtime.jobmaster.SlotInfo;
+import org.apache.flink.runtime.jobmaster.slotpool.DeclarativeSlotPoolBridge;
+import org.apache.flink.runtime.jobmaster.slotpool.TestingDeclarativeSlotPoolBuilder;
+import org.apache.flink.runtime.state.testutils.TestCompletedCheckpointStorageLocation;
+import org.apache.flink.runtime.testingUtils.TestingUtils;
+import org.apache.flink.util.FlinkException;
+import org.apache.flink.util.TestLogger;
+import org.apache.flink.util.clock.SystemClock;
+import org.apache.flink.util.function.BiFunctionWithException;
+
+import org.apache.flink.shaded.guava18.com.google.common.collect.Iterables;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link AdaptiveScheduler}. */
+public class AdaptiveSchedulerTest extends TestLogger {
+
+    private static final long RESOURCE_STABILIZATION_TIMEOUT_MILLIS = 1000L;
+
+    private ManuallyTriggeredScheduledExecutorService mainThreadExecutor;
+
+    private JobVertex jobVertex;
+
+    private JobGraph jobGraph;
+
+    private TestingSchedulerFactory schedulerFactory;
+
+    @Before
+    public void setUp() {
+        mainThreadExecutor = new ManuallyTriggeredScheduledExecutorService();
+
+        // the job is submitted with the parallelism 1, but could run with the parallelism 4
+        jobVertex = createJobVertex(new SlotSharingGroup());
+        jobVertex.setParallelism(1);
+        jobGraph = new JobGraph(jobVertex);
+
+        schedulerFactory =
+                new TestingSchedulerFactory(
+                        new RetainingCheckpointRecoveryFactory(
+                                new StandaloneCheckpointRecoveryFactory()));
+    }
+
+    @Test
+    public void testExecutingSchedulerIsReplacedToStartWithAvailableSlots() throws Exception {
+        final AdaptiveScheduler scheduler = createAdaptiveScheduler(2);
+
+        startScheduling(scheduler);
+
+        assertEquals(2, schedulerFactory.schedulers.size());
+        final TestingScheduler replaced = schedulerFactory.schedulers.get(0);
+        assertEquals(1, replaced.parallelism);
+        assertFalse(replaced.startFuture.isDone());
+        assertTrue(replaced.terminationFuture.isDone());
+
+        final TestingScheduler executing = schedulerFactory.schedulers.get(1);
+        assertEquals(2, executing.parallelism);
+        assertTrue(executing.startFuture.isDone());
+
+        // the termination of the replaced scheduler does not terminate the job
+        assertFalse(scheduler.getTerminationFuture().isDone());
+    }
+
+    @Test
+    public void testExecutingSchedulerIsNotReplacedIfParallelismIsUnchanged() throws Exception {
+        final AdaptiveScheduler scheduler = createAdaptiveScheduler(1);
+
+        startScheduling(scheduler);
+
+        final TestingScheduler executing = Iterables.getOnlyElement(schedulerFactory.schedulers);
+        assertTrue(executing.startFuture.isDone());
+    }
+
+    @Test
+    public void testTerminationOfExecutingSchedulerIsForwarded() throws Exception {
+        final AdaptiveScheduler scheduler = createAdaptiveScheduler(2);
+        startScheduling(scheduler);
+
+        schedulerFactory.schedulers.get(1).terminationFuture.complete(null);
+
+        assertTrue(scheduler.getTerminationFuture().isDone());
+        assertFalse(scheduler.getTerminationFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    public void testFailedTerminationOfExecutingSchedulerIsForwarded() throws Exception {
+        final AdaptiveScheduler scheduler = createAdaptiveScheduler(2);
+        startScheduling(scheduler);
+
+        schedulerFactory
+                .schedulers
+                .get(1)
+                .terminationFuture
+                .completeExceptionally(new FlinkException("Test exception"));
+
+        assertTrue(scheduler.getTerminationFuture().isCompletedExceptionally());
+    }
+
+    @Test
+    public void testReplacingSchedulerRestoresFromSharedCheckpointStore() throws Exception {
+        final AdaptiveScheduler scheduler = createAdaptiveScheduler(2);
+        final TestCompletedCheckpointStorageLocation storageLocation =
+                new TestCompletedCheckpointStorageLocation();
+        final CompletedCheckpoint checkpoint = createCheckpoint(storageLocation);
+        schedulerFactory
+                .schedulers
+                .get(0)
+                .completedCheckpointStore
+                .addCheckpoint(checkpoint, new CheckpointsCleaner(), () -> {});
+
+        startScheduling(scheduler);
+
+        final TestingScheduler executing = schedulerFactory.schedulers.get(1);
+        assertSame(checkpoint, executing.completedCheckpointStore.getLatestCheckpoint(false));
+        assertFalse(storageLocation.isDisposed());
+
+        // the checkpoint store is shut down once the job itself is suspended
+        scheduler.suspend(new FlinkException("Test exception"));
+
+        assertEquals(0, executing.completedCheckpointStore.getNumberOfRetainedCheckpoints());
+        assertTrue(storageLocation.isDisposed());
+    }
+
+    @Test
+    public void testVerticesOfSlotSharingGroupShareSlots() {
+        final SlotSharingGroup slotSharingGroup = new SlotSharingGroup();
+        final JobVertex source = createJobVertex(slotSharingGroup);
+        final JobVertex map = createJobVertex(slotSharingGroup);
+        final Map<JobVertexID, Integer> desiredParallelism = new HashMap<>();
+        desiredParallelism.put(source.getID(), 1);
+        desiredParallelism.put(map.getID(), 128);
+
+        final Map<JobVertexID, Integer> parallelism =
+                computeParallelism(Arrays.asList(source, map), desiredParallelism, 4).get();
+
+        assertEquals(1, (int) parallelism.get(source.getID()));
+        assertEquals(4, (int) parallelism.get(map.getID()));
+    }
+
+    @Test
+    public void testSlotsAreDividedBetweenSlotSharingGroups() {
+        final JobVertex first = createJobVertex(new SlotSharingGroup());
+        final JobVertex second = createJobVertex(new SlotSharingGroup());
+        final JobVertex third = createJobVertex(new SlotSharingGroup());
+        final Map<JobVertexID, Integer> desiredParallelism = new HashMap<>();
+        desiredParallelism.put(first.getID(), 2);
+        desiredParallelism.put(second.getID(), 128);
+        desiredParallelism.put(third.getID(), 128);
+
+        final Map<JobVertexID, Integer> parallelism =
+                computeParallelism(Arrays.asList(first, second, third), desiredParallelism, 12)
+                        .get();
+
+        // the slots the first group does not need are divided between the other groups
+        assertEquals(2, (int) parallelism.get(first.getID()));
+        assertEquals(5, (int) parallelism.get(second.getID()));
+        assertEquals(5, (int) parallelism.get(third.getID()));
+    }
+
+    @Test
+    public void testParallelismIsAtMostDesiredParallelism() {
+        final JobVertex jobVertex = createJobVertex(new SlotSharingGroup());
+        final Map<JobVertexID, Integer> desiredParallelism = new HashMap<>();
+        desiredParallelism.put(jobVertex.getID(), 8);
+
+        final Map<JobVertexID, Integer> parallelism =
+                computeParallelism(
+                                Collections.singletonList(jobVertex), desiredParallelism, 100)
+                        .get();
+
+        assertEquals(8, (int) parallelism.get(jobVertex.getID()));
+    }
+
+    @Test
+    public void testNoParallelismWithoutSlotForEachSlotSharingGroup() {
+        final JobVertex first = createJobVertex(new SlotSharingGroup());
+        final JobVertex second = createJobVertex(new SlotSharingGroup());
+        final Map<JobVertexID, Integer> desiredParallelism = new HashMap<>();
+        desiredParallelism.put(first.getID(), 4);
+        desiredParallelism.put(second.getID(), 4);
+
+        assertFalse(
+                computeParallelism(Arrays.asList(first, second), desiredParallelism, 1)
+                        .isPresent());
+    }
+
+    @Test
+    public void testRescaleWhenParallelismDecreases() {
+        final JobVertexID first = new JobVertexID();
+        final JobVertexID second = new JobVertexID();
+
+        assertTrue(
+                AdaptiveScheduler.shouldRescale(
+                        createParallelism(first, 4, second, 4),
+                        createParallelism(first, 8, second, 3),
+                        10));
+    }
+
+    @Test
+    public void testRescaleWhenParallelismIncreasesByMinIncrease() {
+        final JobVertexID first = new JobVertexID();
+        final JobVertexID second = new JobVertexID();
+        final Map<JobVertexID, Integer> currentParallelism =
+                createParallelism(first, 4, second, 4);
+
+        assertFalse(
+                AdaptiveScheduler.shouldRescale(
+                        currentParallelism, createParallelism(first, 4, second, 4), 1));
+        assertFalse(
+                AdaptiveScheduler.shouldRescale(
+                        currentParallelism, createParallelism(first, 5, second, 4), 2));
+        assertTrue(
+                AdaptiveScheduler.shouldRescale(
+                        currentParallelism, createParallelism(first, 4, second, 6), 2));
+    }
+
+    private AdaptiveScheduler createAdaptiveScheduler(int numberOfSlots) throws Exception {
+        final List<SlotInfo> slots = new ArrayList<>();
+        for (int i = 0; i < numberOfSlots; i++) {
+            slots.add(TestingPhysicalSlot.builder().build());
+        }
+        final DeclarativeSlotPoolBridge slotPool =
+                new DeclarativeSlotPoolBridge(
+                        jobGraph.getJobID(),
+                        (jobId, notifyNewResourceRequirements, idleSlotTimeout, rpcTimeout) ->
+                                new TestingDeclarativeSlotPoolBuilder()
+                                        .setGetAllSlotsInformationSupplier(() -> slots)
+                                        .build(),
+                        SystemClock.getInstance(),
+                        TestingUtils.TIMEOUT(),
+                        TestingUtils.infiniteTime(),
+                        TestingUtils.infiniteTime());
+        slotPool.start(
+                JobMasterId.generate(),
+                "localhost",
+                ComponentMainThreadExecutorServiceAdapter.forMainThread());
+
+        return new AdaptiveScheduler(
+                log,
+                jobGraph,
+                slotPool,
+                schedulerFactory.checkpointRecoveryFactory,
+                schedulerFactory,
+                new ComponentMainThreadExecutorServiceAdapter(
+                        (ScheduledExecutorService) mainThreadExecutor,
+                        Thread.currentThread()),
+                (ignoredA, ignoredB, ignoredC, ignoredD) -> {},
+                System.currentTimeMillis(),
+                Collections.singletonMap(jobVertex.getID(), 4),
+                RESOURCE_STABILIZATION_TIMEOUT_MILLIS,
+                1);
+    }
+
+    /**
+     * Starts the given scheduler, which starts executing the job once the number of slots did not
+     * change for the resource stabilization timeout.
+     */
+    private void startScheduling(AdaptiveScheduler scheduler) {
+        scheduler.startScheduling();
+        mainThreadExecutor.triggerNonPeriodicScheduledTask();
+    }
+
+    private CompletedCheckpoint createCheckpoint(
+            TestCompletedCheckpointStorageLocation storageLocation) {
+        return new CompletedCheckpoint(
+                jobGraph.getJobID(),
+                1L,
+                1L,
+                1L,
+                Collections.emptyMap(),
+                null,
+                CheckpointProperties.forCheckpoint(
+                        CheckpointRetentionPolicy.NEVER_RETAIN_AFTER_TERMINATION),
+                storageLocation);
+    }
+
+    private static JobVertex createJobVertex(SlotSharingGroup slotSharingGroup) {
+        final JobVertex jobVertex = new JobVertex("vertex");
+        jobVertex.setSlotSharingGroup(slotSharingGroup);
+        return jobVertex;
+    }
+
+    private static Map<JobVertexID, Integer> createParallelism(
+            JobVertexID first, int firstParallelism, JobVertexID second, int secondParallelism) {
+        final Map<JobVertexID, Integer> parallelism = new HashMap<>();
+        parallelism.put(first, firstParallelism);
+        parallelism.put(second, secondParallelism);
+        return parallelism;
+    }
+
+    private static Optional<Map<JobVertexID, Integer>> computeParallelism(
+            List<JobVertex> jobVertices,
+            Map<JobVertexID, Integer> desiredParallelism,
+            int numberOfSlots) {
+        return AdaptiveScheduler.computeParallelism(
+                jobVertices, desiredParallelism, numberOfSlots);
+    }
+
+    /**
+     * Creates {@link TestingSchedulerNG schedulers} which use the checkpoint store like the
+     * schedulers of a job do: they shut it down when they are suspended.
+     */
+    private static final class TestingSchedulerFactory
+            implements BiFunctionWithException<
+                    JobGraph, JobStatusListener, SchedulerNG, Exception> {
+
+        private final RetainingCheckpointRecoveryFactory checkpointRecoveryFactory;
+
+        private final List<TestingScheduler> schedulers = new ArrayList<>();
+
+        private TestingSchedulerFactory(
+                RetainingCheckpointRecoveryFactory checkpointRecoveryFactory) {
+            this.checkpointRecoveryFactory = checkpointRecoveryFactory;
+        }
+
+        @Override
+        public SchedulerNG apply(JobGraph jobGraph, JobStatusListener jobStatusListener)
+                throws Exception {
+            final TestingScheduler scheduler =
+                    new TestingScheduler(
+                            Iterables.getOnlyElement(jobGraph.getVertices()).getParallelism(),
+                            checkpointRecoveryFactory.createCheckpointStore(
+                                    jobGraph.getJobID(), 1, ClassLoader.getSystemClassLoader()));
+            schedulers.add(scheduler);
+
+            return TestingSchedulerNG.newBuilder()
+                    .setTerminationFuture(scheduler.terminationFuture)
+                    .setStartSchedulingRunnable(() -> scheduler.startFuture.complete(null))
+                    .setSuspendConsumer(ignored -> scheduler.suspend())
+                    .build();
+        }
+    }
+
+    private static final class TestingScheduler {
+
+        private final int parallelism;
+
+        private final CompletedCheckpointStore completedCheckpointStore;
+
+        private final CompletableFuture<Void> startFuture = new CompletableFuture<>();
+
+        private final CompletableFuture<Void> terminationFuture = new CompletableFuture<>();
+
+        private TestingScheduler(
+                int parallelism, CompletedCheckpointStore completedCheckpointStore) {
+            this.parallelism = parallelism;
+            this.completedCheckpointStore = completedCheckpointStore;
+        }
+
+        private void suspend() {
+            try {
+                completedCheckpointStore.shutdown(
+                        JobStatus.SUSPENDED, new CheckpointsCleaner(), () -> {});
+                terminationFuture.complete(null);
+            } catch (Exception e) {
+                terminationFuture.completeExceptionally(e);
+            }
+        }
+    }
+}
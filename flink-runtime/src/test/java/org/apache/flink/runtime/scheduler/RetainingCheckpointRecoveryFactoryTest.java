@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.JobStatus;
+import org.apache.flink.runtime.checkpoint.CheckpointIDCounter;
+import org.apache.flink.runtime.checkpoint.CheckpointProperties;
+import org.apache.flink.runtime.checkpoint.CheckpointRetentionPolicy;
+import org.apache.flink.runtime.checkpoint.CheckpointsCleaner;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpoint;
+import org.apache.flink.runtime.checkpoint.CompletedCheckpointStore;
+import org.apache.flink.runtime.checkpoint.StandaloneCheckpointRecoveryFactory;
+import org.apache.flink.runtime.state.testutils.TestCompletedCheckpointStorageLocation;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link RetainingCheckpointRecoveryFactory}. */
+public class RetainingCheckpointRecoveryFactoryTest extends TestLogger {
+
+    private final JobID jobId = new JobID();
+
+    private RetainingCheckpointRecoveryFactory checkpointRecoveryFactory;
+
+    @Before
+    public void setUp() {
+        checkpointRecoveryFactory =
+                new RetainingCheckpointRecoveryFactory(new StandaloneCheckpointRecoveryFactory());
+    }
+
+    @Test
+    public void testServicesAreCreatedOnce() throws Exception {
+        assertSame(createCheckpointStore(), createCheckpointStore());
+        assertSame(
+                checkpointRecoveryFactory.createCheckpointIDCounter(jobId),
+                checkpointRecoveryFactory.createCheckpointIDCounter(jobId));
+    }
+
+    @Test
+    public void testServicesAreRetainedOnSuspension() throws Exception {
+        final TestCompletedCheckpointStorageLocation storageLocation =
+                new TestCompletedCheckpointStorageLocation();
+        final CompletedCheckpoint checkpoint = createCheckpoint(42L, storageLocation);
+        final CompletedCheckpointStore completedCheckpointStore = createCheckpointStore();
+        completedCheckpointStore.addCheckpoint(checkpoint, new CheckpointsCleaner(), () -> {});
+        final CheckpointIDCounter checkpointIdCounter =
+                checkpointRecoveryFactory.createCheckpointIDCounter(jobId);
+        checkpointIdCounter.start();
+        checkpointIdCounter.setCount(43L);
+
+        // the scheduler which is replaced shuts down the services
+        completedCheckpointStore.shutdown(JobStatus.SUSPENDED, new CheckpointsCleaner(), () -> {});
+        checkpointIdCounter.shutdown(JobStatus.SUSPENDED);
+
+        // the scheduler which replaces it restores the latest checkpoint
+        assertSame(checkpoint, createCheckpointStore().getLatestCheckpoint(false));
+        assertFalse(storageLocation.isDisposed());
+        assertEquals(
+                43L, checkpointRecoveryFactory.createCheckpointIDCounter(jobId).getAndIncrement());
+    }
+
+    @Test
+    public void testServicesAreShutDownIfNotRetained() throws Exception {
+        final TestCompletedCheckpointStorageLocation storageLocation =
+                new TestCompletedCheckpointStorageLocation();
+        final CompletedCheckpointStore completedCheckpointStore = createCheckpointStore();
+        completedCheckpointStore.addCheckpoint(
+                createCheckpoint(42L, storageLocation), new CheckpointsCleaner(), () -> {});
+
+        checkpointRecoveryFactory.setRetainOnShutdown(false);
+        completedCheckpointStore.shutdown(JobStatus.SUSPENDED, new CheckpointsCleaner(), () -> {});
+
+        assertEquals(0, completedCheckpointStore.getNumberOfRetainedCheckpoints());
+        assertTrue(storageLocation.isDisposed());
+    }
+
+    @Test
+    public void testServicesAreShutDownInGloballyTerminalState() throws Exception {
+        final TestCompletedCheckpointStorageLocation storageLocation =
+                new TestCompletedCheckpointStorageLocation();
+        final CompletedCheckpointStore completedCheckpointStore = createCheckpointStore();
+        completedCheckpointStore.addCheckpoint(
+                createCheckpoint(42L, storageLocation), new CheckpointsCleaner(), () -> {});
+
+        completedCheckpointStore.shutdown(JobStatus.FINISHED, new CheckpointsCleaner(), () -> {});
+
+        assertEquals(0, completedCheckpointStore.getNumberOfRetainedCheckpoints());
+        assertTrue(storageLocation.isDisposed());
+    }
+
+    private CompletedCheckpointStore createCheckpointStore() throws Exception {
+        return checkpointRecoveryFactory.createCheckpointStore(
+                jobId, 1, ClassLoader.getSystemClassLoader());
+    }
+
+    private CompletedCheckpoint createCheckpoint(
+            long checkpointId, TestCompletedCheckpointStorageLocation storageLocation) {
+        return new CompletedCheckpoint(
+                jobId,
+                checkpointId,
+                1L,
+                1L,
+                Collections.emptyMap(),
+                null,
+                CheckpointProperties.forCheckpoint(
+                        CheckpointRetentionPolicy.NEVER_RETAIN_AFTER_TERMINATION),
+                storageLocation);
+    }
+}
@@ -55,6 +55,7 @@ import org.apache.flink.runtime.jobgraph.tasks.JobCheckpointingSettings;
 import org.apache.flink.runtime.jobmanager.slots.TaskManagerGateway;
 import org.apache.flink.runtime.jobmaster.DefaultExecutionDeploymentTracker;
 import org.apache.flink.runtime.jobmaster.slotpool.PhysicalSlotProvider;
+import org.apache.flink.runtime.jobmaster.slotpool.SlotPool;
 import org.apache.flink.runtime.messages.Acknowledge;
 import org.apache.flink.runtime.messages.checkpoint.AcknowledgeCheckpoint;
 import org.apache.flink.runtime.metrics.groups.JobManagerJobMetricGroup;
@@ -70,6 +71,7 @@ import org.apache.flink.runtime.taskexecutor.TaskExecutorOperatorEventGateway;
 import org.apache.flink.runtime.taskmanager.TaskExecutionState;
 import org.apache.flink.runtime.testingUtils.TestingUtils;
 import org.apache.flink.util.SerializedValue;
+import org.apache.flink.util.clock.Clock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +82,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
@@ -553,5 +556,85 @@ public class SchedulerTestingUtils {
                     mainThreadExecutor,
                     jobStatusListener);
         }
+
+        public AdaptiveBatchScheduler buildAdaptiveBatchScheduler(
+                final Set<JobVertexID> adaptiveJobVertices,
+                final int minParallelism,
+                final long avgDataVolumePerTask)
+                throws Exception {
+            return new AdaptiveBatchScheduler(
+                    log,
+                    jobGraph,
+                    ioExecutor,
+                    jobMasterConfiguration,
+                    componentMainThreadExecutor -> {},
+                    futureExecutor,
+                    delayExecutor,
+                    userCodeLoader,
+                    checkpointRecoveryFactory,
+                    rpcTimeout,
+                    blobWriter,
+                    jobManagerJobMetricGroup,
+                    shuffleMaster,
+                    partitionTracker,
+                    schedulingStrategyFactory,
+                    failoverStrategyFactory,
+                    restartBackoffTimeStrategy,
+                    executionVertexOperations,
+                    executionVertexVersioner,
+                    executionSlotAllocatorFactory,
+                    new DefaultExecutionDeploymentTracker(),
+                    System.currentTimeMillis(),
+                    mainThreadExecutor,
+                    jobStatusListener,
+                    adaptiveJobVertices,
+                    minParallelism,
+                    avgDataVolumePerTask);
+        }
+
+        public SpeculativeScheduler buildSpeculativeScheduler(
+                final Set<JobVertexID> adaptiveJobVertices,
+                final int minParallelism,
+                final long avgDataVolumePerTask,
+                final SlotPool slotPool,
+                final SlowTaskDetector slowTaskDetector,
+                final long checkIntervalMillis,
+                final long blockSlowNodeDurationMillis,
+                final Clock clock)
+                throws Exception {
+            return new SpeculativeScheduler(
+                    log,
+                    jobGraph,
+                    ioExecutor,
+                    jobMasterConfiguration,
+                    componentMainThreadExecutor -> {},
+                    futureExecutor,
+                    delayExecutor,
+                    userCodeLoader,
+                    checkpointRecoveryFactory,
+                    rpcTimeout,
+                    blobWriter,
+                    jobManagerJobMetricGroup,
+                    shuffleMaster,
+                    partitionTracker,
+                    schedulingStrategyFactory,
+                    failoverStrategyFactory,
+                    restartBackoffTimeStrategy,
+                    executionVertexOperations,
+                    executionVertexVersioner,
+                    executionSlotAllocatorFactory,
+                    new DefaultExecutionDeploymentTracker(),
+                    System.currentTimeMillis(),
+                    mainThreadExecutor,
+                    jobStatusListener,
+                    adaptiveJobVertices,
+                    minParallelism,
+                    avgDataVolumePerTask,
+                    slotPool,
+                    slowTaskDetector,
+                    checkIntervalMillis,
+                    blockSlowNodeDurationMillis,
+                    clock);
+        }
     }
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link SlowTaskDetector}. */
+public class SlowTaskDetectorTest extends TestLogger {
+
+    @Test
+    public void testNoBaselineBeforeEnoughSubtasksFinished() {
+        final SlowTaskDetector slowTaskDetector = new SlowTaskDetector(0.5, 1.5, 0L);
+
+        assertEquals(-1L, slowTaskDetector.computeBaseline(Collections.emptyList(), 4));
+        assertEquals(-1L, slowTaskDetector.computeBaseline(Collections.singletonList(100L), 4));
+        assertEquals(150L, slowTaskDetector.computeBaseline(Arrays.asList(100L, 100L), 4));
+    }
+
+    @Test
+    public void testBaselineIsMultipleOfMedian() {
+        final SlowTaskDetector slowTaskDetector = new SlowTaskDetector(0.5, 2.0, 0L);
+
+        assertEquals(
+                200L, slowTaskDetector.computeBaseline(Arrays.asList(300L, 10L, 100L, 90L), 5));
+    }
+
+    @Test
+    public void testBaselineIsAtLeastLowerBound() {
+        final SlowTaskDetector slowTaskDetector = new SlowTaskDetector(0.5, 1.5, 1000L);
+
+        assertEquals(1000L, slowTaskDetector.computeBaseline(Arrays.asList(100L, 100L), 2));
+        assertEquals(3000L, slowTaskDetector.computeBaseline(Arrays.asList(2000L, 2000L), 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBaselineMultiplierMustBeAtLeastOne() {
+        new SlowTaskDetector(0.5, 0.5, 0L);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.scheduler;
+
+import org.apache.flink.api.common.io.DefaultInputSplitAssigner;
+import org.apache.flink.core.io.GenericInputSplit;
+import org.apache.flink.core.io.InputSplit;
+import org.apache.flink.core.io.InputSplitAssigner;
+import org.apache.flink.core.io.InputSplitSource;
+import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutor;
+import org.apache.flink.runtime.concurrent.ComponentMainThreadExecutorServiceAdapter;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutorService;
+import org.apache.flink.runtime.deployment.ResultPartitionDeploymentDescriptor;
+import org.apache.flink.runtime.deployment.TaskDeploymentDescriptor;
+import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.executiongraph.Execution;
+import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
+import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.executiongraph.utils.SimpleAckingTaskManagerGateway;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
+import org.apache.flink.runtime.io.network.partition.TestingJobMasterPartitionTracker;
+import org.apache.flink.runtime.jobgraph.DistributionPattern;
+import org.apache.flink.runtime.jobgraph.JobGraph;
+import org.apache.flink.runtime.jobgraph.JobVertex;
+import org.apache.flink.runtime.jobmaster.slotpool.SlotPoolBuilder;
+import org.apache.flink.runtime.jobmaster.slotpool.SlotPoolUtils;
+import org.apache.flink.runtime.jobmaster.slotpool.TestingSlotPoolImpl;
+import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
+import org.apache.flink.runtime.taskmanager.TaskExecutionState;
+import org.apache.flink.runtime.testtasks.NoOpInvokable;
+import org.apache.flink.runtime.testutils.DirectScheduledExecutorService;
+import org.apache.flink.util.TestLogger;
+import org.apache.flink.util.clock.ManualClock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/** Tests for {@link SpeculativeScheduler}. */
+public class SpeculativeSchedulerTest extends TestLogger {
+
+    private static final long CHECK_INTERVAL_MILLIS = 1000L;
+
+    private static final long BLOCK_SLOW_NODE_DURATION_MILLIS = 60_000L;
+
+    /** Tasks running shorter than this are not slow, so only advancing the clock makes them slow. */
+    private static final long BASELINE_LOWER_BOUND_MILLIS = 60_000L;
+
+    private ManuallyTriggeredScheduledExecutorService mainThreadExecutor;
+
+    private ManualClock clock;
+
+    private Map<ExecutionAttemptID, TaskDeploymentDescriptor> deployments;
+
+    private List<TaskDeploymentDescriptor> speculativeDeployments;
+
+    private List<ExecutionAttemptID> cancelledAttempts;
+
+    private List<ResultPartitionID> releasedPartitions;
+
+    private SimpleAckingTaskManagerGateway taskManagerGateway;
+
+    private TestingSlotPoolImpl slotPool;
+
+    private TestingJobMasterPartitionTracker partitionTracker;
+
+    private JobVertex source;
+
+    private JobGraph jobGraph;
+
+    private SpeculativeScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        mainThreadExecutor = new ManuallyTriggeredScheduledExecutorService();
+        clock = new ManualClock(TimeUnit.MILLISECONDS.toNanos(System.currentTimeMillis()));
+        deployments = new HashMap<>();
+        speculativeDeployments = new ArrayList<>();
+        cancelledAttempts = new ArrayList<>();
+        releasedPartitions = new ArrayList<>();
+
+        taskManagerGateway = new SimpleAckingTaskManagerGateway();
+        taskManagerGateway.setSubmitConsumer(
+                tdd -> deployments.put(tdd.getExecutionAttemptId(), tdd));
+        taskManagerGateway.setCancelConsumer(cancelledAttempts::add);
+
+        // the slot pool only offers a slot on another TaskManager to speculative attempts
+        final SimpleAckingTaskManagerGateway speculativeTaskManagerGateway =
+                new SimpleAckingTaskManagerGateway();
+        speculativeTaskManagerGateway.setSubmitConsumer(
+                tdd -> {
+                    deployments.put(tdd.getExecutionAttemptId(), tdd);
+                    speculativeDeployments.add(tdd);
+                });
+        speculativeTaskManagerGateway.setCancelConsumer(cancelledAttempts::add);
+
+        final ComponentMainThreadExecutor slotPoolMainThreadExecutor =
+                ComponentMainThreadExecutorServiceAdapter.forMainThread();
+        slotPool =
+                new SlotPoolBuilder(slotPoolMainThreadExecutor)
+                        .setResourceManagerGateway(null)
+                        .build();
+        SlotPoolUtils.offerSlots(
+                slotPool,
+                slotPoolMainThreadExecutor,
+                Collections.singletonList(ResourceProfile.ANY),
+                speculativeTaskManagerGateway);
+
+        partitionTracker = new TestingJobMasterPartitionTracker();
+        partitionTracker.setStopTrackingAndReleasePartitionsConsumer(releasedPartitions::addAll);
+
+        source = createJobVertex("source", 2);
+        final JobVertex sink = createJobVertex("sink", 1);
+        sink.connectNewDataSetAsInput(
+                source, DistributionPattern.ALL_TO_ALL, ResultPartitionType.BLOCKING);
+        jobGraph = new JobGraph(source, sink);
+    }
+
+    @After
+    public void tearDown() {
+        if (slotPool != null) {
+            slotPool.close();
+        }
+    }
+
+    private void startScheduling() throws Exception {
+        scheduler =
+                SchedulerTestingUtils.newSchedulerBuilder(
+                                jobGraph,
+                                new ComponentMainThreadExecutorServiceAdapter(
+                                        (ScheduledExecutorService) mainThreadExecutor,
+                                        Thread.currentThread()))
+                        .setFutureExecutor(new DirectScheduledExecutorService())
+                        .setPartitionTracker(partitionTracker)
+                        .setExecutionSlotAllocatorFactory(
+                                new TestExecutionSlotAllocatorFactory(taskManagerGateway))
+                        .buildSpeculativeScheduler(
+                                Collections.emptySet(),
+                                1,
+                                1024L,
+                                slotPool,
+                                new SlowTaskDetector(0.5, 1.0, BASELINE_LOWER_BOUND_MILLIS),
+                                CHECK_INTERVAL_MILLIS,
+                                BLOCK_SLOW_NODE_DURATION_MILLIS,
+                                clock);
+
+        scheduler.startScheduling();
+        mainThreadExecutor.triggerAll();
+    }
+
+    @Test
+    public void testSpeculativeAttemptIsDeployedToAnotherTaskManager() throws Exception {
+        startScheduling();
+        final ExecutionVertex slowTask = startSpeculativeAttempt();
+
+        final Execution speculativeExecution = slowTask.getSpeculativeExecutionAttempt();
+        assertNotNull(speculativeExecution);
+        assertEquals(1, speculativeExecution.getAttemptNumber());
+        assertEquals(1, speculativeDeployments.size());
+        assertEquals(
+                speculativeExecution.getAttemptId(),
+                speculativeDeployments.get(0).getExecutionAttemptId());
+        assertEquals(
+                slowTask.getParallelSubtaskIndex(),
+                speculativeDeployments.get(0).getSubtaskIndex());
+    }
+
+    @Test
+    public void testOriginalAttemptIsCancelledIfSpeculativeAttemptFinishesFirst()
+            throws Exception {
+        startScheduling();
+        final ExecutionVertex slowTask = startSpeculativeAttempt();
+        final Execution originalExecution = slowTask.getCurrentExecutionAttempt();
+        final Execution speculativeExecution = slowTask.getSpeculativeExecutionAttempt();
+
+        finish(speculativeExecution);
+
+        assertEquals(speculativeExecution, slowTask.getCurrentExecutionAttempt());
+        assertNull(slowTask.getSpeculativeExecutionAttempt());
+        assertEquals(ExecutionState.FINISHED, slowTask.getExecutionState());
+        assertEquals(ExecutionState.CANCELING, originalExecution.getState());
+        assertThat(cancelledAttempts, contains(originalExecution.getAttemptId()));
+        assertThat(
+                releasedPartitions,
+                containsInAnyOrder(getProducedPartitions(originalExecution).toArray()));
+    }
+
+    @Test
+    public void testSpeculativeAttemptIsCancelledIfOriginalAttemptFinishesFirst()
+            throws Exception {
+        startScheduling();
+        final ExecutionVertex slowTask = startSpeculativeAttempt();
+        final Execution originalExecution = slowTask.getCurrentExecutionAttempt();
+        final Execution speculativeExecution = slowTask.getSpeculativeExecutionAttempt();
+
+        finish(originalExecution);
+
+        assertEquals(originalExecution, slowTask.getCurrentExecutionAttempt());
+        assertNull(slowTask.getSpeculativeExecutionAttempt());
+        assertEquals(ExecutionState.FINISHED, slowTask.getExecutionState());
+        assertEquals(ExecutionState.CANCELING, speculativeExecution.getState());
+        assertThat(cancelledAttempts, contains(speculativeExecution.getAttemptId()));
+        assertThat(
+                releasedPartitions,
+                containsInAnyOrder(getProducedPartitions(speculativeExecution).toArray()));
+    }
+
+    @Test
+    public void testSourceWithInputSplitsIsNotSpeculated() throws Exception {
+        source.setInputSplitSource(new TestingInputSplitSource());
+        startScheduling();
+
+        final ExecutionVertex slowTask = detectSlowSourceTask();
+
+        assertNull(slowTask.getSpeculativeExecutionAttempt());
+        assertEquals(0, speculativeDeployments.size());
+        assertEquals(ExecutionState.RUNNING, slowTask.getExecutionState());
+    }
+
+    private ExecutionVertex startSpeculativeAttempt() {
+        final ExecutionVertex slowTask = detectSlowSourceTask();
+
+        assertNotNull(slowTask.getSpeculativeExecutionAttempt());
+        assertEquals(0, releasedPartitions.size());
+        return slowTask;
+    }
+
+    /**
+     * Finishes the first subtask of the source while the second one is running, and lets the
+     * scheduler detect the second one as slow by advancing the clock beyond the baseline.
+     */
+    private ExecutionVertex detectSlowSourceTask() {
+        final ExecutionVertex[] sourceVertices =
+                scheduler.getExecutionJobVertex(source.getID()).getTaskVertices();
+
+        updateTaskExecutionState(
+                sourceVertices[1].getCurrentExecutionAttempt(), ExecutionState.RUNNING);
+        finish(sourceVertices[0].getCurrentExecutionAttempt());
+
+        // the slow task is not detected before it runs longer than the baseline
+        mainThreadExecutor.triggerNonPeriodicScheduledTask();
+        mainThreadExecutor.triggerAll();
+        assertNull(sourceVertices[1].getSpeculativeExecutionAttempt());
+
+        clock.advanceTime(10 * BASELINE_LOWER_BOUND_MILLIS, TimeUnit.MILLISECONDS);
+        mainThreadExecutor.triggerNonPeriodicScheduledTask();
+        mainThreadExecutor.triggerAll();
+
+        return sourceVertices[1];
+    }
+
+    private void finish(Execution execution) {
+        updateTaskExecutionState(execution, ExecutionState.FINISHED);
+    }
+
+    private void updateTaskExecutionState(Execution execution, ExecutionState state) {
+        scheduler.updateTaskExecutionState(
+                new TaskExecutionState(jobGraph.getJobID(), execution.getAttemptId(), state));
+        mainThreadExecutor.triggerAll();
+    }
+
+    private List<ResultPartitionID> getProducedPartitions(Execution execution) {
+        return deployments.get(execution.getAttemptId()).getProducedPartitions().stream()
+                .map(ResultPartitionDeploymentDescriptor::getShuffleDescriptor)
+                .map(ShuffleDescriptor::getResultPartitionID)
+                .collect(Collectors.toList());
+    }
+
+    private static JobVertex createJobVertex(String name, int parallelism) {
+        final JobVertex jobVertex = new JobVertex(name);
+        jobVertex.setParallelism(parallelism);
+        jobVertex.setInvokableClass(NoOpInvokable.class);
+        return jobVertex;
+    }
+
+    /** An {@link InputSplitSource} which creates one split per subtask. */
+    private static final class TestingInputSplitSource implements InputSplitSource<InputSplit> {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public InputSplit[] createInputSplits(int minNumSplits) {
+            final InputSplit[] inputSplits = new InputSplit[minNumSplits];
+            for (int i = 0; i < minNumSplits; i++) {
+                inputSplits[i] = new GenericInputSplit(i, minNumSplits);
+            }
+            return inputSplits;
+        }
+
+        @Override
+        public InputSplitAssigner getInputSplitAssigner(InputSplit[] inputSplits) {
+            return new DefaultInputSplitAssigner(inputSplits);
+        }
+    }
+}
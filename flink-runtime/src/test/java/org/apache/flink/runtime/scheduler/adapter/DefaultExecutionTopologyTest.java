@@ -18,7 +18,6 @@
 
 package org.apache.flink.runtime.scheduler.adapter;
 
-import org.apache.flink.runtime.executiongraph.ExecutionEdge;
 import org.apache.flink.runtime.executiongraph.ExecutionGraph;
 import org.apache.flink.runtime.executiongraph.ExecutionVertex;
 import org.apache.flink.runtime.executiongraph.IntermediateResultPartition;
@@ -37,14 +36,12 @@ import org.apache.flink.shaded.guava18.com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.apache.flink.runtime.executiongraph.ExecutionGraphTestUtils.createNoOpVertex;
@@ -110,6 +107,24 @@ public class DefaultExecutionTopologyTest extends TestLogger {
         assertEquals(ResultPartitionState.CONSUMABLE, schedulingResultPartition.getState());
     }
 
+    @Test
+    public void testAllToAllGroupsAreShared() {
+        final Set<List<DefaultResultPartition>> consumedPartitionGroups =
+                Sets.newIdentityHashSet();
+        final Set<List<DefaultExecutionVertex>> consumerGroups = Sets.newIdentityHashSet();
+        for (DefaultExecutionVertex vertex : adapter.getVertices()) {
+            consumedPartitionGroups.addAll(vertex.getGroupedConsumedResults());
+            for (DefaultResultPartition partition : vertex.getProducedResults()) {
+                consumerGroups.addAll(partition.getGroupedConsumers());
+            }
+        }
+
+        assertEquals(1, consumedPartitionGroups.size());
+        assertEquals(3, Iterables.getOnlyElement(consumedPartitionGroups).size());
+        assertEquals(1, consumerGroups.size());
+        assertEquals(3, Iterables.getOnlyElement(consumerGroups).size());
+    }
+
     @Test
     public void testGetVertexOrThrow() {
         try {
@@ -181,10 +196,8 @@ public class DefaultExecutionTopologyTest extends TestLogger {
             assertEquals(originalVertex.getID(), adaptedVertex.getId());
 
             List<IntermediateResultPartition> originalConsumedPartitions =
-                    IntStream.range(0, originalVertex.getNumberOfInputs())
-                            .mapToObj(originalVertex::getInputEdges)
-                            .flatMap(Arrays::stream)
-                            .map(ExecutionEdge::getSource)
+                    originalVertex.getAllConsumedPartitionGroups().stream()
+                            .flatMap(group -> group.getResultPartitions().stream())
                             .collect(Collectors.toList());
             Iterable<DefaultResultPartition> adaptedConsumedPartitions =
                     adaptedVertex.getConsumedResults();
@@ -228,9 +241,8 @@ public class DefaultExecutionTopologyTest extends TestLogger {
             assertPartitionEquals(originalPartition, adaptedPartition);
 
             List<ExecutionVertex> originalConsumers =
-                    originalPartition.getConsumers().stream()
-                            .flatMap(Collection::stream)
-                            .map(ExecutionEdge::getTarget)
+                    originalPartition.getConsumerVertexGroups().stream()
+                            .flatMap(group -> group.getVertices().stream())
                             .collect(Collectors.toList());
             Iterable<DefaultExecutionVertex> adaptedConsumers = adaptedPartition.getConsumers();
 
@@ -70,7 +70,8 @@ public class DefaultExecutionVertexTest extends TestLogger {
                         new ExecutionVertexID(new JobVertexID(), 0),
                         Collections.emptyList(),
                         stateSupplier);
-        consumerVertex.addConsumedResult(schedulingResultPartition);
+        consumerVertex.addConsumedPartitionGroup(
+                Collections.singletonList(schedulingResultPartition));
     }
 
     @Test
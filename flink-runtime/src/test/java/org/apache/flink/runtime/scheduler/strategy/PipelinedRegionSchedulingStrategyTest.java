@@ -28,6 +28,7 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -169,6 +170,51 @@ public class PipelinedRegionSchedulingStrategyTest extends TestLogger {
         assertLatestScheduledVerticesAreEqualTo(expectedScheduledVertices);
     }
 
+    @Test
+    public void testSchedulingConsumersOfHybridPartitionsWhenProducersRunning() {
+        final TestingSchedulingTopology topology = new TestingSchedulingTopology();
+
+        final List<TestingSchedulingExecutionVertex> producers =
+                topology.addExecutionVertices().withParallelism(2).finish();
+        final List<TestingSchedulingExecutionVertex> consumers =
+                topology.addExecutionVertices().withParallelism(1).finish();
+
+        final List<TestingSchedulingResultPartition> partitions =
+                topology.connectAllToAll(producers, consumers)
+                        .withResultPartitionState(ResultPartitionState.CREATED)
+                        .withResultPartitionType(ResultPartitionType.HYBRID)
+                        .finish();
+
+        final PipelinedRegionSchedulingStrategy schedulingStrategy = startScheduling(topology);
+        assertThat(testingSchedulerOperation.getScheduledVertices(), hasSize(2));
+
+        producers.get(0).setState(ExecutionState.RUNNING);
+        schedulingStrategy.onExecutionStateChange(producers.get(0).getId(), ExecutionState.RUNNING);
+
+        // not all producers of the consumer's inputs are running yet
+        assertThat(testingSchedulerOperation.getScheduledVertices(), hasSize(2));
+
+        producers.get(1).setState(ExecutionState.RUNNING);
+        schedulingStrategy.onExecutionStateChange(producers.get(1).getId(), ExecutionState.RUNNING);
+
+        assertThat(testingSchedulerOperation.getScheduledVertices(), hasSize(3));
+        assertLatestScheduledVerticesAreEqualTo(
+                Collections.singletonList(Collections.singletonList(consumers.get(0))));
+
+        // the consumer is not scheduled again once the producers finished
+        consumers.get(0).setState(ExecutionState.DEPLOYING);
+        for (TestingSchedulingExecutionVertex producer : producers) {
+            producer.setState(ExecutionState.FINISHED);
+        }
+        for (TestingSchedulingResultPartition partition : partitions) {
+            partition.setState(ResultPartitionState.CONSUMABLE);
+        }
+        schedulingStrategy.onExecutionStateChange(
+                producers.get(1).getId(), ExecutionState.FINISHED);
+
+        assertThat(testingSchedulerOperation.getScheduledVertices(), hasSize(3));
+    }
+
     private PipelinedRegionSchedulingStrategy startScheduling(
             TestingSchedulingTopology testingSchedulingTopology) {
         final PipelinedRegionSchedulingStrategy schedulingStrategy =
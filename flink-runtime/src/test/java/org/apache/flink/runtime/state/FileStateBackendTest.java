@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.state;
 
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.util.TernaryBoolean;
 
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -38,19 +39,29 @@ import java.util.List;
 @RunWith(Parameterized.class)
 public class FileStateBackendTest extends StateBackendTestBase<FsStateBackend> {
 
-    @Parameterized.Parameters
-    public static List<Boolean> modes() {
-        return Arrays.asList(true, false);
+    @Parameterized.Parameters(name = "async: {0}, incremental: {1}")
+    public static List<Object[]> modes() {
+        return Arrays.asList(
+                new Object[] {true, false}, new Object[] {false, false}, new Object[] {true, true});
     }
 
     @Parameterized.Parameter public boolean useAsyncMode;
 
+    @Parameterized.Parameter(1)
+    public boolean useIncrementalMode;
+
     @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
 
     @Override
     protected FsStateBackend getStateBackend() throws Exception {
         File checkpointPath = tempFolder.newFolder();
-        return new FsStateBackend(checkpointPath.toURI(), useAsyncMode);
+        return new FsStateBackend(
+                checkpointPath.toURI(),
+                null,
+                -1,
+                -1,
+                TernaryBoolean.fromBoolean(useAsyncMode),
+                TernaryBoolean.fromBoolean(useIncrementalMode));
     }
 
     @Override
@@ -19,9 +19,14 @@
 package org.apache.flink.runtime.state;
 
 import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Optional;
 
@@ -31,6 +36,8 @@ import static org.junit.Assert.assertTrue;
 
 public class SharedStateRegistryTest {
 
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
     /** Validate that all states can be correctly registered at the registry. */
     @Test
     public void testRegistryNormal() {
@@ -93,6 +100,60 @@ public class SharedStateRegistryTest {
         sharedStateRegistry.unregisterReference(new SharedStateRegistryKey("non-existent"));
     }
 
+    /** Validate that a segment file is deleted once no handle to one of its segments is left. */
+    @Test
+    public void testSegmentFileIsDeletedWithLastSegment() throws Exception {
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        File segmentFile = temporaryFolder.newFile();
+        Path segmentFilePath = Path.fromLocalFile(segmentFile);
+
+        SegmentFileStateHandle firstSegment = new SegmentFileStateHandle(segmentFilePath, 0, 10);
+        SegmentFileStateHandle secondSegment = new SegmentFileStateHandle(segmentFilePath, 10, 5);
+        SharedStateRegistryKey firstKey = new SharedStateRegistryKey("first");
+        SharedStateRegistryKey secondKey = new SharedStateRegistryKey("second");
+
+        sharedStateRegistry.registerReference(firstKey, firstSegment);
+        sharedStateRegistry.registerReference(firstKey, firstSegment);
+        sharedStateRegistry.registerReference(secondKey, secondSegment);
+
+        sharedStateRegistry.unregisterReference(firstKey);
+        sharedStateRegistry.unregisterReference(secondKey);
+        assertTrue(segmentFile.exists());
+
+        sharedStateRegistry.unregisterReference(firstKey);
+        assertFalse(segmentFile.exists());
+    }
+
+    /**
+     * Validate that segments which are not shared between checkpoints keep their segment file
+     * alive, together with the shared segments in the same file.
+     */
+    @Test
+    public void testSegmentReferencesKeepSegmentFile() throws Exception {
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        File segmentFile = temporaryFolder.newFile();
+        Path segmentFilePath = Path.fromLocalFile(segmentFile);
+
+        SegmentFileStateHandle sharedSegment = new SegmentFileStateHandle(segmentFilePath, 0, 10);
+        SegmentFileStateHandle exclusiveSegment =
+                new SegmentFileStateHandle(segmentFilePath, 10, 5);
+        SharedStateRegistryKey sharedKey = new SharedStateRegistryKey("shared");
+
+        sharedStateRegistry.registerReference(sharedKey, sharedSegment);
+        sharedStateRegistry.registerSegmentReference(exclusiveSegment);
+        // other state is owned by its checkpoint and not registered
+        sharedStateRegistry.registerSegmentReference(new TestSharedState("other"));
+
+        sharedStateRegistry.unregisterReference(sharedKey);
+        assertTrue(segmentFile.exists());
+
+        exclusiveSegment.discardState();
+        assertTrue(segmentFile.exists());
+
+        sharedStateRegistry.unregisterSegmentReference(exclusiveSegment);
+        assertFalse(segmentFile.exists());
+    }
+
     private static class TestSharedState implements StreamStateHandle {
         private static final long serialVersionUID = 4468635881465159780L;
 
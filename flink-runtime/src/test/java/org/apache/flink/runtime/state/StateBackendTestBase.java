@@ -3440,6 +3440,50 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> exten
         backend.dispose();
     }
 
+    /** Verify that a batched lookup of several keys returns the values of the keys. */
+    @Test
+    public void testValueStateMultiGet() throws Exception {
+        AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+        try {
+            ValueStateDescriptor<String> kvId =
+                    new ValueStateDescriptor<>("id", String.class, "default");
+
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+            @SuppressWarnings("unchecked")
+            InternalValueState<Integer, VoidNamespace, String> internalState =
+                    (InternalValueState<Integer, VoidNamespace, String>) state;
+
+            for (int key = 0; key < 100; key += 2) {
+                backend.setCurrentKey(key);
+                state.update("value-" + key);
+            }
+
+            backend.setCurrentKey(7);
+            List<Integer> keys = new ArrayList<>();
+            List<String> expectedValues = new ArrayList<>();
+            for (int key = 99; key >= 0; key--) {
+                keys.add(key);
+                expectedValues.add(key % 2 == 0 ? "value-" + key : "default");
+            }
+            assertEquals(expectedValues, internalState.multiGet(keys));
+            assertEquals(Collections.emptyList(), internalState.multiGet(Collections.emptyList()));
+
+            // the current key is not changed by the lookup
+            assertEquals(Integer.valueOf(7), backend.getCurrentKey());
+            assertEquals("default", state.value());
+            state.update("value-7");
+            assertEquals(
+                    Arrays.asList("value-7", "value-6"),
+                    internalState.multiGet(Arrays.asList(7, 6)));
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
     /** Verify that an empty {@code ReduceState} yields {@code null}. */
     @Test
     public void testReducingStateDefaultValue() throws Exception {
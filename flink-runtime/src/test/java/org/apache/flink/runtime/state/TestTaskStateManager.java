@@ -26,8 +26,10 @@ import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.PrioritizedOperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.checkpoint.channel.SequentialChannelStateReader;
+import org.apache.flink.runtime.concurrent.Executors;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.runtime.taskmanager.CheckpointResponder;
 import org.apache.flink.runtime.taskmanager.TestCheckpointResponder;
 import org.apache.flink.util.Preconditions;
@@ -39,6 +41,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 /** Implementation of {@link TaskStateManager} for tests. */
 public class TestTaskStateManager implements TaskStateManager {
@@ -55,6 +58,7 @@ public class TestTaskStateManager implements TaskStateManager {
     private CheckpointResponder checkpointResponder;
     private OneShotLatch waitForReportLatch;
     private LocalRecoveryConfig localRecoveryDirectoryProvider;
+    private final SegmentFileWriters segmentFileWriters = new SegmentFileWriters();
 
     public TestTaskStateManager() {
         this(TestLocalRecoveryConfig.disabled());
@@ -165,6 +169,16 @@ public class TestTaskStateManager implements TaskStateManager {
         return SequentialChannelStateReader.NO_OP;
     }
 
+    @Override
+    public Executor getIOExecutor() {
+        return Executors.directExecutor();
+    }
+
+    @Override
+    public SegmentFileWriters getSegmentFileWriters() {
+        return segmentFileWriters;
+    }
+
     public void setLocalRecoveryConfig(LocalRecoveryConfig recoveryDirectoryProvider) {
         this.localRecoveryDirectoryProvider = recoveryDirectoryProvider;
     }
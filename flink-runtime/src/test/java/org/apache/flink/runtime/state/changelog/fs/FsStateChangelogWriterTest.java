@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog.fs;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamImpl;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for the {@link FsStateChangelogWriter}. */
+public class FsStateChangelogWriterTest extends TestLogger {
+
+    private static final KeyGroupRange KEY_GROUP_RANGE = KeyGroupRange.of(0, 9);
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setup() throws Exception {
+        directory = Path.fromLocalFile(temporaryFolder.newFolder());
+    }
+
+    @Test
+    public void testPersistAndRead() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(1, new byte[] {1});
+        writer.append(StateChange.META_KEY_GROUP, new byte[] {2});
+        writer.append(3, new byte[] {3, 3});
+
+        StateChangelogHandleStreamImpl handle = writer.persist(SequenceNumber.FIRST).get();
+
+        assertEquals(1, handle.getSegments().size());
+        assertTrue(handle.getStateSize() > 0);
+        assertChanges(handle, new byte[] {1}, new byte[] {2}, new byte[] {3, 3});
+    }
+
+    @Test
+    public void testPersistFromSequenceNumber() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(1, new byte[] {1});
+        SequenceNumber from = writer.nextSequenceNumber();
+        writer.append(2, new byte[] {2});
+
+        assertChanges(writer.persist(from).get(), new byte[] {2});
+    }
+
+    @Test
+    public void testSegmentsAreReusedByLaterPersists() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(1, new byte[] {1});
+        StateChangelogHandleStreamImpl first = writer.persist(SequenceNumber.FIRST).get();
+        writer.append(2, new byte[] {2});
+        StateChangelogHandleStreamImpl second = writer.persist(SequenceNumber.FIRST).get();
+
+        assertEquals(2, second.getSegments().size());
+        assertEquals(first.getSegments().get(0), second.getSegments().get(0));
+        assertChanges(second, new byte[] {1}, new byte[] {2});
+    }
+
+    @Test
+    public void testPersistThresholdTriggersUpload() throws Exception {
+        FsStateChangelogWriter writer = createWriter(2);
+        writer.append(1, new byte[] {1});
+        assertEquals(0, writer.getNumberOfSegments());
+        writer.append(1, new byte[] {2});
+        assertEquals(1, writer.getNumberOfSegments());
+    }
+
+    @Test
+    public void testTruncate() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(1, new byte[] {1});
+        writer.persist(SequenceNumber.FIRST).get();
+        SequenceNumber truncateTo = writer.nextSequenceNumber();
+        writer.append(2, new byte[] {2});
+
+        writer.truncate(truncateTo);
+
+        assertEquals(0, writer.getNumberOfSegments());
+        assertChanges(writer.persist(truncateTo).get(), new byte[] {2});
+    }
+
+    @Test
+    public void testKeyGroupsOutsideOfRangeAreSkipped() throws Exception {
+        FsStateChangelogWriter writer = createWriter(Long.MAX_VALUE);
+        writer.append(1, new byte[] {1});
+        writer.append(StateChange.META_KEY_GROUP, new byte[] {2});
+        writer.append(7, new byte[] {3});
+
+        StateChangelogHandleStreamImpl handle =
+                (StateChangelogHandleStreamImpl)
+                        writer.persist(SequenceNumber.FIRST)
+                                .get()
+                                .getIntersection(KeyGroupRange.of(5, 9));
+
+        assertChanges(handle, new byte[] {2}, new byte[] {3});
+    }
+
+    private FsStateChangelogWriter createWriter(long persistThreshold) {
+        return new FsStateChangelogWriter(
+                directory, KEY_GROUP_RANGE, persistThreshold, Executors.directExecutor());
+    }
+
+    private static void assertChanges(StateChangelogHandleStreamImpl handle, byte[]... expected)
+            throws Exception {
+        List<byte[]> actual = new ArrayList<>();
+        try (CloseableIterator<StateChange> changes = handle.getChanges()) {
+            while (changes.hasNext()) {
+                actual.add(changes.next().getChange());
+            }
+        }
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertArrayEquals(expected[i], actual.get(i));
+        }
+    }
+}
@@ -18,9 +18,11 @@
 
 package org.apache.flink.runtime.state.filesystem;
 
+import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.fs.FileSystem;
 import org.apache.flink.core.fs.Path;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StreamStateHandle;
 
 import org.junit.Before;
@@ -30,9 +32,13 @@ import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 
@@ -137,6 +143,100 @@ public class FsCheckpointStreamFactoryTest {
         assertEquals(expectEmpty ? 0 : 1, new File(exclusiveStateDir.toUri()).listFiles().length);
     }
 
+    @Test
+    public void testSmallStateIsMergedIntoSegmentFile() throws Exception {
+        final int numStreams = 4;
+        final SegmentFileWriters segmentFileWriters = new SegmentFileWriters();
+        final FsCheckpointStreamFactory factory =
+                new FsCheckpointStreamFactory(
+                        FileSystem.getLocalFileSystem(),
+                        exclusiveStateDir,
+                        sharedStateDir,
+                        0,
+                        4096,
+                        1024,
+                        60_000L,
+                        segmentFileWriters);
+
+        final List<FsCheckpointStreamFactory.FsCheckpointStateOutputStream> streams =
+                new ArrayList<>();
+        for (int i = 0; i < numStreams; i++) {
+            streams.add(factory.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED));
+        }
+
+        // the handles are returned once all streams appended to the segment file
+        final List<CompletableFuture<StreamStateHandle>> handleFutures = new ArrayList<>();
+        for (int i = 0; i < numStreams; i++) {
+            final FsCheckpointStreamFactory.FsCheckpointStateOutputStream stream = streams.get(i);
+            stream.write(createState(i));
+            stream.flush();
+            handleFutures.add(
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return stream.closeAndGetHandle();
+                                } catch (IOException e) {
+                                    throw new RuntimeException(e);
+                                }
+                            }));
+        }
+
+        final List<StreamStateHandle> handles = new ArrayList<>();
+        for (int i = 0; i < numStreams; i++) {
+            final StreamStateHandle handle = handleFutures.get(i).get();
+            assertThat(handle, instanceOf(SegmentFileStateHandle.class));
+            assertArrayEquals(createState(i), readFully(handle));
+            handles.add(handle);
+        }
+        assertEquals(1, new File(sharedStateDir.toUri()).listFiles().length);
+        assertEquals(0, segmentFileWriters.getNumWriters());
+
+        // the segment file is deleted with the last of its registered segments
+        final SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        for (StreamStateHandle handle : handles) {
+            sharedStateRegistry.registerSegmentReference(handle);
+        }
+        for (StreamStateHandle handle : handles) {
+            handle.discardState();
+            assertEquals(1, new File(sharedStateDir.toUri()).listFiles().length);
+            sharedStateRegistry.unregisterSegmentReference(handle);
+        }
+        assertEquals(0, new File(sharedStateDir.toUri()).listFiles().length);
+    }
+
+    @Test
+    public void testLargeStateIsNotMerged() throws Exception {
+        final SegmentFileWriters segmentFileWriters = new SegmentFileWriters();
+        final FsCheckpointStreamFactory factory =
+                new FsCheckpointStreamFactory(
+                        FileSystem.getLocalFileSystem(),
+                        exclusiveStateDir,
+                        sharedStateDir,
+                        0,
+                        16,
+                        16,
+                        60_000L,
+                        segmentFileWriters);
+
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream largeStream =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+        final FsCheckpointStreamFactory.FsCheckpointStateOutputStream smallStream =
+                factory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+
+        largeStream.write(new byte[100]);
+        final StreamStateHandle largeHandle = largeStream.closeAndGetHandle();
+        assertThat(largeHandle, instanceOf(FileStateHandle.class));
+
+        // the small stream is the last one and does not wait
+        smallStream.write(createState(1));
+        final StreamStateHandle smallHandle = smallStream.closeAndGetHandle();
+        assertThat(smallHandle, instanceOf(SegmentFileStateHandle.class));
+        assertArrayEquals(createState(1), readFully(smallHandle));
+
+        assertEquals(2, new File(exclusiveStateDir.toUri()).listFiles().length);
+        assertEquals(0, segmentFileWriters.getNumWriters());
+    }
+
     // ------------------------------------------------------------------------
     //  test utils
     // ------------------------------------------------------------------------
@@ -147,6 +247,28 @@ public class FsCheckpointStreamFactoryTest {
         assertEquals(reNormalizedExpected, reNormalizedActual);
     }
 
+    private static byte[] createState(int index) {
+        final byte[] state = new byte[10 + index];
+        for (int i = 0; i < state.length; i++) {
+            state[i] = (byte) (index * 31 + i);
+        }
+        return state;
+    }
+
+    private static byte[] readFully(StreamStateHandle handle) throws IOException {
+        final byte[] bytes = new byte[(int) handle.getStateSize()];
+        try (FSDataInputStream in = handle.openInputStream()) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                assertThat(read, not(-1));
+                offset += read;
+            }
+            assertEquals(-1, in.read());
+        }
+        return bytes;
+    }
+
     private FsCheckpointStreamFactory createFactory(FileSystem fs, int fileSizeThreshold) {
         return createFactory(fs, fileSizeThreshold, 4096);
     }
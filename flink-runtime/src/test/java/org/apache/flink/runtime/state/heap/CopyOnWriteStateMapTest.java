@@ -21,6 +21,8 @@ package org.apache.flink.runtime.state.heap;
 import org.apache.flink.api.common.typeutils.base.IntSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.api.java.tuple.Tuple3;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
 import org.apache.flink.runtime.state.ArrayListSerializer;
 import org.apache.flink.runtime.state.StateEntry;
 import org.apache.flink.runtime.state.StateTransformationFunction;
@@ -422,6 +424,118 @@ public class CopyOnWriteStateMapTest extends TestLogger {
         Assert.assertThat(stateMap.getSnapshotVersions(), Matchers.empty());
     }
 
+    /**
+     * This tests that an incremental snapshot only contains the entries that were changed, read or
+     * removed since its base snapshot.
+     */
+    @Test
+    public void testIncrementalSnapshot() throws Exception {
+        final CopyOnWriteStateMap<Integer, Integer, ArrayList<Integer>> stateMap =
+                new CopyOnWriteStateMap<>(new ArrayListSerializer<>(IntSerializer.INSTANCE));
+        stateMap.enableRemovalTracking();
+
+        for (int i = 0; i < 10; i++) {
+            stateMap.put(i, 0, new ArrayList<>(Arrays.asList(i)));
+        }
+
+        CopyOnWriteStateMapSnapshot<Integer, Integer, ArrayList<Integer>> baseSnapshot =
+                stateMap.stateSnapshot();
+        int baseVersion = baseSnapshot.getSnapshotVersion();
+
+        // modification through the returned state object while the base snapshot is not released
+        stateMap.get(1, 0).add(11);
+        baseSnapshot.release();
+        stateMap.get(2, 0).add(12);
+        stateMap.put(3, 0, new ArrayList<>(Arrays.asList(13)));
+        stateMap.remove(4, 0);
+        stateMap.put(10, 0, new ArrayList<>(Arrays.asList(10)));
+        stateMap.put(5, 0, new ArrayList<>(Arrays.asList(15)));
+        stateMap.remove(5, 0);
+
+        CopyOnWriteStateMapSnapshot<Integer, Integer, ArrayList<Integer>> snapshot =
+                stateMap.incrementalStateSnapshot(baseVersion);
+
+        // changes after the snapshot must not be contained
+        stateMap.get(6, 0).add(16);
+        stateMap.remove(7, 0);
+
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        snapshot.writeIncrementalState(
+                IntSerializer.INSTANCE,
+                IntSerializer.INSTANCE,
+                new ArrayListSerializer<>(IntSerializer.INSTANCE),
+                out,
+                null);
+        snapshot.release();
+
+        DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+        Map<Integer, ArrayList<Integer>> removals = new HashMap<>();
+        int numRemovals = in.readInt();
+        for (int i = 0; i < numRemovals; i++) {
+            Assert.assertEquals(0, in.readInt());
+            removals.put(in.readInt(), null);
+        }
+        Map<Integer, ArrayList<Integer>> changes = new HashMap<>();
+        int numChanges = in.readInt();
+        for (int i = 0; i < numChanges; i++) {
+            Assert.assertEquals(0, in.readInt());
+            changes.put(
+                    in.readInt(),
+                    new ArrayListSerializer<>(IntSerializer.INSTANCE).deserialize(in));
+        }
+
+        Assert.assertThat(removals.keySet(), Matchers.containsInAnyOrder(4, 5));
+        Map<Integer, ArrayList<Integer>> expectedChanges = new HashMap<>();
+        expectedChanges.put(1, new ArrayList<>(Arrays.asList(1, 11)));
+        expectedChanges.put(2, new ArrayList<>(Arrays.asList(2, 12)));
+        expectedChanges.put(3, new ArrayList<>(Arrays.asList(13)));
+        expectedChanges.put(10, new ArrayList<>(Arrays.asList(10)));
+        Assert.assertEquals(expectedChanges, changes);
+
+        // removals that no incremental snapshot can be based on anymore are dropped
+        Assert.assertEquals(3, stateMap.getRemovedEntriesSince(baseVersion).size());
+        stateMap.pruneRemovedEntries(snapshot.getSnapshotVersion());
+        Assert.assertEquals(1, stateMap.getRemovedEntriesSince(baseVersion).size());
+    }
+
+    /**
+     * This tests that reading immutable state neither copies it nor marks it as changed for
+     * incremental snapshots, because it can only be changed through put.
+     */
+    @Test
+    public void testIncrementalSnapshotIgnoresReadsOfImmutableState() throws Exception {
+        final CopyOnWriteStateMap<Integer, Integer, Integer> stateMap =
+                new CopyOnWriteStateMap<>(IntSerializer.INSTANCE);
+        stateMap.enableRemovalTracking();
+
+        final Integer state = 1000;
+        stateMap.put(1, 0, state);
+        stateMap.put(2, 0, 2);
+
+        CopyOnWriteStateMapSnapshot<Integer, Integer, Integer> baseSnapshot =
+                stateMap.stateSnapshot();
+        int baseVersion = baseSnapshot.getSnapshotVersion();
+
+        // the state is not copied while the base snapshot is not released
+        Assert.assertSame(state, stateMap.get(1, 0));
+        baseSnapshot.release();
+        stateMap.put(2, 0, 12);
+
+        CopyOnWriteStateMapSnapshot<Integer, Integer, Integer> snapshot =
+                stateMap.incrementalStateSnapshot(baseVersion);
+        DataOutputSerializer out = new DataOutputSerializer(64);
+        snapshot.writeIncrementalState(
+                IntSerializer.INSTANCE, IntSerializer.INSTANCE, IntSerializer.INSTANCE, out, null);
+        snapshot.release();
+
+        DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+        Assert.assertEquals(0, in.readInt());
+        Assert.assertEquals(1, in.readInt());
+        Assert.assertEquals(0, (int) IntSerializer.INSTANCE.deserialize(in));
+        Assert.assertEquals(2, (int) IntSerializer.INSTANCE.deserialize(in));
+        Assert.assertEquals(12, (int) IntSerializer.INSTANCE.deserialize(in));
+    }
+
     @SuppressWarnings("unchecked")
     private static <K, N, S> Tuple3<K, N, S>[] convert(
             CopyOnWriteStateMap.StateMapEntry<K, N, S>[] snapshot, int mapSize) {
@@ -0,0 +1,356 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.TestLocalRecoveryConfig;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.memory.MemCheckpointStreamFactory;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.runtime.testutils.statemigration.TestType;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/** Tests for the incremental snapshots of the {@link HeapKeyedStateBackend}. */
+public class HeapKeyedStateBackendIncrementalSnapshotTest extends TestLogger {
+
+    private static final int NUM_KEY_GROUPS = 16;
+
+    private static final int NUM_KEYS = 1000;
+
+    private static final ValueStateDescriptor<Integer> VALUE_STATE_DESCRIPTOR =
+            new ValueStateDescriptor<>("value", IntSerializer.INSTANCE);
+
+    private static final MapStateDescriptor<Integer, String> MAP_STATE_DESCRIPTOR =
+            new MapStateDescriptor<>("map", IntSerializer.INSTANCE, StringSerializer.INSTANCE);
+
+    private final MemCheckpointStreamFactory streamFactory =
+            new MemCheckpointStreamFactory(16 * 1024 * 1024);
+
+    private final SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+
+    @Test
+    public void testIncrementalSnapshotsAreChainedAndRestored() throws Exception {
+        HeapKeyedStateBackend<Integer> backend =
+                createKeyedBackend(
+                        new KeyGroupRange(0, NUM_KEY_GROUPS - 1), Collections.emptyList());
+        try {
+            for (int key = 0; key < NUM_KEYS; key++) {
+                backend.setCurrentKey(key);
+                getValueState(backend).update(key);
+                getMapState(backend).put(key, "v" + key);
+            }
+
+            IncrementalRemoteKeyedStateHandle fullSnapshot =
+                    (IncrementalRemoteKeyedStateHandle) snapshot(backend, 1L);
+            assertEquals(1, fullSnapshot.getSharedState().size());
+            backend.notifyCheckpointComplete(1L);
+
+            // change a few keys, including removals and modifications of a map through its
+            // iterator
+            backend.setCurrentKey(1);
+            getValueState(backend).update(-1);
+            backend.setCurrentKey(2);
+            getValueState(backend).clear();
+            backend.setCurrentKey(3);
+            getMapState(backend).iterator().next().setValue("changed");
+            backend.setCurrentKey(NUM_KEYS);
+            getValueState(backend).update(NUM_KEYS);
+
+            IncrementalRemoteKeyedStateHandle deltaSnapshot =
+                    (IncrementalRemoteKeyedStateHandle) snapshot(backend, 2L);
+            assertEquals(2, deltaSnapshot.getSharedState().size());
+            // the delta only references the file of the full snapshot and adds a small file
+            assertTrue(
+                    deltaSnapshot
+                            .getSharedState()
+                            .values()
+                            .containsAll(fullSnapshot.getSharedState().values()));
+            assertTrue(
+                    deltaSnapshot.getSharedState().values().stream()
+                                    .filter(
+                                            handle ->
+                                                    !fullSnapshot
+                                                            .getSharedState()
+                                                            .containsValue(handle))
+                                    .mapToLong(StreamStateHandle::getStateSize)
+                                    .sum()
+                            < fullSnapshot.getStateSize() / 10);
+            backend.notifyCheckpointComplete(2L);
+
+            backend.setCurrentKey(4);
+            getMapState(backend).remove(4);
+
+            // an aborted checkpoint must not become the base of the next snapshot
+            KeyedStateHandle abortedSnapshot = snapshot(backend, 3L);
+            backend.notifyCheckpointAborted(3L);
+            abortedSnapshot.discardState();
+
+            backend.setCurrentKey(5);
+            getValueState(backend).update(-5);
+
+            IncrementalRemoteKeyedStateHandle lastSnapshot =
+                    (IncrementalRemoteKeyedStateHandle) snapshot(backend, 4L);
+            assertEquals(3, lastSnapshot.getSharedState().size());
+            assertTrue(
+                    lastSnapshot
+                            .getSharedState()
+                            .values()
+                            .containsAll(deltaSnapshot.getSharedState().values()));
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testRestoreFromIncrementalSnapshot() throws Exception {
+        KeyedStateHandle snapshot = createIncrementalSnapshot();
+
+        HeapKeyedStateBackend<Integer> backend =
+                createKeyedBackend(
+                        new KeyGroupRange(0, NUM_KEY_GROUPS - 1),
+                        Collections.singletonList(snapshot));
+        try {
+            verifyState(backend, new KeyGroupRange(0, NUM_KEY_GROUPS - 1));
+
+            // the first snapshot after restore starts a new chain
+            KeyedStateHandle snapshotAfterRestore = snapshot(backend, 10L);
+            assertEquals(
+                    1,
+                    ((IncrementalRemoteKeyedStateHandle) snapshotAfterRestore)
+                            .getSharedState()
+                            .size());
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testRescaleFromIncrementalSnapshot() throws Exception {
+        KeyedStateHandle snapshot = createIncrementalSnapshot();
+
+        for (KeyGroupRange keyGroupRange :
+                new KeyGroupRange[] {
+                    new KeyGroupRange(0, NUM_KEY_GROUPS / 2 - 1),
+                    new KeyGroupRange(NUM_KEY_GROUPS / 2, NUM_KEY_GROUPS - 1)
+                }) {
+            HeapKeyedStateBackend<Integer> backend =
+                    createKeyedBackend(
+                            keyGroupRange,
+                            Collections.singletonList(snapshot.getIntersection(keyGroupRange)));
+            try {
+                verifyState(backend, keyGroupRange);
+            } finally {
+                backend.dispose();
+            }
+        }
+    }
+
+    @Test
+    public void testSavepointIsWrittenInFull() throws Exception {
+        HeapKeyedStateBackend<Integer> backend =
+                createKeyedBackend(
+                        new KeyGroupRange(0, NUM_KEY_GROUPS - 1), Collections.emptyList());
+        try {
+            backend.setCurrentKey(1);
+            getValueState(backend).update(1);
+            snapshot(backend, 1L);
+            backend.notifyCheckpointComplete(1L);
+
+            RunnableFuture<SnapshotResult<KeyedStateHandle>> savepoint =
+                    backend.snapshot(
+                            2L,
+                            2L,
+                            streamFactory,
+                            new CheckpointOptions(
+                                    CheckpointType.SAVEPOINT,
+                                    CheckpointStorageLocationReference.getDefault()));
+            savepoint.run();
+            assertTrue(
+                    savepoint.get().getJobManagerOwnedSnapshot() instanceof KeyGroupsStateHandle);
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    /**
+     * Creates a chain of a full and two incremental snapshots, which contains the keys that {@link
+     * #verifyState} expects.
+     */
+    private KeyedStateHandle createIncrementalSnapshot() throws Exception {
+        HeapKeyedStateBackend<Integer> backend =
+                createKeyedBackend(
+                        new KeyGroupRange(0, NUM_KEY_GROUPS - 1), Collections.emptyList());
+        try {
+            KeyGroupedInternalPriorityQueue<TestType> priorityQueue = getPriorityQueue(backend);
+            for (int key = 0; key < NUM_KEYS; key++) {
+                backend.setCurrentKey(key);
+                getValueState(backend).update(key);
+                getMapState(backend).put(key, "v" + key);
+                priorityQueue.add(new TestType(String.valueOf(key), key));
+            }
+            snapshot(backend, 1L);
+            backend.notifyCheckpointComplete(1L);
+
+            for (int key = 0; key < NUM_KEYS; key += 2) {
+                backend.setCurrentKey(key);
+                getValueState(backend).update(-key);
+                getMapState(backend).put(key + 1, "w" + key);
+                priorityQueue.remove(new TestType(String.valueOf(key), key));
+            }
+            snapshot(backend, 2L);
+            backend.notifyCheckpointComplete(2L);
+
+            for (int key = 0; key < NUM_KEYS; key += 3) {
+                backend.setCurrentKey(key);
+                getValueState(backend).clear();
+                getMapState(backend).remove(key);
+            }
+            KeyedStateHandle snapshot = snapshot(backend, 3L);
+            assertEquals(3, ((IncrementalRemoteKeyedStateHandle) snapshot).getSharedState().size());
+            return snapshot;
+        } finally {
+            backend.dispose();
+        }
+    }
+
+    private void verifyState(HeapKeyedStateBackend<Integer> backend, KeyGroupRange keyGroupRange)
+            throws Exception {
+        for (int key = 0; key < NUM_KEYS; key++) {
+            if (!keyGroupRange.contains(
+                    KeyGroupRangeAssignment.assignToKeyGroup(key, NUM_KEY_GROUPS))) {
+                continue;
+            }
+            backend.setCurrentKey(key);
+            ValueState<Integer> valueState = getValueState(backend);
+            MapState<Integer, String> mapState = getMapState(backend);
+            if (key % 3 == 0) {
+                assertNull(valueState.value());
+                assertFalse(mapState.contains(key));
+            } else {
+                assertEquals(key % 2 == 0 ? -key : key, (int) valueState.value());
+                assertEquals("v" + key, mapState.get(key));
+            }
+            assertEquals(key % 2 == 0 ? "w" + key : null, mapState.get(key + 1));
+        }
+
+        Set<TestType> expectedElements = new HashSet<>();
+        for (int key = 1; key < NUM_KEYS; key += 2) {
+            String elementKey = String.valueOf(key);
+            if (keyGroupRange.contains(
+                    KeyGroupRangeAssignment.assignToKeyGroup(elementKey, NUM_KEY_GROUPS))) {
+                expectedElements.add(new TestType(elementKey, key));
+            }
+        }
+        Set<TestType> restoredElements = new HashSet<>();
+        try (CloseableIterator<TestType> iterator = getPriorityQueue(backend).iterator()) {
+            iterator.forEachRemaining(restoredElements::add);
+        }
+        assertEquals(expectedElements, restoredElements);
+    }
+
+    private KeyedStateHandle snapshot(HeapKeyedStateBackend<Integer> backend, long checkpointId)
+            throws Exception {
+        RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+                backend.snapshot(
+                        checkpointId,
+                        checkpointId,
+                        streamFactory,
+                        CheckpointOptions.forCheckpointWithDefaultLocation());
+        snapshot.run();
+        KeyedStateHandle stateHandle = snapshot.get().getJobManagerOwnedSnapshot();
+        stateHandle.registerSharedStates(sharedStateRegistry);
+        return stateHandle;
+    }
+
+    private static ValueState<Integer> getValueState(HeapKeyedStateBackend<Integer> backend)
+            throws Exception {
+        return backend.getPartitionedState(
+                VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, VALUE_STATE_DESCRIPTOR);
+    }
+
+    private static MapState<Integer, String> getMapState(HeapKeyedStateBackend<Integer> backend)
+            throws Exception {
+        return backend.getPartitionedState(
+                VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, MAP_STATE_DESCRIPTOR);
+    }
+
+    private static KeyGroupedInternalPriorityQueue<TestType> getPriorityQueue(
+            HeapKeyedStateBackend<Integer> backend) {
+        return backend.create("priorityQueue", new TestType.V1TestTypeSerializer());
+    }
+
+    private static HeapKeyedStateBackend<Integer> createKeyedBackend(
+            KeyGroupRange keyGroupRange, Collection<KeyedStateHandle> stateHandles)
+            throws Exception {
+        ExecutionConfig executionConfig = new ExecutionConfig();
+        return new HeapKeyedStateBackendBuilder<>(
+                        mock(TaskKvStateRegistry.class),
+                        IntSerializer.INSTANCE,
+                        HeapKeyedStateBackendIncrementalSnapshotTest.class.getClassLoader(),
+                        NUM_KEY_GROUPS,
+                        keyGroupRange,
+                        executionConfig,
+                        TtlTimeProvider.DEFAULT,
+                        stateHandles,
+                        AbstractStateBackend.getCompressionDecorator(executionConfig),
+                        TestLocalRecoveryConfig.disabled(),
+                        new HeapPriorityQueueSetFactory(keyGroupRange, NUM_KEY_GROUPS, 128),
+                        true,
+                        true,
+                        new CloseableRegistry())
+                .build();
+    }
+}
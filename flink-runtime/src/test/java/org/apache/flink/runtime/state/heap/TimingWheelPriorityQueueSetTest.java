@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.InternalPriorityQueueTestBase;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/** Test for {@link TimingWheelPriorityQueueSet}. */
+public class TimingWheelPriorityQueueSetTest extends InternalPriorityQueueTestBase {
+
+    @Override
+    protected TimingWheelPriorityQueueSet<TestElement> newPriorityQueue(int initialCapacity) {
+        return newPriorityQueue(initialCapacity, 10L);
+    }
+
+    @Override
+    protected boolean testSetSemanticsAgainstDuplicateElements() {
+        return true;
+    }
+
+    /**
+     * Tests that the queue keeps the order of a {@link HeapPriorityQueueSet} for timestamps that
+     * are spread over all levels of the wheel, also when the timestamps are added while polling.
+     */
+    @Test
+    public void testOrderMatchesHeapPriorityQueueSet() {
+        final Random random = new Random(42L);
+        final long bucketSize = 7L;
+        final long range =
+                bucketSize
+                        << (TimingWheelPriorityQueueSet.NUM_LEVELS
+                                * Integer.numberOfTrailingZeros(
+                                        TimingWheelPriorityQueueSet.NUM_SLOTS));
+
+        TimingWheelPriorityQueueSet<TestElement> wheel = newPriorityQueue(4, bucketSize);
+        HeapPriorityQueueSet<TestElement> heap =
+                new HeapPriorityQueueSet<>(
+                        TEST_ELEMENT_PRIORITY_COMPARATOR,
+                        KEY_EXTRACTOR_FUNCTION,
+                        4,
+                        KEY_GROUP_RANGE,
+                        KEY_GROUP_RANGE.getNumberOfKeyGroups());
+
+        long now = -range;
+        Set<Long> timestamps = new HashSet<>();
+        List<TestElement> added = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            final long timestamp;
+            switch (random.nextInt(4)) {
+                case 0:
+                    timestamp = now + random.nextInt((int) bucketSize * 2);
+                    break;
+                case 1:
+                    timestamp = now + (long) (random.nextDouble() * range);
+                    break;
+                case 2:
+                    timestamp = now + range + random.nextInt(1000);
+                    break;
+                default:
+                    timestamp = now - random.nextInt(100);
+            }
+            if (!timestamps.add(timestamp)) {
+                // the order of elements with the same priority is undefined
+                continue;
+            }
+            TestElement element = new TestElement(random.nextInt(100), timestamp);
+            heap.add(element.deepCopy());
+            Assert.assertTrue(wheel.add(element));
+            added.add(element);
+
+            if (random.nextInt(5) == 0) {
+                TestElement toRemove = added.get(random.nextInt(added.size())).deepCopy();
+                heap.remove(toRemove);
+                wheel.remove(toRemove);
+            }
+            if (random.nextInt(3) == 0) {
+                TestElement polled = heap.poll();
+                Assert.assertEquals(polled, wheel.poll());
+                if (polled != null) {
+                    now = polled.getPriority();
+                }
+            }
+            Assert.assertEquals(heap.size(), wheel.size());
+            Assert.assertEquals(heap.peek(), wheel.peek());
+        }
+
+        TestElement polled;
+        while ((polled = heap.poll()) != null) {
+            Assert.assertEquals(polled, wheel.poll());
+        }
+        Assert.assertNull(wheel.poll());
+        Assert.assertTrue(wheel.isEmpty());
+    }
+
+    private static TimingWheelPriorityQueueSet<TestElement> newPriorityQueue(
+            int initialCapacity, long bucketSize) {
+        return new TimingWheelPriorityQueueSet<>(
+                TEST_ELEMENT_PRIORITY_COMPARATOR,
+                KEY_EXTRACTOR_FUNCTION,
+                TestElement::getPriority,
+                bucketSize,
+                initialCapacity,
+                KEY_GROUP_RANGE,
+                KEY_GROUP_RANGE.getNumberOfKeyGroups());
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.SnapshotResult;
 import org.apache.flink.runtime.state.heap.CopyOnWriteStateMap;
 import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.util.StateMigrationException;
 
 import org.junit.After;
@@ -225,6 +226,39 @@ public abstract class TtlStateTestBase {
         assertTrue("Original state should be cleared on access", ctx().isOriginalEmptyValue());
     }
 
+    @Test
+    public void testMultiGet() throws Exception {
+        assumeTrue(ctx instanceof TtlValueStateTestContext);
+        initTest(
+                StateTtlConfig.UpdateType.OnReadAndWrite,
+                StateTtlConfig.StateVisibility.NeverReturnExpired);
+        @SuppressWarnings("unchecked")
+        InternalValueState<String, String, String> state =
+                (InternalValueState<String, String, String>) ctx().ttlState;
+
+        timeProvider.time = 0;
+        sbetc.setCurrentKey("k1");
+        ctx().update(ctx().updateEmpty);
+
+        timeProvider.time = 50;
+        sbetc.setCurrentKey("k2");
+        ctx().update(ctx().updateUnexpired);
+
+        sbetc.setCurrentKey("defaultKey");
+        timeProvider.time = 120;
+        assertEquals(
+                Arrays.asList(null, ctx().getUnexpired, null),
+                state.multiGet(Arrays.asList("k1", "k2", "k3")));
+        assertEquals("defaultKey", sbetc.getKeyedStateBackend().getCurrentKey());
+
+        // the read renewed the timestamp of k2 and cleaned up k1
+        timeProvider.time = 200;
+        sbetc.setCurrentKey("k2");
+        assertEquals(UPDATED_UNEXPIRED_AVAIL, ctx().getUnexpired, ctx().get());
+        sbetc.setCurrentKey("k1");
+        assertTrue("Original state should be cleared on access", ctx().isOriginalEmptyValue());
+    }
+
     @Test
     public void testRelaxedExpirationOnWrite() throws Exception {
         initTest(
@@ -22,11 +22,13 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalKvState;
 
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /** In memory mock internal state base class. */
 abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T> {
     Supplier<Map<Object, Object>> values;
+    Function<K, Map<Object, Object>> keyValues;
     private N currentNamespace;
     private final Supplier<T> emptyValue;
 
@@ -77,6 +79,14 @@ abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T>
         return (T) getCurrentKeyValues().computeIfAbsent(currentNamespace, n -> emptyValue.get());
     }
 
+    @SuppressWarnings("unchecked")
+    T getInternal(K key) {
+        Map<Object, Object> values = keyValues.apply(key);
+        return values.containsKey(currentNamespace)
+                ? (T) values.get(currentNamespace)
+                : emptyValue.get();
+    }
+
     @SuppressWarnings("WeakerAccess")
     public void updateInternal(T valueToStore) {
         getCurrentKeyValues().put(currentNamespace, valueToStore);
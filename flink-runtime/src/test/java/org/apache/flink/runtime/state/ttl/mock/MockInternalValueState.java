@@ -23,6 +23,9 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /** In memory mock internal value state. */
 class MockInternalValueState<K, N, T> extends MockInternalKvState<K, N, T>
         implements InternalValueState<K, N, T> {
@@ -32,6 +35,15 @@ class MockInternalValueState<K, N, T> extends MockInternalKvState<K, N, T>
         return getInternal();
     }
 
+    @Override
+    public List<T> multiGet(List<K> keys) {
+        List<T> values = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            values.add(getInternal(key));
+        }
+        return values;
+    }
+
     @Override
     public void update(T value) {
         updateInternal(value);
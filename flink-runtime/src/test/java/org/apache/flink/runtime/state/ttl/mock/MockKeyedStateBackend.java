@@ -144,6 +144,11 @@ public class MockKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
                         stateValues
                                 .computeIfAbsent(stateDesc.getName(), n -> new HashMap<>())
                                 .computeIfAbsent(getCurrentKey(), k -> new HashMap<>());
+        ((MockInternalKvState<K, N, SV>) state).keyValues =
+                key ->
+                        stateValues
+                                .computeIfAbsent(stateDesc.getName(), n -> new HashMap<>())
+                                .computeIfAbsent(key, k -> new HashMap<>());
         return state;
     }
 
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.OptionalInt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/** Tests for {@link BufferDebloater}. */
+public class BufferDebloaterTest extends TestLogger {
+
+    private static final int MAX_BUFFER_SIZE = 32768;
+
+    private static final int NUMBER_OF_BUFFERS = 10;
+
+    @Test
+    public void testBufferSizeFollowsThroughput() {
+        BufferDebloater debloater = createDebloater(1, 25);
+
+        // 10 buffers of 1000 bytes are consumed within one second
+        assertEquals(OptionalInt.of(1000), debloater.recalculateBufferSize(10_000));
+        assertEquals(OptionalInt.of(2000), debloater.recalculateBufferSize(20_000));
+        assertEquals(2000, debloater.getLastBufferSize());
+    }
+
+    @Test
+    public void testBufferSizeIsBounded() {
+        BufferDebloater debloater = createDebloater(1, 25);
+
+        assertEquals(
+                OptionalInt.of(BufferDebloater.MIN_BUFFER_SIZE),
+                debloater.recalculateBufferSize(0));
+        assertEquals(OptionalInt.of(MAX_BUFFER_SIZE), debloater.recalculateBufferSize(1L << 40));
+    }
+
+    @Test
+    public void testSmallChangesAreNotAnnounced() {
+        BufferDebloater debloater = createDebloater(1, 25);
+
+        assertEquals(OptionalInt.of(1000), debloater.recalculateBufferSize(10_000));
+        assertFalse(debloater.recalculateBufferSize(12_000).isPresent());
+        assertFalse(debloater.recalculateBufferSize(8_000).isPresent());
+        assertEquals(1000, debloater.getLastBufferSize());
+    }
+
+    @Test
+    public void testThroughputIsAveraged() {
+        BufferDebloater debloater = createDebloater(3, 0);
+
+        debloater.recalculateBufferSize(10_000);
+        // the weight of a new sample is 2 / (3 + 1)
+        debloater.recalculateBufferSize(20_000);
+        assertEquals(15_000, debloater.getAverageThroughput(), 0.0);
+        assertEquals(1500, debloater.getLastBufferSize());
+    }
+
+    private static BufferDebloater createDebloater(int numberOfSamples, int thresholdPercentages) {
+        Configuration configuration = new Configuration();
+        configuration.set(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_ENABLED, true);
+        configuration.set(
+                NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_TARGET,
+                Duration.ofSeconds(1));
+        configuration.set(
+                NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_SAMPLES, numberOfSamples);
+        configuration.set(
+                NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES,
+                thresholdPercentages);
+        return new BufferDebloater(
+                BufferDebloatConfiguration.fromConfiguration(configuration),
+                MAX_BUFFER_SIZE,
+                NUMBER_OF_BUFFERS);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.throughput;
+
+import org.apache.flink.util.TestLogger;
+import org.apache.flink.util.clock.ManualClock;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/** Tests for {@link ThroughputCalculator}. */
+public class ThroughputCalculatorTest extends TestLogger {
+
+    @Test
+    public void testCalculateThroughput() {
+        ManualClock clock = new ManualClock();
+        ThroughputCalculator throughputCalculator = new ThroughputCalculator(clock);
+
+        throughputCalculator.incomingDataSize(6666);
+        clock.advanceTime(1, TimeUnit.SECONDS);
+        throughputCalculator.incomingDataSize(3334);
+        clock.advanceTime(1, TimeUnit.SECONDS);
+
+        assertEquals(5000, throughputCalculator.calculateThroughput());
+
+        // a new measurement starts after the calculation
+        throughputCalculator.incomingDataSize(1000);
+        clock.advanceTime(1, TimeUnit.SECONDS);
+
+        assertEquals(1000, throughputCalculator.calculateThroughput());
+    }
+
+    @Test
+    public void testPausedTimeIsExcluded() {
+        ManualClock clock = new ManualClock();
+        ThroughputCalculator throughputCalculator = new ThroughputCalculator(clock);
+
+        throughputCalculator.incomingDataSize(1000);
+        clock.advanceTime(1, TimeUnit.SECONDS);
+        throughputCalculator.pauseMeasurement();
+        clock.advanceTime(10, TimeUnit.SECONDS);
+        throughputCalculator.incomingDataSize(1000);
+        clock.advanceTime(1, TimeUnit.SECONDS);
+
+        assertEquals(1000, throughputCalculator.calculateThroughput());
+    }
+
+    @Test
+    public void testLastThroughputIsReturnedWithoutMeasuredTime() {
+        ManualClock clock = new ManualClock();
+        ThroughputCalculator throughputCalculator = new ThroughputCalculator(clock);
+
+        throughputCalculator.incomingDataSize(2000);
+        clock.advanceTime(1, TimeUnit.SECONDS);
+        throughputCalculator.pauseMeasurement();
+        assertEquals(2000, throughputCalculator.calculateThroughput());
+
+        clock.advanceTime(10, TimeUnit.SECONDS);
+        assertEquals(2000, throughputCalculator.calculateThroughput());
+    }
+}
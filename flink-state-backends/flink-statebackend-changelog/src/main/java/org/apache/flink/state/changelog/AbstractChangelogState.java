@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalMergingState;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.function.ThrowingConsumer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Base class for states of the {@link ChangelogKeyedStateBackend}. Delegates all accesses to the
+ * state of the wrapped backend and writes every modification to the changelog.
+ *
+ * @param <K> The type of key the state is associated to.
+ * @param <N> The type of the namespace.
+ * @param <V> The type of values kept internally in state.
+ * @param <S> The type of the wrapped state.
+ */
+abstract class AbstractChangelogState<K, N, V, S extends InternalKvState<K, N, V>>
+        implements InternalKvState<K, N, V> {
+
+    protected final S delegatedState;
+
+    private final StateChangeLogger changeLogger;
+
+    private final InternalKeyContext<K> keyContext;
+
+    private N currentNamespace;
+
+    AbstractChangelogState(
+            S delegatedState, StateChangeLogger changeLogger, InternalKeyContext<K> keyContext) {
+        this.delegatedState = delegatedState;
+        this.changeLogger = changeLogger;
+        this.keyContext = keyContext;
+    }
+
+    S getDelegatedState() {
+        return delegatedState;
+    }
+
+    StateChangeLogger getChangeLogger() {
+        return changeLogger;
+    }
+
+    @Override
+    public TypeSerializer<K> getKeySerializer() {
+        return delegatedState.getKeySerializer();
+    }
+
+    @Override
+    public TypeSerializer<N> getNamespaceSerializer() {
+        return delegatedState.getNamespaceSerializer();
+    }
+
+    @Override
+    public TypeSerializer<V> getValueSerializer() {
+        return delegatedState.getValueSerializer();
+    }
+
+    @Override
+    public void setCurrentNamespace(N namespace) {
+        currentNamespace = namespace;
+        delegatedState.setCurrentNamespace(namespace);
+    }
+
+    @Override
+    public byte[] getSerializedValue(
+            byte[] serializedKeyAndNamespace,
+            TypeSerializer<K> safeKeySerializer,
+            TypeSerializer<N> safeNamespaceSerializer,
+            TypeSerializer<V> safeValueSerializer)
+            throws Exception {
+        return delegatedState.getSerializedValue(
+                serializedKeyAndNamespace,
+                safeKeySerializer,
+                safeNamespaceSerializer,
+                safeValueSerializer);
+    }
+
+    @Override
+    public boolean supportsConcurrentReads() {
+        return delegatedState.supportsConcurrentReads();
+    }
+
+    @Override
+    public V getDefaultValue() {
+        return delegatedState.getDefaultValue();
+    }
+
+    @Override
+    public StateIncrementalVisitor<K, N, V> getStateIncrementalVisitor(
+            int recommendedMaxNumberOfReturnedRecords) {
+        return new LoggingStateIncrementalVisitor(
+                delegatedState.getStateIncrementalVisitor(recommendedMaxNumberOfReturnedRecords));
+    }
+
+    @Override
+    public void clear() {
+        delegatedState.clear();
+        logUnchecked(StateChangeOperation.CLEAR, out -> {});
+    }
+
+    // ------------------------------------------------------------------------
+    //  change logging
+    // ------------------------------------------------------------------------
+
+    /** Logs a change of the current key and namespace. */
+    protected void log(
+            StateChangeOperation operation, ThrowingConsumer<DataOutputView, IOException> payload)
+            throws IOException {
+        log(
+                operation,
+                keyContext.getCurrentKey(),
+                currentNamespace,
+                keyContext.getCurrentKeyGroupIndex(),
+                payload);
+    }
+
+    protected void logUnchecked(
+            StateChangeOperation operation, ThrowingConsumer<DataOutputView, IOException> payload) {
+        try {
+            log(operation, payload);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Unable to log state change of " + operation, e);
+        }
+    }
+
+    private void log(
+            StateChangeOperation operation,
+            K key,
+            N namespace,
+            int keyGroup,
+            ThrowingConsumer<DataOutputView, IOException> payload)
+            throws IOException {
+        changeLogger.log(
+                operation,
+                keyGroup,
+                out -> {
+                    getKeySerializer().serialize(key, out);
+                    getNamespaceSerializer().serialize(namespace, out);
+                    payload.accept(out);
+                });
+    }
+
+    protected void logMerge(N target, Collection<N> sources) throws IOException {
+        log(
+                StateChangeOperation.MERGE_NS,
+                out -> {
+                    getNamespaceSerializer().serialize(target, out);
+                    out.writeInt(sources.size());
+                    for (N source : sources) {
+                        getNamespaceSerializer().serialize(source, out);
+                    }
+                });
+    }
+
+    // ------------------------------------------------------------------------
+    //  restore
+    // ------------------------------------------------------------------------
+
+    /**
+     * Applies a change that was read from the changelog to the wrapped state, without logging it
+     * again. The key and namespace of the change are already set on the wrapped state.
+     *
+     * @param namespaceSerializer The serializer that the namespaces of the change were written
+     *     with.
+     * @param valueSerializer The serializer that the value of the change was written with.
+     */
+    abstract void applyChange(
+            StateChangeOperation operation,
+            DataInputView in,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<V> valueSerializer)
+            throws Exception;
+
+    /** Replays a change logged by {@link #logMerge(Object, Collection)}. */
+    protected void applyMerge(DataInputView in, TypeSerializer<N> namespaceSerializer)
+            throws Exception {
+        if (!(delegatedState instanceof InternalMergingState)) {
+            throw new UnsupportedOperationException(
+                    "Merging of namespaces is not supported by " + getClass().getSimpleName());
+        }
+        N target = namespaceSerializer.deserialize(in);
+        int numSources = in.readInt();
+        List<N> sources = new ArrayList<>(numSources);
+        for (int i = 0; i < numSources; i++) {
+            sources.add(namespaceSerializer.deserialize(in));
+        }
+        ((InternalMergingState<K, N, ?, ?, ?>) delegatedState).mergeNamespaces(target, sources);
+    }
+
+    /** Logs the removals and updates done through the visitor, e.g. by TTL cleanup. */
+    private class LoggingStateIncrementalVisitor implements StateIncrementalVisitor<K, N, V> {
+
+        private final StateIncrementalVisitor<K, N, V> delegate;
+
+        private LoggingStateIncrementalVisitor(StateIncrementalVisitor<K, N, V> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return delegate.hasNext();
+        }
+
+        @Override
+        public Collection<StateEntry<K, N, V>> nextEntries() {
+            return delegate.nextEntries();
+        }
+
+        @Override
+        public void remove(StateEntry<K, N, V> stateEntry) {
+            delegate.remove(stateEntry);
+            logEntryUnchecked(StateChangeOperation.CLEAR, stateEntry, out -> {});
+        }
+
+        @Override
+        public void update(StateEntry<K, N, V> stateEntry, V newValue) {
+            delegate.update(stateEntry, newValue);
+            logEntryUnchecked(
+                    StateChangeOperation.SET,
+                    stateEntry,
+                    out -> getValueSerializer().serialize(newValue, out));
+        }
+
+        private void logEntryUnchecked(
+                StateChangeOperation operation,
+                StateEntry<K, N, V> entry,
+                ThrowingConsumer<DataOutputView, IOException> payload) {
+            try {
+                log(
+                        operation,
+                        entry.getKey(),
+                        entry.getNamespace(),
+                        KeyGroupRangeAssignment.assignToKeyGroup(
+                                entry.getKey(), keyContext.getNumberOfKeyGroups()),
+                        payload);
+            } catch (IOException e) {
+                throw new FlinkRuntimeException("Unable to log state change of " + operation, e);
+            }
+        }
+    }
+}
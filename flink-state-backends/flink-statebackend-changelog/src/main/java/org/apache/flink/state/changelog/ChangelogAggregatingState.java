@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalAggregatingState;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+
+import java.util.Collection;
+
+/**
+ * Delegated partitioned {@link org.apache.flink.api.common.state.AggregatingState} that logs every
+ * modification to the changelog. Because the input type can not be serialized in general, {@link
+ * #add(Object)} logs the resulting accumulator.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <IN> The type of the values that are added into the state.
+ * @param <ACC> The type of the accumulator (intermediate aggregation state).
+ * @param <OUT> The type of the values that are returned from the state.
+ */
+class ChangelogAggregatingState<K, N, IN, ACC, OUT>
+        extends AbstractChangelogState<K, N, ACC, InternalAggregatingState<K, N, IN, ACC, OUT>>
+        implements InternalAggregatingState<K, N, IN, ACC, OUT> {
+
+    ChangelogAggregatingState(
+            InternalAggregatingState<K, N, IN, ACC, OUT> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        super(delegatedState, changeLogger, keyContext);
+    }
+
+    @Override
+    public OUT get() throws Exception {
+        return delegatedState.get();
+    }
+
+    @Override
+    public void add(IN value) throws Exception {
+        delegatedState.add(value);
+        logAccumulator(delegatedState.getInternal());
+    }
+
+    @Override
+    public ACC getInternal() throws Exception {
+        return delegatedState.getInternal();
+    }
+
+    @Override
+    public void updateInternal(ACC valueToStore) throws Exception {
+        delegatedState.updateInternal(valueToStore);
+        logAccumulator(valueToStore);
+    }
+
+    @Override
+    public void mergeNamespaces(N target, Collection<N> sources) throws Exception {
+        delegatedState.mergeNamespaces(target, sources);
+        logMerge(target, sources);
+    }
+
+    private void logAccumulator(ACC accumulator) throws Exception {
+        if (accumulator == null) {
+            log(StateChangeOperation.CLEAR, out -> {});
+        } else {
+            log(StateChangeOperation.SET, out -> getValueSerializer().serialize(accumulator, out));
+        }
+    }
+
+    @Override
+    void applyChange(
+            StateChangeOperation operation,
+            DataInputView in,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<ACC> valueSerializer)
+            throws Exception {
+        switch (operation) {
+            case CLEAR:
+                delegatedState.clear();
+                break;
+            case SET:
+                delegatedState.updateInternal(valueSerializer.deserialize(in));
+                break;
+            case MERGE_NS:
+                applyMerge(in, namespaceSerializer);
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unexpected operation " + operation + " for aggregating state");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <IN, OUT, K, N, SV, S extends State, IS extends S> IS create(
+            StateDescriptor<S, SV> stateDesc,
+            InternalKvState<K, N, SV> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        return (IS)
+                new ChangelogAggregatingState<>(
+                        (InternalAggregatingState<K, N, IN, SV, OUT>) delegatedState,
+                        changeLogger,
+                        keyContext);
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSchemaCompatibility;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandle;
+import org.apache.flink.state.changelog.StateChangeLogger.StateKind;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.StateMigrationException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+/**
+ * Reads the changelog of a {@link ChangelogKeyedStateBackend} on restore and applies it to the
+ * wrapped backend.
+ *
+ * <p>The changes are read eagerly but grouped by the name of the state they belong to. They can
+ * only be applied once the job re-creates the state, because only then the state descriptor and
+ * thus the (possibly upgraded) serializers are known. The changes are deserialized with the
+ * serializers they were written with, restored from the snapshots in the metadata of the state.
+ */
+class ChangelogBackendRestoreOperation {
+
+    private ChangelogBackendRestoreOperation() {}
+
+    /** The name, kind and serializer snapshots of a state as written to the changelog. */
+    static class StateMetadata {
+
+        private final StateKind kind;
+        private final String name;
+        private final List<TypeSerializerSnapshot<?>> serializerSnapshots;
+
+        private StateMetadata(
+                StateKind kind, String name, List<TypeSerializerSnapshot<?>> serializerSnapshots) {
+            this.kind = kind;
+            this.name = name;
+            this.serializerSnapshots = serializerSnapshots;
+        }
+
+        /**
+         * Restores the serializer that the changes were written with, after checking that the data
+         * can be read by the given new serializer.
+         */
+        @SuppressWarnings("unchecked")
+        private <T> TypeSerializer<T> restoreSerializer(
+                int index, TypeSerializer<T> newSerializer, boolean migrationAllowed)
+                throws StateMigrationException {
+            TypeSerializerSnapshot<T> snapshot =
+                    (TypeSerializerSnapshot<T>) serializerSnapshots.get(index);
+            // restore before resolving the compatibility, which may reconfigure the snapshot
+            TypeSerializer<T> restoredSerializer = snapshot.restoreSerializer();
+            TypeSerializerSchemaCompatibility<T> compatibility =
+                    snapshot.resolveSchemaCompatibility(newSerializer);
+            if (compatibility.isIncompatible()
+                    || (!migrationAllowed && compatibility.isCompatibleAfterMigration())) {
+                throw new StateMigrationException(
+                        "The new serializer for state "
+                                + name
+                                + " ("
+                                + newSerializer
+                                + ") is not compatible with the serializer of the changelog.");
+            }
+            return restoredSerializer;
+        }
+    }
+
+    /** The changes read from the changelog, grouped by state name. */
+    static class RestoredChanges {
+
+        private final Map<String, List<Tuple2<StateMetadata, StateChange>>> keyValueChanges =
+                new HashMap<>();
+        private final Map<String, List<Tuple2<StateMetadata, StateChange>>> priorityQueueChanges =
+                new HashMap<>();
+
+        /** Removes and returns the changes of the given key/value state, null if there are none. */
+        List<Tuple2<StateMetadata, StateChange>> pollKeyValueChanges(String stateName) {
+            return keyValueChanges.remove(stateName);
+        }
+
+        /** Removes and returns the changes of the given priority queue, null if there are none. */
+        List<Tuple2<StateMetadata, StateChange>> pollPriorityQueueChanges(String stateName) {
+            return priorityQueueChanges.remove(stateName);
+        }
+
+        /** Whether some changes were not applied yet because their state was not re-created. */
+        boolean hasPendingChanges() {
+            return !keyValueChanges.isEmpty() || !priorityQueueChanges.isEmpty();
+        }
+
+        Collection<String> getPendingStateNames() {
+            List<String> names = new ArrayList<>(keyValueChanges.keySet());
+            names.addAll(priorityQueueChanges.keySet());
+            return names;
+        }
+
+        /**
+         * Appends the changes that were not applied yet to the changelog again. A materialization
+         * does not include them, as their states were not re-created, so the changelog after the
+         * materialization must contain them to restore these states later on.
+         *
+         * @param changeLoggers Provides the logger of a state by name and kind.
+         */
+        void logPendingChanges(BiFunction<String, StateKind, StateChangeLogger> changeLoggers)
+                throws IOException {
+            for (StateKind kind : StateKind.values()) {
+                for (Map.Entry<String, List<Tuple2<StateMetadata, StateChange>>> pending :
+                        getChanges(kind).entrySet()) {
+                    StateChangeLogger changeLogger = changeLoggers.apply(pending.getKey(), kind);
+                    for (Tuple2<StateMetadata, StateChange> change : pending.getValue()) {
+                        changeLogger.logRestored(change.f0.serializerSnapshots, change.f1);
+                    }
+                }
+            }
+        }
+
+        private Map<String, List<Tuple2<StateMetadata, StateChange>>> getChanges(StateKind kind) {
+            return kind == StateKind.KEY_VALUE ? keyValueChanges : priorityQueueChanges;
+        }
+    }
+
+    /**
+     * Reads the non-materialized part of the given handles.
+     *
+     * @param keySerializer The key serializer of the restored backend, checked eagerly for
+     *     compatibility with the key serializer of every key/value state in the changelog.
+     */
+    static RestoredChanges readChanges(
+            Collection<ChangelogStateBackendHandle> stateHandles,
+            TypeSerializer<?> keySerializer,
+            ClassLoader userCodeClassLoader)
+            throws Exception {
+        RestoredChanges restoredChanges = new RestoredChanges();
+        for (ChangelogStateBackendHandle stateHandle : stateHandles) {
+            for (StateChangelogHandle changelogHandle :
+                    stateHandle.getNonMaterializedStateHandles()) {
+                readChanges(changelogHandle, keySerializer, userCodeClassLoader, restoredChanges);
+            }
+        }
+        return restoredChanges;
+    }
+
+    private static void readChanges(
+            StateChangelogHandle handle,
+            TypeSerializer<?> keySerializer,
+            ClassLoader userCodeClassLoader,
+            RestoredChanges restoredChanges)
+            throws Exception {
+        // state ids are only unique within a single changelog
+        Map<Short, StateMetadata> statesById = new HashMap<>();
+        DataInputDeserializer in = new DataInputDeserializer();
+        try (CloseableIterator<StateChange> changes = handle.getChanges()) {
+            while (changes.hasNext()) {
+                StateChange stateChange = changes.next();
+                in.setBuffer(stateChange.getChange());
+                StateChangeOperation operation = StateChangeOperation.byCode(in.readByte());
+                short stateId = in.readShort();
+                if (operation == StateChangeOperation.METADATA) {
+                    StateMetadata metadata = readMetadata(in, userCodeClassLoader);
+                    if (metadata.kind == StateKind.KEY_VALUE) {
+                        metadata.restoreSerializer(0, keySerializer, false);
+                    }
+                    statesById.put(stateId, metadata);
+                } else {
+                    StateMetadata metadata = statesById.get(stateId);
+                    if (metadata == null) {
+                        throw new IOException(
+                                "Unknown state id " + stateId + " in changelog " + handle);
+                    }
+                    restoredChanges
+                            .getChanges(metadata.kind)
+                            .computeIfAbsent(metadata.name, ignored -> new ArrayList<>())
+                            .add(Tuple2.of(metadata, stateChange));
+                }
+            }
+        }
+    }
+
+    private static StateMetadata readMetadata(
+            DataInputDeserializer in, ClassLoader userCodeClassLoader) throws IOException {
+        StateKind kind = StateKind.values()[in.readByte()];
+        String name = in.readUTF();
+        int numSerializers = in.readInt();
+        List<TypeSerializerSnapshot<?>> serializerSnapshots = new ArrayList<>(numSerializers);
+        for (int i = 0; i < numSerializers; i++) {
+            serializerSnapshots.add(
+                    TypeSerializerSnapshot.readVersionedSnapshot(in, userCodeClassLoader));
+        }
+        return new StateMetadata(kind, name, serializerSnapshots);
+    }
+
+    /**
+     * Applies the given changes to the wrapped state of the given key/value state. The key of the
+     * wrapped backend is changed while doing so.
+     */
+    static <K, N, V> void applyKeyValueChanges(
+            List<Tuple2<StateMetadata, StateChange>> changes,
+            AbstractChangelogState<K, N, V, ?> state,
+            AbstractKeyedStateBackend<K> delegateBackend)
+            throws Exception {
+        Map<StateMetadata, RestoredSerializers<K, N, V>> serializers = new IdentityHashMap<>();
+        DataInputDeserializer in = new DataInputDeserializer();
+        for (Tuple2<StateMetadata, StateChange> change : changes) {
+            RestoredSerializers<K, N, V> restored = serializers.get(change.f0);
+            if (restored == null) {
+                restored = new RestoredSerializers<>(change.f0, state);
+                serializers.put(change.f0, restored);
+            }
+            in.setBuffer(change.f1.getChange());
+            StateChangeOperation operation = StateChangeOperation.byCode(in.readByte());
+            in.readShort();
+            delegateBackend.setCurrentKey(restored.keySerializer.deserialize(in));
+            state.setCurrentNamespace(restored.namespaceSerializer.deserialize(in));
+            state.applyChange(
+                    operation, in, restored.namespaceSerializer, restored.valueSerializer);
+        }
+    }
+
+    /** Applies the given changes to the wrapped queue of the given priority queue. */
+    static <T> void applyPriorityQueueChanges(
+            List<Tuple2<StateMetadata, StateChange>> changes,
+            ChangelogKeyGroupedPriorityQueue<T> queue)
+            throws IOException, StateMigrationException {
+        Map<StateMetadata, TypeSerializer<T>> serializers = new IdentityHashMap<>();
+        DataInputDeserializer in = new DataInputDeserializer();
+        for (Tuple2<StateMetadata, StateChange> change : changes) {
+            TypeSerializer<T> elementSerializer = serializers.get(change.f0);
+            if (elementSerializer == null) {
+                elementSerializer =
+                        change.f0.restoreSerializer(0, queue.getElementSerializer(), false);
+                serializers.put(change.f0, elementSerializer);
+            }
+            in.setBuffer(change.f1.getChange());
+            StateChangeOperation operation = StateChangeOperation.byCode(in.readByte());
+            in.readShort();
+            queue.applyChange(operation, in, elementSerializer);
+        }
+    }
+
+    /** The serializers that the changes of a key/value state were written with. */
+    private static class RestoredSerializers<K, N, V> {
+
+        private final TypeSerializer<K> keySerializer;
+        private final TypeSerializer<N> namespaceSerializer;
+        private final TypeSerializer<V> valueSerializer;
+
+        private RestoredSerializers(
+                StateMetadata metadata, AbstractChangelogState<K, N, V, ?> state)
+                throws StateMigrationException {
+            this.keySerializer = metadata.restoreSerializer(0, state.getKeySerializer(), false);
+            this.namespaceSerializer =
+                    metadata.restoreSerializer(1, state.getNamespaceSerializer(), false);
+            this.valueSerializer = metadata.restoreSerializer(2, state.getValueSerializer(), true);
+        }
+    }
+}
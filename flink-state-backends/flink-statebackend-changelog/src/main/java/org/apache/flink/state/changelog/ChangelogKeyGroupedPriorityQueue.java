@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.KeyExtractorFunction;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * A {@link KeyGroupedInternalPriorityQueue} that logs all additions and removals to the changelog.
+ * The changes are logged under the key group of the key of the respective element, so no current
+ * key is required to log or replay them.
+ *
+ * @param <T> type of the queue elements.
+ */
+class ChangelogKeyGroupedPriorityQueue<T> implements KeyGroupedInternalPriorityQueue<T> {
+
+    private final KeyGroupedInternalPriorityQueue<T> delegatedPriorityQueue;
+    private final TypeSerializer<T> elementSerializer;
+    private final KeyExtractorFunction<T> keyExtractor;
+    private final StateChangeLogger changeLogger;
+    private final int numberOfKeyGroups;
+
+    ChangelogKeyGroupedPriorityQueue(
+            KeyGroupedInternalPriorityQueue<T> delegatedPriorityQueue,
+            TypeSerializer<T> elementSerializer,
+            KeyExtractorFunction<T> keyExtractor,
+            StateChangeLogger changeLogger,
+            int numberOfKeyGroups) {
+        this.delegatedPriorityQueue = delegatedPriorityQueue;
+        this.elementSerializer = elementSerializer;
+        this.keyExtractor = keyExtractor;
+        this.changeLogger = changeLogger;
+        this.numberOfKeyGroups = numberOfKeyGroups;
+    }
+
+    StateChangeLogger getChangeLogger() {
+        return changeLogger;
+    }
+
+    TypeSerializer<T> getElementSerializer() {
+        return elementSerializer;
+    }
+
+    @Nullable
+    @Override
+    public T poll() {
+        T polled = delegatedPriorityQueue.poll();
+        if (polled != null) {
+            log(StateChangeOperation.REMOVE_ELEMENT, polled);
+        }
+        return polled;
+    }
+
+    @Nullable
+    @Override
+    public T peek() {
+        return delegatedPriorityQueue.peek();
+    }
+
+    @Override
+    public boolean add(@Nonnull T toAdd) {
+        boolean headChanged = delegatedPriorityQueue.add(toAdd);
+        log(StateChangeOperation.ADD, toAdd);
+        return headChanged;
+    }
+
+    @Override
+    public boolean remove(@Nonnull T toRemove) {
+        boolean headChanged = delegatedPriorityQueue.remove(toRemove);
+        log(StateChangeOperation.REMOVE_ELEMENT, toRemove);
+        return headChanged;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return delegatedPriorityQueue.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return delegatedPriorityQueue.size();
+    }
+
+    @Override
+    public void addAll(@Nullable Collection<? extends T> toAdd) {
+        delegatedPriorityQueue.addAll(toAdd);
+        if (toAdd != null) {
+            for (T element : toAdd) {
+                log(StateChangeOperation.ADD, element);
+            }
+        }
+    }
+
+    @Nonnull
+    @Override
+    public CloseableIterator<T> iterator() {
+        return delegatedPriorityQueue.iterator();
+    }
+
+    @Nonnull
+    @Override
+    public Set<T> getSubsetForKeyGroup(int keyGroupId) {
+        return delegatedPriorityQueue.getSubsetForKeyGroup(keyGroupId);
+    }
+
+    private void log(StateChangeOperation operation, T element) {
+        try {
+            changeLogger.log(
+                    operation,
+                    KeyGroupRangeAssignment.assignToKeyGroup(
+                            keyExtractor.extractKeyFromElement(element), numberOfKeyGroups),
+                    out -> elementSerializer.serialize(element, out));
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Unable to log state change of " + operation, e);
+        }
+    }
+
+    /**
+     * Applies a change read from the changelog to the wrapped queue, without logging it again.
+     *
+     * @param elementSerializer The serializer that the element of the change was written with.
+     */
+    void applyChange(
+            StateChangeOperation operation, DataInputView in, TypeSerializer<T> elementSerializer)
+            throws IOException {
+        switch (operation) {
+            case ADD:
+                delegatedPriorityQueue.add(elementSerializer.deserialize(in));
+                break;
+            case REMOVE_ELEMENT:
+                delegatedPriorityQueue.remove(elementSerializer.deserialize(in));
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unexpected operation " + operation + " for priority queue");
+        }
+    }
+}
@@ -0,0 +1,638 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.AggregatingStateDescriptor;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ReducingStateDescriptor;
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.concurrent.FutureUtils;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.KeyExtractorFunction;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.Keyed;
+import org.apache.flink.runtime.state.KeyedStateFunction;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PriorityComparable;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateSnapshotTransformer.StateSnapshotTransformFactory;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle.ChangelogStateBackendHandleImpl;
+import org.apache.flink.runtime.state.changelog.SequenceNumber;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandle;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandleStreamImpl;
+import org.apache.flink.runtime.state.changelog.StateChangelogStorage;
+import org.apache.flink.runtime.state.changelog.StateChangelogWriter;
+import org.apache.flink.runtime.state.heap.HeapPriorityQueueElement;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.heap.InternalKeyContextImpl;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.state.changelog.ChangelogBackendRestoreOperation.RestoredChanges;
+import org.apache.flink.state.changelog.ChangelogBackendRestoreOperation.StateMetadata;
+import org.apache.flink.state.changelog.StateChangeLogger.StateKind;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.StateMigrationException;
+import org.apache.flink.util.clock.SystemClock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A keyed state backend that wraps another {@link AbstractKeyedStateBackend} and writes every state
+ * change to a {@link StateChangelogWriter}.
+ *
+ * <p>A checkpoint only needs to persist the changes since the previous checkpoint, which makes its
+ * duration independent of the size of the state. The wrapped backend is snapshotted periodically in
+ * the background ("materialized"), after which the changelog up to that point is truncated. A
+ * checkpoint thus consists of the latest materialized state and the changelog written since.
+ *
+ * <p>On restore, the wrapped backend restores the materialized state and the changelog is replayed
+ * on top of it. The changes of a state are replayed when the job re-creates that state. The changes
+ * of states which were not re-created yet are appended to the changelog again whenever a
+ * materialization completes, as it does not include them. No savepoint can be taken until all
+ * restored states were re-created.
+ *
+ * @param <K> The key by which state is keyed.
+ */
+class ChangelogKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangelogKeyedStateBackend.class);
+
+    private static final Map<Class<? extends StateDescriptor>, StateFactory> STATE_FACTORIES =
+            Stream.of(
+                            Tuple2.of(
+                                    ValueStateDescriptor.class,
+                                    (StateFactory) ChangelogValueState::create),
+                            Tuple2.of(
+                                    ListStateDescriptor.class,
+                                    (StateFactory) ChangelogListState::create),
+                            Tuple2.of(
+                                    MapStateDescriptor.class,
+                                    (StateFactory) ChangelogMapState::create),
+                            Tuple2.of(
+                                    AggregatingStateDescriptor.class,
+                                    (StateFactory) ChangelogAggregatingState::create),
+                            Tuple2.of(
+                                    ReducingStateDescriptor.class,
+                                    (StateFactory) ChangelogReducingState::create))
+                    .collect(Collectors.toMap(t -> t.f0, t -> t.f1));
+
+    private final AbstractKeyedStateBackend<K> delegate;
+
+    private final StateChangelogStorage<?> stateChangelogStorage;
+
+    private final StateChangelogWriter<? extends StateChangelogHandle> stateChangelogWriter;
+
+    /** The loggers of all states, by state name. Ids are assigned in the order of creation. */
+    private final Map<String, StateChangeLogger> changeLoggers = new HashMap<>();
+
+    private final RestoredChanges restoredChanges;
+
+    private final long materializationIntervalMillis;
+
+    /** Runs the asynchronous part of materializations, shared with other tasks. */
+    private final Executor materializationExecutor;
+
+    /** The latest materialized state of the wrapped backend, by unique materialization id. */
+    private List<Tuple2<StateHandleID, KeyedStateHandle>> materialized;
+
+    /** The changes up to this sequence number are included in {@link #materialized}. */
+    private SequenceNumber materializedTo;
+
+    /**
+     * The changelog that was restored on top of {@link #materialized}, it is part of every
+     * checkpoint until the next materialization.
+     */
+    private final List<StateChangelogHandle> restoredChangelog;
+
+    /**
+     * Whether the restored state must be materialized with the first checkpoint because it was not
+     * restored from a changelog backend snapshot, e.g. from a savepoint.
+     */
+    private boolean materializationRequired;
+
+    private long lastMaterializationTime;
+
+    /** The materialization running in the background, if any. Only accessed by the task thread. */
+    @Nullable private CompletableFuture<Materialization> materializationFuture;
+
+    /** The asynchronous part of {@link #materializationFuture}, to interrupt it on cancellation. */
+    @Nullable private RunnableFuture<Materialization> runningMaterialization;
+
+    /** The id of the latest materialization that was not yet confirmed to the wrapped backend. */
+    private long unconfirmedMaterializationId = -1L;
+
+    /** The first checkpoint that includes {@link #unconfirmedMaterializationId}. */
+    private long firstCheckpointWithMaterialization = Long.MAX_VALUE;
+
+    ChangelogKeyedStateBackend(
+            AbstractKeyedStateBackend<K> delegate,
+            TaskKvStateRegistry kvStateRegistry,
+            ExecutionConfig executionConfig,
+            TtlTimeProvider ttlTimeProvider,
+            ClassLoader userCodeClassLoader,
+            CloseableRegistry cancelStreamRegistry,
+            StateChangelogStorage<?> stateChangelogStorage,
+            String operatorIdentifier,
+            List<Tuple2<StateHandleID, KeyedStateHandle>> restoredMaterialized,
+            List<StateChangelogHandle> restoredChangelog,
+            RestoredChanges restoredChanges,
+            boolean materializationRequired,
+            long materializationIntervalMillis,
+            Executor materializationExecutor) {
+        super(
+                kvStateRegistry,
+                delegate.getKeySerializer(),
+                userCodeClassLoader,
+                executionConfig,
+                ttlTimeProvider,
+                cancelStreamRegistry,
+                delegate.getKeyGroupCompressionDecorator(),
+                new InternalKeyContextImpl<>(
+                        delegate.getKeyGroupRange(), delegate.getNumberOfKeyGroups()));
+        Preconditions.checkArgument(
+                !delegate.requiresLegacySynchronousTimerSnapshots(),
+                "The changelog state backend does not support synchronous timer snapshots of %s,"
+                        + " please store timers in the wrapped state backend.",
+                delegate.getClass().getSimpleName());
+        this.delegate = delegate;
+        this.stateChangelogStorage = Preconditions.checkNotNull(stateChangelogStorage);
+        this.stateChangelogWriter =
+                stateChangelogStorage.createWriter(operatorIdentifier, getKeyGroupRange());
+        this.materialized = new ArrayList<>(restoredMaterialized);
+        this.restoredChangelog = new ArrayList<>(restoredChangelog);
+        this.restoredChanges = Preconditions.checkNotNull(restoredChanges);
+        this.materializationRequired = materializationRequired;
+        this.materializationIntervalMillis = materializationIntervalMillis;
+        this.materializedTo = stateChangelogWriter.nextSequenceNumber();
+        this.lastMaterializationTime = SystemClock.getInstance().relativeTimeMillis();
+        this.materializationExecutor = Preconditions.checkNotNull(materializationExecutor);
+    }
+
+    // ------------------------------------------------------------------------
+    //  state access
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void setCurrentKey(K newKey) {
+        super.setCurrentKey(newKey);
+        delegate.setCurrentKey(newKey);
+    }
+
+    @Override
+    public <N> Stream<K> getKeys(String state, N namespace) {
+        return delegate.getKeys(state, namespace);
+    }
+
+    @Override
+    public <N> Stream<Tuple2<K, N>> getKeysAndNamespaces(String state) {
+        return delegate.getKeysAndNamespaces(state);
+    }
+
+    @Override
+    public int numKeyValueStateEntries() {
+        return delegate.numKeyValueStateEntries();
+    }
+
+    @Override
+    public <N, S extends State, T> void applyToAllKeys(
+            final N namespace,
+            final TypeSerializer<N> namespaceSerializer,
+            final StateDescriptor<S, T> stateDescriptor,
+            final KeyedStateFunction<K, S> function)
+            throws Exception {
+
+        try (Stream<K> keyStream = getKeys(stateDescriptor.getName(), namespace)) {
+
+            // copy the keys because the key stream of the wrapped backend might not tolerate
+            // modifications of the state by function.process()
+            final List<K> keys = keyStream.collect(Collectors.toList());
+
+            final S state = getPartitionedState(namespace, namespaceSerializer, stateDescriptor);
+
+            for (K key : keys) {
+                setCurrentKey(key);
+                function.process(key, state);
+            }
+        }
+    }
+
+    @Override
+    public boolean supportsAsynchronousSnapshots() {
+        return true;
+    }
+
+    @Nonnull
+    @Override
+    @SuppressWarnings("unchecked")
+    public <N, SV, SEV, S extends State, IS extends S> IS createInternalState(
+            @Nonnull TypeSerializer<N> namespaceSerializer,
+            @Nonnull StateDescriptor<S, SV> stateDesc,
+            @Nonnull StateSnapshotTransformFactory<SEV> snapshotTransformFactory)
+            throws Exception {
+        StateFactory stateFactory = STATE_FACTORIES.get(stateDesc.getClass());
+        if (stateFactory == null) {
+            String message =
+                    String.format(
+                            "State %s is not supported by %s",
+                            stateDesc.getClass(), this.getClass());
+            throw new FlinkRuntimeException(message);
+        }
+        IS delegatedState =
+                delegate.createInternalState(
+                        namespaceSerializer, stateDesc, snapshotTransformFactory);
+        StateChangeLogger changeLogger = getChangeLogger(stateDesc.getName(), StateKind.KEY_VALUE);
+        changeLogger.setSerializers(
+                getKeySerializer(),
+                namespaceSerializer,
+                ((InternalKvState<K, N, SV>) delegatedState).getValueSerializer());
+        IS state =
+                stateFactory.create(
+                        stateDesc,
+                        (InternalKvState<K, N, SV>) delegatedState,
+                        changeLogger,
+                        keyContext);
+
+        List<Tuple2<StateMetadata, StateChange>> changes =
+                restoredChanges.pollKeyValueChanges(stateDesc.getName());
+        if (changes != null) {
+            cancelMaterialization();
+            try {
+                ChangelogBackendRestoreOperation.applyKeyValueChanges(
+                        changes, (AbstractChangelogState<K, N, SV, ?>) state, delegate);
+            } finally {
+                if (getCurrentKey() != null) {
+                    delegate.setCurrentKey(getCurrentKey());
+                }
+            }
+        }
+        return state;
+    }
+
+    @Nonnull
+    @Override
+    public <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
+            KeyGroupedInternalPriorityQueue<T> create(
+                    @Nonnull String stateName,
+                    @Nonnull TypeSerializer<T> byteOrderedElementSerializer) {
+        StateChangeLogger changeLogger = getChangeLogger(stateName, StateKind.PRIORITY_QUEUE);
+        changeLogger.setSerializers(byteOrderedElementSerializer);
+        ChangelogKeyGroupedPriorityQueue<T> queue =
+                new ChangelogKeyGroupedPriorityQueue<>(
+                        delegate.create(stateName, byteOrderedElementSerializer),
+                        byteOrderedElementSerializer,
+                        KeyExtractorFunction.forKeyedObjects(),
+                        changeLogger,
+                        getNumberOfKeyGroups());
+
+        List<Tuple2<StateMetadata, StateChange>> changes =
+                restoredChanges.pollPriorityQueueChanges(stateName);
+        if (changes != null) {
+            cancelMaterialization();
+            try {
+                ChangelogBackendRestoreOperation.applyPriorityQueueChanges(changes, queue);
+            } catch (IOException | StateMigrationException e) {
+                throw new FlinkRuntimeException(
+                        "Unable to restore the changelog of priority queue " + stateName, e);
+            }
+        }
+        return queue;
+    }
+
+    private StateChangeLogger getChangeLogger(String stateName, StateKind kind) {
+        return changeLoggers.computeIfAbsent(
+                stateName,
+                name -> {
+                    Preconditions.checkState(
+                            changeLoggers.size() < Short.MAX_VALUE, "Too many states.");
+                    return new StateChangeLogger(
+                            stateChangelogWriter, (short) changeLoggers.size(), name, kind);
+                });
+    }
+
+    // ------------------------------------------------------------------------
+    //  snapshots and materialization
+    // ------------------------------------------------------------------------
+
+    @Nonnull
+    @Override
+    public RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot(
+            long checkpointId,
+            long timestamp,
+            @Nonnull CheckpointStreamFactory streamFactory,
+            @Nonnull CheckpointOptions checkpointOptions)
+            throws Exception {
+
+        if (checkpointOptions.getCheckpointType().isSavepoint()) {
+            // savepoints must be self-contained and are thus taken by the wrapped backend
+            Preconditions.checkState(
+                    !restoredChanges.hasPendingChanges(),
+                    "Cannot take a savepoint before the restored states %s were re-created, their"
+                            + " changelog would not be part of it.",
+                    restoredChanges.getPendingStateNames());
+            return delegate.snapshot(checkpointId, timestamp, streamFactory, checkpointOptions);
+        }
+
+        completeMaterializationIfDone(checkpointId);
+        if (materializationRequired) {
+            Preconditions.checkState(materializationFuture == null);
+            completeMaterialization(
+                    FutureUtils.runIfNotDoneAndGet(
+                            startMaterialization(checkpointId, timestamp, streamFactory)),
+                    checkpointId);
+            materializationRequired = false;
+        } else if (isMaterializationDue()) {
+            RunnableFuture<Materialization> materialization =
+                    startMaterialization(checkpointId, timestamp, streamFactory);
+            runningMaterialization = materialization;
+            materializationFuture =
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                try {
+                                    return FutureUtils.runIfNotDoneAndGet(materialization);
+                                } catch (Exception e) {
+                                    throw new CompletionException(e);
+                                }
+                            },
+                            materializationExecutor);
+        }
+
+        // every checkpoint references the materialized state and changelog with its own handles,
+        // as each handle keeps track of its registration
+        List<Tuple2<StateHandleID, KeyedStateHandle>> materializedCopy =
+                new ArrayList<>(materialized.size());
+        for (Tuple2<StateHandleID, KeyedStateHandle> handle : materialized) {
+            materializedCopy.add(
+                    Tuple2.of(
+                            handle.f0,
+                            ChangelogStateBackendHandleImpl.copyMaterializedHandle(handle.f1)));
+        }
+        List<StateChangelogHandle> changelogCopy = new ArrayList<>(restoredChangelog.size());
+        for (StateChangelogHandle handle : restoredChangelog) {
+            changelogCopy.add(copyChangelogHandle(handle));
+        }
+
+        CompletableFuture<? extends StateChangelogHandle> persistedChanges =
+                stateChangelogWriter.persist(materializedTo);
+        // like the wrapped backends, only skip the snapshot if no state was registered at all
+        boolean noStateRegistered = changeLoggers.isEmpty();
+
+        return new FutureTask<>(
+                () -> {
+                    StateChangelogHandle changes = persistedChanges.get();
+                    if (changes.getStateSize() > 0) {
+                        changelogCopy.add(changes);
+                    }
+                    if (noStateRegistered
+                            && materializedCopy.isEmpty()
+                            && changelogCopy.isEmpty()) {
+                        return SnapshotResult.empty();
+                    }
+                    return SnapshotResult.of(
+                            new ChangelogStateBackendHandleImpl(
+                                    materializedCopy, changelogCopy, getKeyGroupRange()));
+                });
+    }
+
+    private boolean isMaterializationDue() {
+        return materializationFuture == null
+                && SystemClock.getInstance().relativeTimeMillis() - lastMaterializationTime
+                        >= materializationIntervalMillis;
+    }
+
+    /**
+     * Starts a snapshot of the wrapped backend that covers all changes written so far. The
+     * synchronous part runs in the calling (task) thread, the returned future runs the asynchronous
+     * part.
+     */
+    private RunnableFuture<Materialization> startMaterialization(
+            long checkpointId, long timestamp, CheckpointStreamFactory streamFactory)
+            throws Exception {
+        SequenceNumber upTo = stateChangelogWriter.nextSequenceNumber();
+        // the changelog after upTo must not depend on any metadata written before
+        for (StateChangeLogger changeLogger : changeLoggers.values()) {
+            changeLogger.resetMetadata();
+        }
+        lastMaterializationTime = SystemClock.getInstance().relativeTimeMillis();
+        LOG.debug("Starting materialization {} up to {}.", checkpointId, upTo);
+
+        // the materialized state outlives the checkpoint it was started with
+        CheckpointStreamFactory sharedStreamFactory =
+                scope ->
+                        streamFactory.createCheckpointStateOutputStream(
+                                CheckpointedStateScope.SHARED);
+        RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+                delegate.snapshot(
+                        checkpointId,
+                        timestamp,
+                        sharedStreamFactory,
+                        CheckpointOptions.forCheckpointWithDefaultLocation());
+        return new FutureTask<>(
+                () ->
+                        new Materialization(
+                                checkpointId,
+                                upTo,
+                                FutureUtils.runIfNotDoneAndGet(snapshot)
+                                        .getJobManagerOwnedSnapshot()));
+    }
+
+    private void completeMaterializationIfDone(long checkpointId) throws IOException {
+        if (materializationFuture == null || !materializationFuture.isDone()) {
+            return;
+        }
+        Materialization materialization;
+        try {
+            materialization = materializationFuture.join();
+        } catch (CompletionException e) {
+            // keep the previous materialization, a new one is started with the next interval
+            LOG.warn(
+                    "Materialization of the wrapped state backend failed.",
+                    ExceptionUtils.stripCompletionException(e));
+            return;
+        } finally {
+            materializationFuture = null;
+            runningMaterialization = null;
+        }
+        completeMaterialization(materialization, checkpointId);
+    }
+
+    /**
+     * Cancels the materialization in the background, if any. Called when the changelog of a
+     * restored state was applied after the materialization started, because the changelog after
+     * the materialization would not include these changes.
+     */
+    private void cancelMaterialization() {
+        if (materializationFuture != null) {
+            LOG.debug("Cancelling the running materialization.");
+            materializationFuture.cancel(false);
+            materializationFuture = null;
+        }
+        if (runningMaterialization != null) {
+            runningMaterialization.cancel(true);
+            runningMaterialization = null;
+        }
+    }
+
+    private void completeMaterialization(Materialization materialization, long checkpointId)
+            throws IOException {
+        if (restoredChanges.hasPendingChanges()) {
+            // the pending states were not changed since the materialization started, so their
+            // restored changes may follow the changes of other states
+            LOG.info(
+                    "Appending the changelog of the restored states {}, which were not re-created"
+                            + " yet, to the changelog after materialization {}.",
+                    restoredChanges.getPendingStateNames(),
+                    materialization.id);
+            restoredChanges.logPendingChanges(this::getChangeLogger);
+        }
+        LOG.debug(
+                "Completed materialization {} up to {}, first included in checkpoint {}.",
+                materialization.id,
+                materialization.upTo,
+                checkpointId);
+        materialized =
+                materialization.handle == null
+                        ? Collections.emptyList()
+                        : Collections.singletonList(
+                                Tuple2.of(
+                                        new StateHandleID(UUID.randomUUID().toString()),
+                                        materialization.handle));
+        materializedTo = materialization.upTo;
+        stateChangelogWriter.truncate(materializedTo);
+        restoredChangelog.clear();
+        unconfirmedMaterializationId = materialization.id;
+        firstCheckpointWithMaterialization = checkpointId;
+    }
+
+    private static StateChangelogHandle copyChangelogHandle(StateChangelogHandle handle) {
+        if (handle instanceof StateChangelogHandleStreamImpl) {
+            StateChangelogHandleStreamImpl streamHandle = (StateChangelogHandleStreamImpl) handle;
+            return new StateChangelogHandleStreamImpl(
+                    streamHandle.getKeyGroupRange(),
+                    streamHandle.getSegments(),
+                    streamHandle.getFrom());
+        }
+        return handle;
+    }
+
+    @VisibleForTesting
+    @Nullable
+    CompletableFuture<?> getMaterializationFuture() {
+        return materializationFuture;
+    }
+
+    @Override
+    public void notifyCheckpointComplete(long checkpointId) throws Exception {
+        // the wrapped backend may rely on its snapshot being confirmed, e.g. to build incremental
+        // snapshots upon it, which is only the case once a checkpoint including it completed
+        if (unconfirmedMaterializationId >= 0
+                && checkpointId >= firstCheckpointWithMaterialization) {
+            delegate.notifyCheckpointComplete(unconfirmedMaterializationId);
+            unconfirmedMaterializationId = -1L;
+        }
+    }
+
+    @Override
+    public void notifyCheckpointAborted(long checkpointId) {}
+
+    // ------------------------------------------------------------------------
+    //  lifecycle
+    // ------------------------------------------------------------------------
+
+    @Override
+    public void dispose() {
+        cancelMaterialization();
+        IOUtils.closeQuietly(stateChangelogWriter);
+        IOUtils.closeQuietly(stateChangelogStorage);
+        delegate.dispose();
+        super.dispose();
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+        super.close();
+    }
+
+    @VisibleForTesting
+    AbstractKeyedStateBackend<K> getDelegate() {
+        return delegate;
+    }
+
+    /** The result of a materialization. */
+    private static final class Materialization {
+
+        /** Passed to the wrapped backend as checkpoint id. */
+        private final long id;
+
+        /** The changes before this sequence number are included in the materialized state. */
+        private final SequenceNumber upTo;
+
+        @Nullable private final KeyedStateHandle handle;
+
+        private Materialization(long id, SequenceNumber upTo, @Nullable KeyedStateHandle handle) {
+            this.id = id;
+            this.upTo = upTo;
+            this.handle = handle;
+        }
+    }
+
+    private interface StateFactory {
+        <K, N, SV, S extends State, IS extends S> IS create(
+                StateDescriptor<S, SV> stateDesc,
+                InternalKvState<K, N, SV> delegatedState,
+                StateChangeLogger changeLogger,
+                InternalKeyContext<K> keyContext);
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.MapSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Delegated partitioned {@link org.apache.flink.api.common.state.MapState} that logs every
+ * modification to the changelog, including the ones done through its iterators.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <UK> The type of the keys in the state.
+ * @param <UV> The type of the values in the state.
+ */
+class ChangelogMapState<K, N, UK, UV>
+        extends AbstractChangelogState<K, N, Map<UK, UV>, InternalMapState<K, N, UK, UV>>
+        implements InternalMapState<K, N, UK, UV> {
+
+    ChangelogMapState(
+            InternalMapState<K, N, UK, UV> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        super(delegatedState, changeLogger, keyContext);
+    }
+
+    @Override
+    public UV get(UK key) throws Exception {
+        return delegatedState.get(key);
+    }
+
+    @Override
+    public void put(UK key, UV value) throws Exception {
+        delegatedState.put(key, value);
+        logPut(key, value);
+    }
+
+    @Override
+    public void putAll(Map<UK, UV> map) throws Exception {
+        delegatedState.putAll(map);
+        if (map != null) {
+            for (Map.Entry<UK, UV> entry : map.entrySet()) {
+                logPut(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Override
+    public void remove(UK key) throws Exception {
+        delegatedState.remove(key);
+        logRemove(key);
+    }
+
+    @Override
+    public boolean contains(UK key) throws Exception {
+        return delegatedState.contains(key);
+    }
+
+    @Override
+    public Iterable<Map.Entry<UK, UV>> entries() throws Exception {
+        return () -> iterator(Function.identity());
+    }
+
+    @Override
+    public Iterable<UK> keys() throws Exception {
+        return () -> iterator(Map.Entry::getKey);
+    }
+
+    @Override
+    public Iterable<UV> values() throws Exception {
+        return () -> iterator(Map.Entry::getValue);
+    }
+
+    @Override
+    public Iterator<Map.Entry<UK, UV>> iterator() throws Exception {
+        return iterator(Function.identity());
+    }
+
+    @Override
+    public boolean isEmpty() throws Exception {
+        return delegatedState.isEmpty();
+    }
+
+    private <T> Iterator<T> iterator(Function<Map.Entry<UK, UV>, T> transformer) {
+        final Iterator<Map.Entry<UK, UV>> iterator;
+        try {
+            iterator = delegatedState.iterator();
+        } catch (Exception e) {
+            throw new FlinkRuntimeException("Error while iterating over map state", e);
+        }
+        return new Iterator<T>() {
+            private Map.Entry<UK, UV> lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                lastReturned = new LoggingEntry(iterator.next());
+                return transformer.apply(lastReturned);
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                logUnchecked(
+                        StateChangeOperation.REMOVE_ELEMENT,
+                        out ->
+                                getMapSerializer()
+                                        .getKeySerializer()
+                                        .serialize(lastReturned.getKey(), out));
+            }
+        };
+    }
+
+    private void logPut(UK key, UV value) throws IOException {
+        log(
+                StateChangeOperation.PUT_ELEMENT,
+                out -> {
+                    getMapSerializer().getKeySerializer().serialize(key, out);
+                    getMapSerializer().getValueSerializer().serialize(value, out);
+                });
+    }
+
+    private void logRemove(UK key) throws IOException {
+        log(
+                StateChangeOperation.REMOVE_ELEMENT,
+                out -> getMapSerializer().getKeySerializer().serialize(key, out));
+    }
+
+    @Override
+    void applyChange(
+            StateChangeOperation operation,
+            DataInputView in,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<Map<UK, UV>> valueSerializer)
+            throws Exception {
+        MapSerializer<UK, UV> mapSerializer = (MapSerializer<UK, UV>) valueSerializer;
+        switch (operation) {
+            case CLEAR:
+                delegatedState.clear();
+                break;
+            case PUT_ELEMENT:
+                delegatedState.put(
+                        mapSerializer.getKeySerializer().deserialize(in),
+                        mapSerializer.getValueSerializer().deserialize(in));
+                break;
+            case REMOVE_ELEMENT:
+                delegatedState.remove(mapSerializer.getKeySerializer().deserialize(in));
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unexpected operation " + operation + " for map state");
+        }
+    }
+
+    private MapSerializer<UK, UV> getMapSerializer() {
+        return (MapSerializer<UK, UV>) getValueSerializer();
+    }
+
+    /** Logs the updates done through {@link Map.Entry#setValue(Object)}. */
+    private class LoggingEntry implements Map.Entry<UK, UV> {
+
+        private final Map.Entry<UK, UV> delegate;
+
+        private LoggingEntry(Map.Entry<UK, UV> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public UK getKey() {
+            return delegate.getKey();
+        }
+
+        @Override
+        public UV getValue() {
+            return delegate.getValue();
+        }
+
+        @Override
+        public UV setValue(UV value) {
+            UV oldValue = delegate.setValue(value);
+            logUnchecked(
+                    StateChangeOperation.PUT_ELEMENT,
+                    out -> {
+                        getMapSerializer().getKeySerializer().serialize(getKey(), out);
+                        getMapSerializer().getValueSerializer().serialize(value, out);
+                    });
+            return oldValue;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <UK, UV, K, N, SV, S extends State, IS extends S> IS create(
+            StateDescriptor<S, SV> stateDesc,
+            InternalKvState<K, N, SV> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        return (IS)
+                new ChangelogMapState<>(
+                        (InternalMapState<K, N, UK, UV>) delegatedState, changeLogger, keyContext);
+    }
+}
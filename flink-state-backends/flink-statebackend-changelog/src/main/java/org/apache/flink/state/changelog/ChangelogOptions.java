@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
+
+import java.time.Duration;
+
+/** Configuration options for the changelog state backend. */
+public class ChangelogOptions {
+
+    /** The directory where the state changelog is written to. */
+    public static final ConfigOption<String> BASE_PATH =
+            ConfigOptions.key("state.backend.changelog.storage.fs.base-path")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription(
+                            "The directory (of a Flink supported file system) where the state changelog is written to."
+                                    + " A local directory is only suitable for testing.");
+
+    /** The size of buffered changes from which on they are uploaded before a checkpoint. */
+    public static final ConfigOption<MemorySize> PERSIST_THRESHOLD =
+            ConfigOptions.key("state.backend.changelog.storage.fs.persist-threshold")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("1mb"))
+                    .withDescription(
+                            "The size of state changes buffered in memory from which on they are uploaded to the"
+                                    + " changelog in the background, without waiting for the next checkpoint.");
+
+    /** The interval in which the wrapped state backend is materialized. */
+    public static final ConfigOption<Duration> PERIODIC_MATERIALIZATION_INTERVAL =
+            ConfigOptions.key("state.backend.changelog.periodic-materialize.interval")
+                    .durationType()
+                    .defaultValue(Duration.ofMinutes(10))
+                    .withDescription(
+                            "The minimum interval in which the state of the wrapped state backend is materialized,"
+                                    + " i.e. snapshotted in the background so that the changelog can be truncated."
+                                    + " Materialization is triggered together with a checkpoint and never"
+                                    + " blocks the completion of that checkpoint.");
+}
@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalReducingState;
+
+import java.util.Collection;
+
+/**
+ * Delegated partitioned {@link org.apache.flink.api.common.state.ReducingState} that logs every
+ * modification to the changelog. Added values are logged as they are and reduced again on restore.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <V> The type of the values in the state.
+ */
+class ChangelogReducingState<K, N, V>
+        extends AbstractChangelogState<K, N, V, InternalReducingState<K, N, V>>
+        implements InternalReducingState<K, N, V> {
+
+    ChangelogReducingState(
+            InternalReducingState<K, N, V> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        super(delegatedState, changeLogger, keyContext);
+    }
+
+    @Override
+    public V get() throws Exception {
+        return delegatedState.get();
+    }
+
+    @Override
+    public void add(V value) throws Exception {
+        delegatedState.add(value);
+        log(StateChangeOperation.ADD, out -> getValueSerializer().serialize(value, out));
+    }
+
+    @Override
+    public V getInternal() throws Exception {
+        return delegatedState.getInternal();
+    }
+
+    @Override
+    public void updateInternal(V valueToStore) throws Exception {
+        delegatedState.updateInternal(valueToStore);
+        log(StateChangeOperation.SET, out -> getValueSerializer().serialize(valueToStore, out));
+    }
+
+    @Override
+    public void mergeNamespaces(N target, Collection<N> sources) throws Exception {
+        delegatedState.mergeNamespaces(target, sources);
+        logMerge(target, sources);
+    }
+
+    @Override
+    void applyChange(
+            StateChangeOperation operation,
+            DataInputView in,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<V> valueSerializer)
+            throws Exception {
+        switch (operation) {
+            case CLEAR:
+                delegatedState.clear();
+                break;
+            case SET:
+                delegatedState.updateInternal(valueSerializer.deserialize(in));
+                break;
+            case ADD:
+                delegatedState.add(valueSerializer.deserialize(in));
+                break;
+            case MERGE_NS:
+                applyMerge(in, namespaceSerializer);
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unexpected operation " + operation + " for reducing state");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, N, SV, S extends State, IS extends S> IS create(
+            StateDescriptor<S, SV> stateDesc,
+            InternalKvState<K, N, SV> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        return (IS)
+                new ChangelogReducingState<>(
+                        (InternalReducingState<K, N, SV>) delegatedState, changeLogger, keyContext);
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.CheckpointStorageAccess;
+import org.apache.flink.runtime.state.CheckpointableKeyedStateBackend;
+import org.apache.flink.runtime.state.CompletedCheckpointStorageLocation;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.OperatorStateBackend;
+import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle;
+import org.apache.flink.runtime.state.changelog.StateChangelogHandle;
+import org.apache.flink.runtime.state.changelog.fs.FsStateChangelogStorage;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A state backend that wraps another state backend and logs all changes of keyed state to a durable
+ * changelog, so that checkpoints only need to persist the changes since the last checkpoint. The
+ * state of the wrapped backend is materialized periodically in the background, which allows
+ * truncating the changelog.
+ *
+ * <p>Checkpoint storage and operator state are provided by the wrapped state backend, savepoints
+ * are taken by the wrapped backend as well. The changelog is written to files below the {@link
+ * ChangelogOptions#BASE_PATH base path}.
+ */
+@PublicEvolving
+public class ChangelogStateBackend extends AbstractStateBackend
+        implements ConfigurableStateBackend {
+
+    private static final long serialVersionUID = 1L;
+
+    private final StateBackend delegateStateBackend;
+
+    /** The directory of the changelog, null if not yet configured. */
+    @Nullable private final Path basePath;
+
+    /** The size from which on changes are persisted pro-actively, null if not yet configured. */
+    @Nullable private MemorySize persistThreshold;
+
+    /** The interval of materializations, null if not yet configured. */
+    @Nullable private Duration periodicMaterializationInterval;
+
+    /**
+     * Creates a new changelog state backend that wraps the given state backend. The directory of
+     * the changelog is taken from the configuration.
+     *
+     * @param delegateStateBackend The state backend that holds the keyed state.
+     */
+    public ChangelogStateBackend(StateBackend delegateStateBackend) {
+        this(delegateStateBackend, null);
+    }
+
+    /**
+     * Creates a new changelog state backend that wraps the given state backend and writes the
+     * changelog to the given directory.
+     *
+     * @param delegateStateBackend The state backend that holds the keyed state.
+     * @param basePath The directory (of a Flink supported file system) to write the changelog to.
+     */
+    public ChangelogStateBackend(StateBackend delegateStateBackend, @Nullable String basePath) {
+        this.delegateStateBackend = checkNotNull(delegateStateBackend);
+        checkArgument(
+                !(delegateStateBackend instanceof ChangelogStateBackend),
+                "Changelog state backends can not be nested.");
+        this.basePath = basePath == null ? null : new Path(basePath);
+    }
+
+    /**
+     * Private constructor that creates a re-configured copy of the state backend.
+     *
+     * @param original The state backend to re-configure.
+     * @param config The configuration.
+     * @param classLoader The class loader.
+     */
+    private ChangelogStateBackend(
+            ChangelogStateBackend original, ReadableConfig config, ClassLoader classLoader) {
+        this.delegateStateBackend =
+                original.delegateStateBackend instanceof ConfigurableStateBackend
+                        ? ((ConfigurableStateBackend) original.delegateStateBackend)
+                                .configure(config, classLoader)
+                        : original.delegateStateBackend;
+
+        if (original.basePath != null) {
+            this.basePath = original.basePath;
+        } else {
+            String configuredPath = config.get(ChangelogOptions.BASE_PATH);
+            this.basePath = configuredPath == null ? null : new Path(configuredPath);
+        }
+        this.persistThreshold =
+                original.persistThreshold != null
+                        ? original.persistThreshold
+                        : config.get(ChangelogOptions.PERSIST_THRESHOLD);
+        this.periodicMaterializationInterval =
+                original.periodicMaterializationInterval != null
+                        ? original.periodicMaterializationInterval
+                        : config.get(ChangelogOptions.PERIODIC_MATERIALIZATION_INTERVAL);
+    }
+
+    // ------------------------------------------------------------------------
+    //  properties
+    // ------------------------------------------------------------------------
+
+    /** Gets the state backend that this changelog state backend wraps. */
+    public StateBackend getDelegatedStateBackend() {
+        return delegateStateBackend;
+    }
+
+    /**
+     * Sets the size of buffered changes from which on they are uploaded in the background, without
+     * waiting for the next checkpoint.
+     */
+    public void setPersistThreshold(MemorySize persistThreshold) {
+        checkArgument(persistThreshold.getBytes() > 0, "The persist threshold must be positive.");
+        this.persistThreshold = persistThreshold;
+    }
+
+    /** Sets the minimum interval in which the state of the wrapped backend is materialized. */
+    public void setPeriodicMaterializationInterval(Duration periodicMaterializationInterval) {
+        checkArgument(
+                !periodicMaterializationInterval.isNegative(),
+                "The materialization interval must not be negative.");
+        this.periodicMaterializationInterval = periodicMaterializationInterval;
+    }
+
+    @Override
+    public ChangelogStateBackend configure(ReadableConfig config, ClassLoader classLoader) {
+        return new ChangelogStateBackend(this, config, classLoader);
+    }
+
+    // ------------------------------------------------------------------------
+    //  checkpoint storage, provided by the wrapped backend
+    // ------------------------------------------------------------------------
+
+    @Override
+    public CompletedCheckpointStorageLocation resolveCheckpoint(String externalPointer)
+            throws IOException {
+        return delegateStateBackend.resolveCheckpoint(externalPointer);
+    }
+
+    @Override
+    public CheckpointStorageAccess createCheckpointStorage(JobID jobId) throws IOException {
+        return delegateStateBackend.createCheckpointStorage(jobId);
+    }
+
+    @Override
+    public CheckpointStorageAccess createCheckpointStorage(
+            JobID jobId, SegmentFileWriters segmentFileWriters) throws IOException {
+        return delegateStateBackend.createCheckpointStorage(jobId, segmentFileWriters);
+    }
+
+    @Override
+    public boolean useManagedMemory() {
+        return delegateStateBackend.useManagedMemory();
+    }
+
+    // ------------------------------------------------------------------------
+    //  state holding structures
+    // ------------------------------------------------------------------------
+
+    @Override
+    public OperatorStateBackend createOperatorStateBackend(
+            Environment env,
+            String operatorIdentifier,
+            @Nonnull Collection<OperatorStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry)
+            throws Exception {
+        return delegateStateBackend.createOperatorStateBackend(
+                env, operatorIdentifier, stateHandles, cancelStreamRegistry);
+    }
+
+    @Override
+    public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+            Environment env,
+            JobID jobID,
+            String operatorIdentifier,
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            TaskKvStateRegistry kvStateRegistry,
+            TtlTimeProvider ttlTimeProvider,
+            MetricGroup metricGroup,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry)
+            throws IOException {
+        return createKeyedStateBackend(
+                env,
+                jobID,
+                operatorIdentifier,
+                keySerializer,
+                numberOfKeyGroups,
+                keyGroupRange,
+                kvStateRegistry,
+                ttlTimeProvider,
+                metricGroup,
+                stateHandles,
+                cancelStreamRegistry,
+                1.0);
+    }
+
+    @Override
+    public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+            Environment env,
+            JobID jobID,
+            String operatorIdentifier,
+            TypeSerializer<K> keySerializer,
+            int numberOfKeyGroups,
+            KeyGroupRange keyGroupRange,
+            TaskKvStateRegistry kvStateRegistry,
+            TtlTimeProvider ttlTimeProvider,
+            MetricGroup metricGroup,
+            @Nonnull Collection<KeyedStateHandle> stateHandles,
+            CloseableRegistry cancelStreamRegistry,
+            double managedMemoryFraction)
+            throws IOException {
+
+        if (basePath == null) {
+            throw new IllegalConfigurationException(
+                    "No directory for the state changelog was configured, please set "
+                            + ChangelogOptions.BASE_PATH.key());
+        }
+
+        // the wrapped backend restores the materialized state, the changelog is replayed on top
+        List<KeyedStateHandle> delegateStateHandles = new ArrayList<>();
+        List<Tuple2<StateHandleID, KeyedStateHandle>> materialized = new ArrayList<>();
+        List<StateChangelogHandle> nonMaterialized = new ArrayList<>();
+        List<ChangelogStateBackendHandle> changelogStateHandles = new ArrayList<>();
+        boolean materializationRequired = false;
+        for (KeyedStateHandle stateHandle : stateHandles) {
+            if (stateHandle instanceof ChangelogStateBackendHandle) {
+                ChangelogStateBackendHandle changelogStateHandle =
+                        (ChangelogStateBackendHandle) stateHandle;
+                changelogStateHandles.add(changelogStateHandle);
+                for (Tuple2<StateHandleID, KeyedStateHandle> handle :
+                        changelogStateHandle.getMaterializedStateHandles()) {
+                    materialized.add(handle);
+                    delegateStateHandles.add(handle.f1);
+                }
+                nonMaterialized.addAll(changelogStateHandle.getNonMaterializedStateHandles());
+            } else if (stateHandle != null) {
+                // e.g. a savepoint which must not become part of the checkpoints
+                delegateStateHandles.add(stateHandle);
+                materializationRequired = true;
+            }
+        }
+
+        CheckpointableKeyedStateBackend<K> delegateKeyedStateBackend;
+        try {
+            delegateKeyedStateBackend =
+                    delegateStateBackend.createKeyedStateBackend(
+                            env,
+                            jobID,
+                            operatorIdentifier,
+                            keySerializer,
+                            numberOfKeyGroups,
+                            keyGroupRange,
+                            kvStateRegistry,
+                            ttlTimeProvider,
+                            metricGroup,
+                            delegateStateHandles,
+                            cancelStreamRegistry,
+                            managedMemoryFraction);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new BackendBuildingException(
+                    "Failed to create the wrapped keyed state backend.", e);
+        }
+        if (!(delegateKeyedStateBackend instanceof AbstractKeyedStateBackend)) {
+            IOUtils.closeQuietly(delegateKeyedStateBackend);
+            delegateKeyedStateBackend.dispose();
+            throw new BackendBuildingException(
+                    "The changelog state backend can only wrap state backends which create an "
+                            + AbstractKeyedStateBackend.class.getSimpleName()
+                            + ", but got "
+                            + delegateKeyedStateBackend.getClass().getName());
+        }
+
+        // the uploads and materializations of all backends share the I/O threads of the TaskManager
+        Executor ioExecutor = env.getTaskStateManager().getIOExecutor();
+        FsStateChangelogStorage changelogStorage =
+                new FsStateChangelogStorage(
+                        new Path(basePath, jobID.toString()),
+                        getPersistThreshold().getBytes(),
+                        ioExecutor);
+        try {
+            return new ChangelogKeyedStateBackend<>(
+                    (AbstractKeyedStateBackend<K>) delegateKeyedStateBackend,
+                    kvStateRegistry,
+                    env.getExecutionConfig(),
+                    ttlTimeProvider,
+                    env.getUserCodeClassLoader().asClassLoader(),
+                    cancelStreamRegistry,
+                    changelogStorage,
+                    operatorIdentifier,
+                    materialized,
+                    nonMaterialized,
+                    ChangelogBackendRestoreOperation.readChanges(
+                            changelogStateHandles,
+                            keySerializer,
+                            env.getUserCodeClassLoader().asClassLoader()),
+                    materializationRequired,
+                    getPeriodicMaterializationInterval().toMillis(),
+                    ioExecutor);
+        } catch (Exception e) {
+            IOUtils.closeQuietly(changelogStorage);
+            IOUtils.closeQuietly(delegateKeyedStateBackend);
+            delegateKeyedStateBackend.dispose();
+            throw new BackendBuildingException(
+                    "Failed to restore the changelog of the keyed state backend.", e);
+        }
+    }
+
+    @VisibleForTesting
+    MemorySize getPersistThreshold() {
+        return persistThreshold == null
+                ? ChangelogOptions.PERSIST_THRESHOLD.defaultValue()
+                : persistThreshold;
+    }
+
+    @VisibleForTesting
+    Duration getPeriodicMaterializationInterval() {
+        return periodicMaterializationInterval == null
+                ? ChangelogOptions.PERIODIC_MATERIALIZATION_INTERVAL.defaultValue()
+                : periodicMaterializationInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangelogStateBackend{"
+                + "delegateStateBackend="
+                + delegateStateBackend
+                + ", basePath="
+                + basePath
+                + ", persistThreshold="
+                + persistThreshold
+                + ", periodicMaterializationInterval="
+                + periodicMaterializationInterval
+                + '}';
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Delegated partitioned {@link org.apache.flink.api.common.state.ValueState} that logs every update
+ * to the changelog.
+ *
+ * @param <K> The type of the key.
+ * @param <N> The type of the namespace.
+ * @param <V> The type of the value.
+ */
+class ChangelogValueState<K, N, V>
+        extends AbstractChangelogState<K, N, V, InternalValueState<K, N, V>>
+        implements InternalValueState<K, N, V> {
+
+    ChangelogValueState(
+            InternalValueState<K, N, V> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        super(delegatedState, changeLogger, keyContext);
+    }
+
+    @Override
+    public V value() throws IOException {
+        return delegatedState.value();
+    }
+
+    @Override
+    public List<V> multiGet(List<K> keys) throws IOException {
+        return delegatedState.multiGet(keys);
+    }
+
+    @Override
+    public void update(V value) throws IOException {
+        delegatedState.update(value);
+        if (value == null) {
+            log(StateChangeOperation.CLEAR, out -> {});
+        } else {
+            log(StateChangeOperation.SET, out -> getValueSerializer().serialize(value, out));
+        }
+    }
+
+    @Override
+    void applyChange(
+            StateChangeOperation operation,
+            DataInputView in,
+            TypeSerializer<N> namespaceSerializer,
+            TypeSerializer<V> valueSerializer)
+            throws Exception {
+        switch (operation) {
+            case CLEAR:
+                delegatedState.clear();
+                break;
+            case SET:
+                delegatedState.update(valueSerializer.deserialize(in));
+                break;
+            default:
+                throw new IllegalStateException(
+                        "Unexpected operation " + operation + " for value state");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, N, SV, S extends State, IS extends S> IS create(
+            StateDescriptor<S, SV> stateDesc,
+            InternalKvState<K, N, SV> delegatedState,
+            StateChangeLogger changeLogger,
+            InternalKeyContext<K> keyContext) {
+        return (IS)
+                new ChangelogValueState<>(
+                        (InternalValueState<K, N, SV>) delegatedState, changeLogger, keyContext);
+    }
+}
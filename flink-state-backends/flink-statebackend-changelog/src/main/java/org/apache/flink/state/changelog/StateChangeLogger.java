@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.changelog.StateChange;
+import org.apache.flink.runtime.state.changelog.StateChangelogWriter;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.function.ThrowingConsumer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes the changes of a single state to a {@link StateChangelogWriter}.
+ *
+ * <p>Every change starts with the {@link StateChangeOperation operation} and a short id of the
+ * state. The binding of the id to the state name and the snapshots of the serializers that the
+ * changes are written with are written as a {@link StateChangeOperation#METADATA} change before the
+ * first change of the state, and again after every materialization, so that any changelog suffix
+ * starting at a materialization is self-contained.
+ */
+class StateChangeLogger {
+
+    /** The kind of state a changelog entry belongs to. */
+    enum StateKind {
+        KEY_VALUE,
+        PRIORITY_QUEUE
+    }
+
+    private final StateChangelogWriter<?> writer;
+    private final short stateId;
+    private final String stateName;
+    private final StateKind stateKind;
+    private final DataOutputSerializer out = new DataOutputSerializer(128);
+
+    private List<TypeSerializerSnapshot<?>> serializerSnapshots = Collections.emptyList();
+
+    private boolean metadataLogged;
+
+    StateChangeLogger(
+            StateChangelogWriter<?> writer, short stateId, String stateName, StateKind stateKind) {
+        this.writer = Preconditions.checkNotNull(writer);
+        this.stateId = stateId;
+        this.stateName = Preconditions.checkNotNull(stateName);
+        this.stateKind = Preconditions.checkNotNull(stateKind);
+    }
+
+    void log(
+            StateChangeOperation operation,
+            int keyGroup,
+            ThrowingConsumer<DataOutputView, IOException> payloadWriter)
+            throws IOException {
+        logMetadataIfNeeded();
+        out.clear();
+        out.writeByte(operation.getCode());
+        out.writeShort(stateId);
+        payloadWriter.accept(out);
+        writer.append(keyGroup, out.getCopyOfBuffer());
+    }
+
+    private void logMetadataIfNeeded() throws IOException {
+        if (!metadataLogged) {
+            out.clear();
+            out.writeByte(StateChangeOperation.METADATA.getCode());
+            out.writeShort(stateId);
+            out.writeByte(stateKind.ordinal());
+            out.writeUTF(stateName);
+            out.writeInt(serializerSnapshots.size());
+            for (TypeSerializerSnapshot<?> serializerSnapshot : serializerSnapshots) {
+                TypeSerializerSnapshot.writeVersionedSnapshot(out, serializerSnapshot);
+            }
+            writer.append(StateChange.META_KEY_GROUP, out.getCopyOfBuffer());
+            metadataLogged = true;
+        }
+    }
+
+    /**
+     * Sets the serializers that the following changes are written with. For key/value states these
+     * are the key, namespace and value serializer, for priority queues the element serializer.
+     */
+    void setSerializers(TypeSerializer<?>... serializers) {
+        List<TypeSerializerSnapshot<?>> snapshots = new ArrayList<>(serializers.length);
+        for (TypeSerializer<?> serializer : serializers) {
+            snapshots.add(serializer.snapshotConfiguration());
+        }
+        serializerSnapshots = snapshots;
+        metadataLogged = false;
+    }
+
+    /**
+     * Appends a change which was restored from a previous changelog. The change keeps its payload
+     * and key group but gets the id of this state.
+     *
+     * @param serializerSnapshots The snapshots of the serializers that the change was written with.
+     */
+    void logRestored(List<TypeSerializerSnapshot<?>> serializerSnapshots, StateChange change)
+            throws IOException {
+        if (this.serializerSnapshots != serializerSnapshots) {
+            this.serializerSnapshots = serializerSnapshots;
+            metadataLogged = false;
+        }
+        logMetadataIfNeeded();
+        byte[] bytes = change.getChange().clone();
+        // the operation code is followed by the state id
+        bytes[1] = (byte) (stateId >>> 8);
+        bytes[2] = (byte) stateId;
+        writer.append(change.getKeyGroup(), bytes);
+    }
+
+    /** Makes sure the metadata is written again before the next change. */
+    void resetMetadata() {
+        metadataLogged = false;
+    }
+}
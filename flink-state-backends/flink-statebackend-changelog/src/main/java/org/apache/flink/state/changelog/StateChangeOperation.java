@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+/** The kind of a state change as written to the changelog. */
+enum StateChangeOperation {
+    /** Binds a state id to the name and kind of a state, valid until the next materialization. */
+    METADATA((byte) 0),
+    /** Clears the state of the key and namespace. */
+    CLEAR((byte) 1),
+    /** Replaces the (internal) value of the key and namespace. */
+    SET((byte) 2),
+    /** Adds a single element, e.g. to a list state, reducing state or priority queue. */
+    ADD((byte) 3),
+    /** Adds a list of elements to a list state. */
+    ADD_ALL((byte) 4),
+    /** Puts an entry into a map state. */
+    PUT_ELEMENT((byte) 5),
+    /** Removes a single element, e.g. from a map state or a priority queue. */
+    REMOVE_ELEMENT((byte) 6),
+    /** Merges a number of namespaces into a target namespace. */
+    MERGE_NS((byte) 7);
+
+    private static final StateChangeOperation[] BY_CODE = new StateChangeOperation[values().length];
+
+    static {
+        for (StateChangeOperation operation : values()) {
+            BY_CODE[operation.code] = operation;
+        }
+    }
+
+    private final byte code;
+
+    StateChangeOperation(byte code) {
+        this.code = code;
+    }
+
+    byte getCode() {
+        return code;
+    }
+
+    static StateChangeOperation byCode(byte code) {
+        if (code < 0 || code >= BY_CODE.length) {
+            throw new IllegalArgumentException("Unknown state change operation: " + code);
+        }
+        return BY_CODE[code];
+    }
+}
@@ -0,0 +1,625 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.state.changelog;
+
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.java.typeutils.GenericTypeInfo;
+import org.apache.flink.api.java.typeutils.runtime.kryo.KryoSerializer;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
+import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutor;
+import org.apache.flink.runtime.operators.testutils.MockEnvironment;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.TestTaskStateManager;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackendHandle;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.util.IOUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/** Tests for the {@link ChangelogStateBackend} wrapping a {@link MemoryStateBackend}. */
+@RunWith(Parameterized.class)
+public class ChangelogStateBackendTest extends StateBackendTestBase<ChangelogStateBackend> {
+
+    @Parameterized.Parameters(name = "materializeWithEveryCheckpoint={0}")
+    public static List<Boolean> modes() {
+        return Arrays.asList(true, false);
+    }
+
+    @Parameterized.Parameter public boolean materializeWithEveryCheckpoint;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Override
+    protected ChangelogStateBackend getStateBackend() throws Exception {
+        ChangelogStateBackend backend =
+                new ChangelogStateBackend(
+                        new MemoryStateBackend(true),
+                        temporaryFolder.newFolder().toURI().toString());
+        backend.setPeriodicMaterializationInterval(
+                materializeWithEveryCheckpoint ? Duration.ZERO : Duration.ofHours(1));
+        return backend;
+    }
+
+    @Override
+    protected boolean isSerializerPresenceRequiredOnRestore() {
+        return true;
+    }
+
+    @Test
+    public void testMaterializationTruncatesChangelog() throws Exception {
+        assumeTrue(materializeWithEveryCheckpoint);
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<Integer> stateDescriptor =
+                new ValueStateDescriptor<>("id", IntSerializer.INSTANCE);
+
+        ChangelogKeyedStateBackend<Integer> backend =
+                (ChangelogKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+        ChangelogStateBackendHandle handle;
+        try {
+            ValueState<Integer> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE,
+                            VoidNamespaceSerializer.INSTANCE,
+                            stateDescriptor);
+            for (int i = 0; i < 3; i++) {
+                backend.setCurrentKey(i);
+                state.update(i);
+            }
+
+            handle =
+                    (ChangelogStateBackendHandle)
+                            runSnapshot(
+                                    backend.snapshot(
+                                            1L,
+                                            1L,
+                                            streamFactory,
+                                            CheckpointOptions.forCheckpointWithDefaultLocation()),
+                                    sharedStateRegistry);
+            assertTrue(handle.getMaterializedStateHandles().isEmpty());
+            assertEquals(1, handle.getNonMaterializedStateHandles().size());
+
+            // the materialization started by the first checkpoint is used by the next one
+            backend.getMaterializationFuture().get();
+            backend.setCurrentKey(1);
+            state.update(10);
+
+            handle =
+                    (ChangelogStateBackendHandle)
+                            runSnapshot(
+                                    backend.snapshot(
+                                            2L,
+                                            2L,
+                                            streamFactory,
+                                            CheckpointOptions.forCheckpointWithDefaultLocation()),
+                                    sharedStateRegistry);
+            assertEquals(1, handle.getMaterializedStateHandles().size());
+            assertEquals(1, handle.getNonMaterializedStateHandles().size());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend =
+                (ChangelogKeyedStateBackend<Integer>)
+                        restoreKeyedBackend(IntSerializer.INSTANCE, handle);
+        try {
+            ValueState<Integer> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE,
+                            VoidNamespaceSerializer.INSTANCE,
+                            stateDescriptor);
+            backend.setCurrentKey(0);
+            assertEquals(0, (int) state.value());
+            backend.setCurrentKey(1);
+            assertEquals(10, (int) state.value());
+            backend.setCurrentKey(2);
+            assertEquals(2, (int) state.value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testRestoreFromSavepointMaterializesWithFirstCheckpoint() throws Exception {
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<Integer> stateDescriptor =
+                new ValueStateDescriptor<>("id", IntSerializer.INSTANCE);
+
+        AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+        KeyedStateHandle savepoint;
+        try {
+            ValueState<Integer> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE,
+                            VoidNamespaceSerializer.INSTANCE,
+                            stateDescriptor);
+            backend.setCurrentKey(1);
+            state.update(1);
+
+            savepoint =
+                    runSnapshot(
+                            backend.snapshot(
+                                    1L,
+                                    1L,
+                                    streamFactory,
+                                    new CheckpointOptions(
+                                            CheckpointType.SAVEPOINT,
+                                            CheckpointStorageLocationReference.getDefault())),
+                            sharedStateRegistry);
+            assertFalse(savepoint instanceof ChangelogStateBackendHandle);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, savepoint);
+        try {
+            ValueState<Integer> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE,
+                            VoidNamespaceSerializer.INSTANCE,
+                            stateDescriptor);
+            backend.setCurrentKey(1);
+            assertEquals(1, (int) state.value());
+
+            ChangelogStateBackendHandle handle =
+                    (ChangelogStateBackendHandle)
+                            runSnapshot(
+                                    backend.snapshot(
+                                            2L,
+                                            2L,
+                                            streamFactory,
+                                            CheckpointOptions.forCheckpointWithDefaultLocation()),
+                                    sharedStateRegistry);
+            assertEquals(1, handle.getMaterializedStateHandles().size());
+            assertTrue(handle.getNonMaterializedStateHandles().isEmpty());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testRestoredChangesOfStatesNotRecreatedAreKeptOnMaterialization()
+            throws Exception {
+        assumeTrue(materializeWithEveryCheckpoint);
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<Integer> firstDescriptor =
+                new ValueStateDescriptor<>("first", IntSerializer.INSTANCE);
+        ValueStateDescriptor<Integer> secondDescriptor =
+                new ValueStateDescriptor<>("second", IntSerializer.INSTANCE);
+
+        AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+        KeyedStateHandle handle;
+        try {
+            backend.setCurrentKey(1);
+            getValueState(backend, firstDescriptor).update(1);
+            getValueState(backend, secondDescriptor).update(2);
+            handle = snapshot(backend, 1L, streamFactory, sharedStateRegistry);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        // only the first state is re-created, the materializations must not lose the second one
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, handle);
+        try {
+            backend.setCurrentKey(1);
+            getValueState(backend, firstDescriptor).update(10);
+            snapshot(backend, 2L, streamFactory, sharedStateRegistry);
+            handle = snapshot(backend, 3L, streamFactory, sharedStateRegistry);
+            assertEquals(
+                    1,
+                    ((ChangelogStateBackendHandle) handle).getMaterializedStateHandles().size());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, handle);
+        try {
+            backend.setCurrentKey(1);
+            assertEquals(10, (int) getValueState(backend, firstDescriptor).value());
+            assertEquals(2, (int) getValueState(backend, secondDescriptor).value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    // the following tests are adapted because checkpoints write the changelog with the I/O
+    // executor instead of using the (blocking) stream factory of the test
+
+    @Override
+    @Test
+    public void testAsyncSnapshot() throws Exception {
+        ManuallyTriggeredScheduledExecutor ioExecutor = new ManuallyTriggeredScheduledExecutor();
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<Integer> stateDescriptor =
+                new ValueStateDescriptor<>("test", IntSerializer.INSTANCE);
+
+        KeyedStateHandle handle;
+        try (MockEnvironment env = createEnvironment(ioExecutor)) {
+            AbstractKeyedStateBackend<Integer> backend =
+                    createKeyedBackend(IntSerializer.INSTANCE, env);
+            try {
+                ValueState<Integer> state = getValueState(backend, stateDescriptor);
+                updateValues(backend, state, 0, 10, 0);
+
+                RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+                        backend.snapshot(
+                                0L,
+                                0L,
+                                streamFactory,
+                                CheckpointOptions.forCheckpointWithDefaultLocation());
+                Thread runner = new Thread(snapshot);
+                runner.start();
+
+                // the snapshot waits for the upload of the changes
+                updateValues(backend, state, 0, 20, 1);
+                assertFalse(snapshot.isDone());
+
+                ioExecutor.triggerAll();
+                runner.join();
+                handle = snapshot.get().getJobManagerOwnedSnapshot();
+                handle.registerSharedStates(sharedStateRegistry);
+
+                // test isolation
+                assertValues(backend, state, 0, 20, 1);
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+        }
+
+        AbstractKeyedStateBackend<Integer> backend =
+                restoreKeyedBackend(IntSerializer.INSTANCE, handle);
+        try {
+            ValueState<Integer> state = getValueState(backend, stateDescriptor);
+            assertValues(backend, state, 0, 10, 0);
+            backend.setCurrentKey(11);
+            assertNull(state.value());
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Override
+    @Test
+    public void testParallelAsyncSnapshots() throws Exception {
+        ManuallyTriggeredScheduledExecutor ioExecutor = new ManuallyTriggeredScheduledExecutor();
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<Integer> stateDescriptor =
+                new ValueStateDescriptor<>("test", IntSerializer.INSTANCE);
+
+        KeyedStateHandle firstHandle;
+        KeyedStateHandle secondHandle;
+        try (MockEnvironment env = createEnvironment(ioExecutor)) {
+            AbstractKeyedStateBackend<Integer> backend =
+                    createKeyedBackend(IntSerializer.INSTANCE, env);
+            try {
+                ValueState<Integer> state = getValueState(backend, stateDescriptor);
+                updateValues(backend, state, 0, 10, 0);
+
+                RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot1 =
+                        backend.snapshot(
+                                0L,
+                                0L,
+                                streamFactory,
+                                CheckpointOptions.forCheckpointWithDefaultLocation());
+                Thread runner1 = new Thread(snapshot1, "snapshot-1-runner");
+                runner1.start();
+
+                // do some updates in between the snapshots
+                updateValues(backend, state, 5, 15, 1);
+
+                // the second snapshot is taken while the first one still waits for its upload
+                RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot2 =
+                        backend.snapshot(
+                                1L,
+                                1L,
+                                streamFactory,
+                                CheckpointOptions.forCheckpointWithDefaultLocation());
+                Thread runner2 = new Thread(snapshot2, "snapshot-2-runner");
+                runner2.start();
+                assertFalse(snapshot1.isDone());
+
+                ioExecutor.triggerAll();
+                runner1.join();
+                runner2.join();
+                firstHandle = snapshot1.get().getJobManagerOwnedSnapshot();
+                secondHandle = snapshot2.get().getJobManagerOwnedSnapshot();
+                firstHandle.registerSharedStates(sharedStateRegistry);
+                secondHandle.registerSharedStates(sharedStateRegistry);
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+        }
+
+        AbstractKeyedStateBackend<Integer> backend =
+                restoreKeyedBackend(IntSerializer.INSTANCE, firstHandle);
+        try {
+            assertValues(backend, getValueState(backend, stateDescriptor), 0, 10, 0);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+
+        backend = restoreKeyedBackend(IntSerializer.INSTANCE, secondHandle);
+        try {
+            ValueState<Integer> state = getValueState(backend, stateDescriptor);
+            assertValues(backend, state, 0, 5, 0);
+            assertValues(backend, state, 5, 15, 1);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Override
+    @Test
+    public void testAsyncSnapshotCancellation() throws Exception {
+        ManuallyTriggeredScheduledExecutor ioExecutor = new ManuallyTriggeredScheduledExecutor();
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        ValueStateDescriptor<Integer> stateDescriptor =
+                new ValueStateDescriptor<>("test", IntSerializer.INSTANCE);
+
+        KeyedStateHandle handle;
+        try (MockEnvironment env = createEnvironment(ioExecutor)) {
+            AbstractKeyedStateBackend<Integer> backend =
+                    createKeyedBackend(IntSerializer.INSTANCE, env);
+            try {
+                ValueState<Integer> state = getValueState(backend, stateDescriptor);
+                updateValues(backend, state, 0, 10, 0);
+
+                RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot =
+                        backend.snapshot(
+                                0L,
+                                0L,
+                                streamFactory,
+                                CheckpointOptions.forCheckpointWithDefaultLocation());
+                Thread runner = new Thread(snapshot);
+                runner.start();
+
+                // cancel the snapshot while it waits for the upload of the changes
+                snapshot.cancel(true);
+                runner.join();
+                try {
+                    snapshot.get();
+                    fail("The snapshot was not cancelled.");
+                } catch (CancellationException ignored) {
+                    // expected
+                }
+
+                // the changes of the cancelled snapshot are part of the next one
+                updateValues(backend, state, 10, 20, 0);
+                snapshot =
+                        backend.snapshot(
+                                1L,
+                                1L,
+                                streamFactory,
+                                CheckpointOptions.forCheckpointWithDefaultLocation());
+                ioExecutor.triggerAll();
+                handle = runSnapshot(snapshot, sharedStateRegistry);
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+        }
+
+        AbstractKeyedStateBackend<Integer> backend =
+                restoreKeyedBackend(IntSerializer.INSTANCE, handle);
+        try {
+            assertValues(backend, getValueState(backend, stateDescriptor), 0, 20, 0);
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    /**
+     * Unless the state was materialized, the state of the wrapped backend is created from scratch
+     * on restore, so its serializer is not reconfigured to the restored Kryo registrations. Instead
+     * the changelog is read with the serializer it was written with, which must produce the
+     * original values.
+     */
+    @Override
+    @Test
+    public void testKryoRestoreResilienceWithDifferentRegistrationOrder() throws Exception {
+        CheckpointStreamFactory streamFactory = createStreamFactory();
+        SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+        TypeInformation<TestPojo> pojoType = new GenericTypeInfo<>(TestPojo.class);
+        TestPojo first =
+                new TestPojo(
+                        "u1",
+                        1,
+                        new TestNestedPojoClassA(1.0, 2),
+                        new TestNestedPojoClassB(2.3, "foo"));
+        TestPojo second =
+                new TestPojo(
+                        "u2",
+                        2,
+                        new TestNestedPojoClassA(2.0, 5),
+                        new TestNestedPojoClassB(3.1, "bar"));
+
+        KeyedStateHandle handle;
+        try (MockEnvironment env = MockEnvironment.builder().build()) {
+            // register A first then B
+            env.getExecutionConfig().registerKryoType(TestNestedPojoClassA.class);
+            env.getExecutionConfig().registerKryoType(TestNestedPojoClassB.class);
+            AbstractKeyedStateBackend<Integer> backend =
+                    createKeyedBackend(IntSerializer.INSTANCE, env);
+            try {
+                ValueState<TestPojo> state =
+                        getValueState(backend, new ValueStateDescriptor<>("id", pojoType));
+                assertTrue(
+                        ((InternalKvState<?, ?, ?>) state).getValueSerializer()
+                                instanceof KryoSerializer);
+                backend.setCurrentKey(1);
+                state.update(first);
+                backend.setCurrentKey(2);
+                state.update(second);
+                handle = snapshot(backend, 1L, streamFactory, sharedStateRegistry);
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+        }
+
+        try (MockEnvironment env = MockEnvironment.builder().build()) {
+            // this time register B first
+            env.getExecutionConfig().registerKryoType(TestNestedPojoClassB.class);
+            env.getExecutionConfig().registerKryoType(TestNestedPojoClassA.class);
+            AbstractKeyedStateBackend<Integer> backend =
+                    restoreKeyedBackend(IntSerializer.INSTANCE, handle, env);
+            try {
+                ValueState<TestPojo> state =
+                        getValueState(backend, new ValueStateDescriptor<>("id", pojoType));
+                backend.setCurrentKey(1);
+                assertEquals(first, state.value());
+                backend.setCurrentKey(2);
+                assertEquals(second, state.value());
+
+                // the next snapshot contains changes written with both registration orders
+                backend.setCurrentKey(1);
+                state.update(second);
+                handle = snapshot(backend, 2L, streamFactory, sharedStateRegistry);
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+
+            backend = restoreKeyedBackend(IntSerializer.INSTANCE, handle, env);
+            try {
+                ValueState<TestPojo> state =
+                        getValueState(backend, new ValueStateDescriptor<>("id", pojoType));
+                backend.setCurrentKey(1);
+                assertEquals(second, state.value());
+                backend.setCurrentKey(2);
+                assertEquals(second, state.value());
+            } finally {
+                IOUtils.closeQuietly(backend);
+                backend.dispose();
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static MockEnvironment createEnvironment(Executor ioExecutor) {
+        return MockEnvironment.builder()
+                .setTaskStateManager(
+                        new TestTaskStateManager() {
+                            @Override
+                            public Executor getIOExecutor() {
+                                return ioExecutor;
+                            }
+                        })
+                .build();
+    }
+
+    private static <T> ValueState<T> getValueState(
+            AbstractKeyedStateBackend<Integer> backend, ValueStateDescriptor<T> stateDescriptor)
+            throws Exception {
+        return backend.getPartitionedState(
+                VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, stateDescriptor);
+    }
+
+    private KeyedStateHandle snapshot(
+            AbstractKeyedStateBackend<Integer> backend,
+            long checkpointId,
+            CheckpointStreamFactory streamFactory,
+            SharedStateRegistry sharedStateRegistry)
+            throws Exception {
+        return runSnapshot(
+                backend.snapshot(
+                        checkpointId,
+                        checkpointId,
+                        streamFactory,
+                        CheckpointOptions.forCheckpointWithDefaultLocation()),
+                sharedStateRegistry);
+    }
+
+    /** Sets the value of the keys in [from, to) to the key plus the given offset. */
+    private static void updateValues(
+            AbstractKeyedStateBackend<Integer> backend,
+            ValueState<Integer> state,
+            int from,
+            int to,
+            int offset)
+            throws Exception {
+        for (int i = from; i < to; i++) {
+            backend.setCurrentKey(i);
+            state.update(i + offset);
+        }
+    }
+
+    private static void assertValues(
+            AbstractKeyedStateBackend<Integer> backend,
+            ValueState<Integer> state,
+            int from,
+            int to,
+            int offset)
+            throws Exception {
+        for (int i = from; i < to; i++) {
+            backend.setCurrentKey(i);
+            assertEquals(i + offset, (int) state.value());
+        }
+    }
+}
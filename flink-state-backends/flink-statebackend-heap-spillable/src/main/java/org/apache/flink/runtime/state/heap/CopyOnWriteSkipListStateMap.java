@@ -28,6 +28,7 @@ import org.apache.flink.runtime.state.StateTransformationFunction;
 import org.apache.flink.runtime.state.heap.space.Allocator;
 import org.apache.flink.runtime.state.heap.space.Chunk;
 import org.apache.flink.runtime.state.heap.space.SpaceUtils;
+import org.apache.flink.runtime.state.heap.space.SpillableAllocator;
 import org.apache.flink.runtime.state.internal.InternalKvState;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
@@ -87,6 +88,9 @@ public final class CopyOnWriteSkipListStateMap<K, N, S> extends StateMap<K, N, S
     /** Space allocator. */
     private final Allocator spaceAllocator;
 
+    /** The space allocator if it supports spilling, to notify it about accesses. */
+    @Nullable private final SpillableAllocator spillableAllocator;
+
     /** The level index header. */
     private final LevelIndexHeader levelIndexHeader;
 
@@ -178,6 +182,15 @@ public final class CopyOnWriteSkipListStateMap<K, N, S> extends StateMap<K, N, S
 
         this.closed = new AtomicBoolean(false);
         this.resourceGuard = new ResourceGuard();
+
+        if (spaceAllocator instanceof SpillableAllocator) {
+            this.spillableAllocator = (SpillableAllocator) spaceAllocator;
+            // running snapshots read and prune values concurrently, so the space must not move
+            this.spillableAllocator.setMovableCondition(
+                    () -> highestRequiredSnapshotVersionPlusOne == 0 && !closed.get());
+        } else {
+            this.spillableAllocator = null;
+        }
     }
 
     @Override
@@ -984,6 +997,9 @@ public final class CopyOnWriteSkipListStateMap<K, N, S> extends StateMap<K, N, S
     /** Update some statistics. */
     private void updateStat() {
         requestCount++;
+        if (spillableAllocator != null) {
+            spillableAllocator.onAccess();
+        }
     }
 
     /**
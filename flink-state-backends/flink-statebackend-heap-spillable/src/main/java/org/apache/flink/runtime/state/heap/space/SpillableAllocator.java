@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_BITS;
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_MARK;
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * An {@link Allocator} for the state map of a single state in a single key-group, created by a
+ * {@link SpillableSpaceManager}. Its chunks are kept on the heap, and are spilled to a
+ * memory-mapped file by the manager when the key-group becomes cold and the heap budget is
+ * exceeded. The chunks are loaded back to the heap on the next {@link #onAccess() access}.
+ *
+ * <p>Allocation, spilling and loading happen in the task thread. Snapshots may read and free space
+ * concurrently, therefore the chunks are only moved while the owning state map reports to be {@link
+ * #setMovableCondition(BooleanSupplier) movable}. Spilled chunks can always be read and written
+ * through their mapping, so a chunk that cannot be moved is just accessed from the file.
+ */
+public final class SpillableAllocator implements Allocator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillableAllocator.class);
+
+    private static final SpillableChunk[] NO_CHUNKS = new SpillableChunk[0];
+
+    private final SpillableSpaceManager spaceManager;
+
+    private final int keyGroup;
+
+    private final int chunkSize;
+
+    /** All chunks by id. Replaced on growth, so that snapshots can look up chunks without lock. */
+    private volatile SpillableChunk[] chunks;
+
+    /** The chunk to allocate new blocks from. */
+    @Nullable private SpillableChunk currentChunk;
+
+    /** Addresses of the freed blocks, by block length. */
+    private final Map<Integer, ArrayDeque<Long>> freeBlocks;
+
+    /** Tells whether the chunks can be moved, i.e. no other thread accesses them. */
+    private volatile BooleanSupplier movableCondition;
+
+    /** Access time of this allocator, in ticks of the manager. Only accessed by the task thread. */
+    private long lastAccessTick;
+
+    /** Capacity of the chunks on the heap. */
+    private volatile long inMemorySize;
+
+    /** Capacity of the chunks in spill files. */
+    private volatile long spilledSize;
+
+    private boolean closed;
+
+    SpillableAllocator(@Nonnull SpillableSpaceManager spaceManager, int keyGroup, int chunkSize) {
+        this.spaceManager = Preconditions.checkNotNull(spaceManager);
+        this.keyGroup = keyGroup;
+        this.chunkSize = chunkSize;
+        this.chunks = NO_CHUNKS;
+        this.freeBlocks = new HashMap<>();
+        this.movableCondition = () -> true;
+    }
+
+    @Override
+    public long allocate(int size) throws Exception {
+        long address;
+        boolean chunkAdded = false;
+        synchronized (this) {
+            Preconditions.checkState(!closed, "Allocator has been closed.");
+            ArrayDeque<Long> blocks = freeBlocks.get(size);
+            if (blocks != null && !blocks.isEmpty()) {
+                address = blocks.poll();
+                getChunkByAddress(address).reuse(SpaceUtils.getChunkOffsetByAddress(address));
+                return address;
+            }
+
+            int offset = currentChunk == null ? NO_SPACE : currentChunk.allocate(size);
+            if (offset == NO_SPACE) {
+                currentChunk =
+                        addChunk(Math.max(chunkSize, size + SpillableChunk.BLOCK_HEADER_LEN));
+                offset = currentChunk.allocate(size);
+                chunkAdded = true;
+            }
+            address =
+                    ((currentChunk.getChunkId() & FOUR_BYTES_MARK) << FOUR_BYTES_BITS)
+                            | (offset & FOUR_BYTES_MARK);
+        }
+
+        if (chunkAdded) {
+            spaceManager.ensureBudget(this);
+        }
+        return address;
+    }
+
+    @Override
+    public synchronized void free(long address) {
+        if (closed) {
+            return;
+        }
+        SpillableChunk chunk = getChunkByAddress(address);
+        int offset = SpaceUtils.getChunkOffsetByAddress(address);
+        chunk.free(offset);
+        freeBlocks.computeIfAbsent(chunk.getBlockLen(offset), k -> new ArrayDeque<>()).add(address);
+    }
+
+    @Override
+    public Chunk getChunkById(int chunkId) {
+        SpillableChunk[] currentChunks = chunks;
+        Preconditions.checkArgument(
+                chunkId >= 0 && chunkId < currentChunks.length,
+                "chunk " + chunkId + " does not exist.");
+        return currentChunks[chunkId];
+    }
+
+    /**
+     * Registers an access to the state of this allocator, which loads the spilled chunks back to
+     * the heap if possible. Must be called by the task thread before the state is accessed.
+     */
+    public void onAccess() {
+        lastAccessTick = spaceManager.nextAccessTick();
+        if (spilledSize > 0 && isMovable()) {
+            load();
+        }
+    }
+
+    /**
+     * Sets the condition under which the chunks of this allocator may be moved between heap and
+     * file, i.e. when no other thread than the task thread accesses them.
+     */
+    public void setMovableCondition(@Nonnull BooleanSupplier movableCondition) {
+        this.movableCondition = Preconditions.checkNotNull(movableCondition);
+    }
+
+    public int getKeyGroup() {
+        return keyGroup;
+    }
+
+    /** Returns the capacity of the chunks that are on the heap. */
+    public long getInMemorySize() {
+        return inMemorySize;
+    }
+
+    /** Returns the capacity of the chunks that are spilled to files. */
+    public long getSpilledSize() {
+        return spilledSize;
+    }
+
+    /** Returns the number of bytes allocated and not freed, including block headers. */
+    public synchronized long getUsedSize() {
+        long usedSize = 0L;
+        for (SpillableChunk chunk : chunks) {
+            usedSize += chunk.getUsedSize();
+        }
+        return usedSize;
+    }
+
+    long getLastAccessTick() {
+        return lastAccessTick;
+    }
+
+    boolean isMovable() {
+        return !closed && movableCondition.getAsBoolean();
+    }
+
+    /**
+     * Spills all chunks that are on the heap to a new memory-mapped file.
+     *
+     * @return the number of bytes that were moved off the heap.
+     */
+    synchronized long spill() {
+        if (closed || inMemorySize == 0) {
+            return 0L;
+        }
+
+        List<SpillableChunk> chunksToSpill = new ArrayList<>();
+        long fileSize = 0L;
+        for (SpillableChunk chunk : chunks) {
+            if (!chunk.isSpilled()) {
+                chunksToSpill.add(chunk);
+                fileSize += chunk.getChunkCapacity();
+            }
+        }
+
+        SpillableSpaceManager.SpillFile spillFile = spaceManager.createSpillFile(keyGroup);
+        long spilled = 0L;
+        try (RandomAccessFile file = new RandomAccessFile(spillFile.getFile(), "rw")) {
+            file.setLength(fileSize);
+            FileChannel channel = file.getChannel();
+            for (SpillableChunk chunk : chunksToSpill) {
+                chunk.spill(channel, spilled, spillFile);
+                spillFile.retain();
+                spilled += chunk.getChunkCapacity();
+            }
+        } catch (IOException e) {
+            // the chunks that could not be spilled are still intact on the heap
+            LOG.warn("Failed to spill the state of key-group {} to {}.", keyGroup, spillFile, e);
+        } finally {
+            spillFile.deleteIfUnused();
+        }
+
+        inMemorySize -= spilled;
+        spilledSize += spilled;
+        return spilled;
+    }
+
+    /** Loads all spilled chunks back to the heap. */
+    private void load() {
+        synchronized (this) {
+            long loaded = 0L;
+            for (SpillableChunk chunk : chunks) {
+                if (chunk.isSpilled()) {
+                    chunk.load().release();
+                    loaded += chunk.getChunkCapacity();
+                }
+            }
+            inMemorySize += loaded;
+            spilledSize -= loaded;
+        }
+        spaceManager.ensureBudget(this);
+    }
+
+    private SpillableChunk addChunk(int capacity) {
+        SpillableChunk[] currentChunks = chunks;
+        SpillableChunk chunk = new SpillableChunk(currentChunks.length, capacity);
+        SpillableChunk[] newChunks = Arrays.copyOf(currentChunks, currentChunks.length + 1);
+        newChunks[currentChunks.length] = chunk;
+        chunks = newChunks;
+        inMemorySize += capacity;
+        return chunk;
+    }
+
+    private SpillableChunk getChunkByAddress(long address) {
+        return (SpillableChunk) getChunkById(SpaceUtils.getChunkIdByAddress(address));
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (SpillableChunk chunk : chunks) {
+                SpillableSpaceManager.SpillFile spillFile = chunk.release();
+                if (spillFile != null) {
+                    spillFile.release();
+                }
+            }
+            chunks = NO_CHUNKS;
+            currentChunk = null;
+            freeBlocks.clear();
+            inMemorySize = 0L;
+            spilledSize = 0L;
+        }
+        spaceManager.unregister(this);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * A {@link Chunk} backed by a single {@link MemorySegment} that either lives on the heap, or in a
+ * memory-mapped region of a spill file.
+ *
+ * <p>Space is handed out by bumping an offset. Every block is preceded by its length, so that the
+ * owning {@link SpillableAllocator} can recycle freed blocks of the same size. Moving the chunk
+ * between heap and file copies the whole segment and swaps the reference, the addresses handed out
+ * stay valid.
+ */
+public final class SpillableChunk implements Chunk {
+
+    /** Length of the header in front of every block, which holds the length of the block. */
+    static final int BLOCK_HEADER_LEN = Integer.BYTES;
+
+    private final int chunkId;
+
+    private final int capacity;
+
+    /** The segment backing this chunk, swapped when the chunk is spilled or loaded. */
+    private volatile MemorySegment segment;
+
+    /** The file this chunk is spilled to, or null if the chunk is on the heap. */
+    @Nullable private SpillableSpaceManager.SpillFile spillFile;
+
+    /** Offset of the first byte that has never been allocated. */
+    private int nextOffset;
+
+    /** Number of bytes of the allocated blocks, including their headers. */
+    private int usedSize;
+
+    SpillableChunk(int chunkId, int capacity) {
+        Preconditions.checkArgument(capacity > BLOCK_HEADER_LEN, "Chunk capacity too small.");
+        this.chunkId = chunkId;
+        this.capacity = capacity;
+        this.segment = MemorySegmentFactory.allocateUnpooledSegment(capacity);
+        this.nextOffset = 0;
+        this.usedSize = 0;
+    }
+
+    @Override
+    public synchronized int allocate(int len) {
+        int blockEnd = nextOffset + BLOCK_HEADER_LEN + len;
+        if (blockEnd > capacity || blockEnd < 0) {
+            return NO_SPACE;
+        }
+        segment.putInt(nextOffset, len);
+        int offset = nextOffset + BLOCK_HEADER_LEN;
+        nextOffset = blockEnd;
+        usedSize += BLOCK_HEADER_LEN + len;
+        return offset;
+    }
+
+    @Override
+    public synchronized void free(int interChunkOffset) {
+        usedSize -= BLOCK_HEADER_LEN + getBlockLen(interChunkOffset);
+    }
+
+    /** Marks a block that was freed before as used again. */
+    synchronized void reuse(int interChunkOffset) {
+        usedSize += BLOCK_HEADER_LEN + getBlockLen(interChunkOffset);
+    }
+
+    /** Returns the length of the block at the given offset, as passed to {@link #allocate}. */
+    int getBlockLen(int interChunkOffset) {
+        return segment.getInt(interChunkOffset - BLOCK_HEADER_LEN);
+    }
+
+    @Override
+    public int getChunkId() {
+        return chunkId;
+    }
+
+    @Override
+    public int getChunkCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public MemorySegment getMemorySegment(int chunkOffset) {
+        return segment;
+    }
+
+    @Override
+    public int getOffsetInSegment(int offsetInChunk) {
+        return offsetInChunk;
+    }
+
+    synchronized int getUsedSize() {
+        return usedSize;
+    }
+
+    boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /**
+     * Copies the content of this chunk into the given region of the spill file and continues to
+     * work on the mapped region.
+     */
+    void spill(FileChannel channel, long position, SpillableSpaceManager.SpillFile file)
+            throws IOException {
+        Preconditions.checkState(spillFile == null, "Chunk %s is already spilled.", chunkId);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, capacity);
+        MemorySegment mappedSegment = MemorySegmentFactory.wrapOffHeapMemory(buffer);
+        segment.copyTo(0, mappedSegment, 0, capacity);
+        segment = mappedSegment;
+        spillFile = file;
+    }
+
+    /**
+     * Copies the content of this chunk back to the heap.
+     *
+     * @return the file the chunk was spilled to.
+     */
+    SpillableSpaceManager.SpillFile load() {
+        Preconditions.checkState(spillFile != null, "Chunk %s is not spilled.", chunkId);
+        MemorySegment heapSegment = MemorySegmentFactory.allocateUnpooledSegment(capacity);
+        segment.copyTo(0, heapSegment, 0, capacity);
+        segment = heapSegment;
+        SpillableSpaceManager.SpillFile file = spillFile;
+        spillFile = null;
+        return file;
+    }
+
+    /** Detaches this chunk from its spill file when the chunk is released. */
+    @Nullable
+    SpillableSpaceManager.SpillFile release() {
+        SpillableSpaceManager.SpillFile file = spillFile;
+        spillFile = null;
+        return file;
+    }
+}
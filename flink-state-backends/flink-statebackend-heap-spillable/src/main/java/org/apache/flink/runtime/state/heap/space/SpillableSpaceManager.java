@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps the heap usage of the {@link SpillableAllocator}s of a keyed state backend within a budget.
+ *
+ * <p>The heap usage is accounted per key-group. Whenever an allocator grows the heap usage beyond
+ * the budget, whole key-groups are spilled to memory-mapped files in the spill directory, starting
+ * with the key-group that has been accessed least recently. A spilled key-group is loaded back to
+ * the heap when its state is accessed again.
+ *
+ * <p>The budget is a soft limit: the state that is accessed at the moment, and state that is
+ * currently read by a snapshot, is never spilled.
+ */
+public class SpillableSpaceManager implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SpillableSpaceManager.class);
+
+    /** The directory for the spill files. */
+    private final File spillDirectory;
+
+    /** Max number of bytes of the chunks on the heap. */
+    private final long memoryBudget;
+
+    /** Capacity of the chunks of the allocators. */
+    private final int chunkSize;
+
+    /** Prefix of the spill file names, to avoid clashes between managers in one directory. */
+    private final String spillFilePrefix;
+
+    private final AtomicInteger spillFileCounter;
+
+    private final List<SpillableAllocator> allocators;
+
+    /** Logical clock for the accesses. Only accessed by the task thread. */
+    private long accessClock;
+
+    private boolean closed;
+
+    public SpillableSpaceManager(@Nonnull File spillDirectory, long memoryBudget, int chunkSize) {
+        Preconditions.checkArgument(memoryBudget >= 0, "memoryBudget should be non-negative.");
+        Preconditions.checkArgument(chunkSize > 0, "chunkSize should be positive.");
+        this.spillDirectory = Preconditions.checkNotNull(spillDirectory);
+        this.memoryBudget = memoryBudget;
+        this.chunkSize = chunkSize;
+        this.spillFilePrefix = UUID.randomUUID().toString();
+        this.spillFileCounter = new AtomicInteger();
+        this.allocators = new ArrayList<>();
+        this.accessClock = 0L;
+    }
+
+    /**
+     * Creates the allocator for the state map of one state in the given key-group. An allocator
+     * must only be used by a single state map.
+     */
+    public synchronized SpillableAllocator createAllocator(int keyGroup) {
+        Preconditions.checkState(!closed, "Space manager has been closed.");
+        SpillableAllocator allocator = new SpillableAllocator(this, keyGroup, chunkSize);
+        allocators.add(allocator);
+        return allocator;
+    }
+
+    /** Returns the number of bytes of all chunks on the heap. */
+    public synchronized long getInMemorySize() {
+        long size = 0L;
+        for (SpillableAllocator allocator : allocators) {
+            size += allocator.getInMemorySize();
+        }
+        return size;
+    }
+
+    /** Returns the number of bytes of all chunks in spill files. */
+    public synchronized long getSpilledSize() {
+        long size = 0L;
+        for (SpillableAllocator allocator : allocators) {
+            size += allocator.getSpilledSize();
+        }
+        return size;
+    }
+
+    /** Returns the number of bytes of the chunks of the given key-group on the heap. */
+    public synchronized long getInMemorySize(int keyGroup) {
+        long size = 0L;
+        for (SpillableAllocator allocator : allocators) {
+            if (allocator.getKeyGroup() == keyGroup) {
+                size += allocator.getInMemorySize();
+            }
+        }
+        return size;
+    }
+
+    /** Returns the number of bytes of the chunks of the given key-group in spill files. */
+    public synchronized long getSpilledSize(int keyGroup) {
+        long size = 0L;
+        for (SpillableAllocator allocator : allocators) {
+            if (allocator.getKeyGroup() == keyGroup) {
+                size += allocator.getSpilledSize();
+            }
+        }
+        return size;
+    }
+
+    long nextAccessTick() {
+        return ++accessClock;
+    }
+
+    /**
+     * Spills the coldest key-groups until the heap usage is within the budget again. The given
+     * allocator is being accessed and is never spilled.
+     */
+    synchronized void ensureBudget(SpillableAllocator accessedAllocator) {
+        long inMemorySize = getInMemorySize();
+        if (inMemorySize <= memoryBudget) {
+            return;
+        }
+
+        Map<Integer, Long> keyGroupAccessTicks = new HashMap<>();
+        List<SpillableAllocator> candidates = new ArrayList<>();
+        for (SpillableAllocator allocator : allocators) {
+            keyGroupAccessTicks.merge(
+                    allocator.getKeyGroup(), allocator.getLastAccessTick(), Math::max);
+            if (allocator != accessedAllocator && allocator.getInMemorySize() > 0) {
+                candidates.add(allocator);
+            }
+        }
+        candidates.sort(
+                Comparator.<SpillableAllocator>comparingLong(
+                                allocator -> keyGroupAccessTicks.get(allocator.getKeyGroup()))
+                        .thenComparingInt(SpillableAllocator::getKeyGroup)
+                        .thenComparingLong(SpillableAllocator::getLastAccessTick));
+
+        for (SpillableAllocator allocator : candidates) {
+            if (inMemorySize <= memoryBudget) {
+                break;
+            }
+            if (allocator.isMovable()) {
+                inMemorySize -= allocator.spill();
+            }
+        }
+
+        if (inMemorySize > memoryBudget) {
+            LOG.debug(
+                    "Heap usage of {} bytes exceeds the budget of {} bytes, no more state can be spilled.",
+                    inMemorySize,
+                    memoryBudget);
+        }
+    }
+
+    SpillFile createSpillFile(int keyGroup) {
+        return new SpillFile(
+                new File(
+                        spillDirectory,
+                        String.format(
+                                "%s-kg-%d-%d.spill",
+                                spillFilePrefix, keyGroup, spillFileCounter.getAndIncrement())));
+    }
+
+    synchronized void unregister(SpillableAllocator allocator) {
+        allocators.remove(allocator);
+    }
+
+    @Override
+    public void close() {
+        List<SpillableAllocator> allocatorsToClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            allocatorsToClose = new ArrayList<>(allocators);
+        }
+        for (SpillableAllocator allocator : allocatorsToClose) {
+            allocator.close();
+        }
+    }
+
+    /**
+     * A spill file that holds the chunks of one spill of an allocator. The file is deleted once
+     * none of the chunks is spilled to it anymore. Mapped regions stay valid after the deletion.
+     */
+    static final class SpillFile {
+
+        private final File file;
+
+        private int numChunks;
+
+        SpillFile(File file) {
+            this.file = file;
+            this.numChunks = 0;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        synchronized void retain() {
+            numChunks++;
+        }
+
+        synchronized void release() {
+            Preconditions.checkState(numChunks > 0, "Spill file %s is not used.", file);
+            numChunks--;
+            deleteIfUnused();
+        }
+
+        synchronized void deleteIfUnused() {
+            if (numChunks == 0 && file.exists() && !file.delete()) {
+                LOG.warn("Failed to delete spill file {}.", file);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return file.toString();
+        }
+    }
+}
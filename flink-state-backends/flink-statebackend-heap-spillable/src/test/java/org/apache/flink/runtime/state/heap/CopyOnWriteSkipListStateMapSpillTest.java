@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.heap.space.SpillableAllocator;
+import org.apache.flink.runtime.state.heap.space.SpillableSpaceManager;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMapTestUtils.createEmptyStateMap;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link CopyOnWriteSkipListStateMap} spilling its space with a {@link
+ * SpillableSpaceManager}.
+ */
+public class CopyOnWriteSkipListStateMapSpillTest extends TestLogger {
+
+    private static final int NUM_KEY_GROUPS = 4;
+
+    private static final int CHUNK_SIZE = 4 * 1024;
+
+    private static final int NUM_KEYS_PER_KEY_GROUP = 200;
+
+    private static final long NAMESPACE = 1L;
+
+    @Rule public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File spillDirectory;
+
+    private SpillableSpaceManager spaceManager;
+
+    private List<SpillableAllocator> allocators;
+
+    private List<CopyOnWriteSkipListStateMap<Integer, Long, String>> stateMaps;
+
+    @Before
+    public void setUp() throws Exception {
+        spillDirectory = temporaryFolder.newFolder();
+        spaceManager = new SpillableSpaceManager(spillDirectory, 4 * CHUNK_SIZE, CHUNK_SIZE);
+        allocators = new ArrayList<>();
+        stateMaps = new ArrayList<>();
+        for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; keyGroup++) {
+            SpillableAllocator allocator = spaceManager.createAllocator(keyGroup);
+            allocators.add(allocator);
+            stateMaps.add(createEmptyStateMap(0, 0.0f, allocator));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        stateMaps.forEach(CopyOnWriteSkipListStateMap::close);
+        spaceManager.close();
+    }
+
+    /** Tests that the coldest key-groups are spilled and loaded back on access. */
+    @Test
+    public void testColdKeyGroupsAreSpilledAndLoaded() {
+        for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; keyGroup++) {
+            fillKeyGroup(keyGroup, "v");
+        }
+
+        // the key-group accessed first is the coldest one
+        assertEquals(0L, spaceManager.getInMemorySize(0));
+        assertTrue(spaceManager.getSpilledSize(0) > 0L);
+        assertEquals(0L, spaceManager.getSpilledSize(NUM_KEY_GROUPS - 1));
+        assertTrue(spillDirectory.list().length > 0);
+
+        for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; keyGroup++) {
+            verifyKeyGroup(keyGroup, "v");
+            assertEquals(0L, spaceManager.getSpilledSize(keyGroup));
+            assertTrue(spaceManager.getInMemorySize(keyGroup) > 0L);
+        }
+        assertTrue(spaceManager.getSpilledSize() > 0L);
+    }
+
+    /** Tests that spilled state can be updated, and is updated in place if it cannot move. */
+    @Test
+    public void testUpdateSpilledState() throws Exception {
+        for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; keyGroup++) {
+            fillKeyGroup(keyGroup, "v");
+        }
+        assertTrue(spaceManager.getSpilledSize(0) > 0L);
+
+        CopyOnWriteSkipListStateMapSnapshot<Integer, Long, String> snapshot =
+                stateMaps.get(0).stateSnapshot();
+        try {
+            // the state map can't move while the snapshot is running
+            fillKeyGroup(0, "w");
+            assertTrue(spaceManager.getSpilledSize(0) > 0L);
+            verifyKeyGroup(0, "w");
+        } finally {
+            snapshot.release();
+        }
+
+        verifyKeyGroup(0, "w");
+        assertEquals(0L, spaceManager.getSpilledSize(0));
+    }
+
+    /** Tests that iterating a spilled key-group loads it. */
+    @Test
+    public void testIterateSpilledState() {
+        for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; keyGroup++) {
+            fillKeyGroup(keyGroup, "v");
+        }
+        assertTrue(spaceManager.getSpilledSize(0) > 0L);
+
+        Map<Integer, String> actualStates = new HashMap<>();
+        Iterator<StateEntry<Integer, Long, String>> iterator = stateMaps.get(0).iterator();
+        while (iterator.hasNext()) {
+            StateEntry<Integer, Long, String> entry = iterator.next();
+            actualStates.put(entry.getKey(), entry.getState());
+        }
+        assertEquals(NUM_KEYS_PER_KEY_GROUP, actualStates.size());
+        for (int key = 0; key < NUM_KEYS_PER_KEY_GROUP; key++) {
+            assertEquals("v" + key, actualStates.get(key));
+        }
+        assertEquals(0L, spaceManager.getSpilledSize(0));
+    }
+
+    /** Tests that the spill files are deleted once their state is loaded or released. */
+    @Test
+    public void testSpillFilesAreDeleted() {
+        for (int keyGroup = 0; keyGroup < NUM_KEY_GROUPS; keyGroup++) {
+            fillKeyGroup(keyGroup, "v");
+        }
+        assertTrue(spillDirectory.list().length > 0);
+
+        stateMaps.forEach(CopyOnWriteSkipListStateMap::close);
+        spaceManager.close();
+        assertEquals(0, spillDirectory.list().length);
+        assertEquals(0L, spaceManager.getInMemorySize());
+        assertEquals(0L, spaceManager.getSpilledSize());
+    }
+
+    private void fillKeyGroup(int keyGroup, String valuePrefix) {
+        CopyOnWriteSkipListStateMap<Integer, Long, String> stateMap = stateMaps.get(keyGroup);
+        for (int key = 0; key < NUM_KEYS_PER_KEY_GROUP; key++) {
+            stateMap.put(key, NAMESPACE, valuePrefix + key);
+        }
+    }
+
+    private void verifyKeyGroup(int keyGroup, String valuePrefix) {
+        CopyOnWriteSkipListStateMap<Integer, Long, String> stateMap = stateMaps.get(keyGroup);
+        assertEquals(NUM_KEYS_PER_KEY_GROUP, stateMap.size());
+        for (int key = 0; key < NUM_KEYS_PER_KEY_GROUP; key++) {
+            assertEquals(valuePrefix + key, stateMap.get(key, NAMESPACE));
+        }
+    }
+}
@@ -73,6 +73,9 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
 
     private final RocksDBSerializedCompositeKeyBuilder<K> sharedKeyNamespaceSerializer;
 
+    /** Builds the keys other than the current key, created on first use. */
+    private RocksDBSerializedCompositeKeyBuilder<K> lookupKeyNamespaceSerializer;
+
     /**
      * Creates a new RocksDB backed state.
      *
@@ -143,10 +146,16 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
                 new RocksDBSerializedCompositeKeyBuilder<>(
                         safeKeySerializer, backend.getKeyGroupPrefixBytes(), 32);
         keyBuilder.setKeyAndKeyGroup(keyAndNamespace.f0, keyGroup);
-        byte[] key = keyBuilder.buildCompositeKeyNamespace(keyAndNamespace.f1, namespaceSerializer);
+        byte[] key =
+                keyBuilder.buildCompositeKeyNamespace(keyAndNamespace.f1, safeNamespaceSerializer);
         return backend.db.get(columnFamily, key);
     }
 
+    @Override
+    public boolean supportsConcurrentReads() {
+        return true;
+    }
+
     <UK> byte[] serializeCurrentKeyWithGroupAndNamespacePlusUserKey(
             UK userKey, TypeSerializer<UK> userKeySerializer) throws IOException {
         return sharedKeyNamespaceSerializer.buildCompositeKeyNamesSpaceUserKey(
@@ -164,6 +173,19 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
                 currentNamespace, namespaceSerializer);
     }
 
+    /** Serializes the given key, which need not be the current key, with the current namespace. */
+    byte[] serializeKeyWithGroupAndNamespace(K key) {
+        if (lookupKeyNamespaceSerializer == null) {
+            lookupKeyNamespaceSerializer =
+                    new RocksDBSerializedCompositeKeyBuilder<>(
+                            backend.getKeySerializer(), backend.getKeyGroupPrefixBytes(), 32);
+        }
+        lookupKeyNamespaceSerializer.setKeyAndKeyGroup(
+                key, KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups()));
+        return lookupKeyNamespaceSerializer.buildCompositeKeyNamespace(
+                currentNamespace, namespaceSerializer);
+    }
+
     byte[] serializeValue(V value) throws IOException {
         return serializeValue(value, valueSerializer);
     }
@@ -230,7 +252,8 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
         }
     }
 
-    protected V getDefaultValue() {
+    @Override
+    public V getDefaultValue() {
         if (defaultValue != null) {
             return valueSerializer.copy(defaultValue);
         } else {
@@ -21,15 +21,20 @@ import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.BiFunction;
 
@@ -70,13 +75,16 @@ public class RocksDBIncrementalCheckpointUtils {
 
     /**
      * The method to clip the db instance according to the target key group range using the {@link
-     * RocksDB#delete(ColumnFamilyHandle, byte[])}.
+     * RocksDB#delete(ColumnFamilyHandle, byte[])}, or the {@link
+     * RocksDB#deleteRange(ColumnFamilyHandle, byte[], byte[])} if enabled.
      *
      * @param db the RocksDB instance to be clipped.
      * @param columnFamilyHandles the column families in the db instance.
      * @param targetKeyGroupRange the target key group range.
      * @param currentKeyGroupRange the key group range of the db instance.
      * @param keyGroupPrefixBytes Number of bytes required to prefix the key groups.
+     * @param writeBatchSize the max size of the write batch used to delete the records.
+     * @param useDeleteRange whether to delete the records with range tombstones.
      */
     public static void clipDBWithKeyGroupRange(
             @Nonnull RocksDB db,
@@ -84,7 +92,8 @@ public class RocksDBIncrementalCheckpointUtils {
             @Nonnull KeyGroupRange targetKeyGroupRange,
             @Nonnull KeyGroupRange currentKeyGroupRange,
             @Nonnegative int keyGroupPrefixBytes,
-            @Nonnegative long writeBatchSize)
+            @Nonnegative long writeBatchSize,
+            boolean useDeleteRange)
             throws RocksDBException {
 
         final byte[] beginKeyGroupBytes = new byte[keyGroupPrefixBytes];
@@ -96,7 +105,12 @@ public class RocksDBIncrementalCheckpointUtils {
             RocksDBKeySerializationUtils.serializeKeyGroup(
                     targetKeyGroupRange.getStartKeyGroup(), endKeyGroupBytes);
             deleteRange(
-                    db, columnFamilyHandles, beginKeyGroupBytes, endKeyGroupBytes, writeBatchSize);
+                    db,
+                    columnFamilyHandles,
+                    beginKeyGroupBytes,
+                    endKeyGroupBytes,
+                    writeBatchSize,
+                    useDeleteRange);
         }
 
         if (currentKeyGroupRange.getEndKeyGroup() > targetKeyGroupRange.getEndKeyGroup()) {
@@ -105,49 +119,176 @@ public class RocksDBIncrementalCheckpointUtils {
             RocksDBKeySerializationUtils.serializeKeyGroup(
                     currentKeyGroupRange.getEndKeyGroup() + 1, endKeyGroupBytes);
             deleteRange(
-                    db, columnFamilyHandles, beginKeyGroupBytes, endKeyGroupBytes, writeBatchSize);
+                    db,
+                    columnFamilyHandles,
+                    beginKeyGroupBytes,
+                    endKeyGroupBytes,
+                    writeBatchSize,
+                    useDeleteRange);
         }
     }
 
     /**
-     * Delete the record falls into [beginKeyBytes, endKeyBytes) of the db.
+     * Delete the record falls into [beginKeyBytes, endKeyBytes) of the db. With range deletion, the
+     * records are removed with a single range tombstone per column family, so that the cost does
+     * not depend on the number of records. The tombstones may however slow down the reads of the
+     * bundled RocksDB version until they are compacted away, so the records are deleted one by one
+     * by default.
      *
      * @param db the target need to be clipped.
      * @param columnFamilyHandles the column family need to be clipped.
      * @param beginKeyBytes the begin key bytes
      * @param endKeyBytes the end key bytes
+     * @param writeBatchSize the max size of the write batch used to delete the records.
+     * @param useDeleteRange whether to delete the records with range tombstones.
      */
     private static void deleteRange(
             RocksDB db,
             List<ColumnFamilyHandle> columnFamilyHandles,
             byte[] beginKeyBytes,
             byte[] endKeyBytes,
-            @Nonnegative long writeBatchSize)
+            @Nonnegative long writeBatchSize,
+            boolean useDeleteRange)
             throws RocksDBException {
 
         for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
-            try (ReadOptions readOptions = RocksDBOperationUtils.createTotalOrderSeekReadOptions();
-                    RocksIteratorWrapper iteratorWrapper =
-                            RocksDBOperationUtils.getRocksIterator(
-                                    db, columnFamilyHandle, readOptions);
-                    RocksDBWriteBatchWrapper writeBatchWrapper =
-                            new RocksDBWriteBatchWrapper(db, writeBatchSize)) {
-
-                iteratorWrapper.seek(beginKeyBytes);
-
-                while (iteratorWrapper.isValid()) {
-                    final byte[] currentKey = iteratorWrapper.key();
-                    if (beforeThePrefixBytes(currentKey, endKeyBytes)) {
-                        writeBatchWrapper.remove(columnFamilyHandle, currentKey);
-                    } else {
-                        break;
+            if (useDeleteRange) {
+                db.deleteRange(columnFamilyHandle, beginKeyBytes, endKeyBytes);
+            } else {
+                try (ReadOptions readOptions =
+                                RocksDBOperationUtils.createTotalOrderSeekReadOptions();
+                        RocksIteratorWrapper iteratorWrapper =
+                                RocksDBOperationUtils.getRocksIterator(
+                                        db, columnFamilyHandle, readOptions);
+                        RocksDBWriteBatchWrapper writeBatchWrapper =
+                                new RocksDBWriteBatchWrapper(db, writeBatchSize)) {
+
+                    iteratorWrapper.seek(beginKeyBytes);
+
+                    while (iteratorWrapper.isValid()) {
+                        final byte[] currentKey = iteratorWrapper.key();
+                        if (beforeThePrefixBytes(currentKey, endKeyBytes)) {
+                            writeBatchWrapper.remove(columnFamilyHandle, currentKey);
+                        } else {
+                            break;
+                        }
+                        iteratorWrapper.next();
                     }
-                    iteratorWrapper.next();
                 }
             }
         }
     }
 
+    /**
+     * Writes the records of the source column family that fall into [startKeyBytes, stopKeyBytes)
+     * to an SST file, and ingests the file into the target column family. Ingestion is atomic, so
+     * the target column family is unchanged if this method fails.
+     *
+     * @param sourceDb the db to read the records from.
+     * @param sourceColumnFamilyHandle the column family to read the records from.
+     * @param readOptions the options to read the records with.
+     * @param sstFileOptions the options to write the SST file with.
+     * @param targetDb the db to ingest the records into.
+     * @param targetColumnFamilyHandle the column family to ingest the records into.
+     * @param startKeyBytes the start key bytes, inclusive.
+     * @param stopKeyBytes the stop key bytes, exclusive.
+     * @param sstFilePath the path of the SST file, which is moved into the target db.
+     */
+    public static void ingestKeyGroups(
+            @Nonnull RocksDB sourceDb,
+            @Nonnull ColumnFamilyHandle sourceColumnFamilyHandle,
+            @Nonnull ReadOptions readOptions,
+            @Nonnull Options sstFileOptions,
+            @Nonnull RocksDB targetDb,
+            @Nonnull ColumnFamilyHandle targetColumnFamilyHandle,
+            @Nonnull byte[] startKeyBytes,
+            @Nonnull byte[] stopKeyBytes,
+            @Nonnull String sstFilePath)
+            throws RocksDBException {
+
+        boolean hasRecords = false;
+        try (EnvOptions envOptions = new EnvOptions();
+                SstFileWriter sstFileWriter = new SstFileWriter(envOptions, sstFileOptions);
+                RocksIteratorWrapper iterator =
+                        RocksDBOperationUtils.getRocksIterator(
+                                sourceDb, sourceColumnFamilyHandle, readOptions)) {
+
+            iterator.seek(startKeyBytes);
+
+            // the iterator visits the records in sorted order, as required by the writer
+            while (iterator.isValid() && beforeThePrefixBytes(iterator.key(), stopKeyBytes)) {
+                if (!hasRecords) {
+                    sstFileWriter.open(sstFilePath);
+                    hasRecords = true;
+                }
+                sstFileWriter.put(iterator.key(), iterator.value());
+                iterator.next();
+            }
+
+            if (hasRecords) {
+                sstFileWriter.finish();
+            }
+        } // releases native iterator resources
+
+        if (hasRecords) {
+            try (IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+                ingestOptions.setMoveFiles(true);
+                targetDb.ingestExternalFile(
+                        targetColumnFamilyHandle,
+                        Collections.singletonList(sstFilePath),
+                        ingestOptions);
+            }
+        }
+    }
+
+    /**
+     * Copies the records of the source column family that fall into [startKeyBytes, stopKeyBytes)
+     * into the target column family with write batches.
+     *
+     * @param sourceDb the db to read the records from.
+     * @param sourceColumnFamilyHandle the column family to read the records from.
+     * @param readOptions the options to read the records with.
+     * @param targetDb the db to write the records to.
+     * @param targetColumnFamilyHandle the column family to write the records to.
+     * @param startKeyBytes the start key bytes, inclusive.
+     * @param stopKeyBytes the stop key bytes, exclusive.
+     * @param writeBatchSize the max size of the write batch used to write the records.
+     */
+    public static void copyKeyGroups(
+            @Nonnull RocksDB sourceDb,
+            @Nonnull ColumnFamilyHandle sourceColumnFamilyHandle,
+            @Nonnull ReadOptions readOptions,
+            @Nonnull RocksDB targetDb,
+            @Nonnull ColumnFamilyHandle targetColumnFamilyHandle,
+            @Nonnull byte[] startKeyBytes,
+            @Nonnull byte[] stopKeyBytes,
+            @Nonnegative long writeBatchSize)
+            throws RocksDBException {
+
+        try (RocksDBWriteBatchWrapper writeBatchWrapper =
+                        new RocksDBWriteBatchWrapper(targetDb, writeBatchSize);
+                RocksIteratorWrapper iterator =
+                        RocksDBOperationUtils.getRocksIterator(
+                                sourceDb, sourceColumnFamilyHandle, readOptions)) {
+
+            iterator.seek(startKeyBytes);
+
+            while (iterator.isValid()) {
+
+                if (beforeThePrefixBytes(iterator.key(), stopKeyBytes)) {
+                    writeBatchWrapper.put(
+                            targetColumnFamilyHandle, iterator.key(), iterator.value());
+                } else {
+                    // Since the iterator will visit the record according to the sorted order,
+                    // we can just break here.
+                    break;
+                }
+
+                iterator.next();
+            }
+        } // releases native iterator resources
+    }
+
     /** check whether the bytes is before prefixBytes in the character order. */
     public static boolean beforeThePrefixBytes(@Nonnull byte[] bytes, @Nonnull byte[] prefixBytes) {
         final int prefixLength = prefixBytes.length;
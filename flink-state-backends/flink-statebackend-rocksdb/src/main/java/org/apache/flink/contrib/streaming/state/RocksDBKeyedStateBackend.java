@@ -87,6 +87,7 @@ import java.util.Spliterator;
 import java.util.Spliterators;
 import java.util.concurrent.RunnableFuture;
 import java.util.function.Function;
+import java.util.function.ToLongFunction;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -458,6 +459,18 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
         return priorityQueueFactory.create(stateName, byteOrderedElementSerializer);
     }
 
+    @Nonnull
+    @Override
+    public <T extends HeapPriorityQueueElement & PriorityComparable & Keyed>
+            KeyGroupedInternalPriorityQueue<T> create(
+                    @Nonnull String stateName,
+                    @Nonnull TypeSerializer<T> byteOrderedElementSerializer,
+                    @Nonnull ToLongFunction<T> timestampExtractor,
+                    long bucketSize) {
+        return priorityQueueFactory.create(
+                stateName, byteOrderedElementSerializer, timestampExtractor, bucketSize);
+    }
+
     private void cleanInstanceBasePath() {
         LOG.info(
                 "Closed RocksDB State Backend. Cleaning up RocksDB working directory {}.",
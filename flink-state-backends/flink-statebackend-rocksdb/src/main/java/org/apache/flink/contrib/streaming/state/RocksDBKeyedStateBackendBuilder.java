@@ -112,6 +112,10 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
     private long writeBatchSize =
             RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes();
 
+    /** True if range deletions are used to clip the restored DB when rescaling. */
+    private boolean useDeleteRangeForRescaling =
+            RocksDBOptions.USE_DELETE_RANGE_FOR_RESCALING.defaultValue();
+
     private RocksDB injectedTestDB; // for testing
     private ColumnFamilyHandle injectedDefaultColumnFamilyHandle; // for testing
 
@@ -228,6 +232,12 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
         return this;
     }
 
+    RocksDBKeyedStateBackendBuilder<K> setUseDeleteRangeForRescaling(
+            boolean useDeleteRangeForRescaling) {
+        this.useDeleteRangeForRescaling = useDeleteRangeForRescaling;
+        return this;
+    }
+
     private static void checkAndCreateDirectory(File directory) throws IOException {
         if (directory.exists()) {
             if (!directory.isDirectory()) {
@@ -436,6 +446,7 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
                     restoreStateHandles,
                     ttlCompactFiltersManager,
                     writeBatchSize,
+                    useDeleteRangeForRescaling,
                     optionsContainer.getWriteBufferManagerCapacity());
         } else {
             return new RocksDBFullRestoreOperation<>(
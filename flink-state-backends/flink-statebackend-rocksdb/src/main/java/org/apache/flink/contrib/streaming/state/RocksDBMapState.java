@@ -335,7 +335,7 @@ class RocksDBMapState<K, N, UK, UV> extends AbstractRocksDBState<K, N, Map<UK, U
         keyBuilder.setKeyAndKeyGroup(keyAndNamespace.f0, keyGroup);
 
         final byte[] keyPrefixBytes =
-                keyBuilder.buildCompositeKeyNamespace(keyAndNamespace.f1, namespaceSerializer);
+                keyBuilder.buildCompositeKeyNamespace(keyAndNamespace.f1, safeNamespaceSerializer);
 
         final MapSerializer<UK, UV> serializer = (MapSerializer<UK, UV>) safeValueSerializer;
 
@@ -65,6 +65,19 @@ public class RocksDBOptions {
                     .withDescription(
                             "The number of threads (per stateful operator) used to transfer (download and upload) files in RocksDBStateBackend.");
 
+    /** Whether to clip the restored RocksDB instance with range deletions when rescaling. */
+    @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+    public static final ConfigOption<Boolean> USE_DELETE_RANGE_FOR_RESCALING =
+            ConfigOptions.key("state.backend.rocksdb.rescaling.use-delete-range")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            "If set, the key groups that are out of range are removed with one range deletion per "
+                                    + "column family when restoring with rescaling from incremental checkpoints, "
+                                    + "instead of deleting every key. This makes the restore independent of the number "
+                                    + "of deleted keys, but the range tombstones may slow down reads of the bundled "
+                                    + "RocksDB version until they are compacted away.");
+
     /** The predefined settings for RocksDB DBOptions and ColumnFamilyOptions by Flink community. */
     @Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
     public static final ConfigOption<String> PREDEFINED_OPTIONS =
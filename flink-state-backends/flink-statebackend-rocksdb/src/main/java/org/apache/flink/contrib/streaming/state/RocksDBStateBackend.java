@@ -45,6 +45,7 @@ import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.StateBackend;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.filesystem.SegmentFileWriters;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.util.AbstractID;
 import org.apache.flink.util.DynamicCodeLoadingException;
@@ -75,6 +76,7 @@ import java.util.UUID;
 import static org.apache.flink.contrib.streaming.state.RocksDBConfigurableOptions.WRITE_BATCH_SIZE;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.TIMER_SERVICE_FACTORY;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.USE_DELETE_RANGE_FOR_RESCALING;
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -167,6 +169,9 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
      */
     private long writeBatchSize;
 
+    /** This determines if range deletions are used to clip the restored DB when rescaling. */
+    private TernaryBoolean useDeleteRangeForRescaling;
+
     // ------------------------------------------------------------------------
 
     /**
@@ -274,6 +279,7 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
         this.defaultMetricOptions = new RocksDBNativeMetricOptions();
         this.memoryConfiguration = new RocksDBMemoryConfiguration();
         this.writeBatchSize = UNDEFINED_WRITE_BATCH_SIZE;
+        this.useDeleteRangeForRescaling = TernaryBoolean.UNDEFINED;
     }
 
     /** @deprecated Use {@link #RocksDBStateBackend(StateBackend)} instead. */
@@ -323,6 +329,10 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
             this.writeBatchSize = original.writeBatchSize;
         }
 
+        this.useDeleteRangeForRescaling =
+                original.useDeleteRangeForRescaling.resolveUndefined(
+                        config.get(USE_DELETE_RANGE_FOR_RESCALING));
+
         this.memoryConfiguration =
                 RocksDBMemoryConfiguration.fromOtherAndConfiguration(
                         original.memoryConfiguration, config);
@@ -476,6 +486,12 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
         return checkpointStreamBackend.createCheckpointStorage(jobId);
     }
 
+    @Override
+    public CheckpointStorageAccess createCheckpointStorage(
+            JobID jobId, SegmentFileWriters segmentFileWriters) throws IOException {
+        return checkpointStreamBackend.createCheckpointStorage(jobId, segmentFileWriters);
+    }
+
     // ------------------------------------------------------------------------
     //  State holding data structures
     // ------------------------------------------------------------------------
@@ -583,7 +599,8 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
                         .setNumberOfTransferingThreads(getNumberOfTransferThreads())
                         .setNativeMetricOptions(
                                 resourceContainer.getMemoryWatcherOptions(defaultMetricOptions))
-                        .setWriteBatchSize(getWriteBatchSize());
+                        .setWriteBatchSize(getWriteBatchSize())
+                        .setUseDeleteRangeForRescaling(isUseDeleteRangeForRescaling());
         return builder.build();
     }
 
@@ -916,6 +933,26 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
         this.writeBatchSize = writeBatchSize;
     }
 
+    /**
+     * Gets whether the restored DB is clipped with range deletions when restoring with rescaling
+     * from incremental checkpoints.
+     */
+    public boolean isUseDeleteRangeForRescaling() {
+        return useDeleteRangeForRescaling.getOrDefault(
+                USE_DELETE_RANGE_FOR_RESCALING.defaultValue());
+    }
+
+    /**
+     * Sets whether the restored DB is clipped with range deletions when restoring with rescaling
+     * from incremental checkpoints. Range deletions do not depend on the number of deleted keys,
+     * but the range tombstones may slow down reads until they are compacted away.
+     *
+     * @param useDeleteRangeForRescaling True if range deletions are used for clipping.
+     */
+    public void setUseDeleteRangeForRescaling(boolean useDeleteRangeForRescaling) {
+        this.useDeleteRangeForRescaling = TernaryBoolean.fromBoolean(useDeleteRangeForRescaling);
+    }
+
     // ------------------------------------------------------------------------
     //  utilities
     // ------------------------------------------------------------------------
@@ -948,6 +985,8 @@ public class RocksDBStateBackend extends AbstractManagedMemoryStateBackend
                 + numberOfTransferThreads
                 + ", writeBatchSize="
                 + writeBatchSize
+                + ", useDeleteRangeForRescaling="
+                + useDeleteRangeForRescaling
                 + '}';
     }
 
@@ -31,6 +31,10 @@ import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * {@link ValueState} implementation that stores state in RocksDB.
@@ -92,6 +96,38 @@ class RocksDBValueState<K, N, V> extends AbstractRocksDBState<K, N, V>
         }
     }
 
+    @Override
+    public List<V> multiGet(List<K> keys) {
+        if (keys.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final List<byte[]> keyBytes = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            keyBytes.add(serializeKeyWithGroupAndNamespace(key));
+        }
+
+        try {
+            // the result is keyed by the key arrays that were passed in
+            final Map<byte[], byte[]> valueBytes =
+                    backend.db.multiGet(Collections.nCopies(keys.size(), columnFamily), keyBytes);
+
+            final List<V> values = new ArrayList<>(keys.size());
+            for (byte[] key : keyBytes) {
+                final byte[] value = valueBytes.get(key);
+                if (value == null) {
+                    values.add(getDefaultValue());
+                } else {
+                    dataInputView.setBuffer(value);
+                    values.add(valueSerializer.deserialize(dataInputView));
+                }
+            }
+            return values;
+        } catch (IOException | RocksDBException e) {
+            throw new FlinkRuntimeException("Error while retrieving data from RocksDB.", e);
+        }
+    }
+
     @Override
     public void update(V value) {
         if (value == null) {
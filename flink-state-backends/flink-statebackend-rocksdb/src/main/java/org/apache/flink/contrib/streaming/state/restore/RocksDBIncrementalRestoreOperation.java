@@ -24,8 +24,6 @@ import org.apache.flink.contrib.streaming.state.RocksDBKeyedStateBackend.RocksDb
 import org.apache.flink.contrib.streaming.state.RocksDBNativeMetricOptions;
 import org.apache.flink.contrib.streaming.state.RocksDBOperationUtils;
 import org.apache.flink.contrib.streaming.state.RocksDBStateDownloader;
-import org.apache.flink.contrib.streaming.state.RocksDBWriteBatchWrapper;
-import org.apache.flink.contrib.streaming.state.RocksIteratorWrapper;
 import org.apache.flink.contrib.streaming.state.ttl.RocksDbTtlCompactFiltersManager;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.memory.DataInputView;
@@ -51,6 +49,7 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.Options;
 import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
@@ -88,6 +87,7 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
     private long lastCompletedCheckpointId;
     private UUID backendUID;
     private final long writeBatchSize;
+    private final boolean useDeleteRangeForRescaling;
 
     public RocksDBIncrementalRestoreOperation(
             String operatorIdentifier,
@@ -107,6 +107,7 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
             @Nonnull Collection<KeyedStateHandle> restoreStateHandles,
             @Nonnull RocksDbTtlCompactFiltersManager ttlCompactFiltersManager,
             @Nonnegative long writeBatchSize,
+            boolean useDeleteRangeForRescaling,
             Long writeBufferManagerCapacity) {
         super(
                 keyGroupRange,
@@ -131,6 +132,7 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
         this.backendUID = UUID.randomUUID();
         checkArgument(writeBatchSize >= 0, "Write batch size have to be no negative.");
         this.writeBatchSize = writeBatchSize;
+        this.useDeleteRangeForRescaling = useDeleteRangeForRescaling;
     }
 
     /** Root method that branches for different implementations of {@link KeyedStateHandle}. */
@@ -282,9 +284,12 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
     }
 
     /**
-     * Recovery from multi incremental states with rescaling. For rescaling, this method creates a
-     * temporary RocksDB instance for a key-groups shard. All contents from the temporary instance
-     * are copied into the real restore instance and then the temporary instance is discarded.
+     * Recovery from multi incremental states with rescaling. For rescaling, this method picks the
+     * state handle that fits the target key-group range best as the base DB, and clips the key
+     * groups that are out of range. For each other key-groups shard, it creates a temporary RocksDB
+     * instance, writes the contents within the target range to SST files and ingests them into the
+     * base DB, and then discards the temporary instance. A column family that can not be ingested
+     * is copied with write batches instead.
      */
     private void restoreWithRescaling(Collection<KeyedStateHandle> restoreStateHandles)
             throws Exception {
@@ -325,57 +330,67 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
                             .getAbsoluteFile()
                             .toPath()
                             .resolve(UUID.randomUUID().toString());
+            Path temporarySstFilesPath =
+                    instanceBasePath
+                            .getAbsoluteFile()
+                            .toPath()
+                            .resolve(UUID.randomUUID().toString());
             try (RestoredDBInstance tmpRestoreDBInfo =
-                            restoreDBInstanceFromStateHandle(
-                                    (IncrementalRemoteKeyedStateHandle) rawStateHandle,
-                                    temporaryRestoreInstancePath);
-                    RocksDBWriteBatchWrapper writeBatchWrapper =
-                            new RocksDBWriteBatchWrapper(this.db, writeBatchSize)) {
+                    restoreDBInstanceFromStateHandle(
+                            (IncrementalRemoteKeyedStateHandle) rawStateHandle,
+                            temporaryRestoreInstancePath)) {
 
-                List<ColumnFamilyDescriptor> tmpColumnFamilyDescriptors =
-                        tmpRestoreDBInfo.columnFamilyDescriptors;
-                List<ColumnFamilyHandle> tmpColumnFamilyHandles =
-                        tmpRestoreDBInfo.columnFamilyHandles;
+                Files.createDirectories(temporarySstFilesPath);
 
                 // iterating only the requested descriptors automatically skips the default column
                 // family handle
-                for (int i = 0; i < tmpColumnFamilyDescriptors.size(); ++i) {
-                    ColumnFamilyHandle tmpColumnFamilyHandle = tmpColumnFamilyHandles.get(i);
-
+                for (int i = 0; i < tmpRestoreDBInfo.columnFamilyDescriptors.size(); ++i) {
+                    StateMetaInfoSnapshot stateMetaInfoSnapshot =
+                            tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i);
                     ColumnFamilyHandle targetColumnFamilyHandle =
-                            getOrRegisterStateColumnFamilyHandle(
-                                            null, tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i))
+                            getOrRegisterStateColumnFamilyHandle(null, stateMetaInfoSnapshot)
                                     .columnFamilyHandle;
-
-                    try (RocksIteratorWrapper iterator =
-                            RocksDBOperationUtils.getRocksIterator(
-                                    tmpRestoreDBInfo.db,
-                                    tmpColumnFamilyHandle,
-                                    tmpRestoreDBInfo.readOptions)) {
-
-                        iterator.seek(startKeyGroupPrefixBytes);
-
-                        while (iterator.isValid()) {
-
-                            if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(
-                                    iterator.key(), stopKeyGroupPrefixBytes)) {
-                                writeBatchWrapper.put(
-                                        targetColumnFamilyHandle, iterator.key(), iterator.value());
-                            } else {
-                                // Since the iterator will visit the record according to the sorted
-                                // order,
-                                // we can just break here.
-                                break;
-                            }
-
-                            iterator.next();
-                        }
-                    } // releases native iterator resources
+                    ColumnFamilyHandle tmpColumnFamilyHandle =
+                            tmpRestoreDBInfo.columnFamilyHandles.get(i);
+                    String sstFilePath =
+                            temporarySstFilesPath.resolve(i + SST_FILE_SUFFIX).toString();
+
+                    try (Options sstFileOptions =
+                            new Options(
+                                    dbOptions,
+                                    tmpRestoreDBInfo.columnFamilyDescriptors.get(i).getOptions())) {
+                        RocksDBIncrementalCheckpointUtils.ingestKeyGroups(
+                                tmpRestoreDBInfo.db,
+                                tmpColumnFamilyHandle,
+                                tmpRestoreDBInfo.readOptions,
+                                sstFileOptions,
+                                this.db,
+                                targetColumnFamilyHandle,
+                                startKeyGroupPrefixBytes,
+                                stopKeyGroupPrefixBytes,
+                                sstFilePath);
+                    } catch (RocksDBException e) {
+                        logger.warn(
+                                "Failed to ingest state {} from state handle {}, copying the records instead.",
+                                stateMetaInfoSnapshot.getName(),
+                                rawStateHandle,
+                                e);
+                        RocksDBIncrementalCheckpointUtils.copyKeyGroups(
+                                tmpRestoreDBInfo.db,
+                                tmpColumnFamilyHandle,
+                                tmpRestoreDBInfo.readOptions,
+                                this.db,
+                                targetColumnFamilyHandle,
+                                startKeyGroupPrefixBytes,
+                                stopKeyGroupPrefixBytes,
+                                writeBatchSize);
+                    }
                 }
                 logger.info(
                         "Finished restoring from state handle: {} with rescaling.", rawStateHandle);
             } finally {
                 cleanUpPathQuietly(temporaryRestoreInstancePath);
+                cleanUpPathQuietly(temporarySstFilesPath);
             }
         }
     }
@@ -395,7 +410,8 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
                     keyGroupRange,
                     initialHandle.getKeyGroupRange(),
                     keyGroupPrefixBytes,
-                    writeBatchSize);
+                    writeBatchSize,
+                    useDeleteRangeForRescaling);
         } catch (RocksDBException e) {
             String errMsg = "Failed to clip DB after initialization.";
             logger.error(errMsg, e);
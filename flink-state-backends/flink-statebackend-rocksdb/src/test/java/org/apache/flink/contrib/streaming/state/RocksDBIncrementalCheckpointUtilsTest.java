@@ -29,9 +29,12 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.Options;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -47,34 +50,128 @@ public class RocksDBIncrementalCheckpointUtilsTest extends TestLogger {
 
     @Test
     public void testClipDBWithKeyGroupRange() throws Exception {
+        testClipDBWithKeyGroupRange(false);
+    }
+
+    @Test
+    public void testClipDBWithKeyGroupRangeUsingDeleteRange() throws Exception {
+        testClipDBWithKeyGroupRange(true);
+    }
+
+    private void testClipDBWithKeyGroupRange(boolean useDeleteRange) throws Exception {
 
-        testClipDBWithKeyGroupRangeHelper(new KeyGroupRange(0, 1), new KeyGroupRange(0, 2), 1);
+        testClipDBWithKeyGroupRangeHelper(
+                new KeyGroupRange(0, 1), new KeyGroupRange(0, 2), 1, useDeleteRange);
 
-        testClipDBWithKeyGroupRangeHelper(new KeyGroupRange(0, 1), new KeyGroupRange(0, 1), 1);
+        testClipDBWithKeyGroupRangeHelper(
+                new KeyGroupRange(0, 1), new KeyGroupRange(0, 1), 1, useDeleteRange);
 
-        testClipDBWithKeyGroupRangeHelper(new KeyGroupRange(0, 1), new KeyGroupRange(1, 2), 1);
+        testClipDBWithKeyGroupRangeHelper(
+                new KeyGroupRange(0, 1), new KeyGroupRange(1, 2), 1, useDeleteRange);
 
-        testClipDBWithKeyGroupRangeHelper(new KeyGroupRange(0, 1), new KeyGroupRange(2, 4), 1);
+        testClipDBWithKeyGroupRangeHelper(
+                new KeyGroupRange(0, 1), new KeyGroupRange(2, 4), 1, useDeleteRange);
 
         testClipDBWithKeyGroupRangeHelper(
                 new KeyGroupRange(Byte.MAX_VALUE - 15, Byte.MAX_VALUE),
                 new KeyGroupRange(Byte.MAX_VALUE - 10, Byte.MAX_VALUE),
-                1);
+                1,
+                useDeleteRange);
 
         testClipDBWithKeyGroupRangeHelper(
                 new KeyGroupRange(Short.MAX_VALUE - 15, Short.MAX_VALUE),
                 new KeyGroupRange(Short.MAX_VALUE - 10, Short.MAX_VALUE),
-                2);
+                2,
+                useDeleteRange);
 
         testClipDBWithKeyGroupRangeHelper(
                 new KeyGroupRange(Byte.MAX_VALUE - 15, Byte.MAX_VALUE - 1),
                 new KeyGroupRange(Byte.MAX_VALUE - 10, Byte.MAX_VALUE),
-                1);
+                1,
+                useDeleteRange);
 
         testClipDBWithKeyGroupRangeHelper(
                 new KeyGroupRange(Short.MAX_VALUE - 15, Short.MAX_VALUE - 1),
                 new KeyGroupRange(Short.MAX_VALUE - 10, Short.MAX_VALUE),
-                2);
+                2,
+                useDeleteRange);
+    }
+
+    @Test
+    public void testIngestKeyGroups() throws Exception {
+        try (RocksDB sourceDB = RocksDB.open(tmp.newFolder().getAbsolutePath());
+                ColumnFamilyHandle sourceHandle =
+                        sourceDB.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()));
+                RocksDB targetDB = RocksDB.open(tmp.newFolder().getAbsolutePath());
+                ColumnFamilyHandle targetHandle =
+                        targetDB.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()));
+                ReadOptions readOptions = RocksDBOperationUtils.createTotalOrderSeekReadOptions();
+                Options sstFileOptions = new Options()) {
+
+            putKeyGroups(sourceDB, sourceHandle, new KeyGroupRange(0, 4));
+            putKeyGroups(targetDB, targetHandle, new KeyGroupRange(5, 6));
+
+            RocksDBIncrementalCheckpointUtils.ingestKeyGroups(
+                    sourceDB,
+                    sourceHandle,
+                    readOptions,
+                    sstFileOptions,
+                    targetDB,
+                    targetHandle,
+                    serializeKeyGroup(1),
+                    serializeKeyGroup(3),
+                    new File(tmp.newFolder(), "1.sst").getAbsolutePath());
+
+            assertKeyGroups(targetDB, targetHandle, new KeyGroupRange(0, 6), 1, 2, 5, 6);
+        }
+    }
+
+    @Test
+    public void testCopyKeyGroupsIfIngestionFails() throws Exception {
+        try (RocksDB sourceDB = RocksDB.open(tmp.newFolder().getAbsolutePath());
+                ColumnFamilyHandle sourceHandle =
+                        sourceDB.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()));
+                RocksDB targetDB = RocksDB.open(tmp.newFolder().getAbsolutePath());
+                ColumnFamilyHandle targetHandle =
+                        targetDB.createColumnFamily(new ColumnFamilyDescriptor("test".getBytes()));
+                ReadOptions readOptions = RocksDBOperationUtils.createTotalOrderSeekReadOptions();
+                Options sstFileOptions = new Options()) {
+
+            putKeyGroups(sourceDB, sourceHandle, new KeyGroupRange(0, 4));
+            putKeyGroups(targetDB, targetHandle, new KeyGroupRange(5, 6));
+
+            // the SST file can not be created in a directory that does not exist
+            String sstFilePath =
+                    new File(new File(tmp.getRoot(), "missing"), "1.sst").getAbsolutePath();
+            try {
+                RocksDBIncrementalCheckpointUtils.ingestKeyGroups(
+                        sourceDB,
+                        sourceHandle,
+                        readOptions,
+                        sstFileOptions,
+                        targetDB,
+                        targetHandle,
+                        serializeKeyGroup(1),
+                        serializeKeyGroup(3),
+                        sstFilePath);
+                Assert.fail("Expected the ingestion to fail.");
+            } catch (RocksDBException expected) {
+                // the target is unchanged by the failed ingestion
+                assertKeyGroups(targetDB, targetHandle, new KeyGroupRange(0, 6), 5, 6);
+            }
+
+            RocksDBIncrementalCheckpointUtils.copyKeyGroups(
+                    sourceDB,
+                    sourceHandle,
+                    readOptions,
+                    targetDB,
+                    targetHandle,
+                    serializeKeyGroup(1),
+                    serializeKeyGroup(3),
+                    RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes());
+
+            assertKeyGroups(targetDB, targetHandle, new KeyGroupRange(0, 6), 1, 2, 5, 6);
+        }
     }
 
     @Test
@@ -125,7 +222,8 @@ public class RocksDBIncrementalCheckpointUtilsTest extends TestLogger {
     private void testClipDBWithKeyGroupRangeHelper(
             KeyGroupRange targetGroupRange,
             KeyGroupRange currentGroupRange,
-            int keyGroupPrefixBytes)
+            int keyGroupPrefixBytes,
+            boolean useDeleteRange)
             throws RocksDBException, IOException {
 
         try (RocksDB rocksDB = RocksDB.open(tmp.newFolder().getAbsolutePath());
@@ -166,7 +264,8 @@ public class RocksDBIncrementalCheckpointUtilsTest extends TestLogger {
                     targetGroupRange,
                     currentGroupRange,
                     keyGroupPrefixBytes,
-                    RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes());
+                    RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes(),
+                    useDeleteRange);
 
             for (int i = currentGroupRangeStart; i <= currentGroupRangeEnd; ++i) {
                 for (int j = 0; j < 100; ++j) {
@@ -184,4 +283,52 @@ public class RocksDBIncrementalCheckpointUtilsTest extends TestLogger {
             }
         }
     }
+
+    private static byte[] serializeKeyGroup(int keyGroup) {
+        byte[] keyGroupBytes = new byte[1];
+        RocksDBKeySerializationUtils.serializeKeyGroup(keyGroup, keyGroupBytes);
+        return keyGroupBytes;
+    }
+
+    private static byte[] serializeKey(int keyGroup, int key) throws IOException {
+        DataOutputSerializer outputView = new DataOutputSerializer(32);
+        RocksDBKeySerializationUtils.writeKeyGroup(keyGroup, 1, outputView);
+        RocksDBKeySerializationUtils.writeKey(key, IntSerializer.INSTANCE, outputView, false);
+        return outputView.getCopyOfBuffer();
+    }
+
+    private static void putKeyGroups(
+            RocksDB rocksDB, ColumnFamilyHandle columnFamilyHandle, KeyGroupRange keyGroupRange)
+            throws RocksDBException, IOException {
+        for (int keyGroup : keyGroupRange) {
+            for (int j = 0; j < 100; ++j) {
+                rocksDB.put(
+                        columnFamilyHandle,
+                        serializeKey(keyGroup, j),
+                        String.valueOf(j).getBytes());
+            }
+        }
+    }
+
+    private static void assertKeyGroups(
+            RocksDB rocksDB,
+            ColumnFamilyHandle columnFamilyHandle,
+            KeyGroupRange checkedKeyGroupRange,
+            int... expectedKeyGroups)
+            throws RocksDBException, IOException {
+        List<Integer> expected = new ArrayList<>();
+        for (int keyGroup : expectedKeyGroups) {
+            expected.add(keyGroup);
+        }
+        for (int keyGroup : checkedKeyGroupRange) {
+            for (int j = 0; j < 100; ++j) {
+                byte[] value = rocksDB.get(columnFamilyHandle, serializeKey(keyGroup, j));
+                if (expected.contains(keyGroup)) {
+                    Assert.assertEquals(String.valueOf(j), new String(value));
+                } else {
+                    Assert.assertNull(value);
+                }
+            }
+        }
+    }
 }
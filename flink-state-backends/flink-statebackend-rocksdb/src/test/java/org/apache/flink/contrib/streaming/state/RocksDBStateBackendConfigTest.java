@@ -659,6 +659,20 @@ public class RocksDBStateBackendConfigTest {
         handlesToClose.clear();
     }
 
+    @Test
+    public void testConfigureUseDeleteRangeForRescaling() throws Exception {
+        RocksDBStateBackend rocksDbBackend =
+                new RocksDBStateBackend(tempFolder.newFolder().toURI().toString());
+        assertFalse(rocksDbBackend.isUseDeleteRangeForRescaling());
+
+        Configuration conf = new Configuration();
+        conf.set(RocksDBOptions.USE_DELETE_RANGE_FOR_RESCALING, true);
+
+        rocksDbBackend =
+                rocksDbBackend.configure(conf, Thread.currentThread().getContextClassLoader());
+        assertTrue(rocksDbBackend.isUseDeleteRangeForRescaling());
+    }
+
     // ------------------------------------------------------------------------
     //  Reconfiguration
     // ------------------------------------------------------------------------
@@ -687,6 +701,9 @@ public class RocksDBStateBackendConfigTest {
                 };
         original.setDbStoragePaths(localDirs);
 
+        original.setUseDeleteRangeForRescaling(
+                !RocksDBOptions.USE_DELETE_RANGE_FOR_RESCALING.defaultValue());
+
         RocksDBStateBackend copy =
                 original.configure(
                         new Configuration(), Thread.currentThread().getContextClassLoader());
@@ -696,6 +713,8 @@ public class RocksDBStateBackendConfigTest {
         assertArrayEquals(original.getDbStoragePaths(), copy.getDbStoragePaths());
         assertEquals(original.getRocksDBOptions(), copy.getRocksDBOptions());
         assertEquals(original.getPredefinedOptions(), copy.getPredefinedOptions());
+        assertEquals(
+                original.isUseDeleteRangeForRescaling(), copy.isUseDeleteRangeForRescaling());
 
         FsStateBackend copyCheckpointBackend = (FsStateBackend) copy.getCheckpointBackend();
         assertEquals(
@@ -25,6 +25,7 @@ import org.apache.flink.api.common.typeutils.base.IntSerializer;
 import org.apache.flink.api.common.typeutils.base.StringSerializer;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.core.testutils.OneShotLatch;
+import org.apache.flink.queryablestate.client.state.serialization.KvStateSerializer;
 import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
@@ -37,8 +38,14 @@ import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.runtime.state.VoidNamespaceSerializer;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.runtime.util.BlockerCheckpointStreamFactory;
 import org.apache.flink.runtime.util.BlockingCheckpointOutputStream;
+import org.apache.flink.streaming.api.operators.async.state.AsyncKeyedStateExecutor;
+import org.apache.flink.streaming.runtime.tasks.StreamTaskActionExecutor;
+import org.apache.flink.streaming.runtime.tasks.mailbox.MailboxExecutorImpl;
+import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailbox;
+import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailboxImpl;
 import org.apache.flink.util.IOUtils;
 
 import org.apache.commons.io.FileUtils;
@@ -72,6 +79,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.RunnableFuture;
 
 import static junit.framework.TestCase.assertNotNull;
@@ -453,6 +462,102 @@ public class RocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBa
         }
     }
 
+    @Test
+    public void testConcurrentReadsOfSerializedValues() throws Exception {
+        AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+        try {
+            InternalValueState<Integer, VoidNamespace, String> state =
+                    (InternalValueState<Integer, VoidNamespace, String>)
+                            backend.getPartitionedState(
+                                    VoidNamespace.INSTANCE,
+                                    VoidNamespaceSerializer.INSTANCE,
+                                    new ValueStateDescriptor<>("state", StringSerializer.INSTANCE));
+            assertTrue(state.supportsConcurrentReads());
+
+            for (int key = 0; key < 100; key++) {
+                backend.setCurrentKey(key);
+                state.update("value-" + key);
+            }
+
+            // read the values in another thread while the task thread writes other keys
+            CompletableFuture<List<String>> readValues =
+                    CompletableFuture.supplyAsync(
+                            () -> {
+                                List<String> values = new ArrayList<>();
+                                try {
+                                    for (int key = 0; key < 100; key++) {
+                                        byte[] serializedValue =
+                                                state.getSerializedValue(
+                                                        KvStateSerializer.serializeKeyAndNamespace(
+                                                                key,
+                                                                IntSerializer.INSTANCE,
+                                                                VoidNamespace.INSTANCE,
+                                                                VoidNamespaceSerializer.INSTANCE),
+                                                        IntSerializer.INSTANCE,
+                                                        VoidNamespaceSerializer.INSTANCE,
+                                                        StringSerializer.INSTANCE);
+                                        values.add(
+                                                KvStateSerializer.deserializeValue(
+                                                        serializedValue,
+                                                        StringSerializer.INSTANCE));
+                                    }
+                                } catch (Exception e) {
+                                    throw new CompletionException(e);
+                                }
+                                return values;
+                            });
+            for (int key = 100; key < 1000; key++) {
+                backend.setCurrentKey(key);
+                state.update("value-" + key);
+            }
+
+            List<String> values = readValues.get();
+            for (int key = 0; key < 100; key++) {
+                assertEquals("value-" + key, values.get(key));
+            }
+        } finally {
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
+    @Test
+    public void testAsyncReadOfMissingValueReturnsDefaultValue() throws Exception {
+        AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+        TaskMailbox mailbox = new TaskMailboxImpl();
+        AsyncKeyedStateExecutor<Integer> executor =
+                new AsyncKeyedStateExecutor<>(
+                        backend,
+                        new MailboxExecutorImpl(
+                                mailbox,
+                                TaskMailbox.MIN_PRIORITY,
+                                StreamTaskActionExecutor.IMMEDIATE),
+                        1,
+                        2);
+        try {
+            ValueState<String> state =
+                    backend.getPartitionedState(
+                            VoidNamespace.INSTANCE,
+                            VoidNamespaceSerializer.INSTANCE,
+                            new ValueStateDescriptor<>(
+                                    "state", StringSerializer.INSTANCE, "default"));
+            backend.setCurrentKey(1);
+            state.update("one");
+
+            List<String> values = new ArrayList<>();
+            for (int key = 1; key <= 2; key++) {
+                executor.process(key, () -> executor.value(state).thenAccept(values::add));
+            }
+            executor.drain();
+
+            assertEquals(Arrays.asList("one", "default"), values);
+        } finally {
+            executor.close();
+            IOUtils.closeQuietly(backend);
+            backend.dispose();
+        }
+    }
+
     @Test
     public void testDisposeDeletesAllDirectories() throws Exception {
         AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
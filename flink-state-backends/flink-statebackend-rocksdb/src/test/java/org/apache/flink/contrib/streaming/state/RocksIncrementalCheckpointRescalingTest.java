@@ -41,12 +41,24 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 /** Tests to guard rescaling from checkpoint. */
+@RunWith(Parameterized.class)
 public class RocksIncrementalCheckpointRescalingTest extends TestLogger {
 
+    @Parameterized.Parameters(name = "Use delete range: {0}")
+    public static Collection<Boolean> parameters() {
+        return Arrays.asList(false, true);
+    }
+
+    @Parameterized.Parameter public boolean useDeleteRangeForRescaling;
+
     @Rule public TemporaryFolder rootFolder = new TemporaryFolder();
 
     private final int maxParallelism = 10;
@@ -461,7 +473,10 @@ public class RocksIncrementalCheckpointRescalingTest extends TestLogger {
     }
 
     private StateBackend getStateBackend() throws Exception {
-        return new RocksDBStateBackend("file://" + rootFolder.newFolder().getAbsolutePath(), true);
+        RocksDBStateBackend backend =
+                new RocksDBStateBackend("file://" + rootFolder.newFolder().getAbsolutePath(), true);
+        backend.setUseDeleteRangeForRescaling(useDeleteRangeForRescaling);
+        return backend;
     }
 
     /** A simple keyed function for tests. */
@@ -84,6 +84,13 @@ public class CheckpointConfig implements java.io.Serializable {
     private long alignmentTimeout =
             ExecutionCheckpointingOptions.ALIGNMENT_TIMEOUT.defaultValue().toMillis();
 
+    /** Flag to compress the in-flight data of unaligned checkpoints. */
+    private boolean unalignedCheckpointCompression =
+            ExecutionCheckpointingOptions.UNALIGNED_COMPRESSION.defaultValue();
+
+    /** The maximum size of the output in-flight data persisted by unaligned checkpoints. */
+    private long maxUnalignedOutputInFlightData = Long.MAX_VALUE;
+
     /** Flag to enable approximate local recovery. */
     private boolean approximateLocalRecovery;
 
@@ -127,6 +134,8 @@ public class CheckpointConfig implements java.io.Serializable {
         this.tolerableCheckpointFailureNumber = checkpointConfig.tolerableCheckpointFailureNumber;
         this.unalignedCheckpointsEnabled = checkpointConfig.isUnalignedCheckpointsEnabled();
         this.alignmentTimeout = checkpointConfig.alignmentTimeout;
+        this.unalignedCheckpointCompression = checkpointConfig.unalignedCheckpointCompression;
+        this.maxUnalignedOutputInFlightData = checkpointConfig.maxUnalignedOutputInFlightData;
         this.approximateLocalRecovery = checkpointConfig.isApproximateLocalRecoveryEnabled();
         this.externalizedCheckpointCleanup = checkpointConfig.externalizedCheckpointCleanup;
         this.forceCheckpointing = checkpointConfig.forceCheckpointing;
@@ -537,6 +546,54 @@ public class CheckpointConfig implements java.io.Serializable {
         return alignmentTimeout;
     }
 
+    /**
+     * Only relevant if {@link #unalignedCheckpointsEnabled} is enabled.
+     *
+     * <p>Enables or disables the compression of the in-flight data persisted by unaligned
+     * checkpoints. Checkpoints can be restored regardless of this setting.
+     */
+    @PublicEvolving
+    public void enableUnalignedCheckpointCompression(boolean enabled) {
+        this.unalignedCheckpointCompression = enabled;
+    }
+
+    /**
+     * @return <code>true</code> if the in-flight data of unaligned checkpoints is compressed, as
+     *     configured via {@link #enableUnalignedCheckpointCompression(boolean)} or {@link
+     *     ExecutionCheckpointingOptions#UNALIGNED_COMPRESSION}.
+     */
+    @PublicEvolving
+    public boolean isUnalignedCheckpointCompressionEnabled() {
+        return unalignedCheckpointCompression;
+    }
+
+    /**
+     * Only relevant if {@link #unalignedCheckpointsEnabled} is enabled.
+     *
+     * <p>Sets the maximum size in bytes of the in-flight data queued in the outputs of a task that
+     * is persisted by an unaligned checkpoint. If more data is queued when the task emits the
+     * checkpoint barrier, the barrier does not overtake the data and the checkpoint continues
+     * aligned downstream of the task.
+     */
+    @PublicEvolving
+    public void setMaxUnalignedOutputInFlightData(long maxUnalignedOutputInFlightData) {
+        if (maxUnalignedOutputInFlightData < 0) {
+            throw new IllegalArgumentException(
+                    "The maximum output in-flight data must be zero or positive.");
+        }
+        this.maxUnalignedOutputInFlightData = maxUnalignedOutputInFlightData;
+    }
+
+    /**
+     * @return the maximum size in bytes of the output in-flight data persisted by unaligned
+     *     checkpoints, as configured via {@link #setMaxUnalignedOutputInFlightData(long)} or {@link
+     *     ExecutionCheckpointingOptions#UNALIGNED_MAX_OUTPUT_IN_FLIGHT_DATA}.
+     */
+    @PublicEvolving
+    public long getMaxUnalignedOutputInFlightData() {
+        return maxUnalignedOutputInFlightData;
+    }
+
     /**
      * Returns whether approximate local recovery is enabled.
      *
@@ -664,5 +721,11 @@ public class CheckpointConfig implements java.io.Serializable {
         configuration
                 .getOptional(ExecutionCheckpointingOptions.FORCE_UNALIGNED)
                 .ifPresent(this::setForceUnalignedCheckpoints);
+        configuration
+                .getOptional(ExecutionCheckpointingOptions.UNALIGNED_COMPRESSION)
+                .ifPresent(this::enableUnalignedCheckpointCompression);
+        configuration
+                .getOptional(ExecutionCheckpointingOptions.UNALIGNED_MAX_OUTPUT_IN_FLIGHT_DATA)
+                .ifPresent(size -> setMaxUnalignedOutputInFlightData(size.getBytes()));
     }
 }
@@ -23,6 +23,7 @@ import org.apache.flink.annotation.docs.Documentation;
 import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.ConfigOption;
 import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.configuration.description.Description;
 import org.apache.flink.configuration.description.TextElement;
 import org.apache.flink.streaming.api.CheckpointingMode;
@@ -188,6 +189,43 @@ public class ExecutionCheckpointingOptions {
                                                     + "will timeout and checkpoint barrier will start working as unaligned checkpoint.")
                                     .build());
 
+    public static final ConfigOption<Boolean> UNALIGNED_COMPRESSION =
+            ConfigOptions.key("execution.checkpointing.unaligned.compression")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription(
+                            Description.builder()
+                                    .text(
+                                            "Only relevant if %s is enabled.",
+                                            TextElement.code(ENABLE_UNALIGNED.key()))
+                                    .linebreak()
+                                    .linebreak()
+                                    .text(
+                                            "Whether the in-flight data persisted by unaligned checkpoints is compressed "
+                                                    + "with LZ4. Compression reduces the checkpoint size at the cost of CPU "
+                                                    + "time. Checkpoints can be restored regardless of this option.")
+                                    .build());
+
+    public static final ConfigOption<MemorySize> UNALIGNED_MAX_OUTPUT_IN_FLIGHT_DATA =
+            ConfigOptions.key("execution.checkpointing.unaligned.max-output-in-flight-data")
+                    .memoryType()
+                    .noDefaultValue()
+                    .withDescription(
+                            Description.builder()
+                                    .text(
+                                            "Only relevant if %s is enabled.",
+                                            TextElement.code(ENABLE_UNALIGNED.key()))
+                                    .linebreak()
+                                    .linebreak()
+                                    .text(
+                                            "The maximum size of the in-flight data queued in the outputs of a task "
+                                                    + "that is persisted by an unaligned checkpoint. If more data is queued "
+                                                    + "when the task emits the checkpoint barrier, the barrier does not "
+                                                    + "overtake the data and the checkpoint continues aligned downstream of "
+                                                    + "the task. The size is estimated from the number of queued network "
+                                                    + "buffers. If not set, the size is not limited.")
+                                    .build());
+
     @Documentation.ExcludeFromDocumentation(
             "Do not advertise this option until rescaling of unaligned checkpoint is completed.")
     public static final ConfigOption<Boolean> FORCE_UNALIGNED =
@@ -465,6 +465,26 @@ public class StreamConfig implements Serializable {
         config.setLong(ExecutionCheckpointingOptions.ALIGNMENT_TIMEOUT.key(), alignmentTimeout);
     }
 
+    public void setUnalignedCheckpointCompressionEnabled(boolean enabled) {
+        config.setBoolean(ExecutionCheckpointingOptions.UNALIGNED_COMPRESSION, enabled);
+    }
+
+    public boolean isUnalignedCheckpointCompressionEnabled() {
+        return config.getBoolean(ExecutionCheckpointingOptions.UNALIGNED_COMPRESSION);
+    }
+
+    public void setMaxUnalignedOutputInFlightData(long maxUnalignedOutputInFlightData) {
+        config.setLong(
+                ExecutionCheckpointingOptions.UNALIGNED_MAX_OUTPUT_IN_FLIGHT_DATA.key(),
+                maxUnalignedOutputInFlightData);
+    }
+
+    public long getMaxUnalignedOutputInFlightData() {
+        return config.getLong(
+                ExecutionCheckpointingOptions.UNALIGNED_MAX_OUTPUT_IN_FLIGHT_DATA.key(),
+                Long.MAX_VALUE);
+    }
+
     public void setOutEdgesInOrder(List<StreamEdge> outEdgeList) {
         try {
             InstantiationUtil.writeObjectToConfig(outEdgeList, this.config, EDGES_IN_ORDER);
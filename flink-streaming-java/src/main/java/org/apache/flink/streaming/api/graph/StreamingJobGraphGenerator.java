@@ -700,6 +700,9 @@ public class StreamingJobGraphGenerator {
         config.setCheckpointMode(getCheckpointingMode(checkpointCfg));
         config.setUnalignedCheckpointsEnabled(checkpointCfg.isUnalignedCheckpointsEnabled());
         config.setAlignmentTimeout(checkpointCfg.getAlignmentTimeout());
+        config.setUnalignedCheckpointCompressionEnabled(
+                checkpointCfg.isUnalignedCheckpointCompressionEnabled());
+        config.setMaxUnalignedOutputInFlightData(checkpointCfg.getMaxUnalignedOutputInFlightData());
 
         for (int i = 0; i < vertex.getStatePartitioners().length; i++) {
             config.setStatePartitioner(i, vertex.getStatePartitioners()[i]);
@@ -758,6 +761,9 @@ public class StreamingJobGraphGenerator {
             case BATCH:
                 resultPartitionType = ResultPartitionType.BLOCKING;
                 break;
+            case HYBRID:
+                resultPartitionType = ResultPartitionType.HYBRID;
+                break;
             case UNDEFINED:
                 resultPartitionType = determineResultPartitionType(partitioner);
                 break;
@@ -780,6 +786,7 @@ public class StreamingJobGraphGenerator {
         }
         // set strategy name so that web interface can show it.
         jobEdge.setShipStrategyName(partitioner.toString());
+        jobEdge.setBroadcast(partitioner.isBroadcast());
         jobEdge.setDownstreamSubtaskStateMapper(partitioner.getDownstreamSubtaskStateMapper());
         jobEdge.setUpstreamSubtaskStateMapper(partitioner.getUpstreamSubtaskStateMapper());
 
@@ -854,6 +861,7 @@ public class StreamingJobGraphGenerator {
                 && areOperatorsChainable(upStreamVertex, downStreamVertex, streamGraph)
                 && (edge.getPartitioner() instanceof ForwardPartitioner)
                 && edge.getShuffleMode() != ShuffleMode.BATCH
+                && edge.getShuffleMode() != ShuffleMode.HYBRID
                 && upStreamVertex.getParallelism() == downStreamVertex.getParallelism()
                 && streamGraph.isChainingEnabled())) {
 
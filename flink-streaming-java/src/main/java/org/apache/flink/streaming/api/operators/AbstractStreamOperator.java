@@ -621,6 +621,82 @@ public abstract class AbstractStreamOperator<OUT>
                 name, keyedStateBackend.getKeySerializer(), namespaceSerializer, triggerable);
     }
 
+    /**
+     * Returns a {@link InternalTimerService} like {@link #getInternalTimerService(String,
+     * TypeSerializer, Triggerable)}, whose processing-time timers are kept in buckets of the given
+     * number of milliseconds. Timers that fire at nearly the same time are then added and removed
+     * at constant cost, the order in which timers fire does not change. The bucket size only takes
+     * effect when the timer service is created and when the timers are stored on the heap.
+     *
+     * @param name The name of the requested timer service. If no service exists under the given
+     *     name a new one will be created and returned.
+     * @param namespaceSerializer {@code TypeSerializer} for the timer namespace.
+     * @param triggerable The {@link Triggerable} that should be invoked when timers fire
+     * @param processingTimeBucketSize The number of milliseconds of a bucket of processing-time
+     *     timers, or 0 to keep the processing-time timers in a heap.
+     * @param <N> The type of the timer namespace.
+     */
+    public <K, N> InternalTimerService<N> getInternalTimerService(
+            String name,
+            TypeSerializer<N> namespaceSerializer,
+            Triggerable<K, N> triggerable,
+            long processingTimeBucketSize) {
+        if (timeServiceManager == null) {
+            throw new RuntimeException("The timer service has not been initialized.");
+        }
+        @SuppressWarnings("unchecked")
+        InternalTimeServiceManager<K> keyedTimeServiceHandler =
+                (InternalTimeServiceManager<K>) timeServiceManager;
+        KeyedStateBackend<K> keyedStateBackend = getKeyedStateBackend();
+        checkState(keyedStateBackend != null, "Timers can only be used on keyed operators.");
+        return keyedTimeServiceHandler.getInternalTimerService(
+                name,
+                keyedStateBackend.getKeySerializer(),
+                namespaceSerializer,
+                triggerable,
+                processingTimeBucketSize);
+    }
+
+    /**
+     * Returns a {@link InternalTimerService} like {@link #getInternalTimerService(String,
+     * TypeSerializer, Triggerable, long)}, whose event time timers are optionally coalesced. Event
+     * time timers that are registered for the same timestamp are then kept on the heap grouped by
+     * timestamp until the next checkpoint, and are fired in one batch per timestamp. This avoids
+     * the writes to the state backend for timers that fire before the next checkpoint. The
+     * coalescing only takes effect when the timer service is created.
+     *
+     * @param name The name of the requested timer service. If no service exists under the given
+     *     name a new one will be created and returned.
+     * @param namespaceSerializer {@code TypeSerializer} for the timer namespace.
+     * @param triggerable The {@link Triggerable} that should be invoked when timers fire
+     * @param processingTimeBucketSize The number of milliseconds of a bucket of processing-time
+     *     timers, or 0 to keep the processing-time timers in a heap.
+     * @param coalesceEventTimeTimers Whether to coalesce the event time timers.
+     * @param <N> The type of the timer namespace.
+     */
+    public <K, N> InternalTimerService<N> getInternalTimerService(
+            String name,
+            TypeSerializer<N> namespaceSerializer,
+            Triggerable<K, N> triggerable,
+            long processingTimeBucketSize,
+            boolean coalesceEventTimeTimers) {
+        if (timeServiceManager == null) {
+            throw new RuntimeException("The timer service has not been initialized.");
+        }
+        @SuppressWarnings("unchecked")
+        InternalTimeServiceManager<K> keyedTimeServiceHandler =
+                (InternalTimeServiceManager<K>) timeServiceManager;
+        KeyedStateBackend<K> keyedStateBackend = getKeyedStateBackend();
+        checkState(keyedStateBackend != null, "Timers can only be used on keyed operators.");
+        return keyedTimeServiceHandler.getInternalTimerService(
+                name,
+                keyedStateBackend.getKeySerializer(),
+                namespaceSerializer,
+                triggerable,
+                processingTimeBucketSize,
+                coalesceEventTimeTimers);
+    }
+
     public void processWatermark(Watermark mark) throws Exception {
         if (timeServiceManager != null) {
             timeServiceManager.advanceWatermark(mark);
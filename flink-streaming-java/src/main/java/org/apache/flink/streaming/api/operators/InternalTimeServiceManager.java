@@ -49,6 +49,48 @@ public interface InternalTimeServiceManager<K> {
             TypeSerializer<N> namespaceSerializer,
             Triggerable<K, N> triggerable);
 
+    /**
+     * Creates an {@link InternalTimerService} like {@link #getInternalTimerService(String,
+     * TypeSerializer, TypeSerializer, Triggerable)}, whose processing-time timers are kept in
+     * buckets of the given number of milliseconds if the timers are stored on the heap. The bucket
+     * size only takes effect when the timer service is created.
+     *
+     * <p>By default, the bucket size is ignored.
+     */
+    default <N> InternalTimerService<N> getInternalTimerService(
+            String name,
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            Triggerable<K, N> triggerable,
+            long processingTimeBucketSize) {
+        return getInternalTimerService(name, keySerializer, namespaceSerializer, triggerable);
+    }
+
+    /**
+     * Creates an {@link InternalTimerService} like {@link #getInternalTimerService(String,
+     * TypeSerializer, TypeSerializer, Triggerable, long)}, whose event time timers are optionally
+     * coalesced by timestamp and fired in batches. The coalescing only takes effect when the timer
+     * service is created.
+     *
+     * <p>By default, the event time timers are not coalesced.
+     */
+    default <N> InternalTimerService<N> getInternalTimerService(
+            String name,
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            Triggerable<K, N> triggerable,
+            long processingTimeBucketSize,
+            boolean coalesceEventTimeTimers) {
+        return getInternalTimerService(
+                name, keySerializer, namespaceSerializer, triggerable, processingTimeBucketSize);
+    }
+
+    /**
+     * Adds the timers that the {@link InternalTimerService timer services} buffer on the heap to
+     * the state backend. This must be called before the state backend is snapshotted.
+     */
+    default void flushCoalescedTimers() {}
+
     /**
      * Advances the Watermark of all managed {@link InternalTimerService timer services},
      * potentially firing event time timers.
@@ -140,6 +140,33 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
             TypeSerializer<K> keySerializer,
             TypeSerializer<N> namespaceSerializer,
             Triggerable<K, N> triggerable) {
+        return getInternalTimerService(name, keySerializer, namespaceSerializer, triggerable, 0L);
+    }
+
+    @Override
+    public <N> InternalTimerService<N> getInternalTimerService(
+            String name,
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            Triggerable<K, N> triggerable,
+            long processingTimeBucketSize) {
+        return getInternalTimerService(
+                name,
+                keySerializer,
+                namespaceSerializer,
+                triggerable,
+                processingTimeBucketSize,
+                false);
+    }
+
+    @Override
+    public <N> InternalTimerService<N> getInternalTimerService(
+            String name,
+            TypeSerializer<K> keySerializer,
+            TypeSerializer<N> namespaceSerializer,
+            Triggerable<K, N> triggerable,
+            long processingTimeBucketSize,
+            boolean coalesceEventTimeTimers) {
         checkNotNull(keySerializer, "Timers can only be used on keyed operators.");
 
         // the following casting is to overcome type restrictions.
@@ -147,7 +174,8 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
                 new TimerSerializer<>(keySerializer, namespaceSerializer);
 
         InternalTimerServiceImpl<K, N> timerService =
-                registerOrGetTimerService(name, timerSerializer);
+                registerOrGetTimerService(
+                        name, timerSerializer, processingTimeBucketSize, coalesceEventTimeTimers);
 
         timerService.startTimerService(
                 timerSerializer.getKeySerializer(),
@@ -157,9 +185,17 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
         return timerService;
     }
 
-    @SuppressWarnings("unchecked")
     <N> InternalTimerServiceImpl<K, N> registerOrGetTimerService(
             String name, TimerSerializer<K, N> timerSerializer) {
+        return registerOrGetTimerService(name, timerSerializer, 0L, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <N> InternalTimerServiceImpl<K, N> registerOrGetTimerService(
+            String name,
+            TimerSerializer<K, N> timerSerializer,
+            long processingTimeBucketSize,
+            boolean coalesceEventTimeTimers) {
         InternalTimerServiceImpl<K, N> timerService =
                 (InternalTimerServiceImpl<K, N>) timerServices.get(name);
         if (timerService == null) {
@@ -169,9 +205,16 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
                             localKeyGroupRange,
                             keyContext,
                             processingTimeService,
-                            createTimerPriorityQueue(
-                                    PROCESSING_TIMER_PREFIX + name, timerSerializer),
-                            createTimerPriorityQueue(EVENT_TIMER_PREFIX + name, timerSerializer));
+                            processingTimeBucketSize > 0
+                                    ? priorityQueueSetFactory.create(
+                                            PROCESSING_TIMER_PREFIX + name,
+                                            timerSerializer,
+                                            TimerHeapInternalTimer::getTimestamp,
+                                            processingTimeBucketSize)
+                                    : createTimerPriorityQueue(
+                                            PROCESSING_TIMER_PREFIX + name, timerSerializer),
+                            createTimerPriorityQueue(EVENT_TIMER_PREFIX + name, timerSerializer),
+                            coalesceEventTimeTimers);
 
             timerServices.put(name, timerService);
         }
@@ -197,6 +240,13 @@ public class InternalTimeServiceManagerImpl<K> implements InternalTimeServiceMan
 
     //////////////////				Fault Tolerance Methods				///////////////////
 
+    @Override
+    public void flushCoalescedTimers() {
+        for (InternalTimerServiceImpl<?, ?> service : timerServices.values()) {
+            service.flushCoalescedTimers();
+        }
+    }
+
     @Override
     public boolean isUsingLegacyRawKeyedStateSnapshots() {
         return useLegacySynchronousSnapshots;
@@ -30,18 +30,37 @@ import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.function.BiConsumerWithException;
 
+import javax.annotation.Nullable;
+
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ScheduledFuture;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
-/** {@link InternalTimerService} that stores timers on the Java heap. */
+/**
+ * {@link InternalTimerService} that stores timers on the Java heap.
+ *
+ * <p>Event time timers can optionally be coalesced: newly registered event time timers are then
+ * grouped by timestamp, with the keys and namespaces of each timestamp, and are only added to the
+ * event time timer queue of the state backend when a snapshot is taken or when too many timers are
+ * buffered. When the watermark advances, all timers of a timestamp are fired as one batch, and the
+ * current key is set once per key of the batch. This saves the queue operations, and thus the
+ * writes to the state backend, of timers that fire before the next snapshot.
+ */
 public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
+    /** The maximum number of coalesced event time timers that are buffered. */
+    @VisibleForTesting static final int MAX_COALESCED_TIMERS = 1 << 16;
+
     private final ProcessingTimeService processingTimeService;
 
     private final KeyContext keyContext;
@@ -54,6 +73,20 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
     private final KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>>
             eventTimeTimersQueue;
 
+    /**
+     * Event time timers that are not added to the event time timers queue yet, grouped by timestamp
+     * and key, or null if event time timers are not coalesced.
+     */
+    @Nullable private final TreeMap<Long, Map<K, Set<N>>> coalescedEventTimeTimers;
+
+    /** The number of timers in {@link #coalescedEventTimeTimers}. */
+    private int numCoalescedEventTimeTimers;
+
+    /** The batch of event time timers that is currently fired, if any. */
+    @Nullable private Map<K, Set<N>> firingEventTimeTimers;
+
+    private long firingEventTimeTimestamp;
+
     /** Information concerning the local key-group range. */
     private final KeyGroupRange localKeyGroupRange;
 
@@ -94,12 +127,29 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
             ProcessingTimeService processingTimeService,
             KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> processingTimeTimersQueue,
             KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> eventTimeTimersQueue) {
+        this(
+                localKeyGroupRange,
+                keyContext,
+                processingTimeService,
+                processingTimeTimersQueue,
+                eventTimeTimersQueue,
+                false);
+    }
+
+    InternalTimerServiceImpl(
+            KeyGroupRange localKeyGroupRange,
+            KeyContext keyContext,
+            ProcessingTimeService processingTimeService,
+            KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> processingTimeTimersQueue,
+            KeyGroupedInternalPriorityQueue<TimerHeapInternalTimer<K, N>> eventTimeTimersQueue,
+            boolean coalesceEventTimeTimers) {
 
         this.keyContext = checkNotNull(keyContext);
         this.processingTimeService = checkNotNull(processingTimeService);
         this.localKeyGroupRange = checkNotNull(localKeyGroupRange);
         this.processingTimeTimersQueue = checkNotNull(processingTimeTimersQueue);
         this.eventTimeTimersQueue = checkNotNull(eventTimeTimersQueue);
+        this.coalescedEventTimeTimers = coalesceEventTimeTimers ? new TreeMap<>() : null;
 
         // find the starting index of the local key-group range
         int startIdx = Integer.MAX_VALUE;
@@ -230,8 +280,33 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @Override
     public void registerEventTimeTimer(N namespace, long time) {
-        eventTimeTimersQueue.add(
-                new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace));
+        if (coalescedEventTimeTimers == null) {
+            eventTimeTimersQueue.add(
+                    new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace));
+            return;
+        }
+
+        final K currentKey = (K) keyContext.getCurrentKey();
+        if (firingEventTimeTimers != null && firingEventTimeTimestamp == time) {
+            Set<N> firingNamespaces = firingEventTimeTimers.get(currentKey);
+            if (firingNamespaces != null && firingNamespaces.contains(namespace)) {
+                // the timer is part of the batch that is currently fired
+                return;
+            }
+        }
+
+        if (coalescedEventTimeTimers
+                .computeIfAbsent(time, timestamp -> new LinkedHashMap<>())
+                .computeIfAbsent(currentKey, key -> new LinkedHashSet<>())
+                .add(namespace)) {
+            numCoalescedEventTimeTimers++;
+        }
+
+        if (numCoalescedEventTimeTimers > MAX_COALESCED_TIMERS) {
+            // the latest timers are the least likely to fire before the next snapshot
+            Map.Entry<Long, Map<K, Set<N>>> latestTimers = coalescedEventTimeTimers.pollLastEntry();
+            addToEventTimeTimersQueue(latestTimers.getKey(), latestTimers.getValue());
+        }
     }
 
     @Override
@@ -242,6 +317,27 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @Override
     public void deleteEventTimeTimer(N namespace, long time) {
+        if (coalescedEventTimeTimers != null) {
+            K key = (K) keyContext.getCurrentKey();
+            Map<K, Set<N>> timersOfTimestamp = coalescedEventTimeTimers.get(time);
+            Set<N> namespaces = timersOfTimestamp != null ? timersOfTimestamp.get(key) : null;
+            if (namespaces != null && namespaces.remove(namespace)) {
+                numCoalescedEventTimeTimers--;
+                if (namespaces.isEmpty()) {
+                    timersOfTimestamp.remove(key);
+                    if (timersOfTimestamp.isEmpty()) {
+                        coalescedEventTimeTimers.remove(time);
+                    }
+                }
+            }
+            if (firingEventTimeTimers != null && firingEventTimeTimestamp == time) {
+                namespaces = firingEventTimeTimers.get(key);
+                if (namespaces != null) {
+                    namespaces.remove(namespace);
+                }
+            }
+        }
+        // the timer may also have been added to the queue, by a flush or a restore
         eventTimeTimersQueue.remove(
                 new TimerHeapInternalTimer<>(time, (K) keyContext.getCurrentKey(), namespace));
     }
@@ -249,6 +345,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
     @Override
     public void forEachEventTimeTimer(BiConsumerWithException<N, Long, Exception> consumer)
             throws Exception {
+        flushCoalescedTimers();
         foreachTimer(consumer, eventTimeTimersQueue);
     }
 
@@ -294,6 +391,11 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
     public void advanceWatermark(long time) throws Exception {
         currentWatermark = time;
 
+        if (coalescedEventTimeTimers != null) {
+            advanceWatermarkCoalesced(time);
+            return;
+        }
+
         InternalTimer<K, N> timer;
 
         while ((timer = eventTimeTimersQueue.peek()) != null && timer.getTimestamp() <= time) {
@@ -303,6 +405,101 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
         }
     }
 
+    /**
+     * Fires the coalesced and the queued event time timers up to the given time, one batch per
+     * timestamp. A timer that is both coalesced and queued is only fired once.
+     */
+    private void advanceWatermarkCoalesced(long time) throws Exception {
+        while (true) {
+            final InternalTimer<K, N> queueHead = eventTimeTimersQueue.peek();
+            final Long coalescedHead =
+                    coalescedEventTimeTimers.isEmpty() ? null : coalescedEventTimeTimers.firstKey();
+
+            final long timestamp;
+            if (queueHead != null
+                    && (coalescedHead == null || queueHead.getTimestamp() <= coalescedHead)) {
+                timestamp = queueHead.getTimestamp();
+            } else if (coalescedHead != null) {
+                timestamp = coalescedHead;
+            } else {
+                return;
+            }
+            if (timestamp > time) {
+                return;
+            }
+
+            Map<K, Set<N>> batch = coalescedEventTimeTimers.remove(timestamp);
+            if (batch == null) {
+                batch = new LinkedHashMap<>();
+            } else {
+                for (Set<N> namespaces : batch.values()) {
+                    numCoalescedEventTimeTimers -= namespaces.size();
+                }
+            }
+
+            InternalTimer<K, N> timer;
+            while ((timer = eventTimeTimersQueue.peek()) != null
+                    && timer.getTimestamp() == timestamp) {
+                eventTimeTimersQueue.poll();
+                batch.computeIfAbsent(timer.getKey(), key -> new LinkedHashSet<>())
+                        .add(timer.getNamespace());
+            }
+
+            fireEventTimeTimers(timestamp, batch);
+        }
+    }
+
+    private void fireEventTimeTimers(long timestamp, Map<K, Set<N>> batch) throws Exception {
+        firingEventTimeTimers = batch;
+        firingEventTimeTimestamp = timestamp;
+        try {
+            for (Map.Entry<K, Set<N>> timersOfKey : batch.entrySet()) {
+                final K key = timersOfKey.getKey();
+                final Set<N> namespaces = timersOfKey.getValue();
+                if (namespaces.isEmpty()) {
+                    continue;
+                }
+                keyContext.setCurrentKey(key);
+                // the triggered timers may delete other timers of the batch
+                while (!namespaces.isEmpty()) {
+                    final Iterator<N> iterator = namespaces.iterator();
+                    final N namespace = iterator.next();
+                    iterator.remove();
+                    triggerTarget.onEventTime(
+                            new TimerHeapInternalTimer<>(timestamp, key, namespace));
+                }
+            }
+        } finally {
+            firingEventTimeTimers = null;
+        }
+    }
+
+    /**
+     * Adds the coalesced event time timers to the event time timers queue, so that they are
+     * included in the snapshots of the state backend.
+     */
+    public void flushCoalescedTimers() {
+        if (coalescedEventTimeTimers == null) {
+            return;
+        }
+        for (Map.Entry<Long, Map<K, Set<N>>> timersOfTimestamp :
+                coalescedEventTimeTimers.entrySet()) {
+            addToEventTimeTimersQueue(timersOfTimestamp.getKey(), timersOfTimestamp.getValue());
+        }
+        coalescedEventTimeTimers.clear();
+        numCoalescedEventTimeTimers = 0;
+    }
+
+    private void addToEventTimeTimersQueue(long timestamp, Map<K, Set<N>> timers) {
+        for (Map.Entry<K, Set<N>> timersOfKey : timers.entrySet()) {
+            for (N namespace : timersOfKey.getValue()) {
+                eventTimeTimersQueue.add(
+                        new TimerHeapInternalTimer<>(timestamp, timersOfKey.getKey(), namespace));
+                numCoalescedEventTimeTimers--;
+            }
+        }
+    }
+
     /**
      * Snapshots the timers (both processing and event time ones) for a given {@code keyGroupIdx}.
      *
@@ -311,6 +508,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
      *     them
      */
     public InternalTimersSnapshot<K, N> snapshotTimersForKeyGroup(int keyGroupIdx) {
+        flushCoalescedTimers();
         return new InternalTimersSnapshot<>(
                 keySerializer,
                 namespaceSerializer,
@@ -373,6 +571,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @VisibleForTesting
     public int numEventTimeTimers() {
+        flushCoalescedTimers();
         return this.eventTimeTimersQueue.size();
     }
 
@@ -383,6 +582,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @VisibleForTesting
     public int numEventTimeTimers(N namespace) {
+        flushCoalescedTimers();
         return countTimersInNamespaceInternal(namespace, eventTimeTimersQueue);
     }
 
@@ -409,6 +609,7 @@ public class InternalTimerServiceImpl<K, N> implements InternalTimerService<N> {
 
     @VisibleForTesting
     List<Set<TimerHeapInternalTimer<K, N>>> getEventTimeTimersPerKeyGroup() {
+        flushCoalescedTimers();
         return partitionElementsByKeyGroup(eventTimeTimersQueue);
     }
 
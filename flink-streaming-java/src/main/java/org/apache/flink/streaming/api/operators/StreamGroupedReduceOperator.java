@@ -22,11 +22,24 @@ import org.apache.flink.api.common.functions.ReduceFunction;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.streaming.api.operators.async.state.AsyncKeyedStateExecutor;
+import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 
+import javax.annotation.Nullable;
+
+import static org.apache.flink.util.function.FunctionUtils.uncheckedConsumer;
+
 /**
  * A {@link StreamOperator} for executing a {@link ReduceFunction} on a {@link
  * org.apache.flink.streaming.api.datastream.KeyedStream}.
+ *
+ * <p>If {@link CheckpointingOptions#ASYNC_STATE_ACCESS_ENABLED} is set, the operator reads the
+ * reduced values with an {@link AsyncKeyedStateExecutor}, so that records of other keys are
+ * processed while a read is in progress. The in-flight records are drained before watermarks are
+ * forwarded, before checkpoint barriers are emitted and when the operator is closed.
  */
 @Internal
 public class StreamGroupedReduceOperator<IN>
@@ -41,6 +54,9 @@ public class StreamGroupedReduceOperator<IN>
 
     private final TypeSerializer<IN> serializer;
 
+    /** Reads the reduced values asynchronously, null if asynchronous state access is disabled. */
+    @Nullable private transient AsyncKeyedStateExecutor<Object> asyncStateExecutor;
+
     public StreamGroupedReduceOperator(ReduceFunction<IN> reducer, TypeSerializer<IN> serializer) {
         super(reducer);
         this.serializer = serializer;
@@ -51,12 +67,81 @@ public class StreamGroupedReduceOperator<IN>
         super.open();
         ValueStateDescriptor<IN> stateId = new ValueStateDescriptor<>(STATE_NAME, serializer);
         values = getPartitionedState(stateId);
+
+        Configuration taskManagerConfig =
+                getContainingTask().getEnvironment().getTaskManagerInfo().getConfiguration();
+        if (taskManagerConfig.getBoolean(CheckpointingOptions.ASYNC_STATE_ACCESS_ENABLED)) {
+            asyncStateExecutor =
+                    new AsyncKeyedStateExecutor<>(
+                            getKeyedStateBackend(),
+                            getContainingTask()
+                                    .getMailboxExecutorFactory()
+                                    .createExecutor(getOperatorConfig().getChainIndex()),
+                            taskManagerConfig.getInteger(
+                                    CheckpointingOptions.ASYNC_STATE_ACCESS_IO_THREADS),
+                            taskManagerConfig.getInteger(
+                                    CheckpointingOptions.ASYNC_STATE_ACCESS_CAPACITY));
+        }
     }
 
     @Override
     public void processElement(StreamRecord<IN> element) throws Exception {
+        if (asyncStateExecutor == null) {
+            reduceAndEmit(values.value(), element);
+            return;
+        }
+
+        // the record is emitted after this method returns, so it must not be reused by the caller
+        IN value =
+                getExecutionConfig().isObjectReuseEnabled()
+                        ? serializer.copy(element.getValue())
+                        : element.getValue();
+        StreamRecord<IN> record =
+                element.hasTimestamp()
+                        ? new StreamRecord<>(value, element.getTimestamp())
+                        : new StreamRecord<>(value);
+        asyncStateExecutor.process(
+                getCurrentKey(),
+                () ->
+                        asyncStateExecutor
+                                .value(values)
+                                .thenAccept(
+                                        uncheckedConsumer(
+                                                currentValue ->
+                                                        reduceAndEmit(currentValue, record))));
+    }
+
+    @Override
+    public void processWatermark(Watermark mark) throws Exception {
+        drainInFlightRecords();
+        super.processWatermark(mark);
+    }
+
+    @Override
+    public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+        drainInFlightRecords();
+        super.prepareSnapshotPreBarrier(checkpointId);
+    }
+
+    @Override
+    public void close() throws Exception {
+        drainInFlightRecords();
+        super.close();
+    }
+
+    @Override
+    public void dispose() throws Exception {
+        try {
+            if (asyncStateExecutor != null) {
+                asyncStateExecutor.close();
+            }
+        } finally {
+            super.dispose();
+        }
+    }
+
+    private void reduceAndEmit(IN currentValue, StreamRecord<IN> element) throws Exception {
         IN value = element.getValue();
-        IN currentValue = values.value();
 
         if (currentValue != null) {
             IN reduced = userFunction.reduce(currentValue, value);
@@ -67,4 +152,10 @@ public class StreamGroupedReduceOperator<IN>
             output.collect(element.replace(value));
         }
     }
+
+    private void drainInFlightRecords() throws InterruptedException {
+        if (asyncStateExecutor != null) {
+            asyncStateExecutor.drain();
+        }
+    }
 }
@@ -193,6 +193,7 @@ public class StreamOperatorStateHandler {
                         keyedStateBackend != null,
                         "keyedStateBackend should be available with timeServiceManager");
                 final InternalTimeServiceManager<?> manager = timeServiceManager.get();
+                manager.flushCoalescedTimers();
 
                 if (manager.isUsingLegacyRawKeyedStateSnapshots()) {
                     checkState(
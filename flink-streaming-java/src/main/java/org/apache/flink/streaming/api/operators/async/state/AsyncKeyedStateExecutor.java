@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.async.state;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.queryablestate.client.state.serialization.KvStateSerializer;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.apache.flink.streaming.api.operators.MailboxExecutor;
+import org.apache.flink.util.FlinkException;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.function.SupplierWithException;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Processes records of a keyed operator with non-blocking reads of keyed state.
+ *
+ * <p>The processing of a record is started with {@link #process(Object, SupplierWithException)} and
+ * returns a future that completes once the record is processed. State values are read with {@link
+ * #value(ValueState)}, which returns a future instead of blocking the task thread. States that
+ * {@link org.apache.flink.runtime.state.internal.InternalKvState#supportsConcurrentReads() support
+ * concurrent reads} are read by a pool of I/O threads, all other states are read by the task
+ * thread. Either way the futures are completed in the mailbox of the task, with the current key set
+ * to the key of the record, so that the continuations can access state and emit records as in a
+ * synchronous operator.
+ *
+ * <p>Records of the same key are processed one after another, in the order they are passed in.
+ * Records of different keys are processed concurrently, up to a capacity of in-flight records. If
+ * the capacity is reached, {@link #process(Object, SupplierWithException)} processes mails until a
+ * record completes.
+ *
+ * <p>The in-flight records are not part of a checkpoint. Operators must {@link #drain() drain} the
+ * executor before taking a snapshot and at the end of the input. All methods must be called by the
+ * task thread.
+ *
+ * @param <K> The type of the keys.
+ */
+@Internal
+public class AsyncKeyedStateExecutor<K> implements AutoCloseable {
+
+    private final KeyedStateBackend<K> keyedStateBackend;
+
+    private final MailboxExecutor mailboxExecutor;
+
+    private final ExecutorService ioExecutor;
+
+    private final int capacity;
+
+    /**
+     * The records waiting for an earlier record of the same key, by key. A key is contained as long
+     * as one of its records is in progress.
+     */
+    private final Map<K, ArrayDeque<SupplierWithException<CompletableFuture<?>, Exception>>>
+            waitingRecords;
+
+    private int numInFlightRecords;
+
+    public AsyncKeyedStateExecutor(
+            KeyedStateBackend<K> keyedStateBackend,
+            MailboxExecutor mailboxExecutor,
+            int numIoThreads,
+            int capacity) {
+        this(
+                keyedStateBackend,
+                mailboxExecutor,
+                Executors.newFixedThreadPool(
+                        numIoThreads, new ExecutorThreadFactory("async-state-io")),
+                capacity);
+    }
+
+    @VisibleForTesting
+    AsyncKeyedStateExecutor(
+            KeyedStateBackend<K> keyedStateBackend,
+            MailboxExecutor mailboxExecutor,
+            ExecutorService ioExecutor,
+            int capacity) {
+        Preconditions.checkArgument(capacity > 0, "The capacity must be positive.");
+        this.keyedStateBackend = Preconditions.checkNotNull(keyedStateBackend);
+        this.mailboxExecutor = Preconditions.checkNotNull(mailboxExecutor);
+        this.ioExecutor = Preconditions.checkNotNull(ioExecutor);
+        this.capacity = capacity;
+        this.waitingRecords = new HashMap<>();
+        this.numInFlightRecords = 0;
+    }
+
+    /**
+     * Processes a record of the given key. The processing is started once all earlier records of
+     * the key are processed, with the key set as current key.
+     *
+     * @param key The key of the record.
+     * @param recordProcessing Starts the processing of the record and returns a future that
+     *     completes once the record is processed. The future must be derived from the futures of
+     *     this executor without {@code *Async} methods, so that it completes in the mailbox.
+     */
+    public void process(
+            K key, SupplierWithException<CompletableFuture<?>, Exception> recordProcessing)
+            throws Exception {
+        while (numInFlightRecords >= capacity) {
+            mailboxExecutor.yield();
+        }
+
+        numInFlightRecords++;
+        ArrayDeque<SupplierWithException<CompletableFuture<?>, Exception>> recordsOfKey =
+                waitingRecords.get(key);
+        if (recordsOfKey != null) {
+            recordsOfKey.add(recordProcessing);
+        } else {
+            waitingRecords.put(key, new ArrayDeque<>());
+            startProcessing(key, recordProcessing);
+        }
+    }
+
+    /** Reads the value of the given state for the current key. */
+    public <V> CompletableFuture<V> value(ValueState<V> state) throws IOException {
+        Preconditions.checkArgument(
+                state instanceof InternalValueState, "State %s is not a keyed state.", state);
+        @SuppressWarnings("unchecked")
+        InternalValueState<K, VoidNamespace, V> internalState =
+                (InternalValueState<K, VoidNamespace, V>) state;
+        return value(internalState, VoidNamespace.INSTANCE);
+    }
+
+    /**
+     * Reads the value of the given state for the current key and the given namespace. If there is
+     * no value, the future is completed with the default value of the state descriptor.
+     */
+    public <N, V> CompletableFuture<V> value(InternalValueState<K, N, V> state, N namespace)
+            throws IOException {
+        K key = keyedStateBackend.getCurrentKey();
+        CompletableFuture<V> result = new CompletableFuture<>();
+
+        if (!state.supportsConcurrentReads()) {
+            state.setCurrentNamespace(namespace);
+            V value = state.value();
+            completeInMailbox(key, result, () -> value);
+            return result;
+        }
+
+        byte[] serializedKeyAndNamespace =
+                KvStateSerializer.serializeKeyAndNamespace(
+                        key, state.getKeySerializer(), namespace, state.getNamespaceSerializer());
+        TypeSerializer<K> safeKeySerializer = state.getKeySerializer().duplicate();
+        TypeSerializer<N> safeNamespaceSerializer = state.getNamespaceSerializer().duplicate();
+        TypeSerializer<V> safeValueSerializer = state.getValueSerializer().duplicate();
+        ioExecutor.execute(
+                () -> {
+                    try {
+                        byte[] serializedValue =
+                                state.getSerializedValue(
+                                        serializedKeyAndNamespace,
+                                        safeKeySerializer,
+                                        safeNamespaceSerializer,
+                                        safeValueSerializer);
+                        completeInMailbox(
+                                key,
+                                result,
+                                () ->
+                                        serializedValue == null
+                                                ? state.getDefaultValue()
+                                                : KvStateSerializer.deserializeValue(
+                                                        serializedValue,
+                                                        state.getValueSerializer()));
+                    } catch (Exception e) {
+                        completeInMailbox(
+                                key,
+                                result,
+                                () -> {
+                                    throw e;
+                                });
+                    }
+                });
+        return result;
+    }
+
+    /** Processes mails until all in-flight records are processed. */
+    public void drain() throws InterruptedException {
+        while (numInFlightRecords > 0) {
+            mailboxExecutor.yield();
+        }
+    }
+
+    public int getNumInFlightRecords() {
+        return numInFlightRecords;
+    }
+
+    /**
+     * Stops the I/O threads and waits for the running reads, so that the state backend can be
+     * disposed.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        ioExecutor.shutdownNow();
+        ioExecutor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    // ------------------------------------------------------------------------
+
+    private void startProcessing(
+            K key, SupplierWithException<CompletableFuture<?>, Exception> recordProcessing)
+            throws Exception {
+        keyedStateBackend.setCurrentKey(key);
+        recordProcessing
+                .get()
+                .whenComplete(
+                        (ignored, failure) ->
+                                mailboxExecutor.execute(
+                                        () -> onRecordProcessed(key, failure),
+                                        "record of async state access processed"));
+    }
+
+    private void onRecordProcessed(K key, @Nullable Throwable failure) throws Exception {
+        if (failure != null) {
+            throw new FlinkException(
+                    "Failed to process a record with asynchronous state access.", failure);
+        }
+
+        numInFlightRecords--;
+        ArrayDeque<SupplierWithException<CompletableFuture<?>, Exception>> recordsOfKey =
+                waitingRecords.get(key);
+        SupplierWithException<CompletableFuture<?>, Exception> nextRecord = recordsOfKey.poll();
+        if (nextRecord == null) {
+            waitingRecords.remove(key);
+        } else {
+            startProcessing(key, nextRecord);
+        }
+    }
+
+    private <V> void completeInMailbox(
+            K key, CompletableFuture<V> future, SupplierWithException<V, Exception> value) {
+        try {
+            mailboxExecutor.execute(
+                    () -> {
+                        V result;
+                        try {
+                            result = value.get();
+                        } catch (Exception e) {
+                            future.completeExceptionally(e);
+                            return;
+                        }
+                        keyedStateBackend.setCurrentKey(key);
+                        future.complete(result);
+                    },
+                    "async state read completed");
+        } catch (RejectedExecutionException e) {
+            // the task is shutting down, nobody waits for the value anymore
+        }
+    }
+}
@@ -34,6 +34,7 @@ abstract class AbstractBatchExecutionKeyState<K, N, V> implements InternalKvStat
     private final TypeSerializer<N> namespaceSerializer;
 
     private final Map<N, V> valuesForNamespaces = new HashMap<>();
+    private K currentKey;
     private N currentNamespace;
     private V currentNamespaceValue;
 
@@ -49,12 +50,17 @@ abstract class AbstractBatchExecutionKeyState<K, N, V> implements InternalKvStat
     }
 
     V getOrDefault() {
-        if (currentNamespaceValue == null && defaultValue != null) {
-            return stateTypeSerializer.copy(defaultValue);
+        if (currentNamespaceValue == null) {
+            return getDefaultValue();
         }
         return currentNamespaceValue;
     }
 
+    @Override
+    public V getDefaultValue() {
+        return defaultValue == null ? null : stateTypeSerializer.copy(defaultValue);
+    }
+
     public V getCurrentNamespaceValue() {
         return currentNamespaceValue;
     }
@@ -117,9 +123,15 @@ abstract class AbstractBatchExecutionKeyState<K, N, V> implements InternalKvStat
         this.valuesForNamespaces.remove(currentNamespace);
     }
 
-    void clearAllNamespaces() {
+    K getCurrentKey() {
+        return currentKey;
+    }
+
+    /** Drops the values of all namespaces, because the state holds the values of a single key. */
+    void setCurrentKey(K currentKey) {
         currentNamespaceValue = null;
         currentNamespace = null;
         valuesForNamespaces.clear();
+        this.currentKey = currentKey;
     }
 }
@@ -24,6 +24,10 @@ import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
 /** A {@link ValueState} which keeps value for a single key at a time. */
 class BatchExecutionKeyValueState<K, N, T> extends AbstractBatchExecutionKeyState<K, N, T>
         implements InternalValueState<K, N, T> {
@@ -41,6 +45,23 @@ class BatchExecutionKeyValueState<K, N, T> extends AbstractBatchExecutionKeyStat
         return getOrDefault();
     }
 
+    /**
+     * Looks up the keys one by one. Only the current key can have a value, because the state of a
+     * key is dropped when the input, which is sorted by key, continues with the next key.
+     */
+    @Override
+    public List<T> multiGet(List<K> keys) {
+        final List<T> values = new ArrayList<>(keys.size());
+        for (K key : keys) {
+            if (Objects.equals(key, getCurrentKey())) {
+                values.add(getOrDefault());
+            } else {
+                values.add(getDefaultValue());
+            }
+        }
+        return values;
+    }
+
     @Override
     public void update(T value) {
         setCurrentNamespaceValue(value);
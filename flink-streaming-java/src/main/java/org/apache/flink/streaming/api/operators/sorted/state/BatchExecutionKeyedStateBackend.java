@@ -105,11 +105,12 @@ class BatchExecutionKeyedStateBackend<K> implements CheckpointableKeyedStateBack
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public void setCurrentKey(K newKey) {
         if (!Objects.equals(newKey, currentKey)) {
             notifyKeySelected(newKey);
             for (State value : states.values()) {
-                ((AbstractBatchExecutionKeyState<?, ?, ?>) value).clearAllNamespaces();
+                ((AbstractBatchExecutionKeyState<K, ?, ?>) value).setCurrentKey(newKey);
             }
             for (KeyGroupedInternalPriorityQueue<?> value : priorityQueues.values()) {
                 while (value.poll() != null) {
@@ -227,6 +228,7 @@ class BatchExecutionKeyedStateBackend<K> implements CheckpointableKeyedStateBack
         return createState(namespaceSerializer, stateDesc);
     }
 
+    @SuppressWarnings("unchecked")
     private <N, SV, S extends State, IS extends S> IS createState(
             @Nonnull TypeSerializer<N> namespaceSerializer,
             @Nonnull StateDescriptor<S, SV> stateDesc)
@@ -239,7 +241,9 @@ class BatchExecutionKeyedStateBackend<K> implements CheckpointableKeyedStateBack
                             stateDesc.getClass(), this.getClass());
             throw new FlinkRuntimeException(message);
         }
-        return stateFactory.createState(keySerializer, namespaceSerializer, stateDesc);
+        IS state = stateFactory.createState(keySerializer, namespaceSerializer, stateDesc);
+        ((AbstractBatchExecutionKeyState<K, ?, ?>) state).setCurrentKey(currentKey);
+        return state;
     }
 
     @Nonnull
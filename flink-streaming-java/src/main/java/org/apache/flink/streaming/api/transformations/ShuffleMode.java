@@ -35,6 +35,13 @@ public enum ShuffleMode {
      */
     BATCH,
 
+    /**
+     * The producer persists its entire result like in {@link ShuffleMode#BATCH}, but the consumer
+     * may already be started and consume the data while it is being produced, if resources allow.
+     * A failure of the consumer does not require to restart the producer.
+     */
+    HYBRID,
+
     /**
      * The shuffle mode is undefined. It leaves it up to the framework to decide the shuffle mode.
      * The framework will pick one of {@link ShuffleMode#BATCH} or {@link ShuffleMode#PIPELINED} in
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.partitioner;
+
+import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.network.api.writer.LoadAwareChannelSelector;
+import org.apache.flink.runtime.io.network.api.writer.SubtaskStateMapper;
+import org.apache.flink.runtime.plugable.SerializationDelegate;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+
+import javax.annotation.Nullable;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Partitioner that distributes the data by cycling through the output channels like the {@link
+ * RebalancePartitioner}, but skips channels whose consumers fall behind.
+ *
+ * <p>For every record, the next few channels in round-robin order are inspected and the one with
+ * the fewest queued buffers is selected. As long as all consumers keep up, all channels have the
+ * same number of queued buffers and the data is distributed equally. A slow consumer gets fewer
+ * records instead of back pressuring the producer, so the pipeline keeps flowing at the speed of
+ * the healthy consumers.
+ *
+ * @param <T> Type of the elements in the Stream being rebalanced
+ */
+@Internal
+public class AdaptiveRebalancePartitioner<T> extends StreamPartitioner<T>
+        implements LoadAwareChannelSelector<SerializationDelegate<StreamRecord<T>>> {
+    private static final long serialVersionUID = 1L;
+
+    /** The maximum number of channels inspected per record. */
+    private static final int MAX_CHANNELS_TO_INSPECT = 4;
+
+    private int nextChannelToSendTo;
+
+    @Nullable private transient ChannelLoad channelLoad;
+
+    @Override
+    public void setup(int numberOfChannels) {
+        super.setup(numberOfChannels);
+
+        nextChannelToSendTo = ThreadLocalRandom.current().nextInt(numberOfChannels);
+    }
+
+    @Override
+    public void setChannelLoad(ChannelLoad channelLoad) {
+        this.channelLoad = channelLoad;
+    }
+
+    @Override
+    public int selectChannel(SerializationDelegate<StreamRecord<T>> record) {
+        nextChannelToSendTo = (nextChannelToSendTo + 1) % numberOfChannels;
+        if (channelLoad == null) {
+            return nextChannelToSendTo;
+        }
+
+        int selectedChannel = nextChannelToSendTo;
+        int minQueuedBuffers = channelLoad.getNumberOfQueuedBuffers(selectedChannel);
+
+        final int channelsToInspect = Math.min(numberOfChannels, MAX_CHANNELS_TO_INSPECT);
+        int channel = nextChannelToSendTo;
+        for (int i = 1; i < channelsToInspect && minQueuedBuffers > 1; i++) {
+            channel = (channel + 1) % numberOfChannels;
+            final int queuedBuffers = channelLoad.getNumberOfQueuedBuffers(channel);
+            if (queuedBuffers < minQueuedBuffers) {
+                selectedChannel = channel;
+                minQueuedBuffers = queuedBuffers;
+            }
+        }
+
+        // continue the round-robin after the selected channel to keep the distribution even
+        nextChannelToSendTo = selectedChannel;
+        return selectedChannel;
+    }
+
+    @Override
+    public SubtaskStateMapper getDownstreamSubtaskStateMapper() {
+        return SubtaskStateMapper.ROUND_ROBIN;
+    }
+
+    @Override
+    public StreamPartitioner<T> copy() {
+        return new AdaptiveRebalancePartitioner<>();
+    }
+
+    @Override
+    public String toString() {
+        return "ADAPTIVE_REBALANCE";
+    }
+}
@@ -19,6 +19,8 @@ package org.apache.flink.streaming.runtime.tasks;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.configuration.TaskManagerOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.io.InputStatus;
@@ -43,6 +45,7 @@ import org.apache.flink.runtime.io.network.api.writer.RecordWriterDelegate;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.api.writer.SingleRecordWriter;
 import org.apache.flink.runtime.io.network.partition.ChannelStateHolder;
+import org.apache.flink.runtime.io.network.partition.consumer.IndexedInputGate;
 import org.apache.flink.runtime.io.network.partition.consumer.InputGate;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.jobgraph.tasks.AbstractInvokable;
@@ -57,6 +60,7 @@ import org.apache.flink.runtime.state.StateBackend;
 import org.apache.flink.runtime.state.StateBackendLoader;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.runtime.taskmanager.DispatcherThreadFactory;
+import org.apache.flink.runtime.throughput.BufferDebloatConfiguration;
 import org.apache.flink.runtime.util.ExecutorThreadFactory;
 import org.apache.flink.runtime.util.FatalExitExceptionHandler;
 import org.apache.flink.streaming.api.TimeCharacteristic;
@@ -83,6 +87,7 @@ import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailboxImpl;
 import org.apache.flink.util.ExceptionUtils;
 import org.apache.flink.util.FlinkException;
 import org.apache.flink.util.InstantiationUtil;
+import org.apache.flink.util.MathUtils;
 import org.apache.flink.util.Preconditions;
 import org.apache.flink.util.SerializedValue;
 import org.apache.flink.util.function.RunnableWithException;
@@ -200,6 +205,8 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
 
     private final StreamTaskAsyncExceptionHandler asyncExceptionHandler;
 
+    private final BufferDebloatConfiguration bufferDebloatConfiguration;
+
     /**
      * Flag to mark the task "in operation", in which case check needs to be initialized to true, so
      * that early cancel() before invoke() behaves correctly.
@@ -310,6 +317,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
         this.mailboxProcessor = new MailboxProcessor(this::processInput, mailbox, actionExecutor);
         this.mainMailboxExecutor = mailboxProcessor.getMainMailboxExecutor();
         this.asyncExceptionHandler = new StreamTaskAsyncExceptionHandler(environment);
+        this.bufferDebloatConfiguration =
+                BufferDebloatConfiguration.fromConfiguration(
+                        environment.getTaskManagerInfo().getConfiguration());
         this.asyncOperationsThreadPool =
                 Executors.newCachedThreadPool(
                         new ExecutorThreadFactory("AsyncOperations", uncaughtExceptionHandler));
@@ -318,7 +328,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
 
         this.subtaskCheckpointCoordinator =
                 new SubtaskCheckpointCoordinatorImpl(
-                        stateBackend.createCheckpointStorage(getEnvironment().getJobID()),
+                        stateBackend.createCheckpointStorage(
+                                getEnvironment().getJobID(),
+                                getEnvironment().getTaskStateManager().getSegmentFileWriters()),
                         getName(),
                         actionExecutor,
                         getCancelables(),
@@ -326,6 +338,9 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
                         getEnvironment(),
                         this,
                         configuration.isUnalignedCheckpointsEnabled(),
+                        configuration.isUnalignedCheckpointCompressionEnabled(),
+                        getMaxUnalignedOutputInFlightBuffers(
+                                configuration, environment.getTaskManagerInfo().getConfiguration()),
                         this::prepareInputSnapshot);
 
         // if the clock is not already set, then assign a default TimeServiceProvider
@@ -348,6 +363,13 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
         environment.getMetricGroup().getIOMetricGroup().setEnableBusyTime(true);
     }
 
+    private static int getMaxUnalignedOutputInFlightBuffers(
+            StreamConfig configuration, Configuration taskManagerConfig) {
+        long maxInFlightData = configuration.getMaxUnalignedOutputInFlightData();
+        long bufferSize = taskManagerConfig.get(TaskManagerOptions.MEMORY_SEGMENT_SIZE).getBytes();
+        return (int) Math.min(maxInFlightData / bufferSize, Integer.MAX_VALUE);
+    }
+
     private void injectChannelStateWriterIntoChannels() {
         final Environment env = getEnvironment();
         final ChannelStateWriter channelStateWriter =
@@ -557,6 +579,38 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
                 });
 
         isRunning = true;
+
+        scheduleBufferDebloater();
+    }
+
+    /**
+     * Periodically lets the input gates recalculate the size of the buffers requested from the
+     * upstream tasks, if buffer debloating is enabled.
+     */
+    private void scheduleBufferDebloater() {
+        // without input gates there is no throughput to measure
+        if (!bufferDebloatConfiguration.isEnabled()
+                || getEnvironment().getAllInputGates().length == 0) {
+            return;
+        }
+        timerService.registerTimer(
+                timerService.getCurrentProcessingTime()
+                        + bufferDebloatConfiguration.getPeriod().toMillis(),
+                timestamp -> {
+                    try {
+                        mainMailboxExecutor.execute(
+                                () -> {
+                                    for (IndexedInputGate inputGate :
+                                            getEnvironment().getAllInputGates()) {
+                                        inputGate.triggerDebloating();
+                                    }
+                                    scheduleBufferDebloater();
+                                },
+                                "Buffer size recalculation");
+                    } catch (RejectedExecutionException e) {
+                        // this happens during shutdown, we can swallow this
+                    }
+                });
     }
 
     @Override
@@ -1292,11 +1346,21 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>> extends Ab
             }
         }
 
+        Configuration taskManagerConfig = environment.getTaskManagerInfo().getConfiguration();
+        int minSharedBroadcastRecordSize =
+                MathUtils.checkedDownCast(
+                        taskManagerConfig
+                                .get(
+                                        NettyShuffleEnvironmentOptions
+                                                .NETWORK_BROADCAST_MIN_SHARED_RECORD_SIZE)
+                                .getBytes());
+
         RecordWriter<SerializationDelegate<StreamRecord<OUT>>> output =
                 new RecordWriterBuilder<SerializationDelegate<StreamRecord<OUT>>>()
                         .setChannelSelector(outputPartitioner)
                         .setTimeout(bufferTimeout)
                         .setTaskName(taskName)
+                        .setMinSharedBroadcastRecordSize(minSharedBroadcastRecordSize)
                         .build(bufferWriter);
         output.setMetricGroup(environment.getMetricGroup().getIOMetricGroup());
         return output;
@@ -31,6 +31,7 @@ import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriterImpl;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
+import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
 import org.apache.flink.runtime.state.CheckpointStorageWorkerView;
@@ -88,6 +89,12 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
     /** The IDs of the checkpoint for which we are notified aborted. */
     private final Set<Long> abortedCheckpointIds;
 
+    /**
+     * If more buffers are queued in the outputs when an unaligned checkpoint barrier is emitted,
+     * the barrier is emitted aligned instead of persisting the buffers.
+     */
+    private final int maxUnalignedOutputInFlightBuffers;
+
     private long lastCheckpointId;
 
     /** Lock that guards state of AsyncCheckpointRunnable registry. * */
@@ -109,6 +116,8 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             Environment env,
             AsyncExceptionHandler asyncExceptionHandler,
             boolean unalignedCheckpointEnabled,
+            boolean unalignedCheckpointCompressionEnabled,
+            int maxUnalignedOutputInFlightBuffers,
             BiFunctionWithException<ChannelStateWriter, Long, CompletableFuture<Void>, IOException>
                     prepareInputSnapshot)
             throws IOException {
@@ -120,9 +129,16 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
                 asyncOperationsThreadPool,
                 env,
                 asyncExceptionHandler,
-                unalignedCheckpointEnabled,
                 prepareInputSnapshot,
-                DEFAULT_MAX_RECORD_ABORTED_CHECKPOINTS);
+                DEFAULT_MAX_RECORD_ABORTED_CHECKPOINTS,
+                unalignedCheckpointEnabled
+                        ? openChannelStateWriter(
+                                taskName,
+                                checkpointStorage,
+                                env,
+                                unalignedCheckpointCompressionEnabled)
+                        : ChannelStateWriter.NO_OP,
+                maxUnalignedOutputInFlightBuffers);
     }
 
     SubtaskCheckpointCoordinatorImpl(
@@ -149,8 +165,9 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
                 prepareInputSnapshot,
                 maxRecordAbortedCheckpoints,
                 unalignedCheckpointEnabled
-                        ? openChannelStateWriter(taskName, checkpointStorage, env)
-                        : ChannelStateWriter.NO_OP);
+                        ? openChannelStateWriter(taskName, checkpointStorage, env, false)
+                        : ChannelStateWriter.NO_OP,
+                Integer.MAX_VALUE);
     }
 
     @VisibleForTesting
@@ -165,7 +182,8 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
             BiFunctionWithException<ChannelStateWriter, Long, CompletableFuture<Void>, IOException>
                     prepareInputSnapshot,
             int maxRecordAbortedCheckpoints,
-            ChannelStateWriter channelStateWriter)
+            ChannelStateWriter channelStateWriter,
+            int maxUnalignedOutputInFlightBuffers)
             throws IOException {
         this.checkpointStorage =
                 new CachingCheckpointStorageWorkerView(checkNotNull(checkpointStorage));
@@ -178,6 +196,7 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
         this.actionExecutor = checkNotNull(actionExecutor);
         this.channelStateWriter = checkNotNull(channelStateWriter);
         this.prepareInputSnapshot = prepareInputSnapshot;
+        this.maxUnalignedOutputInFlightBuffers = maxUnalignedOutputInFlightBuffers;
         this.abortedCheckpointIds =
                 createAbortedCheckpointSetWithLimitSize(maxRecordAbortedCheckpoints);
         this.lastCheckpointId = -1L;
@@ -186,10 +205,16 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
     }
 
     private static ChannelStateWriter openChannelStateWriter(
-            String taskName, CheckpointStorageWorkerView checkpointStorage, Environment env) {
+            String taskName,
+            CheckpointStorageWorkerView checkpointStorage,
+            Environment env,
+            boolean compressionEnabled) {
         ChannelStateWriterImpl writer =
                 new ChannelStateWriterImpl(
-                        taskName, env.getTaskInfo().getIndexOfThisSubtask(), checkpointStorage);
+                        taskName,
+                        env.getTaskInfo().getIndexOfThisSubtask(),
+                        checkpointStorage,
+                        compressionEnabled);
         writer.open();
         return writer;
     }
@@ -277,10 +302,19 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
         //           The pre-barrier work should be nothing or minimal in the common case.
         operatorChain.prepareSnapshotPreBarrier(metadata.getCheckpointId());
 
-        // Step (2): Send the checkpoint barrier downstream
+        // Step (2): Send the checkpoint barrier downstream, aligned if too much data is queued
+        CheckpointOptions barrierOptions = options;
+        if (options.isUnalignedCheckpoint() && exceedsMaxUnalignedOutputInFlightData()) {
+            LOG.debug(
+                    "Too much in-flight data in the outputs of {}, emitting aligned barrier for checkpoint {}.",
+                    taskName,
+                    metadata.getCheckpointId());
+            barrierOptions = options.toAligned();
+        }
         operatorChain.broadcastEvent(
-                new CheckpointBarrier(metadata.getCheckpointId(), metadata.getTimestamp(), options),
-                options.isUnalignedCheckpoint());
+                new CheckpointBarrier(
+                        metadata.getCheckpointId(), metadata.getTimestamp(), barrierOptions),
+                barrierOptions.isUnalignedCheckpoint());
 
         // Step (3): Prepare to spill the in-flight buffers for input and output
         if (options.isUnalignedCheckpoint()) {
@@ -307,6 +341,16 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
         }
     }
 
+    private boolean exceedsMaxUnalignedOutputInFlightData() {
+        long numQueuedBuffers = 0;
+        for (ResultPartitionWriter writer : env.getAllWriters()) {
+            for (int i = 0; i < writer.getNumberOfSubpartitions(); i++) {
+                numQueuedBuffers += writer.getNumberOfQueuedBuffers(i);
+            }
+        }
+        return numQueuedBuffers > maxUnalignedOutputInFlightBuffers;
+    }
+
     @Override
     public void notifyCheckpointComplete(
             long checkpointId, OperatorChain<?, ?> operatorChain, Supplier<Boolean> isRunning)
@@ -29,6 +29,7 @@ import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
 import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
+import org.apache.flink.runtime.state.heap.TimingWheelPriorityQueueSet;
 import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.streaming.runtime.tasks.TestProcessingTimeService;
 
@@ -41,6 +42,7 @@ import org.mockito.stubbing.Answer;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -49,6 +51,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.junit.Assert.assertEquals;
@@ -498,6 +501,147 @@ public class InternalTimerServiceImplTest {
         assertEquals(0, timerService.numProcessingTimeTimers());
     }
 
+    /**
+     * Verifies that processing-time timers in a {@link TimingWheelPriorityQueueSet} fire in order,
+     * also if they are in the same bucket, and that deleted timers don't fire.
+     */
+    @Test
+    public void testFireProcessingTimeTimersInBuckets() throws Exception {
+        final List<Long> firedTimestamps = new ArrayList<>();
+        Triggerable<Integer, String> triggerable =
+                new Triggerable<Integer, String>() {
+                    @Override
+                    public void onEventTime(InternalTimer<Integer, String> timer) {}
+
+                    @Override
+                    public void onProcessingTime(InternalTimer<Integer, String> timer) {
+                        firedTimestamps.add(timer.getTimestamp());
+                    }
+                };
+
+        TestKeyContext keyContext = new TestKeyContext();
+        TestProcessingTimeService processingTimeService = new TestProcessingTimeService();
+        HeapPriorityQueueSetFactory queueFactory =
+                new HeapPriorityQueueSetFactory(testKeyGroupRange, maxParallelism, 128);
+        TimerSerializer<Integer, String> timerSerializer =
+                new TimerSerializer<>(IntSerializer.INSTANCE, StringSerializer.INSTANCE);
+        InternalTimerServiceImpl<Integer, String> timerService =
+                new InternalTimerServiceImpl<>(
+                        testKeyGroupRange,
+                        keyContext,
+                        processingTimeService,
+                        queueFactory.create(
+                                "__test_processing_timers",
+                                timerSerializer,
+                                TimerHeapInternalTimer::getTimestamp,
+                                100L),
+                        queueFactory.create("__test_event_timers", timerSerializer));
+        timerService.startTimerService(
+                IntSerializer.INSTANCE, StringSerializer.INSTANCE, triggerable);
+
+        keyContext.setCurrentKey(getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism));
+
+        for (long timestamp : new long[] {1_000_000L, 120L, 17L, 5L, 150L, 99_999L, 5L}) {
+            timerService.registerProcessingTimeTimer("ciao", timestamp);
+        }
+        timerService.deleteProcessingTimeTimer("ciao", 150L);
+
+        assertEquals(5, timerService.numProcessingTimeTimers());
+        assertThat(processingTimeService.getActiveTimerTimestamps(), containsInAnyOrder(5L));
+
+        processingTimeService.setCurrentTime(120);
+        assertEquals(Arrays.asList(5L, 17L, 120L), firedTimestamps);
+        assertThat(processingTimeService.getActiveTimerTimestamps(), containsInAnyOrder(99_999L));
+
+        timerService.registerProcessingTimeTimer("ciao", 130L);
+        assertThat(processingTimeService.getActiveTimerTimestamps(), containsInAnyOrder(130L));
+
+        processingTimeService.setCurrentTime(1_000_000L);
+        assertEquals(Arrays.asList(5L, 17L, 120L, 130L, 99_999L, 1_000_000L), firedTimestamps);
+        assertEquals(0, timerService.numProcessingTimeTimers());
+    }
+
+    /**
+     * Verifies that coalesced event time timers fire once per timer, also if they were flushed to
+     * the queue in between, and that timers deleted while their batch fires don't fire.
+     */
+    @Test
+    public void testFireCoalescedEventTimeTimers() throws Exception {
+        final int key1 = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+        int otherKey = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+        while (otherKey == key1) {
+            otherKey = getKeyInKeyGroupRange(testKeyGroupRange, maxParallelism);
+        }
+        final int key2 = otherKey;
+
+        final TestKeyContext keyContext = new TestKeyContext();
+        final List<TimerHeapInternalTimer<Integer, String>> firedTimers = new ArrayList<>();
+        final AtomicReference<InternalTimerServiceImpl<Integer, String>> timerServiceRef =
+                new AtomicReference<>();
+        Triggerable<Integer, String> triggerable =
+                new Triggerable<Integer, String>() {
+                    @Override
+                    public void onEventTime(InternalTimer<Integer, String> timer) {
+                        assertEquals(timer.getKey(), keyContext.getCurrentKey());
+                        firedTimers.add(
+                                new TimerHeapInternalTimer<>(
+                                        timer.getTimestamp(),
+                                        timer.getKey(),
+                                        timer.getNamespace()));
+                        if (timer.getKey() == key1 && timer.getTimestamp() == 10) {
+                            keyContext.setCurrentKey(key2);
+                            timerServiceRef.get().deleteEventTimeTimer("hello", 10);
+                        }
+                    }
+
+                    @Override
+                    public void onProcessingTime(InternalTimer<Integer, String> timer) {}
+                };
+
+        PriorityQueueSetFactory queueFactory = createQueueFactory();
+        TimerSerializer<Integer, String> timerSerializer =
+                new TimerSerializer<>(IntSerializer.INSTANCE, StringSerializer.INSTANCE);
+        InternalTimerServiceImpl<Integer, String> timerService =
+                new InternalTimerServiceImpl<>(
+                        testKeyGroupRange,
+                        keyContext,
+                        new TestProcessingTimeService(),
+                        queueFactory.create("__test_processing_timers", timerSerializer),
+                        queueFactory.create("__test_event_timers", timerSerializer),
+                        true);
+        timerService.startTimerService(
+                IntSerializer.INSTANCE, StringSerializer.INSTANCE, triggerable);
+        timerServiceRef.set(timerService);
+
+        keyContext.setCurrentKey(key1);
+        timerService.registerEventTimeTimer("ciao", 10);
+        timerService.registerEventTimeTimer("ciao", 20);
+        keyContext.setCurrentKey(key2);
+        timerService.registerEventTimeTimer("ciao", 10);
+        timerService.registerEventTimeTimer("ciao", 10);
+
+        // flushing adds the timers to the queue, as before a snapshot
+        timerService.flushCoalescedTimers();
+        assertEquals(3, timerService.numEventTimeTimers());
+
+        keyContext.setCurrentKey(key1);
+        timerService.registerEventTimeTimer("ciao", 10);
+        keyContext.setCurrentKey(key2);
+        timerService.registerEventTimeTimer("hello", 10);
+
+        timerService.advanceWatermark(10);
+        assertEquals(
+                Arrays.asList(
+                        new TimerHeapInternalTimer<>(10, key1, "ciao"),
+                        new TimerHeapInternalTimer<>(10, key2, "ciao")),
+                firedTimers);
+        assertEquals(1, timerService.numEventTimeTimers());
+
+        timerService.advanceWatermark(20);
+        assertEquals(new TimerHeapInternalTimer<>(20, key1, "ciao"), firedTimers.get(2));
+        assertEquals(0, timerService.numEventTimeTimers());
+    }
+
     /**
      * This also verifies that we don't have leakage between keys/namespaces.
      *
@@ -23,7 +23,11 @@ import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
 import org.apache.flink.api.common.typeinfo.TypeInformation;
 import org.apache.flink.api.common.typeutils.base.IntSerializer;
 import org.apache.flink.api.java.functions.KeySelector;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.operators.testutils.MockEnvironment;
+import org.apache.flink.runtime.operators.testutils.MockEnvironmentBuilder;
+import org.apache.flink.runtime.util.TestingTaskManagerRuntimeInfo;
 import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.streaming.util.KeyedOneInputStreamOperatorTestHarness;
@@ -81,6 +85,58 @@ public class StreamGroupedReduceOperatorTest {
                 "Output was not correct.", expectedOutput, testHarness.getOutput());
     }
 
+    @Test
+    public void testGroupedReduceWithAsyncStateAccess() throws Exception {
+
+        KeySelector<Integer, Integer> keySelector = new IntegerKeySelector();
+
+        StreamGroupedReduceOperator<Integer> operator =
+                new StreamGroupedReduceOperator<>(new MyReducer(), IntSerializer.INSTANCE);
+
+        Configuration taskManagerConfig = new Configuration();
+        taskManagerConfig.setBoolean(CheckpointingOptions.ASYNC_STATE_ACCESS_ENABLED, true);
+        MockEnvironment environment =
+                new MockEnvironmentBuilder()
+                        .setTaskManagerRuntimeInfo(
+                                new TestingTaskManagerRuntimeInfo(taskManagerConfig))
+                        .build();
+
+        OneInputStreamOperatorTestHarness<Integer, Integer> testHarness =
+                new KeyedOneInputStreamOperatorTestHarness<>(
+                        operator, keySelector, BasicTypeInfo.INT_TYPE_INFO, environment);
+
+        long initialTime = 0L;
+        ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+        testHarness.open();
+
+        testHarness.processElement(new StreamRecord<>(1, initialTime + 1));
+        testHarness.processElement(new StreamRecord<>(1, initialTime + 2));
+        testHarness.processElement(new StreamRecord<>(2, initialTime + 3));
+
+        // the state reads complete in the mailbox, which is not processed yet
+        Assert.assertTrue(testHarness.getOutput().isEmpty());
+
+        testHarness.processWatermark(new Watermark(initialTime + 3));
+
+        // the records of key 2 are not held back by the second record of key 1
+        expectedOutput.add(new StreamRecord<>(1, initialTime + 1));
+        expectedOutput.add(new StreamRecord<>(2, initialTime + 3));
+        expectedOutput.add(new StreamRecord<>(2, initialTime + 2));
+        expectedOutput.add(new Watermark(initialTime + 3));
+
+        TestHarnessUtil.assertOutputEquals(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.processElement(new StreamRecord<>(1, initialTime + 4));
+        testHarness.close();
+
+        expectedOutput.add(new StreamRecord<>(3, initialTime + 4));
+
+        TestHarnessUtil.assertOutputEquals(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+    }
+
     @Test
     public void testOpenClose() throws Exception {
 
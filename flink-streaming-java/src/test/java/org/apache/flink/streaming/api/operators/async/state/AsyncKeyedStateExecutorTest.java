@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.api.operators.async.state;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.runtime.concurrent.Executors;
+import org.apache.flink.runtime.jobgraph.JobVertexID;
+import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
+import org.apache.flink.runtime.query.KvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.streaming.runtime.tasks.StreamTaskActionExecutor;
+import org.apache.flink.streaming.runtime.tasks.mailbox.Mail;
+import org.apache.flink.streaming.runtime.tasks.mailbox.MailboxExecutorImpl;
+import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailbox;
+import org.apache.flink.streaming.runtime.tasks.mailbox.TaskMailboxImpl;
+import org.apache.flink.util.ExceptionUtils;
+import org.apache.flink.util.FlinkException;
+import org.apache.flink.util.TestLogger;
+import org.apache.flink.util.WrappingRuntimeException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/** Tests for the {@link AsyncKeyedStateExecutor}. */
+public class AsyncKeyedStateExecutorTest extends TestLogger {
+
+    private AbstractKeyedStateBackend<Integer> keyedStateBackend;
+
+    private TaskMailbox mailbox;
+
+    private AsyncKeyedStateExecutor<Integer> executor;
+
+    private ValueState<String> state;
+
+    @Before
+    public void setUp() throws Exception {
+        keyedStateBackend =
+                new MemoryStateBackend()
+                        .createKeyedStateBackend(
+                                new DummyEnvironment("test", 1, 0),
+                                new JobID(),
+                                "test_op",
+                                IntSerializer.INSTANCE,
+                                1,
+                                new KeyGroupRange(0, 0),
+                                new KvStateRegistry()
+                                        .createTaskRegistry(new JobID(), new JobVertexID()),
+                                TtlTimeProvider.DEFAULT,
+                                new UnregisteredMetricsGroup(),
+                                Collections.emptyList(),
+                                new CloseableRegistry());
+        state =
+                keyedStateBackend.getPartitionedState(
+                        VoidNamespace.INSTANCE,
+                        VoidNamespaceSerializer.INSTANCE,
+                        new ValueStateDescriptor<>("state", StringSerializer.INSTANCE));
+
+        mailbox = new TaskMailboxImpl();
+        executor =
+                new AsyncKeyedStateExecutor<>(
+                        keyedStateBackend,
+                        new MailboxExecutorImpl(
+                                mailbox,
+                                TaskMailbox.MIN_PRIORITY,
+                                StreamTaskActionExecutor.IMMEDIATE),
+                        Executors.newDirectExecutorService(),
+                        2);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.close();
+        keyedStateBackend.dispose();
+    }
+
+    /** Tests that the value is read for the key of the record, and with the key set. */
+    @Test
+    public void testValueIsCompletedWithKeyOfRecord() throws Exception {
+        keyedStateBackend.setCurrentKey(1);
+        state.update("one");
+        keyedStateBackend.setCurrentKey(2);
+        state.update("two");
+
+        List<String> results = new ArrayList<>();
+        for (int key = 1; key <= 2; key++) {
+            executor.process(
+                    key,
+                    () ->
+                            executor.value(state)
+                                    .thenAccept(
+                                            value ->
+                                                    results.add(
+                                                            keyedStateBackend.getCurrentKey()
+                                                                    + "="
+                                                                    + value)));
+        }
+        executor.drain();
+
+        assertEquals(Arrays.asList("1=one", "2=two"), results);
+        assertEquals(0, executor.getNumInFlightRecords());
+    }
+
+    /** Tests that records of a key wait for the earlier records of the key only. */
+    @Test
+    public void testRecordsOfSameKeyAreProcessedInOrder() throws Exception {
+        List<String> started = new ArrayList<>();
+        CompletableFuture<Void> firstRecordOfKey1 = new CompletableFuture<>();
+
+        executor.process(
+                1,
+                () -> {
+                    started.add("1a");
+                    return firstRecordOfKey1;
+                });
+        executor.process(
+                1,
+                () -> {
+                    started.add("1b");
+                    return CompletableFuture.completedFuture(null);
+                });
+        // the capacity is reached, the record of key 2 is only admitted once a record completes
+        firstRecordOfKey1.complete(null);
+        executor.process(
+                2,
+                () -> {
+                    started.add("2a");
+                    return CompletableFuture.completedFuture(null);
+                });
+        executor.drain();
+
+        assertEquals(Arrays.asList("1a", "1b", "2a"), started);
+    }
+
+    /** Tests that a record of another key overtakes a waiting record. */
+    @Test
+    public void testRecordsOfOtherKeysProceed() throws Exception {
+        List<String> started = new ArrayList<>();
+        CompletableFuture<Void> firstRecordOfKey1 = new CompletableFuture<>();
+
+        executor.process(
+                1,
+                () -> {
+                    started.add("1a");
+                    return firstRecordOfKey1;
+                });
+        executor.process(
+                2,
+                () -> {
+                    started.add("2a");
+                    return CompletableFuture.completedFuture(null);
+                });
+        runMails();
+        assertEquals(Arrays.asList("1a", "2a"), started);
+        assertEquals(1, executor.getNumInFlightRecords());
+
+        firstRecordOfKey1.complete(null);
+        executor.drain();
+        assertEquals(0, executor.getNumInFlightRecords());
+    }
+
+    /** Tests that a failed record fails the mailbox. */
+    @Test
+    public void testFailedRecordFailsTask() throws Exception {
+        CompletableFuture<Void> record = new CompletableFuture<>();
+        executor.process(1, () -> record);
+        record.completeExceptionally(new Exception("expected"));
+
+        try {
+            executor.drain();
+            fail("Expected the failure of the record.");
+        } catch (WrappingRuntimeException e) {
+            assertTrue(ExceptionUtils.findThrowable(e, FlinkException.class).isPresent());
+            assertTrue(ExceptionUtils.findThrowableWithMessage(e, "expected").isPresent());
+        }
+    }
+
+    private void runMails() throws Exception {
+        Optional<Mail> mail;
+        while ((mail = mailbox.tryTake(TaskMailbox.MIN_PRIORITY)).isPresent()) {
+            mail.get().run();
+        }
+    }
+}
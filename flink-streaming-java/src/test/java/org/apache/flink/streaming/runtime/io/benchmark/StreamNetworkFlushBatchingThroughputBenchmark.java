@@ -0,0 +1,46 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io.benchmark;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+
+/**
+ * Network throughput benchmarks executed by the external <a
+ * href="https://github.com/dataArtisans/flink-benchmarks">flink-benchmarks</a> project.
+ *
+ * <p>Same as {@link StreamNetworkThroughputBenchmark} but with a configurable number of buffers
+ * written to a connection before flushing it, see {@link
+ * NettyShuffleEnvironmentOptions#MAX_MESSAGES_PER_FLUSH}. Comparing a value of 1 with larger values
+ * at high channel counts (1000 and more) shows the gains of batching the writes.
+ */
+public class StreamNetworkFlushBatchingThroughputBenchmark extends StreamNetworkThroughputBenchmark {
+
+    /**
+     * Same as {@link StreamNetworkThroughputBenchmark#setUp(int, int, int)} but also sets the
+     * maximum number of buffers written to a connection before flushing it.
+     */
+    public void setUp(int recordWriters, int channels, int flushTimeout, int maxMessagesPerFlush)
+            throws Exception {
+        Configuration config = new Configuration();
+        config.setInteger(NettyShuffleEnvironmentOptions.MAX_MESSAGES_PER_FLUSH, maxMessagesPerFlush);
+
+        setUp(recordWriters, channels, flushTimeout, false, false, -1, -1, config);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.partitioner;
+
+import org.apache.flink.api.java.tuple.Tuple;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests for {@link AdaptiveRebalancePartitioner}. */
+public class AdaptiveRebalancePartitionerTest extends StreamPartitionerTest {
+
+    @Override
+    public StreamPartitioner<Tuple> createPartitioner() {
+        StreamPartitioner<Tuple> partitioner = new AdaptiveRebalancePartitioner<>();
+        assertFalse(partitioner.isBroadcast());
+        return partitioner;
+    }
+
+    @Test
+    public void testSelectChannelsIntervalWithoutLoad() {
+        final int numberOfChannels = 3;
+        streamPartitioner.setup(numberOfChannels);
+
+        int initialChannel = streamPartitioner.selectChannel(serializationDelegate);
+        assertTrue(0 <= initialChannel);
+        assertTrue(numberOfChannels > initialChannel);
+
+        for (int i = 1; i <= 3; i++) {
+            assertSelectedChannel((initialChannel + i) % numberOfChannels);
+        }
+    }
+
+    @Test
+    public void testSelectChannelsIntervalWithEqualLoad() {
+        final int numberOfChannels = 5;
+        streamPartitioner.setup(numberOfChannels);
+        ((AdaptiveRebalancePartitioner<Tuple>) streamPartitioner).setChannelLoad(channel -> 3);
+
+        int initialChannel = streamPartitioner.selectChannel(serializationDelegate);
+        for (int i = 1; i <= 10; i++) {
+            assertSelectedChannel((initialChannel + i) % numberOfChannels);
+        }
+    }
+
+    @Test
+    public void testSkipSlowChannel() {
+        final int numberOfChannels = 3;
+        final int slowChannel = 1;
+        streamPartitioner.setup(numberOfChannels);
+        ((AdaptiveRebalancePartitioner<Tuple>) streamPartitioner)
+                .setChannelLoad(channel -> channel == slowChannel ? 10 : 1);
+
+        for (int i = 0; i < 10; i++) {
+            assertNotEquals(slowChannel, streamPartitioner.selectChannel(serializationDelegate));
+        }
+    }
+}
@@ -21,10 +21,11 @@ import org.apache.flink.api.common.functions.FlatMapFunction;
 import org.apache.flink.api.java.tuple.Tuple;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.runtime.JobException;
-import org.apache.flink.runtime.executiongraph.ExecutionEdge;
+import org.apache.flink.runtime.executiongraph.ConsumedPartitionGroup;
 import org.apache.flink.runtime.executiongraph.ExecutionGraph;
 import org.apache.flink.runtime.executiongraph.ExecutionJobVertex;
 import org.apache.flink.runtime.executiongraph.ExecutionVertex;
+import org.apache.flink.runtime.executiongraph.IntermediateResultPartition;
 import org.apache.flink.runtime.executiongraph.TestingExecutionGraphBuilder;
 import org.apache.flink.runtime.jobgraph.JobGraph;
 import org.apache.flink.runtime.jobgraph.JobVertex;
@@ -138,11 +139,11 @@ public class RescalePartitionerTest extends StreamPartitionerTest {
         Map<Integer, Integer> mapInputPartitionCounts = new HashMap<>();
         for (ExecutionVertex mapTaskVertex : mapTaskVertices) {
             assertEquals(1, mapTaskVertex.getNumberOfInputs());
-            assertEquals(1, mapTaskVertex.getInputEdges(0).length);
-            ExecutionEdge inputEdge = mapTaskVertex.getInputEdges(0)[0];
-            assertEquals(
-                    sourceVertex.getID(), inputEdge.getSource().getProducer().getJobvertexId());
-            int inputPartition = inputEdge.getSource().getPartitionNumber();
+            assertEquals(1, mapTaskVertex.getConsumedPartitionGroup(0).size());
+            IntermediateResultPartition consumedPartition =
+                    mapTaskVertex.getConsumedPartitionGroup(0).getFirst();
+            assertEquals(sourceVertex.getID(), consumedPartition.getProducer().getJobvertexId());
+            int inputPartition = consumedPartition.getPartitionNumber();
             if (!mapInputPartitionCounts.containsKey(inputPartition)) {
                 mapInputPartitionCounts.put(inputPartition, 1);
             } else {
@@ -165,16 +166,19 @@ public class RescalePartitionerTest extends StreamPartitionerTest {
         Set<Integer> mapSubpartitions = new HashSet<>();
         for (ExecutionVertex sinkTaskVertex : sinkTaskVertices) {
             assertEquals(1, sinkTaskVertex.getNumberOfInputs());
-            assertEquals(2, sinkTaskVertex.getInputEdges(0).length);
-            ExecutionEdge inputEdge1 = sinkTaskVertex.getInputEdges(0)[0];
-            ExecutionEdge inputEdge2 = sinkTaskVertex.getInputEdges(0)[1];
-            assertEquals(mapVertex.getID(), inputEdge1.getSource().getProducer().getJobvertexId());
-            assertEquals(mapVertex.getID(), inputEdge2.getSource().getProducer().getJobvertexId());
-
-            int inputPartition1 = inputEdge1.getSource().getPartitionNumber();
+            ConsumedPartitionGroup consumedPartitions = sinkTaskVertex.getConsumedPartitionGroup(0);
+            assertEquals(2, consumedPartitions.size());
+            IntermediateResultPartition consumedPartition1 =
+                    consumedPartitions.getResultPartitions().get(0);
+            IntermediateResultPartition consumedPartition2 =
+                    consumedPartitions.getResultPartitions().get(1);
+            assertEquals(mapVertex.getID(), consumedPartition1.getProducer().getJobvertexId());
+            assertEquals(mapVertex.getID(), consumedPartition2.getProducer().getJobvertexId());
+
+            int inputPartition1 = consumedPartition1.getPartitionNumber();
             assertFalse(mapSubpartitions.contains(inputPartition1));
             mapSubpartitions.add(inputPartition1);
-            int inputPartition2 = inputEdge2.getSource().getPartitionNumber();
+            int inputPartition2 = consumedPartition2.getPartitionNumber();
             assertFalse(mapSubpartitions.contains(inputPartition2));
             mapSubpartitions.add(inputPartition2);
         }
@@ -32,9 +32,11 @@ import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriter;
 import org.apache.flink.runtime.checkpoint.channel.ChannelStateWriterImpl;
 import org.apache.flink.runtime.event.AbstractEvent;
 import org.apache.flink.runtime.io.network.api.CancelCheckpointMarker;
+import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.api.writer.NonRecordWriter;
 import org.apache.flink.runtime.io.network.api.writer.RecordOrEventCollectingResultPartitionWriter;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
+import org.apache.flink.runtime.io.network.partition.MockResultPartitionWriter;
 import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.operators.testutils.DummyEnvironment;
 import org.apache.flink.runtime.operators.testutils.MockEnvironment;
@@ -174,6 +176,58 @@ public class SubtaskCheckpointCoordinatorTest {
         assertEquals(false, broadcastedPriorityEvent.get());
     }
 
+    @Test
+    public void testAlignedBarrierIfTooMuchOutputInFlightData() throws Exception {
+        MockEnvironment mockEnvironment = MockEnvironment.builder().build();
+        mockEnvironment.addOutputs(
+                Collections.singletonList(
+                        new MockResultPartitionWriter() {
+                            @Override
+                            public int getNumberOfQueuedBuffers(int targetSubpartition) {
+                                return 2;
+                            }
+                        }));
+
+        SubtaskCheckpointCoordinator coordinator =
+                new SubtaskCheckpointCoordinatorImpl(
+                        new TestCheckpointStorageWorkerView(100),
+                        "test",
+                        StreamTaskActionExecutor.IMMEDIATE,
+                        new CloseableRegistry(),
+                        newDirectExecutorService(),
+                        mockEnvironment,
+                        (message, unused) -> fail(message),
+                        (unused1, unused2) -> CompletableFuture.completedFuture(null),
+                        0,
+                        ChannelStateWriter.NO_OP,
+                        1);
+
+        AtomicReference<Boolean> broadcastedPriorityEvent = new AtomicReference<>(null);
+        AtomicReference<CheckpointBarrier> broadcastedBarrier = new AtomicReference<>(null);
+        final OperatorChain<?, ?> operatorChain =
+                new OperatorChain(
+                        new MockStreamTaskBuilder(mockEnvironment).build(),
+                        new NonRecordWriter<>()) {
+                    @Override
+                    public void broadcastEvent(AbstractEvent event, boolean isPriorityEvent)
+                            throws IOException {
+                        super.broadcastEvent(event, isPriorityEvent);
+                        broadcastedPriorityEvent.set(isPriorityEvent);
+                        broadcastedBarrier.set((CheckpointBarrier) event);
+                    }
+                };
+
+        coordinator.checkpointState(
+                new CheckpointMetaData(0, 0),
+                CheckpointOptions.unaligned(CheckpointStorageLocationReference.getDefault()),
+                new CheckpointMetricsBuilder(),
+                operatorChain,
+                () -> false);
+
+        assertEquals(false, broadcastedPriorityEvent.get());
+        assertFalse(broadcastedBarrier.get().getCheckpointOptions().isUnalignedCheckpoint());
+    }
+
     @Test
     public void testSkipChannelStateForSavepoints() throws Exception {
         SubtaskCheckpointCoordinator coordinator =
@@ -563,6 +617,7 @@ public class SubtaskCheckpointCoordinatorTest {
                 (message, unused) -> fail(message),
                 (unused1, unused2) -> CompletableFuture.completedFuture(null),
                 0,
-                channelStateWriter);
+                channelStateWriter,
+                Integer.MAX_VALUE);
     }
 }
@@ -529,6 +529,14 @@ class DataStream[T](stream: JavaStream[T]) {
    */
   def rebalance: DataStream[T] = asScalaStream(stream.rebalance())
 
+  /**
+   * Sets the partitioning of the [[DataStream]] so that the output tuples
+   * are distributed to the next component in a round-robin fashion, skipping
+   * instances that fall behind in consuming their data.
+   */
+  @PublicEvolving
+  def adaptiveRebalance: DataStream[T] = asScalaStream(stream.adaptiveRebalance())
+
   /**
    * Sets the partitioning of the [[DataStream]] so that the output tuples
    * are distributed evenly to a subset of instances of the downstream operation.
@@ -22,6 +22,7 @@ import org.apache.flink.api.dag.Transformation;
 import org.apache.flink.streaming.api.transformations.OneInputTransformation;
 import org.apache.flink.table.api.TableConfig;
 import org.apache.flink.table.api.TableException;
+import org.apache.flink.table.api.config.ExecutionConfigOptions;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.expressions.FieldReferenceExpression;
 import org.apache.flink.table.expressions.ValueLiteralExpression;
@@ -39,6 +40,7 @@ import org.apache.flink.table.planner.plan.logical.TumblingGroupWindow;
 import org.apache.flink.table.planner.plan.nodes.exec.ExecEdge;
 import org.apache.flink.table.planner.plan.nodes.exec.ExecNode;
 import org.apache.flink.table.planner.plan.nodes.exec.ExecNodeBase;
+import org.apache.flink.table.planner.plan.utils.AggregateInfo;
 import org.apache.flink.table.planner.plan.utils.AggregateInfoList;
 import org.apache.flink.table.planner.plan.utils.KeySelectorUtil;
 import org.apache.flink.table.planner.plan.utils.WindowEmitStrategy;
@@ -182,6 +184,8 @@ public class StreamExecGroupWindowAggregate extends ExecNodeBase<RowData>
         final LogicalType[] accTypes = extractLogicalTypes(aggInfoList.getAccTypes());
         final WindowOperator<?, ?> operator =
                 createWindowOperator(
+                        config,
+                        aggInfoList,
                         aggCodeGenerator,
                         equaliser,
                         accTypes,
@@ -277,6 +281,8 @@ public class StreamExecGroupWindowAggregate extends ExecNodeBase<RowData>
     }
 
     private WindowOperator<?, ?> createWindowOperator(
+            TableConfig config,
+            AggregateInfoList aggInfoList,
             GeneratedClass<?> aggsHandler,
             GeneratedRecordEqualiser recordEqualiser,
             LogicalType[] accTypes,
@@ -286,6 +292,8 @@ public class StreamExecGroupWindowAggregate extends ExecNodeBase<RowData>
             int timeFieldIndex) {
         WindowOperatorBuilder builder =
                 WindowOperatorBuilder.builder().withInputFields(inputFields);
+        // only sliding time windows are split into panes which can be combined in mini-batches
+        boolean miniBatchApplicable = false;
 
         if (window instanceof TumblingGroupWindow) {
             TumblingGroupWindow tumblingWindow = (TumblingGroupWindow) window;
@@ -311,10 +319,12 @@ public class StreamExecGroupWindowAggregate extends ExecNodeBase<RowData>
             ValueLiteralExpression slide = slidingWindow.slide();
             if (isProctimeAttribute(timeField) && hasTimeIntervalType(size)) {
                 builder = builder.sliding(toDuration(size), toDuration(slide)).withProcessingTime();
+                miniBatchApplicable = true;
             } else if (isRowtimeAttribute(timeField) && hasTimeIntervalType(size)) {
                 builder =
                         builder.sliding(toDuration(size), toDuration(slide))
                                 .withEventTime(timeFieldIndex);
+                miniBatchApplicable = true;
             } else if (isProctimeAttribute(timeField) && hasRowIntervalType(size)) {
                 builder = builder.countWindow(toLong(size), toLong(slide));
             } else {
@@ -346,6 +356,19 @@ public class StreamExecGroupWindowAggregate extends ExecNodeBase<RowData>
                     .withAllowedLateness(Duration.ofMillis(emitStrategy.getAllowLateness()));
         }
 
+        if (miniBatchApplicable
+                && !emitStrategy.produceUpdates()
+                && !hasDataViews(aggInfoList)
+                && config.getConfiguration()
+                        .getBoolean(ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_ENABLED)) {
+            long miniBatchSize =
+                    config.getConfiguration()
+                            .getLong(ExecutionConfigOptions.TABLE_EXEC_MINIBATCH_SIZE);
+            if (miniBatchSize > 0) {
+                builder.withMiniBatch((int) Math.min(miniBatchSize, Integer.MAX_VALUE));
+            }
+        }
+
         if (aggsHandler instanceof GeneratedNamespaceAggsHandleFunction) {
             return builder.aggregate(
                             (GeneratedNamespaceAggsHandleFunction<?>) aggsHandler,
@@ -366,4 +389,17 @@ public class StreamExecGroupWindowAggregate extends ExecNodeBase<RowData>
                     "Unsupported agg handler class: " + aggsHandler.getClass().getSimpleName());
         }
     }
+
+    /**
+     * Whether the aggregates keep state in data views, which can't be combined on the heap before
+     * they are applied to the window state.
+     */
+    private static boolean hasDataViews(AggregateInfoList aggInfoList) {
+        for (AggregateInfo aggInfo : aggInfoList.aggInfos()) {
+            if (aggInfo.viewSpecs().length > 0) {
+                return true;
+            }
+        }
+        return aggInfoList.distinctInfos().length > 0;
+    }
 }
@@ -31,12 +31,15 @@ import org.apache.flink.table.runtime.generated.GeneratedRecordEqualiser;
 import org.apache.flink.table.runtime.generated.RecordEqualiser;
 import org.apache.flink.table.runtime.operators.bundle.MapBundleFunction;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.runtime.util.StateUtil;
 import org.apache.flink.table.types.logical.LogicalType;
 import org.apache.flink.types.RowKind;
 import org.apache.flink.util.Collector;
 
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.flink.table.runtime.util.StateTtlConfigUtil.createTtlConfig;
@@ -160,15 +163,18 @@ public class MiniBatchGlobalGroupAggFunction
     @Override
     public void finishBundle(Map<RowData, RowData> buffer, Collector<RowData> out)
             throws Exception {
-        for (Map.Entry<RowData, RowData> entry : buffer.entrySet()) {
-            RowData currentKey = entry.getKey();
-            RowData bufferAcc = entry.getValue();
+        // look up the accumulators of all keys of the bundle at once
+        List<RowData> keys = new ArrayList<>(buffer.keySet());
+        List<RowData> stateAccs = StateUtil.multiGet(accState, keys, ctx);
+        for (int i = 0; i < keys.size(); i++) {
+            RowData currentKey = keys.get(i);
+            RowData bufferAcc = buffer.get(currentKey);
 
             boolean firstRow = false;
 
             // set current key to access states under the current key
             ctx.setCurrentKey(currentKey);
-            RowData stateAcc = accState.value();
+            RowData stateAcc = stateAccs.get(i);
             if (stateAcc == null) {
                 stateAcc = globalAgg.createAccumulators();
                 firstRow = true;
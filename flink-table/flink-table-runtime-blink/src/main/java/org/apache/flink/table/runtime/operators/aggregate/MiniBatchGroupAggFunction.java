@@ -33,6 +33,7 @@ import org.apache.flink.table.runtime.generated.RecordEqualiser;
 import org.apache.flink.table.runtime.operators.bundle.MapBundleFunction;
 import org.apache.flink.table.runtime.typeutils.InternalSerializers;
 import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.runtime.util.StateUtil;
 import org.apache.flink.table.types.logical.LogicalType;
 import org.apache.flink.table.types.logical.RowType;
 import org.apache.flink.types.RowKind;
@@ -162,9 +163,12 @@ public class MiniBatchGroupAggFunction
     @Override
     public void finishBundle(Map<RowData, List<RowData>> buffer, Collector<RowData> out)
             throws Exception {
-        for (Map.Entry<RowData, List<RowData>> entry : buffer.entrySet()) {
-            RowData currentKey = entry.getKey();
-            List<RowData> inputRows = entry.getValue();
+        // look up the accumulators of all keys of the bundle at once
+        List<RowData> keys = new ArrayList<>(buffer.keySet());
+        List<RowData> accs = StateUtil.multiGet(accState, keys, ctx);
+        for (int i = 0; i < keys.size(); i++) {
+            RowData currentKey = keys.get(i);
+            List<RowData> inputRows = buffer.get(currentKey);
 
             boolean firstRow = false;
 
@@ -172,7 +176,7 @@ public class MiniBatchGroupAggFunction
 
             // set current key to access state under the key
             ctx.setCurrentKey(currentKey);
-            RowData acc = accState.value();
+            RowData acc = accs.get(i);
             if (acc == null) {
                 // Don't create a new accumulator for a retraction message. This
                 // might happen if the retraction message is the first message for the
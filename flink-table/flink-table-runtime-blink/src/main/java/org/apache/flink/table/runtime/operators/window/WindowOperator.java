@@ -39,6 +39,7 @@ import org.apache.flink.streaming.api.operators.InternalTimerService;
 import org.apache.flink.streaming.api.operators.OneInputStreamOperator;
 import org.apache.flink.streaming.api.operators.TimestampedCollector;
 import org.apache.flink.streaming.api.operators.Triggerable;
+import org.apache.flink.streaming.api.watermark.Watermark;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.data.util.RowDataUtil;
@@ -58,6 +59,8 @@ import org.apache.flink.table.types.logical.LogicalType;
 import org.apache.commons.lang3.ArrayUtils;
 
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static java.util.Objects.requireNonNull;
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -133,6 +136,13 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
      */
     private final long allowedLateness;
 
+    /**
+     * Max number of records that are combined per key and pane on the heap before they are merged
+     * into the window state, or 0 if every record is applied to the state directly. Only used with
+     * a {@link PanedWindowAssigner}.
+     */
+    private int miniBatchSize;
+
     // --------------------------------------------------------------------------------
 
     protected NamespaceAggsHandleFunctionBase<W> windowAggregator;
@@ -155,6 +165,11 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
 
     private transient TriggerContext triggerContext;
 
+    /** The accumulators of the buffered records by key and pane, if mini-batch is enabled. */
+    private transient Map<K, Map<W, RowData>> miniBatchBuffer;
+
+    private transient int numBufferedRecords;
+
     // ------------------------------------------------------------------------
     // Metrics
     // ------------------------------------------------------------------------
@@ -223,6 +238,19 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
         setChainingStrategy(ChainingStrategy.ALWAYS);
     }
 
+    /**
+     * Enables combining the records of a key and pane on the heap before they are applied to the
+     * window state. This saves the state access and the trigger evaluation per record, but is only
+     * valid for paned windows that fire once at the end of the window.
+     */
+    void setMiniBatchSize(int miniBatchSize) {
+        checkArgument(miniBatchSize >= 0, "The mini-batch size must not be negative.");
+        checkArgument(
+                miniBatchSize == 0 || windowAssigner instanceof PanedWindowAssigner,
+                "Mini-batch is only supported for paned windows.");
+        this.miniBatchSize = miniBatchSize;
+    }
+
     protected abstract void compileGeneratedCode();
 
     @Override
@@ -281,6 +309,11 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
         }
         windowFunction.open(windowContext);
 
+        if (miniBatchSize > 0) {
+            this.miniBatchBuffer = new LinkedHashMap<>();
+            this.numBufferedRecords = 0;
+        }
+
         // metrics
         this.numLateRecordsDropped = metrics.counter(LATE_ELEMENTS_DROPPED_METRIC_NAME);
         this.lateRecordsDroppedRate =
@@ -305,6 +338,7 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
         super.close();
         collector = null;
         triggerContext = null;
+        miniBatchBuffer = null;
         functionsClosed = true;
         if (windowAggregator != null) {
             windowAggregator.close();
@@ -316,6 +350,7 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
         super.dispose();
         collector = null;
         triggerContext = null;
+        miniBatchBuffer = null;
         if (!functionsClosed) {
             functionsClosed = true;
             if (windowAggregator != null) {
@@ -334,6 +369,11 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
             timestamp = internalTimerService.currentProcessingTime();
         }
 
+        if (miniBatchBuffer != null) {
+            bufferElement(inputRow, timestamp);
+            return;
+        }
+
         // the windows which the input row should be placed into
         Collection<W> affectedWindows = windowFunction.assignStateNamespace(inputRow, timestamp);
         boolean isElementDropped = true;
@@ -375,6 +415,105 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
         }
     }
 
+    /**
+     * Accumulates the input row into the buffered accumulator of its pane. The window state is only
+     * updated when the buffer is flushed.
+     */
+    private void bufferElement(RowData inputRow, long timestamp) throws Exception {
+        Collection<W> panes = windowFunction.assignStateNamespace(inputRow, timestamp);
+        if (panes.isEmpty()) {
+            // markEvent will increase numLateRecordsDropped
+            lateRecordsDroppedRate.markEvent();
+            return;
+        }
+
+        Map<W, RowData> paneAccs =
+                miniBatchBuffer.computeIfAbsent(currentKey(), k -> new LinkedHashMap<>());
+        for (W pane : panes) {
+            RowData acc = paneAccs.get(pane);
+            if (acc == null) {
+                acc = windowAggregator.createAccumulators();
+                if (!windowAssigner.isEventTime()) {
+                    // the timers of processing time windows must be registered before the
+                    // processing time advances, they flush the buffer when they fire
+                    evaluatePaneTriggers(pane);
+                }
+            }
+            windowAggregator.setAccumulators(pane, acc);
+            if (RowDataUtil.isAccumulateMsg(inputRow)) {
+                windowAggregator.accumulate(inputRow);
+            } else {
+                windowAggregator.retract(inputRow);
+            }
+            paneAccs.put(pane, windowAggregator.getAccumulators());
+        }
+
+        if (++numBufferedRecords >= miniBatchSize) {
+            flushMiniBatch();
+        }
+    }
+
+    /**
+     * Merges the buffered accumulators into the window state. For event time windows, the triggers
+     * are evaluated here once per key and pane instead of once per record.
+     */
+    private void flushMiniBatch() throws Exception {
+        if (miniBatchBuffer == null || miniBatchBuffer.isEmpty()) {
+            return;
+        }
+
+        for (Map.Entry<K, Map<W, RowData>> keyEntry : miniBatchBuffer.entrySet()) {
+            setCurrentKey(keyEntry.getKey());
+            for (Map.Entry<W, RowData> paneEntry : keyEntry.getValue().entrySet()) {
+                W pane = paneEntry.getKey();
+                windowState.setCurrentNamespace(pane);
+                RowData acc = windowState.value();
+                if (acc == null) {
+                    acc = paneEntry.getValue();
+                } else {
+                    windowAggregator.setAccumulators(pane, acc);
+                    windowAggregator.merge(pane, paneEntry.getValue());
+                    acc = windowAggregator.getAccumulators();
+                }
+                windowState.update(acc);
+
+                if (windowAssigner.isEventTime()) {
+                    evaluatePaneTriggers(pane);
+                }
+            }
+        }
+        miniBatchBuffer.clear();
+        numBufferedRecords = 0;
+    }
+
+    /**
+     * Evaluates the triggers of the windows the given pane belongs to, and registers their cleanup
+     * timers. The windows of a pane are the same for all timestamps of the pane.
+     */
+    private void evaluatePaneTriggers(W pane) throws Exception {
+        long timestamp = pane.maxTimestamp();
+        for (W window : windowFunction.assignActualWindows(null, timestamp)) {
+            triggerContext.window = window;
+            if (triggerContext.onElement(null, timestamp)) {
+                emitWindowResult(window);
+            }
+            registerCleanupTimer(window);
+        }
+    }
+
+    @Override
+    public void processWatermark(Watermark mark) throws Exception {
+        // the buffered records must be in the window state before the windows fire
+        flushMiniBatch();
+        super.processWatermark(mark);
+    }
+
+    @Override
+    public void prepareSnapshotPreBarrier(long checkpointId) throws Exception {
+        super.prepareSnapshotPreBarrier(checkpointId);
+        flushMiniBatch();
+    }
+
     @Override
     public void onEventTime(InternalTimer<K, W> timer) throws Exception {
         setCurrentKey(timer.getKey());
@@ -396,6 +535,7 @@ public abstract class WindowOperator<K, W extends Window> extends AbstractStream
             return;
         }
 
+        flushMiniBatch();
         setCurrentKey(timer.getKey());
 
         triggerContext.window = timer.getNamespace();
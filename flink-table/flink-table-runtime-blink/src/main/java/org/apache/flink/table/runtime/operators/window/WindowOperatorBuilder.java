@@ -31,6 +31,7 @@ import org.apache.flink.table.runtime.operators.window.assigners.CountSlidingWin
 import org.apache.flink.table.runtime.operators.window.assigners.CountTumblingWindowAssigner;
 import org.apache.flink.table.runtime.operators.window.assigners.CumulativeWindowAssigner;
 import org.apache.flink.table.runtime.operators.window.assigners.InternalTimeWindowAssigner;
+import org.apache.flink.table.runtime.operators.window.assigners.PanedWindowAssigner;
 import org.apache.flink.table.runtime.operators.window.assigners.SessionWindowAssigner;
 import org.apache.flink.table.runtime.operators.window.assigners.SlidingWindowAssigner;
 import org.apache.flink.table.runtime.operators.window.assigners.TumblingWindowAssigner;
@@ -58,6 +59,7 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
  *   .withEventTime()	// withProcessingTime()
  *   .withAllowedLateness(Duration.ZERO)
  *   .produceUpdates()
+ *   .withMiniBatch(1000)
  *   .aggregate(AggregationsFunction, accTypes, windowTypes)
  *   .build();
  * </pre>
@@ -72,6 +74,7 @@ public class WindowOperatorBuilder {
     protected long allowedLateness = 0L;
     protected boolean produceUpdates = false;
     protected int rowtimeIndex = -1;
+    protected int miniBatchSize = 0;
 
     public static WindowOperatorBuilder builder() {
         return new WindowOperatorBuilder();
@@ -171,6 +174,34 @@ public class WindowOperatorBuilder {
         return this;
     }
 
+    /**
+     * Combines up to the given number of records per key and pane on the heap before they are
+     * applied to the window state. Only supported for sliding and cumulative windows that fire once
+     * at the end of the window and don't produce updates.
+     */
+    public WindowOperatorBuilder withMiniBatch(int miniBatchSize) {
+        checkArgument(miniBatchSize > 0, "The mini-batch size must be positive.");
+        this.miniBatchSize = miniBatchSize;
+        return this;
+    }
+
+    private <T extends WindowOperator> T applyMiniBatch(T operator) {
+        if (miniBatchSize > 0) {
+            checkArgument(
+                    windowAssigner instanceof PanedWindowAssigner,
+                    "Mini-batch is only supported for paned windows, but the assigner is %s.",
+                    windowAssigner);
+            checkArgument(
+                    trigger instanceof EventTimeTriggers.AfterEndOfWindow
+                            || trigger instanceof ProcessingTimeTriggers.AfterEndOfWindow,
+                    "Mini-batch is only supported for windows that fire at the end of the window, but the trigger is %s.",
+                    trigger);
+            checkArgument(!produceUpdates, "Mini-batch is not supported for windows with updates.");
+            operator.setMiniBatchSize(miniBatchSize);
+        }
+        return operator;
+    }
+
     protected void aggregate(
             LogicalType[] accumulatorTypes,
             LogicalType[] aggResultTypes,
@@ -266,34 +297,36 @@ public class WindowOperatorBuilder {
             checkNotNull(windowOperatorBuilder.trigger, "trigger is not set");
             if (generatedTableAggregateFunction != null) {
                 //noinspection unchecked
-                return new TableAggregateWindowOperator(
-                        generatedTableAggregateFunction,
-                        windowOperatorBuilder.windowAssigner,
-                        windowOperatorBuilder.trigger,
-                        windowOperatorBuilder.windowAssigner.getWindowSerializer(
-                                new ExecutionConfig()),
-                        windowOperatorBuilder.inputFieldTypes,
-                        windowOperatorBuilder.accumulatorTypes,
-                        windowOperatorBuilder.aggResultTypes,
-                        windowOperatorBuilder.windowPropertyTypes,
-                        windowOperatorBuilder.rowtimeIndex,
-                        windowOperatorBuilder.produceUpdates,
-                        windowOperatorBuilder.allowedLateness);
+                return windowOperatorBuilder.applyMiniBatch(
+                        new TableAggregateWindowOperator(
+                                generatedTableAggregateFunction,
+                                windowOperatorBuilder.windowAssigner,
+                                windowOperatorBuilder.trigger,
+                                windowOperatorBuilder.windowAssigner.getWindowSerializer(
+                                        new ExecutionConfig()),
+                                windowOperatorBuilder.inputFieldTypes,
+                                windowOperatorBuilder.accumulatorTypes,
+                                windowOperatorBuilder.aggResultTypes,
+                                windowOperatorBuilder.windowPropertyTypes,
+                                windowOperatorBuilder.rowtimeIndex,
+                                windowOperatorBuilder.produceUpdates,
+                                windowOperatorBuilder.allowedLateness));
             } else {
                 //noinspection unchecked
-                return new TableAggregateWindowOperator(
-                        tableAggregateFunction,
-                        windowOperatorBuilder.windowAssigner,
-                        windowOperatorBuilder.trigger,
-                        windowOperatorBuilder.windowAssigner.getWindowSerializer(
-                                new ExecutionConfig()),
-                        windowOperatorBuilder.inputFieldTypes,
-                        windowOperatorBuilder.accumulatorTypes,
-                        windowOperatorBuilder.aggResultTypes,
-                        windowOperatorBuilder.windowPropertyTypes,
-                        windowOperatorBuilder.rowtimeIndex,
-                        windowOperatorBuilder.produceUpdates,
-                        windowOperatorBuilder.allowedLateness);
+                return windowOperatorBuilder.applyMiniBatch(
+                        new TableAggregateWindowOperator(
+                                tableAggregateFunction,
+                                windowOperatorBuilder.windowAssigner,
+                                windowOperatorBuilder.trigger,
+                                windowOperatorBuilder.windowAssigner.getWindowSerializer(
+                                        new ExecutionConfig()),
+                                windowOperatorBuilder.inputFieldTypes,
+                                windowOperatorBuilder.accumulatorTypes,
+                                windowOperatorBuilder.aggResultTypes,
+                                windowOperatorBuilder.windowPropertyTypes,
+                                windowOperatorBuilder.rowtimeIndex,
+                                windowOperatorBuilder.produceUpdates,
+                                windowOperatorBuilder.allowedLateness));
             }
         }
     }
@@ -328,36 +361,38 @@ public class WindowOperatorBuilder {
             checkNotNull(windowOperatorBuilder.trigger, "trigger is not set");
             if (generatedAggregateFunction != null && generatedEqualiser != null) {
                 //noinspection unchecked
-                return new AggregateWindowOperator(
-                        generatedAggregateFunction,
-                        generatedEqualiser,
-                        windowOperatorBuilder.windowAssigner,
-                        windowOperatorBuilder.trigger,
-                        windowOperatorBuilder.windowAssigner.getWindowSerializer(
-                                new ExecutionConfig()),
-                        windowOperatorBuilder.inputFieldTypes,
-                        windowOperatorBuilder.accumulatorTypes,
-                        windowOperatorBuilder.aggResultTypes,
-                        windowOperatorBuilder.windowPropertyTypes,
-                        windowOperatorBuilder.rowtimeIndex,
-                        windowOperatorBuilder.produceUpdates,
-                        windowOperatorBuilder.allowedLateness);
+                return windowOperatorBuilder.applyMiniBatch(
+                        new AggregateWindowOperator(
+                                generatedAggregateFunction,
+                                generatedEqualiser,
+                                windowOperatorBuilder.windowAssigner,
+                                windowOperatorBuilder.trigger,
+                                windowOperatorBuilder.windowAssigner.getWindowSerializer(
+                                        new ExecutionConfig()),
+                                windowOperatorBuilder.inputFieldTypes,
+                                windowOperatorBuilder.accumulatorTypes,
+                                windowOperatorBuilder.aggResultTypes,
+                                windowOperatorBuilder.windowPropertyTypes,
+                                windowOperatorBuilder.rowtimeIndex,
+                                windowOperatorBuilder.produceUpdates,
+                                windowOperatorBuilder.allowedLateness));
             } else {
                 //noinspection unchecked
-                return new AggregateWindowOperator(
-                        aggregateFunction,
-                        equaliser,
-                        windowOperatorBuilder.windowAssigner,
-                        windowOperatorBuilder.trigger,
-                        windowOperatorBuilder.windowAssigner.getWindowSerializer(
-                                new ExecutionConfig()),
-                        windowOperatorBuilder.inputFieldTypes,
-                        windowOperatorBuilder.accumulatorTypes,
-                        windowOperatorBuilder.aggResultTypes,
-                        windowOperatorBuilder.windowPropertyTypes,
-                        windowOperatorBuilder.rowtimeIndex,
-                        windowOperatorBuilder.produceUpdates,
-                        windowOperatorBuilder.allowedLateness);
+                return windowOperatorBuilder.applyMiniBatch(
+                        new AggregateWindowOperator(
+                                aggregateFunction,
+                                equaliser,
+                                windowOperatorBuilder.windowAssigner,
+                                windowOperatorBuilder.trigger,
+                                windowOperatorBuilder.windowAssigner.getWindowSerializer(
+                                        new ExecutionConfig()),
+                                windowOperatorBuilder.inputFieldTypes,
+                                windowOperatorBuilder.accumulatorTypes,
+                                windowOperatorBuilder.aggResultTypes,
+                                windowOperatorBuilder.windowPropertyTypes,
+                                windowOperatorBuilder.rowtimeIndex,
+                                windowOperatorBuilder.produceUpdates,
+                                windowOperatorBuilder.allowedLateness));
             }
         }
     }
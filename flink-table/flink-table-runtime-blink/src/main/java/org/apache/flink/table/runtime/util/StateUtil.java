@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.table.runtime.util;
+
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.context.ExecutionContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Utility to access keyed state. */
+public class StateUtil {
+
+    /**
+     * Returns the values of the given keys in the given state. If the state supports it, all keys
+     * are looked up in one batch, otherwise the keys are set as current key one by one. The current
+     * key of the context is the same after the call.
+     */
+    @SuppressWarnings("unchecked")
+    public static <V> List<V> multiGet(
+            ValueState<V> state, List<RowData> keys, ExecutionContext ctx) throws Exception {
+        if (state instanceof InternalValueState) {
+            return ((InternalValueState<RowData, ?, V>) state).multiGet(keys);
+        }
+
+        RowData currentKey = ctx.currentKey();
+        List<V> values = new ArrayList<>(keys.size());
+        try {
+            for (RowData key : keys) {
+                ctx.setCurrentKey(key);
+                values.add(state.value());
+            }
+        } finally {
+            if (currentKey != null) {
+                ctx.setCurrentKey(currentKey);
+            }
+        }
+        return values;
+    }
+}
@@ -332,6 +332,178 @@ public class WindowOperatorTest {
         testHarness.close();
     }
 
+    @Test
+    public void testEventTimeSlidingWindowsWithMiniBatch() throws Exception {
+        WindowOperator operator =
+                WindowOperatorBuilder.builder()
+                        .withInputFields(inputFieldTypes)
+                        .sliding(Duration.ofSeconds(3), Duration.ofSeconds(1))
+                        .withEventTime(2)
+                        .withMiniBatch(100)
+                        .aggregateAndBuild(
+                                getTimeWindowAggFunction(),
+                                equaliser,
+                                accTypes,
+                                aggResultTypes,
+                                windowTypes);
+
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                createTestHarness(operator);
+
+        testHarness.open();
+
+        ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+        // add elements out-of-order
+        testHarness.processElement(insertRecord("key2", 1, 3999L));
+        testHarness.processElement(insertRecord("key2", 1, 3000L));
+
+        testHarness.processElement(insertRecord("key1", 1, 20L));
+        testHarness.processElement(insertRecord("key1", 1, 0L));
+        testHarness.processElement(insertRecord("key1", 1, 999L));
+
+        testHarness.processElement(insertRecord("key2", 1, 1998L));
+        testHarness.processElement(insertRecord("key2", 1, 1999L));
+        testHarness.processElement(insertRecord("key2", 1, 1000L));
+
+        // nothing is emitted before the watermark
+        assertTrue(testHarness.getOutput().isEmpty());
+
+        testHarness.processWatermark(new Watermark(999));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 3L, 3L, -2000L, 1000L, 999L)));
+        expectedOutput.add(new Watermark(999));
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.processElement(insertRecord("key1", 1, 1500L));
+        testHarness.processElement(insertRecord("key1", 1, 2500L));
+
+        // the buffered records are flushed into the snapshot
+        testHarness.prepareSnapshotPreBarrier(0L);
+        OperatorSubtaskState snapshot = testHarness.snapshot(0L, 0);
+        testHarness.close();
+        expectedOutput.clear();
+
+        testHarness = createTestHarness(operator);
+        testHarness.setup();
+        testHarness.initializeState(snapshot);
+        testHarness.open();
+
+        testHarness.processWatermark(new Watermark(1999));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 4L, 4L, -1000L, 2000L, 1999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 3L, 3L, -1000L, 2000L, 1999L)));
+        expectedOutput.add(new Watermark(1999));
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.processWatermark(new Watermark(2999));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 5L, 5L, 0L, 3000L, 2999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 3L, 3L, 0L, 3000L, 2999L)));
+        expectedOutput.add(new Watermark(2999));
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.processWatermark(new Watermark(3999));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 2L, 2L, 1000L, 4000L, 3999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 5L, 5L, 1000L, 4000L, 3999L)));
+        expectedOutput.add(new Watermark(3999));
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.close();
+    }
+
+    @Test
+    public void testProcessingTimeSlidingWindowsWithMiniBatch() throws Throwable {
+        WindowOperator operator =
+                WindowOperatorBuilder.builder()
+                        .withInputFields(inputFieldTypes)
+                        .sliding(Duration.ofSeconds(3), Duration.ofSeconds(1))
+                        .withProcessingTime()
+                        .withMiniBatch(2)
+                        .aggregateAndBuild(
+                                getTimeWindowAggFunction(),
+                                equaliser,
+                                accTypes,
+                                aggResultTypes,
+                                windowTypes);
+
+        OneInputStreamOperatorTestHarness<RowData, RowData> testHarness =
+                createTestHarness(operator);
+
+        ConcurrentLinkedQueue<Object> expectedOutput = new ConcurrentLinkedQueue<>();
+
+        testHarness.open();
+
+        // timestamp is ignored in processing time
+        testHarness.setProcessingTime(3);
+        testHarness.processElement(insertRecord("key2", 1, Long.MAX_VALUE));
+
+        testHarness.setProcessingTime(1000);
+
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 1L, 1L, -2000L, 1000L, 999L)));
+
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.processElement(insertRecord("key2", 1, Long.MAX_VALUE));
+        testHarness.processElement(insertRecord("key2", 1, Long.MAX_VALUE));
+        testHarness.processElement(insertRecord("key1", 1, Long.MAX_VALUE));
+
+        testHarness.setProcessingTime(2000);
+
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 3L, 3L, -1000L, 2000L, 1999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 1L, 1L, -1000L, 2000L, 1999L)));
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.setProcessingTime(7000);
+
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 3L, 3L, 0L, 3000L, 2999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 1L, 1L, 0L, 3000L, 2999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key2", 2L, 2L, 1000L, 4000L, 3999L)));
+        expectedOutput.addAll(
+                doubleRecord(isTableAggregate, insertRecord("key1", 1L, 1L, 1000L, 4000L, 3999L)));
+
+        assertor.assertOutputEqualsSorted(
+                "Output was not correct.", expectedOutput, testHarness.getOutput());
+
+        testHarness.close();
+    }
+
+    @Test
+    public void testMiniBatchRequiresPanedWindows() {
+        try {
+            WindowOperatorBuilder.builder()
+                    .withInputFields(inputFieldTypes)
+                    .session(Duration.ofSeconds(3))
+                    .withEventTime(2)
+                    .withMiniBatch(100)
+                    .aggregateAndBuild(
+                            getTimeWindowAggFunction(),
+                            equaliser,
+                            accTypes,
+                            aggResultTypes,
+                            windowTypes);
+            fail("IllegalArgumentException expected.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
     @Test
     public void testEventTimeCumulativeWindows() throws Exception {
         closeCalled.set(0);